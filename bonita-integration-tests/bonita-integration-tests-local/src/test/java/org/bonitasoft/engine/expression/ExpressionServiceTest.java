@@ -43,7 +43,6 @@ import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingEx
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
 import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
-import org.bonitasoft.engine.expression.impl.GroovyScriptExpressionExecutorCacheStrategy;
 import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.expression.model.builder.SExpressionBuilder;
 import org.bonitasoft.engine.expression.model.builder.SExpressionBuilderFactory;
@@ -158,21 +157,6 @@ public class ExpressionServiceTest extends CommonBPMServicesTest {
         evaluate(strExpr, EMPTY_RESOLVED_EXPRESSIONS);
     }
 
-    @Test
-    public void checkGroovyScriptStrategyUsesCache() throws Exception {
-        //given
-        final String strContent = "return \"junit test checkGroovyScriptStrategyUsesCache\"";
-        final SExpression strExpr = buildExpression(strContent, SExpression.TYPE_READ_ONLY_SCRIPT, String.class.getName(), SExpression.GROOVY, null);
-        final String cacheKey = GroovyScriptExpressionExecutorCacheStrategy.SCRIPT_KEY + strContent.hashCode();
-        assertThat(cacheService.get(GroovyScriptExpressionExecutorCacheStrategy.GROOVY_SCRIPT_CACHE_NAME, cacheKey)).as("should not contains key").isNull();
-
-        //when
-        evaluate(strExpr, EMPTY_RESOLVED_EXPRESSIONS);
-
-        //then
-        assertThat(cacheService.get(GroovyScriptExpressionExecutorCacheStrategy.GROOVY_SCRIPT_CACHE_NAME, cacheKey)).as("should contains key").isNotNull();
-    }
-
     @Test
     @SuppressWarnings("unchecked")
     public void evaluateListExpression() throws Exception {
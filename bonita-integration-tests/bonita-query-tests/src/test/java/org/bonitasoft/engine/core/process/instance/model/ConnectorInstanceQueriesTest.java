@@ -24,6 +24,7 @@ import org.assertj.core.api.Condition;
 import org.assertj.core.util.Lists;
 import org.bonitasoft.engine.bpm.connector.ConnectorEvent;
 import org.bonitasoft.engine.bpm.connector.ConnectorState;
+import org.bonitasoft.engine.core.process.instance.model.archive.SAConnectorInstance;
 import org.bonitasoft.engine.core.process.instance.model.impl.SConnectorInstanceImpl;
 import org.bonitasoft.engine.test.persistence.builder.PersistentObjectBuilder;
 import org.bonitasoft.engine.test.persistence.repository.ConnectorInstanceRepository;
@@ -59,6 +60,8 @@ public class ConnectorInstanceQueriesTest {
 
     private SConnectorInstanceImpl expectedConnector6;
 
+    private SConnectorInstanceImpl differentTenantConnector;
+
     /**
      * 
      */
@@ -101,7 +104,7 @@ public class ConnectorInstanceQueriesTest {
         connectorInstanceOfDifferentContainer = repository.add(aConnectorInstance().setContainerId(differentContainerId).setContainerType(containerType)
                 .setActivationEvent(ConnectorEvent.ON_ENTER)
                 .withFailureInfo(false).build());// unexpected connector on different container
-        SConnectorInstanceImpl differentTenantConnector = aConnectorInstance().setContainerId(containerId).setContainerType(containerType)
+        differentTenantConnector = aConnectorInstance().setContainerId(containerId).setContainerType(containerType)
                 .setActivationEvent(ConnectorEvent.ON_FINISH)
                 .withFailureInfo(false).build();
         differentTenantConnector.setTenantId(tenantId);
@@ -134,6 +137,49 @@ public class ConnectorInstanceQueriesTest {
         assertThat(nbOfConnectors).isEqualTo(6);
     }
 
+    @Test
+    public void deleteConnectorInstances_should_only_delete_connector_instances_of_the_container_on_the_tenant() {
+        int deleted = repository.deleteConnectorInstances(containerId, containerType, PersistentObjectBuilder.DEFAULT_TENANT_ID);
+
+        assertThat(deleted).isEqualTo(6);
+        assertThat(repository.getConnectorInstances(containerId, containerType, PersistentObjectBuilder.DEFAULT_TENANT_ID)).isEmpty();
+        assertThat(repository.getConnectorInstances(connectorInstanceOfDifferentContainer.getContainerId(), containerType,
+                PersistentObjectBuilder.DEFAULT_TENANT_ID)).containsOnly(connectorInstanceOfDifferentContainer);
+        assertThat(repository.getConnectorInstances(containerId, containerType, differentTenantConnector.getTenantId())).containsOnly(
+                differentTenantConnector);
+    }
+
+    @Test
+    public void deleteConnectorInstances_should_delete_all_connector_instances_of_a_large_container_with_one_statement() {
+        long largeContainerId = 42L;
+        for (int i = 0; i < 2000; i++) {
+            SConnectorInstanceImpl connectorInstance = aConnectorInstance().setContainerId(largeContainerId).setContainerType(containerType)
+                    .setActivationEvent(ConnectorEvent.ON_ENTER).withFailureInfo(false).build();
+            connectorInstance.setId(1000L + i);
+            repository.add(connectorInstance);
+        }
+
+        int deleted = repository.deleteConnectorInstances(largeContainerId, containerType, PersistentObjectBuilder.DEFAULT_TENANT_ID);
+
+        assertThat(deleted).isEqualTo(2000);
+        assertThat(repository.getNumberOfConnectorInstances(largeContainerId, containerType, PersistentObjectBuilder.DEFAULT_TENANT_ID)).isEqualTo(0);
+        assertThat(repository.getNumberOfConnectorInstances(containerId, containerType, PersistentObjectBuilder.DEFAULT_TENANT_ID)).isEqualTo(6);
+    }
+
+    @Test
+    public void archiveConnectorInstances_should_copy_connector_instances_of_the_container_with_contiguous_ids() {
+        int archived = repository.archiveConnectorInstances(containerId, containerType, 1500L, 10001L, PersistentObjectBuilder.DEFAULT_TENANT_ID);
+
+        assertThat(archived).isEqualTo(6);
+        List<SAConnectorInstance> archivedConnectors = repository.getArchivedConnectorInstances(containerId, containerType,
+                PersistentObjectBuilder.DEFAULT_TENANT_ID);
+        assertThat(archivedConnectors).extracting("id").containsOnly(10001L, 10002L, 10003L, 10004L, 10005L, 10006L);
+        assertThat(archivedConnectors).extracting("sourceObjectId").containsOnly(expectedConnector1.getId(), expectedConnector2.getId(),
+                expectedConnector3.getId(), expectedConnector4.getId(), expectedConnector5.getId(), expectedConnector6.getId());
+        assertThat(archivedConnectors).extracting("archiveDate").containsOnly(1500L);
+        assertThat(archivedConnectors).extracting("state").contains(ConnectorState.EXECUTING.toString(), ConnectorState.DONE.toString());
+    }
+
     @Test
     public void getNextExecutableConnectorInstance() {
         SConnectorInstance connectors = repository
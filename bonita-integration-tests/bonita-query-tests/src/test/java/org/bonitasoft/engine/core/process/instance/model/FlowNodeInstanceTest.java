@@ -23,9 +23,12 @@ import static org.bonitasoft.engine.test.persistence.builder.ProcessInstanceBuil
 import static org.bonitasoft.engine.test.persistence.builder.UserBuilder.aUser;
 import static org.bonitasoft.engine.test.persistence.builder.UserMembershipBuilder.aUserMembership;
 import static org.bonitasoft.engine.test.persistence.builder.UserTaskInstanceBuilder.aUserTask;
+import static org.bonitasoft.engine.test.persistence.builder.WorkJournalEntryBuilder.aWorkJournalEntry;
 import static org.bonitasoft.engine.test.persistence.builder.archive.ArchivedUserTaskInstanceBuilder.anArchivedUserTask;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import javax.inject.Inject;
 
 import org.bonitasoft.engine.actor.mapping.model.SActor;
@@ -123,6 +126,29 @@ public class FlowNodeInstanceTest {
         assertThat(nodeToRestart).containsOnly(executing.getId(), notStable.getId(), terminal.getId(), abortingBoundary.getId(), cancellingBoundary.getId());
     }
 
+    @Test
+    public void getFlowNodeInstanceIdsToRestartFromWorkJournal_should_return_ids_of_journaled_flow_nodes_that_need_to_be_restarted() {
+        // given
+        final SFlowNodeInstance normal = repository.add(aUserTask().withName("normalTask").withStateExecuting(false).withStable(true).withTerminal(false)
+                .build());
+        final SFlowNodeInstance executing = repository.add(aUserTask().withName("executingTask").withStateExecuting(true).withStable(true).withTerminal(false)
+                .build());
+        final SFlowNodeInstance executingJournaledTwice = repository.add(aUserTask().withName("executingTask2").withStateExecuting(true).withStable(true)
+                .withTerminal(false).build());
+        repository.add(aUserTask().withName("notJournaledTask").withStateExecuting(true).withStable(true).withTerminal(false).build());
+        repository.add(aWorkJournalEntry().withFlowNodeInstanceId(normal.getId()).build());
+        repository.add(aWorkJournalEntry().withFlowNodeInstanceId(executing.getId()).build());
+        repository.add(aWorkJournalEntry().withFlowNodeInstanceId(executingJournaledTwice.getId()).build());
+        repository.add(aWorkJournalEntry().withFlowNodeInstanceId(executingJournaledTwice.getId()).build());
+        repository.add(aWorkJournalEntry().withFlowNodeInstanceId(SWorkJournalEntry.COMPLETE_JOURNAL_MARKER).build());
+
+        // when
+        final List<Long> nodeToRestart = repository.getFlowNodeInstanceIdsToRestartFromWorkJournal(new QueryOptions(0, 10));
+
+        // then
+        assertThat(nodeToRestart).containsOnly(executing.getId(), executingJournaledTwice.getId()).doesNotHaveDuplicates();
+    }
+
     // For
     @Test
     public void getNumberOfSHumanTaskInstanceAssignedAndPendingByRootProcessFor_should_return_number_of_process_definition_if_one_instance_has_assigned_tasks_to_the_user() {
@@ -274,6 +300,23 @@ public class FlowNodeInstanceTest {
 
     }
 
+    @Test
+    public void getFlowNodeTokensOfProcessInstance_should_return_one_row_per_name_and_terminal_flag_of_the_given_elements() {
+        repository.add(aUserTask().withName("step1").withTerminal(false).withParentContainerId(147L).build());
+        repository.add(aUserTask().withName("step1").withTerminal(false).withParentContainerId(147L).build());
+        repository.add(aUserTask().withName("step1").withTerminal(true).withParentContainerId(147L).build());
+        repository.add(aUserTask().withName("step2").withTerminal(true).withParentContainerId(147L).build());
+        repository.add(aUserTask().withName("step3").withTerminal(false).withParentContainerId(147L).build()); // not one of the given elements
+        repository.add(aUserTask().withName("step2").withTerminal(false).withParentContainerId(148L).build()); // in another process instance
+
+        List<Map<String, Object>> tokens = repository.getFlowNodeTokensOfProcessInstance(147L, Arrays.asList("step1", "step2"));
+
+        assertThat(tokens).hasSize(3);
+        assertThat(tokens.get(0)).containsEntry("name", "step1").containsEntry("terminal", false);
+        assertThat(tokens.get(1)).containsEntry("name", "step1").containsEntry("terminal", true);
+        assertThat(tokens.get(2)).containsEntry("name", "step2").containsEntry("terminal", true);
+    }
+
     private SFlowNodeInstance buildAndAddUserTaskWithParentAndRootProcessInstanceId(final String taskName, final long containingProcessInstanceId,
                                                                                     final long rootProcessInstanceId, int stateId, String stateName) {
         return repository.add(aUserTask().withName(taskName).withStateExecuting(false).withStable(true).withTerminal(false)
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.model;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.test.persistence.builder.ActorBuilder.anActor;
+import static org.bonitasoft.engine.test.persistence.builder.ActorMemberBuilder.anActorMember;
+import static org.bonitasoft.engine.test.persistence.builder.PendingActivityMappingBuilder.aPendingActivityMapping;
+import static org.bonitasoft.engine.test.persistence.builder.PendingTaskInboxEntryBuilder.aPendingTaskInboxEntry;
+import static org.bonitasoft.engine.test.persistence.builder.UserBuilder.aUser;
+import static org.bonitasoft.engine.test.persistence.builder.UserMembershipBuilder.aUserMembership;
+import static org.bonitasoft.engine.test.persistence.builder.UserTaskInstanceBuilder.aUserTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.bonitasoft.engine.actor.mapping.model.SActor;
+import org.bonitasoft.engine.test.persistence.repository.PendingTaskInboxRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "/testContext.xml" })
+@Transactional
+public class PendingTaskInboxQueriesTest {
+
+    private static final long JOHN_ID = 1L;
+
+    private static final long BOB_ID = 2L;
+
+    private static final long JACK_ID = 3L;
+
+    private static final long GROUP_ID = 10L;
+
+    private static final long OTHER_GROUP_ID = 11L;
+
+    private static final long ROLE_ID = 20L;
+
+    private static final long OTHER_ROLE_ID = 21L;
+
+    @Inject
+    private PendingTaskInboxRepository repository;
+
+    @Before
+    public void before() {
+        repository.add(aUser().withId(JOHN_ID).withUserName("john").build());
+        repository.add(aUser().withId(BOB_ID).withUserName("bob").build());
+        repository.add(aUser().withId(JACK_ID).withUserName("jack").build());
+        repository.add(aUserMembership().forUser(JOHN_ID).memberOf(GROUP_ID, ROLE_ID).build());
+        repository.add(aUserMembership().forUser(BOB_ID).memberOf(GROUP_ID, OTHER_ROLE_ID).build());
+        repository.add(aUserMembership().forUser(JACK_ID).memberOf(OTHER_GROUP_ID, ROLE_ID).build());
+    }
+
+    @Test
+    public void getCandidateUserIdsOfHumanTask_should_return_users_mapped_directly_or_through_the_members_of_the_actor() {
+        final SActor groupActor = repository.add(anActor().build());
+        repository.add(anActorMember().forActor(groupActor).withGroupId(GROUP_ID).withRoleId(-1L).build());
+        final SActor userActor = repository.add(anActor().build());
+        repository.add(anActorMember().forActor(userActor).withUserId(JACK_ID).build());
+        repository.add(aPendingActivityMapping().withActivityId(100L).withActorId(groupActor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(101L).withActorId(userActor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(102L).withUserId(BOB_ID).build());
+
+        assertThat(repository.getCandidateUserIdsOfHumanTask(100L)).containsExactly(JOHN_ID, BOB_ID);
+        assertThat(repository.getCandidateUserIdsOfHumanTask(101L)).containsExactly(JACK_ID);
+        assertThat(repository.getCandidateUserIdsOfHumanTask(102L)).containsExactly(BOB_ID);
+        assertThat(repository.getHumanTaskInstanceIdsHavingPendingMappingsForUser(BOB_ID)).containsExactly(100L, 102L);
+    }
+
+    @Test
+    public void getMissingPendingTaskInboxEntriesOfActorMember_should_return_the_tasks_of_the_actor_not_in_the_inbox_of_each_user_of_the_member() {
+        final SActor actor = repository.add(anActor().build());
+        final SActor otherActor = repository.add(anActor().build());
+        repository.add(aPendingActivityMapping().withActivityId(100L).withActorId(actor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(101L).withActorId(actor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(102L).withActorId(otherActor.getId()).build());
+        repository.add(aPendingTaskInboxEntry().withUserId(JOHN_ID).withActivityId(100L).build());
+        repository.add(aPendingTaskInboxEntry().withUserId(BOB_ID).withActivityId(101L).build());
+
+        assertThat(missingEntries(actor.getId(), JOHN_ID, -1L, -1L)).containsExactly(JOHN_ID + "-101");
+        assertThat(missingEntries(actor.getId(), -1L, GROUP_ID, -1L)).containsExactly(JOHN_ID + "-101", BOB_ID + "-100");
+        assertThat(missingEntries(actor.getId(), -1L, -1L, ROLE_ID)).containsExactly(JOHN_ID + "-101", JACK_ID + "-100", JACK_ID + "-101");
+        assertThat(missingEntries(actor.getId(), -1L, GROUP_ID, ROLE_ID)).containsExactly(JOHN_ID + "-101");
+    }
+
+    @Test
+    public void getStalePendingTaskInboxEntryIdsOfActorMember_should_keep_the_entries_of_the_tasks_the_users_are_still_candidate_of() {
+        // the member of actor giving the tasks to the group of Bob was removed, John remains
+        final SActor actor = repository.add(anActor().build());
+        repository.add(anActorMember().forActor(actor).withUserId(JOHN_ID).build());
+        final SActor otherActor = repository.add(anActor().build());
+        repository.add(anActorMember().forActor(otherActor).withGroupId(-1L).withRoleId(OTHER_ROLE_ID).build());
+        repository.add(aPendingActivityMapping().withActivityId(100L).withActorId(actor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(101L).withActorId(actor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(101L).withUserId(BOB_ID).build());
+        repository.add(aPendingActivityMapping().withActivityId(102L).withActorId(actor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(102L).withActorId(otherActor.getId()).build());
+        repository.add(aPendingActivityMapping().withActivityId(103L).withActorId(otherActor.getId()).build());
+        final List<Long> entryIdsOfBob = new ArrayList<Long>();
+        for (final long activityId : asList(100L, 101L, 102L, 103L, 104L)) {
+            entryIdsOfBob.add(repository.add(aPendingTaskInboxEntry().withUserId(BOB_ID).withActivityId(activityId).build()).getId());
+        }
+        repository.add(aPendingTaskInboxEntry().withUserId(JOHN_ID).withActivityId(100L).build());
+
+        assertThat(repository.getStalePendingTaskInboxEntryIdsOfActorMember(actor.getId(), BOB_ID, -1L, -1L)).containsExactly(entryIdsOfBob.get(0));
+        assertThat(repository.getStalePendingTaskInboxEntryIdsOfActorMember(actor.getId(), -1L, GROUP_ID, -1L)).containsExactly(entryIdsOfBob.get(0));
+        assertThat(repository.getStalePendingTaskInboxEntryIdsOfActorMember(actor.getId(), JOHN_ID, -1L, -1L)).isEmpty();
+    }
+
+    @Test
+    public void delete_with_filters_should_only_delete_the_entries_of_the_user_on_the_given_tasks() {
+        for (final long activityId : asList(100L, 101L, 102L)) {
+            repository.add(aPendingTaskInboxEntry().withUserId(BOB_ID).withActivityId(activityId).build());
+            repository.add(aPendingTaskInboxEntry().withUserId(JOHN_ID).withActivityId(activityId).build());
+        }
+
+        final int numberOfDeletedEntries = repository.deleteEntriesOfUser(BOB_ID, asList(100L, 102L));
+
+        assertThat(numberOfDeletedEntries).isEqualTo(2);
+        final List<String> entries = new ArrayList<String>();
+        for (final SPendingTaskInboxEntry entry : repository.getAllEntries()) {
+            entries.add(entry.getUserId() + "-" + entry.getActivityId());
+        }
+        assertThat(entries).containsExactly(JOHN_ID + "-100", JOHN_ID + "-101", JOHN_ID + "-102", BOB_ID + "-101");
+    }
+
+    @Test
+    public void getNumberOfSHumanTaskInstancePendingForUserFromInbox_should_count_the_ready_and_unassigned_tasks_in_the_inbox_of_the_user() {
+        final SFlowNodeInstance pending = repository.add(aUserTask().withName("pending").withStateExecuting(false).withStable(true).withTerminal(false)
+                .build());
+        final SFlowNodeInstance assigned = repository.add(aUserTask().withName("assigned").withStateExecuting(false).withStable(true).withTerminal(false)
+                .withAssigneeId(JOHN_ID).build());
+        final SFlowNodeInstance executing = repository.add(aUserTask().withName("executing").withStateExecuting(true).withStable(true).withTerminal(false)
+                .build());
+        final SFlowNodeInstance ofOtherUser = repository.add(aUserTask().withName("other").withStateExecuting(false).withStable(true).withTerminal(false)
+                .build());
+        for (final SFlowNodeInstance task : asList(pending, assigned, executing)) {
+            repository.add(aPendingTaskInboxEntry().withUserId(BOB_ID).withActivityId(task.getId()).build());
+        }
+        repository.add(aPendingTaskInboxEntry().withUserId(JOHN_ID).withActivityId(ofOtherUser.getId()).build());
+
+        assertThat(repository.getNumberOfSHumanTaskInstancePendingForUserFromInbox(BOB_ID)).isEqualTo(1);
+    }
+
+    private List<String> missingEntries(final long actorId, final long userId, final long groupId, final long roleId) {
+        final List<String> entries = new ArrayList<String>();
+        for (final Map<String, Long> entry : repository.getMissingPendingTaskInboxEntriesOfActorMember(actorId, userId, groupId, roleId)) {
+            entries.add(entry.get("userId") + "-" + entry.get("activityId"));
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.test.persistence.builder;
+
+import org.bonitasoft.engine.core.process.instance.model.impl.SPendingTaskInboxEntryImpl;
+
+public class PendingTaskInboxEntryBuilder extends PersistentObjectBuilder<SPendingTaskInboxEntryImpl, PendingTaskInboxEntryBuilder> {
+
+    private long userId;
+
+    private long activityId;
+
+    public static PendingTaskInboxEntryBuilder aPendingTaskInboxEntry() {
+        return new PendingTaskInboxEntryBuilder();
+    }
+
+    @Override
+    PendingTaskInboxEntryBuilder getThisBuilder() {
+        return this;
+    }
+
+    @Override
+    SPendingTaskInboxEntryImpl _build() {
+        return new SPendingTaskInboxEntryImpl(userId, activityId);
+    }
+
+    public PendingTaskInboxEntryBuilder withUserId(final long userId) {
+        this.userId = userId;
+        return this;
+    }
+
+    public PendingTaskInboxEntryBuilder withActivityId(final long activityId) {
+        this.activityId = activityId;
+        return this;
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.test.persistence.builder;
+
+import org.bonitasoft.engine.core.process.instance.model.impl.SWorkJournalEntryImpl;
+
+public class WorkJournalEntryBuilder extends PersistentObjectBuilder<SWorkJournalEntryImpl, WorkJournalEntryBuilder> {
+
+    private long flowNodeInstanceId;
+
+    public static WorkJournalEntryBuilder aWorkJournalEntry() {
+        return new WorkJournalEntryBuilder();
+    }
+
+    @Override
+    WorkJournalEntryBuilder getThisBuilder() {
+        return this;
+    }
+
+    @Override
+    SWorkJournalEntryImpl _build() {
+        return new SWorkJournalEntryImpl(flowNodeInstanceId);
+    }
+
+    public WorkJournalEntryBuilder withFlowNodeInstanceId(final long flowNodeInstanceId) {
+        this.flowNodeInstanceId = flowNodeInstanceId;
+        return this;
+    }
+
+}
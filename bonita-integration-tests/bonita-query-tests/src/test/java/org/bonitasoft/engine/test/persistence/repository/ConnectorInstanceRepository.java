@@ -18,6 +18,9 @@ import java.util.List;
 import org.bonitasoft.engine.bpm.connector.ConnectorEvent;
 import org.bonitasoft.engine.core.process.instance.model.SConnectorInstance;
 import org.bonitasoft.engine.core.process.instance.model.SConnectorInstanceWithFailureInfo;
+import org.bonitasoft.engine.core.process.instance.model.archive.SAConnectorInstance;
+import org.bonitasoft.engine.core.process.instance.model.archive.impl.SAConnectorInstanceImpl;
+import org.bonitasoft.engine.core.process.instance.model.impl.SConnectorInstanceImpl;
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 
@@ -100,6 +103,41 @@ public class ConnectorInstanceRepository extends TestRepository {
         return namedQuery.list();
     }
 
+    public int deleteConnectorInstances(final long containerId, final String containerType, long tenantId) {
+        // same statement as the one built by the persistence service to delete all the connector instances of a container
+        Query query = getSession().createQuery("DELETE FROM " + SConnectorInstanceImpl.class.getName()
+                + " c WHERE tenantId= :tenantId AND (c.containerId = :filterParam0 AND c.containerType = :filterParam1)");
+        query.setLong("tenantId", tenantId);
+        query.setParameter("filterParam0", containerId);
+        query.setParameter("filterParam1", containerType);
+        return query.executeUpdate();
+    }
+
+    public int archiveConnectorInstances(final long containerId, final String containerType, final long archiveDate, final long firstId, long tenantId) {
+        // on H2, the persistence service numbers the rows with ROWNUM() instead of ROW_NUMBER() OVER (...)
+        String queryString = getNamedQuery("archiveConnectorInstancesOfContainer").getQueryString().replaceAll("ROW_NUMBER\\(\\) OVER \\([^)]*\\)",
+                "ROWNUM()");
+        // native statements are not flushed automatically, the persistence service flushes the session before them too
+        getSession().flush();
+        Query query = getSession().createSQLQuery(queryString);
+        query.setLong("firstId", firstId);
+        query.setLong("tenantId", tenantId);
+        query.setLong("containerId", containerId);
+        query.setString("containerType", containerType);
+        query.setLong("archiveDate", archiveDate);
+        return query.executeUpdate();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<SAConnectorInstance> getArchivedConnectorInstances(final long containerId, final String containerType, long tenantId) {
+        getSession().enableFilter("tenantFilter").setParameter("tenantId", tenantId);
+        Query query = getSession().createQuery("FROM " + SAConnectorInstanceImpl.class.getName()
+                + " ac WHERE ac.containerId = :containerId AND ac.containerType = :containerType ORDER BY ac.id");
+        query.setLong("containerId", containerId);
+        query.setString("containerType", containerType);
+        return query.list();
+    }
+
     @SuppressWarnings("unchecked")
     public List<SConnectorInstanceWithFailureInfo> getConnectorInstanceWithFailureInfo(final long containerId, long tenantId) {
         getSession().enableFilter("tenantFilter").setParameter("tenantId", tenantId);
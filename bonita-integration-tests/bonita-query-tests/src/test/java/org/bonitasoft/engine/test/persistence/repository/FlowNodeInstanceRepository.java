@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.test.persistence.repository;
 
 import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstanceStateCounter;
 import org.bonitasoft.engine.core.process.instance.model.SGatewayInstance;
@@ -40,6 +41,15 @@ public class FlowNodeInstanceRepository extends TestRepository {
         return (List<Long>) namedQuery.list();
     }
 
+    @SuppressWarnings("unchecked")
+    public List<Long> getFlowNodeInstanceIdsToRestartFromWorkJournal(final QueryOptions queryOptions) {
+        getSessionWithTenantFilter();
+        final Query namedQuery = getNamedQuery("getFlowNodeInstanceIdsToRestartFromWorkJournal");
+        namedQuery.setMaxResults(queryOptions.getNumberOfResults());
+        namedQuery.setFirstResult(queryOptions.getFromIndex());
+        return (List<Long>) namedQuery.list();
+    }
+
     @SuppressWarnings("unchecked")
     public SGatewayInstance getActiveGatewayInstanceOfProcess(long parentProcessInstanceId, String name) {
         getSessionWithTenantFilter();
@@ -91,6 +101,16 @@ public class FlowNodeInstanceRepository extends TestRepository {
         return (List<SFlowNodeInstanceStateCounter>) namedQuery.list();
     }
 
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> getFlowNodeTokensOfProcessInstance(long processInstanceId, List<String> names) {
+        getSessionWithTenantFilter();
+        Query namedQuery = getNamedQuery("getFlowNodeTokensOfProcessInstance");
+        namedQuery = getSession().createQuery(namedQuery.getQueryString() + " ORDER BY f.name, f.terminal");
+        namedQuery.setParameter("parentContainerId", processInstanceId);
+        namedQuery.setParameterList("names", names);
+        return (List<Map<String, Object>>) namedQuery.list();
+    }
+
     @SuppressWarnings("unchecked")
     public List<SFlowNodeInstanceStateCounter> getNumberOfFlowNodesInAllStates(long processInstanceId) {
         getSessionWithTenantFilter();
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.test.persistence.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.core.process.instance.model.SPendingTaskInboxEntry;
+import org.bonitasoft.engine.core.process.instance.model.impl.SPendingTaskInboxEntryImpl;
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+
+public class PendingTaskInboxRepository extends TestRepository {
+
+    public PendingTaskInboxRepository(final SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Long> getCandidateUserIdsOfHumanTask(final long humanTaskInstanceId) {
+        getSessionWithTenantFilter();
+        final Query namedQuery = getNamedQuery("getCandidateUserIdsOfHumanTask");
+        namedQuery.setParameter("humanTaskInstanceId", humanTaskInstanceId);
+        return namedQuery.list();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Long> getHumanTaskInstanceIdsHavingPendingMappingsForUser(final long userId) {
+        getSessionWithTenantFilter();
+        final Query namedQuery = getNamedQuery("getHumanTaskInstanceIdsHavingPendingMappingsForUser");
+        namedQuery.setParameter("userId", userId);
+        return namedQuery.list();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Long>> getMissingPendingTaskInboxEntriesOfActorMember(final long actorId, final long userId, final long groupId,
+            final long roleId) {
+        getSessionWithTenantFilter();
+        final Query namedQuery = getNamedQuery("getMissingPendingTaskInboxEntriesOfActorMember");
+        setActorMemberParameters(namedQuery, actorId, userId, groupId, roleId);
+        return namedQuery.list();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Long> getStalePendingTaskInboxEntryIdsOfActorMember(final long actorId, final long userId, final long groupId, final long roleId) {
+        getSessionWithTenantFilter();
+        final Query namedQuery = getNamedQuery("getStalePendingTaskInboxEntryIdsOfActorMember");
+        setActorMemberParameters(namedQuery, actorId, userId, groupId, roleId);
+        return namedQuery.list();
+    }
+
+    private void setActorMemberParameters(final Query namedQuery, final long actorId, final long userId, final long groupId, final long roleId) {
+        namedQuery.setParameter("actorId", actorId);
+        namedQuery.setParameter("userId", userId);
+        namedQuery.setParameter("groupId", groupId);
+        namedQuery.setParameter("roleId", roleId);
+    }
+
+    public long getNumberOfSHumanTaskInstancePendingForUserFromInbox(final long userId) {
+        getSessionWithTenantFilter();
+        final Query namedQuery = getNamedQuery("getNumberOfSHumanTaskInstancePendingForUserFromInbox");
+        namedQuery.setParameter("userId", userId);
+        return ((Number) namedQuery.uniqueResult()).longValue();
+    }
+
+    /**
+     * Same statement as the one built by the tenant persistence service to delete the entries of a user on some tasks
+     */
+    public int deleteEntriesOfUser(final long userId, final List<Long> humanTaskInstanceIds) {
+        final Query query = getSession().createQuery("DELETE FROM " + SPendingTaskInboxEntryImpl.class.getName()
+                + " inbox WHERE tenantId= :tenantId AND (inbox.userId = :userId AND inbox.activityId IN (:humanTaskInstanceIds))");
+        query.setParameter("tenantId", 1L);
+        query.setParameter("userId", userId);
+        query.setParameterList("humanTaskInstanceIds", humanTaskInstanceIds);
+        return query.executeUpdate();
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<SPendingTaskInboxEntry> getAllEntries() {
+        getSessionWithTenantFilter();
+        return getSession().createQuery("SELECT inbox FROM " + SPendingTaskInboxEntryImpl.class.getName() + " inbox ORDER BY inbox.userId, inbox.activityId")
+                .list();
+    }
+
+}
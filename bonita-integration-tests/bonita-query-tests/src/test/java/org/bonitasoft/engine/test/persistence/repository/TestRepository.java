@@ -28,6 +28,8 @@ import org.bonitasoft.engine.core.process.definition.model.impl.SProcessDefiniti
 import org.bonitasoft.engine.core.process.instance.model.SConnectorInstance;
 import org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstance;
 import org.bonitasoft.engine.core.process.instance.model.SPendingActivityMapping;
+import org.bonitasoft.engine.core.process.instance.model.SPendingTaskInboxEntry;
+import org.bonitasoft.engine.core.process.instance.model.SWorkJournalEntry;
 import org.bonitasoft.engine.core.process.instance.model.archive.SAFlowNodeInstance;
 import org.bonitasoft.engine.core.process.instance.model.archive.impl.SAFlowNodeInstanceImpl;
 import org.bonitasoft.engine.core.process.instance.model.archive.impl.SAProcessInstanceImpl;
@@ -39,7 +41,9 @@ import org.bonitasoft.engine.core.process.instance.model.event.trigger.impl.SEve
 import org.bonitasoft.engine.core.process.instance.model.impl.SConnectorInstanceImpl;
 import org.bonitasoft.engine.core.process.instance.model.impl.SFlowNodeInstanceImpl;
 import org.bonitasoft.engine.core.process.instance.model.impl.SPendingActivityMappingImpl;
+import org.bonitasoft.engine.core.process.instance.model.impl.SPendingTaskInboxEntryImpl;
 import org.bonitasoft.engine.core.process.instance.model.impl.SProcessInstanceImpl;
+import org.bonitasoft.engine.core.process.instance.model.impl.SWorkJournalEntryImpl;
 import org.bonitasoft.engine.data.instance.model.archive.SADataInstance;
 import org.bonitasoft.engine.data.instance.model.archive.impl.SADataInstanceImpl;
 import org.bonitasoft.engine.identity.model.SCustomUserInfoDefinition;
@@ -127,6 +131,18 @@ public class TestRepository {
                 new PersistentObjectId(pendingActivityMapping.getId(), pendingActivityMapping.getTenantId()));
     }
 
+    public SWorkJournalEntry add(final SWorkJournalEntryImpl workJournalEntry) {
+        getSession().save(workJournalEntry);
+        return (SWorkJournalEntry) getSession().get(workJournalEntry.getClass(),
+                new PersistentObjectId(workJournalEntry.getId(), workJournalEntry.getTenantId()));
+    }
+
+    public SPendingTaskInboxEntry add(final SPendingTaskInboxEntryImpl pendingTaskInboxEntry) {
+        getSession().save(pendingTaskInboxEntry);
+        return (SPendingTaskInboxEntry) getSession().get(pendingTaskInboxEntry.getClass(),
+                new PersistentObjectId(pendingTaskInboxEntry.getId(), pendingTaskInboxEntry.getTenantId()));
+    }
+
     public SActorMember add(final SActorMemberImpl actorMember) {
         getSession().save(actorMember);
         return (SActorMember) getSession().get(actorMember.getClass(), new PersistentObjectId(actorMember.getId(), actorMember.getTenantId()));
@@ -37,17 +37,22 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.MultipartEntity;
 import org.apache.http.entity.mime.content.ByteArrayBody;
 import org.apache.http.entity.mime.content.StringBody;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
+import org.bonitasoft.engine.api.internal.BinaryCodec;
 import org.bonitasoft.engine.api.internal.ServerAPI;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
+import org.bonitasoft.engine.api.tcp.MethodCall;
 import org.bonitasoft.engine.bpm.bar.BusinessArchive;
 import org.bonitasoft.engine.exception.BonitaRuntimeException;
 import org.bonitasoft.engine.exception.StackTraceTransformer;
+import org.bonitasoft.engine.http.BinaryResponseHandler;
 import org.bonitasoft.engine.http.BonitaResponseHandler;
 
 import com.thoughtworks.xstream.XStream;
@@ -89,6 +94,8 @@ public class HTTPServerAPI implements ServerAPI {
 
     static final String APPLICATION_NAME = "application.name";
 
+    static final String BINARY_CODEC_ACTIVE = "binaryCodec.active";
+
     private static final Logger LOGGER = Logger.getLogger(HTTPServerAPI.class.getName());
 
     private String serverUrl = null;
@@ -101,6 +108,8 @@ public class HTTPServerAPI implements ServerAPI {
 
     private String basicAuthenticationPassword = null;
 
+    private boolean binaryCodecActive = false;
+
     private static DefaultHttpClient httpclient;
 
     private static final XStream XSTREAM;
@@ -109,6 +118,10 @@ public class HTTPServerAPI implements ServerAPI {
 
     private static final ResponseHandler<String> RESPONSE_HANDLER = new BonitaResponseHandler();
 
+    private static final ResponseHandler<Object> BINARY_RESPONSE_HANDLER = new BinaryResponseHandler();
+
+    private static final ContentType BINARY_CONTENT_TYPE = ContentType.create(BinaryCodec.CONTENT_TYPE);
+
     static {
         XSTREAM = new XStream();
         XSTREAM.registerConverter(new BonitaStackTraceElementConverter(), XStream.PRIORITY_VERY_HIGH);
@@ -125,6 +138,7 @@ public class HTTPServerAPI implements ServerAPI {
         basicAuthenticationActive = "true".equalsIgnoreCase(parameters.get(BASIC_AUTHENTICATION_ACTIVE));
         basicAuthenticationUserName = parameters.get(BASIC_AUTHENTICATION_USERNAME);
         basicAuthenticationPassword = parameters.get(BASIC_AUTHENTICATION_PASSWORD);
+        binaryCodecActive = "true".equalsIgnoreCase(parameters.get(BINARY_CODEC_ACTIVE));
     }
 
     @Override
@@ -132,6 +146,9 @@ public class HTTPServerAPI implements ServerAPI {
             final List<String> classNameParameters, final Object[] parametersValues) throws ServerWrappedException {
         String response = null;
         try {
+            if (binaryCodecActive) {
+                return checkInvokeMethodReturn(executeBinaryHttpPost(options, apiInterfaceName, methodName, classNameParameters, parametersValues));
+            }
             response = executeHttpPost(options, apiInterfaceName, methodName, classNameParameters, parametersValues, XSTREAM);
             return checkInvokeMethodReturn(response, XSTREAM);
         } catch (final UndeclaredThrowableException e) {
@@ -157,6 +174,24 @@ public class HTTPServerAPI implements ServerAPI {
         return invokeMethodReturn;
     }
 
+    private Object checkInvokeMethodReturn(final Object invokeMethodReturn) throws Throwable {
+        if (invokeMethodReturn instanceof Throwable) {
+            throw (Throwable) invokeMethodReturn;
+        }
+        return invokeMethodReturn;
+    }
+
+    /**
+     * Send the call encoded with the {@link BinaryCodec}: the server answers with the same codec, compressed when the response is large.
+     */
+    private Object executeBinaryHttpPost(final Map<String, Serializable> options, final String apiInterfaceName, final String methodName,
+            final List<String> classNameParameters, final Object[] parametersValues) throws IOException {
+        final MethodCall methodCall = new MethodCall(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
+        final HttpPost httpost = createHttpPost(new ByteArrayEntity(BinaryCodec.serialize(methodCall), BINARY_CONTENT_TYPE), apiInterfaceName, methodName);
+        httpost.setHeader("Accept-Encoding", BinaryCodec.GZIP);
+        return httpclient.execute(httpost, BINARY_RESPONSE_HANDLER);
+    }
+
     private String executeHttpPost(final Map<String, Serializable> options, final String apiInterfaceName, final String methodName,
             final List<String> classNameParameters, final Object[] parametersValues, final XStream xstream) throws UnsupportedEncodingException, IOException,
             ClientProtocolException {
@@ -173,7 +208,10 @@ public class HTTPServerAPI implements ServerAPI {
 
     private final HttpPost createHttpPost(final Map<String, Serializable> options, final String apiInterfaceName, final String methodName,
             final List<String> classNameParameters, final Object[] parametersValues, final XStream xstream) throws UnsupportedEncodingException, IOException {
-        final HttpEntity httpEntity = buildEntity(options, classNameParameters, parametersValues, xstream);
+        return createHttpPost(buildEntity(options, classNameParameters, parametersValues, xstream), apiInterfaceName, methodName);
+    }
+
+    private HttpPost createHttpPost(final HttpEntity httpEntity, final String apiInterfaceName, final String methodName) {
         final StringBuilder sBuilder = new StringBuilder(serverUrl);
         sBuilder.append(SLASH).append(applicationName).append(SERVER_API).append(apiInterfaceName).append(SLASH).append(methodName);
         final HttpPost httpost = new HttpPost(sBuilder.toString());
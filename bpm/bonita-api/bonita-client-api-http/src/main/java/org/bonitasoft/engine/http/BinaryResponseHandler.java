@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.client.ResponseHandler;
+import org.bonitasoft.engine.api.internal.BinaryCodec;
+
+/**
+ * Decodes the responses encoded with the {@link BinaryCodec}. An exception thrown by the server is returned, not thrown.
+ */
+public class BinaryResponseHandler implements ResponseHandler<Object> {
+
+    @Override
+    public Object handleResponse(final HttpResponse response) throws IOException {
+        final HttpEntity entity = response.getEntity();
+        final StatusLine statusLine = response.getStatusLine();
+        if (entity == null || !isBinary(entity.getContentType())) {
+            if (statusLine.getStatusCode() == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
+                throw new HttpResponseException(statusLine.getStatusCode(),
+                        "The server does not accept binary encoded calls: set the init parameter binaryCodec.enabled of the HttpAPIServlet or deactivate binaryCodec.active");
+            }
+            if (statusLine.getStatusCode() >= 300) {
+                throw new HttpResponseException(statusLine.getStatusCode(), statusLine.getReasonPhrase());
+            }
+            throw new IOException("The server did not answer with the binary codec, content type: " + (entity == null ? null : entity.getContentType()));
+        }
+        InputStream content = entity.getContent();
+        final Header contentEncoding = entity.getContentEncoding();
+        if (contentEncoding != null && BinaryCodec.GZIP.equalsIgnoreCase(contentEncoding.getValue())) {
+            content = BinaryCodec.decompress(content);
+        }
+        try {
+            return BinaryCodec.deserialize(content);
+        } catch (final ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private boolean isBinary(final Header contentType) {
+        return contentType != null && contentType.getValue().startsWith(BinaryCodec.CONTENT_TYPE);
+    }
+
+}
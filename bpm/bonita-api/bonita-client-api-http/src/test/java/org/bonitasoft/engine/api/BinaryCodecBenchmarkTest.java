@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.bonitasoft.engine.api.internal.BinaryCodec;
+import org.bonitasoft.engine.bpm.flownode.HumanTaskInstance;
+import org.bonitasoft.engine.bpm.flownode.TaskPriority;
+import org.bonitasoft.engine.bpm.flownode.impl.internal.UserTaskInstanceImpl;
+import org.bonitasoft.engine.search.SearchResult;
+import org.bonitasoft.engine.search.impl.SearchResultImpl;
+import org.junit.Test;
+
+import com.thoughtworks.xstream.XStream;
+
+/**
+ * Compares the XML encoding of the HTTP transport with the binary codec on a search result of human tasks, and prints the payload sizes and the
+ * encode/decode times.
+ */
+public class BinaryCodecBenchmarkTest {
+
+    private static final int NB_TASKS = 2000;
+
+    private static final int NB_ITERATIONS = 5;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final XStream xstream = new XStream();
+
+    private SearchResult<HumanTaskInstance> buildSearchResult() {
+        final List<HumanTaskInstance> tasks = new ArrayList<>();
+        for (int i = 0; i < NB_TASKS; i++) {
+            final UserTaskInstanceImpl task = new UserTaskInstanceImpl("Validate request " + i, 54875L + i % 10, 12L);
+            task.setId(100000L + i);
+            task.setState("ready");
+            task.setRootContainerId(2000L + i);
+            task.setParentContainerId(2000L + i);
+            task.setProcessDefinitionId(8574125L);
+            task.setDisplayName("Validate the request of customer " + i);
+            task.setDescription("The request must be validated by a manager");
+            task.setPriority(TaskPriority.NORMAL);
+            task.setAssigneeId(i % 3 == 0 ? 0L : 45L);
+            task.setReachedSateDate(new Date());
+            task.setLastUpdateDate(new Date());
+            tasks.add(task);
+        }
+        return new SearchResultImpl<>(NB_TASKS * 10L, tasks);
+    }
+
+    private byte[] toXML(final Object object) throws Exception {
+        final StringWriter stringWriter = new StringWriter();
+        try (ObjectOutputStream out = xstream.createObjectOutputStream(stringWriter)) {
+            out.writeObject(object);
+        }
+        return stringWriter.toString().getBytes(UTF8);
+    }
+
+    private Object fromXML(final byte[] xml) throws Exception {
+        try (ObjectInputStream in = xstream.createObjectInputStream(new StringReader(new String(xml, UTF8)))) {
+            return in.readObject();
+        }
+    }
+
+    @Test
+    public void binary_codec_should_be_smaller_and_faster_than_xml() throws Exception {
+        final SearchResult<HumanTaskInstance> searchResult = buildSearchResult();
+        byte[] xml = null;
+        byte[] binary = null;
+        byte[] compressed = null;
+        long xmlEncode = 0, xmlDecode = 0, binaryEncode = 0, binaryDecode = 0, compressedEncode = 0, compressedDecode = 0;
+        for (int i = 0; i < NB_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            xml = toXML(searchResult);
+            xmlEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            final Object fromXML = fromXML(xml);
+            xmlDecode += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            binary = BinaryCodec.serialize(searchResult);
+            binaryEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            final Object fromBinary = BinaryCodec.deserialize(binary);
+            binaryDecode += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            compressed = BinaryCodec.compress(BinaryCodec.serialize(searchResult));
+            compressedEncode += System.nanoTime() - start;
+            start = System.nanoTime();
+            final Object fromCompressed = BinaryCodec.deserialize(BinaryCodec.decompress(new ByteArrayInputStream(compressed)));
+            compressedDecode += System.nanoTime() - start;
+
+            assertThat(((SearchResult<?>) fromXML).getResult()).isEqualTo(searchResult.getResult());
+            assertThat(((SearchResult<?>) fromBinary).getResult()).isEqualTo(searchResult.getResult());
+            assertThat(((SearchResult<?>) fromCompressed).getResult()).isEqualTo(searchResult.getResult());
+        }
+        print("XML", xml.length, xmlEncode, xmlDecode);
+        print("binary", binary.length, binaryEncode, binaryDecode);
+        print("binary+gzip", compressed.length, compressedEncode, compressedDecode);
+
+        assertThat(binary.length).isLessThan(xml.length);
+        assertThat(compressed.length).isLessThan(binary.length);
+    }
+
+    private void print(final String codec, final int size, final long encodeNanos, final long decodeNanos) {
+        System.out.println(String.format("%-12s %d tasks: %9d bytes, encode %6.1f ms, decode %6.1f ms", codec, NB_TASKS, size,
+                encodeNanos / NB_ITERATIONS / 1e6, decodeNanos / NB_ITERATIONS / 1e6));
+    }
+
+}
@@ -15,6 +15,7 @@ package org.bonitasoft.engine.api;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.net.URL;
 import java.util.ArrayList;
@@ -26,7 +27,9 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.bonitasoft.engine.api.internal.BinaryCodec;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
+import org.bonitasoft.engine.api.tcp.MethodCall;
 import org.eclipse.jetty.security.ConstraintMapping;
 import org.eclipse.jetty.security.ConstraintSecurityHandler;
 import org.eclipse.jetty.security.HashLoginService;
@@ -136,15 +139,63 @@ public class HTTPServerAPIIT {
         httpServerAPI.invokeMethod(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
     }
 
+    @Test
+    public void invokeMethodWithBinaryCodec() throws Exception {
+        Map<String, String> configuration = new HashMap<String, String>();
+        configuration.put("server.url", baseResourceUrl);
+        configuration.put("application.name", APPLICATION_NAME);
+        configuration.put("basicAuthentication.active", "true");
+        configuration.put("basicAuthentication.username", "john");
+        configuration.put("basicAuthentication.password", "doe");
+        configuration.put("binaryCodec.active", "true");
+        final ArrayList<String> largeParameter = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            largeParameter.add("value" + i);
+        }
+
+        final HTTPServerAPI httpServerAPI = new HTTPServerAPI(configuration);
+
+        assertEquals(methodName, httpServerAPI.invokeMethod(options, apiInterfaceName, methodName, classNameParameters, new Object[0]));
+        // large enough to be compressed
+        assertEquals(largeParameter, httpServerAPI.invokeMethod(options, apiInterfaceName, methodName, Collections.singletonList(List.class.getName()),
+                new Object[] { largeParameter }));
+    }
+
     private static final class BonitaHandler extends AbstractHandler {
 
         @Override
-        public void handle(final String s, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response) {
+        public void handle(final String s, final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response)
+                throws IOException {
             assertEquals("john", request.getUserPrincipal().getName());
+            if (BinaryCodec.CONTENT_TYPE.equals(request.getContentType())) {
+                answerBinaryCall(baseRequest, request, response);
+                return;
+            }
             response.setContentType("text/html;charset=utf-8");
             response.setStatus(HttpServletResponse.SC_OK);
             baseRequest.setHandled(true);
         }
+
+        // echo the first parameter, or the method name
+        private void answerBinaryCall(final Request baseRequest, final HttpServletRequest request, final HttpServletResponse response)
+                throws IOException {
+            try {
+                final MethodCall methodCall = (MethodCall) BinaryCodec.deserialize(request.getInputStream());
+                final Object[] parameters = methodCall.getParametersValues();
+                byte[] content = BinaryCodec.serialize(parameters.length > 0 ? parameters[0] : methodCall.getMethodName());
+                if (content.length > BinaryCodec.COMPRESSION_THRESHOLD) {
+                    assertEquals(BinaryCodec.GZIP, request.getHeader("Accept-Encoding"));
+                    content = BinaryCodec.compress(content);
+                    response.setHeader("Content-Encoding", BinaryCodec.GZIP);
+                }
+                response.setContentType(BinaryCodec.CONTENT_TYPE);
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.getOutputStream().write(content);
+                baseRequest.setHandled(true);
+            } catch (final ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
     }
 
 }
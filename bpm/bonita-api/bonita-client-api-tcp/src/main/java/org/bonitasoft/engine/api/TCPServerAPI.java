@@ -13,12 +13,7 @@
  **/
 package org.bonitasoft.engine.api;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.Socket;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -27,68 +22,96 @@ import java.util.Random;
 import org.bonitasoft.engine.api.internal.ServerAPI;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.api.tcp.MethodCall;
+import org.bonitasoft.engine.api.tcp.TcpProtocol;
 
 /**
+ * Calls are sent on persistent connections, several calls of different threads can be in flight on the same connection. The number of connections opened
+ * to each destination is given by the optional "connectionsPerDestination" parameter, and the time to wait for the response of a call by the optional
+ * "responseTimeoutMillis" parameter.
+ *
  * @author Matthieu Chaffotte
  */
 public class TCPServerAPI implements ServerAPI {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int DEFAULT_CONNECTIONS_PER_DESTINATION = 2;
+
+    private static final long DEFAULT_RESPONSE_TIMEOUT_MILLIS = 600000;
+
     private final List<TcpDestination> destinations = new ArrayList<TcpDestination>();
 
+    private final int connectionsPerDestination;
+
+    private final long responseTimeoutMillis;
+
     private final Random random;
 
+    private transient List<TcpConnectionPool> connectionPools;
+
     public TCPServerAPI(final Map<String, String> parameters) {
         final String destinationsList = parameters.get("destinations");
+        if (destinationsList == null || destinationsList.trim().isEmpty()) {
+            throw new IllegalArgumentException("The parameter destinations of the TCP server API must contain at least one host:port");
+        }
         final String[] splittedDestinations = destinationsList.split(",");
         for (final String destination : splittedDestinations) {
             destinations.add(getTcpdDestinationFromPattern(destination));
         }
+        connectionsPerDestination = (int) getPositiveParameter(parameters, "connectionsPerDestination", DEFAULT_CONNECTIONS_PER_DESTINATION,
+                Integer.MAX_VALUE);
+        responseTimeoutMillis = getPositiveParameter(parameters, "responseTimeoutMillis", DEFAULT_RESPONSE_TIMEOUT_MILLIS, Long.MAX_VALUE);
         random = new Random();
     }
 
+    private static long getPositiveParameter(final Map<String, String> parameters, final String name, final long defaultValue, final long maxValue) {
+        final String value = parameters.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        final long parsedValue;
+        try {
+            parsedValue = Long.parseLong(value.trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("The parameter " + name + " of the TCP server API must be a number: " + value, e);
+        }
+        if (parsedValue <= 0 || parsedValue > maxValue) {
+            throw new IllegalArgumentException("The parameter " + name + " of the TCP server API must be between 1 and " + maxValue + ": " + value);
+        }
+        return parsedValue;
+    }
+
     private TcpDestination getTcpdDestinationFromPattern(final String s) {
         final int separatorIndex = s.indexOf(':');
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException("Invalid destination of the TCP server API, host:port is expected: " + s);
+        }
         final String host = s.substring(0, separatorIndex);
         final int port = Integer.valueOf(s.substring(separatorIndex + 1));
         return new TcpDestination(host, port);
     }
 
+    private synchronized List<TcpConnectionPool> getConnectionPools() {
+        if (connectionPools == null) {
+            connectionPools = new ArrayList<TcpConnectionPool>();
+            for (final TcpDestination destination : destinations) {
+                connectionPools.add(new TcpConnectionPool(destination, connectionsPerDestination, responseTimeoutMillis));
+            }
+        }
+        return connectionPools;
+    }
+
     @Override
     public Object invokeMethod(final Map<String, Serializable> options, final String apiInterfaceName, final String methodName,
             final List<String> classNameParameters, final Object[] parametersValues) throws ServerWrappedException {
         try {
-            Socket remoteServerAPI = null;
-            ObjectOutputStream oos = null;
-            ObjectInputStream ois = null;
-            try {
-                final TcpDestination tcpDestination = destinations.get(random.nextInt(destinations.size()));
-                remoteServerAPI = new Socket(tcpDestination.getHost(), tcpDestination.getPort());
-                final InputStream socketInputStream = remoteServerAPI.getInputStream();
-                oos = new ObjectOutputStream(remoteServerAPI.getOutputStream());
-                final MethodCall methodCall = new MethodCall(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
-                oos.writeObject(methodCall);
-                oos.flush();
-                ois = new ObjectInputStream(socketInputStream);
-                final Object callReturn = ois.readObject();
-                return checkInvokeMethodReturn(callReturn);
-
-            } finally {
-                try {
-                    if (oos != null) {
-                        oos.close();
-                    }
-                    if (ois != null) {
-                        ois.close();
-                    }
-                    if (remoteServerAPI != null) {
-                        remoteServerAPI.close();
-                    }
-                } catch (final IOException e) {
-                    e.printStackTrace();
-                }
-            }
+            final List<TcpConnectionPool> pools = getConnectionPools();
+            final TcpConnectionPool pool = pools.get(random.nextInt(pools.size()));
+            final MethodCall methodCall = new MethodCall(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
+            final Object callReturn = TcpProtocol.deserialize(pool.call(TcpProtocol.serialize(methodCall)));
+            return checkInvokeMethodReturn(callReturn);
+        } catch (final ServerWrappedException e) {
+            throw e;
         } catch (final Exception e) {
             throw new ServerWrappedException(e);
         }
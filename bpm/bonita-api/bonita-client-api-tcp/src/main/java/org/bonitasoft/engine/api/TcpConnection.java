@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bonitasoft.engine.api.tcp.TcpProtocol;
+
+/**
+ * Persistent connection to a TCP server. The calls of several threads are pipelined on it: a reader thread matches the responses with their calls using
+ * their correlation id.
+ */
+class TcpConnection implements Runnable {
+
+    private final Socket socket;
+
+    private final DataOutputStream output;
+
+    private final DataInputStream input;
+
+    private final AtomicLong correlationIds = new AtomicLong();
+
+    private final ConcurrentMap<Long, CompletableFuture<byte[]>> pendingCalls = new ConcurrentHashMap<>();
+
+    private final long responseTimeoutMillis;
+
+    private volatile IOException failure;
+
+    TcpConnection(final TcpDestination destination, final long responseTimeoutMillis) throws IOException {
+        this.responseTimeoutMillis = responseTimeoutMillis;
+        socket = new Socket(destination.getHost(), destination.getPort());
+        socket.setTcpNoDelay(true);
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final Thread reader = new Thread(this, "TCPServerAPI-reader-" + destination.getHost() + ":" + destination.getPort());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * @return the payload of the response
+     */
+    byte[] call(final byte[] request) throws IOException {
+        final long correlationId = correlationIds.incrementAndGet();
+        final CompletableFuture<byte[]> response = new CompletableFuture<>();
+        pendingCalls.put(correlationId, response);
+        if (failure != null) {
+            // the pending calls may already have been failed
+            pendingCalls.remove(correlationId);
+            throw failure;
+        }
+        try {
+            synchronized (output) {
+                output.writeInt(request.length);
+                output.writeLong(correlationId);
+                output.write(request);
+                output.flush();
+            }
+        } catch (final IOException e) {
+            close(e);
+            throw e;
+        }
+        try {
+            return response.get(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            // a late response is dropped by the reader
+            pendingCalls.remove(correlationId);
+            throw new SocketTimeoutException("No response received within " + responseTimeoutMillis + " ms");
+        } catch (final InterruptedException e) {
+            pendingCalls.remove(correlationId);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the response");
+        } catch (final ExecutionException e) {
+            throw (IOException) e.getCause();
+        }
+    }
+
+    boolean isClosed() {
+        return failure != null;
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                final int size = input.readInt();
+                final long correlationId = input.readLong();
+                TcpProtocol.checkPayloadSize(size);
+                final byte[] payload = new byte[size];
+                input.readFully(payload);
+                final CompletableFuture<byte[]> response = pendingCalls.remove(correlationId);
+                if (response != null) {
+                    response.complete(payload);
+                }
+            }
+        } catch (final IOException e) {
+            close(e);
+        }
+    }
+
+    private void close(final IOException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        try {
+            socket.close();
+        } catch (final IOException e) {
+            // already failed
+        }
+        final Iterator<CompletableFuture<byte[]>> iterator = pendingCalls.values().iterator();
+        while (iterator.hasNext()) {
+            final CompletableFuture<byte[]> response = iterator.next();
+            iterator.remove();
+            response.completeExceptionally(failure);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed number of {@link TcpConnection}s to a destination, used in turn. Connections are opened on first use and reopened when they fail.
+ */
+class TcpConnectionPool {
+
+    private final TcpDestination destination;
+
+    private final AtomicReferenceArray<TcpConnection> connections;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final long responseTimeoutMillis;
+
+    TcpConnectionPool(final TcpDestination destination, final int size, final long responseTimeoutMillis) {
+        this.destination = destination;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+        connections = new AtomicReferenceArray<>(size);
+    }
+
+    byte[] call(final byte[] request) throws IOException {
+        return getConnection().call(request);
+    }
+
+    private TcpConnection getConnection() throws IOException {
+        final int index = (next.getAndIncrement() & Integer.MAX_VALUE) % connections.length();
+        final TcpConnection connection = connections.get(index);
+        if (connection != null && !connection.isClosed()) {
+            return connection;
+        }
+        synchronized (this) {
+            final TcpConnection current = connections.get(index);
+            if (current != null && !current.isClosed()) {
+                return current;
+            }
+            final TcpConnection newConnection = new TcpConnection(destination, responseTimeoutMillis);
+            connections.set(index, newConnection);
+            return newConnection;
+        }
+    }
+
+}
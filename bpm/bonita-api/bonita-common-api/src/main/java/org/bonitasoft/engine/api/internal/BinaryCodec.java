@@ -0,0 +1,198 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.bonitasoft.engine.api.tcp.MethodCall;
+
+/**
+ * Binary encoding of the calls to the {@link ServerAPI} and of their results, using Java serialization. It is much more compact and faster than the XML
+ * encoding used by default by the HTTP transport. Large payloads can be compressed with gzip.
+ * <p>
+ * Calls received by a server must be read with {@link #deserializeMethodCall(InputStream)}: it only accepts the classes of the API values, so that a
+ * client cannot make the server instantiate arbitrary serializable classes. Other classes, e.g. the ones of the business data, must be allowed with the
+ * {@value #ALLOWED_CLASSES_PROPERTY} system property.
+ */
+public final class BinaryCodec {
+
+    /**
+     * Content type of binary encoded calls and results. The HTTP server answers a call sent with this content type with the same content type.
+     */
+    public static final String CONTENT_TYPE = "application/x-bonita-serialized-object";
+
+    public static final String GZIP = "gzip";
+
+    /**
+     * Payloads smaller than this number of bytes are not worth compressing.
+     */
+    public static final int COMPRESSION_THRESHOLD = 8 * 1024;
+
+    /**
+     * System property holding a comma separated list of classes, or packages ending with ".*", that a server accepts in the calls in addition to the API
+     * value types.
+     */
+    public static final String ALLOWED_CLASSES_PROPERTY = "org.bonitasoft.engine.api.binaryCodec.allowedClasses";
+
+    /**
+     * packages whose classes, but not the ones of their sub packages, are accepted in the calls
+     */
+    private static final List<String> ALLOWED_PACKAGES = Arrays.asList("java.lang", "java.util", "java.math", "java.time");
+
+    private static final List<String> ALLOWED_CLASSES = Arrays.asList("java.sql.Date", "java.sql.Time", "java.sql.Timestamp");
+
+    /**
+     * prefix of the API value types and of the exceptions of the engine
+     */
+    private static final String BONITA_PREFIX = "org.bonitasoft.engine.";
+
+    private BinaryCodec() {
+    }
+
+    public static byte[] serialize(final Object object) throws IOException {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream)) {
+            objectOutputStream.writeObject(object);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static Object deserialize(final byte[] payload) throws IOException, ClassNotFoundException {
+        return deserialize(new ByteArrayInputStream(payload));
+    }
+
+    /**
+     * Read one object from the stream, and close it.
+     */
+    public static Object deserialize(final InputStream inputStream) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new BufferedInputStream(inputStream))) {
+            return objectInputStream.readObject();
+        }
+    }
+
+    /**
+     * Read a call sent to a server, and close the stream. Only {@link MethodCall} and the API value types are accepted in the payload.
+     *
+     * @throws InvalidClassException
+     *         if the payload contains a class that is not accepted
+     */
+    public static MethodCall deserializeMethodCall(final InputStream inputStream) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new LookAheadObjectInputStream(new BufferedInputStream(inputStream), getAdditionalAllowedClasses())) {
+            final Object methodCall = objectInputStream.readObject();
+            if (!(methodCall instanceof MethodCall)) {
+                throw new InvalidClassException(methodCall == null ? "null" : methodCall.getClass().getName(), "A method call is expected");
+            }
+            return (MethodCall) methodCall;
+        }
+    }
+
+    public static MethodCall deserializeMethodCall(final byte[] payload) throws IOException, ClassNotFoundException {
+        return deserializeMethodCall(new ByteArrayInputStream(payload));
+    }
+
+    private static List<String> getAdditionalAllowedClasses() {
+        final String allowedClasses = System.getProperty(ALLOWED_CLASSES_PROPERTY);
+        if (allowedClasses == null || allowedClasses.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<String> additionalAllowedClasses = new ArrayList<>();
+        for (final String allowedClass : allowedClasses.split(",")) {
+            if (!allowedClass.trim().isEmpty()) {
+                additionalAllowedClasses.add(allowedClass.trim());
+            }
+        }
+        return additionalAllowedClasses;
+    }
+
+    static boolean isAllowed(final String className, final List<String> additionalAllowedClasses) {
+        String name = className;
+        while (name.startsWith("[")) {
+            name = name.substring(1);
+        }
+        if (name.length() == 1) {
+            // array of primitive types
+            return true;
+        }
+        if (name.startsWith("L") && name.endsWith(";")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        if (name.startsWith(BONITA_PREFIX) || ALLOWED_CLASSES.contains(name) || ALLOWED_PACKAGES.contains(getPackage(name))) {
+            return true;
+        }
+        for (final String allowedClass : additionalAllowedClasses) {
+            if (allowedClass.endsWith(".*") ? name.startsWith(allowedClass.substring(0, allowedClass.length() - 1)) : allowedClass.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String getPackage(final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        return lastDot < 0 ? "" : className.substring(0, lastDot);
+    }
+
+    public static byte[] compress(final byte[] payload) throws IOException {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(payload.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+            gzipOutputStream.write(payload);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    public static InputStream decompress(final InputStream inputStream) throws IOException {
+        return new GZIPInputStream(inputStream);
+    }
+
+    /**
+     * Checks the class of each object before it is instantiated
+     */
+    private static final class LookAheadObjectInputStream extends ObjectInputStream {
+
+        private final List<String> additionalAllowedClasses;
+
+        LookAheadObjectInputStream(final InputStream inputStream, final List<String> additionalAllowedClasses) throws IOException {
+            super(inputStream);
+            this.additionalAllowedClasses = additionalAllowedClasses;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!isAllowed(desc.getName(), additionalAllowedClasses)) {
+                throw new InvalidClassException(desc.getName(), "Class not allowed in a call, see " + ALLOWED_CLASSES_PROPERTY);
+            }
+            return super.resolveClass(desc);
+        }
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException, ClassNotFoundException {
+            throw new InvalidClassException("Proxy classes are not allowed in a call");
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.tcp;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+import org.bonitasoft.engine.api.internal.BinaryCodec;
+
+/**
+ * Framing of the messages exchanged on the persistent connections of the TCP transport.
+ * <p>
+ * A frame is made of the size of its payload (int), the correlation id of the call (long) and the payload itself. The response to a call carries the
+ * correlation id of the call, so that several calls can be in flight on the same connection.
+ */
+public final class TcpProtocol {
+
+    public static final int HEADER_SIZE = 12;
+
+    public static final int MAX_PAYLOAD_SIZE = 512 * 1024 * 1024;
+
+    private TcpProtocol() {
+    }
+
+    public static byte[] serialize(final Object object) throws IOException {
+        return BinaryCodec.serialize(object);
+    }
+
+    public static Object deserialize(final byte[] payload) throws IOException, ClassNotFoundException {
+        return BinaryCodec.deserialize(payload);
+    }
+
+    /**
+     * Read a call received by the server: only the API value types are accepted, see {@link BinaryCodec#deserializeMethodCall(byte[])}
+     */
+    public static MethodCall deserializeMethodCall(final byte[] payload) throws IOException, ClassNotFoundException {
+        return BinaryCodec.deserializeMethodCall(payload);
+    }
+
+    /**
+     * @return a buffer ready to be written, containing the frame of the given payload
+     */
+    public static ByteBuffer toFrame(final long correlationId, final byte[] payload) {
+        final ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        frame.putInt(payload.length).putLong(correlationId).put(payload);
+        frame.flip();
+        return frame;
+    }
+
+    public static void checkPayloadSize(final int size) throws StreamCorruptedException {
+        if (size < 0 || size > MAX_PAYLOAD_SIZE) {
+            throw new StreamCorruptedException("Invalid payload size: " + size);
+        }
+    }
+
+}
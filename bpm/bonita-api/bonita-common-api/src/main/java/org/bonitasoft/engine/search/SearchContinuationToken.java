@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.search;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Position of the last element of a page of a {@link SearchResult}, given by {@link SearchResult#getContinuationToken()}.
+ * Passing it to {@link SearchOptionsBuilder#searchAfter(SearchContinuationToken)} retrieves the elements following this one without skipping the
+ * previous pages in the database: the cost of a page does not depend on how deep it is.
+ * The token holds the values of the sort criteria of the last element, so it must be used with the same filters and sorts as the search that
+ * returned it.
+ *
+ * @see SearchResult#getContinuationToken()
+ * @see SearchOptionsBuilder#searchAfter(SearchContinuationToken)
+ * @since 7.5.3
+ */
+public final class SearchContinuationToken implements Serializable {
+
+    private static final long serialVersionUID = 2866392478254617011L;
+
+    private final List<Serializable> sortValues;
+
+    /**
+     * @param sortValues
+     *        the values of the sort criteria of the last element, followed by its id when the search is not sorted by id
+     */
+    public SearchContinuationToken(final List<? extends Serializable> sortValues) {
+        this.sortValues = Collections.unmodifiableList(new ArrayList<Serializable>(sortValues));
+    }
+
+    /**
+     * @return the values of the sort criteria of the last element, followed by its id when the search is not sorted by id
+     */
+    public List<Serializable> getSortValues() {
+        return sortValues;
+    }
+
+    @Override
+    public int hashCode() {
+        return sortValues.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return sortValues.equals(((SearchContinuationToken) obj).sortValues);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchContinuationToken" + sortValues;
+    }
+
+}
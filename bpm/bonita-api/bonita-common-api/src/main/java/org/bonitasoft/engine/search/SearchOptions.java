@@ -71,4 +71,26 @@ public interface SearchOptions extends Serializable {
      */
     List<Sort> getSorts();
 
+    /**
+     * Whether the total number of results matching the search criteria must be computed. Counting requires to go through all the matching results,
+     * when it is not needed {@link SearchResult#getCount()} returns -1 and {@link SearchResult#hasMore()} tells whether there are further results.
+     *
+     * @return true if {@link SearchResult#getCount()} must be computed, true by default
+     * @since 7.5.3
+     */
+    default boolean isCountRequired() {
+        return true;
+    }
+
+    /**
+     * Gets the position after which the results must be retrieved. When set, the start index is not used: the results start right after the
+     * element the token was built from.
+     *
+     * @return the continuation token returned by a previous search, or null to use the start index, null by default
+     * @since 7.5.3
+     */
+    default SearchContinuationToken getContinuationToken() {
+        return null;
+    }
+
 }
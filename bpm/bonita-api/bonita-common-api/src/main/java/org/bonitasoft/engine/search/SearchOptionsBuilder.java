@@ -58,6 +58,8 @@ public class SearchOptionsBuilder {
         options.setFilters(searchOptions.getFilters());
         options.setSorts(searchOptions.getSorts());
         options.setSearchTerm(searchOptions.getSearchTerm());
+        options.setCountRequired(searchOptions.isCountRequired());
+        options.setContinuationToken(searchOptions.getContinuationToken());
     }
 
     /**
@@ -220,6 +222,32 @@ public class SearchOptionsBuilder {
         return this;
     }
 
+    /**
+     * Do not compute the total number of matching elements: {@link SearchResult#getCount()} returns -1, use {@link SearchResult#hasMore()} to know
+     * whether there are other results.
+     *
+     * @return this builder itself
+     * @since 7.5.3
+     */
+    public SearchOptionsBuilder withoutCount() {
+        options.setCountRequired(false);
+        return this;
+    }
+
+    /**
+     * Retrieve the results following the last element of a previous search instead of starting at the start index. The filters and sorts must be
+     * the same as the ones of the search that returned the token.
+     *
+     * @param continuationToken
+     *        the token returned by {@link SearchResult#getContinuationToken()}
+     * @return this builder itself
+     * @since 7.5.3
+     */
+    public SearchOptionsBuilder searchAfter(final SearchContinuationToken continuationToken) {
+        options.setContinuationToken(continuationToken);
+        return this;
+    }
+
     /**
      * @return the <code>SearchOptions</code> finally built using this builder.
      */
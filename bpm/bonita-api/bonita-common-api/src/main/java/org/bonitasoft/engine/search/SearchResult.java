@@ -35,7 +35,7 @@ public interface SearchResult<T extends Serializable> extends Serializable {
      * Get the total number of matching result in the data base. This number can be greater than the number of elements retrieved in the search depending on
      * paging criterion.
      * 
-     * @return The total number of matching result in the data base.
+     * @return The total number of matching result in the data base, or -1 if the count was not required, see {@link SearchOptions#isCountRequired()}
      * @since 6.0
      */
     long getCount();
@@ -48,4 +48,28 @@ public interface SearchResult<T extends Serializable> extends Serializable {
      */
     List<T> getResult();
 
+    /**
+     * Tells whether more elements match the search criteria after the ones retrieved by the search.
+     *
+     * By default, tells whether the count is greater than the number of retrieved elements, which is only accurate for the first page.
+     *
+     * @return true if there are other matching elements after this page
+     * @since 7.5.3
+     */
+    default boolean hasMore() {
+        return getResult() != null && getCount() > getResult().size();
+    }
+
+    /**
+     * Get the position of the last element retrieved by the search, to retrieve the next page using
+     * {@link SearchOptionsBuilder#searchAfter(SearchContinuationToken)}.
+     *
+     * @return the continuation token to the next page, or null if there are no more elements or if the sort values of the last element cannot be
+     *         used to continue the search, null by default
+     * @since 7.5.3
+     */
+    default SearchContinuationToken getContinuationToken() {
+        return null;
+    }
+
 }
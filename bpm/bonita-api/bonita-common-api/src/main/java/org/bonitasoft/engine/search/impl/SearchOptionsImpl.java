@@ -19,6 +19,7 @@ import java.util.List;
 
 import org.bonitasoft.engine.exception.IncorrectParameterException;
 import org.bonitasoft.engine.search.Order;
+import org.bonitasoft.engine.search.SearchContinuationToken;
 import org.bonitasoft.engine.search.SearchFilterOperation;
 import org.bonitasoft.engine.search.SearchOptions;
 import org.bonitasoft.engine.search.Sort;
@@ -42,6 +43,13 @@ public class SearchOptionsImpl implements SearchOptions {
 
     private List<Sort> sorts;
 
+    /**
+     * Inverted so that options serialized before it existed, whose field is then left to its default value, still require the count.
+     */
+    private boolean countNotRequired;
+
+    private SearchContinuationToken continuationToken;
+
     public SearchOptionsImpl(final int startIndex, final int numberOfResults) {
         filters = new ArrayList<SearchFilter>(5);
         sorts = new ArrayList<Sort>(2);
@@ -78,6 +86,24 @@ public class SearchOptionsImpl implements SearchOptions {
         return sorts;
     }
 
+    @Override
+    public boolean isCountRequired() {
+        return !countNotRequired;
+    }
+
+    public void setCountRequired(final boolean countRequired) {
+        countNotRequired = !countRequired;
+    }
+
+    @Override
+    public SearchContinuationToken getContinuationToken() {
+        return continuationToken;
+    }
+
+    public void setContinuationToken(final SearchContinuationToken continuationToken) {
+        this.continuationToken = continuationToken;
+    }
+
     public void setSearchTerm(final String value) {
         searchTerm = value;
     }
@@ -159,6 +185,8 @@ public class SearchOptionsImpl implements SearchOptions {
         result = prime * result + (searchTerm == null ? 0 : searchTerm.hashCode());
         result = prime * result + (sorts == null ? 0 : sorts.hashCode());
         result = prime * result + startIndex;
+        result = prime * result + (countNotRequired ? 1231 : 1237);
+        result = prime * result + (continuationToken == null ? 0 : continuationToken.hashCode());
         return result;
     }
 
@@ -201,6 +229,16 @@ public class SearchOptionsImpl implements SearchOptions {
         if (startIndex != other.startIndex) {
             return false;
         }
+        if (countNotRequired != other.countNotRequired) {
+            return false;
+        }
+        if (continuationToken == null) {
+            if (other.continuationToken != null) {
+                return false;
+            }
+        } else if (!continuationToken.equals(other.continuationToken)) {
+            return false;
+        }
         return true;
     }
 
@@ -16,6 +16,7 @@ package org.bonitasoft.engine.search.impl;
 import java.io.Serializable;
 import java.util.List;
 
+import org.bonitasoft.engine.search.SearchContinuationToken;
 import org.bonitasoft.engine.search.SearchResult;
 
 /**
@@ -29,10 +30,20 @@ public class SearchResultImpl<T extends Serializable> implements SearchResult<T>
 
     private final List<T> list;
 
+    private final boolean hasMore;
+
+    private final SearchContinuationToken continuationToken;
+
     public SearchResultImpl(final long count, final List<T> list) {
+        this(count, list, false, null);
+    }
+
+    public SearchResultImpl(final long count, final List<T> list, final boolean hasMore, final SearchContinuationToken continuationToken) {
         super();
         this.count = count;
         this.list = list;
+        this.hasMore = hasMore;
+        this.continuationToken = continuationToken;
     }
 
     @Override
@@ -45,12 +56,24 @@ public class SearchResultImpl<T extends Serializable> implements SearchResult<T>
         return list;
     }
 
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    @Override
+    public SearchContinuationToken getContinuationToken() {
+        return continuationToken;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
         result = prime * result + (int) (count ^ count >>> 32);
         result = prime * result + (list == null ? 0 : list.hashCode());
+        result = prime * result + (hasMore ? 1231 : 1237);
+        result = prime * result + (continuationToken == null ? 0 : continuationToken.hashCode());
         return result;
     }
 
@@ -76,6 +99,16 @@ public class SearchResultImpl<T extends Serializable> implements SearchResult<T>
         } else if (!list.equals(other.list)) {
             return false;
         }
+        if (hasMore != other.hasMore) {
+            return false;
+        }
+        if (continuationToken == null) {
+            if (other.continuationToken != null) {
+                return false;
+            }
+        } else if (!continuationToken.equals(other.continuationToken)) {
+            return false;
+        }
         return true;
     }
 
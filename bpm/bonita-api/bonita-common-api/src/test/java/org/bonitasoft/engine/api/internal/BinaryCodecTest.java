@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.api.tcp.MethodCall;
+import org.junit.Test;
+
+public class BinaryCodecTest {
+
+    private MethodCall methodCall(final Object... parametersValues) {
+        final Map<String, Serializable> options = new HashMap<>();
+        options.put("session", "session");
+        return new MethodCall(options, "org.bonitasoft.engine.api.ProcessAPI", "getProcessInstance", Collections.singletonList(Long.class.getName()),
+                parametersValues);
+    }
+
+    @Test
+    public void deserializeMethodCall_should_accept_the_api_value_types() throws Exception {
+        final HashMap<String, Serializable> inputs = new HashMap<>();
+        inputs.put("amount", 12L);
+        inputs.put("names", new String[] { "a", "b" });
+
+        final MethodCall methodCall = BinaryCodec.deserializeMethodCall(BinaryCodec.serialize(methodCall(inputs, new byte[] { 1, 2 })));
+
+        assertThat(methodCall.getMethodName()).isEqualTo("getProcessInstance");
+        @SuppressWarnings("unchecked")
+        final Map<String, Serializable> deserializedInputs = (Map<String, Serializable>) methodCall.getParametersValues()[0];
+        assertThat(deserializedInputs).containsEntry("amount", 12L);
+        assertThat((String[]) deserializedInputs.get("names")).containsExactly("a", "b");
+        assertThat((byte[]) methodCall.getParametersValues()[1]).containsExactly((byte) 1, (byte) 2);
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void deserializeMethodCall_should_reject_other_classes() throws Exception {
+        BinaryCodec.deserializeMethodCall(BinaryCodec.serialize(methodCall(new File("/tmp"))));
+    }
+
+    @Test(expected = InvalidClassException.class)
+    public void deserializeMethodCall_should_reject_a_payload_that_is_not_a_call() throws Exception {
+        BinaryCodec.deserializeMethodCall(BinaryCodec.serialize("not a call"));
+    }
+
+    @Test
+    public void deserializeMethodCall_should_accept_the_classes_allowed_by_the_system_property() throws Exception {
+        System.setProperty(BinaryCodec.ALLOWED_CLASSES_PROPERTY, File.class.getName());
+        try {
+            final MethodCall methodCall = BinaryCodec.deserializeMethodCall(BinaryCodec.serialize(methodCall(new File("/tmp"))));
+
+            assertThat(methodCall.getParametersValues()[0]).isEqualTo(new File("/tmp"));
+        } finally {
+            System.clearProperty(BinaryCodec.ALLOWED_CLASSES_PROPERTY);
+        }
+    }
+
+    @Test
+    public void isAllowed_should_check_the_component_type_of_arrays_and_the_allowed_packages() {
+        final List<String> allowedClasses = Arrays.asList("com.company.model.*", "com.company.Invoice");
+
+        assertThat(BinaryCodec.isAllowed("[[I", allowedClasses)).isTrue();
+        assertThat(BinaryCodec.isAllowed("[Ljava.lang.String;", allowedClasses)).isTrue();
+        assertThat(BinaryCodec.isAllowed("com.company.model.sub.Customer", allowedClasses)).isTrue();
+        assertThat(BinaryCodec.isAllowed("com.company.Invoice", allowedClasses)).isTrue();
+        assertThat(BinaryCodec.isAllowed("[Lcom.company.Order;", allowedClasses)).isFalse();
+        assertThat(BinaryCodec.isAllowed("java.util.concurrent.ConcurrentHashMap", allowedClasses)).isFalse();
+        assertThat(BinaryCodec.isAllowed("org.apache.commons.collections.functors.InvokerTransformer", allowedClasses)).isFalse();
+    }
+
+}
@@ -15,6 +15,9 @@ package org.bonitasoft.engine.search.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Arrays;
+
+import org.bonitasoft.engine.search.SearchContinuationToken;
 import org.junit.Test;
 
 public class SearchOptionsImplTest {
@@ -35,6 +38,27 @@ public class SearchOptionsImplTest {
         assertThat(options1.hashCode()).isEqualTo(options2.hashCode());
     }
 
+    @Test
+    public void equals_should_check_count_and_continuation_token() {
+        final SearchOptionsImpl options1 = buildSearchOptions();
+        final SearchOptionsImpl options2 = buildSearchOptions();
+        options2.setCountRequired(false);
+        final SearchOptionsImpl options3 = buildSearchOptions();
+        options3.setContinuationToken(new SearchContinuationToken(Arrays.asList("name", 12L)));
+
+        assertThat(options1).isNotEqualTo(options2);
+        assertThat(options1).isNotEqualTo(options3);
+    }
+
+    @Test
+    public void should_require_the_count_unless_told_otherwise() {
+        final SearchOptionsImpl options = buildSearchOptions();
+
+        assertThat(options.isCountRequired()).isTrue();
+        options.setCountRequired(false);
+        assertThat(options.isCountRequired()).isFalse();
+    }
+
     private SearchOptionsImpl buildSearchOptions() {
         final SearchOptionsImpl options = new SearchOptionsImpl(0, 2000);
         options.addFilter("field1", "value");
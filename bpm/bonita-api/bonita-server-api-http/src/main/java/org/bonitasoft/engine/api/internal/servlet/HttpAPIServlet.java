@@ -21,6 +21,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.fileupload.FileUploadException;
+import org.bonitasoft.engine.api.internal.BinaryCodec;
 
 /**
  * @author Julien Mege
@@ -29,10 +30,23 @@ public class HttpAPIServlet extends HttpServlet {
 
     private static final long serialVersionUID = 4936475894513095747L;
 
+    /**
+     * Init parameter accepting the calls encoded with the {@link BinaryCodec}. They are refused by default.
+     */
+    static final String BINARY_CODEC_ENABLED = "binaryCodec.enabled";
+
+    private boolean binaryCodecEnabled;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        binaryCodecEnabled = Boolean.parseBoolean(getInitParameter(BINARY_CODEC_ENABLED));
+    }
+
     @Override
     protected void doPost(final HttpServletRequest req, final HttpServletResponse resp) throws ServletException, IOException {
         try {
-            new HttpAPIServletCall(req, resp).doPost();
+            new HttpAPIServletCall(req, resp, binaryCodecEnabled).doPost();
         } catch (final FileUploadException e) {
             throw new ServletException(e);
         }
@@ -30,8 +30,10 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.fileupload.FileUploadException;
 import org.bonitasoft.engine.api.impl.ServerAPIFactory;
+import org.bonitasoft.engine.api.internal.BinaryCodec;
 import org.bonitasoft.engine.api.internal.ServerAPI;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
+import org.bonitasoft.engine.api.tcp.MethodCall;
 import org.bonitasoft.engine.exception.BonitaRuntimeException;
 import org.bonitasoft.engine.exception.StackTraceTransformer;
 
@@ -59,8 +61,20 @@ public class HttpAPIServletCall extends ServletCall {
 
     private static final XStream XSTREAM = new XStream();
 
+    private final boolean binaryCodecEnabled;
+
     public HttpAPIServletCall(final HttpServletRequest request, final HttpServletResponse response) throws FileUploadException, IOException {
+        this(request, response, false);
+    }
+
+    /**
+     * @param binaryCodecEnabled
+     *        true if calls encoded with the {@link BinaryCodec} are accepted
+     */
+    public HttpAPIServletCall(final HttpServletRequest request, final HttpServletResponse response, final boolean binaryCodecEnabled)
+            throws FileUploadException, IOException {
         super(request, response);
+        this.binaryCodecEnabled = binaryCodecEnabled;
     }
 
     @Override
@@ -79,6 +93,14 @@ public class HttpAPIServletCall extends ServletCall {
                 apiInterfaceName = pathParams[pathParams.length - 2];
                 methodName = pathParams[pathParams.length - 1];
             }
+            if (isBinaryCall()) {
+                if (!binaryCodecEnabled) {
+                    error("Binary encoded calls are not accepted by this server", HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+                    return;
+                }
+                doBinaryPost(apiInterfaceName, methodName);
+                return;
+            }
             final String options = this.getParameter(OPTIONS);
             final String parametersValues = this.getParameter(PARAMETERS_VALUES);
             final String parametersClasses = this.getParameter(CLASS_NAME_PARAMETERS);
@@ -105,15 +127,7 @@ public class HttpAPIServletCall extends ServletCall {
                 }
             }
 
-            final ServerAPI serverAPI = ServerAPIFactory.getServerAPI();
-
-            final Object invokeMethod;
-            try {
-                invokeMethod = serverAPI.invokeMethod(myOptions, apiInterfaceName, methodName, myClassNameParameters, myParametersValues);
-            } catch (ServerWrappedException e) {
-                // merge stack trace of the server exception
-                throw StackTraceTransformer.mergeStackTraces(e);
-            }
+            final Object invokeMethod = invokeMethod(myOptions, apiInterfaceName, methodName, myClassNameParameters, myParametersValues);
 
             String invokeMethodSerialized = null;
             if (invokeMethod != null) {
@@ -127,6 +141,56 @@ public class HttpAPIServletCall extends ServletCall {
         }
     }
 
+    private Object invokeMethod(final Map<String, Serializable> options, final String apiInterfaceName, final String methodName,
+            final List<String> classNameParameters, final Object[] parametersValues) throws Exception {
+        final ServerAPI serverAPI = ServerAPIFactory.getServerAPI();
+        try {
+            return serverAPI.invokeMethod(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
+        } catch (ServerWrappedException e) {
+            // merge stack trace of the server exception
+            throw StackTraceTransformer.mergeStackTraces(e);
+        }
+    }
+
+    private boolean isBinaryCall() {
+        final String contentType = getRequestContentType();
+        return contentType != null && contentType.startsWith(BinaryCodec.CONTENT_TYPE);
+    }
+
+    /**
+     * The call and its result are encoded with the {@link BinaryCodec} instead of XStream. Errors are sent back as binary encoded exceptions.
+     * Only the API value types are accepted in the call.
+     */
+    private void doBinaryPost(final String apiInterfaceName, final String methodName) throws IOException {
+        Object result;
+        int status = HttpServletResponse.SC_OK;
+        try {
+            final MethodCall methodCall = BinaryCodec.deserializeMethodCall(getRequestBody());
+            result = invokeMethod(methodCall.getOptions(), apiInterfaceName, methodName, methodCall.getClassNameParameters(),
+                    methodCall.getParametersValues());
+        } catch (final Exception e) {
+            result = e instanceof ServerWrappedException ? e.getCause() : e;
+            status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        byte[] content;
+        try {
+            content = BinaryCodec.serialize(result);
+        } catch (final IOException e) {
+            content = BinaryCodec.serialize(new BonitaRuntimeException("unable to serialize object " + result, e));
+            status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        }
+        if (content.length > BinaryCodec.COMPRESSION_THRESHOLD && acceptsGzip()) {
+            content = BinaryCodec.compress(content);
+            head("Content-Encoding", BinaryCodec.GZIP);
+        }
+        output(content, BinaryCodec.CONTENT_TYPE, status);
+    }
+
+    private boolean acceptsGzip() {
+        final String acceptEncoding = getRequestHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.contains(BinaryCodec.GZIP);
+    }
+
     @SuppressWarnings("unchecked")
     private <T> T fromXML(final String object, final XStream xstream) {
         final StringReader xmlReader = new StringReader(object);
@@ -192,6 +192,27 @@ public abstract class ServletCall {
         return inputStream;
     }
 
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getContentType()
+     */
+    public final String getRequestContentType() {
+        return request.getContentType();
+    }
+
+    /**
+     * @see javax.servlet.http.HttpServletRequest#getHeader(String)
+     */
+    public final String getRequestHeader(final String name) {
+        return request.getHeader(name);
+    }
+
+    /**
+     * @return the raw body of the request, when it is neither a form nor a multipart request
+     */
+    public final InputStream getRequestBody() throws IOException {
+        return request.getInputStream();
+    }
+
     /**
      * Count the number of parameters passed in the URL
      * 
@@ -318,6 +339,27 @@ public abstract class ServletCall {
         }
     }
 
+    /**
+     * Output binary content
+     *
+     * @param content
+     *        The content to output
+     * @param contentType
+     *        The content type of the response
+     * @param status
+     *        The status of the response
+     */
+    protected final void output(final byte[] content, final String contentType, final int status) {
+        response.setStatus(status);
+        response.setContentType(contentType);
+        response.setContentLength(content.length);
+        try {
+            response.getOutputStream().write(content);
+        } catch (final IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     protected void error(final String message, final int errorCode) {
         output(message);
         response.setStatus(errorCode);
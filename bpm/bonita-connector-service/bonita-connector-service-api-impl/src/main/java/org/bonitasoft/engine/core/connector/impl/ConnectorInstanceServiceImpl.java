@@ -57,6 +57,8 @@ import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.persistence.SelectOneDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.SRecorderException;
+import org.bonitasoft.engine.recorder.model.BatchInsertRecord;
+import org.bonitasoft.engine.recorder.model.DeleteAllRecord;
 import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
@@ -184,6 +186,22 @@ public class ConnectorInstanceServiceImpl implements ConnectorInstanceService {
         }
     }
 
+    @Override
+    public void createConnectorInstances(final List<SConnectorInstance> connectorInstances) throws SConnectorInstanceCreationException {
+        if (eventService.hasHandlers(CONNECTOR_INSTANCE, EventActionType.CREATED)) {
+            // handlers expect one event per connector instance
+            for (final SConnectorInstance connectorInstance : connectorInstances) {
+                createConnectorInstance(connectorInstance);
+            }
+        } else if (!connectorInstances.isEmpty()) {
+            try {
+                recorder.recordBatchInsert(new BatchInsertRecord(connectorInstances), null);
+            } catch (final SRecorderException e) {
+                throw new SConnectorInstanceCreationException(e);
+            }
+        }
+    }
+
     @Override
     public List<SConnectorInstance> getConnectorInstances(final long containerId, final String containerType, final ConnectorEvent activationEvent,
             final int from, final int numberOfResult, final String state) throws SConnectorInstanceReadException {
@@ -338,6 +356,24 @@ public class ConnectorInstanceServiceImpl implements ConnectorInstanceService {
         }
     }
 
+    @Override
+    public void archiveConnectorInstances(final long containerId, final String containerType, final long archiveDate)
+            throws SConnectorInstanceCreationException {
+        if (!archiveService.isArchivable(SConnectorInstance.class)) {
+            return;
+        }
+        final Map<String, Object> parameters = new HashMap<>(3);
+        parameters.put("containerId", containerId);
+        parameters.put("containerType", containerType);
+        parameters.put("archiveDate", archiveDate);
+        try {
+            final long numberOfConnectorInstances = getNumberOfConnectorInstances(containerId, containerType);
+            archiveService.insertFromQuery("archiveConnectorInstancesOfContainer", parameters, SAConnectorInstance.class, (int) numberOfConnectorInstances);
+        } catch (final SConnectorInstanceReadException | SRecorderException e) {
+            throw new SConnectorInstanceCreationException("Unable to archive the connector instances of container with id " + containerId, e);
+        }
+    }
+
     @Override
     public void deleteConnectorInstance(final SConnectorInstance connectorInstance) throws SConnectorInstanceDeletionException {
         SDeleteEvent deleteEvent = null;
@@ -398,6 +434,15 @@ public class ConnectorInstanceServiceImpl implements ConnectorInstanceService {
     @Override
     public void deleteConnectors(final long containerId, final String containerType) throws SConnectorInstanceReadException,
             SConnectorInstanceDeletionException {
+        if (!eventService.hasHandlers(CONNECTOR_INSTANCE, EventActionType.DELETED)) {
+            // no handler needs the deleted connector instances: remove them all with one statement
+            try {
+                recorder.recordDeleteAll(new DeleteAllRecord(SConnectorInstance.class, buildFiltersForConnectors(containerId, containerType, false)));
+            } catch (final SRecorderException e) {
+                throw new SConnectorInstanceDeletionException(e);
+            }
+            return;
+        }
         List<SConnectorInstance> connetorInstances;
         do {
             // the QueryOptions always will use 0 as start index because the retrieved results will be deleted
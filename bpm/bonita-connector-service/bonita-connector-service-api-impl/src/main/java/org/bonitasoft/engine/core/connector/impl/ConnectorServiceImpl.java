@@ -26,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -96,6 +98,7 @@ public class ConnectorServiceImpl implements ConnectorService {
     private final TechnicalLoggerService logger;
     private final TimeTracker timeTracker;
     private final ProcessResourcesService processResourcesService;
+    private final boolean asynchronousExecution;
 
     private final JAXBContext jaxbContext;
     private final Schema schema;
@@ -104,6 +107,15 @@ public class ConnectorServiceImpl implements ConnectorService {
             final ExpressionResolverService expressionResolverService, final OperationService operationService,
             final DependencyService dependencyService, final TechnicalLoggerService logger, final TimeTracker timeTracker,
             ProcessResourcesService processResourcesService) {
+        this(cacheService, connectorExecutor, expressionResolverService, operationService, dependencyService, logger, timeTracker, processResourcesService,
+                false);
+    }
+
+    public ConnectorServiceImpl(final CacheService cacheService, final ConnectorExecutor connectorExecutor,
+            final ExpressionResolverService expressionResolverService, final OperationService operationService,
+            final DependencyService dependencyService, final TechnicalLoggerService logger, final TimeTracker timeTracker,
+            ProcessResourcesService processResourcesService, final boolean asynchronousExecution) {
+        this.asynchronousExecution = asynchronousExecution;
         this.cacheService = cacheService;
         this.connectorExecutor = connectorExecutor;
         this.expressionResolverService = expressionResolverService;
@@ -164,6 +176,46 @@ public class ConnectorServiceImpl implements ConnectorService {
         return connectorResult;
     }
 
+    @Override
+    public CompletableFuture<ConnectorResult> executeConnectorAsync(final long processDefinitionId, final SConnectorInstance sConnectorInstance,
+            final SConnectorImplementationDescriptor connectorImplementationDescriptor, final ClassLoader classLoader,
+            final Map<String, Object> inputParameters) throws SConnectorException {
+        final String implementationClassName = connectorImplementationDescriptor.getImplementationClassName();
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final Connector connector;
+        final CompletableFuture<Map<String, Object>> execution;
+        try {
+            Thread.currentThread().setContextClassLoader(classLoader);
+            connector = instantiateConnector(implementationClassName, classLoader);
+            execution = connectorExecutor.executeAsync(new SConnectorAdapter(connector), inputParameters, classLoader);
+        } catch (final SConnectorException e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new SConnectorException(e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+        final CompletableFuture<ConnectorResult> result = new CompletableFuture<>();
+        execution.whenComplete((outputs, failure) -> {
+            if (failure != null) {
+                final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                result.completeExceptionally(new SConnectorException(cause));
+                return;
+            }
+            if (logger.isLoggable(this.getClass(), TechnicalLogSeverity.DEBUG)) {
+                logger.log(this.getClass(), TechnicalLogSeverity.DEBUG, "Executed connector " + buildConnectorContextMessage(sConnectorInstance)
+                        + buildConnectorInputMessage(inputParameters));
+            }
+            result.complete(new ConnectorResult(connector, outputs));
+        });
+        return result;
+    }
+
+    @Override
+    public boolean isAsynchronousExecutionEnabled() {
+        return asynchronousExecution;
+    }
+
     @Override
     public SConnectorImplementationDescriptor getConnectorImplementationDescriptor(long processDefinitionId, String connectorId, String version)
             throws SConnectorException {
@@ -274,17 +326,27 @@ public class ConnectorServiceImpl implements ConnectorService {
         final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
         try {
             Thread.currentThread().setContextClassLoader(classLoader);
-            Connector connector = (Connector) Class.forName(implementationClassName, true, classLoader).newInstance();
+            Connector connector = instantiateConnector(implementationClassName, classLoader);
             final SConnectorAdapter sConnectorAdapter = new SConnectorAdapter(connector);
             return new ConnectorResult(connector, connectorExecutor.execute(sConnectorAdapter, inputParameters, classLoader));
+        } catch (final SConnectorException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SConnectorException(e);
+        } finally {
+            Thread.currentThread().setContextClassLoader(contextClassLoader);
+        }
+    }
+
+    private Connector instantiateConnector(final String implementationClassName, final ClassLoader classLoader) throws SConnectorException {
+        try {
+            return (Connector) Class.forName(implementationClassName, true, classLoader).newInstance();
         } catch (final ClassNotFoundException e) {
             throw new SConnectorException(implementationClassName + " can not be found.", e);
         } catch (final InstantiationException e) {
             throw new SConnectorException(implementationClassName + " can not be instantiated.", e);
-        } catch (Throwable e) {
+        } catch (final IllegalAccessException e) {
             throw new SConnectorException(e);
-        } finally {
-            Thread.currentThread().setContextClassLoader(contextClassLoader);
         }
     }
 
@@ -19,25 +19,44 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.bonitasoft.engine.archive.ArchiveService;
+import org.bonitasoft.engine.core.connector.ConnectorInstanceService;
+import org.bonitasoft.engine.core.process.instance.model.SConnectorInstance;
 import org.bonitasoft.engine.core.process.instance.model.SConnectorInstanceWithFailureInfo;
+import org.bonitasoft.engine.core.process.instance.model.archive.SAConnectorInstance;
 import org.bonitasoft.engine.core.process.instance.model.builder.SConnectorInstanceWithFailureInfoBuilderFactory;
+import org.bonitasoft.engine.events.EventActionType;
 import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.SInsertEvent;
 import org.bonitasoft.engine.events.model.SUpdateEvent;
+import org.bonitasoft.engine.persistence.FilterOption;
 import org.bonitasoft.engine.persistence.OrderByType;
 import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.persistence.ReadPersistenceService;
 import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
+import org.bonitasoft.engine.recorder.model.BatchInsertRecord;
+import org.bonitasoft.engine.recorder.model.DeleteAllRecord;
+import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.junit.Before;
@@ -74,6 +93,9 @@ public class ConnectorInstanceServiceImplTest {
     @Mock
     private QueriableLoggerService queriableLoggerService;
 
+    @Mock
+    private ArchiveService archiveService;
+
     @Mock
     private SConnectorInstanceWithFailureInfo connectorInstanceWithFailureMock;
 
@@ -90,6 +112,83 @@ public class ConnectorInstanceServiceImplTest {
         when(fact.getStackTraceKey()).thenReturn(STACK_TRACE);
     }
 
+    @Test
+    public void createConnectorInstances_should_insert_connector_instances_in_batch() throws Exception {
+        final SConnectorInstance connectorInstance1 = mock(SConnectorInstance.class);
+        final SConnectorInstance connectorInstance2 = mock(SConnectorInstance.class);
+
+        connectorInstanceServiceImpl.createConnectorInstances(Arrays.asList(connectorInstance1, connectorInstance2));
+
+        final ArgumentCaptor<BatchInsertRecord> batchInsertRecordCaptor = ArgumentCaptor.forClass(BatchInsertRecord.class);
+        verify(recorder).recordBatchInsert(batchInsertRecordCaptor.capture(), any(SInsertEvent.class));
+        assertThat(batchInsertRecordCaptor.getValue().getEntity()).containsExactly(connectorInstance1, connectorInstance2);
+        verify(recorder, never()).recordInsert(any(InsertRecord.class), any(SInsertEvent.class));
+    }
+
+    @Test
+    public void createConnectorInstances_should_insert_connector_instances_one_by_one_when_handlers_listen_to_their_creation() throws Exception {
+        given(eventService.hasHandlers(ConnectorInstanceService.CONNECTOR_INSTANCE, EventActionType.CREATED)).willReturn(true);
+        final ConnectorInstanceServiceImpl connectorInstanceService = spy(connectorInstanceServiceImpl);
+        doNothing().when(connectorInstanceService).createConnectorInstance(any(SConnectorInstance.class));
+        final SConnectorInstance connectorInstance1 = mock(SConnectorInstance.class);
+        final SConnectorInstance connectorInstance2 = mock(SConnectorInstance.class);
+
+        connectorInstanceService.createConnectorInstances(Arrays.asList(connectorInstance1, connectorInstance2));
+
+        verify(connectorInstanceService).createConnectorInstance(connectorInstance1);
+        verify(connectorInstanceService).createConnectorInstance(connectorInstance2);
+        verify(recorder, never()).recordBatchInsert(any(BatchInsertRecord.class), any(SInsertEvent.class));
+    }
+
+    @Test
+    public void deleteConnectors_should_delete_connector_instances_of_the_container_with_one_statement() throws Exception {
+        connectorInstanceServiceImpl.deleteConnectors(12L, SConnectorInstance.FLOWNODE_TYPE);
+
+        final ArgumentCaptor<DeleteAllRecord> deleteAllRecordCaptor = ArgumentCaptor.forClass(DeleteAllRecord.class);
+        verify(recorder).recordDeleteAll(deleteAllRecordCaptor.capture());
+        assertThat(deleteAllRecordCaptor.getValue().getEntityClass()).isEqualTo(SConnectorInstance.class);
+        assertThat(deleteAllRecordCaptor.getValue().getFilters()).containsExactly(new FilterOption(SConnectorInstance.class, "containerId", 12L),
+                new FilterOption(SConnectorInstance.class, "containerType", SConnectorInstance.FLOWNODE_TYPE));
+        verify(readPersitenceService, never()).selectList(any(SelectListDescriptor.class));
+    }
+
+    @Test
+    public void deleteConnectors_should_delete_connector_instances_one_by_one_when_handlers_listen_to_their_deletion() throws Exception {
+        given(eventService.hasHandlers(ConnectorInstanceService.CONNECTOR_INSTANCE, EventActionType.DELETED)).willReturn(true);
+        final ConnectorInstanceServiceImpl connectorInstanceService = spy(connectorInstanceServiceImpl);
+        doNothing().when(connectorInstanceService).deleteConnectorInstance(any(SConnectorInstance.class));
+        final SConnectorInstance connectorInstance = mock(SConnectorInstance.class);
+        given(readPersitenceService.selectList(any(SelectListDescriptor.class))).willReturn(Arrays.asList(connectorInstance),
+                Collections.<SConnectorInstance> emptyList());
+
+        connectorInstanceService.deleteConnectors(12L, SConnectorInstance.FLOWNODE_TYPE);
+
+        verify(connectorInstanceService).deleteConnectorInstance(connectorInstance);
+        verify(recorder, never()).recordDeleteAll(any(DeleteAllRecord.class));
+    }
+
+    @Test
+    public void archiveConnectorInstances_should_archive_all_connector_instances_of_the_container_with_one_statement() throws Exception {
+        given(archiveService.isArchivable(SConnectorInstance.class)).willReturn(true);
+        given(readPersitenceService.selectOne(any(SelectOneDescriptor.class))).willReturn(2L);
+
+        connectorInstanceServiceImpl.archiveConnectorInstances(12L, SConnectorInstance.FLOWNODE_TYPE, 42L);
+
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("containerId", 12L);
+        parameters.put("containerType", SConnectorInstance.FLOWNODE_TYPE);
+        parameters.put("archiveDate", 42L);
+        verify(archiveService).insertFromQuery("archiveConnectorInstancesOfContainer", parameters, SAConnectorInstance.class, 2);
+    }
+
+    @Test
+    public void archiveConnectorInstances_should_do_nothing_when_connector_instances_are_not_archivable() throws Exception {
+        connectorInstanceServiceImpl.archiveConnectorInstances(12L, SConnectorInstance.FLOWNODE_TYPE, 42L);
+
+        verify(archiveService, never()).insertFromQuery(anyString(), anyMapOf(String.class, Object.class), any(Class.class), anyInt());
+        verify(readPersitenceService, never()).selectOne(any(SelectOneDescriptor.class));
+    }
+
     @Test
     public void setConnectorInstanceFailureException() throws Exception {
         final Exception exception = new Exception(message);
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.core.connector.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
@@ -29,6 +30,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.bonitasoft.engine.bpm.bar.BarResource;
 import org.bonitasoft.engine.cache.CacheService;
@@ -37,6 +40,7 @@ import org.bonitasoft.engine.connector.ConnectorException;
 import org.bonitasoft.engine.connector.ConnectorExecutor;
 import org.bonitasoft.engine.connector.ConnectorValidationException;
 import org.bonitasoft.engine.connector.SConnector;
+import org.bonitasoft.engine.core.connector.ConnectorResult;
 import org.bonitasoft.engine.core.connector.exception.SConnectorException;
 import org.bonitasoft.engine.core.connector.exception.SInvalidConnectorImplementationException;
 import org.bonitasoft.engine.core.connector.parser.SConnectorImplementationDescriptor;
@@ -64,7 +68,6 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -103,7 +106,6 @@ public class ConnectorServiceImplTest {
     ArgumentCaptor<SDependency> dependencyArgumentCaptor;
     @Captor
     ArgumentCaptor<SBARResource> sBarResourceArgumentCaptor;
-    @InjectMocks
     private ConnectorServiceImpl connectorService;
 
     @Rule
@@ -114,6 +116,8 @@ public class ConnectorServiceImplTest {
     public void setup() {
         processDefinition = new SProcessDefinitionImpl("proc", "1");
         processDefinition.setId(PROCESS_DEFINITION_ID);
+        connectorService = new ConnectorServiceImpl(cacheService, connectorExecutor, expressionResolverService, operationService, dependencyService,
+                technicalLoggerService, timeTracker, processResourcesService, false);
     }
 
     @Test(expected = SInvalidConnectorImplementationException.class)
@@ -228,6 +232,64 @@ public class ConnectorServiceImplTest {
         assertThat(((SConnectorAdapter) sConnector).getConnector()).isInstanceOf(MyTestConnector.class);
     }
 
+    @Test
+    public void should_executeConnectorAsync_complete_with_the_result_of_the_connector_executor() throws Exception {
+        //given
+        SConnectorImplementationDescriptor connectorImplementationDescriptor = new SConnectorImplementationDescriptor(MyTestConnector.class.getName(), "implId",
+                "impplVersion", "defId", "defVersion", new ArrayList<>(Collections.<String> emptyList()));
+        Map<String, Object> inputParameters = Collections.<String, Object> singletonMap("key", "value");
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        CompletableFuture<Map<String, Object>> execution = new CompletableFuture<>();
+        doReturn(execution).when(connectorExecutor).executeAsync(any(SConnector.class), eq(inputParameters), eq(contextClassLoader));
+
+        //when
+        CompletableFuture<ConnectorResult> result = connectorService.executeConnectorAsync(PROCESS_DEFINITION_ID, mock(SConnectorInstance.class),
+                connectorImplementationDescriptor, contextClassLoader, inputParameters);
+
+        //then
+        assertThat(result.isDone()).isFalse();
+        execution.complete(Collections.<String, Object> singletonMap("output", "outputValue"));
+        assertThat(result.get().getResult()).containsEntry("output", "outputValue");
+        assertThat(result.get().getConnector()).isInstanceOf(MyTestConnector.class);
+    }
+
+    @Test
+    public void should_executeConnectorAsync_complete_exceptionally_with_a_SConnectorException_when_connector_fails() throws Exception {
+        //given
+        SConnectorImplementationDescriptor connectorImplementationDescriptor = new SConnectorImplementationDescriptor(MyTestConnector.class.getName(), "implId",
+                "impplVersion", "defId", "defVersion", new ArrayList<>(Collections.<String> emptyList()));
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        CompletableFuture<Map<String, Object>> execution = new CompletableFuture<>();
+        doReturn(execution).when(connectorExecutor).executeAsync(any(SConnector.class), anyMapOf(String.class, Object.class), eq(contextClassLoader));
+        CompletableFuture<ConnectorResult> result = connectorService.executeConnectorAsync(PROCESS_DEFINITION_ID, mock(SConnectorInstance.class),
+                connectorImplementationDescriptor, contextClassLoader, Collections.<String, Object> emptyMap());
+        final org.bonitasoft.engine.connector.exception.SConnectorException failure = new org.bonitasoft.engine.connector.exception.SConnectorException(
+                "failure");
+
+        //when
+        execution.completeExceptionally(failure);
+
+        //then
+        try {
+            result.get();
+            fail("should have failed");
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(SConnectorException.class);
+            assertThat(e.getCause().getCause()).isEqualTo(failure);
+        }
+    }
+
+    @Test
+    public void should_executeConnectorAsync_throw_SConnectorException_when_connector_class_is_not_found() throws Exception {
+        SConnectorImplementationDescriptor connectorImplementationDescriptor = new SConnectorImplementationDescriptor("org.unknown.Connector", "implId",
+                "impplVersion", "defId", "defVersion", new ArrayList<>(Collections.<String> emptyList()));
+
+        expectedException.expect(SConnectorException.class);
+
+        connectorService.executeConnectorAsync(PROCESS_DEFINITION_ID, mock(SConnectorInstance.class), connectorImplementationDescriptor,
+                Thread.currentThread().getContextClassLoader(), Collections.<String, Object> emptyMap());
+    }
+
     private void checkGetConnectorImplementationUsesCache(final int givenCacheSizeToBeReturned, final int expectedNumberOfCacheStoreInvocations,
             final boolean shouldCacheContainsConnectorImplementation)
             throws Exception {
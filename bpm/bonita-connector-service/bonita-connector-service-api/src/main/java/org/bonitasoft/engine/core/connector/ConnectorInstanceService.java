@@ -68,6 +68,16 @@ public interface ConnectorInstanceService {
      */
     void createConnectorInstance(SConnectorInstance connectorInstance) throws SConnectorInstanceCreationException;
 
+    /**
+     * Create the given connector instances in database, inserting them in batch when possible
+     * 
+     * @param connectorInstances
+     *        Connector instances
+     * @throws SConnectorInstanceCreationException
+     *         Error thrown if has exceptions during the connector instances creation
+     */
+    void createConnectorInstances(List<SConnectorInstance> connectorInstances) throws SConnectorInstanceCreationException;
+
     /**
      * Delete the given connector instance from the database
      * 
@@ -178,6 +188,17 @@ public interface ConnectorInstanceService {
      */
     void archiveConnectorInstance(SConnectorInstance connectorInstance, long archiveDate) throws SConnectorInstanceCreationException;
 
+    /**
+     * Archive all the connector instances of a container with one statement that does not read them, if connector instances are archivable
+     *
+     * @param containerId
+     * @param containerType
+     * @param archiveDate
+     * @throws SConnectorInstanceCreationException
+     * @since 7.5.3
+     */
+    void archiveConnectorInstances(long containerId, String containerType, long archiveDate) throws SConnectorInstanceCreationException;
+
     /**
      * @param searchOptions
      * @param persistenceService
@@ -202,6 +223,8 @@ public interface ConnectorInstanceService {
     void deleteArchivedConnectorInstance(SAConnectorInstance sConnectorInstance) throws SConnectorInstanceDeletionException;
 
     /**
+     * Delete the connector instances of a container, with a single statement when no handler listens to their deletion
+     *
      * @param containerId
      * @param containerType
      * @throws SConnectorInstanceReadException
@@ -16,6 +16,7 @@ package org.bonitasoft.engine.core.connector;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.bonitasoft.engine.resources.SBARResource;
 import org.bonitasoft.engine.core.connector.exception.SConnectorException;
@@ -182,6 +183,31 @@ public interface ConnectorService {
             SConnectorImplementationDescriptor connectorImplementationDescriptor, ClassLoader classLoader, Map<String, Object> inputParameters)
                     throws SConnectorException;
 
+    /**
+     * Same as {@link #executeConnector(long, SConnectorInstance, SConnectorImplementationDescriptor, ClassLoader, Map)} but does not wait for the connector
+     * to finish: the returned future is completed with the result once the connector has been executed, or exceptionally with a {@link SConnectorException}
+     * if it failed.
+     *
+     * @param processDefinitionId
+     * @param sConnectorInstance
+     * @param connectorImplementationDescriptor
+     * @param classLoader
+     * @param inputParameters
+     * @return a future completed with the result of the connector execution
+     * @throws SConnectorException
+     *         if the connector could not be instantiated or submitted
+     * @since 7.5.3
+     */
+    CompletableFuture<ConnectorResult> executeConnectorAsync(long processDefinitionId, SConnectorInstance sConnectorInstance,
+            SConnectorImplementationDescriptor connectorImplementationDescriptor, ClassLoader classLoader, Map<String, Object> inputParameters)
+                    throws SConnectorException;
+
+    /**
+     * @return true if connectors must be executed using {@link #executeConnectorAsync}, without blocking the calling work thread
+     * @since 7.5.3
+     */
+    boolean isAsynchronousExecutionEnabled();
+
     /**
      * @param result
      * @throws SConnectorException
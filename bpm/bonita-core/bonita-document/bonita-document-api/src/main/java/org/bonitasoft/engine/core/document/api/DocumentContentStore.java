@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api;
+
+import java.io.InputStream;
+
+import org.bonitasoft.engine.commons.exceptions.SObjectCreationException;
+import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
+import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+
+/**
+ * Stores the binary content of documents outside of the database, the {@link DocumentService} keeping only their metadata.
+ * <p>
+ * Contents are addressed by a digest of their bytes: storing the same content twice gives the same identifier and uses the space only once. As a
+ * consequence a content can be shared by several documents and must only be deleted once none of them reference it anymore.
+ *
+ * @since 7.5.3
+ */
+public interface DocumentContentStore {
+
+    /**
+     * Store the given content. The stream is consumed but not closed.
+     *
+     * @param content the content to store
+     * @return the identifier of the stored content
+     * @throws SObjectCreationException when the content cannot be stored
+     */
+    String store(InputStream content) throws SObjectCreationException;
+
+    /**
+     * Read a range of a stored content.
+     *
+     * @param contentId the identifier returned by {@link #store(InputStream)}
+     * @param offset the position of the first byte to read
+     * @param length the maximum number of bytes to read, or a negative value to read up to the end of the content
+     * @return a stream on the requested range, to be closed by the caller
+     * @throws SObjectNotFoundException when no content is stored with this identifier
+     */
+    InputStream read(String contentId, long offset, long length) throws SObjectNotFoundException;
+
+    /**
+     * @param contentId the identifier returned by {@link #store(InputStream)}
+     * @return the size in bytes of the content
+     * @throws SObjectNotFoundException when no content is stored with this identifier
+     */
+    long getSize(String contentId) throws SObjectNotFoundException;
+
+    /**
+     * Delete a content that is no longer referenced by any document. Deleting an unknown content does nothing.
+     *
+     * @param contentId the identifier returned by {@link #store(InputStream)}
+     * @throws SObjectModificationException when the content cannot be deleted
+     */
+    void delete(String contentId) throws SObjectModificationException;
+
+    /**
+     * @return true if document contents are kept in this store, false if it is not configured: documents then keep their content in the document
+     *         table
+     */
+    boolean isEnabled();
+
+}
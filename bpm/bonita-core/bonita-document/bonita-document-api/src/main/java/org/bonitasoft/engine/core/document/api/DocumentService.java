@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.core.document.api;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.bonitasoft.engine.commons.exceptions.SObjectAlreadyExistsException;
@@ -94,6 +95,17 @@ public interface DocumentService {
      */
     void removeCurrentVersion(long processInstanceId, String documentName) throws SObjectNotFoundException, SObjectModificationException;
 
+    /**
+     * Store a document content without loading it in memory. The returned identifier is given to the document to create with
+     * {@link org.bonitasoft.engine.core.document.model.builder.SDocumentBuilder#setContentId(String)}.
+     *
+     * @param content the content to store, consumed but not closed
+     * @return the identifier of the stored content
+     * @throws SObjectCreationException when the content cannot be stored, e.g. when the content store is not enabled
+     * @since 7.5.3
+     */
+    String storeDocumentContent(InputStream content) throws SObjectCreationException;
+
     /**
      * Get document content by document id
      *
@@ -103,6 +115,28 @@ public interface DocumentService {
      */
     byte[] getDocumentContent(String documentId) throws SObjectNotFoundException;
 
+    /**
+     * Get the content of a document as a stream, without loading it in memory
+     *
+     * @param documentId identifier of the document
+     * @return a stream on the document content, to be closed by the caller
+     * @throws SObjectNotFoundException
+     * @since 7.5.3
+     */
+    InputStream getDocumentContentStream(String documentId) throws SObjectNotFoundException;
+
+    /**
+     * Get a range of the content of a document as a stream
+     *
+     * @param documentId identifier of the document
+     * @param offset the position of the first byte to read
+     * @param length the maximum number of bytes to read, or a negative value to read up to the end of the content
+     * @return a stream on the requested range of the document content, to be closed by the caller
+     * @throws SObjectNotFoundException
+     * @since 7.5.3
+     */
+    InputStream getDocumentContentStream(String documentId, long offset, long length) throws SObjectNotFoundException;
+
     /**
      * Get document with mapping by its mapping id
      *
@@ -291,6 +325,16 @@ public interface DocumentService {
      */
     void archive(SDocumentMapping documentMapping, long archiveDate) throws SObjectModificationException;
 
+    /**
+     * archive all the document mappings of a process instance in the archive date, with one statement that does not read them
+     *
+     * @param processInstanceId the id of the process instance
+     * @param archiveDate the archive time
+     * @throws org.bonitasoft.engine.commons.exceptions.SObjectModificationException
+     * @since 7.5.3
+     */
+    void archiveDocumentMappings(long processInstanceId, long archiveDate) throws SObjectModificationException;
+
     /**
      * @param mappedDocument the document to update
      * @param document the new content
@@ -365,4 +409,18 @@ public interface DocumentService {
      * @param sDocument the new version of the document @return
      */
     SMappedDocument updateDocument(long documentId, SDocument sDocument) throws SObjectNotFoundException, SObjectModificationException, SBonitaReadException;
+
+    /**
+     * Move the content of documents stored in the document table to the {@link DocumentContentStore}. Never done automatically: it is an
+     * administration action to run once the store is enabled.
+     * <p>
+     * Until they are moved, such contents are still read from the database.
+     * </p>
+     *
+     * @param maxResults the maximum number of documents to migrate
+     * @return the number of migrated documents, 0 when there is nothing left to migrate
+     * @throws SObjectModificationException when the content store is not enabled or a content cannot be moved
+     * @since 7.5.3
+     */
+    int migrateInlineContents(int maxResults) throws SBonitaReadException, SObjectModificationException;
 }
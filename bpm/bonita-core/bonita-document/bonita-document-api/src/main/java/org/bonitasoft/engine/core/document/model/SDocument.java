@@ -20,6 +20,16 @@ package org.bonitasoft.engine.core.document.model;
  */
 public interface SDocument extends SLightDocument {
 
+    /**
+     * @return the content kept in the document table by versions prior to the {@link org.bonitasoft.engine.core.document.api.DocumentContentStore}, or
+     *         the content to store when the document is created
+     */
     byte[] getContent();
 
+    /**
+     * @return the identifier of the content in the {@link org.bonitasoft.engine.core.document.api.DocumentContentStore}, or null if the document has no
+     *         content or if its content is still kept in the document table
+     */
+    String getContentId();
+
 }
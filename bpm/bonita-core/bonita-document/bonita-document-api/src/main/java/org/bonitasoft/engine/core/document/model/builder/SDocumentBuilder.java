@@ -32,6 +32,11 @@ public interface SDocumentBuilder {
 
     SDocumentBuilder setContent(byte[] content);
 
+    /**
+     * @param contentId identifier of a content already stored with {@link org.bonitasoft.engine.core.document.api.DocumentService#storeDocumentContent}
+     */
+    SDocumentBuilder setContentId(String contentId);
+
     SDocumentBuilder setURL(String generateURL);
 
     SDocument done();
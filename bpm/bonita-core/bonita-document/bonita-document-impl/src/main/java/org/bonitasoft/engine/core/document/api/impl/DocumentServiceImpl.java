@@ -13,12 +13,17 @@
  **/
 package org.bonitasoft.engine.core.document.api.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
 import org.bonitasoft.engine.archive.ArchiveService;
 import org.bonitasoft.engine.builder.BuilderFactory;
@@ -27,6 +32,7 @@ import org.bonitasoft.engine.commons.exceptions.SObjectAlreadyExistsException;
 import org.bonitasoft.engine.commons.exceptions.SObjectCreationException;
 import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
 import org.bonitasoft.engine.core.document.api.DocumentService;
 import org.bonitasoft.engine.core.document.model.SDocument;
 import org.bonitasoft.engine.core.document.model.SDocumentMapping;
@@ -35,6 +41,7 @@ import org.bonitasoft.engine.core.document.model.SMappedDocument;
 import org.bonitasoft.engine.core.document.model.archive.SADocumentMapping;
 import org.bonitasoft.engine.core.document.model.archive.SAMappedDocument;
 import org.bonitasoft.engine.core.document.model.archive.impl.SADocumentMappingImpl;
+import org.bonitasoft.engine.core.document.model.impl.SDocumentImpl;
 import org.bonitasoft.engine.core.document.model.impl.SDocumentMappingImpl;
 import org.bonitasoft.engine.core.document.model.impl.SMappedDocumentImpl;
 import org.bonitasoft.engine.core.document.model.recorder.SelectDescriptorBuilder;
@@ -44,6 +51,8 @@ import org.bonitasoft.engine.events.model.SDeleteEvent;
 import org.bonitasoft.engine.events.model.SInsertEvent;
 import org.bonitasoft.engine.events.model.SUpdateEvent;
 import org.bonitasoft.engine.events.model.builders.SEventBuilderFactory;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.persistence.FilterOption;
 import org.bonitasoft.engine.persistence.OrderByType;
 import org.bonitasoft.engine.persistence.QueryOptions;
@@ -56,6 +65,10 @@ import org.bonitasoft.engine.recorder.SRecorderException;
 import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.TransactionState;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 
 /**
  * @author Nicolas Chabanoles
@@ -71,14 +84,22 @@ public class DocumentServiceImpl implements DocumentService {
     private final Recorder recorder;
     private final ReadPersistenceService persistenceService;
     private final ReadPersistenceService definitiveArchiveReadPersistenceService;
+    private final DocumentContentStore contentStore;
+    private final UserTransactionService userTransactionService;
+    private final TechnicalLoggerService technicalLoggerService;
 
     public DocumentServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
-            final SDocumentDownloadURLProvider urlProvider, final EventService eventService, final ArchiveService archiveService) {
+            final SDocumentDownloadURLProvider urlProvider, final EventService eventService, final ArchiveService archiveService,
+            final DocumentContentStore contentStore, final UserTransactionService userTransactionService,
+            final TechnicalLoggerService technicalLoggerService) {
         this.recorder = recorder;
         this.persistenceService = persistenceService;
         this.urlProvider = urlProvider;
         this.eventService = eventService;
         this.archiveService = archiveService;
+        this.contentStore = contentStore;
+        this.userTransactionService = userTransactionService;
+        this.technicalLoggerService = technicalLoggerService;
         definitiveArchiveReadPersistenceService = archiveService.getDefinitiveArchiveReadPersistenceService();
 
     }
@@ -158,7 +179,8 @@ public class DocumentServiceImpl implements DocumentService {
         return String.valueOf(intVersion + 1);
     }
 
-    private SDocument insertDocument(final SDocument document) throws SRecorderException {
+    private SDocument insertDocument(final SDocument document) throws SRecorderException, SObjectCreationException {
+        storeContent(document);
         final InsertRecord insertRecord = new InsertRecord(document);
         SInsertEvent insertEvent = null;
         if (eventService.hasHandlers(DOCUMENT, EventActionType.CREATED)) {
@@ -169,6 +191,22 @@ public class DocumentServiceImpl implements DocumentService {
         return document;
     }
 
+    private void storeContent(final SDocument document) throws SObjectCreationException {
+        if (document.getContent() == null || document.getContentId() != null || !contentStore.isEnabled()) {
+            // without a content store the content stays in the document table
+            return;
+        }
+        // the content goes to the content store, only its identifier is kept in the document table
+        final SDocumentImpl documentImpl = (SDocumentImpl) document;
+        documentImpl.setContentId(contentStore.store(new ByteArrayInputStream(document.getContent())));
+        documentImpl.setContent(null);
+    }
+
+    @Override
+    public String storeDocumentContent(final InputStream content) throws SObjectCreationException {
+        return contentStore.store(content);
+    }
+
     @Override
     public void deleteDocumentsFromProcessInstance(final Long processInstanceId) throws SBonitaReadException, SObjectModificationException {
         List<SMappedDocument> mappedDocuments;
@@ -258,15 +296,80 @@ public class DocumentServiceImpl implements DocumentService {
 
     @Override
     public byte[] getDocumentContent(final String documentId) throws SObjectNotFoundException {
+        final InputStream contentStream = getContentStream(documentId, 0, -1);
+        if (contentStream == null) {
+            return null;
+        }
         try {
-            final Long id = Long
-                    .valueOf(documentId);
-            return getDocumentWithContent(id).getContent();
+            return IOUtils.toByteArray(contentStream);
+        } catch (final IOException e) {
+            throw new SObjectNotFoundException("Unable to read the content of the document with id " + documentId, e);
+        } finally {
+            IOUtils.closeQuietly(contentStream);
+        }
+    }
+
+    @Override
+    public InputStream getDocumentContentStream(final String documentId) throws SObjectNotFoundException {
+        return getDocumentContentStream(documentId, 0, -1);
+    }
+
+    @Override
+    public InputStream getDocumentContentStream(final String documentId, final long offset, final long length) throws SObjectNotFoundException {
+        final InputStream contentStream = getContentStream(documentId, offset, length);
+        if (contentStream == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return contentStream;
+    }
+
+    private InputStream getContentStream(final String documentId, final long offset, final long length) throws SObjectNotFoundException {
+        final SDocument document;
+        try {
+            document = getDocumentWithContent(Long.valueOf(documentId));
         } catch (final NumberFormatException e) {
             throw new SObjectNotFoundException("Identifier " + documentId + " is not valid, it must be a long");
         } catch (final SBonitaReadException e) {
             throw new SObjectNotFoundException(e);
         }
+        if (document.getContentId() != null) {
+            return contentStore.read(document.getContentId(), offset, length);
+        }
+        final byte[] content = document.getContent();
+        if (content == null) {
+            return null;
+        }
+        // content stored in the document table before the content store existed
+        final int start = (int) Math.min(Math.max(offset, 0), content.length);
+        final InputStream contentStream = new ByteArrayInputStream(content, start, content.length - start);
+        if (length < 0) {
+            return contentStream;
+        }
+        return new BoundedInputStream(contentStream, length);
+    }
+
+    @Override
+    public int migrateInlineContents(final int maxResults) throws SBonitaReadException, SObjectModificationException {
+        if (!contentStore.isEnabled()) {
+            // contents are removed from the document table once moved, they would be lost with a store local to the node or temporary
+            throw new SObjectModificationException("Document contents are only moved to an enabled content store, "
+                    + "set bonita.tenant.document.store.folder to a folder that survives restarts and is shared by all the nodes");
+        }
+        final List<Long> documentIds = persistenceService.selectList(SelectDescriptorBuilder.getIdsOfDocumentsWithInlineContent(maxResults));
+        for (final Long documentId : documentIds) {
+            try {
+                final SDocument document = getDocumentWithContent(documentId);
+                final Map<String, Object> fields = new HashMap<String, Object>(2);
+                fields.put("contentId", contentStore.store(new ByteArrayInputStream(document.getContent())));
+                fields.put("content", null);
+                updateDocumentFields(document, fields);
+            } catch (final SObjectNotFoundException e) {
+                // deleted in the meantime
+            } catch (final SObjectCreationException | SRecorderException e) {
+                throw new SObjectModificationException(e);
+            }
+        }
+        return documentIds.size();
     }
 
     private SDocument getDocumentWithContent(final Long id) throws SBonitaReadException, SObjectNotFoundException {
@@ -354,11 +457,75 @@ public class DocumentServiceImpl implements DocumentService {
     }
 
     private void delete(final SLightDocument document) throws SRecorderException {
+        final String contentId = getContentId(document);
         final DeleteRecord deleteDocRecord = new DeleteRecord(document);
         final SDeleteEvent deleteDocEvent = (SDeleteEvent) BuilderFactory.get(SEventBuilderFactory.class).createDeleteEvent("SDocument")
                 .setObject(document)
                 .done();
         recorder.recordDelete(deleteDocRecord, deleteDocEvent);
+        releaseContent(contentId, document.getId());
+    }
+
+    private String getContentId(final SLightDocument document) throws SRecorderException {
+        if (document instanceof SDocument) {
+            return ((SDocument) document).getContentId();
+        }
+        try {
+            final SDocument documentWithContent = persistenceService.selectById(new SelectByIdDescriptor<SDocument>(SDocument.class, document.getId()));
+            return documentWithContent != null ? documentWithContent.getContentId() : null;
+        } catch (final SBonitaReadException e) {
+            throw new SRecorderException(e);
+        }
+    }
+
+    /**
+     * Delete the content from the content store once the transaction is committed, unless another document than the given one still references it
+     */
+    private void releaseContent(final String contentId, final long releasingDocumentId) throws SRecorderException {
+        if (contentId == null) {
+            return;
+        }
+        try {
+            // the released document may or may not be flushed yet: ignore it when looking for other references
+            final List<Long> references = persistenceService.selectList(SelectDescriptorBuilder.getIdsOfDocumentsWithContentId(contentId, 2));
+            for (final Long reference : references) {
+                if (reference != releasingDocumentId) {
+                    return;
+                }
+            }
+            userTransactionService.registerBonitaSynchronization(new ContentDeletionSynchronization(contentId));
+        } catch (final SBonitaReadException | STransactionNotFoundException e) {
+            throw new SRecorderException(e);
+        }
+    }
+
+    private class ContentDeletionSynchronization implements BonitaTransactionSynchronization {
+
+        private final String contentId;
+
+        ContentDeletionSynchronization(final String contentId) {
+            this.contentId = contentId;
+        }
+
+        @Override
+        public void beforeCommit() {
+            // nothing to do
+        }
+
+        @Override
+        public void afterCompletion(final TransactionState txState) {
+            if (txState != TransactionState.COMMITTED) {
+                return;
+            }
+            try {
+                contentStore.delete(contentId);
+            } catch (final SObjectModificationException e) {
+                if (technicalLoggerService.isLoggable(DocumentServiceImpl.class, TechnicalLogSeverity.WARNING)) {
+                    technicalLoggerService.log(DocumentServiceImpl.class, TechnicalLogSeverity.WARNING, "Unable to delete the document content "
+                            + contentId + ", it will stay in the content store", e);
+                }
+            }
+        }
     }
 
     private void delete(final SADocumentMapping mappedDocument) throws SRecorderException {
@@ -465,6 +632,22 @@ public class DocumentServiceImpl implements DocumentService {
         }
     }
 
+    @Override
+    public void archiveDocumentMappings(final long processInstanceId, final long archiveDate) throws SObjectModificationException {
+        if (!archiveService.isArchivable(SDocumentMapping.class)) {
+            return;
+        }
+        final Map<String, Object> parameters = new HashMap<>(2);
+        parameters.put("processInstanceId", processInstanceId);
+        parameters.put("archiveDate", archiveDate);
+        try {
+            final long numberOfDocumentMappings = getNumberOfDocumentsOfProcessInstance(processInstanceId);
+            archiveService.insertFromQuery("archiveDocumentMappingsOfProcessInstance", parameters, SADocumentMapping.class, (int) numberOfDocumentMappings);
+        } catch (final SBonitaException e) {
+            throw new SObjectModificationException("Unable to archive the documents of process instance with id = <" + processInstanceId + ">", e);
+        }
+    }
+
     @Override
     public List<SMappedDocument> getDocumentList(final String documentName, final long processInstanceId, final int fromIndex, final int numberOfResult)
             throws SBonitaReadException {
@@ -476,7 +659,16 @@ public class DocumentServiceImpl implements DocumentService {
     public void deleteContentOfArchivedDocument(final long archivedDocumentId) throws SObjectNotFoundException, SBonitaReadException, SRecorderException {
         final SAMappedDocument archivedDocument = getArchivedDocument(archivedDocumentId);
         final SDocument document = getDocumentWithContent(archivedDocument.getDocumentId());
-        final UpdateRecord updateRecord = UpdateRecord.buildSetFields(document, Collections.singletonMap("content", null));
+        final String contentId = document.getContentId();
+        final Map<String, Object> fields = new HashMap<String, Object>(2);
+        fields.put("content", null);
+        fields.put("contentId", null);
+        updateDocumentFields(document, fields);
+        releaseContent(contentId, document.getId());
+    }
+
+    private void updateDocumentFields(final SDocument document, final Map<String, Object> fields) throws SRecorderException {
+        final UpdateRecord updateRecord = UpdateRecord.buildSetFields(document, fields);
         SUpdateEvent updateEvent = null;
         if (eventService.hasHandlers(DOCUMENT, EventActionType.UPDATED)) {
             updateEvent = (SUpdateEvent) BuilderFactory.get(SEventBuilderFactory.class).createUpdateEvent(DOCUMENT).setObject(document)
@@ -502,7 +694,7 @@ public class DocumentServiceImpl implements DocumentService {
         //insert new document
         try {
             insertDocument(sDocument);
-        } catch (final SRecorderException e) {
+        } catch (final SRecorderException | SObjectCreationException e) {
             throw new SObjectModificationException(e);
         }
         //update mapping
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.bonitasoft.engine.commons.exceptions.SObjectCreationException;
+import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
+import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+
+/**
+ * {@link DocumentContentStore} keeping each content in a file of a tenant folder, named after the SHA-256 digest of the content.
+ * <p>
+ * The store is only enabled when a folder is configured: documents otherwise keep their content in the document table.
+ * <p>
+ * Contents are first written and synced to a temporary file while their digest is computed, then atomically renamed over the content file, so a content
+ * is never visible half written and storing an already stored content gives its file a new modification date. Deletion skips files modified during the
+ * grace period: a transaction that stored the same content while another one was deleting its last reference does not lose it. The grace period should
+ * be longer than the transaction timeout. In a node, storing and deleting a content are serialized; between nodes sharing the folder, a content is
+ * moved aside before being deleted and put back if it was stored again meanwhile.
+ *
+ * @since 7.5.3
+ */
+public class FileSystemDocumentContentStore implements DocumentContentStore {
+
+    private static final Pattern CONTENT_ID_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final File rootFolder;
+
+    private final long deletionGracePeriod;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * @param storeFolder
+     *        folder of the contents of all tenants, shared by all the nodes of a cluster, or an empty value to keep contents in the document table
+     */
+    public FileSystemDocumentContentStore(final String storeFolder, final long tenantId, final long deletionGracePeriodInSeconds) {
+        this(getTenantFolder(storeFolder, tenantId), TimeUnit.SECONDS.toMillis(deletionGracePeriodInSeconds));
+    }
+
+    FileSystemDocumentContentStore(final File rootFolder, final long deletionGracePeriod) {
+        this.rootFolder = rootFolder;
+        this.deletionGracePeriod = deletionGracePeriod;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    private static File getTenantFolder(final String storeFolder, final long tenantId) {
+        if (storeFolder == null || storeFolder.trim().isEmpty()) {
+            return null;
+        }
+        return new File(new File(new File(storeFolder.trim()), "tenants"), String.valueOf(tenantId));
+    }
+
+    @Override
+    public String store(final InputStream content) throws SObjectCreationException {
+        checkEnabled();
+        try {
+            createFolder(rootFolder);
+            final File temporaryFile = File.createTempFile("content", ".tmp", rootFolder);
+            try {
+                final MessageDigest digest = newDigest();
+                try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                    IOUtils.copyLarge(new DigestInputStream(content, digest), outputStream);
+                    outputStream.getFD().sync();
+                }
+                final String contentId = toHex(digest.digest());
+                final File file = getFile(contentId);
+                createFolder(file.getParentFile());
+                synchronized (getLock(contentId)) {
+                    // replacing an existing file, instead of touching it, leaves a deletion in progress on another node with the old file only
+                    move(temporaryFile, file);
+                    syncFolder(file.getParentFile());
+                    if (!file.isFile()) {
+                        throw new IOException("The content file " + file.getAbsolutePath() + " was deleted while being stored");
+                    }
+                }
+                return contentId;
+            } finally {
+                temporaryFile.delete();
+            }
+        } catch (final IOException e) {
+            throw new SObjectCreationException("Unable to store the document content in " + rootFolder.getAbsolutePath(), e);
+        }
+    }
+
+    @Override
+    public InputStream read(final String contentId, final long offset, final long length) throws SObjectNotFoundException {
+        final File file = getExistingFile(contentId);
+        try {
+            final InputStream inputStream = new FileInputStream(file);
+            try {
+                IOUtils.skipFully(inputStream, Math.min(offset, file.length()));
+            } catch (final IOException e) {
+                inputStream.close();
+                throw e;
+            }
+            if (length < 0) {
+                return inputStream;
+            }
+            return new BoundedInputStream(inputStream, length);
+        } catch (final IOException e) {
+            throw new SObjectNotFoundException("Unable to read the document content " + contentId, e);
+        }
+    }
+
+    @Override
+    public long getSize(final String contentId) throws SObjectNotFoundException {
+        return getExistingFile(contentId).length();
+    }
+
+    @Override
+    public void delete(final String contentId) throws SObjectModificationException {
+        if (!isEnabled()) {
+            return;
+        }
+        final File file = getFile(contentId);
+        synchronized (getLock(contentId)) {
+            if (!file.exists() || isInGracePeriod(file)) {
+                return;
+            }
+            final File deletedFile = new File(file.getParentFile(), contentId + "." + UUID.randomUUID() + ".deleted");
+            try {
+                move(file, deletedFile);
+                if (isInGracePeriod(deletedFile)) {
+                    // stored again by another node between the check and the move
+                    move(deletedFile, file);
+                    return;
+                }
+                Files.delete(deletedFile.toPath());
+            } catch (final NoSuchFileException e) {
+                // deleted by another node
+            } catch (final IOException e) {
+                throw new SObjectModificationException("Unable to delete the document content " + file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return rootFolder != null;
+    }
+
+    private void checkEnabled() throws SObjectCreationException {
+        if (!isEnabled()) {
+            throw new SObjectCreationException("The document content store is not enabled, set bonita.tenant.document.store.folder to a folder that"
+                    + " survives restarts and is shared by all the nodes");
+        }
+    }
+
+    private boolean isInGracePeriod(final File file) {
+        return System.currentTimeMillis() - file.lastModified() < deletionGracePeriod;
+    }
+
+    private Object getLock(final String contentId) {
+        return locks[(contentId.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    File getFile(final String contentId) {
+        if (contentId == null || !CONTENT_ID_PATTERN.matcher(contentId).matches()) {
+            throw new IllegalArgumentException("Invalid document content identifier: " + contentId);
+        }
+        return new File(new File(rootFolder, contentId.substring(0, 2)), contentId);
+    }
+
+    private File getExistingFile(final String contentId) throws SObjectNotFoundException {
+        if (rootFolder == null) {
+            throw new SObjectNotFoundException("Document content " + contentId + " not found: bonita.tenant.document.store.folder is not set");
+        }
+        final File file = getFile(contentId);
+        if (!file.isFile()) {
+            throw new SObjectNotFoundException("Document content " + contentId + " not found in " + rootFolder.getAbsolutePath());
+        }
+        return file;
+    }
+
+    private static void move(final File source, final File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Make the rename of a content file durable. Not all systems can open a folder, the rename is then left to the system.
+     */
+    private static void syncFolder(final File folder) {
+        try (FileChannel channel = FileChannel.open(folder.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // e.g. on Windows, where folders cannot be opened
+        }
+    }
+
+    private static void createFolder(final File folder) throws IOException {
+        if (!folder.isDirectory() && !folder.mkdirs() && !folder.isDirectory()) {
+            throw new IOException("Unable to create the folder " + folder.getAbsolutePath());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // every JVM has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+}
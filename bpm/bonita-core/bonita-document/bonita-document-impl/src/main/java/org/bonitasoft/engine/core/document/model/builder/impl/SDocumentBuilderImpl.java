@@ -64,6 +64,12 @@ public class SDocumentBuilderImpl implements SDocumentBuilder {
         return this;
     }
 
+    @Override
+    public SDocumentBuilder setContentId(final String contentId) {
+        entity.setContentId(contentId);
+        return this;
+    }
+
     @Override
     public SDocumentBuilder setURL(final String url) {
         entity.setUrl(url);
@@ -29,6 +29,8 @@ public class SDocumentImpl extends SLightDocumentImpl implements SDocument {
 
     private byte[] content;
 
+    private String contentId;
+
     public SDocumentImpl() {
     }
 
@@ -42,6 +44,15 @@ public class SDocumentImpl extends SLightDocumentImpl implements SDocument {
         return content;
     }
 
+    public void setContentId(String contentId) {
+        this.contentId = contentId;
+    }
+
+    @Override
+    public String getContentId() {
+        return contentId;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -51,6 +62,7 @@ public class SDocumentImpl extends SLightDocumentImpl implements SDocument {
         SDocumentImpl sDocument = (SDocumentImpl) o;
 
         if (!Arrays.equals(content, sDocument.content)) return false;
+        if (contentId != null ? !contentId.equals(sDocument.contentId) : sDocument.contentId != null) return false;
 
         return true;
     }
@@ -59,6 +71,7 @@ public class SDocumentImpl extends SLightDocumentImpl implements SDocument {
     public int hashCode() {
         int result = super.hashCode();
         result = 31 * result + (content != null ? Arrays.hashCode(content) : 0);
+        result = 31 * result + (contentId != null ? contentId.hashCode() : 0);
         return result;
     }
 
@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.core.document.model.recorder;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -105,4 +106,16 @@ public class SelectDescriptorBuilder {
         return new SelectListDescriptor<>("getDocumentCreatedBeforeList", parameters, SMappedDocument.class,
                 queryOptions);
     }
+
+    public static SelectListDescriptor<Long> getIdsOfDocumentsWithContentId(final String contentId, final int maxResults) {
+        final Map<String, Object> parameters = new HashMap<>(1);
+        parameters.put("contentId", contentId);
+        return new SelectListDescriptor<>("getIdsOfSDocumentWithContentId", parameters, SDocument.class, new QueryOptions(0, maxResults));
+    }
+
+    public static SelectListDescriptor<Long> getIdsOfDocumentsWithInlineContent(final int maxResults) {
+        return new SelectListDescriptor<>("getIdsOfSDocumentWithInlineContent", Collections.<String, Object> emptyMap(), SDocument.class,
+                new QueryOptions(0, maxResults));
+    }
+
 }
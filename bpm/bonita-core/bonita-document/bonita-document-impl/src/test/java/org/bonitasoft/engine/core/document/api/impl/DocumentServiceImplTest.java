@@ -15,32 +15,54 @@ package org.bonitasoft.engine.core.document.api.impl;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.engine.archive.ArchiveService;
+import org.apache.commons.io.IOUtils;
+import org.bonitasoft.engine.commons.exceptions.SObjectModificationException;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+import org.bonitasoft.engine.core.document.api.DocumentContentStore;
+import org.bonitasoft.engine.core.document.model.SDocument;
+import org.bonitasoft.engine.core.document.model.SDocumentMapping;
 import org.bonitasoft.engine.core.document.model.SMappedDocument;
+import org.bonitasoft.engine.core.document.model.archive.SADocumentMapping;
 import org.bonitasoft.engine.core.document.model.archive.impl.SAMappedDocumentImpl;
+import org.bonitasoft.engine.core.document.model.impl.SDocumentImpl;
 import org.bonitasoft.engine.core.document.model.impl.SMappedDocumentImpl;
 import org.bonitasoft.engine.core.document.model.recorder.SelectDescriptorBuilder;
 import org.bonitasoft.engine.events.EventService;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.persistence.PersistentObject;
 import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.persistence.ReadPersistenceService;
+import org.bonitasoft.engine.persistence.SelectByIdDescriptor;
 import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.TransactionState;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -66,12 +88,18 @@ public class DocumentServiceImplTest {
     private TechnicalLoggerService technicalLogger;
     @Mock
     private ArchiveService archiveService;
+    @Mock
+    private DocumentContentStore contentStore;
+    @Mock
+    private UserTransactionService userTransactionService;
 
     private DocumentServiceImpl documentService;
 
     @Before
     public void setUp() {
-        documentService = spy(new DocumentServiceImpl(recorder, persistenceService, urlProvider, eventService, archiveService));
+        doReturn(persistenceService).when(archiveService).getDefinitiveArchiveReadPersistenceService();
+        documentService = spy(new DocumentServiceImpl(recorder, persistenceService, urlProvider, eventService, archiveService, contentStore,
+                userTransactionService, technicalLogger));
     }
 
     @Test
@@ -160,4 +188,127 @@ public class DocumentServiceImplTest {
         //then exception
     }
 
+    @Test
+    public void should_attachDocumentToProcessInstance_keep_a_content_already_stored() throws Exception {
+        //given
+        doReturn("contentId").when(contentStore).store(any(InputStream.class));
+        final SDocumentImpl document = new SDocumentImpl();
+        document.setContentId(documentService.storeDocumentContent(new ByteArrayInputStream("the content".getBytes())));
+        //when
+        documentService.attachDocumentToProcessInstance(document, 45l, "doc", "description");
+        //then
+        assertThat(document.getContentId()).isEqualTo("contentId");
+        verify(contentStore, times(1)).store(any(InputStream.class));
+    }
+
+    @Test(expected = SObjectModificationException.class)
+    public void migrateInlineContents_should_refuse_to_move_contents_when_the_content_store_is_not_enabled() throws Exception {
+        doReturn(false).when(contentStore).isEnabled();
+
+        documentService.migrateInlineContents(100);
+    }
+
+    @Test
+    public void should_attachDocumentToProcessInstance_put_content_in_content_store() throws Exception {
+        //given
+        final SDocumentImpl document = new SDocumentImpl();
+        document.setContent("the content".getBytes());
+        doReturn(true).when(contentStore).isEnabled();
+        doReturn("contentId").when(contentStore).store(any(InputStream.class));
+        //when
+        documentService.attachDocumentToProcessInstance(document, 45l, "doc", "description");
+        //then
+        assertThat(document.getContentId()).isEqualTo("contentId");
+        assertThat(document.getContent()).isNull();
+    }
+
+    @Test
+    public void should_attachDocumentToProcessInstance_keep_content_in_document_table_when_content_store_is_not_enabled() throws Exception {
+        //given
+        final SDocumentImpl document = new SDocumentImpl();
+        document.setContent("the content".getBytes());
+        doReturn(false).when(contentStore).isEnabled();
+        //when
+        documentService.attachDocumentToProcessInstance(document, 45l, "doc", "description");
+        //then
+        assertThat(document.getContentId()).isNull();
+        assertThat(document.getContent()).isEqualTo("the content".getBytes());
+        verify(contentStore, never()).store(any(InputStream.class));
+    }
+
+    @Test
+    public void should_getDocumentContent_read_content_store() throws Exception {
+        //given
+        final SDocumentImpl document = new SDocumentImpl();
+        document.setContentId("contentId");
+        doReturn(document).when(persistenceService).selectById(Matchers.<SelectByIdDescriptor<SDocument>> any());
+        doReturn(new ByteArrayInputStream("the content".getBytes())).when(contentStore).read("contentId", 0, -1);
+        //when
+        final byte[] content = documentService.getDocumentContent("12");
+        //then
+        assertThat(new String(content)).isEqualTo("the content");
+    }
+
+    @Test
+    public void should_getDocumentContentStream_read_range_of_content_stored_in_document_table() throws Exception {
+        //given
+        final SDocumentImpl document = new SDocumentImpl();
+        document.setContent("the content".getBytes());
+        doReturn(document).when(persistenceService).selectById(Matchers.<SelectByIdDescriptor<SDocument>> any());
+        //when
+        final InputStream contentStream = documentService.getDocumentContentStream("12", 4, 3);
+        //then
+        assertThat(new String(IOUtils.toByteArray(contentStream))).isEqualTo("con");
+    }
+
+    @Test
+    public void should_deleteContentOfArchivedDocument_delete_content_after_commit_when_no_other_document_uses_it() throws Exception {
+        //given
+        archivedDocumentWithContentId(12l, "contentId");
+        doReturn(Collections.singletonList(12l)).when(persistenceService).selectList(
+                SelectDescriptorBuilder.getIdsOfDocumentsWithContentId("contentId", 2));
+        //when
+        documentService.deleteContentOfArchivedDocument(5l);
+        //then
+        final ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor.forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(synchronization.capture());
+        verify(contentStore, never()).delete("contentId");
+        synchronization.getValue().afterCompletion(TransactionState.COMMITTED);
+        verify(contentStore).delete("contentId");
+    }
+
+    @Test
+    public void should_deleteContentOfArchivedDocument_keep_content_used_by_an_other_document() throws Exception {
+        //given
+        archivedDocumentWithContentId(12l, "contentId");
+        doReturn(Arrays.asList(12l, 13l)).when(persistenceService).selectList(SelectDescriptorBuilder.getIdsOfDocumentsWithContentId("contentId", 2));
+        //when
+        documentService.deleteContentOfArchivedDocument(5l);
+        //then
+        verify(userTransactionService, never()).registerBonitaSynchronization(any(BonitaTransactionSynchronization.class));
+    }
+
+    @Test
+    public void should_archive_all_document_mappings_of_the_process_instance_with_one_statement() throws Exception {
+        //given
+        doReturn(true).when(archiveService).isArchivable(SDocumentMapping.class);
+        doReturn(2L).when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+        //when
+        documentService.archiveDocumentMappings(45L, 42L);
+        //then
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("processInstanceId", 45L);
+        parameters.put("archiveDate", 42L);
+        verify(archiveService).insertFromQuery("archiveDocumentMappingsOfProcessInstance", parameters, SADocumentMapping.class, 2);
+    }
+
+    private void archivedDocumentWithContentId(final long documentId, final String contentId) throws Exception {
+        final SAMappedDocumentImpl archivedDocument = new SAMappedDocumentImpl();
+        archivedDocument.setDocumentId(documentId);
+        final SDocumentImpl document = new SDocumentImpl();
+        document.setId(documentId);
+        document.setContentId(contentId);
+        when(persistenceService.selectById(Matchers.<SelectByIdDescriptor<PersistentObject>> any())).thenReturn(archivedDocument).thenReturn(document);
+    }
+
 }
@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.document.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.bonitasoft.engine.commons.exceptions.SObjectCreationException;
+import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSystemDocumentContentStoreTest {
+
+    private static final String CONTENT_ID = "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File rootFolder;
+
+    private FileSystemDocumentContentStore store;
+
+    @Before
+    public void before() throws Exception {
+        rootFolder = temporaryFolder.newFolder();
+        store = new FileSystemDocumentContentStore(rootFolder, 0);
+    }
+
+    @Test
+    public void store_should_write_the_content_in_a_file_named_after_its_digest() throws Exception {
+        final String contentId = store.store(stream("content"));
+
+        assertThat(contentId).isEqualTo(CONTENT_ID);
+        assertThat(FileUtils.readFileToString(new File(new File(rootFolder, "ed"), CONTENT_ID))).isEqualTo("content");
+    }
+
+    @Test
+    public void store_should_keep_a_single_file_for_identical_contents() throws Exception {
+        final String first = store.store(stream("content"));
+        final String second = store.store(stream("content"));
+
+        assertThat(second).isEqualTo(first);
+        assertThat(new File(rootFolder, "ed").listFiles()).hasSize(1);
+        assertThat(rootFolder.listFiles()).hasSize(1);
+    }
+
+    @Test
+    public void store_should_rewrite_a_file_of_the_same_length_but_another_content() throws Exception {
+        final String contentId = store.store(stream("content"));
+        FileUtils.writeStringToFile(new File(new File(rootFolder, "ed"), contentId), "CONTENT");
+
+        store.store(stream("content"));
+
+        assertThat(read(store.read(contentId, 0, -1))).isEqualTo("content");
+    }
+
+    @Test
+    public void isEnabled_should_tell_whether_a_folder_is_configured() throws Exception {
+        assertThat(new FileSystemDocumentContentStore("", 1L, 0).isEnabled()).isFalse();
+        assertThat(new FileSystemDocumentContentStore(rootFolder.getAbsolutePath(), 1L, 0).isEnabled()).isTrue();
+    }
+
+    @Test(expected = SObjectCreationException.class)
+    public void store_should_refuse_contents_when_not_enabled() throws Exception {
+        new FileSystemDocumentContentStore(" ", 1L, 0).store(stream("content"));
+    }
+
+    @Test
+    public void delete_should_not_remove_a_content_stored_again_by_another_thread() throws Exception {
+        store = new FileSystemDocumentContentStore(rootFolder, 60000);
+        final String contentId = store.store(stream("content"));
+        final File file = new File(new File(rootFolder, "ed"), contentId);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 200; i++) {
+                file.setLastModified(System.currentTimeMillis() - 120000);
+                final Future<String> storing = executor.submit(new Callable<String>() {
+
+                    @Override
+                    public String call() throws Exception {
+                        return store.store(stream("content"));
+                    }
+                });
+                final Future<?> deleting = executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        store.delete(contentId);
+                        return null;
+                    }
+                });
+                deleting.get();
+                storing.get();
+
+                // then
+                assertThat(read(store.read(contentId, 0, -1))).isEqualTo("content");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void read_should_return_the_whole_content() throws Exception {
+        final String contentId = store.store(stream("the content"));
+
+        assertThat(read(store.read(contentId, 0, -1))).isEqualTo("the content");
+        assertThat(store.getSize(contentId)).isEqualTo(11);
+    }
+
+    @Test
+    public void read_should_return_the_requested_range() throws Exception {
+        final String contentId = store.store(stream("the content"));
+
+        assertThat(read(store.read(contentId, 4, 3))).isEqualTo("con");
+        assertThat(read(store.read(contentId, 8, 10))).isEqualTo("ent");
+        assertThat(read(store.read(contentId, 20, 10))).isEmpty();
+    }
+
+    @Test(expected = SObjectNotFoundException.class)
+    public void read_should_throw_not_found_when_content_is_missing() throws Exception {
+        store.read(CONTENT_ID, 0, -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read_should_reject_identifiers_that_are_not_digests() throws Exception {
+        store.read("../../etc/passwd", 0, -1);
+    }
+
+    @Test
+    public void delete_should_remove_the_content() throws Exception {
+        final String contentId = store.store(stream("content"));
+        new File(new File(rootFolder, "ed"), contentId).setLastModified(System.currentTimeMillis() - 1000);
+
+        store.delete(contentId);
+
+        assertThat(new File(new File(rootFolder, "ed"), contentId)).doesNotExist();
+    }
+
+    @Test
+    public void delete_should_keep_a_content_stored_during_the_grace_period() throws Exception {
+        store = new FileSystemDocumentContentStore(rootFolder, 60000);
+        final String contentId = store.store(stream("content"));
+
+        store.delete(contentId);
+
+        assertThat(read(store.read(contentId, 0, -1))).isEqualTo("content");
+    }
+
+    private static InputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+
+    private static String read(final InputStream inputStream) throws Exception {
+        try {
+            return IOUtils.toString(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+}
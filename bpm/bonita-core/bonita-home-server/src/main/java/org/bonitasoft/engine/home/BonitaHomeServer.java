@@ -197,6 +197,14 @@ public class BonitaHomeServer {
         return FolderMgr.getPlatformLocalClassLoaderFolder(artifactType, artifactId).toURI();
     }
 
+    public File getWorkFolder() throws IOException {
+        return FolderMgr.getWorkFolder().getFile();
+    }
+
+    public File getClassLoaderStoreFolder() throws IOException {
+        return FolderMgr.getClassLoaderStoreFolder().getFile();
+    }
+
     public void createTenant(final long tenantId) {
         getConfigurationService().storeTenantEngineConf(getConfigurationService().getTenantTemplateEngineConf(), tenantId);
         getConfigurationService().storeTenantSecurityScripts(getConfigurationService().getTenantTemplateSecurityScripts(), tenantId);
@@ -4,6 +4,10 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Arrays;
 import java.util.List;
 
@@ -18,6 +22,8 @@ class FolderMgr {
 
     public static final Logger LOGGER = LoggerFactory.getLogger(FolderMgr.class);
     public static final String TEMP_FOLDER_NAME_PREFIX = "bonita_engine_";
+    public static final String WORK_FOLDER_PROPERTY = "org.bonitasoft.engine.work.folder";
+    public static final String CLASSLOADER_STORE_FOLDER_NAME = "classloader-store";
 
     private static Folder getFolder(final File baseFolder, final String subFolder) throws IOException {
         return new Folder(new Folder(baseFolder), subFolder);
@@ -71,6 +77,38 @@ class FolderMgr {
         return getFolder(getPlatformTempFolder(), "classloaders").createIfNotExists();
     }
 
+    /**
+     * Folder of the files the engine keeps across restarts, given by the {@value #WORK_FOLDER_PROPERTY} system property and by default .bonita/work in
+     * the home folder of the user running the engine. Unlike the temporary folders, it is not cleaned by the system, and only that user can access it.
+     */
+    static Folder getWorkFolder() throws IOException {
+        final String workFolderPath = System.getProperty(WORK_FOLDER_PROPERTY);
+        if (workFolderPath != null && !workFolderPath.trim().isEmpty()) {
+            return createOwnerOnlyFolder(new File(workFolderPath.trim()));
+        }
+        return createOwnerOnlyFolder(new File(new File(System.getProperty("user.home"), ".bonita"), "work"));
+    }
+
+    /**
+     * Folder holding the content-addressed classloader resources. It is neither specific to the JVM nor deleted on exit, so that it acts as a cache across
+     * restarts.
+     */
+    static Folder getClassLoaderStoreFolder() throws IOException {
+        return createOwnerOnlyFolder(new File(getWorkFolder().getFile(), CLASSLOADER_STORE_FOLDER_NAME));
+    }
+
+    private static Folder createOwnerOnlyFolder(final File folder) throws IOException {
+        final Path path = Files.createDirectories(folder.toPath());
+        if (Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            // fails if the folder belongs to another user
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rwx------"));
+        } else if (!(folder.setReadable(false, false) && folder.setReadable(true, true) && folder.setWritable(false, false)
+                && folder.setWritable(true, true) && folder.setExecutable(false, false) && folder.setExecutable(true, true))) {
+            throw new IOException("Unable to restrict the access to " + folder.getAbsolutePath() + " to its owner");
+        }
+        return new Folder(folder);
+    }
+
     private static String getJvmName() {
         return ManagementFactory.getRuntimeMXBean().getName();
     }
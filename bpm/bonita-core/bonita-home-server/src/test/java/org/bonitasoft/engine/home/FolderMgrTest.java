@@ -16,6 +16,8 @@ package org.bonitasoft.engine.home;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -61,4 +63,17 @@ public class FolderMgrTest {
 
     }
 
+    @Test
+    public void getClassLoaderStoreFolder_should_be_in_the_work_folder_and_only_accessible_by_its_owner() throws Exception {
+        //given
+        final File workFolder = new File(temporaryFolder.getRoot(), "work");
+        System.setProperty(FolderMgr.WORK_FOLDER_PROPERTY, workFolder.getAbsolutePath());
+        //when
+        final File classLoaderStoreFolder = FolderMgr.getClassLoaderStoreFolder().getFile();
+        //then
+        assertThat(classLoaderStoreFolder).isDirectory().isEqualTo(new File(workFolder, FolderMgr.CLASSLOADER_STORE_FOLDER_NAME));
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(classLoaderStoreFolder.toPath()))).isEqualTo("rwx------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(workFolder.toPath()))).isEqualTo("rwx------");
+    }
+
 }
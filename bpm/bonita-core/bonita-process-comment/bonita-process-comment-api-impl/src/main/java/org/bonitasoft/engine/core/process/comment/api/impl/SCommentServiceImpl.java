@@ -15,6 +15,7 @@ package org.bonitasoft.engine.core.process.comment.api.impl;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +50,7 @@ import org.bonitasoft.engine.persistence.SelectByIdDescriptor;
 import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.SRecorderException;
+import org.bonitasoft.engine.recorder.model.DeleteAllRecord;
 import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.session.SessionService;
@@ -184,6 +186,12 @@ public class SCommentServiceImpl implements SCommentService {
 
     @Override
     public void deleteComments(final long processInstanceId) throws SBonitaException {
+        if (!eventService.hasHandlers(COMMENT, EventActionType.DELETED)) {
+            // no handler needs the deleted comments: remove them all with one statement
+            final FilterOption filterOption = new FilterOption(SComment.class, "processInstanceId", processInstanceId);
+            recorder.recordDeleteAll(new DeleteAllRecord(SComment.class, Collections.singletonList(filterOption)));
+            return;
+        }
         final QueryOptions queryOptions = new QueryOptions(0, 100, SComment.class, "id", OrderByType.ASC);
 
         List<SComment> sComments = null;
@@ -301,4 +309,23 @@ public class SCommentServiceImpl implements SCommentService {
             }
         }
     }
+
+    @Override
+    public void archiveComments(final long processInstanceId, final long archiveDate) throws SObjectModificationException {
+        if (!archiveService.isArchivable(SComment.class)) {
+            return;
+        }
+        final FilterOption filterOption = new FilterOption(SComment.class, "processInstanceId", processInstanceId);
+        final QueryOptions queryOptions = new QueryOptions(0, QueryOptions.UNLIMITED_NUMBER_OF_RESULTS, Collections.<OrderByOption> emptyList(),
+                Collections.singletonList(filterOption), null);
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("processInstanceId", processInstanceId);
+        parameters.put("archiveDate", archiveDate);
+        try {
+            final long numberOfComments = getNumberOfComments(queryOptions);
+            archiveService.insertFromQuery("archiveCommentsOfProcessInstance", parameters, SAComment.class, (int) numberOfComments);
+        } catch (final SBonitaReadException | SRecorderException e) {
+            throw new SObjectModificationException("Unable to archive the comments of process instance with id = <" + processInstanceId + ">", e);
+        }
+    }
 }
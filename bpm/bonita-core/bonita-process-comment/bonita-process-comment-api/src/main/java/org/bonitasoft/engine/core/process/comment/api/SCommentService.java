@@ -231,7 +231,7 @@ public interface SCommentService {
     void deleteArchivedComments(long processInstanceId) throws SBonitaException;
 
     /**
-     * Delete comments for a specified process instance
+     * Delete comments for a specified process instance, with a single statement when no handler listens to their deletion
      *
      * @param processInstanceId
      * @throws SBonitaException
@@ -247,4 +247,14 @@ public interface SCommentService {
      */
     void archive(long archiveDate, SComment sComment) throws SObjectModificationException;
 
+    /**
+     * Archive all the comments of a process instance with one statement that does not read them, if comments are archivable
+     *
+     * @param processInstanceId
+     * @param archiveDate
+     * @throws SObjectModificationException
+     * @since 7.5.3
+     */
+    void archiveComments(long processInstanceId, long archiveDate) throws SObjectModificationException;
+
 }
@@ -13,6 +13,9 @@
  **/
 package org.bonitasoft.engine.core.process.definition.model;
 
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * @author Feng Hui
  * @author Matthieu Chaffotte
@@ -21,4 +24,19 @@ public interface SGatewayDefinition extends SFlowNodeDefinition {
 
     SGatewayType getGatewayType();
 
+    /**
+     * @return the transitions from which a token can reach one of the incoming transitions of this gateway without going through the gateway itself,
+     *         indexed once when the definition is built
+     * @since 7.5.3
+     */
+    List<STransitionDefinition> getUpstreamTransitions();
+
+    /**
+     * @param incomingTransitionIndex
+     *        index of the incoming transition, starting at 1 like the hit bys of the gateway instances
+     * @return the indexes in {@link #getUpstreamTransitions()} of the transitions from which a token can reach this incoming transition
+     * @since 7.5.3
+     */
+    BitSet getBackwardReachableTransitions(int incomingTransitionIndex);
+
 }
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.definition;
+
+import java.util.Map;
+
+import org.bonitasoft.engine.service.BroadcastService;
+import org.bonitasoft.engine.service.TaskResult;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.TransactionState;
+
+/**
+ * Invalidates the cached process definition once the transaction that modified it is completed, on this node and on the other nodes of the cluster.
+ * Readers that loaded the definition concurrently with the modification cannot keep the previous version in cache.
+ */
+public class InvalidateProcessDefinitionSynchronization implements BonitaTransactionSynchronization {
+
+    private final ProcessDefinitionServiceImpl processDefinitionService;
+    private final BroadcastService broadcastService;
+    private final long processDefinitionId;
+    private final Long tenantId;
+
+    public InvalidateProcessDefinitionSynchronization(final ProcessDefinitionServiceImpl processDefinitionService, final BroadcastService broadcastService,
+            final long processDefinitionId, final Long tenantId) {
+        this.processDefinitionService = processDefinitionService;
+        this.broadcastService = broadcastService;
+        this.processDefinitionId = processDefinitionId;
+        this.tenantId = tenantId;
+    }
+
+    @Override
+    public void beforeCommit() {
+
+    }
+
+    @Override
+    public void afterCompletion(final TransactionState txState) {
+        processDefinitionService.processModificationCompleted(processDefinitionId);
+        final Map<String, TaskResult<Void>> execute = broadcastService.executeOnOthers(new InvalidateProcessDefinitionTask(processDefinitionId), tenantId);
+        for (final Map.Entry<String, TaskResult<Void>> resultEntry : execute.entrySet()) {
+            if (resultEntry.getValue().isError()) {
+                throw new IllegalStateException(resultEntry.getValue().getThrowable());
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.definition;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+import org.bonitasoft.engine.service.InjectedService;
+
+/**
+ * Invalidates the cached {@link org.bonitasoft.engine.core.process.definition.model.SProcessDefinition} of a process on the node it is executed on.
+ */
+public class InvalidateProcessDefinitionTask implements Callable<Void>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long processDefinitionId;
+
+    private transient ProcessDefinitionServiceImpl processDefinitionService;
+
+    public InvalidateProcessDefinitionTask(final long processDefinitionId) {
+        this.processDefinitionId = processDefinitionId;
+    }
+
+    @InjectedService
+    public void setProcessDefinitionService(final ProcessDefinitionServiceImpl processDefinitionService) {
+        this.processDefinitionService = processDefinitionService;
+    }
+
+    @Override
+    public Void call() throws Exception {
+        processDefinitionService.invalidateCachedProcessDefinition(processDefinitionId);
+        return null;
+    }
+
+}
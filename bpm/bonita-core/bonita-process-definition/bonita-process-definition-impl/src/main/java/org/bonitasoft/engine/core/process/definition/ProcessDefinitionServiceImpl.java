@@ -19,6 +19,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.bonitasoft.engine.bpm.bar.ProcessDefinitionBARContribution;
 import org.bonitasoft.engine.bpm.process.ActivationState;
@@ -84,9 +87,13 @@ import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.service.BroadcastService;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.bonitasoft.engine.sessionaccessor.STenantIdNotSetException;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 
 /**
  * @author Baptiste Mesta
@@ -106,11 +113,21 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
     private final ReadSessionAccessor sessionAccessor;
     private final QueriableLoggerService queriableLoggerService;
     private final CacheService cacheService;
+    private final BroadcastService broadcastService;
+    private final UserTransactionService userTransactionService;
     protected ProcessDefinitionBARContribution processDefinitionBARContribution;
+    // cached definitions are valid only when stamped with the current version of their process, bumped each time the process is modified or deleted
+    private final ConcurrentMap<Long, Long> processDefinitionVersions = new ConcurrentHashMap<>();
+    // processes modified by a transaction that is not completed yet: their definition is neither read from nor put in cache
+    private final ConcurrentMap<Long, Integer> pendingModifications = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder staleReloads = new LongAdder();
 
     public ProcessDefinitionServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
             final EventService eventService, final SessionService sessionService, final ReadSessionAccessor sessionAccessor,
-            final QueriableLoggerService queriableLoggerService, final DependencyService dependencyService, CacheService cacheService) {
+            final QueriableLoggerService queriableLoggerService, final DependencyService dependencyService, CacheService cacheService,
+            final BroadcastService broadcastService, final UserTransactionService userTransactionService) {
         this.recorder = recorder;
         this.persistenceService = persistenceService;
         this.eventService = eventService;
@@ -118,6 +135,8 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
         this.sessionAccessor = sessionAccessor;
         this.queriableLoggerService = queriableLoggerService;
         this.cacheService = cacheService;
+        this.broadcastService = broadcastService;
+        this.userTransactionService = userTransactionService;
         processDefinitionBARContribution = new ProcessDefinitionBARContribution();
     }
 
@@ -143,8 +162,9 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
             }
             final DeleteRecord deleteRecord = new DeleteRecord(processDefinitionDeployInfo);
             recorder.recordDelete(deleteRecord, deleteEvent);
+            invalidateCachedProcessDefinitionOnCompletion(processId);
             log(processId, SQueriableLog.STATUS_OK, logBuilder, "delete");
-        } catch (final SRecorderException e) {
+        } catch (final SRecorderException | SCacheException e) {
             log(processId, SQueriableLog.STATUS_FAIL, logBuilder, "delete");
             throw new SProcessDeletionException(e, processDefinitionDeployInfo);
         }
@@ -183,13 +203,6 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
         }
     }
 
-    void updateSProcessDefinitionTimestampInCache(long processId, SProcessDefinitionDeployInfo processDefinitionDeployInfo) throws SCacheException {
-        final Pair<Long, SProcessDefinition> fromCache = getSProcessDefinitionFromCache(processId);
-        if (fromCache != null) {
-            storeProcessDefinitionInCache(fromCache.getValue(), processDefinitionDeployInfo.getLastUpdateDate());
-        }
-    }
-
     @Override
     public void enableProcessDeploymentInfo(final long processId) throws SProcessDefinitionNotFoundException, SProcessEnablementException {
         SProcessDefinitionDeployInfo processDefinitionDeployInfo;
@@ -251,32 +264,84 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
     @Override
     public SProcessDefinition getProcessDefinition(final long processId) throws SProcessDefinitionNotFoundException, SBonitaReadException {
         try {
-            //get from database
-            final SProcessDefinitionDeployInfo processDeploymentInfo = getProcessDeploymentInfo(processId);
+            //the version must be read before the database so that a concurrent modification makes the stored definition outdated
+            final long version = getProcessDefinitionVersion(processId);
+            final boolean cacheable = !pendingModifications.containsKey(processId);
             //get from cache
-            final Pair<Long, SProcessDefinition> processWithTimestamp = getSProcessDefinitionFromCache(processId);
-            //read SProcessDefinition if needed
-            if (isSProcessDefinitionUpToDate(processDeploymentInfo, processWithTimestamp)) {
-                return readSProcessDefinitionFromDatabase(processId, processDeploymentInfo);
+            final Pair<Long, SProcessDefinition> processWithVersion = getSProcessDefinitionFromCache(processId);
+            if (processWithVersion == null) {
+                cacheMisses.increment();
+            } else if (cacheable && processWithVersion.getKey() == version) {
+                cacheHits.increment();
+                return processWithVersion.getValue();
             } else {
-                return processWithTimestamp.getValue();
+                staleReloads.increment();
+            }
+            //get from database
+            final SProcessDefinition sProcessDefinition = readSProcessDefinitionFromDatabase(processId, getProcessDeploymentInfo(processId));
+            if (cacheable) {
+                storeProcessDefinitionInCache(sProcessDefinition, version);
             }
+            return sProcessDefinition;
         } catch (IOException | SReflectException | SCacheException e) {
             throw new SBonitaReadException(e);
         }
     }
 
-    SProcessDefinition readSProcessDefinitionFromDatabase(long processId, SProcessDefinitionDeployInfo processDeploymentInfo) throws IOException, SReflectException, SCacheException {
+    SProcessDefinition readSProcessDefinitionFromDatabase(long processId, SProcessDefinitionDeployInfo processDeploymentInfo) throws IOException, SReflectException {
         final DesignProcessDefinition objectFromXML = processDefinitionBARContribution.convertXmlToProcess(processDeploymentInfo.getDesignContent()
                         .getContent());
         SProcessDefinition sProcessDefinition = convertDesignProcessDefinition(objectFromXML);
-                setIdOnProcessDefinition(sProcessDefinition, processId);
-        storeProcessDefinitionInCache(sProcessDefinition, processDeploymentInfo.getLastUpdateDate());
-            return sProcessDefinition;
+        setIdOnProcessDefinition(sProcessDefinition, processId);
+        return sProcessDefinition;
+    }
+
+    long getProcessDefinitionVersion(long processId) {
+        final Long version = processDefinitionVersions.get(processId);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Invalidate the cached definition of the process on this node
+     */
+    void invalidateCachedProcessDefinition(long processId) {
+        processDefinitionVersions.merge(processId, 1L, Long::sum);
+        try {
+            cacheService.remove(PROCESS_CACHE_NAME, processId);
+        } catch (final SCacheException e) {
+            // the stored definition is outdated anyway since the version changed
+        }
+    }
+
+    /**
+     * Called when the transaction that modified the process is completed: its definition can be cached again
+     */
+    void processModificationCompleted(long processId) {
+        invalidateCachedProcessDefinition(processId);
+        pendingModifications.computeIfPresent(processId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    void invalidateCachedProcessDefinitionOnCompletion(long processId) throws SCacheException {
+        try {
+            userTransactionService.registerBonitaSynchronization(new InvalidateProcessDefinitionSynchronization(this, broadcastService, processId,
+                    sessionAccessor.getTenantId()));
+        } catch (final STransactionNotFoundException | STenantIdNotSetException e) {
+            throw new SCacheException("Unable to invalidate the cached definition of process " + processId, e);
         }
+        pendingModifications.merge(processId, 1, Integer::sum);
+        cacheService.remove(PROCESS_CACHE_NAME, processId);
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
 
-    boolean isSProcessDefinitionUpToDate(SProcessDefinitionDeployInfo processDeploymentInfo, Pair<Long, SProcessDefinition> processWithTimestamp) {
-        return processWithTimestamp == null || processWithTimestamp.getKey() != processDeploymentInfo.getLastUpdateDate();
+    public long getCacheStaleReloadCount() {
+        return staleReloads.sum();
     }
 
     @SuppressWarnings("unchecked")
@@ -382,8 +447,8 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
         return sProcessDefinitionDeployInfo;
     }
 
-    void storeProcessDefinitionInCache(SProcessDefinition definition, Long lastUpdateDate) throws SCacheException {
-        cacheService.store(PROCESS_CACHE_NAME, definition.getId(), Pair.of(lastUpdateDate, definition));
+    void storeProcessDefinitionInCache(SProcessDefinition definition, long version) throws SCacheException {
+        cacheService.store(PROCESS_CACHE_NAME, definition.getId(), Pair.of(version, definition));
     }
 
     String getProcessContent(DesignProcessDefinition designProcessDefinition) throws IOException {
@@ -562,8 +627,9 @@ public class ProcessDefinitionServiceImpl implements ProcessDefinitionService {
     void update(long processId, SProcessDefinitionDeployInfo processDefinitionDeployInfo, UpdateRecord updateRecord, SUpdateEvent updateEvent)
             throws SRecorderException, SCacheException {
         recorder.recordUpdate(updateRecord, updateEvent);
-        if (!updateRecord.getFields().containsKey(SProcessDefinitionDeployInfoBuilderFactoryImpl.DESIGN_CONTENT)) {
-            updateSProcessDefinitionTimestampInCache(processId, processDefinitionDeployInfo);
+        //other fields of the deploy info are not part of the SProcessDefinition
+        if (updateRecord.getFields().containsKey(SProcessDefinitionDeployInfoBuilderFactoryImpl.DESIGN_CONTENT)) {
+            invalidateCachedProcessDefinitionOnCompletion(processId);
         }
     }
 
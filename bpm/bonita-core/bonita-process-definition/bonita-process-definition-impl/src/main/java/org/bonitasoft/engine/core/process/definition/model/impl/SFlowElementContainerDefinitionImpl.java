@@ -223,6 +223,15 @@ public class SFlowElementContainerDefinitionImpl extends SBaseElementImpl implem
         }
         sDocumentListDefinitions = Collections.unmodifiableList(mDocumentListDefinitions);
 
+        indexUpstreamTransitionsOfInclusiveGateways();
+    }
+
+    private void indexUpstreamTransitionsOfInclusiveGateways() {
+        for (final SGatewayDefinition gateway : gateways) {
+            if (gateway.getGatewayType() == SGatewayType.INCLUSIVE) {
+                ((SGatewayDefinitionImpl) gateway).indexUpstreamTransitions(this);
+            }
+        }
     }
 
     private void initializeActivities(final List<ActivityDefinition> activities2) {
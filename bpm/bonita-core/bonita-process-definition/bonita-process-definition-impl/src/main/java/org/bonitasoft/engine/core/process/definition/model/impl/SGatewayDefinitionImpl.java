@@ -13,10 +13,19 @@
  **/
 package org.bonitasoft.engine.core.process.definition.model.impl;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.bpm.flownode.GatewayDefinition;
 import org.bonitasoft.engine.bpm.flownode.GatewayType;
+import org.bonitasoft.engine.core.process.definition.model.SFlowElementContainerDefinition;
+import org.bonitasoft.engine.core.process.definition.model.SFlowNodeDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SFlowNodeType;
 import org.bonitasoft.engine.core.process.definition.model.SGatewayDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SGatewayType;
@@ -34,6 +43,10 @@ public class SGatewayDefinitionImpl extends SFlowNodeDefinitionImpl implements S
 
     private final SGatewayType gatewayType;
 
+    private List<STransitionDefinition> upstreamTransitions;
+
+    private BitSet[] backwardReachableTransitions;
+
     public SGatewayDefinitionImpl(final GatewayDefinition gatewayDefinition,
             final Map<String, STransitionDefinition> transitionsMap) {
         super(gatewayDefinition, transitionsMap);
@@ -51,6 +64,62 @@ public class SGatewayDefinitionImpl extends SFlowNodeDefinitionImpl implements S
         return gatewayType;
     }
 
+    @Override
+    public List<STransitionDefinition> getUpstreamTransitions() {
+        checkUpstreamTransitionsIndexed();
+        return upstreamTransitions;
+    }
+
+    @Override
+    public BitSet getBackwardReachableTransitions(final int incomingTransitionIndex) {
+        checkUpstreamTransitionsIndexed();
+        return backwardReachableTransitions[incomingTransitionIndex - 1];
+    }
+
+    private void checkUpstreamTransitionsIndexed() {
+        if (upstreamTransitions == null) {
+            throw new IllegalStateException("The upstream transitions of gateway " + getName() + " have not been indexed");
+        }
+    }
+
+    /**
+     * Walks backward from each incoming transition, stopping at the transitions that leave this gateway, and keeps the reached transitions as bits so
+     * that merging an inclusive gateway does not have to walk the graph again.
+     */
+    void indexUpstreamTransitions(final SFlowElementContainerDefinition container) {
+        final List<STransitionDefinition> incomingTransitions = getIncomingTransitions();
+        final List<STransitionDefinition> transitions = new ArrayList<>();
+        final Map<STransitionDefinition, Integer> transitionIndexes = new HashMap<>();
+        final BitSet[] reachableTransitions = new BitSet[incomingTransitions.size()];
+        for (int i = 0; i < incomingTransitions.size(); i++) {
+            final BitSet reachable = new BitSet();
+            final Deque<STransitionDefinition> toVisit = new ArrayDeque<>();
+            toVisit.push(incomingTransitions.get(i));
+            while (!toVisit.isEmpty()) {
+                final STransitionDefinition transition = toVisit.pop();
+                Integer index = transitionIndexes.get(transition);
+                if (index == null) {
+                    index = transitions.size();
+                    transitionIndexes.put(transition, index);
+                    transitions.add(transition);
+                }
+                if (reachable.get(index)) {
+                    continue;
+                }
+                reachable.set(index);
+                if (transition.getSource() != getId()) {
+                    final SFlowNodeDefinition source = container.getFlowNode(transition.getSource());
+                    if (source != null) {
+                        toVisit.addAll(source.getIncomingTransitions());
+                    }
+                }
+            }
+            reachableTransitions[i] = reachable;
+        }
+        upstreamTransitions = Collections.unmodifiableList(transitions);
+        backwardReachableTransitions = reachableTransitions;
+    }
+
     @Override
     public SFlowNodeType getType() {
         return SFlowNodeType.GATEWAY;
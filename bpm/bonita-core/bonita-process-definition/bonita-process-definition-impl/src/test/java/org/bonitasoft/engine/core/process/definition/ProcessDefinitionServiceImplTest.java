@@ -17,6 +17,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.*;
@@ -70,9 +71,13 @@ import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.SRecorderException;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
+import org.bonitasoft.engine.service.BroadcastService;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.TransactionState;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.hamcrest.BaseMatcher;
 import org.hamcrest.Description;
 import org.junit.Before;
@@ -113,6 +118,10 @@ public class ProcessDefinitionServiceImplTest {
     private SessionService sessionService;
     @Mock
     private ProcessDefinitionBARContribution processDefinitionBARContribution;
+    @Mock
+    private BroadcastService broadcastService;
+    @Mock
+    private UserTransactionService userTransactionService;
     @InjectMocks
     @Spy
     private ProcessDefinitionServiceImpl processDefinitionServiceImpl;
@@ -369,14 +378,15 @@ public class ProcessDefinitionServiceImplTest {
 
     @Test
     public void getProcessDefinition_from_cache() throws Exception {
-        sProcessDefinitionDeployInfo.setLastUpdateDate(5478L);
         final SProcessDefinitionImpl sProcessDefinition = new SProcessDefinitionImpl("a", "b");
-        doReturn(new Pair<Long, SProcessDefinition>(5478L, sProcessDefinition)).when(processDefinitionServiceImpl).getSProcessDefinitionFromCache(PROCESS_ID);
+        doReturn(new Pair<Long, SProcessDefinition>(0L, sProcessDefinition)).when(processDefinitionServiceImpl).getSProcessDefinitionFromCache(PROCESS_ID);
 
         final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
 
         assertThat(processDefinition).as("returned process definition from cache").isEqualTo(sProcessDefinition);
         verify(cacheService, times(0)).store(anyString(), any(Serializable.class), any());
+        verify(processDefinitionServiceImpl, never()).getProcessDeploymentInfo(PROCESS_ID);
+        assertThat(processDefinitionServiceImpl.getCacheHitCount()).isEqualTo(1);
     }
 
     @Test
@@ -389,19 +399,52 @@ public class ProcessDefinitionServiceImplTest {
 
         assertThat(processDefinition).as("returned process definition from database").isEqualTo(sProcessDefinition);
         verify(cacheService, times(1)).store(anyString(), any(Serializable.class), any());
+        assertThat(processDefinitionServiceImpl.getCacheMissCount()).isEqualTo(1);
     }
 
     @Test
     public void getProcessDefinition_from_database_when_cache_is_outdated() throws Exception {
-        sProcessDefinitionDeployInfo.setLastUpdateDate(5478L);
         final SProcessDefinitionImpl processDefinitionB = new SProcessDefinitionImpl("a", "b");
         final SProcessDefinitionImpl processDefinitionC = new SProcessDefinitionImpl("a", "c");
-        doReturn(new Pair<Long, SProcessDefinition>(5477L, processDefinitionB)).when(processDefinitionServiceImpl).getSProcessDefinitionFromCache(PROCESS_ID);
+        doReturn(new Pair<Long, SProcessDefinition>(0L, processDefinitionB)).when(processDefinitionServiceImpl).getSProcessDefinitionFromCache(PROCESS_ID);
         doReturn(processDefinitionC).when(processDefinitionServiceImpl).convertDesignProcessDefinition(designProcessDefinition);
+        processDefinitionServiceImpl.invalidateCachedProcessDefinition(PROCESS_ID);
+
         final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
 
         assertThat(processDefinition).as("returned process definition from cache").isEqualTo(processDefinitionC);
-        verify(cacheService, times(1)).store(anyString(), any(Serializable.class), any());
+        verify(cacheService).store(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID, new Pair<Long, SProcessDefinition>(1L, processDefinitionC));
+        assertThat(processDefinitionServiceImpl.getCacheStaleReloadCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getProcessDefinition_should_not_use_cache_while_the_process_is_modified() throws Exception {
+        final SProcessDefinitionImpl processDefinitionB = new SProcessDefinitionImpl("a", "b");
+        final SProcessDefinitionImpl processDefinitionC = new SProcessDefinitionImpl("a", "c");
+        doReturn(new Pair<Long, SProcessDefinition>(0L, processDefinitionB)).when(processDefinitionServiceImpl).getSProcessDefinitionFromCache(PROCESS_ID);
+        doReturn(processDefinitionC).when(processDefinitionServiceImpl).convertDesignProcessDefinition(designProcessDefinition);
+        processDefinitionServiceImpl.invalidateCachedProcessDefinitionOnCompletion(PROCESS_ID);
+
+        final SProcessDefinition processDefinition = processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
+
+        assertThat(processDefinition).isEqualTo(processDefinitionC);
+        verify(cacheService).remove(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID);
+        verify(cacheService, never()).store(anyString(), any(Serializable.class), any());
+    }
+
+    @Test
+    public void should_cache_process_definition_again_when_modification_is_completed() throws Exception {
+        final SProcessDefinitionImpl processDefinitionC = new SProcessDefinitionImpl("a", "c");
+        doReturn(processDefinitionC).when(processDefinitionServiceImpl).convertDesignProcessDefinition(designProcessDefinition);
+        processDefinitionServiceImpl.invalidateCachedProcessDefinitionOnCompletion(PROCESS_ID);
+        final ArgumentCaptor<BonitaTransactionSynchronization> synchronization = ArgumentCaptor.forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(synchronization.capture());
+
+        synchronization.getValue().afterCompletion(TransactionState.COMMITTED);
+        processDefinitionServiceImpl.getProcessDefinition(PROCESS_ID);
+
+        verify(broadcastService).executeOnOthers(any(InvalidateProcessDefinitionTask.class), anyLong());
+        verify(cacheService).store(ProcessDefinitionService.PROCESS_CACHE_NAME, PROCESS_ID, new Pair<Long, SProcessDefinition>(1L, processDefinitionC));
     }
 
     /**
@@ -472,29 +515,32 @@ public class ProcessDefinitionServiceImplTest {
     }
 
     @Test
-    public void updateLastUpdateDateInCache_should_update_the_lastUpdateDate_in_cache_if_exists() throws Exception {
+    public void update_should_not_invalidate_cached_process_definition_when_design_is_not_modified() throws Exception {
         // Given
         final SProcessDefinitionDeployInfo sProcessDefinitionDeployInfo = mock(SProcessDefinitionDeployInfo.class);
-        doReturn(3L).when(sProcessDefinitionDeployInfo).getId();
-        doReturn(5478L).when(sProcessDefinitionDeployInfo).getLastUpdateDate();
-        final SProcessDefinitionImpl sProcessDefinition = new SProcessDefinitionImpl("a", "b");
-        sProcessDefinition.setId(56L);
-        doReturn(new Pair<Long, SProcessDefinition>(541L, sProcessDefinition)).when(cacheService).get(anyString(), any());
+        final SProcessDefinitionDeployInfoUpdateBuilder updateBuilder = BuilderFactory.get(SProcessDefinitionDeployInfoUpdateBuilderFactory.class)
+                .createNewInstance();
+        updateBuilder.updateDisplayName("newDisplayName");
         // When
-        processDefinitionServiceImpl.updateSProcessDefinitionTimestampInCache(56L, sProcessDefinitionDeployInfo);
+        processDefinitionServiceImpl.update(56L, sProcessDefinitionDeployInfo, UpdateRecord.buildSetFields(sProcessDefinitionDeployInfo, updateBuilder.done()),
+                null);
         // Then
-        verify(cacheService).store(ProcessDefinitionService.PROCESS_CACHE_NAME, 56L, new Pair<Long, SProcessDefinition>(5478L, sProcessDefinition));
+        verify(processDefinitionServiceImpl, never()).invalidateCachedProcessDefinitionOnCompletion(anyLong());
+        verify(cacheService, never()).remove(anyString(), any());
     }
 
     @Test
-    public void updateLastUpdateDateInCache_should_update_the_lastUpdateDate_in_cache_if_not_exists() throws Exception {
+    public void update_should_invalidate_cached_process_definition_when_design_is_modified() throws Exception {
         // Given
         final SProcessDefinitionDeployInfo sProcessDefinitionDeployInfo = mock(SProcessDefinitionDeployInfo.class);
-        doReturn(3L).when(sProcessDefinitionDeployInfo).getId();
+        final EntityUpdateDescriptor updateDescriptor = BuilderFactory.get(SProcessDefinitionDeployInfoUpdateBuilderFactory.class)
+                .createNewInstance().updateDesignContent("<process/>").done();
         // When
-        processDefinitionServiceImpl.updateSProcessDefinitionTimestampInCache(3L, sProcessDefinitionDeployInfo);
+        processDefinitionServiceImpl.update(56L, sProcessDefinitionDeployInfo, UpdateRecord.buildSetFields(sProcessDefinitionDeployInfo, updateDescriptor),
+                null);
         // Then
-        verify(cacheService, times(0)).store(anyString(), any(Serializable.class), any());
+        verify(processDefinitionServiceImpl).invalidateCachedProcessDefinitionOnCompletion(56L);
+        verify(cacheService).remove(ProcessDefinitionService.PROCESS_CACHE_NAME, 56L);
     }
 
     @Test(expected = SProcessDefinitionNotFoundException.class)
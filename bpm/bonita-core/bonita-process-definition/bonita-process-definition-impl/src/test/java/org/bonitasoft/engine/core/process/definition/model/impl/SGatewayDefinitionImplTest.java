@@ -13,10 +13,20 @@
  **/
 package org.bonitasoft.engine.core.process.definition.model.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.bonitasoft.engine.core.process.definition.model.SFlowElementContainerDefinition;
+import org.bonitasoft.engine.core.process.definition.model.SFlowNodeDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SGatewayType;
+import org.bonitasoft.engine.core.process.definition.model.STransitionDefinition;
 import org.junit.Test;
 
 /**
@@ -26,6 +36,8 @@ import org.junit.Test;
  */
 public class SGatewayDefinitionImplTest {
 
+    private final SFlowElementContainerDefinition container = mock(SFlowElementContainerDefinition.class);
+
     @Test
     public void not_exclusive_if_parallel_gateway() {
         final SGatewayDefinitionImpl gateway = new SGatewayDefinitionImpl(6, "name", SGatewayType.PARALLEL);
@@ -68,4 +80,77 @@ public class SGatewayDefinitionImplTest {
         assertFalse(gateway.isParalleleOrInclusive());
     }
 
+    @Test
+    public void indexUpstreamTransitions_should_keep_transitions_reachable_from_each_incoming_transition() {
+        final SGatewayDefinitionImpl gate = gateway(666);
+        node(1);
+        node(2);
+        node(3);
+        node(4);
+        node(5);
+        node(6);
+        transition(1, 2);
+        transition(2, 3);
+        transition(5, 6);
+        transition(4, 6);
+        transition(6, 666);
+        transition(3, 666);
+
+        gate.indexUpstreamTransitions(container);
+
+        assertThat(gate.getUpstreamTransitions()).hasSize(6);
+        assertThat(backwardReachableTransitions(gate, 1)).containsOnly(transition(6, 666), transition(4, 6), transition(5, 6));
+        assertThat(backwardReachableTransitions(gate, 2)).containsOnly(transition(3, 666), transition(2, 3), transition(1, 2));
+    }
+
+    @Test
+    public void indexUpstreamTransitions_should_stop_at_transitions_leaving_the_gateway() {
+        final SGatewayDefinitionImpl gate = gateway(666);
+        node(1);
+        node(2);
+        transition(1, 666);
+        transition(666, 1);
+        transition(2, 666);
+
+        gate.indexUpstreamTransitions(container);
+
+        assertThat(backwardReachableTransitions(gate, 1)).containsOnly(transition(1, 666), transition(666, 1));
+        assertThat(backwardReachableTransitions(gate, 2)).containsOnly(transition(2, 666));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getBackwardReachableTransitions_should_fail_when_upstream_transitions_are_not_indexed() {
+        gateway(666).getBackwardReachableTransitions(1);
+    }
+
+    private List<STransitionDefinition> backwardReachableTransitions(final SGatewayDefinitionImpl gate, final int incomingTransitionIndex) {
+        final BitSet reachable = gate.getBackwardReachableTransitions(incomingTransitionIndex);
+        final List<STransitionDefinition> transitions = new ArrayList<>();
+        for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+            transitions.add(gate.getUpstreamTransitions().get(i));
+        }
+        return transitions;
+    }
+
+    private SGatewayDefinitionImpl gateway(final long id) {
+        final SGatewayDefinitionImpl gateway = new SGatewayDefinitionImpl(id, "gate", SGatewayType.INCLUSIVE);
+        doReturn(gateway).when(container).getFlowNode(id);
+        return gateway;
+    }
+
+    private void node(final long id) {
+        final SFlowNodeDefinition node = new SUserTaskDefinitionImpl(id, "step" + id, "actor");
+        doReturn(node).when(container).getFlowNode(id);
+    }
+
+    private STransitionDefinition transition(final long source, final long target) {
+        final STransitionDefinitionImpl transition = new STransitionDefinitionImpl("name", source, target);
+        final SFlowNodeDefinitionImpl targetNode = (SFlowNodeDefinitionImpl) container.getFlowNode(target);
+        if (!targetNode.getIncomingTransitions().contains(transition)) {
+            targetNode.addIncomingTransition(transition);
+            ((SFlowNodeDefinitionImpl) container.getFlowNode(source)).addOutgoingTransition(transition);
+        }
+        return transition;
+    }
+
 }
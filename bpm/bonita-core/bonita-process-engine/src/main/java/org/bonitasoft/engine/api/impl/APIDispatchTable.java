@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable table of the public methods of an API implementation class, indexed by name and parameter class names as sent by the client. It is built once
+ * per implementation class, so that a remote call resolves its method without loading the parameter classes or reading annotations.
+ */
+public final class APIDispatchTable {
+
+    private static final ConcurrentMap<Class<?>, APIDispatchTable> TABLES = new ConcurrentHashMap<>();
+
+    private final Class<?> apiImplClass;
+
+    private final Map<String, APIMethodDescriptor> methodsBySignature;
+
+    private final Map<Method, APIMethodDescriptor> methods;
+
+    private APIDispatchTable(final Class<?> apiImplClass) {
+        this.apiImplClass = apiImplClass;
+        final Map<String, Method> selected = new HashMap<>();
+        for (final Method method : apiImplClass.getMethods()) {
+            final String signature = getSignature(method);
+            final Method existing = selected.get(signature);
+            if (existing == null || isMoreSpecific(method, existing)) {
+                selected.put(signature, method);
+            }
+        }
+        final Map<String, APIMethodDescriptor> bySignature = new HashMap<>(selected.size() * 2);
+        final Map<Method, APIMethodDescriptor> byMethod = new HashMap<>(selected.size() * 2);
+        for (final Map.Entry<String, Method> entry : selected.entrySet()) {
+            final APIMethodDescriptor descriptor = new APIMethodDescriptor(entry.getValue(), apiImplClass);
+            bySignature.put(entry.getKey(), descriptor);
+            byMethod.put(entry.getValue(), descriptor);
+        }
+        methodsBySignature = Collections.unmodifiableMap(bySignature);
+        methods = Collections.unmodifiableMap(byMethod);
+    }
+
+    /**
+     * @param apiImplClass
+     *        the class of the API implementation
+     * @return the dispatch table of this class, built on first access
+     */
+    public static APIDispatchTable of(final Class<?> apiImplClass) {
+        final APIDispatchTable table = TABLES.get(apiImplClass);
+        if (table != null) {
+            return table;
+        }
+        return TABLES.computeIfAbsent(apiImplClass, APIDispatchTable::new);
+    }
+
+    /**
+     * @param methodName
+     *        the name of the method
+     * @param classNameParameters
+     *        the names of the parameter classes, as given by {@link Class#getName()}
+     * @return the descriptor of the matching public method, or null if there is none
+     */
+    public APIMethodDescriptor getMethod(final String methodName, final List<String> classNameParameters) {
+        return methodsBySignature.get(getSignature(methodName, classNameParameters));
+    }
+
+    /**
+     * @param method
+     *        a method of the API implementation
+     * @return the descriptor of this method, built on the fly if it is not one of the public methods of the implementation class
+     */
+    public APIMethodDescriptor getMethod(final Method method) {
+        final APIMethodDescriptor descriptor = methods.get(method);
+        if (descriptor != null) {
+            return descriptor;
+        }
+        return new APIMethodDescriptor(method, apiImplClass);
+    }
+
+    int size() {
+        return methodsBySignature.size();
+    }
+
+    /**
+     * Same choice as {@link Class#getMethod(String, Class[])} when several public methods share a signature: the one with the most specific return type.
+     */
+    private static boolean isMoreSpecific(final Method method, final Method existing) {
+        if (existing.isBridge() != method.isBridge()) {
+            return existing.isBridge();
+        }
+        return existing.getReturnType() != method.getReturnType() && existing.getReturnType().isAssignableFrom(method.getReturnType());
+    }
+
+    private static String getSignature(final Method method) {
+        final StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(parameterTypes[i].getName());
+        }
+        return builder.append(')').toString();
+    }
+
+    private static String getSignature(final String methodName, final List<String> classNameParameters) {
+        final StringBuilder builder = new StringBuilder(methodName).append('(');
+        if (classNameParameters != null) {
+            for (int i = 0; i < classNameParameters.size(); i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+                builder.append(classNameParameters.get(i));
+            }
+        }
+        return builder.append(')').toString();
+    }
+
+}
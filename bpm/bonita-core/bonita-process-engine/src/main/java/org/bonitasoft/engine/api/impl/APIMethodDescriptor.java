@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl;
+
+import java.lang.reflect.Method;
+
+import org.bonitasoft.engine.api.NoSessionRequired;
+import org.bonitasoft.engine.api.impl.transaction.CustomTransactions;
+
+/**
+ * Method of an API implementation together with the policies the {@link ServerAPIImpl} applies when calling it. The annotations are read once, when the
+ * descriptor is built, instead of on every call.
+ */
+public final class APIMethodDescriptor {
+
+    private final Method method;
+
+    private final boolean outsideTransaction;
+
+    private final boolean availableOnStoppedNode;
+
+    private final boolean deprecated;
+
+    private final AvailableWhenTenantIsPaused availableWhenTenantIsPaused;
+
+    APIMethodDescriptor(final Method method, final Class<?> apiImplClass) {
+        this.method = method;
+        // No session required means that there is no transaction
+        outsideTransaction = method.isAnnotationPresent(CustomTransactions.class) || method.isAnnotationPresent(NoSessionRequired.class);
+        availableOnStoppedNode = method.isAnnotationPresent(AvailableOnStoppedNode.class);
+        deprecated = method.isAnnotationPresent(Deprecated.class);
+        final AvailableWhenTenantIsPaused methodAnnotation = method.getAnnotation(AvailableWhenTenantIsPaused.class);
+        if (methodAnnotation != null) {
+            availableWhenTenantIsPaused = methodAnnotation;
+        } else {
+            availableWhenTenantIsPaused = apiImplClass.getAnnotation(AvailableWhenTenantIsPaused.class);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * @return true if the method manages its transactions itself or does not need a session
+     */
+    public boolean isOutsideTransaction() {
+        return outsideTransaction;
+    }
+
+    public boolean isAvailableOnStoppedNode() {
+        return availableOnStoppedNode;
+    }
+
+    public boolean isDeprecated() {
+        return deprecated;
+    }
+
+    /**
+     * @return the annotation of the method, or of the implementation class if the method has none, or null
+     */
+    public AvailableWhenTenantIsPaused getAvailableWhenTenantIsPaused() {
+        return availableWhenTenantIsPaused;
+    }
+
+}
@@ -33,6 +33,7 @@ import org.bonitasoft.engine.api.impl.transaction.GetTenantsCallable;
 import org.bonitasoft.engine.api.impl.transaction.SetServiceState;
 import org.bonitasoft.engine.api.impl.transaction.StartServiceStrategy;
 import org.bonitasoft.engine.api.impl.transaction.StopServiceStrategy;
+import org.bonitasoft.engine.api.impl.transaction.TenantStateSynchronization;
 import org.bonitasoft.engine.api.impl.transaction.platform.ActivateTenant;
 import org.bonitasoft.engine.api.impl.transaction.platform.CheckPlatformVersion;
 import org.bonitasoft.engine.api.impl.transaction.platform.DeleteTenant;
@@ -93,6 +94,7 @@ import org.bonitasoft.engine.session.SessionService;
 import org.bonitasoft.engine.session.model.SSession;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.STransactionException;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.TransactionService;
 
 /**
@@ -515,6 +517,7 @@ public class PlatformAPIImpl implements PlatformAPI {
                 final List<STenant> tenants = platformService.getTenants(new QueryOptions(0, Integer.MAX_VALUE));
                 for (final STenant sTenant : tenants) {
                     platformService.deactiveTenant(sTenant.getId());
+                    forgetTenantStateAfterCommit(platformAccessor, sTenant.getId());
                 }
                 return tenants;
             });
@@ -665,7 +668,10 @@ public class PlatformAPIImpl implements PlatformAPI {
 
             // delete tenant in database
             final TransactionContent transactionContentForTenant = new DeleteTenant(tenantId, platformService);
-            transactionExecutor.execute(transactionContentForTenant);
+            transactionExecutor.execute(() -> {
+                transactionContentForTenant.execute();
+                forgetTenantStateAfterCommit(platformAccessor, tenantId);
+            });
 
             // stop tenant services and clear the spring context
             final TenantServiceAccessor tenantServiceAccessor = platformAccessor.getTenantServiceAccessor(tenantId);
@@ -720,6 +726,7 @@ public class PlatformAPIImpl implements PlatformAPI {
                     tenantServiceAccessor.getWorkService(), tenantServiceAccessor.getConnectorExecutor(), platformConfiguration,
                     tenantServiceAccessor.getTenantConfiguration());
             activateTenant.execute();
+            forgetTenantStateAfterCommit(platformAccessor, tenantId);
             sessionService.deleteSession(sessionId);
         } catch (final STenantActivationException e) {
             throw e;
@@ -730,6 +737,15 @@ public class PlatformAPIImpl implements PlatformAPI {
         }
     }
 
+    /**
+     * Forget the state of the tenant in the {@link TenantStateRegistry} of all nodes once the current transaction completes, so that it is read again in
+     * database
+     */
+    private void forgetTenantStateAfterCommit(final PlatformServiceAccessor platformAccessor, final long tenantId) throws STransactionNotFoundException {
+        platformAccessor.getTransactionService().registerBonitaSynchronization(new TenantStateSynchronization(platformAccessor.getTenantStateRegistry(),
+                platformAccessor.getBroadcastService(), platformAccessor.getTechnicalLoggerService(), tenantId, null));
+    }
+
     protected Long createSession(final long tenantId, final SessionService sessionService) throws SBonitaException {
         return sessionService.createSession(tenantId, SessionService.SYSTEM).getId();
     }
@@ -321,9 +321,11 @@ import org.bonitasoft.engine.execution.job.JobNameBuilder;
 import org.bonitasoft.engine.execution.state.FlowNodeStateManager;
 import org.bonitasoft.engine.execution.work.WorkFactory;
 import org.bonitasoft.engine.expression.ContainerState;
+import org.bonitasoft.engine.expression.DefinitionExpressionCollector;
 import org.bonitasoft.engine.expression.Expression;
 import org.bonitasoft.engine.expression.ExpressionBuilder;
 import org.bonitasoft.engine.expression.ExpressionEvaluationException;
+import org.bonitasoft.engine.expression.ExpressionService;
 import org.bonitasoft.engine.expression.ExpressionType;
 import org.bonitasoft.engine.expression.InvalidExpressionException;
 import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingException;
@@ -762,6 +764,30 @@ public class ProcessAPIImpl implements ProcessAPI {
         } catch (final Exception e) {
             throw new ProcessEnablementException(e);
         }
+        precompileExpressions(tenantAccessor, processDefinitionId);
+    }
+
+    private void precompileExpressions(final TenantServiceAccessor tenantAccessor, final long processDefinitionId) {
+        final ExpressionService expressionService = tenantAccessor.getExpressionService();
+        if (!expressionService.isPrecompilationEnabled()) {
+            return;
+        }
+        final TechnicalLoggerService logger = tenantAccessor.getTechnicalLoggerService();
+        try {
+            final DesignProcessDefinition designProcessDefinition = tenantAccessor.getProcessDefinitionService().getDesignProcessDefinition(
+                    processDefinitionId);
+            final List<SExpression> expressions = new ArrayList<>();
+            for (final Expression expression : new DefinitionExpressionCollector().collect(designProcessDefinition)) {
+                expressions.add(ModelConvertor.constructSExpression(expression));
+            }
+            expressionService.precompile(processDefinitionId, expressions);
+        } catch (final SBonitaException e) {
+            // precompilation is only an optimization: expressions are still compiled on first evaluation
+            if (logger.isLoggable(this.getClass(), TechnicalLogSeverity.WARNING)) {
+                logger.log(this.getClass(), TechnicalLogSeverity.WARNING, "Unable to precompile the expressions of process definition "
+                        + processDefinitionId + ": " + e.getMessage());
+            }
+        }
     }
 
     SSession getSession() {
@@ -22,10 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
-import org.bonitasoft.engine.api.NoSessionRequired;
 import org.bonitasoft.engine.api.PlatformAPI;
 import org.bonitasoft.engine.api.TenantAdministrationAPI;
-import org.bonitasoft.engine.api.impl.transaction.CustomTransactions;
 import org.bonitasoft.engine.api.internal.ServerAPI;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
@@ -261,18 +259,26 @@ public class ServerAPIImpl implements ServerAPI {
 
     Object invokeAPI(final String apiInterfaceName, final String methodName, final List<String> classNameParameters, final Object[] parametersValues,
             final Session session) throws Throwable {
-        final Class<?>[] parameterTypes = getParameterTypes(classNameParameters);
-
         final Object apiImpl = accessResolver.getAPIImplementation(apiInterfaceName);
-        final Method method = ClassReflector.getMethod(apiImpl.getClass(), methodName, parameterTypes);
-        // No session required means that there is no transaction
-        if (method.isAnnotationPresent(CustomTransactions.class) || method.isAnnotationPresent(NoSessionRequired.class)) {
+        final APIMethodDescriptor apiMethod = getAPIMethod(apiImpl, methodName, classNameParameters);
+        final Method method = apiMethod.getMethod();
+        if (apiMethod.isOutsideTransaction()) {
             return invokeAPIOutsideTransaction(parametersValues, apiImpl, method, apiInterfaceName, session);
         } else {
             return invokeAPIInTransaction(parametersValues, apiImpl, method, session, apiInterfaceName);
         }
     }
 
+    private APIMethodDescriptor getAPIMethod(final Object apiImpl, final String methodName, final List<String> classNameParameters) throws Throwable {
+        final APIDispatchTable dispatchTable = APIDispatchTable.of(apiImpl.getClass());
+        final APIMethodDescriptor apiMethod = dispatchTable.getMethod(methodName, classNameParameters);
+        if (apiMethod != null) {
+            return apiMethod;
+        }
+        // not a public method of the implementation: let the reflection report the error
+        return dispatchTable.getMethod(ClassReflector.getMethod(apiImpl.getClass(), methodName, getParameterTypes(classNameParameters)));
+    }
+
     protected Object invokeAPIOutsideTransaction(Object[] parametersValues, Object apiImpl, Method method, String apiInterfaceName, Session session)
             throws Throwable {
         checkMethodAccessibility(apiImpl, apiInterfaceName, method, session, /* Not in transaction */false);
@@ -281,8 +287,9 @@ public class ServerAPIImpl implements ServerAPI {
 
     protected void checkMethodAccessibility(final Object apiImpl, final String apiInterfaceName, final Method method, final Session session,
             boolean isAlreadyInTransaction) {
-        warnIfDeprecated(method, apiInterfaceName);
-        if (!isNodeInAValidStateFor(method)) {
+        final APIMethodDescriptor apiMethod = APIDispatchTable.of(apiImpl.getClass()).getMethod(method);
+        warnIfDeprecated(apiMethod, apiInterfaceName);
+        if (!isNodeInAValidStateFor(apiMethod)) {
             logNodeNotStartedMessage(apiInterfaceName, method);
             throw new NodeNotStartedException();
         }
@@ -298,14 +305,7 @@ public class ServerAPIImpl implements ServerAPI {
     protected void checkTenantIsInAValidModeFor(final Object apiImpl, final Method method, final String apiInterfaceName, final long tenantId,
             final Session session, boolean isAlreadyInTransaction) {
         final boolean tenantRunning = isTenantAvailable(tenantId, session, isAlreadyInTransaction);
-        final AvailableWhenTenantIsPaused methodAnnotation = method.getAnnotation(AvailableWhenTenantIsPaused.class);
-        AvailableWhenTenantIsPaused annotation;
-        if (methodAnnotation != null) {
-            annotation = methodAnnotation;
-        } else {
-            final Class<?> apiClass = apiImpl.getClass();
-            annotation = apiClass.getAnnotation(AvailableWhenTenantIsPaused.class);
-        }
+        final AvailableWhenTenantIsPaused annotation = APIDispatchTable.of(apiImpl.getClass()).getMethod(method).getAvailableWhenTenantIsPaused();
         checkIsValidModeFor(tenantRunning, annotation, tenantId, apiImpl, method, apiInterfaceName);
     }
 
@@ -357,6 +357,11 @@ public class ServerAPIImpl implements ServerAPI {
     protected boolean isTenantAvailable(final long tenantId, final Session session, boolean isAlreadyInTransaction) {
         final Object apiImpl;
         try {
+            final TenantStateRegistry tenantStateRegistry = getTenantStateRegistry();
+            final Boolean knownPausedState = tenantStateRegistry.isPaused(tenantId);
+            if (knownPausedState != null) {
+                return !knownPausedState;
+            }
             apiImpl = accessResolver.getAPIImplementation(TenantAdministrationAPI.class.getName());
             final Method method = ClassReflector.getMethod(apiImpl.getClass(), IS_PAUSED);
             final Boolean paused;
@@ -379,12 +384,18 @@ public class ServerAPIImpl implements ServerAPI {
 
                 paused = (Boolean) userTransactionService.executeInTransaction(callable);
             }
+            tenantStateRegistry.initialize(tenantId, paused);
             return !paused;
         } catch (final Throwable e) {
             throw new BonitaRuntimeException("Cannot determine if the tenant with ID " + tenantId + " is accessible", e);
         }
     }
 
+    protected TenantStateRegistry getTenantStateRegistry() throws BonitaHomeNotSetException, InstantiationException, IllegalAccessException,
+            ClassNotFoundException, IOException, BonitaHomeConfigurationException {
+        return getServiceAccessorFactoryInstance().createPlatformServiceAccessor().getTenantStateRegistry();
+    }
+
     protected void logNodeNotStartedMessage(final String apiInterfaceName, final Method method) {
         logTechnicalErrorMessage("Node not started. Method '" + apiInterfaceName + "." + method.getName()
                 + "' cannot be called until node has been started (PlatformAPI.startNode()). Exact class: " + method.getDeclaringClass().getName());
@@ -398,8 +409,8 @@ public class ServerAPIImpl implements ServerAPI {
         }
     }
 
-    protected boolean isNodeInAValidStateFor(final Method method) {
-        return method.isAnnotationPresent(AvailableOnStoppedNode.class) || isNodeStarted();
+    protected boolean isNodeInAValidStateFor(final APIMethodDescriptor apiMethod) {
+        return apiMethod.isAvailableOnStoppedNode() || isNodeStarted();
     }
 
     /**
@@ -408,7 +419,7 @@ public class ServerAPIImpl implements ServerAPI {
     private boolean isNodeStarted() {
         try {
             final Object apiImpl = accessResolver.getAPIImplementation(PlatformAPI.class.getName());
-            final Method method = ClassReflector.getMethod(apiImpl.getClass(), IS_NODE_STARTED_METHOD_NAME);
+            final Method method = APIDispatchTable.of(apiImpl.getClass()).getMethod(IS_NODE_STARTED_METHOD_NAME, null).getMethod();
             return (Boolean) invokeAPI(method, apiImpl);
         } catch (final Throwable e) {
             return false;
@@ -421,6 +432,10 @@ public class ServerAPIImpl implements ServerAPI {
             throw new BonitaRuntimeException("session is null");
         }
         final UserTransactionService userTransactionService = selectUserTransactionService(session, getSessionType(session));
+        if (session instanceof APISession) {
+            // slow down the callers while the works they would register can not be queued, before their transaction is opened
+            awaitWorkCapacity((APISession) session);
+        }
 
         final Callable<Object> callable = new Callable<Object>() {
 
@@ -438,6 +453,11 @@ public class ServerAPIImpl implements ServerAPI {
         return userTransactionService.executeInTransaction(callable);
     }
 
+    protected void awaitWorkCapacity(final APISession session) throws Exception {
+        final PlatformServiceAccessor platformServiceAccessor = getServiceAccessorFactoryInstance().createPlatformServiceAccessor();
+        platformServiceAccessor.getTenantServiceAccessor(session.getTenantId()).getWorkService().awaitCapacity();
+    }
+
     protected UserTransactionService selectUserTransactionService(final Session session, final SessionType sessionType) throws BonitaHomeNotSetException,
             InstantiationException, IllegalAccessException, ClassNotFoundException, IOException, BonitaHomeConfigurationException {
         UserTransactionService transactionService;
@@ -465,9 +485,9 @@ public class ServerAPIImpl implements ServerAPI {
         }
     }
 
-    private void warnIfDeprecated(Method method, String apiInterfaceName) {
-        if (technicalLogger != null && method.isAnnotationPresent(Deprecated.class)) {
-            technicalLogger.log(this.getClass(), TechnicalLogSeverity.WARNING, "The API method " + apiInterfaceName + "." + method.getName()
+    private void warnIfDeprecated(APIMethodDescriptor apiMethod, String apiInterfaceName) {
+        if (technicalLogger != null && apiMethod.isDeprecated()) {
+            technicalLogger.log(this.getClass(), TechnicalLogSeverity.WARNING, "The API method " + apiInterfaceName + "." + apiMethod.getMethod().getName()
                     + " is deprecated. It will be deleted in a future release. Please plan to update your code to use the replacement method instead. Check the Javadoc for more details.");
         }
     }
@@ -22,6 +22,7 @@ import org.bonitasoft.engine.api.impl.transaction.PauseServiceStrategy;
 import org.bonitasoft.engine.api.impl.transaction.ResumeServiceStrategy;
 import org.bonitasoft.engine.api.impl.transaction.ServiceStrategy;
 import org.bonitasoft.engine.api.impl.transaction.SetServiceState;
+import org.bonitasoft.engine.api.impl.transaction.TenantStateSynchronization;
 import org.bonitasoft.engine.api.impl.transaction.platform.GetTenantInstance;
 import org.bonitasoft.engine.builder.BuilderFactory;
 import org.bonitasoft.engine.business.data.BusinessDataModelRepository;
@@ -128,8 +129,13 @@ public class TenantAdministrationAPIImpl implements TenantAdministrationAPI {
                 resumeServicesForTenant(platformServiceAccessor, tenantId);
             }
             updateTenant(platformService, updateDescriptor, tenant);
+            platformServiceAccessor.getTransactionService().registerBonitaSynchronization(
+                    new TenantStateSynchronization(platformServiceAccessor.getTenantStateRegistry(), platformServiceAccessor.getBroadcastService(),
+                            platformServiceAccessor.getTechnicalLoggerService(), tenantId, shouldBePaused));
         } catch (final STenantNotFoundException e) {
             throw new UpdateException("Tenant does not exist", e);
+        } catch (final STransactionNotFoundException e) {
+            throw new UpdateException("Unable to publish the new state of the tenant", e);
         }
     }
 
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps in memory whether the tenants are paused, so that API calls do not need to read the tenant in database to know if they can be executed.
+ * <p>
+ * The state of a tenant is unknown until it is read once in database. Pausing or resuming a tenant updates it on all nodes once the transaction is
+ * committed, activating, deactivating or deleting a tenant makes all nodes read it again.
+ */
+public class TenantStateRegistry {
+
+    private final ConcurrentMap<Long, Boolean> pausedByTenant = new ConcurrentHashMap<>();
+
+    /**
+     * @return true if the tenant is paused, false if it is not, or null if its state is not known on this node
+     */
+    public Boolean isPaused(final long tenantId) {
+        return pausedByTenant.get(tenantId);
+    }
+
+    /**
+     * Remember the state of a tenant that was read in database, unless it was changed meanwhile by a pause or a resume
+     */
+    public void initialize(final long tenantId, final boolean paused) {
+        pausedByTenant.putIfAbsent(tenantId, paused);
+    }
+
+    public void setPaused(final long tenantId, final boolean paused) {
+        pausedByTenant.put(tenantId, paused);
+    }
+
+    /**
+     * Forget the state of a tenant: it will be read again in database on next API call
+     */
+    public void invalidate(final long tenantId) {
+        pausedByTenant.remove(tenantId);
+    }
+
+}
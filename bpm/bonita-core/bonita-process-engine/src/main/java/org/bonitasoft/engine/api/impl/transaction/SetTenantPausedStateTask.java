@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl.transaction;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+import org.bonitasoft.engine.api.impl.TenantStateRegistry;
+import org.bonitasoft.engine.service.InjectedService;
+
+/**
+ * Updates the {@link TenantStateRegistry} of the node it is executed on after a tenant was paused or resumed, or forgets the tenant after it was
+ * activated, deactivated or deleted.
+ */
+public class SetTenantPausedStateTask implements Callable<Void>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long tenantId;
+
+    private final Boolean paused;
+
+    private transient TenantStateRegistry tenantStateRegistry;
+
+    /**
+     * @param paused
+     *        the new paused state of the tenant, or null if the tenant must be forgotten
+     */
+    public SetTenantPausedStateTask(final long tenantId, final Boolean paused) {
+        this.tenantId = tenantId;
+        this.paused = paused;
+    }
+
+    @InjectedService
+    public void setTenantStateRegistry(final TenantStateRegistry tenantStateRegistry) {
+        this.tenantStateRegistry = tenantStateRegistry;
+    }
+
+    @Override
+    public Void call() throws Exception {
+        if (paused == null) {
+            tenantStateRegistry.invalidate(tenantId);
+        } else {
+            tenantStateRegistry.setPaused(tenantId, paused);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl.transaction;
+
+import java.util.Map;
+
+import org.bonitasoft.engine.api.impl.TenantStateRegistry;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.service.BroadcastService;
+import org.bonitasoft.engine.service.TaskResult;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.TransactionState;
+
+/**
+ * Publishes the new state of a tenant to the {@link TenantStateRegistry} of all nodes once the transaction is committed.
+ * <p>
+ * A tenant that is paused or resumed gets its new state. A tenant that is activated, deactivated or deleted is forgotten: its state is read again in
+ * database on next API call.
+ */
+public class TenantStateSynchronization implements BonitaTransactionSynchronization {
+
+    private final TenantStateRegistry tenantStateRegistry;
+
+    private final BroadcastService broadcastService;
+
+    private final TechnicalLoggerService logger;
+
+    private final long tenantId;
+
+    private final Boolean paused;
+
+    /**
+     * @param paused
+     *        the new paused state of the tenant, or null if the tenant must be forgotten
+     */
+    public TenantStateSynchronization(final TenantStateRegistry tenantStateRegistry, final BroadcastService broadcastService,
+            final TechnicalLoggerService logger, final long tenantId, final Boolean paused) {
+        this.tenantStateRegistry = tenantStateRegistry;
+        this.broadcastService = broadcastService;
+        this.logger = logger;
+        this.tenantId = tenantId;
+        this.paused = paused;
+    }
+
+    @Override
+    public void beforeCommit() {
+
+    }
+
+    @Override
+    public void afterCompletion(final TransactionState txState) {
+        if (txState != TransactionState.COMMITTED || paused == null) {
+            // the state is read again in database
+            tenantStateRegistry.invalidate(tenantId);
+        } else {
+            tenantStateRegistry.setPaused(tenantId, paused);
+        }
+        if (txState != TransactionState.COMMITTED) {
+            return;
+        }
+        // the transaction is already committed: a node that cannot be updated is only logged
+        final Map<String, TaskResult<Void>> results = broadcastService.executeOnOthers(new SetTenantPausedStateTask(tenantId, paused), tenantId);
+        for (final Map.Entry<String, TaskResult<Void>> result : results.entrySet()) {
+            if (result.getValue().isError() && logger.isLoggable(getClass(), TechnicalLogSeverity.ERROR)) {
+                logger.log(getClass(), TechnicalLogSeverity.ERROR,
+                        "Unable to update the state of tenant " + tenantId + " on node " + result.getKey() + ", it may serve API calls with a stale state",
+                        result.getValue().getThrowable());
+            }
+        }
+    }
+
+}
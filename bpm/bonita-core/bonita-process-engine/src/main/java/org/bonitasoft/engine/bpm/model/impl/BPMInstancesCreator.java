@@ -541,9 +541,7 @@ public class BPMInstancesCreator {
             final SConnectorInstance connectorInstance = createConnectorInstanceObject(container, containerType, sConnectorDefinition, executionOrder++);
             connectorInstances.add(connectorInstance);
         }
-        for (final SConnectorInstance connectorInstance : connectorInstances) {
-            connectorInstanceService.createConnectorInstance(connectorInstance);
-        }
+        connectorInstanceService.createConnectorInstances(connectorInstances);
     }
 
     SConnectorInstance createConnectorInstanceObject(PersistentObject container, String containerType, SConnectorDefinition sConnectorDefinition,
@@ -650,9 +648,7 @@ public class BPMInstancesCreator {
     private void createDataForProcess(final List<SDataInstance> sDataInstances)
             throws SDataInstanceException, SFlowNodeNotFoundException, SFlowNodeReadException {
         if (!sDataInstances.isEmpty()) {
-            for (final SDataInstance sDataInstance : sDataInstances) {
-                dataInstanceService.createDataInstance(sDataInstance);
-            }
+            dataInstanceService.createDataInstances(sDataInstances);
         }
     }
 
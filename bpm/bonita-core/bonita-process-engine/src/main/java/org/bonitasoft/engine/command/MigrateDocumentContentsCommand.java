@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.command;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.bonitasoft.engine.commons.exceptions.SBonitaException;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+
+/**
+ * Move a batch of document contents from the document table to the document content store, which must be enabled with
+ * bonita.tenant.document.store.folder. Optional parameter "maxResults" (Integer, default 100): the maximum number of documents to move.
+ * Returns the number of moved documents: the command is executed again until it returns 0.
+ */
+public class MigrateDocumentContentsCommand extends TenantCommand {
+
+    static final String MAX_RESULTS = "maxResults";
+
+    static final int DEFAULT_MAX_RESULTS = 100;
+
+    @Override
+    public Serializable execute(final Map<String, Serializable> parameters, final TenantServiceAccessor serviceAccessor)
+            throws SCommandParameterizationException, SCommandExecutionException {
+        final int maxResults = getMaxResults(parameters);
+        try {
+            return serviceAccessor.getDocumentService().migrateInlineContents(maxResults);
+        } catch (final SBonitaException e) {
+            throw new SCommandExecutionException(e);
+        }
+    }
+
+    private int getMaxResults(final Map<String, Serializable> parameters) throws SCommandParameterizationException {
+        final Serializable maxResults = parameters != null ? parameters.get(MAX_RESULTS) : null;
+        if (maxResults == null) {
+            return DEFAULT_MAX_RESULTS;
+        }
+        if (!(maxResults instanceof Integer) || (Integer) maxResults <= 0) {
+            throw new SCommandParameterizationException("Parameter " + MAX_RESULTS + " must be a strictly positive Integer");
+        }
+        return (Integer) maxResults;
+    }
+
+}
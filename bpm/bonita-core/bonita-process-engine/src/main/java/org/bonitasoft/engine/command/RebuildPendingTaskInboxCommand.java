@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.command;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SPendingTaskInboxException;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+
+/**
+ * Rebuild the pending task inbox from the pending mappings, e.g. after checking it is consistent with them.
+ * Returns the number of entries of the rebuilt inbox.
+ */
+public class RebuildPendingTaskInboxCommand extends TenantCommand {
+
+    @Override
+    public Serializable execute(final Map<String, Serializable> parameters, final TenantServiceAccessor serviceAccessor)
+            throws SCommandParameterizationException, SCommandExecutionException {
+        if (!serviceAccessor.getPendingTaskInboxService().isEnabled()) {
+            throw new SCommandExecutionException("The pending task inbox is not enabled");
+        }
+        try {
+            return serviceAccessor.getPendingTaskInboxService().rebuild();
+        } catch (final SPendingTaskInboxException e) {
+            throw new SCommandExecutionException(e);
+        }
+    }
+
+}
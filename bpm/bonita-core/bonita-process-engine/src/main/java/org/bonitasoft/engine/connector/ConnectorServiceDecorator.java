@@ -17,6 +17,7 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.bonitasoft.engine.resources.SBARResource;
 import org.bonitasoft.engine.core.connector.ConnectorResult;
@@ -114,6 +115,19 @@ public class ConnectorServiceDecorator implements ConnectorService {
         return connectorService.executeConnector(processDefinitionId, sConnectorInstance, connectorImplementationDescriptor, classLoader, inputParameters);
     }
 
+    @Override
+    public CompletableFuture<ConnectorResult> executeConnectorAsync(final long processDefinitionId, final SConnectorInstance sConnectorInstance,
+            final SConnectorImplementationDescriptor connectorImplementationDescriptor, final ClassLoader classLoader,
+            final Map<String, Object> inputParameters) throws SConnectorException {
+        return connectorService.executeConnectorAsync(processDefinitionId, sConnectorInstance, connectorImplementationDescriptor, classLoader,
+                inputParameters);
+    }
+
+    @Override
+    public boolean isAsynchronousExecutionEnabled() {
+        return connectorService.isAsynchronousExecutionEnabled();
+    }
+
     @Override
     public void disconnect(final ConnectorResult result) throws SConnectorException {
         connectorService.disconnect(result);
@@ -26,7 +26,7 @@ import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.connector.ConnectorInstanceService;
 import org.bonitasoft.engine.core.contract.data.ContractDataService;
 import org.bonitasoft.engine.core.document.api.DocumentService;
-import org.bonitasoft.engine.core.document.model.SMappedDocument;
+import org.bonitasoft.engine.core.document.model.SDocumentMapping;
 import org.bonitasoft.engine.core.process.comment.api.SCommentService;
 import org.bonitasoft.engine.core.process.comment.model.SComment;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
@@ -70,8 +70,6 @@ import org.bonitasoft.engine.data.instance.model.SDataInstance;
 import org.bonitasoft.engine.dependency.model.ScopeType;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
-import org.bonitasoft.engine.persistence.OrderByType;
-import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.recorder.SRecorderException;
 
 /**
@@ -114,15 +112,21 @@ public class ProcessArchiver {
             final long archiveDate = saProcessInstance.getEndDate();
 
             // The archive of data instance is not done because it is done on creation + when updating.
-            // Archive SComment
-            archiveComments(processDefinition, processInstance, commentService, archiveDate);
-
-            // archive document mappings
-            archiveDocumentMappings(processDefinition, processInstance, documentService, archiveDate);
-
-            archiveConnectorInstancesIfAny(processInstance, connectorInstanceService, processDefinition, archiveDate);
-
-            archiveRefBusinessDataInstances(refBusinessDataService, processInstance.getId());
+            // Each kind of element is archived only if the archiving strategy keeps it. Comments, document mappings and connector instances are
+            // copied to their archive table with one INSERT ... SELECT each, without being read, and are deleted with the process instance,
+            // in one statement per table when no handler listens to their deletion
+            if (archiveService.isArchivable(SComment.class)) {
+                archiveComments(processDefinition, processInstance, commentService, archiveDate);
+            }
+            if (archiveService.isArchivable(SDocumentMapping.class)) {
+                archiveDocumentMappings(processDefinition, processInstance, documentService, archiveDate);
+            }
+            if (archiveService.isArchivable(SConnectorInstance.class)) {
+                archiveConnectorInstancesIfAny(processInstance, connectorInstanceService, processDefinition, archiveDate);
+            }
+            if (archiveService.isArchivable(SRefBusinessDataInstance.class)) {
+                archiveRefBusinessDataInstances(refBusinessDataService, processInstance.getId());
+            }
 
             // Archive
             archiveProcessInstance(processDefinition, processInstance, saProcessInstance, archiveDate, archiveService, processInstanceService, logger);
@@ -148,11 +152,9 @@ public class ProcessArchiver {
             List<SRefBusinessDataInstance> refBusinessDataInstances;
             int i = 0;
             do {
-                refBusinessDataInstances = refBusinessDataService.getRefBusinessDataInstances(processInstanceId, i, i + BATCH_SIZE);
+                refBusinessDataInstances = refBusinessDataService.getRefBusinessDataInstances(processInstanceId, i, BATCH_SIZE);
                 i += BATCH_SIZE;
-                for (final SRefBusinessDataInstance sRefBusinessDataInstance : refBusinessDataInstances) {
-                    refBusinessDataService.archiveRefBusinessDataInstance(sRefBusinessDataInstance);
-                }
+                refBusinessDataService.archiveRefBusinessDataInstances(refBusinessDataInstances);
             } while (refBusinessDataInstances.size() == BATCH_SIZE);
         } catch (final SBonitaException e) {
             throw new SArchivingException("Unable to archive RefBusinessDataInstance", e);
@@ -162,15 +164,7 @@ public class ProcessArchiver {
     private void archiveConnectors(final ConnectorInstanceService connectorInstanceService, final long archiveDate, final long containerId,
             final String containerType) throws SArchivingException {
         try {
-            List<SConnectorInstance> connectorInstances;
-            int i = 0;
-            do {
-                connectorInstances = connectorInstanceService.getConnectorInstances(containerId, containerType, i, i + BATCH_SIZE, "id", OrderByType.ASC);
-                i += BATCH_SIZE;
-                for (final SConnectorInstance sConnectorInstance : connectorInstances) {
-                    connectorInstanceService.archiveConnectorInstance(sConnectorInstance, archiveDate);
-                }
-            } while (connectorInstances.size() == BATCH_SIZE);
+            connectorInstanceService.archiveConnectorInstances(containerId, containerType, archiveDate);
         } catch (final SBonitaException e) {
             throw new SArchivingException("Unable to archive the container instance with id " + containerId, e);
         }
@@ -204,15 +198,7 @@ public class ProcessArchiver {
     private void archiveDocumentMappings(final SProcessDefinition processDefinition, final SProcessInstance processInstance,
             final DocumentService documentService, final long archiveDate) throws SArchivingException {
         try {
-            List<SMappedDocument> mappedDocuments;
-            int startIndex = 0;
-            do {
-                mappedDocuments = documentService.getDocumentsOfProcessInstance(processInstance.getId(), startIndex, BATCH_SIZE, null, null);
-                for (final SMappedDocument mappedDocument : mappedDocuments) {
-                    documentService.archive(mappedDocument, archiveDate);
-                }
-                startIndex += BATCH_SIZE;
-            } while (mappedDocuments.size() == BATCH_SIZE);
+            documentService.archiveDocumentMappings(processInstance.getId(), archiveDate);
         } catch (final SBonitaException e) {
             setExceptionContext(processDefinition, processInstance, e);
             throw new SArchivingException("Unable to archive the process instance.", e);
@@ -222,16 +208,7 @@ public class ProcessArchiver {
     private void archiveComments(final SProcessDefinition processDefinition, final SProcessInstance processInstance,
             final SCommentService commentService, final long archiveDate) throws SArchivingException {
         try {
-            List<SComment> sComments;
-            int startIndex = 0;
-            do {
-                sComments = commentService
-                        .getComments(processInstance.getId(), new QueryOptions(startIndex, BATCH_SIZE, SComment.class, "id", OrderByType.ASC));
-                for (final SComment sComment : sComments) {
-                    commentService.archive(archiveDate, sComment);
-                }
-                startIndex += BATCH_SIZE;
-            } while (!sComments.isEmpty());
+            commentService.archiveComments(processInstance.getId(), archiveDate);
         } catch (final SBonitaException e) {
             setExceptionContext(processDefinition, processInstance, e);
             throw new SArchivingException("Unable to archive the process instance comments.", e);
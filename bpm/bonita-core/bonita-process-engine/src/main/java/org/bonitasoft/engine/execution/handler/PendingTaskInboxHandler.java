@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bonitasoft.engine.actor.mapping.ActorMappingService;
+import org.bonitasoft.engine.actor.mapping.model.SActorMember;
+import org.bonitasoft.engine.core.process.instance.api.ActivityInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SPendingTaskInboxException;
+import org.bonitasoft.engine.core.process.instance.model.SPendingActivityMapping;
+import org.bonitasoft.engine.events.model.SBatchHandler;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SEventDeliveryMode;
+import org.bonitasoft.engine.events.model.SHandlerExecutionException;
+import org.bonitasoft.engine.identity.IdentityService;
+import org.bonitasoft.engine.identity.model.SUserMembership;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+import org.bonitasoft.engine.service.impl.ServiceAccessorFactory;
+
+/**
+ * Keeps the pending task inbox up to date when pending mappings, actor members or user memberships are added or removed.
+ * The events of a transaction are handled together before it commits, so that a task or a user impacted several times is updated once.
+ * Added and removed actor members only add or remove the entries of their own users.
+ * It is only registered by the {@link PendingTaskInboxHandlerInjector} when the inbox is enabled.
+ */
+public class PendingTaskInboxHandler implements SProcessInstanceHandler<SEvent>, SBatchHandler<SEvent> {
+
+    private static final long serialVersionUID = -1871052457423373390L;
+
+    static final String[] EVENT_TYPES = { ActivityInstanceService.PENDINGACTIVITYMAPPING + SEvent.CREATED,
+            ActivityInstanceService.PENDINGACTIVITYMAPPING + SEvent.DELETED, ActorMappingService.ACTOR_MEMBER + SEvent.CREATED,
+            ActorMappingService.ACTOR_MEMBER + SEvent.DELETED, IdentityService.USERMEMBERSHIP + SEvent.CREATED,
+            IdentityService.USERMEMBERSHIP + SEvent.DELETED, IdentityService.USERMEMBERSHIP + SEvent.UPDATED };
+
+    private final long tenantId;
+
+    private final String identifier;
+
+    public PendingTaskInboxHandler(final long tenantId) {
+        this.tenantId = tenantId;
+        identifier = UUID.randomUUID().toString();
+    }
+
+    @Override
+    public void execute(final SEvent event) throws SHandlerExecutionException {
+        executeBatch(Collections.singletonList(event));
+    }
+
+    @Override
+    public void executeBatch(final List<SEvent> events) throws SHandlerExecutionException {
+        final Set<Long> humanTaskInstanceIds = new LinkedHashSet<Long>();
+        final List<SActorMember> addedActorMembers = new ArrayList<SActorMember>();
+        final List<SActorMember> removedActorMembers = new ArrayList<SActorMember>();
+        final Set<Long> userIds = new LinkedHashSet<Long>();
+        for (final SEvent event : events) {
+            final Object object = event.getObject();
+            if (object instanceof SPendingActivityMapping) {
+                humanTaskInstanceIds.add(((SPendingActivityMapping) object).getActivityId());
+            } else if (object instanceof SActorMember) {
+                if ((ActorMappingService.ACTOR_MEMBER + SEvent.DELETED).equals(event.getType())) {
+                    removedActorMembers.add((SActorMember) object);
+                } else {
+                    addedActorMembers.add((SActorMember) object);
+                }
+            } else if (object instanceof SUserMembership) {
+                userIds.add(((SUserMembership) object).getUserId());
+            }
+        }
+        final PendingTaskInboxService pendingTaskInboxService = getTenantServiceAccessor().getPendingTaskInboxService();
+        try {
+            // removals are applied last and check whether the users are still candidates, so that the inbox reflects the members that remain
+            for (final SActorMember actorMember : addedActorMembers) {
+                pendingTaskInboxService.addActorMember(actorMember.getActorId(), actorMember.getUserId(), actorMember.getGroupId(),
+                        actorMember.getRoleId());
+            }
+            for (final SActorMember actorMember : removedActorMembers) {
+                pendingTaskInboxService.removeActorMember(actorMember.getActorId(), actorMember.getUserId(), actorMember.getGroupId(),
+                        actorMember.getRoleId());
+            }
+            for (final Long humanTaskInstanceId : humanTaskInstanceIds) {
+                pendingTaskInboxService.updateTask(humanTaskInstanceId);
+            }
+            for (final Long userId : userIds) {
+                pendingTaskInboxService.updateUser(userId);
+            }
+        } catch (final SPendingTaskInboxException e) {
+            throw new SHandlerExecutionException(e);
+        }
+    }
+
+    TenantServiceAccessor getTenantServiceAccessor() throws SHandlerExecutionException {
+        try {
+            return ServiceAccessorFactory.getInstance().createTenantServiceAccessor(tenantId);
+        } catch (final Exception e) {
+            throw new SHandlerExecutionException(e.getMessage(), null);
+        }
+    }
+
+    @Override
+    public boolean isInterested(final SEvent event) {
+        final Object object = event.getObject();
+        return object instanceof SPendingActivityMapping || object instanceof SActorMember || object instanceof SUserMembership;
+    }
+
+    @Override
+    public SEventDeliveryMode getDeliveryMode() {
+        // the inbox must be consistent with the pending mappings as soon as the transaction that changed them is committed
+        return SEventDeliveryMode.IN_TRANSACTION;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return identifier;
+    }
+
+}
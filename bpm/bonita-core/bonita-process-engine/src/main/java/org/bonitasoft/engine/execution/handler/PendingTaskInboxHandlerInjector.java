@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.handler;
+
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.HandlerRegistrationException;
+
+/**
+ * Registers the {@link PendingTaskInboxHandler} on the events that change the candidates of human tasks, only when the pending task inbox is enabled:
+ * when it is not, these events are not even created for it.
+ */
+public class PendingTaskInboxHandlerInjector {
+
+    private final EventService eventService;
+
+    private final PendingTaskInboxHandler pendingTaskInboxHandler;
+
+    private final boolean enabled;
+
+    public PendingTaskInboxHandlerInjector(final EventService eventService, final PendingTaskInboxHandler pendingTaskInboxHandler, final boolean enabled) {
+        this.eventService = eventService;
+        this.pendingTaskInboxHandler = pendingTaskInboxHandler;
+        this.enabled = enabled;
+    }
+
+    public void injectPendingTaskInboxHandler() throws HandlerRegistrationException {
+        if (enabled) {
+            for (final String eventType : PendingTaskInboxHandler.EVENT_TYPES) {
+                eventService.addHandler(eventType, pendingTaskInboxHandler);
+            }
+        }
+    }
+
+}
@@ -16,12 +16,15 @@ package org.bonitasoft.engine.execution.work;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.bonitasoft.engine.bpm.connector.FailAction;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.connector.ConnectorInstanceService;
 import org.bonitasoft.engine.core.connector.ConnectorResult;
 import org.bonitasoft.engine.core.connector.ConnectorService;
+import org.bonitasoft.engine.core.connector.exception.SConnectorException;
 import org.bonitasoft.engine.core.connector.parser.SConnectorImplementationDescriptor;
 import org.bonitasoft.engine.core.expression.control.model.SExpressionContext;
 import org.bonitasoft.engine.core.operation.model.SOperation;
@@ -38,6 +41,8 @@ import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.tracking.TimeTracker;
 import org.bonitasoft.engine.tracking.TimeTrackerRecords;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.BonitaWork;
+import org.bonitasoft.engine.work.WorkPriorityClass;
 
 /**
  * @author Baptiste Mesta
@@ -57,6 +62,11 @@ public abstract class ExecuteConnectorWork extends TenantAwareBonitaWork {
     private final SExpressionContext inputParametersContext;
     private final long processInstanceId;
 
+    /**
+     * set when the connector was handed to the connector executor without waiting for it: the next execution of this work evaluates its outputs
+     */
+    private transient volatile AsynchronousExecution asynchronousExecution;
+
     public ExecuteConnectorWork(final long processDefinitionId, final long connectorInstanceId, final String connectorDefinitionName,
                                 final SExpressionContext inputParametersContext, long processInstanceId) {
         this(processDefinitionId, connectorInstanceId, connectorDefinitionName, inputParametersContext, null, processInstanceId);
@@ -127,16 +137,32 @@ public abstract class ExecuteConnectorWork extends TenantAwareBonitaWork {
         final TimeTracker timeTracker = tenantAccessor.getTimeTracker();
         final ClassLoader processClassloader = getClassLoader(context);
         final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        final CompletableFuture<Void> executionReturned = new CompletableFuture<>();
         try {
             Thread.currentThread().setContextClassLoader(processClassloader);
-            final EvaluateParameterAndGetConnectorInstance callable = new EvaluateParameterAndGetConnectorInstance(connectorService, processDefinitionService,
-                    connectorInstanceService);
-            userTransactionService.executeInTransaction(callable);
-            final SConnectorDefinition sConnectorDefinition = callable.getsConnectorDefinition();
-            final SConnectorInstance connectorInstance = callable.getConnectorInstance();
-            SConnectorImplementationDescriptor connectorImplementationDescriptor = callable.getConnectorImplementationDescriptor();
-            final ConnectorResult result = connectorService.executeConnector(processDefinitionId, connectorInstance, connectorImplementationDescriptor, processClassloader,
-                    callable.getInputParameters());
+            final SConnectorDefinition sConnectorDefinition;
+            final ConnectorResult result;
+            final AsynchronousExecution execution = asynchronousExecution;
+            if (execution != null) {
+                // the connector was executed asynchronously and this work was submitted again once it finished
+                asynchronousExecution = null;
+                sConnectorDefinition = execution.connectorDefinition;
+                result = execution.getResult();
+            } else {
+                final EvaluateParameterAndGetConnectorInstance callable = new EvaluateParameterAndGetConnectorInstance(connectorService,
+                        processDefinitionService, connectorInstanceService);
+                userTransactionService.executeInTransaction(callable);
+                sConnectorDefinition = callable.getsConnectorDefinition();
+                final SConnectorInstance connectorInstance = callable.getConnectorInstance();
+                SConnectorImplementationDescriptor connectorImplementationDescriptor = callable.getConnectorImplementationDescriptor();
+                if (connectorService.isAsynchronousExecutionEnabled()) {
+                    executeAsynchronously(tenantAccessor, connectorService, sConnectorDefinition, connectorInstance, connectorImplementationDescriptor,
+                            processClassloader, callable.getInputParameters(), executionReturned);
+                    return;
+                }
+                result = connectorService.executeConnector(processDefinitionId, connectorInstance, connectorImplementationDescriptor, processClassloader,
+                        callable.getInputParameters());
+            }
             // evaluate output and trigger the execution of the flow node
             BonitaLock lock = tenantAccessor.getLockService().lock(processInstanceId, SFlowElementsContainerType.PROCESS.name(), getTenantId());
             try {
@@ -159,7 +185,37 @@ public abstract class ExecuteConnectorWork extends TenantAwareBonitaWork {
                 timeTracker.track(TimeTrackerRecords.EXECUTE_CONNECTOR_WORK, desc.toString(), endTime - startTime);
             }
             Thread.currentThread().setContextClassLoader(contextClassLoader);
+            executionReturned.complete(null);
+        }
+    }
+
+    /**
+     * Hand the connector to the connector executor and release the current thread: the root work is submitted again when the connector finished, and
+     * the next execution of this work evaluates the outputs or fails with the connector exception.
+     * The root work is submitted again only once the current execution returned, otherwise a connector finishing quickly would make the same work
+     * run twice concurrently.
+     */
+    private void executeAsynchronously(final TenantServiceAccessor tenantAccessor, final ConnectorService connectorService,
+            final SConnectorDefinition sConnectorDefinition, final SConnectorInstance connectorInstance,
+            final SConnectorImplementationDescriptor connectorImplementationDescriptor, final ClassLoader processClassloader,
+            final Map<String, Object> inputParameters, final CompletableFuture<Void> executionReturned) throws SBonitaException {
+        final AsynchronousExecution execution = new AsynchronousExecution(sConnectorDefinition);
+        final CompletableFuture<Void> completion = connectorService
+                .executeConnectorAsync(processDefinitionId, connectorInstance, connectorImplementationDescriptor, processClassloader, inputParameters)
+                .handle((result, failure) -> {
+                    execution.complete(result, failure);
+                    return null;
+                });
+        asynchronousExecution = execution;
+        tenantAccessor.getWorkService().executeWorkWhenDone(getRootWork(), CompletableFuture.allOf(completion, executionReturned));
+    }
+
+    private BonitaWork getRootWork() {
+        BonitaWork root = this;
+        while (root.getParent() != null) {
+            root = root.getParent();
         }
+        return root;
     }
 
     @Override
@@ -179,6 +235,40 @@ public abstract class ExecuteConnectorWork extends TenantAwareBonitaWork {
         return sConnectorDefinition.getFailAction() == FailAction.IGNORE;
     }
 
+    @Override
+    public WorkPriorityClass getPriorityClass() {
+        return WorkPriorityClass.CONNECTOR;
+    }
+
+    private static final class AsynchronousExecution {
+
+        private final SConnectorDefinition connectorDefinition;
+
+        private volatile ConnectorResult result;
+
+        private volatile Throwable failure;
+
+        private AsynchronousExecution(final SConnectorDefinition connectorDefinition) {
+            this.connectorDefinition = connectorDefinition;
+        }
+
+        private void complete(final ConnectorResult result, final Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+        }
+
+        private ConnectorResult getResult() throws Exception {
+            if (failure == null) {
+                return result;
+            }
+            final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw new SConnectorException(cause);
+        }
+    }
+
     private final class EvaluateParameterAndGetConnectorInstance implements Callable<Void> {
 
         private final ConnectorService connectorService;
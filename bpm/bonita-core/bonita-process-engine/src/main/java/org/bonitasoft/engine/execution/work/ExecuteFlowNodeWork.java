@@ -21,6 +21,7 @@ import org.bonitasoft.engine.execution.WaitingEventsInterrupter;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.WorkPriorityClass;
 
 /**
  * Work that is responsible of executing a flow node.
@@ -50,6 +51,11 @@ public class ExecuteFlowNodeWork extends TenantAwareBonitaWork {
         isReadyHumanTask = readyHumanTask;
     }
 
+    @Override
+    public WorkPriorityClass getPriorityClass() {
+        return WorkPriorityClass.FLOW_NODE;
+    }
+
     @Override
     public String getDescription() {
         return getClass().getSimpleName() + ": flowNodeInstanceId: " + flowNodeInstanceId;
@@ -29,6 +29,7 @@ import org.bonitasoft.engine.data.instance.api.DataInstanceContainer;
 import org.bonitasoft.engine.data.instance.api.DataInstanceService;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
+import org.bonitasoft.engine.work.WorkPriorityClass;
 
 /**
  * @author Emmanuel Duchastenier
@@ -47,6 +48,11 @@ public class ExecuteMessageCoupleWork extends TenantAwareBonitaWork {
         this.waitingMessageId = waitingMessageId;
     }
 
+    @Override
+    public WorkPriorityClass getPriorityClass() {
+        return WorkPriorityClass.MESSAGE;
+    }
+
     @Override
     public String getDescription() {
         return getClass().getSimpleName() + ": messageInstanceId: " + messageInstanceId + ", waitingMessageId: " + waitingMessageId;
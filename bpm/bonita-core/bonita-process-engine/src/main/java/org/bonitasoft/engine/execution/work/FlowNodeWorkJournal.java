@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.work;
+
+import java.util.List;
+
+import org.bonitasoft.engine.core.process.instance.api.WorkJournalService;
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SWorkJournalException;
+import org.bonitasoft.engine.execution.work.failurewrapping.FlowNodeDefinitionAndInstanceContextWork;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.work.BonitaWork;
+import org.bonitasoft.engine.work.SWorkException;
+import org.bonitasoft.engine.work.SWorkRegisterException;
+import org.bonitasoft.engine.work.WorkJournal;
+
+/**
+ * {@link WorkJournal} keeping track of the works executed on flow nodes, i.e. the works that {@link RestartFlowNodesHandler} has to
+ * recreate after a crash.
+ * When the journal is enabled and was complete when the tenant stopped, only the flow nodes having entries in the journal are restarted
+ * instead of scanning all flow nodes of the tenant.
+ */
+public class FlowNodeWorkJournal implements WorkJournal {
+
+    private final WorkJournalService workJournalService;
+
+    private final boolean enabled;
+
+    public FlowNodeWorkJournal(final WorkJournalService workJournalService, final boolean enabled) {
+        this.workJournalService = workJournalService;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public long append(final BonitaWork work) throws SWorkRegisterException {
+        if (!enabled) {
+            return -1;
+        }
+        final long flowNodeInstanceId = getFlowNodeInstanceId(work);
+        if (flowNodeInstanceId <= 0) {
+            return -1;
+        }
+        try {
+            return workJournalService.addEntry(flowNodeInstanceId);
+        } catch (final SWorkJournalException e) {
+            throw new SWorkRegisterException("Unable to add work " + work.getDescription() + " to the work journal", e);
+        }
+    }
+
+    long getFlowNodeInstanceId(final BonitaWork work) {
+        BonitaWork current = work;
+        while (current instanceof WrappingBonitaWork) {
+            if (current instanceof FlowNodeDefinitionAndInstanceContextWork) {
+                return ((FlowNodeDefinitionAndInstanceContextWork) current).getFlowNodeInstanceId();
+            }
+            current = ((WrappingBonitaWork) current).getWrappedWork();
+        }
+        return -1;
+    }
+
+    @Override
+    public void remove(final List<Long> entryIds) throws SWorkException {
+        try {
+            workJournalService.removeEntries(entryIds);
+        } catch (final SWorkJournalException e) {
+            throw new SWorkException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true if the journal contains all works registered since the last start of the tenant
+     */
+    public boolean isComplete() throws SBonitaReadException {
+        return workJournalService.isComplete();
+    }
+
+    /**
+     * Mark the journal as containing all works of the tenant: must be called once works of flow nodes to restart were registered again
+     */
+    public void markComplete() throws SWorkJournalException {
+        workJournalService.markComplete();
+    }
+
+    /**
+     * Remove all entries of the journal, including the mark telling that the journal is complete
+     */
+    public void clear() throws SWorkJournalException {
+        workJournalService.removeAllEntries();
+    }
+
+    public List<Long> getFlowNodeInstanceIdsToRestart(final QueryOptions queryOptions) throws SBonitaReadException {
+        return workJournalService.getFlowNodeInstanceIdsToRestart(queryOptions);
+    }
+
+}
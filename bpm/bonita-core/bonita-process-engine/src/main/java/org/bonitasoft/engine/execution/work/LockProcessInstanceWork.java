@@ -30,6 +30,8 @@ import org.bonitasoft.engine.work.WorkService;
  * Transactional work that lock the process instance
  * 
  * This work try to lock a process instance, if it can't be locked before the end of the TIMEOUT, we reschedule the fill stack of work on the work service.
+ * When the work service executes the works of a process instance one after the other (process instance mailbox), no other work can hold the lock: we
+ * wait for the lock instead of rescheduling the work, only API calls can hold it for a short time.
  * 
  * 
  * @author Charles Souillard
@@ -62,14 +64,19 @@ public class LockProcessInstanceWork extends WrappingBonitaWork {
                 loggerService.log(getClass(), TechnicalLogSeverity.DEBUG, Thread.currentThread().getName() + " trying to get lock for instance "
                         + processInstanceId + ": " + getWorkStack());
             }
-            lock = lockService.tryLock(processInstanceId, objectType, TIMEOUT, timeUnit, getTenantId());
+            final WorkService workService = getTenantAccessor(context).getWorkService();
+            if (workService.isProcessInstanceMailboxEnabled()) {
+                lock = lockService.lock(processInstanceId, objectType, getTenantId());
+            } else {
+                lock = lockService.tryLock(processInstanceId, objectType, TIMEOUT, timeUnit, getTenantId());
+            }
             if (lock == null) {
                 // lock has not been obtained
                 if (loggerService.isLoggable(getClass(), TechnicalLogSeverity.DEBUG)) {
                     loggerService.log(getClass(), TechnicalLogSeverity.DEBUG, Thread.currentThread().getName() + " did not get lock for instance "
                             + processInstanceId + ": " + getWorkStack());
                 }
-                rescheduleWork(getTenantAccessor(context).getWorkService(), getRootWork());
+                rescheduleWork(workService, getRootWork());
                 return;
             }
             if (loggerService.isLoggable(getClass(), TechnicalLogSeverity.DEBUG)) {
@@ -89,6 +96,11 @@ public class LockProcessInstanceWork extends WrappingBonitaWork {
 
     }
 
+    @Override
+    public long getLockedProcessInstanceId() {
+        return processInstanceId;
+    }
+
     private String getWorkStack() {
         if (this.getWrappedWork() instanceof TxBonitaWork) {
             final TxBonitaWork txBonitaWork = (TxBonitaWork) this.getWrappedWork();
@@ -22,6 +22,7 @@ import org.bonitasoft.engine.execution.WaitingEventsInterrupter;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.WorkPriorityClass;
 
 /**
  * Work that notify a container that a flow node is in completed state
@@ -66,6 +67,11 @@ public class NotifyChildFinishedWork extends TenantAwareBonitaWork {
         }
     }
 
+    @Override
+    public WorkPriorityClass getPriorityClass() {
+        return WorkPriorityClass.NOTIFY_CHILD;
+    }
+
     @Override
     public String getDescription() {
         return getClass().getSimpleName() + ": processInstanceId:" + parentId + ", flowNodeInstanceId: " + flowNodeInstanceId;
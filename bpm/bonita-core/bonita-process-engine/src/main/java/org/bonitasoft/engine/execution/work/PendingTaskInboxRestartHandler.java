@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.work;
+
+import java.util.concurrent.Callable;
+
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.service.PlatformServiceAccessor;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+
+/**
+ * Build the pending task inbox when it is enabled but was never built, and clear it when it is disabled so that it is built again the next
+ * time it is enabled.
+ */
+public class PendingTaskInboxRestartHandler implements TenantRestartHandler {
+
+    @Override
+    public void beforeServicesStart(final PlatformServiceAccessor platformServiceAccessor, final TenantServiceAccessor tenantServiceAccessor)
+            throws RestartException {
+    }
+
+    @Override
+    public void afterServicesStart(final PlatformServiceAccessor platformServiceAccessor, final TenantServiceAccessor tenantServiceAccessor) {
+        final PendingTaskInboxService pendingTaskInboxService = tenantServiceAccessor.getPendingTaskInboxService();
+        final TechnicalLoggerService logger = tenantServiceAccessor.getTechnicalLoggerService();
+        try {
+            final Integer numberOfEntries = platformServiceAccessor.getTransactionService().executeInTransaction(new Callable<Integer>() {
+
+                @Override
+                public Integer call() throws Exception {
+                    if (pendingTaskInboxService.isEnabled()) {
+                        return pendingTaskInboxService.isReady() ? null : pendingTaskInboxService.rebuild();
+                    }
+                    pendingTaskInboxService.clear();
+                    return null;
+                }
+            });
+            if (numberOfEntries != null && logger.isLoggable(PendingTaskInboxRestartHandler.class, TechnicalLogSeverity.INFO)) {
+                logger.log(PendingTaskInboxRestartHandler.class, TechnicalLogSeverity.INFO, "Built the pending task inbox with " + numberOfEntries
+                        + " entries");
+            }
+        } catch (final Exception e) {
+            logger.log(PendingTaskInboxRestartHandler.class, TechnicalLogSeverity.ERROR, "Unable to build the pending task inbox", e);
+        }
+    }
+
+}
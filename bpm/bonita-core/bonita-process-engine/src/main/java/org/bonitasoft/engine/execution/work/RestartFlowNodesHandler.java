@@ -18,8 +18,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SWorkJournalException;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.persistence.QueryOptions;
@@ -30,6 +32,7 @@ import org.bonitasoft.engine.transaction.TransactionService;
 
 /**
  * Restart flow nodes for works: {@link ExecuteFlowNodeWork} {@link ExecuteConnectorOfActivity} {@link NotifyChildFinishedWork}
+ * When the {@link FlowNodeWorkJournal} is enabled and complete, only the flow nodes having a work in the journal are restarted.
  *
  * @author Baptiste Mesta
  * @author Celine Souchet
@@ -50,20 +53,28 @@ public class RestartFlowNodesHandler implements TenantRestartHandler {
             final ArrayList<Long> flownodesToRestart = new ArrayList<>();
             flownodesToRestartByTenant.put(tenantId, flownodesToRestart);
             final FlowNodeInstanceService flowNodeInstanceService = tenantServiceAccessor.getActivityInstanceService();
+            final FlowNodeWorkJournal workJournal = tenantServiceAccessor.getWorkJournal();
+            final boolean useWorkJournal = workJournal.isEnabled() && workJournal.isComplete();
 
             // using a to low page size (100) causes too many access to the database and causes timeout exception if there are lot of elements.
             // As we retrieve only the id we can use a greater page size
             QueryOptions queryOptions = new QueryOptions(0, 50000);
             List<Long> ids;
-            logInfo(logger, "Restarting flow nodes...");
+            logInfo(logger, useWorkJournal ? "Restarting flow nodes using the work journal..." : "Restarting flow nodes...");
             do {
-                ids = flowNodeInstanceService.getFlowNodeInstanceIdsToRestart(queryOptions);
+                if (useWorkJournal) {
+                    ids = workJournal.getFlowNodeInstanceIdsToRestart(queryOptions);
+                } else {
+                    ids = flowNodeInstanceService.getFlowNodeInstanceIdsToRestart(queryOptions);
+                }
                 flownodesToRestart.addAll(ids);
                 queryOptions = QueryOptions.getNextPage(queryOptions);
 
             } while (ids.size() == queryOptions.getNumberOfResults());
             logInfo(logger, "Found " + flownodesToRestart.size() + " flow nodes to restart on tenant " + tenantId);
-        } catch (final SBonitaReadException e) {
+            // entries are added again when works are registered by the restart, the journal is only complete again once they all are
+            workJournal.clear();
+        } catch (final SBonitaReadException | SWorkJournalException e) {
             throw new RestartException("unable to flag elements as to be restarted", e);
         }
     }
@@ -90,6 +101,17 @@ public class RestartFlowNodesHandler implements TenantRestartHandler {
                 final ExecuteFlowNodes callable = new ExecuteFlowNodes(tenantServiceAccessor, iterator);
                 transactionService.executeInTransaction(callable);
             } while (iterator.hasNext());
+            final FlowNodeWorkJournal workJournal = tenantServiceAccessor.getWorkJournal();
+            if (workJournal.isEnabled()) {
+                transactionService.executeInTransaction(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        workJournal.markComplete();
+                        return null;
+                    }
+                });
+            }
         } catch (final Exception e) {
             throw new RestartException("Unable to restart elements", e);
         }
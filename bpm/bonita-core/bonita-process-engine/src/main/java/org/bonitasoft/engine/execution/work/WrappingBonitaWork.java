@@ -16,6 +16,7 @@ package org.bonitasoft.engine.execution.work;
 import java.util.Map;
 
 import org.bonitasoft.engine.work.BonitaWork;
+import org.bonitasoft.engine.work.WorkPriorityClass;
 
 /**
  * @author Baptiste Mesta
@@ -55,6 +56,21 @@ public abstract class WrappingBonitaWork extends TenantAwareBonitaWork {
         wrappedWork.handleFailure(e, context);
     }
 
+    @Override
+    public long getLockedProcessInstanceId() {
+        return wrappedWork.getLockedProcessInstanceId();
+    }
+
+    @Override
+    public WorkPriorityClass getPriorityClass() {
+        return wrappedWork.getPriorityClass();
+    }
+
+    @Override
+    public long getProcessDefinitionId() {
+        return wrappedWork.getProcessDefinitionId();
+    }
+
     @Override
     public void setTenantId(final long tenantId) {
         wrappedWork.setTenantId(tenantId);
@@ -44,6 +44,10 @@ public class FlowNodeDefinitionAndInstanceContextWork extends TxInHandleFailureW
         this.flowNodeInstanceId = flowNodeInstanceId;
     }
 
+    public long getFlowNodeInstanceId() {
+        return flowNodeInstanceId;
+    }
+
     @Override
     protected void setExceptionContext(final SBonitaException sBonitaException, final Map<String, Object> context) throws SBonitaException {
         final TenantServiceAccessor tenantAccessor = getTenantAccessor(context);
@@ -58,6 +58,7 @@ public class ProcessDefinitionContextWork extends TxInHandleFailureWrappingWork
      * @return The identifier of the process definition
      * @since 6.3
      */
+    @Override
     public long getProcessDefinitionId() {
         return processDefinitionId;
     }
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bonitasoft.engine.bpm.process.DesignProcessDefinition;
+import org.bonitasoft.engine.bpm.process.impl.internal.ExpressionFinder;
+
+/**
+ * Walks a {@link DesignProcessDefinition} and collects every distinct expression it declares, so that they can be handed to
+ * {@link ExpressionService#precompile(long, List)} when the process is enabled.
+ */
+public class DefinitionExpressionCollector extends ExpressionFinder {
+
+    private final Set<Expression> expressions = new LinkedHashSet<>();
+
+    public List<Expression> collect(final DesignProcessDefinition designProcessDefinition) {
+        expressions.clear();
+        find(designProcessDefinition, -1);
+        return new ArrayList<>(expressions);
+    }
+
+    @Override
+    public void find(final Expression expression, final long expressionDefinitionId) {
+        expressions.add(expression);
+    }
+
+}
@@ -13,7 +13,9 @@
  **/
 package org.bonitasoft.engine.search;
 
+import org.bonitasoft.engine.commons.ClassReflector;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
+import org.bonitasoft.engine.commons.exceptions.SReflectException;
 import org.bonitasoft.engine.commons.transaction.TransactionContentWithResult;
 import org.bonitasoft.engine.persistence.FilterOption;
 import org.bonitasoft.engine.persistence.OrderByOption;
@@ -32,6 +34,9 @@ import java.util.List;
 
 /**
  * Abstract class to allow to search server object and convert them to client object
+ * <p>
+ * When the count is not required or when the search continues after a previous page, one more element than requested is read to know whether there
+ * are more results. The continuation token is built from the values of the order by fields of the last server object, read using its getters.
  *
  * @author Matthieu Chaffotte
  * @author Baptiste Mesta
@@ -51,6 +56,10 @@ public abstract class AbstractSearchEntity<C extends Serializable, S extends Per
 
     private List<C> clientObjects;
 
+    private boolean hasMore;
+
+    private SearchContinuationToken continuationToken;
+
     /**
      * @param searchDescriptor
      *        The search descriptor of the searched entity
@@ -97,17 +106,78 @@ public abstract class AbstractSearchEntity<C extends Serializable, S extends Per
             final OrderByOption order = searchDescriptor.getEntityOrder(sort);
             orderOptions.add(order);
         }
-        final QueryOptions countOptions = new QueryOptions(0, QueryOptions.UNLIMITED_NUMBER_OF_RESULTS, null, filterOptions, userSearchTerm);
-        count = executeCount(countOptions);
-        if (count > 0 && numberOfResults != 0) {
-            final QueryOptions searchOptions = new QueryOptions(fromIndex, numberOfResults, orderOptions, filterOptions, userSearchTerm);
+        if (options.isCountRequired()) {
+            final QueryOptions countOptions = new QueryOptions(0, QueryOptions.UNLIMITED_NUMBER_OF_RESULTS, null, filterOptions, userSearchTerm);
+            count = executeCount(countOptions);
+        } else {
+            count = -1;
+        }
+        if (count != 0 && numberOfResults != 0) {
+            final SearchContinuationToken after = options.getContinuationToken();
+            // the count is enough to know if there are more results, unless it is not computed or the start index is unknown
+            final boolean readNextElement = count < 0 || after != null;
+            final int pageSize = readNextElement && numberOfResults < QueryOptions.UNLIMITED_NUMBER_OF_RESULTS ? numberOfResults + 1 : numberOfResults;
+            final QueryOptions searchOptions;
+            if (after != null) {
+                searchOptions = new QueryOptions(pageSize, orderOptions, filterOptions, userSearchTerm, new ArrayList<Object>(after.getSortValues()));
+            } else {
+                searchOptions = new QueryOptions(fromIndex, pageSize, orderOptions, filterOptions, userSearchTerm);
+            }
             serverObjects = executeSearch(searchOptions);
+            if (readNextElement) {
+                hasMore = serverObjects.size() > numberOfResults;
+                if (hasMore) {
+                    serverObjects = new ArrayList<S>(serverObjects.subList(0, numberOfResults));
+                }
+            } else {
+                hasMore = fromIndex + serverObjects.size() < count;
+            }
+            if (hasMore && !serverObjects.isEmpty()) {
+                continuationToken = buildContinuationToken(orderOptions, serverObjects.get(serverObjects.size() - 1));
+            }
         } else {
             serverObjects = Collections.emptyList();
         }
         clientObjects = convertToClientObjects(serverObjects);
     }
 
+    /**
+     * @return the values of the order by fields of the server object, followed by its id if not ordered by id, or null when they cannot be read
+     */
+    SearchContinuationToken buildContinuationToken(final List<OrderByOption> orderOptions, final S lastServerObject) {
+        final List<Serializable> sortValues = new ArrayList<Serializable>(orderOptions.size() + 1);
+        boolean sortedById = false;
+        for (final OrderByOption orderOption : orderOptions) {
+            if (orderOption.getClazz() != null && !orderOption.getClazz().isInstance(lastServerObject)) {
+                // ordered by a field of a joined entity
+                return null;
+            }
+            final Object value;
+            try {
+                value = getFieldValue(lastServerObject, orderOption.getFieldName());
+            } catch (final SReflectException e) {
+                return null;
+            }
+            if (value != null && !(value instanceof Serializable)) {
+                return null;
+            }
+            sortValues.add((Serializable) value);
+            sortedById |= "id".equalsIgnoreCase(orderOption.getFieldName());
+        }
+        if (!sortedById) {
+            sortValues.add(lastServerObject.getId());
+        }
+        return new SearchContinuationToken(sortValues);
+    }
+
+    private Object getFieldValue(final S serverObject, final String fieldName) throws SReflectException {
+        try {
+            return ClassReflector.invokeGetter(serverObject, ClassReflector.getGetterName(fieldName));
+        } catch (final SReflectException e) {
+            return ClassReflector.invokeGetter(serverObject, ClassReflector.getGetterName(fieldName, Boolean.class));
+        }
+    }
+
     /**
      * Execute the count here
      *
@@ -139,7 +209,7 @@ public abstract class AbstractSearchEntity<C extends Serializable, S extends Per
 
     @Override
     public SearchResult<C> getResult() {
-        return new SearchResultImpl<C>(count, clientObjects);
+        return new SearchResultImpl<C>(count, clientObjects, hasMore, continuationToken);
     }
 
     protected SearchFilter getSearchFilter(final SearchOptions searchOptions, final String searchedKey) {
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.service;
 
 import org.bonitasoft.engine.api.impl.NodeConfiguration;
+import org.bonitasoft.engine.api.impl.TenantStateRegistry;
 import org.bonitasoft.engine.cache.PlatformCacheService;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.commons.transaction.TransactionExecutor;
@@ -69,6 +70,8 @@ public interface PlatformServiceAccessor extends ServiceAccessor {
     void destroy();
     BroadcastService getBroadcastService();
 
+    TenantStateRegistry getTenantStateRegistry();
+
     PlatformAuthenticationService getPlatformAuthenticationService();
 
     <T> T lookup(String serviceName) throws NotFoundException;
@@ -45,6 +45,7 @@ import org.bonitasoft.engine.core.process.comment.api.SCommentService;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
 import org.bonitasoft.engine.core.process.instance.api.ActivityInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.GatewayInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
 import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.RefBusinessDataService;
 import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceService;
@@ -58,6 +59,7 @@ import org.bonitasoft.engine.execution.FlowNodeExecutor;
 import org.bonitasoft.engine.execution.ProcessExecutor;
 import org.bonitasoft.engine.execution.event.EventsHandler;
 import org.bonitasoft.engine.execution.state.FlowNodeStateManager;
+import org.bonitasoft.engine.execution.work.FlowNodeWorkJournal;
 import org.bonitasoft.engine.expression.ExpressionService;
 import org.bonitasoft.engine.external.identity.mapping.ExternalIdentityMappingService;
 import org.bonitasoft.engine.identity.IdentityService;
@@ -195,6 +197,10 @@ public interface TenantServiceAccessor extends ServiceAccessor {
 
     WorkService getWorkService();
 
+    FlowNodeWorkJournal getWorkJournal();
+
+    PendingTaskInboxService getPendingTaskInboxService();
+
     SessionAccessor getSessionAccessor();
 
     SynchroService getSynchroService();
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.service.impl;
 
 import org.bonitasoft.engine.api.impl.NodeConfiguration;
+import org.bonitasoft.engine.api.impl.TenantStateRegistry;
 import org.bonitasoft.engine.cache.PlatformCacheService;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.commons.transaction.TransactionExecutor;
@@ -70,6 +71,8 @@ public class SpringPlatformServiceAccessor implements PlatformServiceAccessor {
     private PlatformAuthenticationService platformAuthenticationService;
     private ServicesResolver servicesResolver;
 
+    private TenantStateRegistry tenantStateRegistry;
+
     public SpringPlatformServiceAccessor() {
         beanAccessor = BeanAccessorFactory.getPlatformBeanAccessor();
     }
@@ -188,6 +191,14 @@ public class SpringPlatformServiceAccessor implements PlatformServiceAccessor {
         return broadcastService;
     }
 
+    @Override
+    public TenantStateRegistry getTenantStateRegistry() {
+        if (tenantStateRegistry == null) {
+            tenantStateRegistry = beanAccessor.getService(TenantStateRegistry.class);
+        }
+        return tenantStateRegistry;
+    }
+
     @Override
     public PlatformAuthenticationService getPlatformAuthenticationService() {
         if (platformAuthenticationService == null) {
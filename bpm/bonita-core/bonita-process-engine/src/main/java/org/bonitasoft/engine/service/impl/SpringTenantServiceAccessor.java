@@ -46,6 +46,7 @@ import org.bonitasoft.engine.core.process.comment.api.SCommentService;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
 import org.bonitasoft.engine.core.process.instance.api.ActivityInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.GatewayInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
 import org.bonitasoft.engine.core.process.instance.api.ProcessInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.RefBusinessDataService;
 import org.bonitasoft.engine.core.process.instance.api.event.EventInstanceService;
@@ -59,6 +60,7 @@ import org.bonitasoft.engine.execution.FlowNodeExecutor;
 import org.bonitasoft.engine.execution.ProcessExecutor;
 import org.bonitasoft.engine.execution.event.EventsHandler;
 import org.bonitasoft.engine.execution.state.FlowNodeStateManager;
+import org.bonitasoft.engine.execution.work.FlowNodeWorkJournal;
 import org.bonitasoft.engine.expression.ExpressionService;
 import org.bonitasoft.engine.external.identity.mapping.ExternalIdentityMappingService;
 import org.bonitasoft.engine.identity.IdentityService;
@@ -164,6 +166,10 @@ public class SpringTenantServiceAccessor implements TenantServiceAccessor {
 
     private WorkService workService;
 
+    private FlowNodeWorkJournal workJournal;
+
+    private PendingTaskInboxService pendingTaskInboxService;
+
     private SessionService sessionService;
 
     private SessionAccessor sessionAccessor;
@@ -613,6 +619,22 @@ public class SpringTenantServiceAccessor implements TenantServiceAccessor {
         return workService;
     }
 
+    @Override
+    public FlowNodeWorkJournal getWorkJournal() {
+        if (workJournal == null) {
+            workJournal = beanAccessor.getService(FlowNodeWorkJournal.class);
+        }
+        return workJournal;
+    }
+
+    @Override
+    public PendingTaskInboxService getPendingTaskInboxService() {
+        if (pendingTaskInboxService == null) {
+            pendingTaskInboxService = beanAccessor.getService(PendingTaskInboxService.class);
+        }
+        return pendingTaskInboxService;
+    }
+
     @Override
     public SynchroService getSynchroService() {
         if (synchroService == null) {
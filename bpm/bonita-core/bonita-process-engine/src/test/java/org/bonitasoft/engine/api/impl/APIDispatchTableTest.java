@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import org.bonitasoft.engine.api.NoSessionRequired;
+import org.bonitasoft.engine.api.impl.transaction.CustomTransactions;
+import org.junit.Test;
+
+public class APIDispatchTableTest {
+
+    @Test
+    public void should_resolve_method_from_the_class_names_sent_by_the_client() throws Exception {
+        final APIDispatchTable table = APIDispatchTable.of(FakeAPIImpl.class);
+
+        assertThat(table.getMethod("doSomething", asList("long", "[Ljava.lang.String;")).getMethod())
+                .isEqualTo(FakeAPIImpl.class.getMethod("doSomething", long.class, String[].class));
+        assertThat(table.getMethod("doSomething", asList("java.lang.String")).getMethod())
+                .isEqualTo(FakeAPIImpl.class.getMethod("doSomething", String.class));
+        assertThat(table.getMethod("noParameter", null).getMethod()).isEqualTo(FakeAPIImpl.class.getMethod("noParameter"));
+        assertThat(table.getMethod("noParameter", Collections.<String> emptyList()).getMethod()).isEqualTo(FakeAPIImpl.class.getMethod("noParameter"));
+    }
+
+    @Test
+    public void should_return_null_for_unknown_signature() {
+        final APIDispatchTable table = APIDispatchTable.of(FakeAPIImpl.class);
+
+        assertThat(table.getMethod("doSomething", asList("int"))).isNull();
+        assertThat(table.getMethod("unknown", null)).isNull();
+    }
+
+    @Test
+    public void should_build_table_once_per_implementation_class() {
+        assertThat(APIDispatchTable.of(FakeAPIImpl.class)).isSameAs(APIDispatchTable.of(FakeAPIImpl.class));
+    }
+
+    @Test
+    public void should_precompute_method_policies() {
+        final APIDispatchTable table = APIDispatchTable.of(FakeAPIImpl.class);
+
+        final APIMethodDescriptor noParameter = table.getMethod("noParameter", null);
+        assertThat(noParameter.isOutsideTransaction()).isFalse();
+        assertThat(noParameter.isAvailableOnStoppedNode()).isFalse();
+        assertThat(noParameter.isDeprecated()).isFalse();
+        assertThat(noParameter.getAvailableWhenTenantIsPaused().only()).isFalse();
+
+        final APIMethodDescriptor doSomething = table.getMethod("doSomething", asList("java.lang.String"));
+        assertThat(doSomething.isOutsideTransaction()).isTrue();
+        assertThat(doSomething.isAvailableOnStoppedNode()).isTrue();
+        assertThat(doSomething.isDeprecated()).isTrue();
+        assertThat(doSomething.getAvailableWhenTenantIsPaused().only()).isTrue();
+
+        assertThat(table.getMethod("doSomething", asList("long", "[Ljava.lang.String;")).isOutsideTransaction()).isTrue();
+    }
+
+    @Test
+    public void should_select_the_most_specific_return_type_like_getMethod() throws Exception {
+        final APIDispatchTable table = APIDispatchTable.of(CovariantAPIImpl.class);
+
+        assertThat(table.getMethod("get", null).getMethod()).isEqualTo(CovariantAPIImpl.class.getMethod("get"));
+        assertThat(table.getMethod("get", null).getMethod().getReturnType()).isEqualTo(String.class);
+    }
+
+    @Test
+    public void should_describe_a_method_which_is_not_in_the_table() throws Exception {
+        final APIDispatchTable table = APIDispatchTable.of(FakeAPIImpl.class);
+
+        final APIMethodDescriptor descriptor = table.getMethod(Object.class.getDeclaredMethod("clone"));
+
+        assertThat(descriptor.getMethod()).isEqualTo(Object.class.getDeclaredMethod("clone"));
+        assertThat(descriptor.getAvailableWhenTenantIsPaused()).isNotNull();
+    }
+
+    @AvailableWhenTenantIsPaused
+    public static class FakeAPIImpl {
+
+        public void noParameter() {
+        }
+
+        @Deprecated
+        @AvailableOnStoppedNode
+        @NoSessionRequired
+        @AvailableWhenTenantIsPaused(only = true)
+        public void doSomething(final String value) {
+        }
+
+        @CustomTransactions
+        public void doSomething(final long id, final String... values) {
+        }
+
+    }
+
+    public interface CovariantAPI {
+
+        Object get();
+    }
+
+    public static class CovariantAPIImpl implements CovariantAPI {
+
+        @Override
+        public String get() {
+            return "";
+        }
+    }
+
+}
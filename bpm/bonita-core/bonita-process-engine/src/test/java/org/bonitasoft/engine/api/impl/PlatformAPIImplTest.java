@@ -24,11 +24,13 @@ import static org.mockito.Mockito.eq;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
 
+import org.bonitasoft.engine.api.impl.transaction.SetTenantPausedStateTask;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.commons.transaction.TransactionContent;
 import org.bonitasoft.engine.commons.transaction.TransactionExecutor;
@@ -36,6 +38,7 @@ import org.bonitasoft.engine.exception.BonitaHomeConfigurationException;
 import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
 import org.bonitasoft.engine.exception.UpdateException;
 import org.bonitasoft.engine.home.BonitaHomeServer;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.platform.PlatformService;
 import org.bonitasoft.engine.platform.model.STenant;
@@ -45,6 +48,7 @@ import org.bonitasoft.engine.scheduler.AbstractBonitaTenantJobListener;
 import org.bonitasoft.engine.scheduler.JobRegister;
 import org.bonitasoft.engine.scheduler.SchedulerService;
 import org.bonitasoft.engine.scheduler.exception.SSchedulerException;
+import org.bonitasoft.engine.service.BroadcastService;
 import org.bonitasoft.engine.service.PlatformServiceAccessor;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.session.SessionService;
@@ -92,7 +96,7 @@ public class PlatformAPIImplTest {
     private final List<STenant> tenants = Collections.singletonList(mock(STenant.class));
     private final List<AbstractBonitaTenantJobListener> tenantJobListeners = Collections.singletonList(mock(AbstractBonitaTenantJobListener.class));
     private final List<AbstractBonitaPlatformJobListener> platformJobListeners = Collections.singletonList(mock(AbstractBonitaPlatformJobListener.class));
-    private TransactionService transactionService = new MockedTransactionService();
+    private MockedTransactionService transactionService = new MockedTransactionService();
     @Spy
     @InjectMocks
     private PlatformAPIImpl platformAPI;
@@ -351,8 +355,33 @@ public class PlatformAPIImplTest {
         verify(platformAPI).deleteTenant(2L);
     }
 
+    @Test
+    public void should_forget_the_state_of_the_tenants_on_all_nodes_when_cleaning_platform() throws Exception {
+        //given
+        final TenantStateRegistry tenantStateRegistry = new TenantStateRegistry();
+        tenantStateRegistry.setPaused(1L, true);
+        final BroadcastService broadcastService = mock(BroadcastService.class);
+        doReturn(tenantStateRegistry).when(platformServiceAccessor).getTenantStateRegistry();
+        doReturn(broadcastService).when(platformServiceAccessor).getBroadcastService();
+        doReturn(mock(TechnicalLoggerService.class)).when(platformServiceAccessor).getTechnicalLoggerService();
+        STenantImpl tenant1 = new STenantImpl("t1", "john", 123342, "PAUSED", true);
+        tenant1.setId(1L);
+        doReturn(Collections.singletonList(tenant1)).when(platformService).getTenants(any(QueryOptions.class));
+        doNothing().when(platformAPI).deleteTenant(anyLong());
+        //when
+        platformAPI.cleanPlatform();
+        for (final BonitaTransactionSynchronization synchronization : transactionService.synchronizations) {
+            synchronization.afterCompletion(TransactionState.COMMITTED);
+        }
+        //then
+        assertThat(tenantStateRegistry.isPaused(1L)).isNull();
+        verify(broadcastService).executeOnOthers(any(SetTenantPausedStateTask.class), eq(1L));
+    }
+
     private static class MockedTransactionService implements TransactionService, TransactionExecutor {
 
+        private final List<BonitaTransactionSynchronization> synchronizations = new ArrayList<>();
+
         @Override
         public void begin() throws STransactionCreationException {
         }
@@ -391,7 +420,7 @@ public class PlatformAPIImplTest {
 
         @Override
         public void registerBonitaSynchronization(BonitaTransactionSynchronization txSync) throws STransactionNotFoundException {
-
+            synchronizations.add(txSync);
         }
 
         @Override
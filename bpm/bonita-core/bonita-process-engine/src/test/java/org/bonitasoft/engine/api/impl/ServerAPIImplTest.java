@@ -23,9 +23,11 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -39,12 +41,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 
+import org.bonitasoft.engine.api.TenantAdministrationAPI;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.exception.BonitaRuntimeException;
 import org.bonitasoft.engine.exception.TenantStatusException;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.service.APIAccessResolver;
+import org.bonitasoft.engine.session.APISession;
 import org.bonitasoft.engine.session.Session;
 import org.bonitasoft.engine.session.impl.APISessionImpl;
 import org.bonitasoft.engine.session.impl.PlatformSessionImpl;
@@ -52,9 +56,11 @@ import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
 import org.bonitasoft.engine.transaction.STransactionNotFoundException;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.SWorkRegisterException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.internal.verification.VerificationModeFactory;
@@ -147,6 +153,7 @@ public class ServerAPIImplTest {
         final ServerAPIImpl mockedServerAPIImpl = spy(new ServerAPIImpl(true, accessResolver));
         doThrow(BonitaRuntimeException.class).when(mockedServerAPIImpl).checkMethodAccessibility(any(), eq(apiInterfaceName), any(Method.class), eq(session),
                 eq(false));
+        doNothing().when(mockedServerAPIImpl).awaitWorkCapacity(any(APISession.class));
         doReturn(new UserTransactionService() {
 
             @Override
@@ -171,6 +178,43 @@ public class ServerAPIImplTest {
         }
     }
 
+    @Test
+    public void invokeAPIInTransaction_should_wait_for_room_for_the_works_before_opening_the_transaction() throws Throwable {
+        // given:
+        final APISessionImpl session = new APISessionImpl(1L, new Date(), 120L, "userName", 5487L, "mon_tenant", 25L);
+        final ServerAPIImpl serverAPIImplSpy = spy(new ServerAPIImpl(true, mock(APIAccessResolver.class)));
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        doReturn(userTransactionService).when(serverAPIImplSpy).selectUserTransactionService(any(Session.class), any(ServerAPIImpl.SessionType.class));
+        doNothing().when(serverAPIImplSpy).awaitWorkCapacity(session);
+
+        // when:
+        serverAPIImplSpy.invokeAPIInTransaction(null, new Object(), Object.class.getMethod("toString"), session, "apiInterfaceName");
+
+        // then:
+        final InOrder inOrder = inOrder(serverAPIImplSpy, userTransactionService);
+        inOrder.verify(serverAPIImplSpy).awaitWorkCapacity(session);
+        inOrder.verify(userTransactionService).executeInTransaction(Mockito.<Callable<Object>> any());
+    }
+
+    @Test
+    public void invokeAPIInTransaction_should_not_open_the_transaction_when_the_works_can_not_be_queued() throws Throwable {
+        // given:
+        final APISessionImpl session = new APISessionImpl(1L, new Date(), 120L, "userName", 5487L, "mon_tenant", 25L);
+        final ServerAPIImpl serverAPIImplSpy = spy(new ServerAPIImpl(true, mock(APIAccessResolver.class)));
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        doReturn(userTransactionService).when(serverAPIImplSpy).selectUserTransactionService(any(Session.class), any(ServerAPIImpl.SessionType.class));
+        doThrow(new SWorkRegisterException("queue full")).when(serverAPIImplSpy).awaitWorkCapacity(session);
+
+        // when:
+        try {
+            serverAPIImplSpy.invokeAPIInTransaction(null, new Object(), Object.class.getMethod("toString"), session, "apiInterfaceName");
+            fail("the call should be refused");
+        } catch (final SWorkRegisterException e) {
+            // then:
+            verify(userTransactionService, never()).executeInTransaction(Mockito.<Callable<Object>> any());
+        }
+    }
+
     @Test
     public void invokeAPIWithValidChecksAndCustomTransactionsShouldCallDirectInvokeAPI() throws Throwable {
         // given:
@@ -420,6 +464,49 @@ public class ServerAPIImplTest {
         return buildSession(14L);
     }
 
+    @Test
+    public void isTenantAvailable_should_use_the_known_state_of_the_tenant_without_transaction() throws Throwable {
+        //given
+        final TenantStateRegistry tenantStateRegistry = new TenantStateRegistry();
+        tenantStateRegistry.setPaused(54L, true);
+        final ServerAPIImpl serverAPIImplSpy = spy(serverAPIImpl);
+        doReturn(tenantStateRegistry).when(serverAPIImplSpy).getTenantStateRegistry();
+
+        //when
+        final boolean tenantAvailable = serverAPIImplSpy.isTenantAvailable(54L, session, false);
+
+        //then
+        assertThat(tenantAvailable).isFalse();
+        verify(serverAPIImplSpy, never()).selectUserTransactionService(any(Session.class), any(ServerAPIImpl.SessionType.class));
+        verify(accessResolver, never()).getAPIImplementation(anyString());
+    }
+
+    @Test
+    public void isTenantAvailable_should_remember_the_state_of_the_tenant_read_in_database() throws Throwable {
+        //given
+        final TenantStateRegistry tenantStateRegistry = new TenantStateRegistry();
+        final ServerAPIImpl serverAPIImplSpy = spy(serverAPIImpl);
+        doReturn(tenantStateRegistry).when(serverAPIImplSpy).getTenantStateRegistry();
+        doReturn(new FakeTenantAdministrationAPI()).when(accessResolver).getAPIImplementation(TenantAdministrationAPI.class.getName());
+
+        //when
+        final boolean firstCall = serverAPIImplSpy.isTenantAvailable(54L, session, true);
+        final boolean secondCall = serverAPIImplSpy.isTenantAvailable(54L, session, true);
+
+        //then
+        assertThat(firstCall).isFalse();
+        assertThat(secondCall).isFalse();
+        assertThat(tenantStateRegistry.isPaused(54L)).isTrue();
+        verify(accessResolver, times(1)).getAPIImplementation(TenantAdministrationAPI.class.getName());
+    }
+
+    public static class FakeTenantAdministrationAPI {
+
+        public boolean isPaused() {
+            return true;
+        }
+    }
+
     @Test
     public void should_checkMethodAccessibility_do_not_warn_user_when_method_is_not_deprecated() throws Throwable {
         //given
@@ -36,6 +36,7 @@ import org.bonitasoft.engine.api.impl.resolver.BusinessArchiveArtifactsManager;
 import org.bonitasoft.engine.api.impl.transaction.PauseServiceStrategy;
 import org.bonitasoft.engine.api.impl.transaction.ResumeServiceStrategy;
 import org.bonitasoft.engine.api.impl.transaction.SetServiceState;
+import org.bonitasoft.engine.api.impl.transaction.TenantStateSynchronization;
 import org.bonitasoft.engine.builder.BuilderFactory;
 import org.bonitasoft.engine.business.data.BusinessDataModelRepository;
 import org.bonitasoft.engine.business.data.BusinessDataRepositoryException;
@@ -227,6 +228,15 @@ public class TenantAdministrationAPIImplTest {
         verify(platformService).updateTenant(sTenant, entityUpdateDescriptor);
     }
 
+    @Test
+    public void pause_should_publish_the_paused_state_of_the_tenant_after_commit() throws Exception {
+        whenTenantIsInState(STenant.ACTIVATED);
+
+        tenantManagementAPI.pause();
+
+        verify(transactionService).registerBonitaSynchronization(any(TenantStateSynchronization.class));
+    }
+
     @Test
     public void resume_should_resume_jobs() throws Exception {
         tenantManagementAPI.resume();
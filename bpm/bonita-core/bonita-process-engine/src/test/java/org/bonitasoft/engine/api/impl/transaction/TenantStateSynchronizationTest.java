@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.impl.transaction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import org.bonitasoft.engine.api.impl.TenantStateRegistry;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.service.BroadcastService;
+import org.bonitasoft.engine.service.TaskResult;
+import org.bonitasoft.engine.transaction.TransactionState;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TenantStateSynchronizationTest {
+
+    private static final long TENANT_ID = 17L;
+
+    @Mock
+    private BroadcastService broadcastService;
+
+    @Mock
+    private TechnicalLoggerService logger;
+
+    private final TenantStateRegistry tenantStateRegistry = new TenantStateRegistry();
+
+    @Test
+    public void should_update_the_state_of_the_tenant_on_all_nodes_after_commit() throws Exception {
+        doReturn(Collections.emptyMap()).when(broadcastService).executeOnOthers(any(Callable.class), eq(TENANT_ID));
+
+        new TenantStateSynchronization(tenantStateRegistry, broadcastService, logger, TENANT_ID, true).afterCompletion(TransactionState.COMMITTED);
+
+        assertThat(tenantStateRegistry.isPaused(TENANT_ID)).isTrue();
+        verify(broadcastService).executeOnOthers(any(SetTenantPausedStateTask.class), eq(TENANT_ID));
+    }
+
+    @Test
+    public void should_forget_the_state_of_the_tenant_on_rollback() throws Exception {
+        tenantStateRegistry.setPaused(TENANT_ID, false);
+
+        new TenantStateSynchronization(tenantStateRegistry, broadcastService, logger, TENANT_ID, true).afterCompletion(TransactionState.ROLLEDBACK);
+
+        assertThat(tenantStateRegistry.isPaused(TENANT_ID)).isNull();
+        verify(broadcastService, never()).executeOnOthers(any(Callable.class), eq(TENANT_ID));
+    }
+
+    @Test
+    public void should_forget_the_state_of_the_tenant_on_all_nodes_when_it_must_be_read_again() throws Exception {
+        doReturn(Collections.emptyMap()).when(broadcastService).executeOnOthers(any(Callable.class), eq(TENANT_ID));
+        tenantStateRegistry.setPaused(TENANT_ID, true);
+
+        new TenantStateSynchronization(tenantStateRegistry, broadcastService, logger, TENANT_ID, null).afterCompletion(TransactionState.COMMITTED);
+
+        assertThat(tenantStateRegistry.isPaused(TENANT_ID)).isNull();
+        verify(broadcastService).executeOnOthers(any(SetTenantPausedStateTask.class), eq(TENANT_ID));
+    }
+
+    @Test
+    public void should_log_an_error_when_the_state_cannot_be_updated_on_another_node() throws Exception {
+        final Exception unreachable = new Exception("unreachable");
+        doReturn(Collections.singletonMap("node2", TaskResult.error(unreachable))).when(broadcastService).executeOnOthers(any(Callable.class),
+                eq(TENANT_ID));
+        doReturn(true).when(logger).isLoggable(TenantStateSynchronization.class, TechnicalLogSeverity.ERROR);
+
+        new TenantStateSynchronization(tenantStateRegistry, broadcastService, logger, TENANT_ID, false).afterCompletion(TransactionState.COMMITTED);
+
+        assertThat(tenantStateRegistry.isPaused(TENANT_ID)).isFalse();
+        verify(logger).log(eq(TenantStateSynchronization.class), eq(TechnicalLogSeverity.ERROR), any(String.class), eq(unreachable));
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.command;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Map;
+
+import org.bonitasoft.engine.core.document.api.DocumentService;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MigrateDocumentContentsCommandTest {
+
+    @Mock
+    private TenantServiceAccessor tenantServiceAccessor;
+
+    @Mock
+    private DocumentService documentService;
+
+    private final MigrateDocumentContentsCommand command = new MigrateDocumentContentsCommand();
+
+    @Before
+    public void setUp() {
+        doReturn(documentService).when(tenantServiceAccessor).getDocumentService();
+    }
+
+    @Test
+    public void should_migrate_a_default_batch_of_contents() throws Exception {
+        doReturn(3).when(documentService).migrateInlineContents(MigrateDocumentContentsCommand.DEFAULT_MAX_RESULTS);
+
+        assertThat(command.execute(Collections.<String, Serializable> emptyMap(), tenantServiceAccessor)).isEqualTo(3);
+    }
+
+    @Test
+    public void should_migrate_the_given_number_of_contents() throws Exception {
+        final Map<String, Serializable> parameters = Collections.<String, Serializable> singletonMap(MigrateDocumentContentsCommand.MAX_RESULTS, 10);
+        doReturn(0).when(documentService).migrateInlineContents(10);
+
+        assertThat(command.execute(parameters, tenantServiceAccessor)).isEqualTo(0);
+    }
+
+    @Test(expected = SCommandParameterizationException.class)
+    public void should_refuse_a_non_positive_number_of_contents() throws Exception {
+        command.execute(Collections.<String, Serializable> singletonMap(MigrateDocumentContentsCommand.MAX_RESULTS, 0), tenantServiceAccessor);
+    }
+
+    @Test(expected = SCommandExecutionException.class)
+    public void should_fail_when_the_migration_fails() throws Exception {
+        doThrow(new SBonitaReadException("failure")).when(documentService).migrateInlineContents(MigrateDocumentContentsCommand.DEFAULT_MAX_RESULTS);
+
+        command.execute(Collections.<String, Serializable> emptyMap(), tenantServiceAccessor);
+    }
+
+}
@@ -25,7 +25,9 @@ import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.core.connector.ConnectorInstanceService;
 import org.bonitasoft.engine.core.contract.data.ContractDataService;
 import org.bonitasoft.engine.core.document.api.DocumentService;
+import org.bonitasoft.engine.core.document.model.SDocumentMapping;
 import org.bonitasoft.engine.core.process.comment.api.SCommentService;
+import org.bonitasoft.engine.core.process.comment.model.SComment;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
 import org.bonitasoft.engine.core.process.definition.model.SProcessDefinition;
 import org.bonitasoft.engine.core.process.instance.api.ActivityInstanceService;
@@ -40,6 +42,8 @@ import org.bonitasoft.engine.core.process.instance.model.impl.business.data.SPro
 import org.bonitasoft.engine.core.process.instance.model.impl.business.data.SRefBusinessDataInstanceImpl;
 import org.bonitasoft.engine.data.instance.api.DataInstanceService;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.persistence.OrderByType;
+import org.bonitasoft.engine.persistence.QueryOptions;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -95,15 +99,51 @@ public class ProcessArchiverTest {
         doNothing().when(processArchiver).archiveConnectorInstancesIfAny(eq(processInstance), eq(connectorInstanceService), any(SProcessDefinition.class),
                 anyLong());
 
+        doReturn(true).when(archiveService).isArchivable(SRefBusinessDataInstance.class);
         doReturn(sRefBusinessDataInstances).when(refBusinessDataService).getRefBusinessDataInstances(eq(processInstance.getId()), eq(0), anyInt());
-        doNothing().when(refBusinessDataService).archiveRefBusinessDataInstance(any(SRefBusinessDataInstance.class));
 
         processArchiver.archiveProcessInstance(processInstance, archiveService, processInstanceService, documentService, logger, commentService,
                 processDefinitionService, connectorInstanceService, classLoaderService, refBusinessDataService);
 
-        verify(refBusinessDataService).archiveRefBusinessDataInstance(ref1);
-        verify(refBusinessDataService).archiveRefBusinessDataInstance(ref2);
-        verify(refBusinessDataService).archiveRefBusinessDataInstance(ref3);
+        verify(refBusinessDataService).archiveRefBusinessDataInstances(Arrays.<SRefBusinessDataInstance> asList(ref1, ref2, ref3));
+        verify(refBusinessDataService, never()).archiveRefBusinessDataInstance(any(SRefBusinessDataInstance.class));
+    }
+
+    @Test
+    public void archiveProcessInstance_should_archive_comments_and_document_mappings_without_reading_them() throws Exception {
+        final SProcessInstance processInstance = new SProcessInstanceImpl();
+        processInstance.setId(451L);
+        final SAProcessInstance saProcessInstance = mock(SAProcessInstance.class);
+        doReturn(1500L).when(saProcessInstance).getEndDate();
+        doReturn(saProcessInstance).when(processArchiver).buildArchiveProcessInstance(processInstance);
+        doReturn(true).when(archiveService).isArchivable(SComment.class);
+        doReturn(true).when(archiveService).isArchivable(SDocumentMapping.class);
+
+        processArchiver.archiveProcessInstance(processInstance, archiveService, processInstanceService, documentService, logger, commentService,
+                processDefinitionService, connectorInstanceService, classLoaderService, refBusinessDataService);
+
+        verify(commentService).archiveComments(processInstance.getId(), 1500L);
+        verify(commentService, never()).getComments(anyLong(), any(QueryOptions.class));
+        verify(documentService).archiveDocumentMappings(processInstance.getId(), 1500L);
+        verify(documentService, never()).getDocumentsOfProcessInstance(anyLong(), anyInt(), anyInt(), anyString(), any(OrderByType.class));
+    }
+
+    @Test
+    public void archiveProcessInstance_should_not_read_elements_that_are_not_archivable() throws Exception {
+        final SProcessInstance processInstance = new SProcessInstanceImpl();
+        processInstance.setId(451L);
+        doReturn(mock(SAProcessInstance.class)).when(processArchiver).buildArchiveProcessInstance(processInstance);
+
+        processArchiver.archiveProcessInstance(processInstance, archiveService, processInstanceService, documentService, logger, commentService,
+                processDefinitionService, connectorInstanceService, classLoaderService, refBusinessDataService);
+
+        verify(commentService, never()).getComments(anyLong(), any(QueryOptions.class));
+        verify(commentService, never()).archiveComments(anyLong(), anyLong());
+        verify(documentService, never()).archiveDocumentMappings(anyLong(), anyLong());
+        verify(connectorInstanceService, never()).archiveConnectorInstances(anyLong(), anyString(), anyLong());
+        verify(documentService, never()).getDocumentsOfProcessInstance(anyLong(), anyInt(), anyInt(), anyString(), any(OrderByType.class));
+        verify(refBusinessDataService, never()).getRefBusinessDataInstances(anyLong(), anyInt(), anyInt());
+        verify(processInstanceService).deleteProcessInstance(processInstance.getId());
     }
 
     //    @Test
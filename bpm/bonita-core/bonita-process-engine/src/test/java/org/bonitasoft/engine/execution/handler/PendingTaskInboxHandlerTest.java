@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.handler;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import org.bonitasoft.engine.actor.mapping.model.SActorMember;
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
+import org.bonitasoft.engine.core.process.instance.model.SPendingActivityMapping;
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.identity.model.SUserMembership;
+import org.bonitasoft.engine.service.TenantServiceAccessor;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PendingTaskInboxHandlerTest {
+
+    @Mock
+    private TenantServiceAccessor tenantServiceAccessor;
+
+    @Mock
+    private PendingTaskInboxService pendingTaskInboxService;
+
+    private PendingTaskInboxHandler handler;
+
+    @Before
+    public void before() throws Exception {
+        handler = spy(new PendingTaskInboxHandler(1L));
+        doReturn(tenantServiceAccessor).when(handler).getTenantServiceAccessor();
+        when(tenantServiceAccessor.getPendingTaskInboxService()).thenReturn(pendingTaskInboxService);
+    }
+
+    @Test
+    public void executeBatch_should_update_each_impacted_task_and_user_once() throws Exception {
+        handler.executeBatch(asList(event(pendingMapping(12L)), event(userMembership(5L)), event(pendingMapping(12L)), event(pendingMapping(13L)),
+                event(userMembership(5L))));
+
+        final InOrder inOrder = inOrder(pendingTaskInboxService);
+        inOrder.verify(pendingTaskInboxService).updateTask(12L);
+        inOrder.verify(pendingTaskInboxService).updateTask(13L);
+        inOrder.verify(pendingTaskInboxService).updateUser(5L);
+        verifyNoMoreInteractions(pendingTaskInboxService);
+    }
+
+    @Test
+    public void executeBatch_should_add_the_added_actor_members_before_removing_the_removed_ones() throws Exception {
+        handler.executeBatch(asList(event(actorMember(3L, 7L, -1L), "ACTOR_MEMBER_DELETED"), event(actorMember(3L, -1L, 9L), "ACTOR_MEMBER_CREATED"),
+                event(pendingMapping(12L))));
+
+        final InOrder inOrder = inOrder(pendingTaskInboxService);
+        inOrder.verify(pendingTaskInboxService).addActorMember(3L, -1L, 9L, -1L);
+        inOrder.verify(pendingTaskInboxService).removeActorMember(3L, 7L, -1L, -1L);
+        inOrder.verify(pendingTaskInboxService).updateTask(12L);
+        verifyNoMoreInteractions(pendingTaskInboxService);
+    }
+
+    @Test
+    public void isInterested_should_accept_pending_mappings_actor_members_and_user_memberships() {
+        assertThat(handler.isInterested(event(pendingMapping(12L)))).isTrue();
+        assertThat(handler.isInterested(event(actorMember(3L, 7L, -1L)))).isTrue();
+        assertThat(handler.isInterested(event(userMembership(5L)))).isTrue();
+        assertThat(handler.isInterested(event(new Object()))).isFalse();
+    }
+
+    @Test
+    public void injectPendingTaskInboxHandler_should_register_the_handler_on_all_its_events_when_the_inbox_is_enabled() throws Exception {
+        final EventService eventService = mock(EventService.class);
+
+        new PendingTaskInboxHandlerInjector(eventService, handler, true).injectPendingTaskInboxHandler();
+
+        for (final String eventType : PendingTaskInboxHandler.EVENT_TYPES) {
+            verify(eventService).addHandler(eventType, handler);
+        }
+        verifyNoMoreInteractions(eventService);
+    }
+
+    @Test
+    public void injectPendingTaskInboxHandler_should_not_register_the_handler_when_the_inbox_is_disabled() throws Exception {
+        final EventService eventService = mock(EventService.class);
+
+        new PendingTaskInboxHandlerInjector(eventService, handler, false).injectPendingTaskInboxHandler();
+
+        verifyZeroInteractions(eventService);
+    }
+
+    private SEvent event(final Object object) {
+        final SEvent event = mock(SEvent.class);
+        when(event.getObject()).thenReturn(object);
+        return event;
+    }
+
+    private SEvent event(final Object object, final String type) {
+        final SEvent event = event(object);
+        when(event.getType()).thenReturn(type);
+        return event;
+    }
+
+    private SPendingActivityMapping pendingMapping(final long humanTaskInstanceId) {
+        final SPendingActivityMapping mapping = mock(SPendingActivityMapping.class);
+        when(mapping.getActivityId()).thenReturn(humanTaskInstanceId);
+        return mapping;
+    }
+
+    private SActorMember actorMember(final long actorId, final long userId, final long groupId) {
+        final SActorMember actorMember = mock(SActorMember.class);
+        when(actorMember.getActorId()).thenReturn(actorId);
+        when(actorMember.getUserId()).thenReturn(userId);
+        when(actorMember.getGroupId()).thenReturn(groupId);
+        when(actorMember.getRoleId()).thenReturn(-1L);
+        return actorMember;
+    }
+
+    private SUserMembership userMembership(final long userId) {
+        final SUserMembership userMembership = mock(SUserMembership.class);
+        when(userMembership.getUserId()).thenReturn(userId);
+        return userMembership;
+    }
+
+}
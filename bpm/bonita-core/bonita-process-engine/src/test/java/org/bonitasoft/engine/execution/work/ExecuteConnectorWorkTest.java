@@ -14,23 +14,34 @@
 
 package org.bonitasoft.engine.execution.work;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyMap;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.classloader.SClassLoaderException;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.connector.ConnectorResult;
 import org.bonitasoft.engine.core.connector.ConnectorService;
+import org.bonitasoft.engine.core.connector.exception.SConnectorException;
 import org.bonitasoft.engine.core.connector.parser.SConnectorImplementationDescriptor;
 import org.bonitasoft.engine.core.expression.control.model.SExpressionContext;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
@@ -44,9 +55,11 @@ import org.bonitasoft.engine.lock.LockService;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.tracking.TimeTracker;
 import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.bonitasoft.engine.work.WorkService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -110,6 +123,8 @@ public class ExecuteConnectorWorkTest {
     private TimeTracker timeTracker;
     @Mock
     private ConnectorService connectorService;
+    @Mock
+    private WorkService workService;
 
 
     @Before
@@ -122,6 +137,7 @@ public class ExecuteConnectorWorkTest {
         doReturn(this.getClass().getClassLoader()).when(classLoaderService).getLocalClassLoader(anyString(), anyLong());
         doReturn(timeTracker).when(tenantServiceAccessor).getTimeTracker();
         doReturn(connectorService).when(tenantServiceAccessor).getConnectorService();
+        doReturn(workService).when(tenantServiceAccessor).getWorkService();
     }
 
     @Test
@@ -137,4 +153,92 @@ public class ExecuteConnectorWorkTest {
         inOrder.verify(userTransactionService).executeInTransaction(isA(ExecuteConnectorWork.EvaluateConnectorOutputsTxContent.class));
         inOrder.verify(lockService).unlock(any(BonitaLock.class), eq(TENANT_ID));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void should_not_wait_for_connector_when_asynchronous_execution_is_enabled() throws Exception {
+        //given
+        doReturn(true).when(connectorService).isAsynchronousExecutionEnabled();
+        CompletableFuture<ConnectorResult> execution = new CompletableFuture<>();
+        doReturn(execution).when(connectorService).executeConnectorAsync(anyLong(), any(SConnectorInstance.class),
+                any(SConnectorImplementationDescriptor.class), any(ClassLoader.class), anyMap());
+
+        //when
+        executeConnectorWork.work(workContext);
+
+        //then
+        ArgumentCaptor<CompletionStage> stage = ArgumentCaptor.forClass(CompletionStage.class);
+        verify(workService).executeWorkWhenDone(eq(executeConnectorWork), stage.capture());
+        assertThat(stage.getValue().toCompletableFuture().isDone()).isFalse();
+        verify(connectorService, never()).executeConnector(anyLong(), any(SConnectorInstance.class), any(SConnectorImplementationDescriptor.class),
+                any(ClassLoader.class), anyMap());
+        verify(lockService, never()).lock(anyLong(), anyString(), anyLong());
+        execution.complete(new ConnectorResult(null, null));
+        assertThat(stage.getValue().toCompletableFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void should_resubmit_the_work_only_once_its_execution_returned_when_the_connector_finished_first() throws Exception {
+        //given
+        doReturn(true).when(connectorService).isAsynchronousExecutionEnabled();
+        doReturn(CompletableFuture.completedFuture(new ConnectorResult(null, null))).when(connectorService).executeConnectorAsync(anyLong(),
+                any(SConnectorInstance.class), any(SConnectorImplementationDescriptor.class), any(ClassLoader.class), anyMap());
+        final List<Boolean> stageDoneDuringExecution = new ArrayList<>();
+        doAnswer(invocation -> {
+            stageDoneDuringExecution.add(((CompletionStage<?>) invocation.getArguments()[1]).toCompletableFuture().isDone());
+            return null;
+        }).when(workService).executeWorkWhenDone(eq(executeConnectorWork), any(CompletionStage.class));
+
+        //when
+        executeConnectorWork.work(workContext);
+
+        //then
+        assertThat(stageDoneDuringExecution).containsExactly(false);
+        ArgumentCaptor<CompletionStage> stage = ArgumentCaptor.forClass(CompletionStage.class);
+        verify(workService).executeWorkWhenDone(eq(executeConnectorWork), stage.capture());
+        assertThat(stage.getValue().toCompletableFuture().isDone()).isTrue();
+    }
+
+    @Test
+    public void should_evaluate_outputs_in_a_lock_when_resubmitted_after_asynchronous_execution() throws Exception {
+        //given
+        doReturn(true).when(connectorService).isAsynchronousExecutionEnabled();
+        CompletableFuture<ConnectorResult> execution = new CompletableFuture<>();
+        doReturn(execution).when(connectorService).executeConnectorAsync(anyLong(), any(SConnectorInstance.class),
+                any(SConnectorImplementationDescriptor.class), any(ClassLoader.class), anyMap());
+        executeConnectorWork.work(workContext);
+        execution.complete(new ConnectorResult(null, null));
+
+        //when
+        executeConnectorWork.work(workContext);
+
+        //then
+        InOrder inOrder = inOrder(lockService, userTransactionService);
+        inOrder.verify(lockService).lock(eq(PROCESS_INSTANCE_ID), eq(SFlowElementsContainerType.PROCESS.name()), eq(TENANT_ID));
+        inOrder.verify(userTransactionService).executeInTransaction(isA(ExecuteConnectorWork.EvaluateConnectorOutputsTxContent.class));
+        inOrder.verify(lockService).unlock(any(BonitaLock.class), eq(TENANT_ID));
+        verify(connectorService, times(1)).executeConnectorAsync(anyLong(), any(SConnectorInstance.class),
+                any(SConnectorImplementationDescriptor.class), any(ClassLoader.class), anyMap());
+    }
+
+    @Test
+    public void should_throw_connector_failure_when_resubmitted_after_failed_asynchronous_execution() throws Exception {
+        //given
+        doReturn(true).when(connectorService).isAsynchronousExecutionEnabled();
+        CompletableFuture<ConnectorResult> execution = new CompletableFuture<>();
+        doReturn(execution).when(connectorService).executeConnectorAsync(anyLong(), any(SConnectorInstance.class),
+                any(SConnectorImplementationDescriptor.class), any(ClassLoader.class), anyMap());
+        executeConnectorWork.work(workContext);
+        SConnectorException failure = new SConnectorException("connector failed");
+        execution.completeExceptionally(failure);
+
+        //when
+        try {
+            executeConnectorWork.work(workContext);
+            fail("should have thrown the connector failure");
+        } catch (SConnectorException e) {
+            //then
+            assertThat(e).isSameAs(failure);
+        }
+        verify(lockService, never()).lock(anyLong(), anyString(), anyLong());
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.execution.work;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import org.bonitasoft.engine.core.process.instance.api.WorkJournalService;
+import org.bonitasoft.engine.work.BonitaWork;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class FlowNodeWorkJournalTest {
+
+    @Mock
+    private WorkJournalService workJournalService;
+
+    private FlowNodeWorkJournal workJournal;
+
+    @Before
+    public void before() throws Exception {
+        workJournal = new FlowNodeWorkJournal(workJournalService, true);
+        doReturn(42L).when(workJournalService).addEntry(anyLong());
+    }
+
+    @Test
+    public void append_should_add_an_entry_for_the_flow_node_of_the_work() throws Exception {
+        final BonitaWork work = WorkFactory.createExecuteFlowNodeWork(1L, 2L, 3L);
+
+        final long entryId = workJournal.append(work);
+
+        assertThat(entryId).isEqualTo(42L);
+        verify(workJournalService).addEntry(3L);
+    }
+
+    @Test
+    public void append_should_not_journal_work_not_executed_on_a_flow_node() throws Exception {
+        final BonitaWork work = WorkFactory.createExecuteConnectorOfProcess(1L, 2L, 2L, 4L, "connector", null, null);
+
+        final long entryId = workJournal.append(work);
+
+        assertThat(entryId).isEqualTo(-1L);
+        verify(workJournalService, never()).addEntry(anyLong());
+    }
+
+    @Test
+    public void append_should_not_journal_work_when_disabled() throws Exception {
+        workJournal = new FlowNodeWorkJournal(workJournalService, false);
+
+        final long entryId = workJournal.append(WorkFactory.createExecuteFlowNodeWork(1L, 2L, 3L));
+
+        assertThat(entryId).isEqualTo(-1L);
+        verify(workJournalService, never()).addEntry(anyLong());
+    }
+
+    @Test
+    public void remove_should_remove_entries() throws Exception {
+        workJournal.remove(Arrays.asList(4L, 5L));
+
+        verify(workJournalService).removeEntries(Arrays.asList(4L, 5L));
+    }
+
+}
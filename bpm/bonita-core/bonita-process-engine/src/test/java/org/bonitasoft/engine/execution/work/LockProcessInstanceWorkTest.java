@@ -14,6 +14,9 @@
 package org.bonitasoft.engine.execution.work;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -82,6 +85,27 @@ public class LockProcessInstanceWorkTest {
         verify(wrappedWork, times(0)).work(singletonMap);
     }
 
+    @Test
+    public void should_wait_for_the_lock_when_process_instance_mailbox_is_enabled() throws Exception {
+        BonitaLock bonitaLock = new BonitaLock(new ReentrantLock(), PROCESS, processInstanceId);
+        when(workService.isProcessInstanceMailboxEnabled()).thenReturn(true);
+        when(lockService.lock(processInstanceId, PROCESS, TENANT_ID)).thenReturn(bonitaLock);
+        Map<String, Object> singletonMap = Collections.<String, Object> singletonMap("tenantAccessor", tenantAccessor);
+
+        lockProcessInstanceWork.work(singletonMap);
+
+        verify(lockService, never()).tryLock(anyLong(), anyString(), anyLong(), any(TimeUnit.class), anyLong());
+        verify(lockService).unlock(bonitaLock, TENANT_ID);
+        verify(wrappedWork).work(singletonMap);
+        verify(workService, never()).executeWork(any(BonitaWork.class));
+    }
+
+    @Test
+    public void getLockedProcessInstanceId_should_return_the_locked_process_instance() {
+        assertEquals(processInstanceId, lockProcessInstanceWork.getLockedProcessInstanceId());
+        assertEquals(processInstanceId, new TxBonitaWork(lockProcessInstanceWork).getLockedProcessInstanceId());
+    }
+
     @Test
     public void getDescription() {
         when(wrappedWork.getDescription()).thenReturn("The description");
@@ -17,6 +17,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.bonitasoft.engine.core.process.instance.api.ActivityInstanceService;
@@ -45,6 +46,7 @@ public class RestartFlowNodesHandlerTest {
     private TenantServiceAccessor tenantServiceAccessor;
     private TechnicalLoggerService logger;
     private ActivityInstanceService activityInstanceService;
+    private FlowNodeWorkJournal workJournal;
 
     @Before
     public void before() {
@@ -56,6 +58,8 @@ public class RestartFlowNodesHandlerTest {
         doReturn(logger).when(tenantServiceAccessor).getTechnicalLoggerService();
         activityInstanceService = mock(ActivityInstanceService.class);
         doReturn(activityInstanceService).when(tenantServiceAccessor).getActivityInstanceService();
+        workJournal = mock(FlowNodeWorkJournal.class);
+        doReturn(workJournal).when(tenantServiceAccessor).getWorkJournal();
     }
 
     @Test
@@ -79,4 +83,38 @@ public class RestartFlowNodesHandlerTest {
         //when
         restartFlowNodesHandler.beforeServicesStart(platformServiceAccessor, tenantServiceAccessor);
     }
+
+    @Test
+    public final void should_restart_flow_nodes_of_the_work_journal_when_it_is_complete() throws Exception {
+        //given
+        doReturn(123l).when(tenantServiceAccessor).getTenantId();
+        doReturn(true).when(workJournal).isEnabled();
+        doReturn(true).when(workJournal).isComplete();
+        doReturn(Arrays.asList(4L, 5L)).when(workJournal).getFlowNodeInstanceIdsToRestart(any(QueryOptions.class));
+
+        //when
+        restartFlowNodesHandler.beforeServicesStart(platformServiceAccessor, tenantServiceAccessor);
+
+        //then
+        assertThat(restartFlowNodesHandler.flownodesToRestartByTenant.get(123l)).containsExactly(4L, 5L);
+        verify(activityInstanceService, never()).getFlowNodeInstanceIdsToRestart(any(QueryOptions.class));
+        verify(workJournal).clear();
+    }
+
+    @Test
+    public final void should_scan_all_flow_nodes_when_work_journal_is_not_complete() throws Exception {
+        //given
+        doReturn(123l).when(tenantServiceAccessor).getTenantId();
+        doReturn(true).when(workJournal).isEnabled();
+        doReturn(false).when(workJournal).isComplete();
+        doReturn(Arrays.asList(4L, 5L, 6L)).when(activityInstanceService).getFlowNodeInstanceIdsToRestart(any(QueryOptions.class));
+
+        //when
+        restartFlowNodesHandler.beforeServicesStart(platformServiceAccessor, tenantServiceAccessor);
+
+        //then
+        assertThat(restartFlowNodesHandler.flownodesToRestartByTenant.get(123l)).containsExactly(4L, 5L, 6L);
+        verify(workJournal, never()).getFlowNodeInstanceIdsToRestart(any(QueryOptions.class));
+        verify(workJournal).clear();
+    }
 }
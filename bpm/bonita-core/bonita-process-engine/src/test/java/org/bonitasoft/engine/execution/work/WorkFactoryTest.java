@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.execution.work;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
 
 import org.bonitasoft.engine.bpm.connector.ConnectorEvent;
@@ -23,6 +24,7 @@ import org.bonitasoft.engine.execution.work.failurewrapping.MessageInstanceConte
 import org.bonitasoft.engine.execution.work.failurewrapping.ProcessDefinitionContextWork;
 import org.bonitasoft.engine.execution.work.failurewrapping.ProcessInstanceContextWork;
 import org.bonitasoft.engine.work.BonitaWork;
+import org.bonitasoft.engine.work.WorkPriorityClass;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -96,6 +98,31 @@ public class WorkFactoryTest {
         Assert.assertTrue("A ProcessInstanceContextWork is missing", containsFailureHandlingFlowNodeInstance(work));
     }
 
+    @Test
+    public void works_should_be_classified_from_the_factory_method_that_created_them() {
+        doReturn(5L).when(waitingMessageEvent).getProcessDefinitionId();
+        doReturn(2L).when(waitingMessageEvent).getParentProcessInstanceId();
+
+        assertThat(WorkFactory.createExecuteFlowNodeWork(1L, 2L, 3L).getPriorityClass()).isEqualTo(WorkPriorityClass.FLOW_NODE);
+        assertThat(WorkFactory.createExecuteReadyHumanTaskWork(1L, 2L, 3L).getPriorityClass()).isEqualTo(WorkPriorityClass.FLOW_NODE);
+        assertThat(WorkFactory.createExecuteConnectorOfActivity(1L, 3L, 4L, 5L, 6, "connectorDefName").getPriorityClass())
+                .isEqualTo(WorkPriorityClass.CONNECTOR);
+        assertThat(WorkFactory.createExecuteConnectorOfProcess(1L, 2L, 4L, 3L, "connectorDefName", ConnectorEvent.ON_ENTER, null).getPriorityClass())
+                .isEqualTo(WorkPriorityClass.CONNECTOR);
+        assertThat(WorkFactory.createExecuteMessageCoupleWork(messageInstance, waitingMessageEvent).getPriorityClass())
+                .isEqualTo(WorkPriorityClass.MESSAGE);
+        assertThat(WorkFactory.createNotifyChildFinishedWork(1L, 2L, 3L, 4L, "parentType").getPriorityClass()).isEqualTo(WorkPriorityClass.NOTIFY_CHILD);
+    }
+
+    @Test
+    public void works_should_give_the_process_definition_they_are_executed_for() {
+        doReturn(5L).when(waitingMessageEvent).getProcessDefinitionId();
+
+        assertThat(WorkFactory.createExecuteFlowNodeWork(1L, 2L, 3L).getProcessDefinitionId()).isEqualTo(1L);
+        assertThat(WorkFactory.createExecuteConnectorOfActivity(7L, 3L, 4L, 5L, 6, "connectorDefName").getProcessDefinitionId()).isEqualTo(7L);
+        assertThat(WorkFactory.createExecuteMessageCoupleWork(messageInstance, waitingMessageEvent).getProcessDefinitionId()).isEqualTo(5L);
+    }
+
     private boolean containsFailureHandlingFlowNodeInstance(final WrappingBonitaWork work) {
         return containsWorkOfClass(work, FlowNodeDefinitionAndInstanceContextWork.class);
     }
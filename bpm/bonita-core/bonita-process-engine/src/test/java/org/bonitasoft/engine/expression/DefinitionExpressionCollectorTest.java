@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.bonitasoft.engine.bpm.process.DesignProcessDefinition;
+import org.bonitasoft.engine.bpm.process.impl.ProcessDefinitionBuilder;
+import org.junit.Test;
+
+public class DefinitionExpressionCollectorTest {
+
+    @Test
+    public void collect_should_return_every_expression_of_the_definition() throws Exception {
+        final Expression processData = new ExpressionBuilder().createGroovyScriptExpression("processData", "'a' + 'b'", String.class.getName());
+        final Expression displayName = new ExpressionBuilder().createConstantStringExpression("display");
+        final Expression condition = new ExpressionBuilder().createGroovyScriptExpression("condition", "1 == 1", Boolean.class.getName());
+        final ProcessDefinitionBuilder builder = new ProcessDefinitionBuilder().createNewInstance("process", "1.0");
+        builder.addData("data", String.class.getName(), processData);
+        builder.addAutomaticTask("task1").addDisplayName(displayName);
+        builder.addAutomaticTask("task2");
+        builder.addTransition("task1", "task2", condition);
+        final DesignProcessDefinition designProcessDefinition = builder.done();
+
+        final List<Expression> expressions = new DefinitionExpressionCollector().collect(designProcessDefinition);
+
+        assertThat(expressions).extracting("name").containsOnly("processData", "display", "condition");
+    }
+
+    @Test
+    public void collect_should_not_return_the_same_expression_twice() throws Exception {
+        final ProcessDefinitionBuilder builder = new ProcessDefinitionBuilder().createNewInstance("process", "1.0");
+        builder.addData("data", String.class.getName(), new ExpressionBuilder().createConstantStringExpression("value"));
+        final DesignProcessDefinition designProcessDefinition = builder.done();
+        final DefinitionExpressionCollector collector = new DefinitionExpressionCollector();
+
+        collector.collect(designProcessDefinition);
+
+        assertThat(collector.collect(designProcessDefinition)).hasSize(1);
+    }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bonitasoft.engine.persistence.OrderByOption;
+import org.bonitasoft.engine.persistence.OrderByType;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.search.descriptor.SearchEntityDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AbstractSearchEntityTest {
+
+    private SearchEntityDescriptor searchDescriptor;
+
+    @Before
+    public void before() throws Exception {
+        searchDescriptor = mock(SearchEntityDescriptor.class);
+        doReturn(new OrderByOption(Entity.class, "name", OrderByType.ASC)).when(searchDescriptor).getEntityOrder(any(Sort.class));
+    }
+
+    @Test
+    public void should_not_count_when_count_is_not_required() throws Exception {
+        final SearchOptions options = new SearchOptionsBuilder(0, 2).sort("name", Order.ASC).withoutCount().done();
+        final EntitySearch search = new EntitySearch(options, entity(1, "a"), entity(2, "b"), entity(3, "c"));
+
+        search.execute();
+
+        final SearchResult<String> result = search.getResult();
+        assertThat(search.counted).isFalse();
+        assertThat(search.queryOptions.getNumberOfResults()).isEqualTo(3);
+        assertThat(result.getCount()).isEqualTo(-1);
+        assertThat(result.getResult()).containsExactly("a", "b");
+        assertThat(result.hasMore()).isTrue();
+        assertThat(result.getContinuationToken()).isEqualTo(new SearchContinuationToken(Arrays.asList("b", 2L)));
+    }
+
+    @Test
+    public void should_start_after_the_continuation_token() throws Exception {
+        final SearchOptions options = new SearchOptionsBuilder(40, 2).sort("name", Order.ASC).withoutCount()
+                .searchAfter(new SearchContinuationToken(Arrays.asList("b", 2L))).done();
+        final EntitySearch search = new EntitySearch(options, entity(3, "c"));
+
+        search.execute();
+
+        final SearchResult<String> result = search.getResult();
+        assertThat(search.queryOptions.getFromIndex()).isEqualTo(0);
+        assertThat(search.queryOptions.getAfterValues()).containsExactly("b", 2L);
+        assertThat(result.getResult()).containsExactly("c");
+        assertThat(result.hasMore()).isFalse();
+        assertThat(result.getContinuationToken()).isNull();
+    }
+
+    @Test
+    public void should_use_the_count_to_know_if_there_are_more_results() throws Exception {
+        final SearchOptions options = new SearchOptionsBuilder(0, 2).sort("name", Order.ASC).done();
+        final EntitySearch search = new EntitySearch(options, entity(1, "a"), entity(2, "b"));
+        search.count = 3;
+
+        search.execute();
+
+        final SearchResult<String> result = search.getResult();
+        assertThat(search.queryOptions).isEqualTo(new QueryOptions(0, 2, search.queryOptions.getOrderByOptions(), search.queryOptions.getFilters(), null));
+        assertThat(result.getCount()).isEqualTo(3);
+        assertThat(result.hasMore()).isTrue();
+        assertThat(result.getContinuationToken()).isEqualTo(new SearchContinuationToken(Arrays.asList("b", 2L)));
+    }
+
+    @Test
+    public void should_not_build_continuation_token_when_sorted_on_another_entity() throws Exception {
+        final EntitySearch search = new EntitySearch(new SearchOptionsBuilder(0, 2).done());
+
+        final SearchContinuationToken token = search.buildContinuationToken(
+                Collections.singletonList(new OrderByOption(OtherEntity.class, "name", OrderByType.ASC)), entity(1, "a"));
+
+        assertThat(token).isNull();
+    }
+
+    private Entity entity(final long id, final String name) {
+        final Entity entity = new Entity();
+        entity.setId(id);
+        entity.name = name;
+        return entity;
+    }
+
+    private class EntitySearch extends AbstractSearchEntity<String, Entity> {
+
+        private final List<Entity> entities;
+
+        private long count;
+
+        private boolean counted;
+
+        private QueryOptions queryOptions;
+
+        EntitySearch(final SearchOptions options, final Entity... entities) {
+            super(searchDescriptor, options);
+            this.entities = Arrays.asList(entities);
+        }
+
+        @Override
+        public long executeCount(final QueryOptions queryOptions) throws SBonitaReadException {
+            counted = true;
+            return count;
+        }
+
+        @Override
+        public List<Entity> executeSearch(final QueryOptions queryOptions) throws SBonitaReadException {
+            this.queryOptions = queryOptions;
+            return entities;
+        }
+
+        @Override
+        public List<String> convertToClientObjects(final List<Entity> serverObjects) {
+            final List<String> names = new ArrayList<String>();
+            for (final Entity entity : serverObjects) {
+                names.add(entity.getName());
+            }
+            return names;
+        }
+    }
+
+    public static class Entity implements PersistentObject {
+
+        private static final long serialVersionUID = 1L;
+
+        private long id;
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getDiscriminator() {
+            return Entity.class.getName();
+        }
+
+        @Override
+        public void setId(final long id) {
+            this.id = id;
+        }
+
+        @Override
+        public void setTenantId(final long id) {
+        }
+    }
+
+    public static class OtherEntity extends Entity {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+}
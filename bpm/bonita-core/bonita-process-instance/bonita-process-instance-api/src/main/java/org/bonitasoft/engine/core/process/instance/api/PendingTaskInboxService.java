@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.api;
+
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SPendingTaskInboxException;
+import org.bonitasoft.engine.core.process.instance.model.SPendingTaskInboxEntry;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+
+/**
+ * Maintains the {@link SPendingTaskInboxEntry}s: for each human task having pending mappings, the users that are candidates of the task.
+ * When the inbox is ready, the pending tasks of a user are read from it instead of being resolved from the pending mappings, the actor
+ * members and the user memberships.
+ *
+ * @since 7.5.3
+ */
+public interface PendingTaskInboxService {
+
+    /**
+     * @return true if the inbox is maintained for this tenant
+     */
+    boolean isEnabled();
+
+    /**
+     * @return true if the inbox is enabled and was built, i.e. it can be used to read the pending tasks of a user
+     * @throws SBonitaReadException
+     */
+    boolean isReady() throws SBonitaReadException;
+
+    /**
+     * Compute again the candidates of the given human task from its pending mappings
+     *
+     * @param humanTaskInstanceId
+     *        id of the human task instance
+     * @throws SPendingTaskInboxException
+     */
+    void updateTask(long humanTaskInstanceId) throws SPendingTaskInboxException;
+
+    /**
+     * Add the users of an actor member that was added to the candidates of the human tasks having a pending mapping on its actor
+     *
+     * @param actorId
+     *        id of the actor of the member
+     * @param userId
+     *        id of the user of the member, or a value lower than or equal to 0 if the member is a group, a role or a membership
+     * @param groupId
+     *        id of the group of the member, or a value lower than or equal to 0
+     * @param roleId
+     *        id of the role of the member, or a value lower than or equal to 0
+     * @throws SPendingTaskInboxException
+     */
+    void addActorMember(long actorId, long userId, long groupId, long roleId) throws SPendingTaskInboxException;
+
+    /**
+     * Remove the users of an actor member that was removed from the candidates of the human tasks having a pending mapping on its actor, unless they
+     * are still candidates of these tasks through another mapping
+     *
+     * @param actorId
+     *        id of the actor of the member
+     * @param userId
+     *        id of the user of the member, or a value lower than or equal to 0 if the member is a group, a role or a membership
+     * @param groupId
+     *        id of the group of the member, or a value lower than or equal to 0
+     * @param roleId
+     *        id of the role of the member, or a value lower than or equal to 0
+     * @throws SPendingTaskInboxException
+     */
+    void removeActorMember(long actorId, long userId, long groupId, long roleId) throws SPendingTaskInboxException;
+
+    /**
+     * Compute again the human tasks the given user is a candidate of
+     *
+     * @param userId
+     *        id of the user
+     * @throws SPendingTaskInboxException
+     */
+    void updateUser(long userId) throws SPendingTaskInboxException;
+
+    /**
+     * Remove all entries of the tenant and compute them again from the pending mappings, then mark the inbox as built
+     *
+     * @return the number of entries of the rebuilt inbox, the marker excluded
+     * @throws SPendingTaskInboxException
+     */
+    int rebuild() throws SPendingTaskInboxException;
+
+    /**
+     * Remove all entries of the tenant, including the marker telling the inbox was built
+     *
+     * @throws SPendingTaskInboxException
+     */
+    void clear() throws SPendingTaskInboxException;
+
+}
@@ -61,5 +61,7 @@ public interface RefBusinessDataService {
 
     void archiveRefBusinessDataInstance(SRefBusinessDataInstance businessDataInstance) throws SObjectModificationException; // TODO; specific exception
 
+    void archiveRefBusinessDataInstances(List<SRefBusinessDataInstance> businessDataInstances) throws SObjectModificationException;
+
     void deleteArchivedRefBusinessDataInstance(long processInstanceId) throws SObjectModificationException;
 }
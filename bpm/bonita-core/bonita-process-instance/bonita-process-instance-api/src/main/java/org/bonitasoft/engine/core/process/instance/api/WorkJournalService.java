@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.api;
+
+import java.util.List;
+
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SWorkJournalException;
+import org.bonitasoft.engine.core.process.instance.model.SWorkJournalEntry;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+
+/**
+ * Stores the {@link SWorkJournalEntry} of the works executed on flow nodes.
+ *
+ * @since 7.5.3
+ */
+public interface WorkJournalService {
+
+    /**
+     * Add an entry for a work executed on the given flow node
+     *
+     * @param flowNodeInstanceId
+     *        id of the flow node the work is executed on
+     * @return the id of the created entry
+     * @throws SWorkJournalException
+     */
+    long addEntry(long flowNodeInstanceId) throws SWorkJournalException;
+
+    /**
+     * @param entryIds
+     *        ids of the entries to remove
+     * @throws SWorkJournalException
+     */
+    void removeEntries(List<Long> entryIds) throws SWorkJournalException;
+
+    /**
+     * Remove all entries of the tenant, including the marker telling the journal is complete
+     *
+     * @throws SWorkJournalException
+     */
+    void removeAllEntries() throws SWorkJournalException;
+
+    /**
+     * @return true if the marker telling that the journal contains all works registered since the last start of the tenant exists
+     * @throws SBonitaReadException
+     */
+    boolean isComplete() throws SBonitaReadException;
+
+    /**
+     * Add the marker telling the journal contains all works registered since the last start of the tenant
+     *
+     * @throws SWorkJournalException
+     */
+    void markComplete() throws SWorkJournalException;
+
+    /**
+     * Get ids of flow nodes having an entry in the journal and being in a state that requires to be restarted, i.e. the flow nodes
+     * returned by {@link FlowNodeInstanceService#getFlowNodeInstanceIdsToRestart(QueryOptions)} that have an entry in the journal.
+     *
+     * @param queryOptions
+     * @return the ids of the flow nodes to restart
+     * @throws SBonitaReadException
+     */
+    List<Long> getFlowNodeInstanceIdsToRestart(QueryOptions queryOptions) throws SBonitaReadException;
+
+}
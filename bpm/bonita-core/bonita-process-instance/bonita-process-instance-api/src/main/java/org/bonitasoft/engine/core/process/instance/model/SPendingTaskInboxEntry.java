@@ -0,0 +1,38 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.model;
+
+import org.bonitasoft.engine.persistence.PersistentObject;
+
+/**
+ * Entry of the pending task inbox: the user is a candidate of the human task through its pending mappings, i.e. the task is pending for the
+ * user as long as it is not assigned.
+ * The entry having a user id and an activity id of {@link #BUILT_INBOX_MARKER} means the inbox was built from the pending mappings and is
+ * maintained since then.
+ */
+public interface SPendingTaskInboxEntry extends PersistentObject {
+
+    long BUILT_INBOX_MARKER = -1L;
+
+    /**
+     * the id of the candidate user
+     */
+    long getUserId();
+
+    /**
+     * the id of the human task instance
+     */
+    long getActivityId();
+
+}
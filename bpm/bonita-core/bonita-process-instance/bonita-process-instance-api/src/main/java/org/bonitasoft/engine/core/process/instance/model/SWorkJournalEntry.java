@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.model;
+
+import org.bonitasoft.engine.persistence.PersistentObject;
+
+/**
+ * Entry of the work journal: a work targeting the flow node was registered and is not known to be executed yet.
+ * The entry having a flow node instance id of {@link #COMPLETE_JOURNAL_MARKER} means the journal contains all works registered since the
+ * last start of the tenant.
+ */
+public interface SWorkJournalEntry extends PersistentObject {
+
+    long COMPLETE_JOURNAL_MARKER = -1L;
+
+    /**
+     * the id of the flow node the work is executed on
+     */
+    long getFlowNodeInstanceId();
+
+}
@@ -29,6 +29,7 @@ import org.bonitasoft.engine.core.connector.ConnectorInstanceService;
 import org.bonitasoft.engine.core.connector.exception.SConnectorInstanceDeletionException;
 import org.bonitasoft.engine.core.process.definition.model.SFlowNodeType;
 import org.bonitasoft.engine.core.process.instance.api.ActivityInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SActivityCreationException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SActivityInstanceNotFoundException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SActivityModificationException;
@@ -116,6 +117,8 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
 
     private static final String WHOCANSTART_PENDING_TASK_SUFFIX = "WhoCanStartPendingTask";
 
+    private static final String FROM_PENDING_TASK_INBOX = "FromInbox";
+
     private static final int BATCH_SIZE = 100;
 
     private final SUserTaskInstanceBuilderFactory sUserTaskInstanceBuilder;
@@ -126,12 +129,21 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
 
     private final ConnectorInstanceService connectorInstanceService;
 
+    private final PendingTaskInboxService pendingTaskInboxService;
+
     public ActivityInstanceServiceImpl(final Recorder recorder, final PersistenceService persistenceService, final ArchiveService archiveService,
             final DataInstanceService dataInstanceService, final ConnectorInstanceService connectorInstanceService, final EventService eventService,
             final TechnicalLoggerService logger) {
+        this(recorder, persistenceService, archiveService, dataInstanceService, connectorInstanceService, eventService, logger, null);
+    }
+
+    public ActivityInstanceServiceImpl(final Recorder recorder, final PersistenceService persistenceService, final ArchiveService archiveService,
+            final DataInstanceService dataInstanceService, final ConnectorInstanceService connectorInstanceService, final EventService eventService,
+            final TechnicalLoggerService logger, final PendingTaskInboxService pendingTaskInboxService) {
         super(recorder, persistenceService, eventService, logger, archiveService);
         this.dataInstanceService = dataInstanceService;
         this.connectorInstanceService = connectorInstanceService;
+        this.pendingTaskInboxService = pendingTaskInboxService;
         sUserTaskInstanceBuilder = BuilderFactory.get(SUserTaskInstanceBuilderFactory.class);
         sMultiInstanceActivityInstanceBuilder = BuilderFactory.get(SMultiInstanceActivityInstanceBuilderFactory.class);
     }
@@ -603,7 +615,8 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
         }
         // get number of pending overdue open tasks for each user
         for (final Long userId : userIds) {
-            final long pendingCount = getPersistenceService().selectOne(SelectDescriptorBuilder.getNumberOfPendingOverdueOpenTasksForUser(userId));
+            final long pendingCount = getPersistenceService().selectOne(
+                    SelectDescriptorBuilder.getNumberOfPendingOverdueOpenTasksForUser(userId, isPendingTaskInboxReady()));
             if (!userTaskNumbermap.containsKey(userId)) {
                 userTaskNumbermap.put(userId, pendingCount);
             } else {
@@ -739,25 +752,37 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
     @Override
     public long getNumberOfPendingTasksForUser(final long userId, final QueryOptions searchOptions) throws SBonitaReadException {
         final Map<String, Object> parameters = Collections.singletonMap("userId", (Object) userId);
-        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, PENDING_FOR_USER, searchOptions, parameters);
+        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, fromPendingTaskInbox(PENDING_FOR_USER), searchOptions, parameters);
     }
 
     @Override
     public List<SHumanTaskInstance> searchPendingTasksForUser(final long userId, final QueryOptions searchOptions) throws SBonitaReadException {
         final Map<String, Object> parameters = Collections.singletonMap("userId", (Object) userId);
-        return getPersistenceService().searchEntity(SHumanTaskInstance.class, PENDING_FOR_USER, searchOptions, parameters);
+        return getPersistenceService().searchEntity(SHumanTaskInstance.class, fromPendingTaskInbox(PENDING_FOR_USER), searchOptions, parameters);
     }
 
     @Override
     public long getNumberOfPendingOrAssignedTasks(final long userId, final QueryOptions searchOptions) throws SBonitaReadException {
         final Map<String, Object> parameters = Collections.singletonMap("userId", (Object) userId);
-        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, PENDING_OR_ASSIGNED, searchOptions, parameters);
+        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, fromPendingTaskInbox(PENDING_OR_ASSIGNED), searchOptions, parameters);
     }
 
     @Override
     public List<SHumanTaskInstance> searchPendingOrAssignedTasks(final long userId, final QueryOptions searchOptions) throws SBonitaReadException {
         final Map<String, Object> parameters = Collections.singletonMap("userId", (Object) userId);
-        return getPersistenceService().searchEntity(SHumanTaskInstance.class, PENDING_OR_ASSIGNED, searchOptions, parameters);
+        return getPersistenceService().searchEntity(SHumanTaskInstance.class, fromPendingTaskInbox(PENDING_OR_ASSIGNED), searchOptions, parameters);
+    }
+
+    /**
+     * The queries reading the pending tasks of a user from the pending task inbox are named after the ones resolving them from the pending
+     * mappings, with the {@value #FROM_PENDING_TASK_INBOX} suffix.
+     */
+    private String fromPendingTaskInbox(final String querySuffix) throws SBonitaReadException {
+        return isPendingTaskInboxReady() ? querySuffix + FROM_PENDING_TASK_INBOX : querySuffix;
+    }
+
+    private boolean isPendingTaskInboxReady() throws SBonitaReadException {
+        return pendingTaskInboxService != null && pendingTaskInboxService.isReady();
     }
 
     @Override
@@ -870,7 +895,7 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
         final Map<String, Object> parameters = new HashMap<String, Object>();
         parameters.put("userId", userId);
         parameters.put("rootProcessDefinitionId", rootProcessDefinitionId);
-        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, ASSIGNED_AND_PENDING_BY_ROOT_PROCESS_FOR, queryOptions, parameters);
+        return getPersistenceService().getNumberOfEntities(SHumanTaskInstance.class, fromPendingTaskInbox(ASSIGNED_AND_PENDING_BY_ROOT_PROCESS_FOR), queryOptions, parameters);
     }
 
     @Override
@@ -879,7 +904,7 @@ public class ActivityInstanceServiceImpl extends FlowNodeInstancesServiceImpl im
         final Map<String, Object> parameters = new HashMap<String, Object>();
         parameters.put("userId", userId);
         parameters.put("rootProcessDefinitionId", rootProcessDefinitionId);
-        return getPersistenceService().searchEntity(SHumanTaskInstance.class, ASSIGNED_AND_PENDING_BY_ROOT_PROCESS_FOR, queryOptions, parameters);
+        return getPersistenceService().searchEntity(SHumanTaskInstance.class, fromPendingTaskInbox(ASSIGNED_AND_PENDING_BY_ROOT_PROCESS_FOR), queryOptions, parameters);
     }
 
     @Override
@@ -16,15 +16,20 @@ package org.bonitasoft.engine.core.process.instance.impl;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.bonitasoft.engine.builder.BuilderFactory;
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
 import org.bonitasoft.engine.core.process.definition.model.SFlowElementContainerDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SFlowNodeDefinition;
+import org.bonitasoft.engine.core.process.definition.model.SGatewayDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SProcessDefinition;
 import org.bonitasoft.engine.core.process.definition.model.STransitionDefinition;
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
@@ -45,8 +50,6 @@ import org.bonitasoft.engine.events.model.SUpdateEvent;
 import org.bonitasoft.engine.events.model.builders.SEventBuilderFactory;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
-import org.bonitasoft.engine.persistence.FilterOption;
-import org.bonitasoft.engine.persistence.OrderByOption;
 import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.persistence.ReadPersistenceService;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
@@ -149,38 +152,34 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
             return false;
         }
         SFlowElementContainerDefinition processContainer = sDefinition.getProcessContainer();
-        SFlowNodeDefinition gatewayDefinition = processContainer.getFlowNode(gatewayInstance.getFlowNodeDefinitionId());
+        SGatewayDefinition gatewayDefinition = (SGatewayDefinition) processContainer.getFlowNode(gatewayInstance.getFlowNodeDefinitionId());
         long processInstanceId = gatewayInstance.getParentContainerId();
 
-        List<String> hitByTransitionList = getHitByTransitionList(gatewayInstance);
-        List<STransitionDefinition> incomingTransitions = gatewayDefinition.getIncomingTransitions();
-        List<STransitionDefinition> incomingWithTokens = new ArrayList<STransitionDefinition>();
-        List<STransitionDefinition> incomingWithoutTokens = new ArrayList<STransitionDefinition>();
-
-        for (int i = 0; i < incomingTransitions.size(); i++) {
-            STransitionDefinition currentTransition = incomingTransitions.get(i);
-            if (hitByTransitionList.contains(String.valueOf(i + 1))) {
-                incomingWithTokens.add(currentTransition);
+        BitSet hitByTransitions = getHitByTransitionIndexes(gatewayInstance);
+        /*
+            We compute the transitions that have a path to the gateway finishing with a token and the transitions that
+            does not have a path to the gateway finishing with a token, using the reachability indexed with the definition
+         */
+        BitSet finishWithAToken = new BitSet();
+        BitSet doesNotFinishWithAToken = new BitSet();
+        int numberOfIncomingTransitions = gatewayDefinition.getIncomingTransitions().size();
+        for (int i = 1; i <= numberOfIncomingTransitions; i++) {
+            if (hitByTransitions.get(i)) {
+                finishWithAToken.or(gatewayDefinition.getBackwardReachableTransitions(i));
             } else {
-                incomingWithoutTokens.add(currentTransition);
+                doesNotFinishWithAToken.or(gatewayDefinition.getBackwardReachableTransitions(i));
             }
         }
-        /*
-            We create two lists that will contain transition definitions that have a path to the gateway finishing with
-            a token and the list of transition that does not have a path to the gateway finishing with a token
-         */
-        List<STransitionDefinition> finishWithAToken = new ArrayList<STransitionDefinition>();
-        List<STransitionDefinition> doesNotFinishWithAToken = new ArrayList<STransitionDefinition>();
-
-        /*
-         * we calculate all transition definitions that can block the gateway
-         */
-        addBackwardReachableTransitions(processContainer, gatewayDefinition, incomingWithTokens, finishWithAToken, Collections.<STransitionDefinition>emptyList());
-        addBackwardReachableTransitions(processContainer, gatewayDefinition, incomingWithoutTokens, doesNotFinishWithAToken, finishWithAToken);
+        doesNotFinishWithAToken.andNot(finishWithAToken);
         /*
          * we check if one of the transitions that are 'blocking' contains a token in this process instance
          */
-        return !transitionsContainsAToken(doesNotFinishWithAToken, gatewayDefinition, processInstanceId, processContainer);
+        List<STransitionDefinition> upstreamTransitions = gatewayDefinition.getUpstreamTransitions();
+        List<STransitionDefinition> blockingTransitions = new ArrayList<STransitionDefinition>(doesNotFinishWithAToken.cardinality());
+        for (int i = doesNotFinishWithAToken.nextSetBit(0); i >= 0; i = doesNotFinishWithAToken.nextSetBit(i + 1)) {
+            blockingTransitions.add(upstreamTransitions.get(i));
+        }
+        return !transitionsContainsAToken(blockingTransitions, gatewayDefinition, processInstanceId, processContainer);
     }
 
     boolean transitionsContainsAToken(List<STransitionDefinition> transitions, SFlowNodeDefinition gatewayDefinition, long processInstanceId,
@@ -200,9 +199,7 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
             }
         }
         List<SFlowNodeDefinition> sourceAndTarget = extractElementThatAreSourceAndTarget(sourceElements, targetElements);
-        if (containsToken(processInstanceId, sourceAndTarget, null)) return true;
-        if (containsToken(processInstanceId, sourceElements, true)) return true;
-        if (containsToken(processInstanceId, targetElements, false)) return true;
+        if (containsToken(processInstanceId, sourceAndTarget, sourceElements, targetElements)) return true;
         logger.log(TAG, TechnicalLogSeverity.DEBUG, "No token to wait, gateway will fire");
         return false;
     }
@@ -222,63 +219,61 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
     }
 
     /**
+     * Check in a single query whether one of the given elements holds a token in the process instance
      *
      * @param processInstanceId
-     * @param elements
-     * @param shouldBeTerminal
-     *      is true is the element should be in state terminal
-     *      is false if it should not be in terminal
-     *      is null if it should be either in terminal or not
-     * @return
+     * @param sourceAndTarget
+     *        elements holding a token whether their instance is terminal or not
+     * @param sourceElements
+     *        elements holding a token only when their instance is terminal
+     * @param targetElements
+     *        elements holding a token only when their instance is not terminal
+     * @return true if one of the elements holds a token
      * @throws SBonitaReadException
      */
-    boolean containsToken(long processInstanceId, List<SFlowNodeDefinition> elements, Boolean shouldBeTerminal) throws SBonitaReadException {
-        for (SFlowNodeDefinition element : elements) {
-            List<SFlowNodeInstance> sFlowNodeInstances = getFlowNodes(processInstanceId, element);
-            for (SFlowNodeInstance sFlowNodeInstance : sFlowNodeInstances) {
-                if (shouldBeTerminal == null || (shouldBeTerminal ^ !sFlowNodeInstance.isTerminal())) {
-                    logger.log(TAG, TechnicalLogSeverity.DEBUG, "flow node " + sFlowNodeInstance.getName() + " contain a token, gateway not merged");
-                    return true;
-                }
+    boolean containsToken(long processInstanceId, List<SFlowNodeDefinition> sourceAndTarget, List<SFlowNodeDefinition> sourceElements,
+            List<SFlowNodeDefinition> targetElements) throws SBonitaReadException {
+        Set<String> sourceAndTargetNames = getNames(sourceAndTarget);
+        Set<String> sourceNames = getNames(sourceElements);
+        Set<String> targetNames = getNames(targetElements);
+        Set<String> names = new HashSet<String>(sourceAndTargetNames);
+        names.addAll(sourceNames);
+        names.addAll(targetNames);
+        if (names.isEmpty()) {
+            return false;
+        }
+        for (Map<String, Object> flowNodeToken : getFlowNodeTokens(processInstanceId, names)) {
+            String name = (String) flowNodeToken.get("name");
+            boolean terminal = (Boolean) flowNodeToken.get("terminal");
+            if (sourceAndTargetNames.contains(name) || (terminal ? sourceNames.contains(name) : targetNames.contains(name))) {
+                logger.log(TAG, TechnicalLogSeverity.DEBUG, "flow node " + name + " contain a token, gateway not merged");
+                return true;
             }
         }
         return false;
     }
 
-    private List<SFlowNodeInstance> getFlowNodes(long processInstanceId, SFlowNodeDefinition sourceElement) throws SBonitaReadException {
-        List<FilterOption> filters = new ArrayList<FilterOption>();
-        filters.add(new FilterOption(SFlowNodeInstance.class, "name", sourceElement.getName()));
-        filters.add(new FilterOption(SFlowNodeInstance.class, "parentContainerId", processInstanceId));
-        QueryOptions searchOptions = new QueryOptions(0, 20, Collections.<OrderByOption>emptyList(), filters, null);
-        return flowNodeInstanceService.searchFlowNodeInstances(
-                SFlowNodeInstance.class,
-                searchOptions);
+    private Set<String> getNames(List<SFlowNodeDefinition> elements) {
+        Set<String> names = new HashSet<String>(elements.size());
+        for (SFlowNodeDefinition element : elements) {
+            names.add(element.getName());
+        }
+        return names;
     }
 
-    void addBackwardReachableTransitions(SFlowElementContainerDefinition processContainer, SFlowNodeDefinition gatewayDefinition,
-                                                 List<STransitionDefinition> transitions, List<STransitionDefinition> backwardReachable, List<STransitionDefinition> notIn) {
-        for (STransitionDefinition sTransitionDefinition : transitions) {
-            if (!backwardReachable.contains(sTransitionDefinition) && !notIn.contains(sTransitionDefinition)) {
-                backwardReachable.add(sTransitionDefinition);
-                //if the source is the gateway we stop searching backward
-                SFlowNodeDefinition flowNode = processContainer.getFlowNode(sTransitionDefinition.getSource());
-                if (!flowNode.equals(gatewayDefinition)) {
-                    addBackwardReachableTransitions(processContainer, gatewayDefinition, flowNode.getIncomingTransitions(), backwardReachable, notIn);
-                }
-            }
-        }
+    private List<Map<String, Object>> getFlowNodeTokens(long processInstanceId, Set<String> names) throws SBonitaReadException {
+        final Map<String, Object> parameters = new HashMap<String, Object>(2);
+        parameters.put("parentContainerId", processInstanceId);
+        parameters.put("names", new ArrayList<String>(names));
+        SelectListDescriptor<Map<String, Object>> getFlowNodeTokens = new SelectListDescriptor<Map<String, Object>>("getFlowNodeTokensOfProcessInstance",
+                parameters, SFlowNodeInstance.class, new QueryOptions(0, QueryOptions.UNLIMITED_NUMBER_OF_RESULTS));
+        return persistenceRead.selectList(getFlowNodeTokens);
     }
 
     boolean isParallelGatewayActivated(final SProcessDefinition sDefinition, final SGatewayInstance gatewayInstance) {
-        final List<String> hitsBy = getHitByTransitionList(gatewayInstance);
+        final BitSet hitByTransitions = getHitByTransitionIndexes(gatewayInstance);
         final List<STransitionDefinition> trans = getTransitionDefinitions(gatewayInstance, sDefinition);
-        boolean go = true;
-        int i = 1;
-        while (go && i <= trans.size()) {
-            go = hitsBy.contains(String.valueOf(i));
-            i++;
-        }
-        return go;
+        return hitByTransitions.nextClearBit(1) > trans.size();
     }
 
     /**
@@ -288,6 +283,31 @@ public class GatewayInstanceServiceImpl implements GatewayInstanceService {
         return Arrays.asList(gatewayInstance.getHitBys().split(","));
     }
 
+    /**
+     * @return the indexes of the transitions that hit the gateway, a transition hitting it several times being set once
+     */
+    BitSet getHitByTransitionIndexes(final SGatewayInstance gatewayInstance) {
+        final BitSet hitByTransitions = new BitSet();
+        final String hitBys = gatewayInstance.getHitBys();
+        if (hitBys == null || gatewayInstance.isFinished()) {
+            return hitByTransitions;
+        }
+        int transitionIndex = 0;
+        for (int i = 0; i < hitBys.length(); i++) {
+            final char c = hitBys.charAt(i);
+            if (c == ',') {
+                hitByTransitions.set(transitionIndex);
+                transitionIndex = 0;
+            } else {
+                transitionIndex = transitionIndex * 10 + c - '0';
+            }
+        }
+        if (!hitBys.isEmpty()) {
+            hitByTransitions.set(transitionIndex);
+        }
+        return hitByTransitions;
+    }
+
     protected List<STransitionDefinition> getTransitionDefinitions(final SGatewayInstance gatewayInstance, final SProcessDefinition processDefinition) {
         final SFlowElementContainerDefinition processContainer = processDefinition.getProcessContainer();
         final SFlowNodeDefinition gatewayDefinition = processContainer.getFlowNode(gatewayInstance.getFlowNodeDefinitionId());
@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SPendingTaskInboxException;
+import org.bonitasoft.engine.core.process.instance.model.SPendingActivityMapping;
+import org.bonitasoft.engine.core.process.instance.model.SPendingTaskInboxEntry;
+import org.bonitasoft.engine.core.process.instance.model.impl.SPendingTaskInboxEntryImpl;
+import org.bonitasoft.engine.persistence.FilterOption;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.services.SPersistenceException;
+
+/**
+ * Entries are written directly using the {@link PersistenceService}: like the pending mappings they are derived from, they are neither
+ * recorded nor archived.
+ */
+public class PendingTaskInboxServiceImpl implements PendingTaskInboxService {
+
+    static final int BATCH_SIZE = 100;
+
+    private final PersistenceService persistenceService;
+
+    private final boolean enabled;
+
+    private volatile boolean built;
+
+    public PendingTaskInboxServiceImpl(final PersistenceService persistenceService, final boolean enabled) {
+        this.persistenceService = persistenceService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public boolean isReady() throws SBonitaReadException {
+        if (!enabled) {
+            return false;
+        }
+        if (!built) {
+            // the marker is only removed by clear(), so it is enough to look for it until it is found
+            built = getNumberOfEntriesOfTask(SPendingTaskInboxEntry.BUILT_INBOX_MARKER) > 0;
+        }
+        return built;
+    }
+
+    @Override
+    public void updateTask(final long humanTaskInstanceId) throws SPendingTaskInboxException {
+        try {
+            deleteEntries("activityId", humanTaskInstanceId);
+            insertEntriesOfTask(humanTaskInstanceId);
+        } catch (final SBonitaReadException | SPersistenceException e) {
+            throw new SPendingTaskInboxException("Unable to update the candidates of human task " + humanTaskInstanceId + " in the pending task inbox", e);
+        }
+    }
+
+    /**
+     * Only the entries of the users of the member on the tasks of its actor that are missing are inserted, the other candidates are left untouched.
+     */
+    @Override
+    public void addActorMember(final long actorId, final long userId, final long groupId, final long roleId) throws SPendingTaskInboxException {
+        try {
+            // all the missing entries are read before inserting any, the query pages over the entries that are not in the inbox yet
+            final List<Map<String, Long>> missingEntries = getAll("getMissingPendingTaskInboxEntriesOfActorMember",
+                    actorMemberParameters(actorId, userId, groupId, roleId));
+            List<PersistentObject> entries = new ArrayList<PersistentObject>();
+            for (final Map<String, Long> missingEntry : missingEntries) {
+                entries.add(new SPendingTaskInboxEntryImpl(missingEntry.get("userId"), missingEntry.get("activityId")));
+                if (entries.size() == BATCH_SIZE) {
+                    insert(entries);
+                    entries = new ArrayList<PersistentObject>();
+                }
+            }
+            insert(entries);
+        } catch (final SBonitaReadException | SPersistenceException e) {
+            throw new SPendingTaskInboxException("Unable to add the users of a member of actor " + actorId + " to the pending task inbox", e);
+        }
+    }
+
+    /**
+     * Only the entries of the users of the member on the tasks of its actor they are no longer candidates of are deleted, the other candidates are left
+     * untouched.
+     */
+    @Override
+    public void removeActorMember(final long actorId, final long userId, final long groupId, final long roleId) throws SPendingTaskInboxException {
+        try {
+            final List<Long> entryIds = getAllIds("getStalePendingTaskInboxEntryIdsOfActorMember", actorMemberParameters(actorId, userId, groupId, roleId));
+            for (int fromIndex = 0; fromIndex < entryIds.size(); fromIndex += BATCH_SIZE) {
+                final List<Long> batch = entryIds.subList(fromIndex, Math.min(fromIndex + BATCH_SIZE, entryIds.size()));
+                persistenceService.deleteByTenant(SPendingTaskInboxEntry.class,
+                        Collections.singletonList(new FilterOption(SPendingTaskInboxEntry.class, "id").in(new ArrayList<Long>(batch))));
+            }
+        } catch (final SBonitaReadException | SPersistenceException e) {
+            throw new SPendingTaskInboxException("Unable to remove the users of a member of actor " + actorId + " from the pending task inbox", e);
+        }
+    }
+
+    @Override
+    public void updateUser(final long userId) throws SPendingTaskInboxException {
+        final Map<String, Object> parameters = Collections.<String, Object> singletonMap("userId", userId);
+        try {
+            deleteEntries("userId", userId);
+            List<PersistentObject> entries = new ArrayList<PersistentObject>();
+            for (final Long humanTaskInstanceId : getAllIds("getHumanTaskInstanceIdsHavingPendingMappingsForUser", parameters)) {
+                entries.add(new SPendingTaskInboxEntryImpl(userId, humanTaskInstanceId));
+                if (entries.size() == BATCH_SIZE) {
+                    insert(entries);
+                    entries = new ArrayList<PersistentObject>();
+                }
+            }
+            insert(entries);
+        } catch (final SBonitaReadException | SPersistenceException e) {
+            throw new SPendingTaskInboxException("Unable to update the pending tasks of user " + userId + " in the pending task inbox", e);
+        }
+    }
+
+    @Override
+    public int rebuild() throws SPendingTaskInboxException {
+        clear();
+        int numberOfEntries = 0;
+        try {
+            List<Long> humanTaskInstanceIds;
+            int fromIndex = 0;
+            do {
+                humanTaskInstanceIds = persistenceService.selectList(new SelectListDescriptor<Long>("getHumanTaskInstanceIdsHavingPendingMappings", null,
+                        SPendingActivityMapping.class, Long.class, new QueryOptions(fromIndex, BATCH_SIZE)));
+                for (final Long humanTaskInstanceId : humanTaskInstanceIds) {
+                    numberOfEntries += insertEntriesOfTask(humanTaskInstanceId);
+                }
+                fromIndex += BATCH_SIZE;
+            } while (humanTaskInstanceIds.size() == BATCH_SIZE);
+            persistenceService.insert(new SPendingTaskInboxEntryImpl(SPendingTaskInboxEntry.BUILT_INBOX_MARKER, SPendingTaskInboxEntry.BUILT_INBOX_MARKER));
+        } catch (final SBonitaReadException | SPersistenceException e) {
+            throw new SPendingTaskInboxException("Unable to rebuild the pending task inbox", e);
+        }
+        built = true;
+        return numberOfEntries;
+    }
+
+    @Override
+    public void clear() throws SPendingTaskInboxException {
+        try {
+            persistenceService.deleteByTenant(SPendingTaskInboxEntry.class, Collections.<FilterOption> emptyList());
+        } catch (final SPersistenceException e) {
+            throw new SPendingTaskInboxException("Unable to clear the pending task inbox", e);
+        }
+        built = false;
+    }
+
+    private int insertEntriesOfTask(final long humanTaskInstanceId) throws SBonitaReadException, SPersistenceException {
+        final Map<String, Object> parameters = Collections.<String, Object> singletonMap("humanTaskInstanceId", humanTaskInstanceId);
+        int numberOfEntries = 0;
+        List<Long> userIds;
+        int fromIndex = 0;
+        do {
+            userIds = persistenceService.selectList(new SelectListDescriptor<Long>("getCandidateUserIdsOfHumanTask", parameters,
+                    SPendingActivityMapping.class, Long.class, new QueryOptions(fromIndex, BATCH_SIZE)));
+            final List<PersistentObject> entries = new ArrayList<PersistentObject>(userIds.size());
+            for (final Long userId : userIds) {
+                entries.add(new SPendingTaskInboxEntryImpl(userId, humanTaskInstanceId));
+            }
+            insert(entries);
+            numberOfEntries += userIds.size();
+            fromIndex += BATCH_SIZE;
+        } while (userIds.size() == BATCH_SIZE);
+        return numberOfEntries;
+    }
+
+    private Map<String, Object> actorMemberParameters(final long actorId, final long userId, final long groupId, final long roleId) {
+        final Map<String, Object> parameters = new HashMap<String, Object>(4);
+        parameters.put("actorId", actorId);
+        parameters.put("userId", userId);
+        parameters.put("groupId", groupId);
+        parameters.put("roleId", roleId);
+        return parameters;
+    }
+
+    private List<Long> getAllIds(final String queryName, final Map<String, Object> parameters) throws SBonitaReadException {
+        return getAll(queryName, parameters);
+    }
+
+    private <T> List<T> getAll(final String queryName, final Map<String, Object> parameters) throws SBonitaReadException {
+        final List<T> all = new ArrayList<T>();
+        List<T> page;
+        int fromIndex = 0;
+        do {
+            page = persistenceService.selectList(new SelectListDescriptor<T>(queryName, parameters, SPendingActivityMapping.class,
+                    new QueryOptions(fromIndex, BATCH_SIZE)));
+            all.addAll(page);
+            fromIndex += BATCH_SIZE;
+        } while (page.size() == BATCH_SIZE);
+        return all;
+    }
+
+    private long getNumberOfEntriesOfTask(final long humanTaskInstanceId) throws SBonitaReadException {
+        final Map<String, Object> parameters = Collections.<String, Object> singletonMap("humanTaskInstanceId", humanTaskInstanceId);
+        final Long count = persistenceService.selectOne(new SelectOneDescriptor<Long>("getNumberOfPendingTaskInboxEntriesOfHumanTask", parameters,
+                SPendingTaskInboxEntry.class, Long.class));
+        return count == null ? 0 : count;
+    }
+
+    private void deleteEntries(final String fieldName, final long value) throws SPersistenceException {
+        persistenceService.deleteByTenant(SPendingTaskInboxEntry.class,
+                Collections.singletonList(new FilterOption(SPendingTaskInboxEntry.class, fieldName, value)));
+    }
+
+    private void insert(final List<PersistentObject> entries) throws SPersistenceException {
+        if (!entries.isEmpty()) {
+            persistenceService.insertInBatch(entries);
+        }
+    }
+
+}
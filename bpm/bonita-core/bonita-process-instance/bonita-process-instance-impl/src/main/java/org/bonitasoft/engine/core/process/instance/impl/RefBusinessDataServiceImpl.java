@@ -231,6 +231,23 @@ public class RefBusinessDataServiceImpl implements RefBusinessDataService {
         }
     }
 
+    @Override
+    public void archiveRefBusinessDataInstances(final List<SRefBusinessDataInstance> businessDataInstances) throws SObjectModificationException {
+        if (businessDataInstances.isEmpty() || !archiveService.isArchivable(SRefBusinessDataInstance.class)) {
+            return;
+        }
+        final ArchiveInsertRecord[] archiveInsertRecords = new ArchiveInsertRecord[businessDataInstances.size()];
+        for (int i = 0; i < archiveInsertRecords.length; i++) {
+            archiveInsertRecords[i] = new ArchiveInsertRecord(BuilderFactory.get(SARefBusinessDataInstanceBuilderFactory.class)
+                    .createNewInstance(businessDataInstances.get(i)).done());
+        }
+        try {
+            archiveService.recordInserts(0L, archiveInsertRecords);
+        } catch (final SRecorderException e) {
+            throw new SObjectModificationException("Unable to archive RefBusinessDataInstances", e);
+        }
+    }
+
     @Override
     public void deleteArchivedRefBusinessDataInstance(long processInstanceId) throws SObjectModificationException {
         try {
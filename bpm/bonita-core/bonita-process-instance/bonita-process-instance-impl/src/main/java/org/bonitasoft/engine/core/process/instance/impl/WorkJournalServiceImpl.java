@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.core.process.instance.api.WorkJournalService;
+import org.bonitasoft.engine.core.process.instance.api.exceptions.SWorkJournalException;
+import org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstance;
+import org.bonitasoft.engine.core.process.instance.model.SWorkJournalEntry;
+import org.bonitasoft.engine.core.process.instance.model.impl.SWorkJournalEntryImpl;
+import org.bonitasoft.engine.persistence.QueryOptions;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.services.SPersistenceException;
+
+/**
+ * Entries are written directly using the {@link PersistenceService}: they are technical data that is neither recorded nor archived.
+ */
+public class WorkJournalServiceImpl implements WorkJournalService {
+
+    private final PersistenceService persistenceService;
+
+    public WorkJournalServiceImpl(final PersistenceService persistenceService) {
+        this.persistenceService = persistenceService;
+    }
+
+    @Override
+    public long addEntry(final long flowNodeInstanceId) throws SWorkJournalException {
+        final SWorkJournalEntryImpl entry = new SWorkJournalEntryImpl(flowNodeInstanceId);
+        try {
+            persistenceService.insert(entry);
+        } catch (final SPersistenceException e) {
+            throw new SWorkJournalException("Unable to add an entry for flow node " + flowNodeInstanceId + " in the work journal", e);
+        }
+        return entry.getId();
+    }
+
+    @Override
+    public void removeEntries(final List<Long> entryIds) throws SWorkJournalException {
+        try {
+            persistenceService.delete(entryIds, SWorkJournalEntry.class);
+        } catch (final SPersistenceException e) {
+            throw new SWorkJournalException("Unable to remove entries " + entryIds + " of the work journal", e);
+        }
+    }
+
+    @Override
+    public void removeAllEntries() throws SWorkJournalException {
+        try {
+            persistenceService.deleteAll(SWorkJournalEntry.class);
+        } catch (final SPersistenceException e) {
+            throw new SWorkJournalException("Unable to clear the work journal", e);
+        }
+    }
+
+    @Override
+    public boolean isComplete() throws SBonitaReadException {
+        final Map<String, Object> parameters = Collections.<String, Object> singletonMap("flowNodeInstanceId",
+                SWorkJournalEntry.COMPLETE_JOURNAL_MARKER);
+        final Long count = persistenceService.selectOne(new SelectOneDescriptor<Long>("getNumberOfWorkJournalEntriesOfFlowNode", parameters,
+                SWorkJournalEntry.class));
+        return count != null && count > 0;
+    }
+
+    @Override
+    public void markComplete() throws SWorkJournalException {
+        addEntry(SWorkJournalEntry.COMPLETE_JOURNAL_MARKER);
+    }
+
+    @Override
+    public List<Long> getFlowNodeInstanceIdsToRestart(final QueryOptions queryOptions) throws SBonitaReadException {
+        return persistenceService.selectList(new SelectListDescriptor<Long>("getFlowNodeInstanceIdsToRestartFromWorkJournal", null,
+                SFlowNodeInstance.class, queryOptions));
+    }
+
+}
@@ -293,11 +293,12 @@ public class SelectDescriptorBuilder {
         return new SelectListDescriptor<>("getNumbersOfAssignedOverdueTasksForUsers", parameters, SHumanTaskInstance.class, queryOptions);
     }
 
-    public static SelectOneDescriptor<Long> getNumberOfPendingOverdueOpenTasksForUser(final Long userId) {
+    public static SelectOneDescriptor<Long> getNumberOfPendingOverdueOpenTasksForUser(final Long userId, final boolean fromPendingTaskInbox) {
         final Map<String, Object> parameters = new HashMap<>(2);
         parameters.put("userId", userId);
         parameters.put("currentTime", System.currentTimeMillis());
-        return new SelectOneDescriptor<>("getNumberOfPendingOverdueTasksForUser", parameters, SHumanTaskInstance.class, Long.class);
+        final String queryName = fromPendingTaskInbox ? "getNumberOfPendingOverdueTasksForUserFromInbox" : "getNumberOfPendingOverdueTasksForUser";
+        return new SelectOneDescriptor<>(queryName, parameters, SHumanTaskInstance.class, Long.class);
     }
 
     public static SelectOneDescriptor<Long> getNumberOfTokensOfProcessInstance(final long processInstanceId) {
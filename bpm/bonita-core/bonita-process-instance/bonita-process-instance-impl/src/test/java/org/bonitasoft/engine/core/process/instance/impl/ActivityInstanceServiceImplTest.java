@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
+import org.bonitasoft.engine.core.process.instance.api.PendingTaskInboxService;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SActivityReadException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SFlowNodeModificationException;
 import org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstance;
@@ -70,6 +71,9 @@ public class ActivityInstanceServiceImplTest {
     @Mock
     private TechnicalLoggerService logger;
 
+    @Mock
+    private PendingTaskInboxService pendingTaskInboxService;
+
     @InjectMocks
     private ActivityInstanceServiceImpl activityInstanceServiceImpl;
 
@@ -193,6 +197,27 @@ public class ActivityInstanceServiceImplTest {
         assertNotNull(result);
     }
 
+    @Test
+    public void searchAssignedAndPendingHumanTasksFor_should_read_from_pending_task_inbox_when_it_is_ready() throws Exception {
+        // Given
+        final long rootProcessDefinitionId = 10;
+        final long userId = 6;
+        final QueryOptions options = new QueryOptions(0, 10);
+        final Map<String, Object> parameters = new HashMap<String, Object>();
+        parameters.put("userId", userId);
+        parameters.put("rootProcessDefinitionId", rootProcessDefinitionId);
+        when(pendingTaskInboxService.isReady()).thenReturn(true);
+        when(persistenceService.searchEntity(SHumanTaskInstance.class, "AssignedAndPendingByRootProcessForFromInbox", options, parameters)).thenReturn(
+                new ArrayList<SHumanTaskInstance>());
+
+        // When
+        final List<SHumanTaskInstance> result = activityInstanceServiceImpl.searchAssignedAndPendingHumanTasksFor(rootProcessDefinitionId, userId, options);
+
+        // Then
+        assertNotNull(result);
+        verify(persistenceService).searchEntity(SHumanTaskInstance.class, "AssignedAndPendingByRootProcessForFromInbox", options, parameters);
+    }
+
     @Test(expected = SBonitaReadException.class)
     public void searchAssignedAndPendingHumanTasksForThrowException() throws Exception {
         // Given
@@ -17,19 +17,22 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyLong;
-import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.engine.core.process.definition.model.SFlowElementContainerDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SFlowNodeDefinition;
+import org.bonitasoft.engine.core.process.definition.model.SGatewayDefinition;
 import org.bonitasoft.engine.core.process.definition.model.SGatewayType;
 import org.bonitasoft.engine.core.process.definition.model.SProcessDefinition;
 import org.bonitasoft.engine.core.process.definition.model.STransitionDefinition;
@@ -39,19 +42,15 @@ import org.bonitasoft.engine.core.process.definition.model.impl.STransitionDefin
 import org.bonitasoft.engine.core.process.definition.model.impl.SUserTaskDefinitionImpl;
 import org.bonitasoft.engine.core.process.instance.api.FlowNodeInstanceService;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.SGatewayModificationException;
-import org.bonitasoft.engine.core.process.instance.model.SFlowNodeInstance;
 import org.bonitasoft.engine.core.process.instance.model.SGatewayInstance;
 import org.bonitasoft.engine.core.process.instance.model.impl.SGatewayInstanceImpl;
-import org.bonitasoft.engine.core.process.instance.model.impl.SUserTaskInstanceImpl;
 import org.bonitasoft.engine.core.process.instance.recorder.SelectDescriptorBuilder;
 import org.bonitasoft.engine.events.EventService;
 import org.bonitasoft.engine.events.model.SUpdateEvent;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
-import org.bonitasoft.engine.persistence.FilterOption;
-import org.bonitasoft.engine.persistence.OrderByOption;
-import org.bonitasoft.engine.persistence.QueryOptions;
 import org.bonitasoft.engine.persistence.ReadPersistenceService;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.SRecorderException;
 import org.bonitasoft.engine.recorder.model.UpdateRecord;
@@ -60,9 +59,12 @@ import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class GatewayInstanceServiceImplTest {
@@ -86,6 +88,8 @@ public class GatewayInstanceServiceImplTest {
     @Spy
     private GatewayInstanceServiceImpl gatewayInstanceService;
 
+    private final List<Map<String, Object>> flowNodeTokens = new ArrayList<>();
+
     @Test
     public void should_extractElementThatAreSourceAndTarget_modify_the_lists() {
         SFlowNodeDefinition step1 = node(1, "step1");
@@ -112,7 +116,8 @@ public class GatewayInstanceServiceImplTest {
         instanceInDatabase("step1", PROCESS_INSTANCE_ID, false);
         instanceInDatabase("step2", PROCESS_INSTANCE_ID, true);
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), true);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, Collections.<SFlowNodeDefinition> emptyList(),
+                flowNodeDefList("step0", "step1", "step2"), Collections.<SFlowNodeDefinition> emptyList());
 
         assertThat(containsToken).isTrue();
     }
@@ -122,7 +127,8 @@ public class GatewayInstanceServiceImplTest {
         instanceInDatabase("step1", PROCESS_INSTANCE_ID, false);
         instanceInDatabase("step2", PROCESS_INSTANCE_ID, false);
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), true);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, Collections.<SFlowNodeDefinition> emptyList(),
+                flowNodeDefList("step0", "step1", "step2"), Collections.<SFlowNodeDefinition> emptyList());
 
         assertThat(containsToken).isFalse();
     }
@@ -132,7 +138,8 @@ public class GatewayInstanceServiceImplTest {
         instanceInDatabase("step1", PROCESS_INSTANCE_ID, true);
         instanceInDatabase("step2", PROCESS_INSTANCE_ID, false);
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), false);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, Collections.<SFlowNodeDefinition> emptyList(),
+                Collections.<SFlowNodeDefinition> emptyList(), flowNodeDefList("step0", "step1", "step2"));
 
         assertThat(containsToken).isTrue();
     }
@@ -142,7 +149,8 @@ public class GatewayInstanceServiceImplTest {
         instanceInDatabase("step1", PROCESS_INSTANCE_ID, true);
         instanceInDatabase("step2", PROCESS_INSTANCE_ID, true);
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), false);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, Collections.<SFlowNodeDefinition> emptyList(),
+                Collections.<SFlowNodeDefinition> emptyList(), flowNodeDefList("step0", "step1", "step2"));
 
         assertThat(containsToken).isFalse();
     }
@@ -151,7 +159,8 @@ public class GatewayInstanceServiceImplTest {
     public void should_containsToken_for_both_element_with_token_return_true1() throws Exception {
         instanceInDatabase("step2", PROCESS_INSTANCE_ID, true);
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), null);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"),
+                Collections.<SFlowNodeDefinition> emptyList(), Collections.<SFlowNodeDefinition> emptyList());
 
         assertThat(containsToken).isTrue();
     }
@@ -160,7 +169,8 @@ public class GatewayInstanceServiceImplTest {
     public void should_containsToken_for_both_element_with_token_return_true2() throws Exception {
         instanceInDatabase("step2", PROCESS_INSTANCE_ID, false);
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), null);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"),
+                Collections.<SFlowNodeDefinition> emptyList(), Collections.<SFlowNodeDefinition> emptyList());
 
         assertThat(containsToken).isTrue();
     }
@@ -168,7 +178,8 @@ public class GatewayInstanceServiceImplTest {
     @Test
     public void should_containsToken_for_both_element_with_no_token_return_false() throws Exception {
 
-        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"), null);
+        boolean containsToken = gatewayInstanceService.containsToken(PROCESS_INSTANCE_ID, flowNodeDefList("step0", "step1", "step2"),
+                Collections.<SFlowNodeDefinition> emptyList(), Collections.<SFlowNodeDefinition> emptyList());
 
         assertThat(containsToken).isFalse();
     }
@@ -182,17 +193,26 @@ public class GatewayInstanceServiceImplTest {
     }
 
     private void instanceInDatabase(String name, long processInstanceId, boolean terminal) throws Exception {
-        List<FilterOption> filters = new ArrayList<>();
-        filters.add(new FilterOption(SFlowNodeInstance.class, "name", name));
-        filters.add(new FilterOption(SFlowNodeInstance.class, "parentContainerId", processInstanceId));
-        QueryOptions searchOptions = new QueryOptions(0, 20, Collections.<OrderByOption>emptyList(), filters, null);
-        SUserTaskInstanceImpl sUserTaskInstance = new SUserTaskInstanceImpl();
-        sUserTaskInstance.setName(name);
-        sUserTaskInstance.setTerminal(terminal);
-        doReturn(Arrays.asList(sUserTaskInstance)).when(flowNodeInstanceService).searchFlowNodeInstances(
-                SFlowNodeInstance.class,
-                searchOptions);
-
+        Map<String, Object> flowNodeToken = new HashMap<>();
+        flowNodeToken.put("name", name);
+        flowNodeToken.put("parentContainerId", processInstanceId);
+        flowNodeToken.put("terminal", terminal);
+        flowNodeTokens.add(flowNodeToken);
+        doAnswer(new Answer<List<Map<String, Object>>>() {
+
+            @Override
+            public List<Map<String, Object>> answer(InvocationOnMock invocation) {
+                SelectListDescriptor<?> descriptor = (SelectListDescriptor<?>) invocation.getArguments()[0];
+                List<Map<String, Object>> result = new ArrayList<>();
+                for (Map<String, Object> token : flowNodeTokens) {
+                    if (((List<?>) descriptor.getInputParameter("names")).contains(token.get("name"))
+                            && token.get("parentContainerId").equals(descriptor.getInputParameter("parentContainerId"))) {
+                        result.add(token);
+                    }
+                }
+                return result;
+            }
+        }).when(persistenceRead).selectList(Matchers.<SelectListDescriptor<Map<String, Object>>> any());
     }
 
     @Test
@@ -296,43 +316,6 @@ public class GatewayInstanceServiceImplTest {
         assertThat(containsAToken).isFalse();
     }
 
-    @Test
-    public void should_addBackwardReachableTransitions_complete_list() {
-        SFlowNodeDefinition gate = node(666, "gate");
-        node(1, "stepa1");
-        node(2, "stepa2");
-        transition(1, 2);
-        node(3, "stepa3");
-        transition(2, 3);
-        node(4, "stepb4");
-        node(5, "stepb5");
-        node(6, "stepb6");
-        transition(5, 6);
-        transition(4, 6);
-        List<STransitionDefinition> startTransition = Arrays.asList(transition(6, 666), transition(3, 666));
-        List<STransitionDefinition> toComplete = new ArrayList<>();
-        gatewayInstanceService.addBackwardReachableTransitions(processContainer, gate, startTransition, toComplete,
-                Collections.<STransitionDefinition>emptyList());
-
-        assertThat(toComplete).containsOnly(transition(1, 2), transition(2, 3), transition(4, 6), transition(5, 6), transition(3, 666), transition(6, 666));
-    }
-
-    @Test
-    public void should_addBackwardReachableTransitions_with_gateway_having_a_loop_on_itself() {
-        SFlowNodeDefinition gate = node(666, "gate");
-        node(1, "step1");
-        node(2, "step2");
-        transition(1, 666);
-        transition(666, 1);
-        transition(2,666);
-        List<STransitionDefinition> startTransition = Arrays.asList(transition(1, 666));
-        List<STransitionDefinition> toComplete = new ArrayList<>();
-        gatewayInstanceService.addBackwardReachableTransitions(processContainer, gate, startTransition, toComplete,
-                Collections.<STransitionDefinition>emptyList());
-
-        assertThat(toComplete).containsOnly(transition(1, 666), transition(666, 1));
-    }
-
     private STransitionDefinition transition(long source, long target) {
         STransitionDefinitionImpl transition = new STransitionDefinitionImpl("name", source, target);
         ((SFlowNodeDefinitionImpl) processContainer.getFlowNode(target)).addIncomingTransition(transition);
@@ -460,30 +443,91 @@ public class GatewayInstanceServiceImplTest {
 
 
     @Test
-    public void should_inclusiveBehavior_merged() throws SBonitaReadException {
-        node(666, "gate");
+    public void should_inclusiveBehavior_check_tokens_on_transitions_reachable_only_from_incoming_transitions_not_hit() throws SBonitaReadException {
+        SProcessDefinitionImpl processDefinition = new SProcessDefinitionImpl("P", "1.0");
+        processDefinition.setProcessContainer(processContainer);
+        SGatewayInstanceImpl gate = new SGatewayInstanceImpl();
+        gate.setName("gate");
+        gate.setHitBys("1,3,1");
+        gate.setFlowNodeDefinitionId(666);
+        gate.setParentContainerId(PROCESS_INSTANCE_ID);
+        node(0, "step0");
         node(1, "step1");
         node(2, "step2");
         node(3, "step3");
+        SGatewayDefinition gatewayDefinition = mock(SGatewayDefinition.class);
+        doReturn(gatewayDefinition).when(processContainer).getFlowNode(666);
+        STransitionDefinition transition1 = new STransitionDefinitionImpl("t1", 1, 666);
+        STransitionDefinition transition2 = new STransitionDefinitionImpl("t2", 2, 666);
+        STransitionDefinition transition3 = new STransitionDefinitionImpl("t3", 3, 666);
+        STransitionDefinition transition02 = new STransitionDefinitionImpl("t02", 0, 2);
+        STransitionDefinition transition03 = new STransitionDefinitionImpl("t03", 0, 3);
+        doReturn(Arrays.asList(transition1, transition2, transition3)).when(gatewayDefinition).getIncomingTransitions();
+        doReturn(Arrays.asList(transition1, transition2, transition02, transition3, transition03)).when(gatewayDefinition).getUpstreamTransitions();
+        doReturn(bits(0)).when(gatewayDefinition).getBackwardReachableTransitions(1);
+        doReturn(bits(1, 2)).when(gatewayDefinition).getBackwardReachableTransitions(2);
+        doReturn(bits(3, 4)).when(gatewayDefinition).getBackwardReachableTransitions(3);
+        doReturn(true).when(gatewayInstanceService).transitionsContainsAToken(anyListOf(STransitionDefinition.class), any(SFlowNodeDefinition.class), anyLong(), any(SFlowElementContainerDefinition.class));
+
+        boolean isMerged = gatewayInstanceService.isInclusiveGatewayActivated(processDefinition, gate);
+
+        assertThat(isMerged).isFalse();
+        verify(gatewayInstanceService).transitionsContainsAToken(Arrays.asList(transition2, transition02), gatewayDefinition, PROCESS_INSTANCE_ID, processContainer);
+    }
+
+    @Test
+    public void should_inclusiveBehavior_not_check_tokens_on_transitions_also_reachable_from_a_hit_incoming_transition() throws SBonitaReadException {
         SProcessDefinitionImpl processDefinition = new SProcessDefinitionImpl("P", "1.0");
         processDefinition.setProcessContainer(processContainer);
         SGatewayInstanceImpl gate = new SGatewayInstanceImpl();
         gate.setName("gate");
-        gate.setHitBys("1,2,3,2");
+        gate.setHitBys("1");
         gate.setFlowNodeDefinitionId(666);
         gate.setParentContainerId(PROCESS_INSTANCE_ID);
-        SFlowNodeDefinition nodeDefinition = node(666, "gate");
-        transition(1, 666);
-        transition(2, 666);
-        transition(3, 666);
-        doNothing().when(gatewayInstanceService).addBackwardReachableTransitions(any(SFlowElementContainerDefinition.class), any(SFlowNodeDefinition.class), anyListOf(STransitionDefinition.class), anyListOf(STransitionDefinition.class), anyListOf(STransitionDefinition.class));
-        doReturn(true).when(gatewayInstanceService).transitionsContainsAToken(anyListOf(STransitionDefinition.class), any(SFlowNodeDefinition.class), anyLong(), any(SFlowElementContainerDefinition.class));
+        SGatewayDefinition gatewayDefinition = mock(SGatewayDefinition.class);
+        doReturn(gatewayDefinition).when(processContainer).getFlowNode(666);
+        STransitionDefinition transition1 = new STransitionDefinitionImpl("t1", 1, 666);
+        STransitionDefinition transition2 = new STransitionDefinitionImpl("t2", 2, 666);
+        STransitionDefinition transition01 = new STransitionDefinitionImpl("t01", 0, 1);
+        STransitionDefinition transition02 = new STransitionDefinitionImpl("t02", 0, 2);
+        doReturn(Arrays.asList(transition1, transition2)).when(gatewayDefinition).getIncomingTransitions();
+        doReturn(Arrays.asList(transition1, transition01, transition2, transition02)).when(gatewayDefinition).getUpstreamTransitions();
+        doReturn(bits(0, 1)).when(gatewayDefinition).getBackwardReachableTransitions(1);
+        doReturn(bits(1, 2, 3)).when(gatewayDefinition).getBackwardReachableTransitions(2);
+        doReturn(false).when(gatewayInstanceService).transitionsContainsAToken(anyListOf(STransitionDefinition.class), any(SFlowNodeDefinition.class), anyLong(), any(SFlowElementContainerDefinition.class));
 
         boolean isMerged = gatewayInstanceService.isInclusiveGatewayActivated(processDefinition, gate);
 
-        assertThat(isMerged).isFalse();
-        verify(gatewayInstanceService, times(2)).addBackwardReachableTransitions(eq(processContainer), eq(nodeDefinition), anyListOf(STransitionDefinition.class), anyListOf(STransitionDefinition.class), anyListOf(STransitionDefinition.class));
-        verify(gatewayInstanceService).transitionsContainsAToken(anyListOf(STransitionDefinition.class), eq(nodeDefinition), eq(PROCESS_INSTANCE_ID), eq(processContainer));
+        assertThat(isMerged).isTrue();
+        verify(gatewayInstanceService).transitionsContainsAToken(Arrays.asList(transition2, transition02), gatewayDefinition, PROCESS_INSTANCE_ID, processContainer);
+    }
+
+    private BitSet bits(int... indexes) {
+        BitSet bitSet = new BitSet();
+        for (int index : indexes) {
+            bitSet.set(index);
+        }
+        return bitSet;
+    }
+
+    @Test
+    public void should_getHitByTransitionIndexes_set_each_transition_once() {
+        SGatewayInstanceImpl gate = new SGatewayInstanceImpl();
+        gate.setHitBys("1,12,3,12");
+
+        BitSet hitByTransitions = gatewayInstanceService.getHitByTransitionIndexes(gate);
+
+        assertThat(hitByTransitions).isEqualTo(bits(1, 3, 12));
+    }
+
+    @Test
+    public void should_getHitByTransitionIndexes_be_empty_when_gateway_is_finished() {
+        SGatewayInstanceImpl gate = new SGatewayInstanceImpl();
+        gate.setHitBys("FINISH:2");
+
+        BitSet hitByTransitions = gatewayInstanceService.getHitByTransitionIndexes(gate);
+
+        assertThat(hitByTransitions.isEmpty()).isTrue();
     }
 
     @Test
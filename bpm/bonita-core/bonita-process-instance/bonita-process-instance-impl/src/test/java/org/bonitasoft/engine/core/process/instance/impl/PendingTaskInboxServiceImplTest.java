@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bonitasoft.engine.core.process.instance.model.SPendingTaskInboxEntry;
+import org.bonitasoft.engine.persistence.FilterOption;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.SelectListDescriptor;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PendingTaskInboxServiceImplTest {
+
+    @Mock
+    private PersistenceService persistenceService;
+
+    private PendingTaskInboxServiceImpl pendingTaskInboxService;
+
+    @Before
+    public void before() {
+        pendingTaskInboxService = new PendingTaskInboxServiceImpl(persistenceService, true);
+    }
+
+    @Test
+    public void updateTask_should_replace_the_entries_of_the_task_by_its_candidates() throws Exception {
+        doReturn(Arrays.asList(7L, 8L)).when(persistenceService).selectList(query("getCandidateUserIdsOfHumanTask"));
+
+        pendingTaskInboxService.updateTask(3L);
+
+        verify(persistenceService).deleteByTenant(SPendingTaskInboxEntry.class,
+                Collections.singletonList(new FilterOption(SPendingTaskInboxEntry.class, "activityId", 3L)));
+        assertThat(insertedEntries()).containsExactly("7-3", "8-3");
+    }
+
+    @Test
+    public void updateUser_should_replace_the_entries_of_the_user_by_the_tasks_it_is_candidate_of() throws Exception {
+        doReturn(Arrays.asList(3L, 4L)).when(persistenceService).selectList(query("getHumanTaskInstanceIdsHavingPendingMappingsForUser"));
+
+        pendingTaskInboxService.updateUser(7L);
+
+        verify(persistenceService).deleteByTenant(SPendingTaskInboxEntry.class,
+                Collections.singletonList(new FilterOption(SPendingTaskInboxEntry.class, "userId", 7L)));
+        assertThat(insertedEntries()).containsExactly("7-3", "7-4");
+    }
+
+    @Test
+    public void addActorMember_should_only_insert_the_missing_entries_of_the_users_of_the_member_read_with_one_query() throws Exception {
+        doReturn(Arrays.asList(entry(7L, 3L), entry(8L, 3L), entry(8L, 4L))).when(persistenceService).selectList(
+                query("getMissingPendingTaskInboxEntriesOfActorMember"));
+
+        pendingTaskInboxService.addActorMember(12L, -1L, 5L, -1L);
+
+        assertThat(insertedEntries()).containsExactly("7-3", "8-3", "8-4");
+        final ArgumentCaptor<SelectListDescriptor> descriptor = ArgumentCaptor.forClass(SelectListDescriptor.class);
+        verify(persistenceService, times(1)).selectList(descriptor.capture());
+        assertThat(descriptor.getValue().getInputParameters()).containsEntry("actorId", 12L).containsEntry("userId", -1L).containsEntry("groupId", 5L)
+                .containsEntry("roleId", -1L);
+        verify(persistenceService, never()).deleteByTenant(eq(SPendingTaskInboxEntry.class), anyListOf(FilterOption.class));
+    }
+
+    @Test
+    public void removeActorMember_should_only_delete_the_entries_the_users_of_the_member_are_no_longer_candidate_of() throws Exception {
+        doReturn(Arrays.asList(30L, 31L)).when(persistenceService).selectList(query("getStalePendingTaskInboxEntryIdsOfActorMember"));
+
+        pendingTaskInboxService.removeActorMember(12L, 7L, -1L, -1L);
+
+        verify(persistenceService).deleteByTenant(SPendingTaskInboxEntry.class,
+                Collections.singletonList(new FilterOption(SPendingTaskInboxEntry.class, "id").in(Arrays.asList(30L, 31L))));
+        verify(persistenceService, times(1)).selectList(any(SelectListDescriptor.class));
+        verify(persistenceService, never()).insertInBatch(anyListOf(PersistentObject.class));
+    }
+
+    @Test
+    public void rebuild_should_clear_the_inbox_insert_the_candidates_of_all_tasks_and_mark_it_built() throws Exception {
+        doReturn(Arrays.asList(3L, 4L)).when(persistenceService).selectList(query("getHumanTaskInstanceIdsHavingPendingMappings"));
+        doReturn(Arrays.asList(7L, 8L)).when(persistenceService).selectList(query("getCandidateUserIdsOfHumanTask"));
+
+        final int numberOfEntries = pendingTaskInboxService.rebuild();
+
+        assertThat(numberOfEntries).isEqualTo(4);
+        verify(persistenceService).deleteByTenant(SPendingTaskInboxEntry.class, Collections.<FilterOption> emptyList());
+        assertThat(insertedEntries()).containsExactly("7-3", "8-3", "7-4", "8-4");
+        final ArgumentCaptor<SPendingTaskInboxEntry> marker = ArgumentCaptor.forClass(SPendingTaskInboxEntry.class);
+        verify(persistenceService).insert(marker.capture());
+        assertThat(marker.getValue().getActivityId()).isEqualTo(SPendingTaskInboxEntry.BUILT_INBOX_MARKER);
+        assertThat(pendingTaskInboxService.isReady()).isTrue();
+    }
+
+    @Test
+    public void isReady_should_return_true_and_stop_looking_for_the_marker_once_it_is_found() throws Exception {
+        doReturn(1L).when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+
+        assertThat(pendingTaskInboxService.isReady()).isTrue();
+        assertThat(pendingTaskInboxService.isReady()).isTrue();
+
+        verify(persistenceService, times(1)).selectOne(any(SelectOneDescriptor.class));
+    }
+
+    @Test
+    public void isReady_should_return_false_when_the_marker_does_not_exist() throws Exception {
+        doReturn(0L).when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+
+        assertThat(pendingTaskInboxService.isReady()).isFalse();
+    }
+
+    @Test
+    public void isReady_should_return_false_without_reading_the_inbox_when_it_is_disabled() throws Exception {
+        pendingTaskInboxService = new PendingTaskInboxServiceImpl(persistenceService, false);
+
+        assertThat(pendingTaskInboxService.isReady()).isFalse();
+
+        verify(persistenceService, never()).selectOne(any(SelectOneDescriptor.class));
+    }
+
+    /**
+     * @return the entries inserted in batch, as userId-activityId
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private List<String> insertedEntries() throws Exception {
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(persistenceService, atLeastOnce()).insertInBatch(captor.capture());
+        final List<String> entries = new ArrayList<String>();
+        for (final List<PersistentObject> batch : (List<List<PersistentObject>>) (List) captor.getAllValues()) {
+            for (final PersistentObject entry : batch) {
+                entries.add(((SPendingTaskInboxEntry) entry).getUserId() + "-" + ((SPendingTaskInboxEntry) entry).getActivityId());
+            }
+        }
+        return entries;
+    }
+
+    private static Map<String, Long> entry(final long userId, final long activityId) {
+        final Map<String, Long> entry = new HashMap<String, Long>(2);
+        entry.put("userId", userId);
+        entry.put("activityId", activityId);
+        return entry;
+    }
+
+    private static SelectListDescriptor<Long> query(final String queryName) {
+        return argThat(new ArgumentMatcher<SelectListDescriptor<Long>>() {
+
+            @Override
+            public boolean matches(final Object argument) {
+                return argument instanceof SelectListDescriptor && queryName.equals(((SelectListDescriptor<?>) argument).getQueryName());
+            }
+        });
+    }
+
+}
@@ -16,9 +16,12 @@ package org.bonitasoft.engine.core.process.instance.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.bonitasoft.engine.archive.ArchiveInsertRecord;
+import org.bonitasoft.engine.archive.ArchiveService;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.business.data.SRefBusinessDataInstanceCreationException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.business.data.SRefBusinessDataInstanceModificationException;
 import org.bonitasoft.engine.core.process.instance.api.exceptions.business.data.SRefBusinessDataInstanceNotFoundException;
@@ -37,6 +40,7 @@ import org.bonitasoft.engine.recorder.model.UpdateRecord;
 import org.bonitasoft.engine.services.QueriableLoggerService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -56,6 +60,9 @@ public class RefBusinessDataServiceImplTest {
     @Mock
     QueriableLoggerService loggerService;
 
+    @Mock
+    private ArchiveService archiveService;
+
     @InjectMocks
     private RefBusinessDataServiceImpl service;
 
@@ -71,6 +78,25 @@ public class RefBusinessDataServiceImplTest {
         return SelectBusinessDataDescriptorBuilder.getSRefBusinessDataInstance(name, dataId);
     }
 
+    @Test
+    public void archiveRefBusinessDataInstancesArchivesAllInstancesAtOnce() throws Exception {
+        when(archiveService.isArchivable(SRefBusinessDataInstance.class)).thenReturn(true);
+
+        service.archiveRefBusinessDataInstances(Arrays.<SRefBusinessDataInstance> asList(buildSRefBusinessDataInstance(),
+                buildSRefBusinessDataInstance()));
+
+        final ArgumentCaptor<ArchiveInsertRecord> insertRecords = ArgumentCaptor.forClass(ArchiveInsertRecord.class);
+        verify(archiveService).recordInserts(eq(0L), insertRecords.capture());
+        assertThat(insertRecords.getAllValues()).hasSize(2);
+    }
+
+    @Test
+    public void archiveRefBusinessDataInstancesDoesNothingWhenNotArchivable() throws Exception {
+        service.archiveRefBusinessDataInstances(Arrays.<SRefBusinessDataInstance> asList(buildSRefBusinessDataInstance()));
+
+        verify(archiveService, never()).recordInserts(anyLong(), (ArchiveInsertRecord[]) anyVararg());
+    }
+
     @Test
     public void getRefBusinessDataInstanceReturnsTheRightObject() throws Exception {
         final String name = "myLeaveRequest";
@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.process.instance.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
+import org.bonitasoft.engine.core.process.instance.model.SWorkJournalEntry;
+import org.bonitasoft.engine.core.process.instance.model.impl.SWorkJournalEntryImpl;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.SelectOneDescriptor;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WorkJournalServiceImplTest {
+
+    @Mock
+    private PersistenceService persistenceService;
+    @InjectMocks
+    private WorkJournalServiceImpl workJournalService;
+
+    @Test
+    public void addEntry_should_insert_entry_and_return_its_id() throws Exception {
+        doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                ((SWorkJournalEntryImpl) invocation.getArguments()[0]).setId(42L);
+                return null;
+            }
+        }).when(persistenceService).insert(any(PersistentObject.class));
+
+        final long entryId = workJournalService.addEntry(3L);
+
+        assertThat(entryId).isEqualTo(42L);
+        final ArgumentCaptor<SWorkJournalEntry> captor = ArgumentCaptor.forClass(SWorkJournalEntry.class);
+        verify(persistenceService).insert(captor.capture());
+        assertThat(captor.getValue().getFlowNodeInstanceId()).isEqualTo(3L);
+    }
+
+    @Test
+    public void markComplete_should_insert_the_marker_entry() throws Exception {
+        workJournalService.markComplete();
+
+        final ArgumentCaptor<SWorkJournalEntry> captor = ArgumentCaptor.forClass(SWorkJournalEntry.class);
+        verify(persistenceService).insert(captor.capture());
+        assertThat(captor.getValue().getFlowNodeInstanceId()).isEqualTo(SWorkJournalEntry.COMPLETE_JOURNAL_MARKER);
+    }
+
+    @Test
+    public void isComplete_should_return_true_when_marker_exists() throws Exception {
+        doReturn(1L).when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+
+        assertThat(workJournalService.isComplete()).isTrue();
+    }
+
+    @Test
+    public void isComplete_should_return_false_when_marker_does_not_exist() throws Exception {
+        doReturn(0L).when(persistenceService).selectOne(any(SelectOneDescriptor.class));
+
+        assertThat(workJournalService.isComplete()).isFalse();
+    }
+
+    @Test
+    public void removeEntries_should_delete_entries_by_ids() throws Exception {
+        workJournalService.removeEntries(Arrays.asList(4L, 5L));
+
+        verify(persistenceService).delete(Arrays.asList(4L, 5L), SWorkJournalEntry.class);
+    }
+
+    @Test
+    public void removeAllEntries_should_delete_all_entries() throws Exception {
+        workJournalService.removeAllEntries();
+
+        verify(persistenceService).deleteAll(SWorkJournalEntry.class);
+    }
+
+}
@@ -14,30 +14,103 @@
 package org.bonitasoft.engine.api.tcp;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.rmi.RemoteException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.bonitasoft.engine.api.internal.ServerAPI;
 import org.bonitasoft.engine.api.internal.ServerWrappedException;
 import org.bonitasoft.engine.exception.StackTraceTransformer;
 
+/**
+ * Selector based server of the TCP transport, listening on one port.
+ * <p>
+ * Connections are persistent and a client can send several calls on a connection without waiting for their responses (see {@link TcpProtocol}). This
+ * thread only does the network I/O: calls are invoked by the given executor, and their responses are sent back in the order they complete.
+ * <p>
+ * A connection stops being read while {@link #MAX_CALLS_IN_PROGRESS_PER_CONNECTION} of its calls are invoked or wait for their response to be written,
+ * so that a client that does not read its responses cannot make the server queue them without limit.
+ */
 public class ServerSocketThread extends Thread {
 
-    private final ServerSocket serverSocket;
+    static final int MAX_CALLS_IN_PROGRESS_PER_CONNECTION = 256;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Selector selector;
 
     private final ServerAPI serverApi;
 
+    private final ExecutorService executor;
+
+    private final boolean ownsExecutor;
+
+    private final Queue<Connection> connectionsToFlush = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+
+    /**
+     * Invoke the calls with a pool of default size that is shut down with this thread
+     */
     public ServerSocketThread(final String name, final ServerAPI serverApi, final int port) throws IOException {
+        this(name, serverApi, port, createExecutor(TcpServer.DEFAULT_NB_WORKERS, TcpServer.DEFAULT_QUEUE_CAPACITY), true);
+    }
+
+    /**
+     * @param executor
+     *        invokes the calls, it is not shut down with this thread
+     */
+    public ServerSocketThread(final String name, final ServerAPI serverApi, final int port, final ExecutorService executor) throws IOException {
+        this(name, serverApi, port, executor, false);
+    }
+
+    private ServerSocketThread(final String name, final ServerAPI serverApi, final int port, final ExecutorService executor, final boolean ownsExecutor)
+            throws IOException {
         super(name);
         this.serverApi = serverApi;
-        serverSocket = new ServerSocket(port);
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
 
+    /**
+     * @return a pool of nbWorkers threads, rejecting the calls when more than queueCapacity of them are waiting
+     */
+    static ExecutorService createExecutor(final int nbWorkers, final int queueCapacity) {
+        return new ThreadPoolExecutor(nbWorkers, nbWorkers, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity));
+    }
+
+    // As a package method for test purposes.
+    ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
     }
 
     private Object invokeMethod(final MethodCall methodCall) throws ServerWrappedException, RemoteException {
@@ -55,32 +128,113 @@ public class ServerSocketThread extends Thread {
 
     @Override
     public void run() {
-        while (true) {
-            try {
-                final Socket clientSocket = serverSocket.accept();
-                ObjectInputStream ois = null;
-                ObjectOutputStream oos = null;
-                try {
-                    ois = new ObjectInputStream(clientSocket.getInputStream());
-                    final MethodCall methodCall = (MethodCall) ois.readObject();
-                    final Object callResult = invokeMethod(methodCall);
-                    oos = new ObjectOutputStream(clientSocket.getOutputStream());
-                    oos.writeObject(callResult);
-                    oos.flush();
-                } catch (final Exception t) {
-                    t.printStackTrace();
-                } finally {
-                    if (ois != null) {
-                        ois.close();
-                    }
-                    if (oos != null) {
-                        oos.close();
-                    }
-                    clientSocket.close();
+        try {
+            while (running) {
+                selector.select();
+                registerConnectionsToFlush();
+                final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    final SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    handle(key);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
+        } catch (final IOException e) {
+            e.printStackTrace();
+        } finally {
+            close();
+        }
+    }
+
+    private void handle(final SelectionKey key) {
+        try {
+            if (!key.isValid()) {
+                return;
+            }
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            final Connection connection = (Connection) key.attachment();
+            if (key.isReadable() && !connection.read()) {
+                // closed by the client
+                closeConnection(key);
+                return;
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+            if (key.isValid()) {
+                key.interestOps(connection.getInterestOps());
+            }
+        } catch (final IOException e) {
+            closeConnection(key);
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel));
+    }
+
+    private void registerConnectionsToFlush() {
+        Connection connection;
+        while ((connection = connectionsToFlush.poll()) != null) {
+            final SelectionKey key = connection.channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(connection.getInterestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void submit(final Connection connection, final long correlationId, final byte[] request) {
+        try {
+            executor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    connection.send(correlationId, invoke(request));
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            connection.send(correlationId, new ServerWrappedException("Too many calls in progress on " + getName(), e));
+        }
+    }
+
+    private Object invoke(final byte[] request) {
+        try {
+            return invokeMethod(TcpProtocol.deserializeMethodCall(request));
+        } catch (final Exception e) {
+            return e;
+        }
+    }
+
+    private void closeConnection(final SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void close() {
+        for (final SelectionKey key : selector.keys()) {
+            closeConnection(key);
+        }
+        try {
+            selector.close();
+        } catch (final IOException e) {
+            e.printStackTrace();
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
         }
     }
 
@@ -88,4 +242,114 @@ public class ServerSocketThread extends Thread {
             final List<String> classNameParameters, final Object[] parametersValues) throws ServerWrappedException, RemoteException {
         return serverApi.invokeMethod(options, apiInterfaceName, methodName, classNameParameters, parametersValues);
     }
+
+    private final class Connection {
+
+        private final SocketChannel channel;
+
+        private final ByteBuffer header = ByteBuffer.allocate(TcpProtocol.HEADER_SIZE);
+
+        private ByteBuffer payload;
+
+        private long correlationId;
+
+        private final Queue<ByteBuffer> output = new ConcurrentLinkedQueue<>();
+
+        /**
+         * calls submitted and whose response is not written yet, only used by the selector thread
+         */
+        private int callsInProgress;
+
+        private Connection(final SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Read the available bytes and submit the calls which are complete, until too many calls are in progress.
+         *
+         * @return false if the connection was closed by the client
+         */
+        private boolean read() throws IOException {
+            while (callsInProgress < MAX_CALLS_IN_PROGRESS_PER_CONNECTION) {
+                if (payload == null) {
+                    if (channel.read(header) < 0) {
+                        return false;
+                    }
+                    if (header.hasRemaining()) {
+                        return true;
+                    }
+                    header.flip();
+                    final int size = header.getInt();
+                    correlationId = header.getLong();
+                    header.clear();
+                    TcpProtocol.checkPayloadSize(size);
+                    payload = ByteBuffer.allocate(size);
+                }
+                if (channel.read(payload) < 0) {
+                    return false;
+                }
+                if (payload.hasRemaining()) {
+                    return true;
+                }
+                callsInProgress++;
+                submit(this, correlationId, payload.array());
+                payload = null;
+            }
+            return true;
+        }
+
+        /**
+         * @return the operations the selector must wait for: reading only while few calls are in progress, writing while responses are queued
+         */
+        private int getInterestOps() {
+            final int readOps = callsInProgress < MAX_CALLS_IN_PROGRESS_PER_CONNECTION ? SelectionKey.OP_READ : 0;
+            return output.isEmpty() ? readOps : readOps | SelectionKey.OP_WRITE;
+        }
+
+        /**
+         * Called by the workers: the response is written by the selector thread.
+         */
+        private void send(final long correlationId, final Object result) {
+            byte[] response;
+            try {
+                response = TcpProtocol.serialize(result);
+            } catch (final IOException e) {
+                try {
+                    response = TcpProtocol.serialize(new ServerWrappedException(e));
+                } catch (final IOException e1) {
+                    // the client would wait forever for this response
+                    e1.printStackTrace();
+                    closeQuietly();
+                    return;
+                }
+            }
+            output.add(TcpProtocol.toFrame(correlationId, response));
+            connectionsToFlush.add(this);
+            selector.wakeup();
+        }
+
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (final IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Write the queued responses as long as the socket accepts them
+         */
+        private void flush() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = output.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                output.poll();
+                callsInProgress--;
+            }
+        }
+    }
+
 }
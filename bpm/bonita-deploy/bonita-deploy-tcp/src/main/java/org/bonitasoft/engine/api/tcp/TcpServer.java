@@ -16,6 +16,7 @@ package org.bonitasoft.engine.api.tcp;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.bonitasoft.engine.api.impl.ServerAPIFactory;
 import org.bonitasoft.engine.api.internal.ServerAPI;
@@ -25,15 +26,30 @@ import org.bonitasoft.engine.api.internal.ServerAPI;
  */
 public class TcpServer {
 
+    static final int DEFAULT_NB_WORKERS = 20;
+
+    static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
     private final List<ServerSocketThread> sockets = new ArrayList<ServerSocketThread>();
 
     public TcpServer(final List<Integer> ports) throws InterruptedException, IOException {
+        this(ports, DEFAULT_NB_WORKERS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param nbWorkers
+     *        number of threads invoking the calls received on all the ports
+     * @param queueCapacity
+     *        number of calls that can wait for a worker, calls received beyond are answered with an error
+     */
+    public TcpServer(final List<Integer> ports, final int nbWorkers, final int queueCapacity) throws InterruptedException, IOException {
         final int nbOfPorts = ports.size();
         int i = 1;
         final ServerAPI apiImpl = ServerAPIFactory.getServerAPI();
+        final ExecutorService executor = ServerSocketThread.createExecutor(nbWorkers, queueCapacity);
         for (final int port : ports) {
             final String threadName = ServerSocketThread.class.getSimpleName() + "-" + String.format("%" + nbOfPorts + "d", i) + "-p" + port;
-            sockets.add(new ServerSocketThread(threadName, apiImpl, port));
+            sockets.add(new ServerSocketThread(threadName, apiImpl, port, executor));
             i++;
         }
         for (final ServerSocketThread socket : sockets) {
@@ -42,6 +58,7 @@ public class TcpServer {
         for (final ServerSocketThread socket : sockets) {
             socket.join();
         }
+        executor.shutdown();
     }
 
 }
@@ -0,0 +1,249 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.api.tcp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.api.TCPServerAPI;
+import org.bonitasoft.engine.api.internal.ServerAPI;
+import org.bonitasoft.engine.api.internal.ServerWrappedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the TCP client against an in-process server. {@link #should_sustain_concurrent_load()} is the load test harness: its throughput is printed.
+ */
+public class ServerSocketThreadTest {
+
+    private ServerSocketThread server;
+
+    private ExecutorService workers;
+
+    private final CountDownLatch slowCallReleased = new CountDownLatch(1);
+
+    private final ServerAPI fakeServerAPI = new ServerAPI() {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Object invokeMethod(final Map<String, Serializable> options, final String apiInterfaceName, final String methodName,
+                final List<String> classNameParameters, final Object[] parametersValues) throws ServerWrappedException {
+            switch (methodName) {
+                case "echo":
+                    return parametersValues[0];
+                case "slow":
+                    try {
+                        slowCallReleased.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                default:
+                    throw new ServerWrappedException(new IllegalArgumentException("Unknown method " + methodName));
+            }
+        }
+    };
+
+    @Before
+    public void before() throws Exception {
+        workers = ServerSocketThread.createExecutor(8, 1000);
+        server = new ServerSocketThread("test-tcp-server", fakeServerAPI, 0, workers);
+        server.start();
+    }
+
+    @After
+    public void after() throws Exception {
+        slowCallReleased.countDown();
+        server.shutdown();
+        server.join(10000);
+        workers.shutdownNow();
+    }
+
+    private TCPServerAPI createClient(final int connectionsPerDestination) {
+        return new TCPServerAPI(createParameters(connectionsPerDestination));
+    }
+
+    private Map<String, String> createParameters(final int connectionsPerDestination) {
+        final Map<String, String> parameters = new HashMap<>();
+        parameters.put("destinations", "localhost:" + server.getLocalPort());
+        parameters.put("connectionsPerDestination", String.valueOf(connectionsPerDestination));
+        return parameters;
+    }
+
+    private static Object call(final TCPServerAPI client, final String methodName, final Object... parameters) throws Exception {
+        return client.invokeMethod(Collections.<String, Serializable> emptyMap(), "FakeAPI", methodName, Collections.<String> emptyList(), parameters);
+    }
+
+    @Test
+    public void should_answer_several_calls_on_a_persistent_connection() throws Exception {
+        final TCPServerAPI client = createClient(1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(call(client, "echo", "value" + i)).isEqualTo("value" + i);
+        }
+    }
+
+    @Test
+    public void should_not_block_a_call_behind_a_slow_one_on_the_same_connection() throws Exception {
+        final TCPServerAPI client = createClient(1);
+        final ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Object> slowCall = caller.submit(new Callable<Object>() {
+
+                @Override
+                public Object call() throws Exception {
+                    return ServerSocketThreadTest.call(client, "slow");
+                }
+            });
+
+            assertThat(call(client, "echo", "fast")).isEqualTo("fast");
+            assertThat(slowCall.isDone()).isFalse();
+            slowCallReleased.countDown();
+            assertThat(slowCall.get(10, TimeUnit.SECONDS)).isEqualTo("slow");
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_send_back_server_exceptions() throws Exception {
+        final TCPServerAPI client = createClient(1);
+
+        try {
+            call(client, "unknown");
+            fail("The exception of the server should be thrown");
+        } catch (final ServerWrappedException e) {
+            assertThat(e.getCause()).isInstanceOf(IllegalArgumentException.class).hasMessage("Unknown method unknown");
+        }
+        assertThat(call(client, "echo", "still connected")).isEqualTo("still connected");
+    }
+
+    @Test
+    public void should_stop_waiting_for_a_response_after_the_response_timeout() throws Exception {
+        final Map<String, String> parameters = createParameters(1);
+        parameters.put("responseTimeoutMillis", "200");
+        final TCPServerAPI client = new TCPServerAPI(parameters);
+
+        try {
+            call(client, "slow");
+            fail("The call should time out");
+        } catch (final ServerWrappedException e) {
+            assertThat(e.getCause()).isInstanceOf(SocketTimeoutException.class);
+        }
+        slowCallReleased.countDown();
+        assertThat(call(client, "echo", "still connected")).isEqualTo("still connected");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_refuse_a_client_without_connections() throws Exception {
+        createClient(0);
+    }
+
+    @Test
+    public void should_shut_down_its_own_executor_when_stopped() throws Exception {
+        final ServerSocketThread serverWithOwnExecutor = new ServerSocketThread("test-tcp-server-2", fakeServerAPI, 0);
+        serverWithOwnExecutor.start();
+
+        serverWithOwnExecutor.shutdown();
+        serverWithOwnExecutor.join(10000);
+
+        assertThat(serverWithOwnExecutor.getExecutor().isShutdown()).isTrue();
+        assertThat(workers.isShutdown()).isFalse();
+    }
+
+    @Test
+    public void should_stop_reading_a_connection_with_too_many_calls_in_progress() throws Exception {
+        final int nbCalls = ServerSocketThread.MAX_CALLS_IN_PROGRESS_PER_CONNECTION + 44;
+        final TCPServerAPI client = createClient(1);
+        final ExecutorService callers = Executors.newFixedThreadPool(nbCalls);
+        try {
+            final List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < nbCalls; i++) {
+                results.add(callers.submit(new Callable<Object>() {
+
+                    @Override
+                    public Object call() throws Exception {
+                        return ServerSocketThreadTest.call(client, "slow");
+                    }
+                }));
+            }
+            final ThreadPoolExecutor workerPool = (ThreadPoolExecutor) workers;
+            final long deadline = System.currentTimeMillis() + 10000;
+            while (workerPool.getTaskCount() < ServerSocketThread.MAX_CALLS_IN_PROGRESS_PER_CONNECTION && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(300);
+            assertThat(workerPool.getTaskCount()).isEqualTo(ServerSocketThread.MAX_CALLS_IN_PROGRESS_PER_CONNECTION);
+
+            slowCallReleased.countDown();
+            for (final Future<Object> result : results) {
+                assertThat(result.get(30, TimeUnit.SECONDS)).isEqualTo("slow");
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void should_sustain_concurrent_load() throws Exception {
+        final int nbThreads = 16;
+        final int callsPerThread = 2000;
+        final TCPServerAPI client = createClient(4);
+        final ExecutorService callers = Executors.newFixedThreadPool(nbThreads);
+        try {
+            final List<Future<Void>> results = new ArrayList<>();
+            final long start = System.nanoTime();
+            for (int t = 0; t < nbThreads; t++) {
+                final int thread = t;
+                results.add(callers.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < callsPerThread; i++) {
+                            final String value = thread + "-" + i;
+                            assertThat(ServerSocketThreadTest.call(client, "echo", value)).isEqualTo(value);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+            final long durationInMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            System.out.println(nbThreads * callsPerThread + " calls from " + nbThreads + " threads in " + durationInMs + " ms ("
+                    + nbThreads * callsPerThread * 1000L / Math.max(durationInMs, 1) + " calls/s)");
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.core.expression.control.api.impl;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bonitasoft.engine.expression.ContainerState;
+import org.bonitasoft.engine.expression.ExpressionExecutorStrategy;
+import org.bonitasoft.engine.expression.ExpressionService;
+import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingException;
+import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
+import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
+import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
+import org.bonitasoft.engine.expression.model.ExpressionKind;
+import org.bonitasoft.engine.expression.model.SExpression;
+
+/**
+ * Immutable evaluation order of a list of expressions and of all their dependencies, computed once per expression graph.
+ * Each distinct expression (by discriminant) gets a slot: expressions of the kinds that have no dependencies are evaluated first, kind by
+ * kind, then the others are evaluated one by one in topological order, each one after its dependencies.
+ * The results are stored in an array indexed by slot, that executors see as the usual map of resolved expressions keyed by discriminant.
+ */
+final class ExpressionEvaluationPlan {
+
+    private static final Object UNRESOLVED = new Object();
+
+    private final SExpression[] expressions;
+
+    private final boolean[] putInContext;
+
+    private final Map<Integer, Integer> slotByDiscriminant;
+
+    private final List<KindBatch> noDependencyBatches;
+
+    private final int[] evaluationOrder;
+
+    private final int[] resultSlots;
+
+    private final List<SExpression> variableExpressions;
+
+    private ExpressionEvaluationPlan(final List<SExpression> expressions, final boolean[] putInContext, final Map<Integer, Integer> slotByDiscriminant,
+            final List<KindBatch> noDependencyBatches, final int[] evaluationOrder, final int[] resultSlots, final List<SExpression> variableExpressions) {
+        this.expressions = expressions.toArray(new SExpression[expressions.size()]);
+        this.putInContext = putInContext;
+        this.slotByDiscriminant = slotByDiscriminant;
+        this.noDependencyBatches = noDependencyBatches;
+        this.evaluationOrder = evaluationOrder;
+        this.resultSlots = resultSlots;
+        this.variableExpressions = variableExpressions;
+    }
+
+    static ExpressionEvaluationPlan compile(final List<SExpression> roots, final ExpressionService expressionService) {
+        final List<SExpression> slots = new ArrayList<>();
+        final Map<Integer, Integer> slotByDiscriminant = new HashMap<>();
+        final List<Integer> evaluationOrder = new ArrayList<>();
+        final int[] resultSlots = new int[roots.size()];
+        for (int i = 0; i < resultSlots.length; i++) {
+            final SExpression root = roots.get(i);
+            resultSlots[i] = root == null ? -1 : visit(root, slots, slotByDiscriminant, evaluationOrder);
+        }
+
+        final Map<ExpressionKind, KindBatch> batchByKind = new LinkedHashMap<>();
+        for (final ExpressionKind kind : ExpressionExecutorStrategy.NO_DEPENDENCY_EXPRESSION_EVALUATION_ORDER) {
+            batchByKind.put(kind, new KindBatch(kind));
+        }
+        final boolean[] putInContext = new boolean[slots.size()];
+        for (int slot = 0; slot < slots.size(); slot++) {
+            final SExpression expression = slots.get(slot);
+            final KindBatch batch = expression.getExpressionKind() == null ? null : batchByKind.get(expression.getExpressionKind());
+            if (batch != null) {
+                batch.add(expression, slot);
+            }
+            putInContext[slot] = expressionService.mustPutEvaluatedExpressionInContext(expression.getExpressionKind());
+        }
+        final List<KindBatch> noDependencyBatches = new ArrayList<>();
+        for (final KindBatch batch : batchByKind.values()) {
+            batch.freeze();
+            if (!batch.expressions.isEmpty()) {
+                noDependencyBatches.add(batch);
+            }
+        }
+        final KindBatch variables = batchByKind.get(ExpressionExecutorStrategy.KIND_VARIABLE);
+        return new ExpressionEvaluationPlan(slots, putInContext, Collections.unmodifiableMap(slotByDiscriminant),
+                Collections.unmodifiableList(noDependencyBatches), toArray(evaluationOrder), resultSlots,
+                variables.expressions);
+    }
+
+    /**
+     * Depth-first post-order walk: an expression gets its place in the evaluation order once all its dependencies have theirs.
+     */
+    private static int visit(final SExpression expression, final List<SExpression> slots, final Map<Integer, Integer> slotByDiscriminant,
+            final List<Integer> evaluationOrder) {
+        final int discriminant = expression.getDiscriminant();
+        final Integer existing = slotByDiscriminant.get(discriminant);
+        if (existing != null) {
+            return existing;
+        }
+        final int slot = slots.size();
+        slots.add(expression);
+        slotByDiscriminant.put(discriminant, slot);
+        final List<SExpression> dependencies = expression.getDependencies();
+        if (dependencies != null) {
+            for (final SExpression dependency : dependencies) {
+                visit(dependency, slots, slotByDiscriminant, evaluationOrder);
+            }
+        }
+        evaluationOrder.add(slot);
+        return slot;
+    }
+
+    private static int[] toArray(final List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    List<SExpression> getVariableExpressions() {
+        return variableExpressions;
+    }
+
+    int getNumberOfExpressions() {
+        return expressions.length;
+    }
+
+    List<Object> evaluate(final ExpressionService expressionService, final Map<String, Object> dependencyValues, final ContainerState containerState)
+            throws SExpressionTypeUnknownException, SExpressionEvaluationException, SExpressionDependencyMissingException, SInvalidExpressionException {
+        final ResolvedExpressions resolvedExpressions = new ResolvedExpressions();
+        for (final KindBatch batch : noDependencyBatches) {
+            final List<Object> results = expressionService.evaluate(batch.kind, batch.expressions, dependencyValues, resolvedExpressions, containerState);
+            for (int i = 0; i < batch.slots.length; i++) {
+                resolve(resolvedExpressions, batch.slots[i], results.get(i), dependencyValues);
+            }
+        }
+        for (final int slot : evaluationOrder) {
+            // Let's evaluate the expression only if it is not already in the list of resolved dependencies:
+            if (resolvedExpressions.values[slot] == UNRESOLVED) {
+                final Object result = expressionService.evaluate(expressions[slot], dependencyValues, resolvedExpressions, containerState);
+                resolve(resolvedExpressions, slot, result, dependencyValues);
+            }
+        }
+        final List<Object> results = new ArrayList<>(resultSlots.length);
+        for (final int slot : resultSlots) {
+            if (slot < 0) {
+                results.add(null);
+            } else {
+                final Object result = resolvedExpressions.values[slot];
+                if (result == UNRESOLVED) {
+                    throw new SExpressionEvaluationException("No result found for the expression " + expressions[slot], expressions[slot].getName());
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private void resolve(final ResolvedExpressions resolvedExpressions, final int slot, final Object result, final Map<String, Object> dependencyValues) {
+        resolvedExpressions.values[slot] = result;
+        if (putInContext[slot]) {
+            dependencyValues.put(expressions[slot].getContent(), result);
+        }
+    }
+
+    private static final class KindBatch {
+
+        private final ExpressionKind kind;
+
+        private List<SExpression> expressions = new ArrayList<>();
+
+        private final List<Integer> slotList = new ArrayList<>();
+
+        private int[] slots;
+
+        private KindBatch(final ExpressionKind kind) {
+            this.kind = kind;
+        }
+
+        private void add(final SExpression expression, final int slot) {
+            expressions.add(expression);
+            slotList.add(slot);
+        }
+
+        private void freeze() {
+            expressions = Collections.unmodifiableList(expressions);
+            slots = toArray(slotList);
+        }
+
+    }
+
+    /**
+     * Results of one evaluation of the plan, seen by the executors as a map keyed by expression discriminant.
+     * Results put by executors for expressions that are not part of the plan are kept aside.
+     */
+    private final class ResolvedExpressions extends AbstractMap<Integer, Object> {
+
+        private final Object[] values;
+
+        private Map<Integer, Object> others;
+
+        private ResolvedExpressions() {
+            values = new Object[expressions.length];
+            Arrays.fill(values, UNRESOLVED);
+        }
+
+        @Override
+        public Object get(final Object key) {
+            final Integer slot = slotByDiscriminant.get(key);
+            if (slot != null) {
+                final Object value = values[slot];
+                return value == UNRESOLVED ? null : value;
+            }
+            return others == null ? null : others.get(key);
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            final Integer slot = slotByDiscriminant.get(key);
+            if (slot != null) {
+                return values[slot] != UNRESOLVED;
+            }
+            return others != null && others.containsKey(key);
+        }
+
+        @Override
+        public Object put(final Integer key, final Object value) {
+            final Integer slot = slotByDiscriminant.get(key);
+            if (slot != null) {
+                final Object previous = values[slot];
+                values[slot] = value;
+                return previous == UNRESOLVED ? null : previous;
+            }
+            if (others == null) {
+                others = new HashMap<>();
+            }
+            return others.put(key, value);
+        }
+
+        @Override
+        public Set<Map.Entry<Integer, Object>> entrySet() {
+            final Set<Map.Entry<Integer, Object>> entries = new HashSet<>();
+            for (final Map.Entry<Integer, Integer> slot : slotByDiscriminant.entrySet()) {
+                final Object value = values[slot.getValue()];
+                if (value != UNRESOLVED) {
+                    entries.add(new SimpleImmutableEntry<>(slot.getKey(), value));
+                }
+            }
+            if (others != null) {
+                entries.addAll(others.entrySet());
+            }
+            return Collections.unmodifiableSet(entries);
+        }
+
+    }
+
+}
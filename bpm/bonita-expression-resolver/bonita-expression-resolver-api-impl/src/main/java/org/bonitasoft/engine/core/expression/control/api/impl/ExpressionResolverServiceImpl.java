@@ -14,10 +14,10 @@
 package org.bonitasoft.engine.core.expression.control.api.impl;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,15 +29,11 @@ import org.bonitasoft.engine.core.expression.control.model.SExpressionContext;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
 import org.bonitasoft.engine.core.process.definition.exception.SProcessDefinitionNotFoundException;
 import org.bonitasoft.engine.core.process.definition.model.SProcessDefinition;
-import org.bonitasoft.engine.expression.ContainerState;
-import org.bonitasoft.engine.expression.ExpressionExecutorStrategy;
 import org.bonitasoft.engine.expression.ExpressionService;
-import org.bonitasoft.engine.expression.ExpressionType;
 import org.bonitasoft.engine.expression.exception.SExpressionDependencyMissingException;
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.exception.SExpressionTypeUnknownException;
 import org.bonitasoft.engine.expression.exception.SInvalidExpressionException;
-import org.bonitasoft.engine.expression.model.ExpressionKind;
 import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.bonitasoft.engine.tracking.TimeTracker;
@@ -53,6 +49,13 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
 
     private static final SExpressionContext EMPTY_CONTEXT = new SExpressionContext();
 
+    /**
+     * Evaluation plans are keyed by the expressions themselves, that compare by content: the plans compiled for the expressions of a deployed
+     * process definition are reused by every instance of it. Once full, the least recently used plan is evicted, so that the plans of undeployed
+     * definitions or of expressions built on the fly do not stay in memory.
+     */
+    static final int MAX_CACHED_EVALUATION_PLANS = 2000;
+
     private final ExpressionService expressionService;
 
     private final ProcessDefinitionService processDefinitionService;
@@ -61,6 +64,17 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
 
     private final TimeTracker timeTracker;
 
+    private final Map<List<SExpression>, ExpressionEvaluationPlan> evaluationPlans = Collections
+            .synchronizedMap(new LinkedHashMap<List<SExpression>, ExpressionEvaluationPlan>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<List<SExpression>, ExpressionEvaluationPlan> eldest) {
+                    return size() > MAX_CACHED_EVALUATION_PLANS;
+                }
+            });
+
     public ExpressionResolverServiceImpl(final ExpressionService expressionService, final ProcessDefinitionService processDefinitionService,
             final ClassLoaderService classLoaderService, final TimeTracker timeTracker) {
         this.expressionService = expressionService;
@@ -108,33 +122,16 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
 
             loadProcessClassLoader(newEvaluationContext);
 
-            final Map<SExpression, SExpression> dataReplacement = new HashMap<>();
-            // We incrementally build the Map of already resolved expressions:
-            final Map<Integer, Object> resolvedExpressions = new HashMap<>();
-            // Let's evaluate all expressions with no dependencies first:
-            resolvedExpressions.putAll(evaluateAllExpressionsWithNoDependencies(dependencyValues, dataReplacement, expressions, newEvaluationContext));
-
-            for (final SExpression sExpression : expressions) {
-                if (sExpression != null) {
-                    // Then evaluate recursively all remaining expressions:
-                    resolvedExpressions.putAll(evaluateExpressionWithResolvedDependencies(sExpression, dependencyValues, dataReplacement, resolvedExpressions,
-                            newEvaluationContext.getContainerState()));
-                }
-            }
-            final List<Object> results = new ArrayList<>(expressions.size());
-            for (final SExpression sExpression : expressions) {
-                if (sExpression != null) {
-                    final int key = sExpression.getDiscriminant();
-                    final Object res = resolvedExpressions.get(key);
-                    if (res == null && !resolvedExpressions.containsKey(key)) {
-                        throw new SExpressionEvaluationException("No result found for the expression " + sExpression, sExpression.getName());
-                    }
-                    results.add(res);
-                } else {
-                    results.add(null);
+            final ExpressionEvaluationPlan plan = getEvaluationPlan(expressions);
+            if (newEvaluationContext.isEvaluateInDefinition() && !plan.getVariableExpressions().isEmpty()) {
+                final SExpression expressionNotProvided = variablesAreAllProvided(plan.getVariableExpressions(), newEvaluationContext);
+                if (expressionNotProvided != null) {
+                    // We forbid the evaluation of expressions of type VARIABLE at process definition level:
+                    throw new SExpressionEvaluationException("Evaluation of expressions of type VARIABLE is forbidden at process definition level.",
+                            expressionNotProvided.getName());
                 }
             }
-            return results;
+            return plan.evaluate(expressionService, dependencyValues, newEvaluationContext.getContainerState());
         } catch (final SProcessDefinitionNotFoundException | SBonitaReadException e) {
             throw buildSExpressionEvaluationExceptionWhenNotFindProcess(newEvaluationContext, e);
         } catch (final SClassLoaderException e) {
@@ -163,27 +160,14 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
         return exception;
     }
 
-    private Map<Integer, Object> evaluateAllExpressionsWithNoDependencies(final Map<String, Object> dependencyValues,
-            final Map<SExpression, SExpression> dataReplacement, final List<SExpression> expressions, final SExpressionContext evaluationContext)
-            throws SExpressionTypeUnknownException, SExpressionEvaluationException, SExpressionDependencyMissingException, SInvalidExpressionException {
-        final Map<Integer, Object> resolvedExpressions = new HashMap<>();
-        final Map<ExpressionKind, List<SExpression>> expressionMapByKind = flattenDependencies(expressions);
-        final List<SExpression> variableExpressions = expressionMapByKind.get(new ExpressionKind(ExpressionType.TYPE_VARIABLE.name()));
-
-        if (evaluationContext.isEvaluateInDefinition() && variableExpressions != null && !variableExpressions.isEmpty()) {
-            final SExpression expressionNotProvided = variablesAreAllProvided(variableExpressions, evaluationContext);
-            if (expressionNotProvided != null) {
-                // We forbid the evaluation of expressions of type VARIABLE at process definition level:
-                throw new SExpressionEvaluationException("Evaluation of expressions of type VARIABLE is forbidden at process definition level.",
-                        expressionNotProvided.getName());
-            }
-        }
-        for (final ExpressionKind kind : ExpressionExecutorStrategy.NO_DEPENDENCY_EXPRESSION_EVALUATION_ORDER) {
-            resolvedExpressions.putAll(evaluateExpressionsOfKind(dependencyValues, expressionMapByKind.get(kind), kind, dataReplacement, resolvedExpressions,
-                    evaluationContext.getContainerState()));
-            expressionMapByKind.remove(kind);
+    ExpressionEvaluationPlan getEvaluationPlan(final List<SExpression> expressions) {
+        final List<SExpression> key = Collections.unmodifiableList(new ArrayList<>(expressions));
+        ExpressionEvaluationPlan plan = evaluationPlans.get(key);
+        if (plan == null) {
+            plan = ExpressionEvaluationPlan.compile(key, expressionService);
+            evaluationPlans.put(key, plan);
         }
-        return resolvedExpressions;
+        return plan;
     }
 
     private SExpression variablesAreAllProvided(final List<SExpression> variableExpressions, final SExpressionContext evaluationContext) {
@@ -198,81 +182,6 @@ public class ExpressionResolverServiceImpl implements ExpressionResolverService
         return null;
     }
 
-    private Map<? extends Integer, ? extends Object> evaluateExpressionWithResolvedDependencies(final SExpression sExpression,
-            final Map<String, Object> dependencyValues, final Map<SExpression, SExpression> dataReplacement,
-            final Map<Integer, Object> alreadyResolvedExpressions, final ContainerState containerState) throws SExpressionTypeUnknownException,
-            SExpressionEvaluationException, SExpressionDependencyMissingException, SInvalidExpressionException {
-        final Map<Integer, Object> resolvedExpressions = new HashMap<>(alreadyResolvedExpressions);
-        // Evaluate the dependencies first:
-        for (final SExpression dep : sExpression.getDependencies()) {
-            resolvedExpressions.putAll(evaluateExpressionWithResolvedDependencies(dep, dependencyValues, dataReplacement, resolvedExpressions, containerState));
-        }
-        // Then evaluate the expression itself:
-        if (!resolvedExpressions.containsKey(sExpression.getDiscriminant())) {
-            // Let's evaluate the expression only if it is not already in the list of resolved dependencies:
-            final Object exprResult = expressionService.evaluate(sExpression, dependencyValues, resolvedExpressions, containerState);
-            addResultToMap(resolvedExpressions, dataReplacement, sExpression, exprResult, dependencyValues);
-        }
-        return resolvedExpressions;
-    }
-
-    private Map<Integer, Object> evaluateExpressionsOfKind(final Map<String, Object> dependencyValues, final List<SExpression> expressionsOfKind,
-            final ExpressionKind kind, final Map<SExpression, SExpression> dataReplacement, final Map<Integer, Object> alreadyResolvedExpressions,
-            final ContainerState containerState) throws SExpressionTypeUnknownException, SExpressionEvaluationException,
-            SExpressionDependencyMissingException, SInvalidExpressionException {
-        final Map<Integer, Object> resolvedExpressions = new HashMap<>();
-        if (expressionsOfKind != null) {
-            final List<Object> evaluationResults = expressionService.evaluate(kind, expressionsOfKind, dependencyValues, alreadyResolvedExpressions,
-                    containerState);
-            final Iterator<SExpression> variableIterator = expressionsOfKind.iterator();
-            for (final Object evaluationResult : evaluationResults) {
-                final SExpression expression = variableIterator.next();
-                addResultToMap(resolvedExpressions, dataReplacement, expression, evaluationResult, dependencyValues);
-            }
-        }
-        return resolvedExpressions;
-    }
-
-    private void addResultToMap(final Map<Integer, Object> resolvedExpressions, final Map<SExpression, SExpression> dataReplacement,
-            final SExpression expression, final Object expressionResult, final Map<String, Object> dependencyValues) {
-        resolvedExpressions.put(expression.getDiscriminant(), expressionResult);
-        if (expressionService.mustPutEvaluatedExpressionInContext(expression.getExpressionKind())) {
-            dependencyValues.put(expression.getContent(), expressionResult);
-        }
-        final SExpression replacement = dataReplacement.get(expression);
-        if (replacement != null) {
-            resolvedExpressions.put(replacement.getDiscriminant(), expressionResult);
-            if (expressionService.mustPutEvaluatedExpressionInContext(expression.getExpressionKind())) {
-                dependencyValues.put(replacement.getContent(), expressionResult);
-            }
-        }
-    }
-
-    private Map<ExpressionKind, List<SExpression>> flattenDependencies(final Collection<SExpression> collection) {
-        final Map<ExpressionKind, List<SExpression>> expressionMapByKind = new HashMap<>();
-        for (final SExpression sExpression : collection) {
-            if (sExpression == null) {
-                continue;
-            }
-            final ExpressionKind expressionKind = sExpression.getExpressionKind();
-            // Get from the map the list of expressions of given ExpressionKind
-            List<SExpression> exprList = expressionMapByKind.get(expressionKind);
-
-            // If no present, put it in the map
-            if (exprList == null) {
-                exprList = new ArrayList<>();
-                expressionMapByKind.put(expressionKind, exprList);
-            }
-            if (!exprList.contains(sExpression)) {
-                exprList.add(sExpression);
-            }
-            if (sExpression.getDependencies() != null) {
-                expressionMapByKind.putAll(flattenDependencies(sExpression.getDependencies()));
-            }
-        }
-        return expressionMapByKind;
-    }
-
     private void fillContext(final SExpressionContext evaluationContext, final Map<String, Object> dependencyValues)
             throws SProcessDefinitionNotFoundException, SBonitaReadException {
         if (evaluationContext.getContainerId() == null && evaluationContext.getProcessDefinitionId() != null) {
@@ -13,22 +13,40 @@
  **/
 package org.bonitasoft.engine.core.expression.control.api.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.core.expression.control.model.SExpressionContext;
 import org.bonitasoft.engine.core.process.definition.ProcessDefinitionService;
+import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.ExpressionService;
+import org.bonitasoft.engine.expression.model.ExpressionKind;
 import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.tracking.TimeTracker;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ExpressionResolverServiceImplTest {
@@ -82,4 +100,92 @@ public class ExpressionResolverServiceImplTest {
         verify(classLoaderService, never()).getLocalClassLoader(anyString(), anyLong());
     }
 
+    private SExpression script(final int discriminant, final SExpression... dependencies) {
+        final SExpression script = mock(SExpression.class);
+        when(script.getDiscriminant()).thenReturn(discriminant);
+        when(script.getExpressionKind()).thenReturn(new ExpressionKind(SExpression.TYPE_READ_ONLY_SCRIPT, SExpression.GROOVY));
+        when(script.getDependencies()).thenReturn(Arrays.asList(dependencies));
+        return script;
+    }
+
+    private void sumOfDependenciesPlus(final SExpression script, final int increment) throws Exception {
+        when(expressionService.evaluate(eq(script), anyMapOf(String.class, Object.class), anyMapOf(Integer.class, Object.class), any(ContainerState.class)))
+                .thenAnswer(new Answer<Object>() {
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Object answer(final InvocationOnMock invocation) throws Throwable {
+                        final Map<Integer, Object> resolvedExpressions = (Map<Integer, Object>) invocation.getArguments()[2];
+                        int result = increment;
+                        for (final SExpression dependency : script.getDependencies()) {
+                            result += (Integer) resolvedExpressions.get(dependency.getDiscriminant());
+                        }
+                        return result;
+                    }
+                });
+    }
+
+    @Test
+    public void evaluate_should_evaluate_dependencies_first_and_shared_dependencies_once() throws Exception {
+        final SExpression shared = script(1);
+        final SExpression left = script(2, shared);
+        final SExpression right = script(3, shared);
+        final SExpression root = script(4, left, right);
+        sumOfDependenciesPlus(shared, 1);
+        sumOfDependenciesPlus(left, 10);
+        sumOfDependenciesPlus(right, 100);
+        sumOfDependenciesPlus(root, 1000);
+
+        final Object result = resolverService.evaluate(root, new SExpressionContext());
+
+        assertThat(result).isEqualTo(1000 + 10 + 1 + 100 + 1);
+        final InOrder inOrder = inOrder(expressionService);
+        inOrder.verify(expressionService).evaluate(eq(shared), anyMapOf(String.class, Object.class), anyMapOf(Integer.class, Object.class),
+                any(ContainerState.class));
+        inOrder.verify(expressionService).evaluate(eq(root), anyMapOf(String.class, Object.class), anyMapOf(Integer.class, Object.class),
+                any(ContainerState.class));
+        verify(expressionService, times(1)).evaluate(eq(shared), anyMapOf(String.class, Object.class), anyMapOf(Integer.class, Object.class),
+                any(ContainerState.class));
+    }
+
+    @Test
+    public void evaluate_should_return_results_in_the_order_of_the_expressions() throws Exception {
+        final SExpression first = script(1);
+        final SExpression second = script(2, first);
+        sumOfDependenciesPlus(first, 1);
+        sumOfDependenciesPlus(second, 2);
+
+        final List<Object> results = resolverService.evaluate(Arrays.asList(second, null, first), new SExpressionContext());
+
+        assertThat(results).containsExactly(3, null, 1);
+    }
+
+    @Test
+    public void getEvaluationPlan_should_compile_the_plan_of_an_expression_graph_once() throws Exception {
+        final SExpression dependency = script(1);
+        final SExpression root = script(2, dependency, dependency);
+
+        final ExpressionEvaluationPlan plan = resolverService.getEvaluationPlan(Collections.singletonList(root));
+
+        assertThat(plan.getNumberOfExpressions()).isEqualTo(2);
+        assertThat(resolverService.getEvaluationPlan(Collections.singletonList(root))).isSameAs(plan);
+    }
+
+    @Test
+    public void getEvaluationPlan_should_evict_the_least_recently_used_plan_when_the_cache_is_full() throws Exception {
+        final List<SExpression> first = Collections.singletonList(script(0));
+        final List<SExpression> last = Collections.singletonList(script(1));
+        final ExpressionEvaluationPlan firstPlan = resolverService.getEvaluationPlan(first);
+        final ExpressionEvaluationPlan lastPlan = resolverService.getEvaluationPlan(last);
+
+        for (int i = 2; i <= ExpressionResolverServiceImpl.MAX_CACHED_EVALUATION_PLANS; i++) {
+            resolverService.getEvaluationPlan(Collections.singletonList(script(i)));
+            // keep the first plan in use
+            resolverService.getEvaluationPlan(first);
+        }
+
+        assertThat(resolverService.getEvaluationPlan(first)).isSameAs(firstPlan);
+        assertThat(resolverService.getEvaluationPlan(last)).isNotSameAs(lastPlan);
+    }
+
 }
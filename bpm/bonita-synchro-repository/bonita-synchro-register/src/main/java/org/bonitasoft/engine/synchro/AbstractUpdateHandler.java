@@ -17,21 +17,27 @@ import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.bonitasoft.engine.events.model.SBatchHandler;
 import org.bonitasoft.engine.events.model.SEvent;
-import org.bonitasoft.engine.events.model.SHandler;
+import org.bonitasoft.engine.events.model.SEventDeliveryMode;
 import org.bonitasoft.engine.events.model.SHandlerExecutionException;
 import org.bonitasoft.engine.service.TenantServiceAccessor;
 import org.bonitasoft.engine.service.impl.ServiceAccessorFactory;
 import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
 import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.TransactionState;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 
 /**
+ * Notifies the synchronization repository once the transaction that fired the events is committed. The event service delivers all the
+ * events of a transaction in one batch; {@link #execute(SEvent)} is kept for event services that do not batch them.
+ *
  * @author Baptiste Mesta
  */
-public abstract class AbstractUpdateHandler implements SHandler<SEvent> {
+public abstract class AbstractUpdateHandler implements SBatchHandler<SEvent> {
 
     private static final long serialVersionUID = 1L;
 
@@ -64,6 +70,22 @@ public abstract class AbstractUpdateHandler implements SHandler<SEvent> {
         }
     }
 
+    @Override
+    public void executeBatch(final List<SEvent> sEvents) throws SHandlerExecutionException {
+        final TenantServiceAccessor tenantServiceAccessor = getTenantServiceAccessor();
+        for (final SEvent sEvent : sEvents) {
+            final Map<String, Serializable> event = getEvent(sEvent);
+            event.put("tenantId", tenantId);
+            // the transaction is already committed: notify directly
+            getSynchronization(event, getObjectId(sEvent), tenantServiceAccessor).afterCompletion(TransactionState.COMMITTED);
+        }
+    }
+
+    @Override
+    public SEventDeliveryMode getDeliveryMode() {
+        return SEventDeliveryMode.AFTER_COMMIT;
+    }
+
     protected BonitaTransactionSynchronization getSynchronization(final Map<String, Serializable> event, final Long id,
             final TenantServiceAccessor tenantServiceAccessor) {
         return new WaitForEventSynchronization(event, id, tenantServiceAccessor.getSynchroService());
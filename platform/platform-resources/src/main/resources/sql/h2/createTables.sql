@@ -102,6 +102,7 @@ CREATE TABLE process_comment (
   content VARCHAR(512) NOT NULL,
   PRIMARY KEY (tenantid, id)
 );
+CREATE INDEX idx1_process_comment on process_comment (processInstanceId, tenantid);
 CREATE TABLE process_definition (
   tenantid BIGINT NOT NULL,
   id BIGINT NOT NULL,
@@ -154,8 +155,10 @@ CREATE TABLE document (
   mimetype VARCHAR(255),
   url VARCHAR(1024),
   content LONGBLOB NULL,
+  contentid VARCHAR(64),
   PRIMARY KEY (tenantid, id)
 );
+CREATE INDEX idx_document_contentid ON document (contentid, tenantid);
 CREATE TABLE document_mapping (
   tenantid BIGINT NOT NULL,
   id BIGINT NOT NULL,
@@ -438,6 +441,24 @@ CREATE TABLE pending_mapping (
 );
 CREATE UNIQUE INDEX idx_UQ_pending_mapping ON pending_mapping (tenantid, activityId, userId, actorId);
 
+CREATE TABLE work_journal (
+	tenantid BIGINT NOT NULL,
+  	id BIGINT NOT NULL,
+  	flowNodeInstanceId BIGINT NOT NULL,
+  	PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_work_journal_flownode ON work_journal (tenantid, flowNodeInstanceId);
+
+CREATE TABLE pending_task_inbox (
+	tenantid BIGINT NOT NULL,
+  	id BIGINT NOT NULL,
+  	userId BIGINT NOT NULL,
+  	activityId BIGINT NOT NULL,
+  	PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_pending_task_inbox_user ON pending_task_inbox (tenantid, userId, activityId);
+CREATE INDEX idx_pending_task_inbox_task ON pending_task_inbox (tenantid, activityId);
+
 CREATE TABLE ref_biz_data_inst (
 	tenantid BIGINT NOT NULL,
   	id BIGINT NOT NULL,
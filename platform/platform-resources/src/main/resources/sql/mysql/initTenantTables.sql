@@ -29,8 +29,10 @@ INSERT INTO sequence VALUES(${tenantid}, 10015, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10016, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10017, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10018, 1);
+INSERT INTO sequence VALUES(${tenantid}, 10019, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10020, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10021, 1);
+INSERT INTO sequence VALUES(${tenantid}, 10022, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10030, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10031, 1);
 INSERT INTO sequence VALUES(${tenantid}, 10040, 1);
@@ -100,6 +100,7 @@ CREATE TABLE process_comment (
   content VARCHAR2(512 CHAR) NOT NULL,
   PRIMARY KEY (tenantid, id)
 );
+CREATE INDEX idx1_process_comment on process_comment (processInstanceId, tenantid);
 CREATE TABLE process_definition (
   tenantId NUMBER(19, 0) NOT NULL,
   id NUMBER(19, 0) NOT NULL,
@@ -151,8 +152,10 @@ CREATE TABLE document (
   mimetype VARCHAR2(255 CHAR),
   url VARCHAR2(1024 CHAR),
   content BLOB,
+  contentid VARCHAR2(64 CHAR),
   PRIMARY KEY (tenantid, id)
 );
+CREATE INDEX idx_document_contentid ON document (contentid, tenantid);
 CREATE TABLE document_mapping (
   tenantid NUMBER(19, 0) NOT NULL,
   id NUMBER(19, 0) NOT NULL,
@@ -435,6 +438,24 @@ CREATE TABLE pending_mapping (
 );
 CREATE UNIQUE INDEX idx_UQ_pending_mapping ON pending_mapping (tenantid, activityId, userId, actorId);
 
+CREATE TABLE work_journal (
+	tenantid NUMBER(19, 0) NOT NULL,
+  	id NUMBER(19, 0) NOT NULL,
+  	flowNodeInstanceId NUMBER(19, 0) NOT NULL,
+  	PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_work_journal_flownode ON work_journal (tenantid, flowNodeInstanceId);
+
+CREATE TABLE pending_task_inbox (
+	tenantid NUMBER(19, 0) NOT NULL,
+  	id NUMBER(19, 0) NOT NULL,
+  	userId NUMBER(19, 0) NOT NULL,
+  	activityId NUMBER(19, 0) NOT NULL,
+  	PRIMARY KEY (tenantid, id)
+);
+CREATE INDEX idx_pending_task_inbox_user ON pending_task_inbox (tenantid, userId, activityId);
+CREATE INDEX idx_pending_task_inbox_task ON pending_task_inbox (tenantid, activityId);
+
 
 CREATE TABLE ref_biz_data_inst (
 	tenantid NUMBER(19, 0) NOT NULL,
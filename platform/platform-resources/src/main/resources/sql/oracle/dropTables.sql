@@ -19,6 +19,8 @@ DROP TABLE arch_ref_biz_data_inst cascade constraints purge;
 DROP TABLE multi_biz_data cascade constraints purge;
 DROP TABLE ref_biz_data_inst cascade constraints purge;
 DROP TABLE pending_mapping cascade constraints purge;
+DROP TABLE work_journal cascade constraints purge;
+DROP TABLE pending_task_inbox cascade constraints purge;
 DROP TABLE connector_instance cascade constraints purge;
 DROP TABLE flownode_instance cascade constraints purge;
 DROP TABLE process_instance cascade constraints purge;
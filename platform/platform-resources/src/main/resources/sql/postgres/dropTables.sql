@@ -19,6 +19,8 @@ DROP TABLE IF EXISTS arch_ref_biz_data_inst;
 DROP TABLE IF EXISTS multi_biz_data;
 DROP TABLE IF EXISTS ref_biz_data_inst;
 DROP TABLE IF EXISTS pending_mapping;
+DROP TABLE IF EXISTS work_journal;
+DROP TABLE IF EXISTS pending_task_inbox;
 DROP TABLE IF EXISTS connector_instance;
 DROP TABLE IF EXISTS flownode_instance;
 DROP TABLE IF EXISTS process_instance;
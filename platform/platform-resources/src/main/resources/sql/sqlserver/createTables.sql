@@ -121,6 +121,8 @@ CREATE TABLE process_comment (
   PRIMARY KEY (tenantid, id)
 )
 GO
+CREATE INDEX idx1_process_comment on process_comment (processInstanceId, tenantid)
+GO
 CREATE TABLE process_definition (
   tenantid NUMERIC(19, 0) NOT NULL,
   id NUMERIC(19, 0) NOT NULL,
@@ -176,9 +178,12 @@ CREATE TABLE document (
   mimetype NVARCHAR(255),
   url NVARCHAR(1024),
   content VARBINARY(MAX),
+  contentid NVARCHAR(64),
   PRIMARY KEY (tenantid, id)
 )
 GO
+CREATE INDEX idx_document_contentid ON document (contentid, tenantid)
+GO
 CREATE TABLE document_mapping (
   tenantid NUMERIC(19, 0) NOT NULL,
   id NUMERIC(19, 0) NOT NULL,
@@ -488,6 +493,29 @@ GO
 CREATE UNIQUE INDEX idx_UQ_pending_mapping ON pending_mapping (tenantid, activityId, userId, actorId)
 GO
 
+CREATE TABLE work_journal (
+	tenantid NUMERIC(19, 0) NOT NULL,
+  	id NUMERIC(19, 0) NOT NULL,
+  	flowNodeInstanceId NUMERIC(19, 0) NOT NULL,
+  	PRIMARY KEY (tenantid, id)
+)
+GO
+CREATE INDEX idx_work_journal_flownode ON work_journal (tenantid, flowNodeInstanceId)
+GO
+
+CREATE TABLE pending_task_inbox (
+	tenantid NUMERIC(19, 0) NOT NULL,
+  	id NUMERIC(19, 0) NOT NULL,
+  	userId NUMERIC(19, 0) NOT NULL,
+  	activityId NUMERIC(19, 0) NOT NULL,
+  	PRIMARY KEY (tenantid, id)
+)
+GO
+CREATE INDEX idx_pending_task_inbox_user ON pending_task_inbox (tenantid, userId, activityId)
+GO
+CREATE INDEX idx_pending_task_inbox_task ON pending_task_inbox (tenantid, activityId)
+GO
+
 CREATE TABLE ref_biz_data_inst (
 	tenantid NUMERIC(19, 0) NOT NULL,
   	id NUMERIC(19, 0) NOT NULL,
@@ -40,6 +40,10 @@ DROP TABLE ref_biz_data_inst
 GO
 DROP TABLE pending_mapping
 GO
+DROP TABLE work_journal
+GO
+DROP TABLE pending_task_inbox
+GO
 DROP TABLE connector_instance
 GO
 DROP TABLE flownode_instance
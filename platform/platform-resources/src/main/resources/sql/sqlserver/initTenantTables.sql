@@ -60,10 +60,14 @@ INSERT INTO sequence VALUES(${tenantid}, 10017, 1)
 GO
 INSERT INTO sequence VALUES(${tenantid}, 10018, 1)
 GO
+INSERT INTO sequence VALUES(${tenantid}, 10019, 1)
+GO
 INSERT INTO sequence VALUES(${tenantid}, 10020, 1)
 GO
 INSERT INTO sequence VALUES(${tenantid}, 10021, 1)
 GO
+INSERT INTO sequence VALUES(${tenantid}, 10022, 1)
+GO
 INSERT INTO sequence VALUES(${tenantid}, 10030, 1)
 GO
 INSERT INTO sequence VALUES(${tenantid}, 10031, 1)
@@ -75,4 +75,23 @@ public interface ArchiveService {
     boolean isArchivable(Class<? extends PersistentObject> sourceObjectClass);
 
     void deleteFromQuery(String queryName, Map<String, Object> parameters) throws SRecorderException;
+
+    /**
+     * Archive in the definitive archive the rows selected by a declared <code>INSERT INTO ... SELECT ...</code> native query, without reading them.
+     * The archived objects get their ids from a single block reserved in the sequence of the archived class, and no event is sent.
+     *
+     * @param queryName
+     *        the name of the declared native query, see {@link org.bonitasoft.engine.services.PersistenceService#insertFromQuery}
+     * @param parameters
+     *        the parameters of the query, other than <code>firstId</code> and <code>tenantId</code>
+     * @param archivedClass
+     *        the class of the archived objects
+     * @param numberOfRows
+     *        the number of rows selected by the query
+     * @throws SRecorderException
+     *         if the query does not archive <code>numberOfRows</code> rows or in case of a write error
+     * @since 7.5.3
+     */
+    void insertFromQuery(String queryName, Map<String, Object> parameters, Class<? extends PersistentObject> archivedClass, int numberOfRows)
+            throws SRecorderException;
 }
@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+
+/**
+ * Append-only file journal of the archived objects waiting to be inserted in the archive tables.
+ * Each record holds the objects archived by one transaction. The checkpoint file stores the position before which all records are inserted or belong
+ * to transactions that were rolled back, the records after it are read again when the journal is reopened.
+ * Once all records are inserted, the journal is truncated.
+ */
+class ArchiveJournal implements Closeable {
+
+    private static final int LENGTH_SIZE = 4;
+
+    private final FileChannel journal;
+
+    private final FileChannel checkpoint;
+
+    ArchiveJournal(final Path folder, final long tenantId) throws IOException {
+        journal = FileChannel.open(folder.resolve("bonita-archive-journal-" + tenantId + ".dat"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        checkpoint = FileChannel.open(folder.resolve("bonita-archive-journal-" + tenantId + ".checkpoint"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Write the archived objects at the end of the journal and force them on disk
+     *
+     * @return the record, holding the position to acknowledge once its objects are inserted
+     */
+    synchronized Record append(final List<ArchivedPersistentObject> archivedObjects) throws IOException {
+        final byte[] content = serialize(archivedObjects);
+        final ByteBuffer buffer = ByteBuffer.allocate(LENGTH_SIZE + content.length);
+        buffer.putInt(content.length).put(content).flip();
+        final long startPosition = journal.size();
+        long position = startPosition;
+        while (buffer.hasRemaining()) {
+            position += journal.write(buffer, position);
+        }
+        journal.force(false);
+        return new Record(archivedObjects, startPosition, position, false);
+    }
+
+    /**
+     * Mark all records ending before the given position as done: they will not be read again when the journal is reopened
+     */
+    synchronized void acknowledge(final long position) throws IOException {
+        if (position >= journal.size()) {
+            // everything is inserted: start again from an empty journal
+            writeCheckpoint(0);
+            journal.truncate(0);
+            journal.force(true);
+        } else {
+            writeCheckpoint(position);
+        }
+    }
+
+    /**
+     * Mark all records as done and start again from an empty journal
+     */
+    synchronized void acknowledgeAll() throws IOException {
+        acknowledge(journal.size());
+    }
+
+    /**
+     * @param classLoader
+     *        class loader used to resolve the classes of the archived objects
+     * @return the records that are not acknowledged yet. A record partially written when the server stopped is discarded.
+     */
+    synchronized List<Record> readPendingRecords(final ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        final List<Record> records = new ArrayList<>();
+        final long size = journal.size();
+        long position = readCheckpoint();
+        final ByteBuffer lengthBuffer = ByteBuffer.allocate(LENGTH_SIZE);
+        while (position + LENGTH_SIZE <= size) {
+            lengthBuffer.clear();
+            readFully(lengthBuffer, position);
+            final int length = lengthBuffer.getInt(0);
+            if (length < 0 || position + LENGTH_SIZE + length > size) {
+                break;
+            }
+            final ByteBuffer content = ByteBuffer.allocate(length);
+            readFully(content, position + LENGTH_SIZE);
+            final long startPosition = position;
+            position += LENGTH_SIZE + length;
+            records.add(new Record(deserialize(content.array(), classLoader), startPosition, position, true));
+        }
+        if (position < size) {
+            journal.truncate(position);
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            journal.close();
+        } finally {
+            checkpoint.close();
+        }
+    }
+
+    private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (journal.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of archive journal");
+            }
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8);
+        while (buffer.hasRemaining()) {
+            if (checkpoint.read(buffer, buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    private void writeCheckpoint(final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(position).flip();
+        while (buffer.hasRemaining()) {
+            checkpoint.write(buffer, buffer.position());
+        }
+        checkpoint.force(false);
+    }
+
+    private byte[] serialize(final List<ArchivedPersistentObject> archivedObjects) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+            outputStream.writeObject(new ArrayList<>(archivedObjects));
+        }
+        return bytes.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ArchivedPersistentObject> deserialize(final byte[] content, final ClassLoader classLoader) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream inputStream = new ClassLoaderObjectInputStream(new ByteArrayInputStream(content), classLoader)) {
+            return (List<ArchivedPersistentObject>) inputStream.readObject();
+        }
+    }
+
+    static final class Record {
+
+        private final List<ArchivedPersistentObject> archivedObjects;
+
+        private final long startPosition;
+
+        private final long position;
+
+        private final boolean recovered;
+
+        Record(final List<ArchivedPersistentObject> archivedObjects, final long startPosition, final long position, final boolean recovered) {
+            this.archivedObjects = archivedObjects;
+            this.startPosition = startPosition;
+            this.position = position;
+            this.recovered = recovered;
+        }
+
+        List<ArchivedPersistentObject> getArchivedObjects() {
+            return archivedObjects;
+        }
+
+        /**
+         * @return the position of the beginning of this record in the journal
+         */
+        long getStartPosition() {
+            return startPosition;
+        }
+
+        /**
+         * @return the position of the end of this record in the journal
+         */
+        long getPosition() {
+            return position;
+        }
+
+        /**
+         * @return true if this record was read again when the journal was reopened: its objects may already be inserted, or belong to a transaction
+         *         that was rolled back
+         */
+        boolean isRecovered() {
+            return recovered;
+        }
+    }
+
+    private static final class ClassLoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        ClassLoaderObjectInputStream(final InputStream inputStream, final ClassLoader classLoader) throws IOException {
+            super(inputStream);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (final ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+
+}
@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.archive.impl;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
@@ -47,13 +49,26 @@ public class ArchiveServiceImpl implements ArchiveService {
 
     private ArchivingStrategy archivingStrategy;
 
+    private final WriteBehindArchiver writeBehindArchiver;
+
     public ArchiveServiceImpl(final PersistenceService definitiveArchivePersistenceService,
             final TechnicalLoggerService logger, final ArchivingStrategy archivingStrategy, final UserTransactionService transactionService) {
+        this(definitiveArchivePersistenceService, logger, archivingStrategy, transactionService, null);
+    }
+
+    /**
+     * @param writeBehindArchiver
+     *        archiver used to insert archived objects after the commit of their transaction, or null to always insert them in the transaction
+     */
+    public ArchiveServiceImpl(final PersistenceService definitiveArchivePersistenceService,
+            final TechnicalLoggerService logger, final ArchivingStrategy archivingStrategy, final UserTransactionService transactionService,
+            final WriteBehindArchiver writeBehindArchiver) {
         super();
         this.definitiveArchivePersistenceService = definitiveArchivePersistenceService;
         this.archivingStrategy = archivingStrategy;
         this.logger = logger;
         this.transactionService = transactionService;
+        this.writeBehindArchiver = writeBehindArchiver;
     }
 
     @Override
@@ -69,10 +84,10 @@ public class ArchiveServiceImpl implements ArchiveService {
         logBeforeMethod(TechnicalLogSeverity.TRACE, methodName);
         if (records != null) {
             assignArchiveDate(time, records);
-            final BatchArchiveCallable callable = buildBatchArchiveCallable(records);
-
             try {
-                transactionService.registerBeforeCommitCallable(callable);
+                if (!archiveAfterCommit(records)) {
+                    transactionService.registerBeforeCommitCallable(buildBatchArchiveCallable(records));
+                }
             } catch (final STransactionNotFoundException e) {
                 if (logger.isLoggable(this.getClass(), TechnicalLogSeverity.TRACE)) {
                     logger.log(this.getClass(), TechnicalLogSeverity.ERROR,
@@ -84,6 +99,31 @@ public class ArchiveServiceImpl implements ArchiveService {
         logAfterMethod(TechnicalLogSeverity.TRACE, methodName);
     }
 
+    private boolean archiveAfterCommit(final ArchiveInsertRecord... records) throws STransactionNotFoundException {
+        if (writeBehindArchiver == null) {
+            return false;
+        }
+        final List<ArchivedPersistentObject> archivedObjects = new ArrayList<>();
+        for (final ArchiveInsertRecord record : records) {
+            if (record != null) {
+                archivedObjects.add(record.getEntity());
+            }
+        }
+        if (archivedObjects.isEmpty() || !writeBehindArchiver.tryReserve(archivedObjects.size())) {
+            return false;
+        }
+        final WriteBehindArchiveSynchronization synchronization = new WriteBehindArchiveSynchronization(writeBehindArchiver, archivedObjects);
+        try {
+            transactionService.registerBonitaSynchronization(synchronization);
+        } catch (final STransactionNotFoundException e) {
+            writeBehindArchiver.release(archivedObjects.size());
+            throw e;
+        }
+        // from now on, the reserved room is released by the synchronization when the transaction completes
+        transactionService.registerBeforeCommitCallable(synchronization);
+        return true;
+    }
+
     // As a protected method for test purposes.
     protected BatchArchiveCallable buildBatchArchiveCallable(final ArchiveInsertRecord... records) throws SRecorderException {
         return new BatchArchiveCallable(definitiveArchivePersistenceService, records);
@@ -157,4 +197,14 @@ public class ArchiveServiceImpl implements ArchiveService {
         }
     }
 
+    @Override
+    public void insertFromQuery(final String queryName, final Map<String, Object> parameters, final Class<? extends PersistentObject> archivedClass,
+            final int numberOfRows) throws SRecorderException {
+        try {
+            definitiveArchivePersistenceService.insertFromQuery(queryName, parameters, archivedClass, numberOfRows);
+        } catch (final SPersistenceException e) {
+            throw new SRecorderException(e);
+        }
+    }
+
 }
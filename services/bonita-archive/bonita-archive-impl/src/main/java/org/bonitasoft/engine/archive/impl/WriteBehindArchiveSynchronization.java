@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.TransactionState;
+
+/**
+ * Gives the objects archived by a transaction to the {@link WriteBehindArchiver}.
+ * It must be registered both as before commit callable, to write the objects in the journal while the transaction can still be rolled back, and as
+ * synchronization, to queue them for insertion once the transaction is committed.
+ */
+public class WriteBehindArchiveSynchronization implements BonitaTransactionSynchronization, Callable<Void> {
+
+    private final WriteBehindArchiver writeBehindArchiver;
+
+    private final List<ArchivedPersistentObject> archivedObjects;
+
+    private ArchiveJournal.Record record;
+
+    public WriteBehindArchiveSynchronization(final WriteBehindArchiver writeBehindArchiver, final List<ArchivedPersistentObject> archivedObjects) {
+        this.writeBehindArchiver = writeBehindArchiver;
+        this.archivedObjects = archivedObjects;
+    }
+
+    @Override
+    public Void call() throws Exception {
+        record = writeBehindArchiver.journal(archivedObjects);
+        return null;
+    }
+
+    @Override
+    public void beforeCommit() {
+
+    }
+
+    @Override
+    public void afterCompletion(final TransactionState txState) {
+        if (record == null) {
+            // inserted in the transaction, or rolled back before being journaled
+            writeBehindArchiver.release(archivedObjects.size());
+        } else if (txState == TransactionState.COMMITTED) {
+            writeBehindArchiver.archive(record);
+        } else {
+            writeBehindArchiver.abort(record);
+        }
+    }
+
+}
@@ -0,0 +1,419 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.engine.commons.TenantLifecycleService;
+import org.bonitasoft.engine.commons.exceptions.SBonitaException;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.SBonitaReadException;
+import org.bonitasoft.engine.persistence.SelectByIdDescriptor;
+import org.bonitasoft.engine.recorder.SRecorderException;
+import org.bonitasoft.engine.sequence.SequenceManager;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+
+/**
+ * Inserts archived objects in the archive tables outside of the transaction that archived them.
+ * <p>
+ * Before a transaction commits, its archived objects get their ids, the first one is inserted in the transaction and all of them are appended to a
+ * local {@link ArchiveJournal}. Once the transaction is committed, a background thread inserts the other ones in batches, in its own transactions.
+ * Records still in the journal when the tenant is stopped are checked when it starts again: a record whose first object is not in the archive tables
+ * belongs to a transaction that was rolled back, and a record whose last object is already there was inserted before its acknowledgement. Only the
+ * other ones are inserted again.
+ * When more than maxPendingObjects objects wait to be inserted, {@link #tryReserve(int)} refuses new objects so that they are archived in the
+ * transaction, as when this archiver is disabled.
+ * <p>
+ * Archived objects, except the first one of each transaction, are only visible once inserted by the background thread.
+ */
+public class WriteBehindArchiver implements TenantLifecycleService {
+
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 30000;
+
+    private static final long STOP_TIMEOUT_MILLIS = 30000;
+
+    private final boolean enabled;
+
+    private final PersistenceService definitiveArchivePersistenceService;
+
+    private final UserTransactionService transactionService;
+
+    private final SequenceManager sequenceManager;
+
+    private final SessionAccessor sessionAccessor;
+
+    private final TechnicalLoggerService logger;
+
+    private final long tenantId;
+
+    private final String journalFolder;
+
+    private final int batchSize;
+
+    private final int maxPendingObjects;
+
+    private final AtomicInteger pendingObjects = new AtomicInteger();
+
+    private final BlockingQueue<ArchiveJournal.Record> records = new LinkedBlockingQueue<>();
+
+    /**
+     * start position of the records of the journal that are not inserted yet, by end position
+     */
+    private final TreeMap<Long, Long> unresolvedRecords = new TreeMap<>();
+
+    private ArchiveJournal journal;
+
+    private Thread pipeline;
+
+    private volatile boolean running;
+
+    public WriteBehindArchiver(final boolean enabled, final PersistenceService definitiveArchivePersistenceService,
+            final UserTransactionService transactionService, final SequenceManager sequenceManager, final SessionAccessor sessionAccessor,
+            final TechnicalLoggerService logger, final long tenantId, final String journalFolder, final int batchSize, final int maxPendingObjects) {
+        this.enabled = enabled;
+        this.definitiveArchivePersistenceService = definitiveArchivePersistenceService;
+        this.transactionService = transactionService;
+        this.sequenceManager = sequenceManager;
+        this.sessionAccessor = sessionAccessor;
+        this.logger = logger;
+        this.tenantId = tenantId;
+        this.journalFolder = journalFolder;
+        this.batchSize = batchSize;
+        this.maxPendingObjects = maxPendingObjects;
+    }
+
+    /**
+     * Reserve room for archived objects that will be given to {@link #journal(List)} before their transaction commits.
+     *
+     * @return false if this archiver is not running or too many objects wait to be inserted: the objects must then be archived in the transaction
+     */
+    public boolean tryReserve(final int numberOfObjects) {
+        if (!running) {
+            return false;
+        }
+        int current;
+        do {
+            current = pendingObjects.get();
+            if (current + numberOfObjects > maxPendingObjects) {
+                return false;
+            }
+        } while (!pendingObjects.compareAndSet(current, current + numberOfObjects));
+        return true;
+    }
+
+    /**
+     * Release the room reserved for objects that are not waiting to be inserted
+     */
+    public void release(final int numberOfObjects) {
+        pendingObjects.addAndGet(-numberOfObjects);
+    }
+
+    /**
+     * Called in the transaction that archived the objects, before it commits: give them their ids, insert the first one and write all of them in the
+     * journal. When the journal can not be written, all objects are inserted in the transaction.
+     *
+     * @return the record to give to {@link #archive(ArchiveJournal.Record)} or {@link #abort(ArchiveJournal.Record)} when the transaction completes, or
+     *         null if all objects are already inserted
+     */
+    public ArchiveJournal.Record journal(final List<ArchivedPersistentObject> archivedObjects) throws SBonitaException {
+        setIds(archivedObjects);
+        definitiveArchivePersistenceService.insert(archivedObjects.get(0));
+        if (archivedObjects.size() == 1) {
+            return null;
+        }
+        synchronized (this) {
+            if (journal != null) {
+                try {
+                    final ArchiveJournal.Record record = journal.append(archivedObjects);
+                    unresolvedRecords.put(record.getPosition(), record.getStartPosition());
+                    return record;
+                } catch (final IOException e) {
+                    log(TechnicalLogSeverity.ERROR, "Unable to write archived objects in the archive journal, they will be inserted in the transaction", e);
+                }
+            }
+        }
+        definitiveArchivePersistenceService.insertInBatch(new ArrayList<PersistentObject>(archivedObjects.subList(1, archivedObjects.size())));
+        return null;
+    }
+
+    /**
+     * Queue for insertion a record of a committed transaction
+     */
+    public synchronized void archive(final ArchiveJournal.Record record) {
+        if (journal == null) {
+            // stopped since the record was written: it is checked and inserted at next start
+            release(record.getArchivedObjects().size());
+            return;
+        }
+        records.add(record);
+    }
+
+    /**
+     * Forget a record of a transaction that was rolled back
+     */
+    public void abort(final ArchiveJournal.Record record) {
+        resolve(Collections.singletonList(record));
+        release(record.getArchivedObjects().size());
+    }
+
+    @Override
+    public synchronized void start() throws SBonitaException {
+        if (!enabled || running) {
+            return;
+        }
+        final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        try {
+            Files.createDirectories(Paths.get(journalFolder));
+            journal = openJournal();
+            final List<ArchiveJournal.Record> pendingRecords = journal.readPendingRecords(classLoader);
+            int numberOfObjects = 0;
+            for (final ArchiveJournal.Record record : pendingRecords) {
+                numberOfObjects += record.getArchivedObjects().size();
+            }
+            if (!pendingRecords.isEmpty()) {
+                log(TechnicalLogSeverity.INFO, "Recovered " + numberOfObjects + " archived objects from the archive journal of tenant " + tenantId, null);
+            }
+            records.clear();
+            records.addAll(pendingRecords);
+            unresolvedRecords.clear();
+            for (final ArchiveJournal.Record record : pendingRecords) {
+                unresolvedRecords.put(record.getPosition(), record.getStartPosition());
+            }
+            pendingObjects.set(numberOfObjects);
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new SRecorderException(e);
+        }
+        running = true;
+        pipeline = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                runPipeline();
+            }
+        }, "Bonita-Archiver-" + tenantId);
+        pipeline.setContextClassLoader(classLoader);
+        pipeline.setDaemon(true);
+        pipeline.start();
+    }
+
+    @Override
+    public void stop() throws SBonitaException {
+        final Thread stoppedPipeline;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            stoppedPipeline = pipeline;
+            pipeline = null;
+        }
+        try {
+            stoppedPipeline.join(STOP_TIMEOUT_MILLIS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (stoppedPipeline.isAlive()) {
+            log(TechnicalLogSeverity.WARNING, "Archived objects are still being inserted, remaining ones will be inserted at next start", null);
+            stoppedPipeline.interrupt();
+        }
+        synchronized (this) {
+            try {
+                journal.close();
+            } catch (final IOException e) {
+                log(TechnicalLogSeverity.WARNING, "Unable to close the archive journal", e);
+            }
+            journal = null;
+            records.clear();
+            unresolvedRecords.clear();
+        }
+    }
+
+    @Override
+    public void pause() throws SBonitaException {
+        stop();
+    }
+
+    @Override
+    public void resume() throws SBonitaException {
+        start();
+    }
+
+    int getNumberOfPendingObjects() {
+        return pendingObjects.get();
+    }
+
+    private ArchiveJournal openJournal() throws IOException {
+        return new ArchiveJournal(Paths.get(journalFolder), tenantId);
+    }
+
+    private void runPipeline() {
+        sessionAccessor.setTenantId(tenantId);
+        try {
+            List<ArchiveJournal.Record> batch = Collections.emptyList();
+            while (running || !batch.isEmpty() || !records.isEmpty()) {
+                if (batch.isEmpty()) {
+                    batch = nextBatch();
+                } else if (!insertWithRetries(batch)) {
+                    // stopping: remaining records stay in the journal
+                    return;
+                } else {
+                    batch = Collections.emptyList();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            sessionAccessor.deleteTenantId();
+        }
+    }
+
+    private List<ArchiveJournal.Record> nextBatch() throws InterruptedException {
+        final ArchiveJournal.Record first = records.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return Collections.emptyList();
+        }
+        final List<ArchiveJournal.Record> batch = new ArrayList<>();
+        batch.add(first);
+        int numberOfObjects = first.getArchivedObjects().size();
+        ArchiveJournal.Record next;
+        while (numberOfObjects < batchSize && (next = records.poll()) != null) {
+            batch.add(next);
+            numberOfObjects += next.getArchivedObjects().size();
+        }
+        return batch;
+    }
+
+    /**
+     * @return false if the batch could not be inserted before the archiver was stopped
+     */
+    private boolean insertWithRetries(final List<ArchiveJournal.Record> batch) throws InterruptedException {
+        long retryDelay = POLL_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                insert(batch);
+                return true;
+            } catch (final Exception e) {
+                log(TechnicalLogSeverity.ERROR, "Unable to insert " + batch.size() + " archive records, retrying in " + retryDelay + " ms", e);
+                if (!running) {
+                    return false;
+                }
+                Thread.sleep(retryDelay);
+                retryDelay = Math.min(retryDelay * 2, MAX_RETRY_DELAY_MILLIS);
+            }
+        }
+    }
+
+    void insert(final List<ArchiveJournal.Record> batch) throws Exception {
+        int numberOfObjects = 0;
+        for (final ArchiveJournal.Record record : batch) {
+            numberOfObjects += record.getArchivedObjects().size();
+        }
+        transactionService.executeInTransaction(() -> {
+            final List<PersistentObject> archivedObjects = new ArrayList<>();
+            for (final ArchiveJournal.Record record : batch) {
+                if (!record.isRecovered() || isToInsert(record.getArchivedObjects())) {
+                    // the first object is inserted by the transaction that archived them
+                    archivedObjects.addAll(record.getArchivedObjects().subList(1, record.getArchivedObjects().size()));
+                }
+            }
+            if (!archivedObjects.isEmpty()) {
+                definitiveArchivePersistenceService.insertInBatch(archivedObjects);
+            }
+            return null;
+        });
+        pendingObjects.addAndGet(-numberOfObjects);
+        resolve(batch);
+    }
+
+    /**
+     * @return true if the transaction that archived the objects was committed and they are not inserted yet. Objects of a record are inserted in the
+     *         same transaction, so checking the last one is enough.
+     */
+    private boolean isToInsert(final List<ArchivedPersistentObject> archivedObjects) throws SBonitaReadException {
+        return exists(archivedObjects.get(0)) && !exists(archivedObjects.get(archivedObjects.size() - 1));
+    }
+
+    private boolean exists(final ArchivedPersistentObject archivedObject) throws SBonitaReadException {
+        return definitiveArchivePersistenceService.selectById(new SelectByIdDescriptor<>(archivedObject.getClass(), archivedObject.getId())) != null;
+    }
+
+    /**
+     * Reserve the ids of the objects from the sequence, as the persistence service does when inserting them, so that they are known in the journal
+     */
+    private void setIds(final List<ArchivedPersistentObject> archivedObjects) throws SBonitaException {
+        final Map<String, List<ArchivedPersistentObject>> objectsByClass = new LinkedHashMap<>();
+        for (final ArchivedPersistentObject archivedObject : archivedObjects) {
+            if (archivedObject.getId() <= 0) {
+                objectsByClass.computeIfAbsent(archivedObject.getClass().getName(), k -> new ArrayList<>()).add(archivedObject);
+            }
+        }
+        for (final Map.Entry<String, List<ArchivedPersistentObject>> entry : objectsByClass.entrySet()) {
+            final long[] ids = sequenceManager.getNextIds(entry.getKey(), tenantId, entry.getValue().size());
+            for (int i = 0; i < ids.length; i++) {
+                entry.getValue().get(i).setId(ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Move the checkpoint of the journal after the given records, and after all records before them that are resolved too
+     */
+    private synchronized void resolve(final List<ArchiveJournal.Record> resolvedRecords) {
+        for (final ArchiveJournal.Record record : resolvedRecords) {
+            unresolvedRecords.remove(record.getPosition());
+        }
+        if (journal == null) {
+            return;
+        }
+        try {
+            if (unresolvedRecords.isEmpty()) {
+                journal.acknowledgeAll();
+            } else {
+                journal.acknowledge(unresolvedRecords.firstEntry().getValue());
+            }
+        } catch (final IOException e) {
+            log(TechnicalLogSeverity.WARNING, "Unable to acknowledge archived objects in the archive journal, they will be checked again at next start", e);
+        }
+    }
+
+    private void log(final TechnicalLogSeverity severity, final String message, final Throwable t) {
+        if (logger.isLoggable(getClass(), severity)) {
+            if (t == null) {
+                logger.log(getClass(), severity, message);
+            } else {
+                logger.log(getClass(), severity, message, t);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ArchiveJournalTest {
+
+    private static final long TENANT_ID = 12L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path folder;
+
+    @Before
+    public void before() throws Exception {
+        folder = temporaryFolder.getRoot().toPath();
+    }
+
+    @Test
+    public void should_read_appended_records_when_journal_is_reopened() throws Exception {
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            journal.append(Arrays.<ArchivedPersistentObject> asList(new ArchivedObject(1), new ArchivedObject(2)));
+            journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(3)));
+        }
+
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            final List<ArchiveJournal.Record> records = journal.readPendingRecords(getClass().getClassLoader());
+
+            assertThat(records.size(), is(2));
+            assertThat(records.get(0).getArchivedObjects(), is(Arrays.<ArchivedPersistentObject> asList(new ArchivedObject(1), new ArchivedObject(2))));
+            assertThat(records.get(1).getArchivedObjects(), is(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(3))));
+        }
+    }
+
+    @Test
+    public void should_not_read_acknowledged_records_again() throws Exception {
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            final ArchiveJournal.Record first = journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(1)));
+            journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(2)));
+            journal.acknowledge(first.getPosition());
+        }
+
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            final List<ArchiveJournal.Record> records = journal.readPendingRecords(getClass().getClassLoader());
+
+            assertThat(records.size(), is(1));
+            assertThat(records.get(0).getArchivedObjects(), is(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(2))));
+        }
+    }
+
+    @Test
+    public void should_truncate_journal_when_all_records_are_acknowledged() throws Exception {
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            final ArchiveJournal.Record record = journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(1)));
+            journal.acknowledge(record.getPosition());
+
+            final ArchiveJournal.Record next = journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(2)));
+
+            assertThat(next.getPosition(), is(record.getPosition()));
+        }
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            assertThat(journal.readPendingRecords(getClass().getClassLoader()).size(), is(1));
+        }
+    }
+
+    @Test
+    public void should_discard_partially_written_record() throws Exception {
+        long position;
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            position = journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(1))).getPosition();
+            journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(2)));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(folder.resolve("bonita-archive-journal-" + TENANT_ID + ".dat").toFile(), "rw")) {
+            file.setLength(position + 10);
+        }
+
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            final List<ArchiveJournal.Record> records = journal.readPendingRecords(getClass().getClassLoader());
+            final ArchiveJournal.Record next = journal.append(Collections.<ArchivedPersistentObject> singletonList(new ArchivedObject(3)));
+
+            assertThat(records.size(), is(1));
+            assertThat(next.getPosition() > position, is(true));
+        }
+        try (ArchiveJournal journal = new ArchiveJournal(folder, TENANT_ID)) {
+            assertThat(journal.readPendingRecords(getClass().getClassLoader()).size(), is(2));
+        }
+    }
+
+    static class ArchivedObject implements ArchivedPersistentObject {
+
+        private static final long serialVersionUID = 1L;
+
+        private long sourceObjectId;
+
+        private long id;
+
+        ArchivedObject(final long sourceObjectId) {
+            this.sourceObjectId = sourceObjectId;
+        }
+
+        @Override
+        public long getArchiveDate() {
+            return 0;
+        }
+
+        @Override
+        public long getSourceObjectId() {
+            return sourceObjectId;
+        }
+
+        @Override
+        public Class<? extends PersistentObject> getPersistentObjectInterface() {
+            return PersistentObject.class;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getDiscriminator() {
+            return ArchivedObject.class.getName();
+        }
+
+        @Override
+        public void setId(final long id) {
+            this.id = id;
+        }
+
+        @Override
+        public void setTenantId(final long id) {
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof ArchivedObject && ((ArchivedObject) o).sourceObjectId == sourceObjectId;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) sourceObjectId;
+        }
+    }
+
+}
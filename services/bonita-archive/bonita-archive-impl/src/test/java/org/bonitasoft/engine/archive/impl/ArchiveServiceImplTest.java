@@ -15,6 +15,7 @@ package org.bonitasoft.engine.archive.impl;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.*;
 
 import org.bonitasoft.engine.archive.ArchiveInsertRecord;
@@ -22,6 +23,7 @@ import org.bonitasoft.engine.archive.ArchivingStrategy;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
 import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
 import org.bonitasoft.engine.transaction.UserTransactionService;
 import org.junit.Test;
 
@@ -50,6 +52,34 @@ public class ArchiveServiceImplTest {
         verify(transactionService, times(1)).registerBeforeCommitCallable(eq(mockBatchArchiveCallable));
     }
 
+    @Test
+    public void should_recordInserts_archive_after_commit_when_write_behind_archiver_accepts_objects() throws Exception {
+        final UserTransactionService transactionService = mock(UserTransactionService.class);
+        final WriteBehindArchiver writeBehindArchiver = mock(WriteBehindArchiver.class);
+        when(writeBehindArchiver.tryReserve(1)).thenReturn(true);
+        final ArchiveServiceImpl archiveService = new ArchiveServiceImpl(null, mock(TechnicalLoggerService.class), null, transactionService,
+                writeBehindArchiver);
+
+        archiveService.recordInserts(3L, new ArchiveInsertRecord(mock(ArchivedPersistentObjectWithSetter.class)));
+
+        verify(transactionService).registerBonitaSynchronization(any(WriteBehindArchiveSynchronization.class));
+        verify(transactionService).registerBeforeCommitCallable(isA(WriteBehindArchiveSynchronization.class));
+        verify(transactionService, never()).registerBeforeCommitCallable(isA(BatchArchiveCallable.class));
+    }
+
+    @Test
+    public void should_recordInserts_archive_in_transaction_when_write_behind_archiver_refuses_objects() throws Exception {
+        final UserTransactionService transactionService = mock(UserTransactionService.class);
+        final WriteBehindArchiver writeBehindArchiver = mock(WriteBehindArchiver.class);
+        final ArchiveServiceImpl archiveService = new ArchiveServiceImpl(null, mock(TechnicalLoggerService.class), null, transactionService,
+                writeBehindArchiver);
+
+        archiveService.recordInserts(3L, new ArchiveInsertRecord(mock(ArchivedPersistentObjectWithSetter.class)));
+
+        verify(transactionService).registerBeforeCommitCallable(any(BatchArchiveCallable.class));
+        verify(transactionService, never()).registerBonitaSynchronization(any(BonitaTransactionSynchronization.class));
+    }
+
     // Test with exception on TxService
 
     // Seen with Nicolas C. for this "interface extension" :)
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.archive.impl;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bonitasoft.engine.archive.impl.ArchiveJournalTest.ArchivedObject;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.persistence.ArchivedPersistentObject;
+import org.bonitasoft.engine.persistence.PersistentObject;
+import org.bonitasoft.engine.persistence.SelectByIdDescriptor;
+import org.bonitasoft.engine.sequence.SequenceManager;
+import org.bonitasoft.engine.services.PersistenceService;
+import org.bonitasoft.engine.services.SPersistenceException;
+import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class WriteBehindArchiverTest {
+
+    private static final long TENANT_ID = 5L;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PersistenceService persistenceService;
+
+    private UserTransactionService transactionService = mock(UserTransactionService.class);
+
+    private SequenceManager sequenceManager = mock(SequenceManager.class);
+
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private final Set<Long> insertedIds = new HashSet<>();
+
+    private WriteBehindArchiver archiver;
+
+    @Before
+    public void before() throws Exception {
+        when(transactionService.executeInTransaction(any(Callable.class))).thenAnswer(new Answer<Object>() {
+
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                return ((Callable<?>) invocation.getArguments()[0]).call();
+            }
+        });
+        when(sequenceManager.getNextIds(anyString(), anyLong(), anyInt())).thenAnswer(new Answer<long[]>() {
+
+            @Override
+            public long[] answer(final InvocationOnMock invocation) throws Throwable {
+                final long[] ids = new long[(Integer) invocation.getArguments()[2]];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = nextId.getAndIncrement();
+                }
+                return ids;
+            }
+        });
+        persistenceService = createPersistenceService();
+        archiver = createArchiver(true, 3);
+    }
+
+    @After
+    public void after() throws Exception {
+        archiver.stop();
+    }
+
+    private PersistenceService createPersistenceService() throws Exception {
+        final PersistenceService persistenceService = mock(PersistenceService.class);
+        when(persistenceService.selectById(any(SelectByIdDescriptor.class))).thenAnswer(new Answer<Object>() {
+
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable {
+                final long id = ((SelectByIdDescriptor<?>) invocation.getArguments()[0]).getId();
+                return insertedIds.contains(id) ? new ArchivedObject(id) : null;
+            }
+        });
+        return persistenceService;
+    }
+
+    private WriteBehindArchiver createArchiver(final boolean enabled, final int maxPendingObjects) {
+        return new WriteBehindArchiver(enabled, persistenceService, transactionService, sequenceManager, mock(SessionAccessor.class),
+                mock(TechnicalLoggerService.class), TENANT_ID, temporaryFolder.getRoot().getAbsolutePath(), 100, maxPendingObjects);
+    }
+
+    private void restart() throws Exception {
+        archiver.stop();
+        persistenceService = createPersistenceService();
+        archiver = createArchiver(true, 3);
+        archiver.start();
+    }
+
+    private List<ArchivedPersistentObject> archivedObjects(final long... sourceObjectIds) {
+        final ArchivedPersistentObject[] archivedObjects = new ArchivedPersistentObject[sourceObjectIds.length];
+        for (int i = 0; i < sourceObjectIds.length; i++) {
+            archivedObjects[i] = new ArchivedObject(sourceObjectIds[i]);
+        }
+        return Arrays.asList(archivedObjects);
+    }
+
+    @Test
+    public void should_not_reserve_room_when_disabled() throws Exception {
+        archiver = createArchiver(false, 3);
+        archiver.start();
+
+        assertThat(archiver.tryReserve(1), is(false));
+    }
+
+    @Test
+    public void should_refuse_objects_above_max_pending_objects() throws Exception {
+        archiver.start();
+
+        assertThat(archiver.tryReserve(2), is(true));
+        assertThat(archiver.tryReserve(2), is(false));
+        archiver.release(2);
+        assertThat(archiver.tryReserve(3), is(true));
+    }
+
+    @Test
+    public void should_insert_first_object_in_transaction_and_other_ones_in_background() throws Exception {
+        archiver.start();
+        final List<ArchivedPersistentObject> archivedObjects = archivedObjects(1, 2, 3);
+        archiver.tryReserve(3);
+
+        final ArchiveJournal.Record record = archiver.journal(archivedObjects);
+        verify(persistenceService).insert(new ArchivedObject(1));
+        archiver.archive(record);
+
+        verify(persistenceService, timeout(5000)).insertInBatch(Arrays.<PersistentObject> asList(new ArchivedObject(2), new ArchivedObject(3)));
+        archiver.stop();
+        assertThat(archiver.getNumberOfPendingObjects(), is(0));
+        assertThat(archivedObjects.get(2).getId(), is(3L));
+    }
+
+    @Test
+    public void should_insert_single_object_in_transaction() throws Exception {
+        archiver.start();
+
+        final ArchiveJournal.Record record = archiver.journal(archivedObjects(1));
+
+        assertThat(record, is(nullValue()));
+        verify(persistenceService).insert(new ArchivedObject(1));
+    }
+
+    @Test
+    public void should_insert_objects_in_transaction_when_stopped() throws Exception {
+        final ArchiveJournal.Record record = archiver.journal(archivedObjects(1, 2));
+
+        assertThat(record, is(nullValue()));
+        verify(persistenceService).insert(new ArchivedObject(1));
+        verify(persistenceService).insertInBatch(Collections.<PersistentObject> singletonList(new ArchivedObject(2)));
+    }
+
+    @Test
+    public void should_insert_objects_of_journal_when_started_again() throws Exception {
+        doThrow(new SPersistenceException("database down")).when(persistenceService).insertInBatch(any(List.class));
+        archiver.start();
+        archiver.tryReserve(2);
+        final ArchiveJournal.Record record = archiver.journal(archivedObjects(1, 2));
+        insertedIds.add(1L);
+        archiver.archive(record);
+        verify(persistenceService, timeout(5000)).insertInBatch(any(List.class));
+
+        restart();
+
+        verify(persistenceService, timeout(5000)).insertInBatch(Collections.<PersistentObject> singletonList(new ArchivedObject(2)));
+    }
+
+    @Test
+    public void should_not_insert_again_objects_inserted_before_their_acknowledgement() throws Exception {
+        archiver.start();
+        final ArchiveJournal.Record record = archiver.journal(archivedObjects(1, 2));
+        // crash after the insertion of the objects, before their acknowledgement
+        insertedIds.addAll(Arrays.asList(1L, 2L));
+
+        restart();
+
+        verify(persistenceService, timeout(5000).atLeastOnce()).selectById(any(SelectByIdDescriptor.class));
+        archiver.stop();
+        verify(persistenceService, never()).insertInBatch(any(List.class));
+        assertThat(record, is(notNullValue()));
+    }
+
+    @Test
+    public void should_not_insert_objects_of_transaction_rolled_back_before_start() throws Exception {
+        archiver.start();
+        archiver.journal(archivedObjects(1, 2));
+        // crash before the commit: the first object is not in the archive tables
+
+        restart();
+
+        verify(persistenceService, timeout(5000).atLeastOnce()).selectById(any(SelectByIdDescriptor.class));
+        archiver.stop();
+        verify(persistenceService, never()).insertInBatch(any(List.class));
+    }
+
+    @Test
+    public void should_not_read_aborted_record_again() throws Exception {
+        archiver.start();
+        archiver.tryReserve(2);
+        archiver.abort(archiver.journal(archivedObjects(1, 2)));
+
+        restart();
+        archiver.stop();
+
+        verify(persistenceService, never()).selectById(any(SelectByIdDescriptor.class));
+        assertThat(archiver.getNumberOfPendingObjects(), is(0));
+    }
+
+}
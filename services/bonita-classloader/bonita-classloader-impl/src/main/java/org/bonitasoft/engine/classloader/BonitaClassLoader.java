@@ -13,21 +13,19 @@
  **/
 package org.bonitasoft.engine.classloader;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.InputStream;
-import java.net.URI;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
 
-import org.apache.commons.io.FileUtils;
 import org.bonitasoft.engine.commons.NullCheckingUtil;
-import org.bonitasoft.engine.commons.io.IOUtil;
 import org.bonitasoft.engine.exception.BonitaRuntimeException;
 
 /**
@@ -42,81 +40,35 @@ public class BonitaClassLoader extends MonoParentJarFileClassLoader {
 
     private final long id;
 
-    protected Map<String, byte[]> nonJarResources;
-
-    protected Set<URL> urls;
-
-    private File temporaryDirectory;
+    protected Map<String, File> nonJarResources;
 
     private boolean isActive = true;
 
     private final long creationTime;
 
-    private String uuid;
-
-    BonitaClassLoader(final Map<String, byte[]> resources, final String type, final long id, final URI temporaryDirectoryUri, final ClassLoader parent) {
+    /**
+     * @param jars
+     *        the jar files of this classloader, usually entries of a {@link ContentAddressedResourceStore} shared with other classloaders: they are not
+     *        deleted when this classloader is destroyed
+     * @param nonJarResources
+     *        the files holding the other resources, by resource name
+     */
+    BonitaClassLoader(final Collection<File> jars, final Map<String, File> nonJarResources, final String type, final long id, final ClassLoader parent) {
         super(type + "__" + id, new URL[] {}, parent);
         this.creationTime = System.currentTimeMillis();
-        NullCheckingUtil.checkArgsNotNull(resources, type, id, temporaryDirectoryUri, parent);
+        NullCheckingUtil.checkArgsNotNull(jars, nonJarResources, type, id, parent);
         this.type = type;
         this.id = id;
-        this.uuid = generateUUID();
-
-        nonJarResources = new HashMap<>();
-        urls = new HashSet<>();
-        this.temporaryDirectory = createTemporaryDirectory(temporaryDirectoryUri);
-        addResources(resources);
-        addURLs(urls.toArray(new URL[urls.size()]));
-    }
-
-    private File createTemporaryDirectory(URI temporaryDirectoryUri) {
-        File temporaryDirectory = new File(temporaryDirectoryUri);
-        if (!temporaryDirectory.exists()) {
-            temporaryDirectory.mkdirs();
-        }
-        temporaryDirectory = createFolderFromUUID(temporaryDirectory, uuid);
-        if (temporaryDirectory.exists()) {
-            uuid = generateUUID();
-            //retry
-            return createTemporaryDirectory(temporaryDirectoryUri);
-        }
-        temporaryDirectory.mkdir();
-        return temporaryDirectory;
-    }
-
-    private File createFolderFromUUID(File temporaryDirectory, String uuid) {
-        return new File(temporaryDirectory, uuid.substring(0, 5));
-    }
-
-    String generateUUID() {
-        return UUID.randomUUID().toString();
-    }
-
-    protected void addResources(final Map<String, byte[]> resources) {
-        if (resources == null) {
-            return;
-        }
-        for (final Map.Entry<String, byte[]> resource : resources.entrySet()) {
-            if (resource.getKey().matches(".*\\.jar")) {
-                final byte[] data = resource.getValue();
-                try {
-                    final File file = writeResource(resource, data);
-                    final String path = file.getAbsolutePath();
-                    final URL url = new File(path).toURI().toURL();
-                    urls.add(url);
-                } catch (final IOException e) {
-                    throw new BonitaRuntimeException(e);
-                }
-            } else {
-                nonJarResources.put(resource.getKey(), resource.getValue());
+        this.nonJarResources = new HashMap<>(nonJarResources);
+        final List<URL> urls = new ArrayList<>(jars.size());
+        for (final File jar : jars) {
+            try {
+                urls.add(jar.toURI().toURL());
+            } catch (final MalformedURLException e) {
+                throw new BonitaRuntimeException(e);
             }
         }
-    }
-
-    File writeResource(Map.Entry<String, byte[]> resource, byte[] data) throws IOException {
-        final File file = File.createTempFile(resource.getKey(), ".jar", temporaryDirectory);
-        IOUtil.write(file, data);
-        return file;
+        addURLs(urls.toArray(new URL[urls.size()]));
     }
 
     @Override
@@ -129,9 +81,9 @@ public class BonitaClassLoader extends MonoParentJarFileClassLoader {
     }
 
     private InputStream getInternalInputstream(final String name) {
-        final byte[] classData = loadProcessResource(name);
-        if (classData != null) {
-            return new ByteArrayInputStream(classData);
+        final InputStream processResource = loadProcessResource(name);
+        if (processResource != null) {
+            return processResource;
         }
         final InputStream is = super.getResourceAsStream(name);
         if (is != null) {
@@ -140,11 +92,16 @@ public class BonitaClassLoader extends MonoParentJarFileClassLoader {
         return null;
     }
 
-    private byte[] loadProcessResource(final String resourceName) {
-        if (nonJarResources == null) {
-            return new byte[0];
+    private InputStream loadProcessResource(final String resourceName) {
+        final File file = nonJarResources.get(resourceName);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return new FileInputStream(file);
+        } catch (final FileNotFoundException e) {
+            throw new BonitaRuntimeException("Resource " + resourceName + " of " + this + " is no longer available in " + file.getAbsolutePath(), e);
         }
-        return nonJarResources.get(resourceName);
     }
 
     @Override
@@ -179,7 +136,6 @@ public class BonitaClassLoader extends MonoParentJarFileClassLoader {
     @Override
     public void destroy() {
         super.destroy();
-        FileUtils.deleteQuietly(temporaryDirectory);
         isActive = false;
     }
 
@@ -191,13 +147,9 @@ public class BonitaClassLoader extends MonoParentJarFileClassLoader {
         return type;
     }
 
-    public File getTemporaryFolder() {
-        return temporaryDirectory;
-    }
-
     @Override
     public String toString() {
-        return super.toString() + ", uuid=" + uuid + ", creationTime=" + creationTime + ", type=" + type + ", id=" + id + ", isActive: " + isActive
+        return super.toString() + ", creationTime=" + creationTime + ", type=" + type + ", id=" + id + ", isActive: " + isActive
                 + ", parent= " + getParent();
     }
 }
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything needed to build a {@link BonitaClassLoader}, once its resources have been written to a {@link ContentAddressedResourceStore}.
+ * <p>
+ * It holds only file references, so a {@link VirtualClassLoader} can keep it until the classloader is first used instead of creating the classloader when
+ * it is refreshed.
+ */
+class BonitaClassLoaderFactory {
+
+    private final List<File> jars;
+
+    private final Map<String, File> nonJarResources;
+
+    private final String type;
+
+    private final long id;
+
+    private final ClassLoader parent;
+
+    BonitaClassLoaderFactory(final List<File> jars, final Map<String, File> nonJarResources, final String type, final long id, final ClassLoader parent) {
+        this.jars = jars;
+        this.nonJarResources = nonJarResources;
+        this.type = type;
+        this.id = id;
+        this.parent = parent;
+    }
+
+    static BonitaClassLoaderFactory store(final Map<String, byte[]> resources, final ContentAddressedResourceStore store, final String type,
+            final long id, final ClassLoader parent) throws IOException {
+        final List<File> jars = new ArrayList<>();
+        final Map<String, File> nonJarResources = new HashMap<>();
+        if (resources != null) {
+            for (final Map.Entry<String, byte[]> resource : resources.entrySet()) {
+                final File file = store.store(resource.getValue());
+                if (resource.getKey().matches(".*\\.jar")) {
+                    jars.add(file);
+                } else {
+                    nonJarResources.put(resource.getKey(), file);
+                }
+            }
+        }
+        return new BonitaClassLoaderFactory(jars, nonJarResources, type, id, parent);
+    }
+
+    BonitaClassLoader create() {
+        return new BonitaClassLoader(jars, nonJarResources, type, id, parent);
+    }
+
+}
@@ -13,13 +13,14 @@
  **/
 package org.bonitasoft.engine.classloader;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.URI;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.bonitasoft.engine.classloader.listeners.ClassReflectorClearer;
 import org.bonitasoft.engine.classloader.listeners.JacksonCacheClearer;
@@ -27,7 +28,6 @@ import org.bonitasoft.engine.commons.NullCheckingUtil;
 import org.bonitasoft.engine.events.EventService;
 import org.bonitasoft.engine.events.model.SEvent;
 import org.bonitasoft.engine.events.model.impl.SEventImpl;
-import org.bonitasoft.engine.exception.BonitaHomeNotSetException;
 import org.bonitasoft.engine.home.BonitaHomeServer;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
@@ -56,6 +56,13 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
     private final EventService eventService;
     private boolean traceEnabled;
 
+    /**
+     * entries of the resource store that no classloader stored for this time are deleted when the store is opened
+     */
+    static final long RESOURCE_STORE_ENTRY_MAX_AGE_IN_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    private volatile ContentAddressedResourceStore resourceStore;
+
     public ClassLoaderServiceImpl(final ParentClassLoaderResolver parentClassLoaderResolver, final TechnicalLoggerService logger,
                                   final EventService eventService) {
         this.parentClassLoaderResolver = parentClassLoaderResolver;
@@ -178,7 +185,6 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
         final VirtualClassLoader virtualClassloader = (VirtualClassLoader) getGlobalClassLoader();
         try {
             refreshClassLoader(virtualClassloader, resources, getGlobalClassLoaderType(), getGlobalClassLoaderId(),
-                    BonitaHomeServer.getInstance().getGlobalTemporaryFolder(),
                     ClassLoaderServiceImpl.class.getClassLoader());
         } catch (Exception e) {
             throw new SClassLoaderException(e);
@@ -193,8 +199,7 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
         }
         final VirtualClassLoader virtualClassloader = getLocalClassLoader(type, id);
         try {
-            refreshClassLoader(virtualClassloader, resources, type, id, getLocalTemporaryFolder(type, id),
-                    getParentClassLoader(key));
+            refreshClassLoader(virtualClassloader, resources, type, id, getParentClassLoader(key));
             final SEvent event = new SEventImpl("ClassLoaderRefreshed");
             event.setObject(key);
             eventService.fireEvent(event);
@@ -203,14 +208,32 @@ public class ClassLoaderServiceImpl implements ClassLoaderService {
         }
     }
 
-    protected URI getLocalTemporaryFolder(String type, long id) throws BonitaHomeNotSetException, IOException {
-        return BonitaHomeServer.getInstance().getLocalTemporaryFolder(type, id);
+    protected File getResourceStoreFolder() throws IOException {
+        return BonitaHomeServer.getInstance().getClassLoaderStoreFolder();
+    }
+
+    ContentAddressedResourceStore getResourceStore() throws IOException {
+        if (resourceStore == null) {
+            synchronized (mutex) {
+                // double check synchronization
+                if (resourceStore == null) {
+                    final ContentAddressedResourceStore store = new ContentAddressedResourceStore(getResourceStoreFolder());
+                    final int purged = store.purge(RESOURCE_STORE_ENTRY_MAX_AGE_IN_MILLIS);
+                    if (purged > 0 && logger.isLoggable(getClass(), TechnicalLogSeverity.INFO)) {
+                        logger.log(getClass(), TechnicalLogSeverity.INFO, "Purged " + purged + " unused resources from the classloader store "
+                                + store.getRootFolder().getAbsolutePath());
+                    }
+                    resourceStore = store;
+                }
+            }
+        }
+        return resourceStore;
     }
 
     private void refreshClassLoader(final VirtualClassLoader virtualClassloader, final Map<String, byte[]> resources, final String type, final long id,
-                                    final URI temporaryFolder, final ClassLoader parent) {
-        final BonitaClassLoader classLoader = new BonitaClassLoader(resources, type, id, temporaryFolder, parent);
-        virtualClassloader.replaceClassLoader(classLoader);
+                                    final ClassLoader parent) throws IOException {
+        // resources are written to the shared store right away, the classloader itself is only created when first used
+        virtualClassloader.replaceClassLoader(BonitaClassLoaderFactory.store(resources, getResourceStore(), type, id, parent));
         for (ClassLoaderListener globalListener : new HashSet<>(globalListeners)) {
             globalListener.onUpdate(virtualClassloader);
         }
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bonitasoft.engine.commons.io.IOUtil;
+
+/**
+ * Stores classloader resources on disk under the SHA-256 digest of their content.
+ * <p>
+ * The same jar used by several classloaders (e.g. a connector shared by many process definitions) is therefore written only once, and entries are not
+ * removed when a classloader is destroyed: the store lives in the work folder of the engine and acts as a cache that survives restarts. Entries are
+ * written to a temporary file first and then renamed, so that concurrent writers, possibly from other JVMs sharing the folder, never expose a partial file.
+ * An existing entry is only reused when its content is identical. Its last modification date is then refreshed, so that {@link #purge(long)} removes the
+ * entries that no classloader stored for a while.
+ */
+public class ContentAddressedResourceStore {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final File rootFolder;
+
+    /**
+     * names of the entries handed out by this store, never purged
+     */
+    private final Set<String> entriesInUse = ConcurrentHashMap.newKeySet();
+
+    public ContentAddressedResourceStore(final File rootFolder) {
+        this.rootFolder = rootFolder;
+    }
+
+    /**
+     * @return the file holding the given content, written only if no identical content is already stored
+     */
+    public File store(final byte[] content) throws IOException {
+        final File file = new File(rootFolder, digest(content));
+        entriesInUse.add(file.getName());
+        if (file.isFile() && file.length() == content.length && Arrays.equals(Files.readAllBytes(file.toPath()), content)) {
+            file.setLastModified(System.currentTimeMillis());
+            return file;
+        }
+        if (!rootFolder.isDirectory() && !rootFolder.mkdirs() && !rootFolder.isDirectory()) {
+            throw new IOException("Unable to create the classloader store folder " + rootFolder.getAbsolutePath());
+        }
+        final File temporaryFile = File.createTempFile(file.getName(), ".tmp", rootFolder);
+        try {
+            IOUtil.write(temporaryFile, content);
+            try {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temporaryFile.delete();
+        }
+        return file;
+    }
+
+    /**
+     * Deletes the entries, and the temporary files left by interrupted writes, that were not stored for the given time. Entries stored through this
+     * instance are kept whatever their age, as classloaders may still read them.
+     *
+     * @return the number of deleted files
+     */
+    public int purge(final long maxAgeInMillis) {
+        final File[] files = rootFolder.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        final long oldestKept = System.currentTimeMillis() - maxAgeInMillis;
+        int deleted = 0;
+        for (final File file : files) {
+            if (file.isFile() && !entriesInUse.contains(file.getName()) && file.lastModified() < oldestKept && file.delete()) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    public File getRootFolder() {
+        return rootFolder;
+    }
+
+    static String digest(final byte[] content) {
+        final MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // every JVM has to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+        final byte[] hash = messageDigest.digest(content);
+        final char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+}
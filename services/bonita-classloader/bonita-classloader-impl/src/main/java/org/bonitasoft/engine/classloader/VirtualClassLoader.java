@@ -41,7 +41,14 @@ public class VirtualClassLoader extends ClassLoader {
      * this to the BonitaClassLoader instance
      * then the delegation model does not work anymore and some classes/resources can't be found. A good implementation should override all methods...
      */
-    private BonitaClassLoader classloader;
+    private volatile BonitaClassLoader classloader;
+
+    /**
+     * Set when the classloader was refreshed but not used since: the {@link BonitaClassLoader} is only created on first use.
+     */
+    private BonitaClassLoaderFactory pendingClassLoader;
+
+    private final Object classLoaderMutex = new Object();
 
     private VirtualClassLoader virtualParent;
 
@@ -63,14 +70,43 @@ public class VirtualClassLoader extends ClassLoader {
     }
 
     void replaceClassLoader(final BonitaClassLoader classloader) {
-        BonitaClassLoader oldClassLoader = this.classloader;
-        this.classloader = classloader;
+        replaceClassLoader(classloader, null);
+    }
+
+    /**
+     * Replace the current classloader by one that is created by the given factory when this classloader is first used.
+     */
+    void replaceClassLoader(final BonitaClassLoaderFactory classLoaderFactory) {
+        replaceClassLoader(null, classLoaderFactory);
+    }
+
+    private void replaceClassLoader(final BonitaClassLoader classloader, final BonitaClassLoaderFactory classLoaderFactory) {
+        final BonitaClassLoader oldClassLoader;
+        synchronized (classLoaderMutex) {
+            oldClassLoader = this.classloader;
+            this.classloader = classloader;
+            this.pendingClassLoader = classLoaderFactory;
+        }
         notifyUpdate();
         if (oldClassLoader != null) {
             destroy(oldClassLoader);
         }
     }
 
+    private BonitaClassLoader getDelegate() {
+        final BonitaClassLoader current = classloader;
+        if (current != null) {
+            return current;
+        }
+        synchronized (classLoaderMutex) {
+            if (classloader == null && pendingClassLoader != null) {
+                classloader = pendingClassLoader.create();
+                pendingClassLoader = null;
+            }
+            return classloader;
+        }
+    }
+
     private void notifyUpdate() {
         for (ClassLoaderListener listener : getListeners()) {
             listener.onUpdate(this);
@@ -82,6 +118,7 @@ public class VirtualClassLoader extends ClassLoader {
 
     @Override
     public Class<?> loadClass(final String name) throws ClassNotFoundException {
+        final BonitaClassLoader classloader = getDelegate();
         if (classloader != null) {
             return classloader.loadClass(name, false);
         }
@@ -90,6 +127,7 @@ public class VirtualClassLoader extends ClassLoader {
 
     @Override
     protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+        final BonitaClassLoader classloader = getDelegate();
         if (classloader != null) {
             return classloader.loadClass(name, resolve);
         }
@@ -98,6 +136,7 @@ public class VirtualClassLoader extends ClassLoader {
 
     @Override
     public InputStream getResourceAsStream(final String name) {
+        final BonitaClassLoader classloader = getDelegate();
         if (classloader != null) {
             return classloader.getResourceAsStream(name);
         }
@@ -105,11 +144,12 @@ public class VirtualClassLoader extends ClassLoader {
     }
 
     public BonitaClassLoader getClassLoader() {
-        return classloader;
+        return getDelegate();
     }
 
     @Override
     public URL getResource(final String name) {
+        final BonitaClassLoader classloader = getDelegate();
         if (classloader != null) {
             return classloader.getResource(name);
         }
@@ -118,6 +158,7 @@ public class VirtualClassLoader extends ClassLoader {
 
     @Override
     public Enumeration<URL> getResources(final String name) throws IOException {
+        final BonitaClassLoader classloader = getDelegate();
         if (classloader != null) {
             return classloader.getResources(name);
         }
@@ -125,7 +166,11 @@ public class VirtualClassLoader extends ClassLoader {
     }
 
     public void destroy() {
-        final BonitaClassLoader classloader = this.classloader;
+        final BonitaClassLoader classloader;
+        synchronized (classLoaderMutex) {
+            classloader = this.classloader;
+            pendingClassLoader = null;
+        }
         destroy(classloader);
         notifyDestroy();
         if(virtualParent != null){
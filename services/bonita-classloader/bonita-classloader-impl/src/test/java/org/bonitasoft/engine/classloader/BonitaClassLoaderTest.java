@@ -15,56 +15,46 @@ package org.bonitasoft.engine.classloader;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Collections;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 
 public class BonitaClassLoaderTest {
 
     @Rule
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
-    @Rule
-    public ExpectedException expectedException = ExpectedException.none();
 
     @Test
-    public void releaseShouldRemoveAllScopeFolderAndItsContent() throws IOException {
-        final BonitaClassLoader bonitaClassLoader = new BonitaClassLoader(
-                Collections.singletonMap("myJar.jar", "Salut le monde".getBytes()), "here", 154L,
-                temporaryFolder.newFolder().toURI(), BonitaClassLoader.class.getClassLoader());
-        File temporaryFolder = bonitaClassLoader.getTemporaryFolder();
-        assertThat(temporaryFolder).as("bonitaClassLoader tempDir:%s should exists after bonitaClassLoader creation",
-                temporaryFolder.getAbsolutePath())
-                .exists();
+    public void destroy_should_keep_the_shared_resource_files() throws IOException {
+        final File jar = temporaryFolder.newFile();
+        final File resource = temporaryFolder.newFile();
+        final BonitaClassLoader bonitaClassLoader = new BonitaClassLoader(Collections.singletonList(jar), Collections.singletonMap("resource.txt",
+                resource), "here", 154L, BonitaClassLoader.class.getClassLoader());
         // when
         bonitaClassLoader.destroy();
 
         // then
-        assertThat(temporaryFolder).as("bonitaClassLoader tempDir:%s should not exists after bonitaClassLoader release",
-                temporaryFolder.getAbsolutePath())
-                .doesNotExist();
+        assertThat(jar).exists();
+        assertThat(resource).exists();
     }
 
     @Test
-    public void should_create_second_classloader_use_other_folder() throws Exception {
+    public void getResourceAsStream_should_read_non_jar_resources_from_their_file() throws Exception {
         //given
-        File tempFolder = temporaryFolder.newFolder();
-        //when
-        BonitaClassLoader classLoader1 = new BonitaClassLoader(
-                Collections.singletonMap("myJar1.jar", "content".getBytes()), "type", 12L, tempFolder.toURI(),
-                BonitaClassLoaderTest.class.getClassLoader());
-        BonitaClassLoader classLoader2 = new BonitaClassLoader(
-                Collections.singletonMap("myJar2.jar", "content".getBytes()), "type", 13L, tempFolder.toURI(),
-                BonitaClassLoaderTest.class.getClassLoader());
-        //then
-        assertThat(classLoader1.getTemporaryFolder().getAbsolutePath())
-                .isNotEqualTo(classLoader2.getTemporaryFolder().getAbsolutePath());
-        assertThat(classLoader1.getTemporaryFolder().getParentFile()).isEqualTo(tempFolder);
-        assertThat(classLoader2.getTemporaryFolder().getParentFile()).isEqualTo(tempFolder);
+        final File resource = temporaryFolder.newFile();
+        FileUtils.writeByteArrayToFile(resource, "content".getBytes());
+        final BonitaClassLoader bonitaClassLoader = new BonitaClassLoader(Collections.<File> emptyList(), Collections.singletonMap("resource.txt",
+                resource), "type", 12L, BonitaClassLoaderTest.class.getClassLoader());
+        //when then
+        assertThat(bonitaClassLoader.getResourceAsStream("resource.txt")).hasContentEqualTo(new ByteArrayInputStream("content".getBytes()));
+        assertThat(bonitaClassLoader.getResourceAsStream("/resource.txt")).hasContentEqualTo(new ByteArrayInputStream("content".getBytes()));
+        assertThat(bonitaClassLoader.getResourceAsStream("unknown.txt")).isNull();
     }
 
 }
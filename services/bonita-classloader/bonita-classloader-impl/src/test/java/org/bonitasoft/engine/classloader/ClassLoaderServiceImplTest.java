@@ -2,14 +2,13 @@ package org.bonitasoft.engine.classloader;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.anyLong;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.util.Collections;
 
@@ -68,6 +67,7 @@ public class ClassLoaderServiceImplTest {
     private String PARENT_TYPE = "parent";
     private long CHILD_ID = 12;
     private long PARENT_ID = 13;
+    private File storeFolder;
 
     @Before
     public void before() throws Exception {
@@ -78,8 +78,8 @@ public class ClassLoaderServiceImplTest {
         Thread.currentThread().setContextClassLoader(processClassLoader);
         myClassLoaderListener = new MyClassLoaderListener();
         temporaryFolder.create();
-        final File file = temporaryFolder.newFolder();
-        doReturn(file.toURI()).when(classLoaderService).getLocalTemporaryFolder(anyString(), anyLong());
+        storeFolder = temporaryFolder.newFolder();
+        doReturn(storeFolder).when(classLoaderService).getResourceStoreFolder();
     }
 
     @After
@@ -241,4 +241,32 @@ public class ClassLoaderServiceImplTest {
         verify(listener, times(2)).onUpdate(any(VirtualClassLoader.class));
     }
 
+    @Test
+    public void should_refreshLocalClassLoader_store_a_resource_shared_by_several_classloaders_only_once() throws Exception {
+        //given
+        classLoaderService.getLocalClassLoader(CHILD_TYPE, 17);//second classloader
+        final byte[] content = "shared content".getBytes();
+        //when
+        classLoaderService.refreshLocalClassLoader(CHILD_TYPE, CHILD_ID, Collections.singletonMap("shared.txt", content));
+        classLoaderService.refreshLocalClassLoader(CHILD_TYPE, 17, Collections.singletonMap("shared.txt", content));
+
+        //then
+        assertThat(storeFolder.listFiles()).hasSize(1);
+        assertThat(classLoaderService.getLocalClassLoader(CHILD_TYPE, 17).getResourceAsStream("shared.txt")).hasContentEqualTo(
+                new ByteArrayInputStream(content));
+    }
+
+    @Test
+    public void should_purge_the_unused_resources_of_the_store_when_opening_it() throws Exception {
+        //given
+        final File unused = new File(storeFolder, "unused");
+        assertThat(unused.createNewFile()).isTrue();
+        unused.setLastModified(System.currentTimeMillis() - ClassLoaderServiceImpl.RESOURCE_STORE_ENTRY_MAX_AGE_IN_MILLIS - 1000);
+        //when
+        classLoaderService.refreshLocalClassLoader(CHILD_TYPE, CHILD_ID, Collections.singletonMap("resource.txt", "content".getBytes()));
+        //then
+        assertThat(unused).doesNotExist();
+        assertThat(storeFolder.listFiles()).hasSize(1);
+    }
+
 }
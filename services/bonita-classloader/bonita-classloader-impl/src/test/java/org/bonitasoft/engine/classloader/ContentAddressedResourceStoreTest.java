@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.classloader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentAddressedResourceStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File rootFolder;
+
+    private ContentAddressedResourceStore store;
+
+    @Before
+    public void before() throws Exception {
+        rootFolder = temporaryFolder.newFolder();
+        store = new ContentAddressedResourceStore(rootFolder);
+    }
+
+    @Test
+    public void store_should_write_the_content_in_a_file_named_after_its_digest() throws Exception {
+        final File file = store.store("content".getBytes());
+
+        assertThat(file.getParentFile()).isEqualTo(rootFolder);
+        assertThat(file.getName()).isEqualTo("ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73");
+        assertThat(FileUtils.readFileToByteArray(file)).isEqualTo("content".getBytes());
+    }
+
+    @Test
+    public void store_should_reuse_the_file_of_an_identical_content() throws Exception {
+        final File first = store.store("content".getBytes());
+
+        final File second = new ContentAddressedResourceStore(rootFolder).store("content".getBytes());
+
+        assertThat(second).isEqualTo(first);
+        assertThat(rootFolder.listFiles()).containsOnly(first);
+    }
+
+    @Test
+    public void store_should_use_distinct_files_for_distinct_contents() throws Exception {
+        final File first = store.store("content1".getBytes());
+        final File second = store.store("content2".getBytes());
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(rootFolder.listFiles()).containsOnly(first, second);
+    }
+
+    @Test
+    public void store_should_rewrite_a_truncated_entry() throws Exception {
+        final File file = store.store("content".getBytes());
+        FileUtils.writeByteArrayToFile(file, "cont".getBytes());
+
+        store.store("content".getBytes());
+
+        assertThat(FileUtils.readFileToByteArray(file)).isEqualTo("content".getBytes());
+    }
+
+    @Test
+    public void store_should_rewrite_an_entry_of_the_same_length_but_another_content() throws Exception {
+        final File file = store.store("content".getBytes());
+        FileUtils.writeByteArrayToFile(file, "CONTENT".getBytes());
+
+        store.store("content".getBytes());
+
+        assertThat(FileUtils.readFileToByteArray(file)).isEqualTo("content".getBytes());
+    }
+
+    @Test
+    public void purge_should_delete_the_old_entries_not_stored_by_this_store() throws Exception {
+        final File old = new ContentAddressedResourceStore(rootFolder).store("old".getBytes());
+        final File oldInUse = store.store("oldInUse".getBytes());
+        final File recent = new ContentAddressedResourceStore(rootFolder).store("recent".getBytes());
+        final File leftOver = new File(rootFolder, "leftOver.tmp");
+        FileUtils.writeByteArrayToFile(leftOver, "left".getBytes());
+        final long twoDaysAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+        old.setLastModified(twoDaysAgo);
+        oldInUse.setLastModified(twoDaysAgo);
+        leftOver.setLastModified(twoDaysAgo);
+
+        final int purged = store.purge(TimeUnit.DAYS.toMillis(1));
+
+        assertThat(purged).isEqualTo(2);
+        assertThat(rootFolder.listFiles()).containsOnly(oldInUse, recent);
+    }
+
+    @Test
+    public void purge_should_do_nothing_when_the_root_folder_is_missing() throws Exception {
+        assertThat(new ContentAddressedResourceStore(new File(rootFolder, "missing")).purge(0)).isZero();
+    }
+
+    @Test
+    public void store_should_create_the_root_folder_if_missing() throws Exception {
+        final File missingFolder = new File(rootFolder, "missing");
+
+        final File file = new ContentAddressedResourceStore(missingFolder).store("content".getBytes());
+
+        assertThat(file).exists();
+        assertThat(file.getParentFile()).isEqualTo(missingFolder);
+    }
+
+}
@@ -30,6 +30,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.io.FileUtils;
 import org.bonitasoft.engine.commons.JavaMethodInvoker;
@@ -59,8 +60,7 @@ public class VirtualClassLoaderTest {
         localClassLoader = new VirtualClassLoader("org.bonitasoft", 1L, Thread.currentThread().getContextClassLoader());
         Thread.currentThread().setContextClassLoader(localClassLoader);
 
-        newClassLoader = new BonitaClassLoader(Collections.<String, byte[]> emptyMap(), "test", 125,
-                File.createTempFile("test", ".tmp").toURI(), testClassLoader);
+        newClassLoader = new BonitaClassLoader(Collections.<File> emptyList(), Collections.<String, File> emptyMap(), "test", 125, testClassLoader);
     }
 
     @After
@@ -74,9 +74,9 @@ public class VirtualClassLoaderTest {
         final Map<String, byte[]> resources = new HashMap<>(1);
         resources.put("UOSFaasApplication.jar", FileUtils.readFileToByteArray(new File("src/test/resources/UOSFaasApplication.jar")));
         final File tempDir = new File(System.getProperty("java.io.tmpdir"), "VirtualClassLoaderTest");
-        final BonitaClassLoader bonitaClassLoader = new BonitaClassLoader(resources, "here", 154L, tempDir.toURI(), BonitaClassLoader.class.getClassLoader());
-
-        vcl.replaceClassLoader(bonitaClassLoader);
+        vcl.replaceClassLoader(BonitaClassLoaderFactory.store(resources, new ContentAddressedResourceStore(tempDir), "here", 154L,
+                BonitaClassLoader.class.getClassLoader()));
+        final BonitaClassLoader bonitaClassLoader = vcl.getClassLoader();
         URL url = vcl.getResource("au/edu/sydney/faas/applicationstudent/StudentInformation.class");
         assertThat(url).isNotNull();
         assertThat(url.toString())
@@ -98,9 +98,9 @@ public class VirtualClassLoaderTest {
         final Map<String, byte[]> resources = new HashMap<>(1);
         resources.put("UOSFaasApplication.jar", FileUtils.readFileToByteArray(new File("src/test/resources/UOSFaasApplication.jar")));
         final File tempDir = new File(System.getProperty("java.io.tmpdir"), "VirtualClassLoaderTest");
-        final BonitaClassLoader bonitaClassLoader = new BonitaClassLoader(resources, "here", 154L, tempDir.toURI(), BonitaClassLoader.class.getClassLoader());
-
-        vcl.replaceClassLoader(bonitaClassLoader);
+        vcl.replaceClassLoader(BonitaClassLoaderFactory.store(resources, new ContentAddressedResourceStore(tempDir), "here", 154L,
+                BonitaClassLoader.class.getClassLoader()));
+        final BonitaClassLoader bonitaClassLoader = vcl.getClassLoader();
         final Object objectToInvokeJavaMethodOn = vcl.loadClass("au.edu.sydney.faas.applicationstudent.StudentRequest").getConstructors()[0].newInstance();
         final Object valueToSetObjectWith = vcl.loadClass("au.edu.sydney.faas.applicationstudent.StudentInformation").getConstructors()[0].newInstance();
 
@@ -181,6 +181,40 @@ public class VirtualClassLoaderTest {
         verify(classLoader1).destroy();
     }
 
+    @Test
+    public void should_create_classloader_from_factory_only_when_first_used() throws Exception {
+        //given
+        final AtomicInteger created = new AtomicInteger();
+        localClassLoader.replaceClassLoader(new BonitaClassLoaderFactory(Collections.<File> emptyList(), Collections.<String, File> emptyMap(), "test",
+                126, testClassLoader) {
+
+            @Override
+            BonitaClassLoader create() {
+                created.incrementAndGet();
+                return super.create();
+            }
+        });
+        assertThat(created.get()).isEqualTo(0);
+        //when
+        localClassLoader.loadClass(String.class.getName());
+        localClassLoader.getResource("any");
+        //then
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(localClassLoader.getClassLoader().getId()).isEqualTo(126);
+    }
+
+    @Test
+    public void should_replaceClassLoader_with_factory_destroy_old_classloader() throws Exception {
+        //given
+        final BonitaClassLoader oldClassLoader = mock(BonitaClassLoader.class);
+        localClassLoader.replaceClassLoader(oldClassLoader);
+        //when
+        localClassLoader.replaceClassLoader(new BonitaClassLoaderFactory(Collections.<File> emptyList(), Collections.<String, File> emptyMap(), "test",
+                126, testClassLoader));
+        //then
+        verify(oldClassLoader).destroy();
+    }
+
     @Test
     public void should_destroy_notify_listeners() throws Exception {
         //given
@@ -17,11 +17,14 @@ import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -49,6 +52,9 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
 
     private ExecutorService executorService;
 
+    // fails the asynchronous executions that last longer than the timeout, see getTimeout
+    private ScheduledThreadPoolExecutor timeoutScheduler;
+
     private final SessionAccessor sessionAccessor;
 
     private final SessionService sessionService;
@@ -79,8 +85,6 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
      *        the number of threads to keep in the pool, even
      *        if they are idle, unless {@code allowCoreThreadTimeOut} is set
      * @param loggerService
-     * @param timeout
-     *        if the execution of the connector is above this time in milliseconds the execution will fail
      * @param maximumPoolSize
      *        the maximum number of threads to allow in the
      *        pool
@@ -106,17 +110,8 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     public Map<String, Object> execute(final SConnector sConnector, final Map<String, Object> inputParameters, final ClassLoader classLoader)
             throws SConnectorException {
         final long startTime = System.currentTimeMillis();
-        if (executorService == null) {
-            throw new SConnectorException("Unable to execute a connector, if the node is not started. Start it first");
-        }
-
-        long tenantId;
-        try {
-            tenantId = sessionAccessor.getTenantId();
-        } catch (final STenantIdNotSetException tenantIdNotSetException) {
-            throw new SConnectorException("Tenant id not set.", tenantIdNotSetException);
-        }
-        final Callable<Map<String, Object>> callable = new ExecuteConnectorCallable(inputParameters, sConnector, tenantId, classLoader);
+        checkStarted();
+        final Callable<Map<String, Object>> callable = new ExecuteConnectorCallable(inputParameters, sConnector, getTenantId(), classLoader);
         final Future<Map<String, Object>> submit = executorService.submit(callable);
         try {
             return getValue(submit);
@@ -132,6 +127,74 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
         }
     }
 
+    @Override
+    public CompletableFuture<Map<String, Object>> executeAsync(final SConnector sConnector, final Map<String, Object> inputParameters,
+            final ClassLoader classLoader) throws SConnectorException {
+        final long startTime = System.currentTimeMillis();
+        checkStarted();
+        final ExecuteConnectorCallable callable = new ExecuteConnectorCallable(inputParameters, sConnector, getTenantId(), classLoader);
+        final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        final Future<?> execution = executorService.submit(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    result.complete(callable.call());
+                } catch (final Throwable e) {
+                    if (result.completeExceptionally(e instanceof SConnectorException ? e : new SConnectorException(e))) {
+                        disconnectSilently(sConnector);
+                    }
+                } finally {
+                    track(TimeTrackerRecords.EXECUTE_CONNECTOR_INCLUDING_POOL_SUBMIT, startTime, sConnector, inputParameters);
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "Asynchronous execution of " + sConnector;
+            }
+        });
+        scheduleTimeout(sConnector, result, execution);
+        return result;
+    }
+
+    /**
+     * Same timeout as the synchronous execution (see {@link #getValue(Future)}), without a thread waiting for the connector: the future is failed
+     * by the timeout scheduler and the connector is cancelled.
+     */
+    private void scheduleTimeout(final SConnector sConnector, final CompletableFuture<Map<String, Object>> result, final Future<?> execution) {
+        final long timeout = getTimeout();
+        final ScheduledThreadPoolExecutor scheduler = timeoutScheduler;
+        if (timeout < 0 || scheduler == null || result.isDone()) {
+            return;
+        }
+        final ScheduledFuture<?> timer = scheduler.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                if (result.completeExceptionally(new SConnectorException("The connector timed out " + sConnector, new TimeoutException()))) {
+                    execution.cancel(true);
+                    disconnectSilently(sConnector);
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        result.whenComplete((outputs, failure) -> timer.cancel(false));
+    }
+
+    private void checkStarted() throws SConnectorException {
+        if (executorService == null) {
+            throw new SConnectorException("Unable to execute a connector, if the node is not started. Start it first");
+        }
+    }
+
+    private long getTenantId() throws SConnectorException {
+        try {
+            return sessionAccessor.getTenantId();
+        } catch (final STenantIdNotSetException tenantIdNotSetException) {
+            throw new SConnectorException("Tenant id not set.", tenantIdNotSetException);
+        }
+    }
+
     private void track(final TimeTrackerRecords recordName, final long startTime, final SConnector sConnector, final Map<String, Object> inputParameters) {
         if (timeTracker.isTrackable(recordName)) {
             final long endTime = System.currentTimeMillis();
@@ -146,7 +209,19 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
     }
 
     protected Map<String, Object> getValue(final Future<Map<String, Object>> submit) throws InterruptedException, ExecutionException, TimeoutException {
-        return submit.get();
+        final long timeout = getTimeout();
+        if (timeout < 0) {
+            return submit.get();
+        }
+        return submit.get(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the time in milliseconds after which the execution of a connector fails, whether synchronous or asynchronous, or a negative value if
+     *         connectors never time out
+     */
+    protected long getTimeout() {
+        return -1;
     }
 
     void disconnectSilently(final SConnector sConnector) {
@@ -248,6 +323,10 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
             final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler(loggerService);
             final ConnectorExecutorThreadFactory threadFactory = new ConnectorExecutorThreadFactory("ConnectorExecutor");
             setExecutor(new ThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS, workQueue, threadFactory, handler));
+            if (getTimeout() >= 0) {
+                timeoutScheduler = new ScheduledThreadPoolExecutor(1, new ConnectorExecutorThreadFactory("ConnectorExecutorTimeout"));
+                timeoutScheduler.setRemoveOnCancelPolicy(true);
+            }
         }
     }
 
@@ -266,6 +345,10 @@ public class ConnectorExecutorImpl implements ConnectorExecutor {
 
     @Override
     public void stop() {
+        if (timeoutScheduler != null) {
+            timeoutScheduler.shutdownNow();
+            timeoutScheduler = null;
+        }
         if (executorService != null) {
             executorService.shutdown();
             try {
@@ -20,9 +20,13 @@ import static org.mockito.Mockito.*;
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.bonitasoft.engine.connector.SConnector;
 import org.bonitasoft.engine.connector.exception.SConnectorException;
@@ -36,6 +40,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.runners.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -83,6 +89,124 @@ public class ConnectorExecutorImplTest {
         assertThat(result.get("result")).isEqualTo("resultValue");
     }
 
+    @Test
+    public void executeAsync_should_complete_the_future_with_connector_outputs() throws Exception {
+        // given
+        connectorExecutorImpl.setExecutor(executorService);
+        runSubmittedTasksInCallerThread();
+        doReturn(Collections.singletonMap("result", "resultValue")).when(connector).execute();
+        // when
+        final CompletableFuture<Map<String, Object>> future = connectorExecutorImpl.executeAsync(connector,
+                Collections.<String, Object> singletonMap("key", "value"), Thread.currentThread().getContextClassLoader());
+
+        // then
+        assertThat(future.isDone()).isTrue();
+        assertThat(future.get()).containsEntry("result", "resultValue");
+        verify(connector).setInputParameters(Collections.<String, Object> singletonMap("key", "value"));
+        verify(connector, never()).disconnect();
+    }
+
+    @Test
+    public void executeAsync_should_complete_the_future_exceptionally_and_disconnect_when_connector_fails() throws Exception {
+        // given
+        connectorExecutorImpl.setExecutor(executorService);
+        runSubmittedTasksInCallerThread();
+        final IllegalStateException exception = new IllegalStateException("connector failure");
+        doThrow(exception).when(connector).execute();
+        // when
+        final CompletableFuture<Map<String, Object>> future = connectorExecutorImpl.executeAsync(connector,
+                Collections.<String, Object> emptyMap(), Thread.currentThread().getContextClassLoader());
+
+        // then
+        try {
+            future.get();
+            fail("should have thrown the exception");
+        } catch (final ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(SConnectorException.class);
+            assertThat(e.getCause().getCause()).isEqualTo(exception);
+        }
+        verify(connector).disconnect();
+    }
+
+    @Test(expected = SConnectorException.class)
+    public void executeAsync_should_throw_exception_when_not_started() throws Exception {
+        connectorExecutorImpl.executeAsync(connector, Collections.<String, Object> emptyMap(), Thread.currentThread().getContextClassLoader());
+    }
+
+    @Test
+    public void executeAsync_should_fail_the_future_and_cancel_the_connector_after_the_timeout() throws Exception {
+        // given
+        final ConnectorExecutorImpl connectorExecutorWithTimeout = new ConnectorExecutorImpl(1, 1, loggerService, 1, 1, sessionAccessor, sessionService,
+                timeTracker) {
+
+            @Override
+            protected long getTimeout() {
+                return 50;
+            }
+        };
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(new Answer<Map<String, Object>>() {
+
+            @Override
+            public Map<String, Object> answer(final InvocationOnMock invocation) throws Throwable {
+                try {
+                    Thread.sleep(10000);
+                } catch (final InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return Collections.emptyMap();
+            }
+        }).when(connector).execute();
+        connectorExecutorWithTimeout.start();
+        try {
+            // when
+            final CompletableFuture<Map<String, Object>> future = connectorExecutorWithTimeout.executeAsync(connector,
+                    Collections.<String, Object> emptyMap(), Thread.currentThread().getContextClassLoader());
+
+            // then
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                fail("should have timed out");
+            } catch (final ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(SConnectorException.class).hasMessageContaining("timed out");
+                assertThat(e.getCause().getCause()).isInstanceOf(TimeoutException.class);
+            }
+            assertThat(interrupted.await(5, TimeUnit.SECONDS)).as("connector thread interrupted").isTrue();
+            verify(connector, timeout(5000)).disconnect();
+        } finally {
+            connectorExecutorWithTimeout.stop();
+        }
+    }
+
+    @Test
+    public void executeAsync_should_not_time_out_by_default() throws Exception {
+        // given
+        doReturn(Collections.singletonMap("result", "resultValue")).when(connector).execute();
+        connectorExecutorImpl.start();
+        try {
+            // when
+            final CompletableFuture<Map<String, Object>> future = connectorExecutorImpl.executeAsync(connector,
+                    Collections.<String, Object> emptyMap(), Thread.currentThread().getContextClassLoader());
+
+            // then
+            assertThat(future.get(5, TimeUnit.SECONDS)).containsEntry("result", "resultValue");
+            verify(connector, never()).disconnect();
+        } finally {
+            connectorExecutorImpl.stop();
+        }
+    }
+
+    private void runSubmittedTasksInCallerThread() {
+        doAnswer(new Answer<Future<?>>() {
+
+            @Override
+            public Future<?> answer(final InvocationOnMock invocation) throws Throwable {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(executorService).submit(any(Runnable.class));
+    }
+
     @Test(expected = SConnectorException.class)
     public void should_execute_throw_exception_when_not_started() throws Exception {
         // given
@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.connector;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.bonitasoft.engine.commons.TenantLifecycleService;
 import org.bonitasoft.engine.connector.exception.SConnectorException;
@@ -41,6 +42,25 @@ public interface ConnectorExecutor extends TenantLifecycleService {
      */
     Map<String, Object> execute(SConnector sConnector, Map<String, Object> inputParameters, final ClassLoader classLoader) throws SConnectorException;
 
+    /**
+     * Executes a connector without waiting for its completion: the calling thread is released as soon as the connector is submitted.
+     *
+     * @param sConnector
+     *        The connector will be executed
+     * @param inputParameters
+     *        The input parameters of connector
+     * @param classLoader
+     *        The classLoader within the connector will be executed
+     * @return
+     *         a future completed with the output of the connector, or completed exceptionally with a {@link SConnectorException} if its execution
+     *         failed
+     * @throws SConnectorException
+     *         Error thrown when the connector can not be submitted
+     * @since 7.5.3
+     */
+    CompletableFuture<Map<String, Object>> executeAsync(SConnector sConnector, Map<String, Object> inputParameters, final ClassLoader classLoader)
+            throws SConnectorException;
+
     /**
      * call disconnect method of the connector
      *
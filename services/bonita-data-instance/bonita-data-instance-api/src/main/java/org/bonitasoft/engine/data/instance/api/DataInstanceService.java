@@ -39,6 +39,15 @@ public interface DataInstanceService {
      */
     void createDataInstance(final SDataInstance dataInstance) throws SDataInstanceException;
 
+    /**
+     * Create the given dataInstances in DB, inserting them in batch when possible
+     * 
+     * @param dataInstances
+     *            SDataInstance objects
+     * @throws SDataInstanceException
+     */
+    void createDataInstances(List<SDataInstance> dataInstances) throws SDataInstanceException;
+
     /**
      * Update the specific dataInstance according to the given descriptor
      * 
@@ -44,6 +44,8 @@ import org.bonitasoft.engine.data.instance.model.SDataInstance;
 import org.bonitasoft.engine.data.instance.model.archive.SADataInstance;
 import org.bonitasoft.engine.data.instance.model.archive.builder.SADataInstanceBuilderFactory;
 import org.bonitasoft.engine.data.instance.model.builder.SDataInstanceBuilderFactory;
+import org.bonitasoft.engine.events.EventActionType;
+import org.bonitasoft.engine.events.EventService;
 import org.bonitasoft.engine.events.model.SDeleteEvent;
 import org.bonitasoft.engine.events.model.SEvent;
 import org.bonitasoft.engine.events.model.SInsertEvent;
@@ -61,6 +63,7 @@ import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.persistence.SelectOneDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
 import org.bonitasoft.engine.recorder.SRecorderException;
+import org.bonitasoft.engine.recorder.model.BatchInsertRecord;
 import org.bonitasoft.engine.recorder.model.DeleteRecord;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
 import org.bonitasoft.engine.recorder.model.InsertRecord;
@@ -89,12 +92,42 @@ public class DataInstanceServiceImpl implements DataInstanceService {
 
     protected final TechnicalLoggerService logger;
 
+    private final EventService eventService;
+
     public DataInstanceServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
             final ArchiveService archiveService, final TechnicalLoggerService logger) {
+        this(recorder, persistenceService, archiveService, logger, null);
+    }
+
+    /**
+     * @param eventService
+     *        used to know whether data instances can be inserted in batch, i.e. when no handler needs one event per created data instance
+     */
+    public DataInstanceServiceImpl(final Recorder recorder, final ReadPersistenceService persistenceService,
+            final ArchiveService archiveService, final TechnicalLoggerService logger, final EventService eventService) {
         this.recorder = recorder;
         this.persistenceService = persistenceService;
         this.archiveService = archiveService;
         this.logger = logger;
+        this.eventService = eventService;
+    }
+
+    private void archiveDataInstances(final List<SDataInstance> sDataInstances) throws SDataInstanceException {
+        final List<ArchiveInsertRecord> archiveInsertRecords = new ArrayList<>(sDataInstances.size());
+        for (final SDataInstance sDataInstance : sDataInstances) {
+            if (!sDataInstance.isTransientData()) {
+                final SADataInstance saDataInstance = BuilderFactory.get(SADataInstanceBuilderFactory.class).createNewInstance(sDataInstance).done();
+                archiveInsertRecords.add(new ArchiveInsertRecord(saDataInstance));
+            }
+        }
+        if (!archiveInsertRecords.isEmpty()) {
+            try {
+                archiveService.recordInserts(System.currentTimeMillis(), archiveInsertRecords.toArray(new ArchiveInsertRecord[archiveInsertRecords.size()]));
+            } catch (final SRecorderException e) {
+                logOnExceptionMethod("createDataInstances", e);
+                throw new SDataInstanceException("Unable to create SADataInstance", e);
+            }
+        }
     }
 
     private void archiveDataInstance(final SDataInstance sDataInstance) throws SDataInstanceException {
@@ -497,6 +530,26 @@ public class DataInstanceServiceImpl implements DataInstanceService {
         archiveDataInstance(dataInstance);
     }
 
+    @Override
+    public void createDataInstances(final List<SDataInstance> dataInstances) throws SDataInstanceException {
+        if (eventService == null || eventService.hasHandlers(DATA_INSTANCE, EventActionType.CREATED)) {
+            // handlers expect one event per data instance
+            for (final SDataInstance dataInstance : dataInstances) {
+                createDataInstance(dataInstance);
+            }
+            return;
+        }
+        if (dataInstances.isEmpty()) {
+            return;
+        }
+        try {
+            recorder.recordBatchInsert(new BatchInsertRecord(dataInstances), null);
+        } catch (final SRecorderException e) {
+            throw new SCreateDataInstanceException("Impossible to create data instances.", e);
+        }
+        archiveDataInstances(dataInstances);
+    }
+
     @Override
     public void updateDataInstance(final SDataInstance dataInstance, final EntityUpdateDescriptor descriptor) throws SDataInstanceException {
         NullCheckingUtil.checkArgsNotNull(dataInstance);
@@ -34,13 +34,18 @@ import org.bonitasoft.engine.data.instance.model.archive.impl.SALongTextDataInst
 import org.bonitasoft.engine.data.instance.model.archive.impl.SAShortTextDataInstanceImpl;
 import org.bonitasoft.engine.data.instance.model.impl.SLongTextDataInstanceImpl;
 import org.bonitasoft.engine.data.instance.model.impl.SShortTextDataInstanceImpl;
+import org.bonitasoft.engine.events.EventActionType;
+import org.bonitasoft.engine.events.EventService;
+import org.bonitasoft.engine.events.model.SInsertEvent;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.persistence.ReadPersistenceService;
 import org.bonitasoft.engine.persistence.SBonitaReadException;
 import org.bonitasoft.engine.persistence.SelectListDescriptor;
 import org.bonitasoft.engine.persistence.SelectOneDescriptor;
 import org.bonitasoft.engine.recorder.Recorder;
+import org.bonitasoft.engine.recorder.model.BatchInsertRecord;
 import org.bonitasoft.engine.recorder.model.EntityUpdateDescriptor;
+import org.bonitasoft.engine.recorder.model.InsertRecord;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -63,6 +68,8 @@ public class DataInstanceServiceImplTest {
     @Mock
     private TechnicalLoggerService logger;
     @Mock
+    private EventService eventService;
+    @Mock
     private ParentContainerResolver parentContainerResolver;
     @Captor
     private ArgumentCaptor<ArchiveInsertRecord> archiveInsertRecordArgumentCaptor;
@@ -105,6 +112,37 @@ public class DataInstanceServiceImplTest {
         Assert.assertEquals(archiveInstances, dataInstances);
     }
 
+    @Test
+    public final void should_insert_data_instances_in_batch_and_archive_them_together() throws Exception {
+        //given
+        final SShortTextDataInstanceImpl dataInstance1 = new SShortTextDataInstanceImpl();
+        dataInstance1.setValue("value1");
+        final SShortTextDataInstanceImpl dataInstance2 = new SShortTextDataInstanceImpl();
+        dataInstance2.setValue("value2");
+        //when
+        dataInstanceServiceImpl.createDataInstances(Arrays.<SDataInstance> asList(dataInstance1, dataInstance2));
+        //then
+        final ArgumentCaptor<BatchInsertRecord> batchInsertRecordCaptor = ArgumentCaptor.forClass(BatchInsertRecord.class);
+        verify(recorder).recordBatchInsert(batchInsertRecordCaptor.capture(), Matchers.<SInsertEvent> any());
+        assertThat(batchInsertRecordCaptor.getValue().getEntity()).containsExactly(dataInstance1, dataInstance2);
+        verify(recorder, never()).recordInsert(any(InsertRecord.class), any(SInsertEvent.class));
+        verify(archiveService).recordInserts(anyLong(), archiveInsertRecordArgumentCaptor.capture(), archiveInsertRecordArgumentCaptor.capture());
+        assertThat(((SAShortTextDataInstanceImpl) archiveInsertRecordArgumentCaptor.getAllValues().get(1).getEntity()).getValue()).isEqualTo("value2");
+    }
+
+    @Test
+    public final void should_create_data_instances_one_by_one_when_handlers_listen_to_their_creation() throws Exception {
+        //given
+        doReturn(true).when(eventService).hasHandlers("DATA_INSTANCE", EventActionType.CREATED);
+        final SShortTextDataInstanceImpl dataInstance1 = new SShortTextDataInstanceImpl();
+        final SShortTextDataInstanceImpl dataInstance2 = new SShortTextDataInstanceImpl();
+        //when
+        dataInstanceServiceImpl.createDataInstances(Arrays.<SDataInstance> asList(dataInstance1, dataInstance2));
+        //then
+        verify(recorder, times(2)).recordInsert(any(InsertRecord.class), any(SInsertEvent.class));
+        verify(recorder, never()).recordBatchInsert(any(BatchInsertRecord.class), any(SInsertEvent.class));
+    }
+
     @Test
     public final void should_archive_the_first_value_of_a_data_when_creating_it() throws Exception {
         //given
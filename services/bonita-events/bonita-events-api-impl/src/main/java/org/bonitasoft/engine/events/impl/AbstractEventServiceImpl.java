@@ -23,9 +23,11 @@ import org.bonitasoft.engine.events.EventActionType;
 import org.bonitasoft.engine.events.EventService;
 import org.bonitasoft.engine.events.model.HandlerRegistrationException;
 import org.bonitasoft.engine.events.model.HandlerUnregistrationException;
+import org.bonitasoft.engine.events.model.SBatchHandler;
 import org.bonitasoft.engine.events.model.SEvent;
 import org.bonitasoft.engine.events.model.SFireEventException;
 import org.bonitasoft.engine.events.model.SHandler;
+import org.bonitasoft.engine.events.model.SHandlerExecutionException;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 
@@ -63,7 +65,11 @@ public abstract class AbstractEventServiceImpl implements EventService {
                         // for each handler, I check if it's interested or not by the given event
                         try {
                             if (handler.isInterested(event)) {
-                                handler.execute(event);
+                                if (handler instanceof SBatchHandler) {
+                                    enqueue((SBatchHandler<SEvent>) handler, event);
+                                } else {
+                                    handler.execute(event);
+                                }
                             }
                         } catch (final Exception e) {
                             if (sFireEventException == null) {
@@ -93,6 +99,14 @@ public abstract class AbstractEventServiceImpl implements EventService {
         }
     }
 
+    /**
+     * Hands the given event over to a handler that wants to receive the events of a transaction as a batch.
+     * By default, the event is delivered immediately.
+     */
+    protected void enqueue(final SBatchHandler<SEvent> handler, final SEvent event) throws SHandlerExecutionException {
+        handler.executeBatch(Collections.singletonList(event));
+    }
+
     protected abstract Collection<SHandler<SEvent>> getHandlersFor(final String type);
 
     protected abstract boolean containsHandlerFor(final String type);
@@ -15,32 +15,115 @@ package org.bonitasoft.engine.events.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
+import org.bonitasoft.engine.commons.PlatformLifecycleService;
 import org.bonitasoft.engine.events.model.HandlerRegistrationException;
 import org.bonitasoft.engine.events.model.HandlerUnregistrationException;
+import org.bonitasoft.engine.events.model.SBatchHandler;
 import org.bonitasoft.engine.events.model.SEvent;
 import org.bonitasoft.engine.events.model.SHandler;
+import org.bonitasoft.engine.events.model.SHandlerExecutionException;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.UserTransactionService;
 
 /**
+ * Handlers are kept in copy-on-write lists: firing an event reads the registry without locking while handlers are added or removed at
+ * runtime.
+ * Asynchronous batches are delivered by a thread that only runs between the start and the stop of the service: when it is not running, they are
+ * delivered by the thread that committed the transaction.
+ *
  * @author Christophe Havard
  * @author Matthieu Chaffotte
  * @author Laurent Vaills
  */
-public class EventServiceImpl extends AbstractEventServiceImpl {
+public class EventServiceImpl extends AbstractEventServiceImpl implements PlatformLifecycleService {
 
     /**
-     * Contains a list of all events type and their registered handlers
+     * Contains a list of all events type and their registered handlers. Lists are never modified once published.
      */
     protected Map<String, List<SHandler<SEvent>>> registeredHandlers;
 
+    private final UserTransactionService userTransactionService;
+
+    private final ThreadLocal<TransactionEventBatches> transactionEventBatches = new ThreadLocal<TransactionEventBatches>();
+
+    private volatile ExecutorService asyncExecutor;
+
+    private final Executor asyncDelivery = new Executor() {
+
+        @Override
+        public void execute(final Runnable delivery) {
+            final ExecutorService executor = asyncExecutor;
+            if (executor != null) {
+                try {
+                    executor.execute(delivery);
+                    return;
+                } catch (final RejectedExecutionException e) {
+                    // stopped meanwhile
+                }
+            }
+            delivery.run();
+        }
+    };
+
     public EventServiceImpl(final TechnicalLoggerService logger) {
+        this(logger, null);
+    }
+
+    /**
+     * @param userTransactionService
+     *        used to deliver the events of a transaction to the {@link SBatchHandler}s as batches. Without it, they receive every event
+     *        immediately.
+     */
+    public EventServiceImpl(final TechnicalLoggerService logger, final UserTransactionService userTransactionService) {
         super(logger);
-        registeredHandlers = new HashMap<String, List<SHandler<SEvent>>>();
+        this.userTransactionService = userTransactionService;
+        registeredHandlers = new ConcurrentHashMap<String, List<SHandler<SEvent>>>();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (asyncExecutor == null) {
+            // the thread is only started when the first asynchronous batch is delivered
+            asyncExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread thread = new Thread(r, "Bonita-Async-Event-Handlers");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (asyncExecutor != null) {
+            // batches already handed to the thread are still delivered
+            asyncExecutor.shutdown();
+            asyncExecutor = null;
+        }
+    }
+
+    @Override
+    public void pause() {
+        stop();
+    }
+
+    @Override
+    public void resume() {
+        start();
     }
 
     @Override
@@ -54,30 +137,27 @@ public class EventServiceImpl extends AbstractEventServiceImpl {
     }
 
     @Override
-    protected void addHandlerFor(final String eventType, final SHandler<SEvent> handler) throws HandlerRegistrationException {
-        // check if the given event type is already registered in the Event Service
-        if (containsHandlerFor(eventType)) {
-            // if the handler already exists for the same eventType, an Exception is thrown
-            final List<SHandler<SEvent>> handlers = registeredHandlers.get(eventType);
-
+    protected synchronized void addHandlerFor(final String eventType, final SHandler<SEvent> handler) throws HandlerRegistrationException {
+        final List<SHandler<SEvent>> handlers = registeredHandlers.get(eventType);
+        final List<SHandler<SEvent>> newHandlerList;
+        if (handlers != null) {
             // Check if another handler of the same class is already registered
             for (SHandler<SEvent> tmpHandler : handlers) {
                 if (tmpHandler.getIdentifier().equals(handler.getIdentifier())) {
                     throw new HandlerRegistrationException("The handler with identifier " + tmpHandler.getIdentifier() + " is already registered for the event " + eventType);
                 }
             }
-
-            handlers.add(handler);
+            newHandlerList = new ArrayList<SHandler<SEvent>>(handlers.size() + 1);
+            newHandlerList.addAll(handlers);
         } else {
-            // if the given type doesn't already exist in the eventFilters list, we create it
-            final List<SHandler<SEvent>> newHandlerList = new ArrayList<SHandler<SEvent>>(3);
-            newHandlerList.add(handler);
-            registeredHandlers.put(eventType, newHandlerList);
+            newHandlerList = new ArrayList<SHandler<SEvent>>(3);
         }
+        newHandlerList.add(handler);
+        registeredHandlers.put(eventType, Collections.unmodifiableList(newHandlerList));
     }
 
     @Override
-    protected void removeAllHandlersFor(final SHandler<SEvent> handler) {
+    protected synchronized void removeAllHandlersFor(final SHandler<SEvent> handler) {
         for (final String eventType : registeredHandlers.keySet()) {
             try {
                 removeHandler(eventType, handler);
@@ -88,21 +168,43 @@ public class EventServiceImpl extends AbstractEventServiceImpl {
     }
 
     @Override
-    protected void removeHandlerFor(final String eventType, final SHandler<SEvent> h) throws HandlerUnregistrationException {
-        boolean removed = false;
-        Collection<SHandler<SEvent>> handlers = getHandlersFor(eventType);
+    protected synchronized void removeHandlerFor(final String eventType, final SHandler<SEvent> h) throws HandlerUnregistrationException {
+        final List<SHandler<SEvent>> handlers = registeredHandlers.get(eventType);
         if (handlers != null) {
-            Iterator<SHandler<SEvent>> it = handlers.iterator();
-            while (!removed && it.hasNext()) {
-                SHandler<SEvent> handler = it.next();
-                if (h.getIdentifier().equals(handler.getIdentifier())) {
-                    it.remove();
-                    removed = true;
+            for (int i = 0; i < handlers.size(); i++) {
+                if (h.getIdentifier().equals(handlers.get(i).getIdentifier())) {
+                    final List<SHandler<SEvent>> newHandlerList = new ArrayList<SHandler<SEvent>>(handlers);
+                    newHandlerList.remove(i);
+                    if (newHandlerList.isEmpty()) {
+                        registeredHandlers.remove(eventType);
+                    } else {
+                        registeredHandlers.put(eventType, Collections.unmodifiableList(newHandlerList));
+                    }
+                    return;
                 }
             }
         }
-        if (!removed) {
-            throw new HandlerUnregistrationException();
+        throw new HandlerUnregistrationException();
+    }
+
+    @Override
+    protected void enqueue(final SBatchHandler<SEvent> handler, final SEvent event) throws SHandlerExecutionException {
+        if (userTransactionService != null) {
+            TransactionEventBatches batches = transactionEventBatches.get();
+            try {
+                if (batches == null) {
+                    batches = new TransactionEventBatches(transactionEventBatches, asyncDelivery, logger);
+                    userTransactionService.registerBonitaSynchronization(batches);
+                    transactionEventBatches.set(batches);
+                }
+                if (batches.add(handler, event, userTransactionService)) {
+                    return;
+                }
+            } catch (final STransactionNotFoundException e) {
+                // not in a transaction: nothing to wait for
+            }
         }
+        super.enqueue(handler, event);
     }
+
 }
@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.events.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import org.bonitasoft.engine.events.model.SBatchHandler;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SEventDeliveryMode;
+import org.bonitasoft.engine.events.model.SFireEventException;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.TransactionState;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+
+/**
+ * The events of one transaction, grouped by the {@link SBatchHandler} that will receive them.
+ * In-transaction batches are delivered by a before-commit callable that keeps draining until no batch is left, so that events fired by the
+ * handlers themselves are delivered in the same transaction. The other batches are delivered once the transaction is committed and dropped
+ * if it is rolled back.
+ */
+class TransactionEventBatches implements BonitaTransactionSynchronization, Callable<Void> {
+
+    private final ThreadLocal<TransactionEventBatches> current;
+
+    private final Executor asyncExecutor;
+
+    private final TechnicalLoggerService logger;
+
+    private final Map<SBatchHandler<SEvent>, List<SEvent>> batches = new LinkedHashMap<SBatchHandler<SEvent>, List<SEvent>>();
+
+    private boolean beforeCommitRegistered;
+
+    private boolean beforeCommitDone;
+
+    TransactionEventBatches(final ThreadLocal<TransactionEventBatches> current, final Executor asyncExecutor, final TechnicalLoggerService logger) {
+        this.current = current;
+        this.asyncExecutor = asyncExecutor;
+        this.logger = logger;
+    }
+
+    /**
+     * @return false if the event must be delivered immediately because there is no transaction left to attach it to
+     */
+    boolean add(final SBatchHandler<SEvent> handler, final SEvent event, final UserTransactionService transactionService)
+            throws STransactionNotFoundException {
+        if (handler.getDeliveryMode() == SEventDeliveryMode.IN_TRANSACTION) {
+            if (beforeCommitDone) {
+                return false;
+            }
+            if (!beforeCommitRegistered) {
+                transactionService.registerBeforeCommitCallable(this);
+                beforeCommitRegistered = true;
+            }
+        }
+        List<SEvent> events = batches.get(handler);
+        if (events == null) {
+            events = new ArrayList<SEvent>();
+            batches.put(handler, events);
+        }
+        events.add(event);
+        return true;
+    }
+
+    @Override
+    public Void call() throws SFireEventException {
+        SFireEventException fireEventException = null;
+        Map<SBatchHandler<SEvent>, List<SEvent>> toDeliver = takeBatches(SEventDeliveryMode.IN_TRANSACTION);
+        while (!toDeliver.isEmpty()) {
+            for (final Map.Entry<SBatchHandler<SEvent>, List<SEvent>> batch : toDeliver.entrySet()) {
+                try {
+                    batch.getKey().executeBatch(batch.getValue());
+                } catch (final Exception e) {
+                    if (fireEventException == null) {
+                        fireEventException = new SFireEventException("Unable to execute some handler.");
+                    }
+                    fireEventException.addHandlerException(e);
+                    logError(batch.getKey(), e);
+                }
+            }
+            toDeliver = takeBatches(SEventDeliveryMode.IN_TRANSACTION);
+        }
+        beforeCommitDone = true;
+        if (fireEventException != null) {
+            throw fireEventException;
+        }
+        return null;
+    }
+
+    @Override
+    public void beforeCommit() {
+        // in-transaction batches are delivered by the before-commit callable, when the persistence session can still be flushed
+    }
+
+    @Override
+    public void afterCompletion(final TransactionState txState) {
+        current.remove();
+        if (txState != TransactionState.COMMITTED) {
+            return;
+        }
+        for (final Map.Entry<SBatchHandler<SEvent>, List<SEvent>> batch : takeBatches(SEventDeliveryMode.AFTER_COMMIT).entrySet()) {
+            deliverQuietly(batch.getKey(), batch.getValue());
+        }
+        for (final Map.Entry<SBatchHandler<SEvent>, List<SEvent>> batch : takeBatches(SEventDeliveryMode.ASYNCHRONOUS).entrySet()) {
+            final SBatchHandler<SEvent> handler = batch.getKey();
+            final List<SEvent> events = batch.getValue();
+            asyncExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    deliverQuietly(handler, events);
+                }
+            });
+        }
+    }
+
+    private Map<SBatchHandler<SEvent>, List<SEvent>> takeBatches(final SEventDeliveryMode deliveryMode) {
+        final Map<SBatchHandler<SEvent>, List<SEvent>> taken = new LinkedHashMap<SBatchHandler<SEvent>, List<SEvent>>();
+        final Iterator<Map.Entry<SBatchHandler<SEvent>, List<SEvent>>> iterator = batches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<SBatchHandler<SEvent>, List<SEvent>> batch = iterator.next();
+            if (batch.getKey().getDeliveryMode() == deliveryMode) {
+                taken.put(batch.getKey(), batch.getValue());
+                iterator.remove();
+            }
+        }
+        return taken;
+    }
+
+    private void deliverQuietly(final SBatchHandler<SEvent> handler, final List<SEvent> events) {
+        try {
+            handler.executeBatch(events);
+        } catch (final Exception e) {
+            logError(handler, e);
+        }
+    }
+
+    private void logError(final SBatchHandler<SEvent> handler, final Exception e) {
+        if (logger.isLoggable(getClass(), TechnicalLogSeverity.ERROR)) {
+            logger.log(getClass(), TechnicalLogSeverity.ERROR, "Unable to execute handler " + handler.getIdentifier() + ".", e);
+        }
+    }
+
+}
@@ -13,14 +13,43 @@
  **/
 package org.bonitasoft.engine.events.impl;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.bonitasoft.engine.events.EventService;
 import org.bonitasoft.engine.events.EventServiceTest;
+import org.bonitasoft.engine.events.TestEvent;
+import org.bonitasoft.engine.events.TestHandlerCallback;
+import org.bonitasoft.engine.events.model.HandlerRegistrationException;
+import org.bonitasoft.engine.events.model.SBatchHandler;
+import org.bonitasoft.engine.events.model.SEvent;
+import org.bonitasoft.engine.events.model.SEventDeliveryMode;
+import org.bonitasoft.engine.events.model.SFireEventException;
+import org.bonitasoft.engine.events.model.SHandlerExecutionException;
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.transaction.BonitaTransactionSynchronization;
+import org.bonitasoft.engine.transaction.STransactionNotFoundException;
+import org.bonitasoft.engine.transaction.TransactionState;
+import org.bonitasoft.engine.transaction.UserTransactionService;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 /**
  *
@@ -41,4 +70,214 @@ public class EventServiceImplTest extends EventServiceTest {
         return logger;
     }
 
+    private EventServiceImpl eventServiceInTransaction(final UserTransactionService userTransactionService) {
+        return new EventServiceImpl(mockTechnicalLoggerService(), userTransactionService);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Callable<Void> captureBeforeCommitCallable(final UserTransactionService userTransactionService) throws Exception {
+        final ArgumentCaptor<Callable> captor = ArgumentCaptor.forClass(Callable.class);
+        verify(userTransactionService).registerBeforeCommitCallable(captor.capture());
+        return captor.getValue();
+    }
+
+    private BonitaTransactionSynchronization captureSynchronization(final UserTransactionService userTransactionService) throws Exception {
+        final ArgumentCaptor<BonitaTransactionSynchronization> captor = ArgumentCaptor.forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService).registerBonitaSynchronization(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    public void should_deliver_events_of_a_transaction_as_one_batch_before_commit() throws Exception {
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        final EventServiceImpl eventService = eventServiceInTransaction(userTransactionService);
+        final RecordingBatchHandler handler = new RecordingBatchHandler("batch", SEventDeliveryMode.IN_TRANSACTION);
+        eventService.addHandler("EVT", handler);
+        final TestEvent first = new TestEvent("EVT");
+        final TestEvent second = new TestEvent("EVT");
+
+        eventService.fireEvent(first);
+        eventService.fireEvent(second);
+        assertTrue(handler.batches.isEmpty());
+        captureBeforeCommitCallable(userTransactionService).call();
+
+        assertEquals(Arrays.asList(Arrays.<SEvent> asList(first, second)), handler.batches);
+    }
+
+    @Test
+    public void should_deliver_events_fired_by_in_transaction_handlers_in_the_same_transaction() throws Exception {
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        final EventServiceImpl eventService = eventServiceInTransaction(userTransactionService);
+        final RecordingBatchHandler downstream = new RecordingBatchHandler("downstream", SEventDeliveryMode.IN_TRANSACTION);
+        final TestEvent cascaded = new TestEvent("CASCADED");
+        final RecordingBatchHandler upstream = new RecordingBatchHandler("upstream", SEventDeliveryMode.IN_TRANSACTION) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void executeBatch(final List<SEvent> events) throws SHandlerExecutionException {
+                super.executeBatch(events);
+                try {
+                    eventService.fireEvent(cascaded);
+                } catch (final SFireEventException e) {
+                    throw new SHandlerExecutionException(e);
+                }
+            }
+        };
+        eventService.addHandler("EVT", upstream);
+        eventService.addHandler("CASCADED", downstream);
+
+        eventService.fireEvent(new TestEvent("EVT"));
+        captureBeforeCommitCallable(userTransactionService).call();
+
+        assertEquals(Arrays.asList(Arrays.<SEvent> asList(cascaded)), downstream.batches);
+    }
+
+    @Test
+    public void should_deliver_after_commit_batch_only_when_transaction_is_committed() throws Exception {
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        final EventServiceImpl eventService = eventServiceInTransaction(userTransactionService);
+        final RecordingBatchHandler handler = new RecordingBatchHandler("batch", SEventDeliveryMode.AFTER_COMMIT);
+        eventService.addHandler("EVT", handler);
+        final TestEvent event = new TestEvent("EVT");
+
+        eventService.fireEvent(event);
+        final BonitaTransactionSynchronization synchronization = captureSynchronization(userTransactionService);
+        synchronization.beforeCommit();
+        assertTrue(handler.batches.isEmpty());
+        synchronization.afterCompletion(TransactionState.COMMITTED);
+
+        assertEquals(Arrays.asList(Arrays.<SEvent> asList(event)), handler.batches);
+    }
+
+    @Test
+    public void should_drop_after_commit_batch_when_transaction_is_rolled_back() throws Exception {
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        final EventServiceImpl eventService = eventServiceInTransaction(userTransactionService);
+        final RecordingBatchHandler handler = new RecordingBatchHandler("batch", SEventDeliveryMode.AFTER_COMMIT);
+        eventService.addHandler("EVT", handler);
+
+        eventService.fireEvent(new TestEvent("EVT"));
+        captureSynchronization(userTransactionService).afterCompletion(TransactionState.ROLLEDBACK);
+        eventService.fireEvent(new TestEvent("EVT"));
+
+        assertTrue(handler.batches.isEmpty());
+    }
+
+    @Test
+    public void should_deliver_asynchronous_batch_in_background_only_while_started() throws Exception {
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        final EventServiceImpl eventService = eventServiceInTransaction(userTransactionService);
+        final Map<SEvent, Thread> deliveredBy = new ConcurrentHashMap<SEvent, Thread>();
+        final CountDownLatch delivered = new CountDownLatch(1);
+        eventService.addHandler("EVT", new RecordingBatchHandler("async", SEventDeliveryMode.ASYNCHRONOUS) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void executeBatch(final List<SEvent> events) throws SHandlerExecutionException {
+                for (final SEvent event : events) {
+                    deliveredBy.put(event, Thread.currentThread());
+                }
+                delivered.countDown();
+            }
+        });
+        final TestEvent inBackground = new TestEvent("EVT");
+        final TestEvent whenStopped = new TestEvent("EVT");
+
+        eventService.start();
+        eventService.fireEvent(inBackground);
+        captureSynchronization(userTransactionService).afterCompletion(TransactionState.COMMITTED);
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        eventService.stop();
+        eventService.fireEvent(whenStopped);
+        final ArgumentCaptor<BonitaTransactionSynchronization> synchronizations = ArgumentCaptor.forClass(BonitaTransactionSynchronization.class);
+        verify(userTransactionService, times(2)).registerBonitaSynchronization(synchronizations.capture());
+        synchronizations.getValue().afterCompletion(TransactionState.COMMITTED);
+
+        assertEquals("Bonita-Async-Event-Handlers", deliveredBy.get(inBackground).getName());
+        assertSame(Thread.currentThread(), deliveredBy.get(whenStopped));
+    }
+
+    @Test
+    public void should_deliver_batch_immediately_outside_of_a_transaction() throws Exception {
+        final UserTransactionService userTransactionService = mock(UserTransactionService.class);
+        doThrow(new STransactionNotFoundException("No active transaction.")).when(userTransactionService).registerBonitaSynchronization(
+                any(BonitaTransactionSynchronization.class));
+        final EventServiceImpl eventService = eventServiceInTransaction(userTransactionService);
+        final RecordingBatchHandler handler = new RecordingBatchHandler("batch", SEventDeliveryMode.AFTER_COMMIT);
+        eventService.addHandler("EVT", handler);
+        final TestEvent event = new TestEvent("EVT");
+
+        eventService.fireEvent(event);
+
+        assertEquals(Arrays.asList(Arrays.<SEvent> asList(event)), handler.batches);
+    }
+
+    @Test
+    public void should_allow_handlers_to_register_other_handlers_while_an_event_is_fired() throws Exception {
+        final EventServiceImpl eventService = eventServiceInTransaction(null);
+        final TestHandlerCallback registered = new TestHandlerCallback();
+        final TestEvent event = new TestEvent("EVT");
+        eventService.addHandler("EVT", new RecordingBatchHandler("registering", SEventDeliveryMode.IN_TRANSACTION) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public void executeBatch(final List<SEvent> events) throws SHandlerExecutionException {
+                try {
+                    eventService.addHandler("EVT", registered);
+                } catch (final HandlerRegistrationException e) {
+                    throw new SHandlerExecutionException(e);
+                }
+            }
+        });
+
+        eventService.fireEvent(event);
+
+        assertTrue(eventService.getHandlers("EVT").contains(registered));
+    }
+
+    private static class RecordingBatchHandler implements SBatchHandler<SEvent> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String identifier;
+
+        private final SEventDeliveryMode deliveryMode;
+
+        final List<List<SEvent>> batches = new ArrayList<List<SEvent>>();
+
+        RecordingBatchHandler(final String identifier, final SEventDeliveryMode deliveryMode) {
+            this.identifier = identifier;
+            this.deliveryMode = deliveryMode;
+        }
+
+        @Override
+        public void executeBatch(final List<SEvent> events) throws SHandlerExecutionException {
+            batches.add(new ArrayList<SEvent>(events));
+        }
+
+        @Override
+        public SEventDeliveryMode getDeliveryMode() {
+            return deliveryMode;
+        }
+
+        @Override
+        public void execute(final SEvent event) throws SHandlerExecutionException {
+            throw new SHandlerExecutionException("batch handlers receive their events through executeBatch", null);
+        }
+
+        @Override
+        public boolean isInterested(final SEvent event) {
+            return true;
+        }
+
+        @Override
+        public String getIdentifier() {
+            return identifier;
+        }
+
+    }
+
 }
@@ -0,0 +1,31 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.events.model;
+
+import java.util.List;
+
+/**
+ * A handler that receives, in one call, all the events it is interested in that were fired in the same transaction.
+ * If an event is fired outside of any transaction, it is delivered immediately in a batch of its own.
+ */
+public interface SBatchHandler<T extends SEvent> extends SHandler<T> {
+
+    /**
+     * Performs the action corresponding to the given events, in the order they were fired
+     */
+    void executeBatch(List<T> events) throws SHandlerExecutionException;
+
+    SEventDeliveryMode getDeliveryMode();
+
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.events.model;
+
+/**
+ * When the events received by a {@link SBatchHandler} are delivered, relatively to the transaction that fired them.
+ */
+public enum SEventDeliveryMode {
+
+    /**
+     * Delivered in the transaction that fired them, just before it is committed
+     */
+    IN_TRANSACTION,
+
+    /**
+     * Delivered by the thread that committed the transaction, once it is committed
+     */
+    AFTER_COMMIT,
+
+    /**
+     * Delivered by a background thread, once the transaction is committed
+     */
+    ASYNCHRONOUS
+
+}
@@ -13,11 +13,13 @@
  **/
 package org.bonitasoft.engine.expression.impl;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.bonitasoft.engine.commons.LogUtil;
+import org.bonitasoft.engine.expression.CompilingExpressionExecutorStrategy;
 import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.ExpressionExecutorStrategy;
 import org.bonitasoft.engine.expression.ExpressionExecutorStrategyProvider;
@@ -174,4 +176,41 @@ public class ExpressionServiceImpl implements ExpressionService {
         return expressionExecutorsMap.get(expressionKind).mustPutEvaluatedExpressionInContext();
     }
 
+    @Override
+    public void precompile(final long definitionId, final List<SExpression> expressions) {
+        final Map<ExpressionKind, List<SExpression>> expressionsByKind = new HashMap<>();
+        groupByKind(expressions, expressionsByKind);
+        for (final Map.Entry<ExpressionKind, List<SExpression>> entry : expressionsByKind.entrySet()) {
+            final ExpressionExecutorStrategy strategy = expressionExecutorsMap.get(entry.getKey());
+            if (strategy instanceof CompilingExpressionExecutorStrategy) {
+                ((CompilingExpressionExecutorStrategy) strategy).precompile(definitionId, entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public boolean isPrecompilationEnabled() {
+        for (final ExpressionExecutorStrategy strategy : expressionExecutorsMap.values()) {
+            if (strategy instanceof CompilingExpressionExecutorStrategy && ((CompilingExpressionExecutorStrategy) strategy).isPrecompiling()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void groupByKind(final List<SExpression> expressions, final Map<ExpressionKind, List<SExpression>> expressionsByKind) {
+        for (final SExpression expression : expressions) {
+            if (expression == null) {
+                continue;
+            }
+            List<SExpression> expressionsOfKind = expressionsByKind.get(expression.getExpressionKind());
+            if (expressionsOfKind == null) {
+                expressionsOfKind = new ArrayList<>();
+                expressionsByKind.put(expression.getExpressionKind(), expressionsOfKind);
+            }
+            expressionsOfKind.add(expression);
+            groupByKind(expression.getDependencies(), expressionsByKind);
+        }
+    }
+
 }
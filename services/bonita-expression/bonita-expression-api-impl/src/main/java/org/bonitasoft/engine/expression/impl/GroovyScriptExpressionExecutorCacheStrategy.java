@@ -15,14 +15,23 @@ package org.bonitasoft.engine.expression.impl;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.bonitasoft.engine.cache.CacheService;
-import org.bonitasoft.engine.cache.SCacheException;
 import org.bonitasoft.engine.classloader.ClassLoaderListener;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.classloader.SClassLoaderException;
+import org.bonitasoft.engine.commons.TenantLifecycleService;
 import org.bonitasoft.engine.commons.exceptions.SBonitaRuntimeException;
+import org.bonitasoft.engine.expression.CompilingExpressionExecutorStrategy;
 import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
 import org.bonitasoft.engine.expression.model.SExpression;
@@ -31,6 +40,7 @@ import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.codehaus.groovy.runtime.InvokerHelper;
 
 import groovy.lang.Binding;
+import groovy.lang.GroovyClassLoader;
 import groovy.lang.GroovyCodeSource;
 import groovy.lang.GroovyRuntimeException;
 import groovy.lang.GroovyShell;
@@ -38,20 +48,24 @@ import groovy.lang.MissingPropertyException;
 import groovy.lang.Script;
 
 /**
+ * Keeps, for each definition, a shell on the definition classloader and the classes compiled from the scripts evaluated in it, keyed by the
+ * full script content and evicted in LRU order. The classes of a definition are dropped when its classloader is updated or destroyed.
+ * Each script is compiled by its own groovy classloader, so that nothing but this cache references an evicted class.
+ * Precompilation threads only run while the tenant is started.
+ *
  * @author Zhao na
  * @author Baptiste Mesta
  * @author Matthieu Chaffotte
  * @author Celine Souchet
  */
-public class GroovyScriptExpressionExecutorCacheStrategy extends AbstractGroovyScriptExpressionExecutorStrategy implements ClassLoaderListener {
+public class GroovyScriptExpressionExecutorCacheStrategy extends AbstractGroovyScriptExpressionExecutorStrategy implements
+        CompilingExpressionExecutorStrategy, TenantLifecycleService {
 
-    public static final String GROOVY_SCRIPT_CACHE_NAME = "GROOVY_SCRIPT_CACHE_NAME";
+    public static final int DEFAULT_MAX_COMPILED_SCRIPTS_PER_DEFINITION = 1000;
 
-    public static final String SCRIPT_KEY = "SCRIPT_";
+    private static final AtomicInteger counter = new AtomicInteger();
 
-    public static final String SHELL_KEY = "SHELL_";
-
-    private final CacheService cacheService;
+    private final ConcurrentMap<Long, DefinitionScripts> scriptsByDefinition = new ConcurrentHashMap<>();
 
     private final ClassLoaderService classLoaderService;
 
@@ -59,74 +73,156 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends AbstractGroovyS
 
     private final boolean debugEnabled;
 
-    private static int counter;
+    private final int maxCompiledScriptsPerDefinition;
+
+    private final boolean precompileScripts;
+
+    // created on start, shut down on stop and pause
+    private volatile ExecutorService precompilationExecutor;
+
+    public GroovyScriptExpressionExecutorCacheStrategy(final ClassLoaderService classLoaderService, final TechnicalLoggerService logger) {
+        this(classLoaderService, logger, DEFAULT_MAX_COMPILED_SCRIPTS_PER_DEFINITION, false);
+    }
 
-    public GroovyScriptExpressionExecutorCacheStrategy(final CacheService cacheService, final ClassLoaderService classLoaderService,
-            final TechnicalLoggerService logger) {
-        this.cacheService = cacheService;
+    /**
+     * @param maxCompiledScriptsPerDefinition
+     *        number of compiled scripts kept for each definition
+     * @param precompileScripts
+     *        whether {@link #precompile(long, List)} compiles the scripts of a definition in the background or does nothing
+     */
+    public GroovyScriptExpressionExecutorCacheStrategy(final ClassLoaderService classLoaderService, final TechnicalLoggerService logger,
+            final int maxCompiledScriptsPerDefinition, final boolean precompileScripts) {
         this.classLoaderService = classLoaderService;
         this.logger = logger;
+        this.maxCompiledScriptsPerDefinition = maxCompiledScriptsPerDefinition;
         debugEnabled = logger.isLoggable(this.getClass(), TechnicalLogSeverity.DEBUG);
+        this.precompileScripts = precompileScripts;
     }
 
-    protected synchronized String generateScriptName() {
-        return "BScript" + (++counter) + ".groovy";
+    @Override
+    public synchronized void start() {
+        if (precompileScripts && precompilationExecutor == null) {
+            precompilationExecutor = createPrecompilationExecutor();
+        }
     }
 
-    Class getScriptFromCache(final String expressionContent, final Long definitionId) throws SCacheException, SClassLoaderException {
-        if (definitionId == null) {
-            throw new SBonitaRuntimeException("Unable to evaluate expression without a definitionId");
+    @Override
+    public synchronized void stop() {
+        if (precompilationExecutor != null) {
+            // precompilation is only an optimization: scripts not compiled yet are compiled on their first evaluation
+            precompilationExecutor.shutdownNow();
+            precompilationExecutor = null;
         }
-        final GroovyShell shell = getShell(definitionId);
-        final String key = getScriptKey(expressionContent);
+    }
 
-        GroovyCodeSource gcs = (GroovyCodeSource) cacheService.get(GROOVY_SCRIPT_CACHE_NAME, key);
+    @Override
+    public void pause() {
+        stop();
+    }
 
-        if (gcs == null) {
-            gcs = AccessController.doPrivileged(new PrivilegedAction<GroovyCodeSource>() {
+    @Override
+    public void resume() {
+        start();
+    }
 
-                public GroovyCodeSource run() {
-                    return new GroovyCodeSource(expressionContent, generateScriptName(), GroovyShell.DEFAULT_CODE_BASE);
-                }
-            });
-            cacheService.store(GROOVY_SCRIPT_CACHE_NAME, key, gcs);
+    private static ExecutorService createPrecompilationExecutor() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Bonita-Groovy-Precompilation-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    protected String generateScriptName() {
+        return "BScript" + counter.incrementAndGet() + ".groovy";
+    }
+
+    Class getScriptFromCache(final String expressionContent, final Long definitionId) throws SClassLoaderException {
+        if (definitionId == null) {
+            throw new SBonitaRuntimeException("Unable to evaluate expression without a definitionId");
+        }
+        final DefinitionScripts scripts = getDefinitionScripts(definitionId);
+        final Class scriptClass = scripts.get(expressionContent);
+        if (scriptClass != null) {
+            return scriptClass;
         }
-        // parse the groovy source code with cache set to true
-        return shell.getClassLoader().parseClass(gcs, true);
+        final GroovyCodeSource gcs = AccessController.doPrivileged(new PrivilegedAction<GroovyCodeSource>() {
+
+            @Override
+            public GroovyCodeSource run() {
+                return new GroovyCodeSource(expressionContent, generateScriptName(), GroovyShell.DEFAULT_CODE_BASE);
+            }
+        });
+        // compiled classes are cached here, not by the groovy classloader: the class cache of a throwaway loader is collected with the class
+        final GroovyClassLoader scriptClassLoader = new GroovyClassLoader(scripts.shell.getClassLoader());
+        return scripts.putIfAbsent(expressionContent, scriptClassLoader.parseClass(gcs, false));
     }
 
-    private String getScriptKey(String expressionContent) {
-        return SCRIPT_KEY + expressionContent.hashCode();
+    boolean isCompiled(final String expressionContent, final long definitionId) {
+        final DefinitionScripts scripts = scriptsByDefinition.get(definitionId);
+        return scripts != null && scripts.get(expressionContent) != null;
     }
 
-    GroovyShell getShell(final Long definitionId) throws SClassLoaderException, SCacheException {
-        String key = SHELL_KEY + definitionId;
-        GroovyShell shell = (GroovyShell) cacheService.get(GROOVY_SCRIPT_CACHE_NAME, key);
-        if (shell == null) {
-            ClassLoader classLoader = getClassLoaderForShell(definitionId);
+    GroovyShell getShell(final Long definitionId) throws SClassLoaderException {
+        return getDefinitionScripts(definitionId).shell;
+    }
+
+    private DefinitionScripts getDefinitionScripts(final Long definitionId) throws SClassLoaderException {
+        DefinitionScripts scripts = scriptsByDefinition.get(definitionId);
+        if (scripts == null) {
+            final ClassLoader classLoader = classLoaderService.getLocalClassLoader(DEFINITION_TYPE, definitionId);
             if (debugEnabled) {
                 logger.log(this.getClass(), TechnicalLogSeverity.DEBUG, "Create a new groovy classloader for " + definitionId + " " + classLoader);
             }
-            shell = new GroovyShell(classLoader);
-            cacheService.store(GROOVY_SCRIPT_CACHE_NAME, key, shell);
+            final DefinitionScripts created = new DefinitionScripts(new GroovyShell(classLoader), maxCompiledScriptsPerDefinition);
+            scripts = scriptsByDefinition.putIfAbsent(definitionId, created);
+            if (scripts == null) {
+                classLoaderService.addListener(DEFINITION_TYPE, definitionId, new DefinitionClassLoaderListener(definitionId));
+                scripts = created;
+            }
         }
-        return shell;
+        return scripts;
     }
 
-    private ClassLoader getClassLoaderForShell(Long definitionId) throws SClassLoaderException {
-        ClassLoader classLoader;
-        if (definitionId == null) {
-            classLoader = Thread.currentThread().getContextClassLoader();
-            //do not has listener, should not happen...
-            if (debugEnabled) {
-                IllegalStateException illegalStateException = new IllegalStateException();
-                logger.log(this.getClass(), TechnicalLogSeverity.DEBUG, "Creating a shell without definition id, might cause issue when reloading classes", illegalStateException);
+    @Override
+    public boolean isPrecompiling() {
+        return precompileScripts;
+    }
+
+    @Override
+    public void precompile(final long definitionId, final List<SExpression> expressions) {
+        final ExecutorService executor = precompilationExecutor;
+        if (executor == null) {
+            return;
+        }
+        for (final SExpression expression : expressions) {
+            final String content = expression.getContent();
+            try {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            getScriptFromCache(content, definitionId);
+                        } catch (final Exception e) {
+                            // the error will be reported when the expression is evaluated
+                            if (debugEnabled) {
+                                logger.log(GroovyScriptExpressionExecutorCacheStrategy.class, TechnicalLogSeverity.DEBUG,
+                                        "Unable to precompile script of expression " + expression.getName() + " of definition " + definitionId, e);
+                            }
+                        }
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                // stopped meanwhile: the scripts are compiled on their first evaluation
+                return;
             }
-        } else {
-            classLoader = classLoaderService.getLocalClassLoader(DEFINITION_TYPE, definitionId);
-            classLoaderService.addListener(DEFINITION_TYPE, definitionId, this);
         }
-        return classLoader;
     }
 
     @Override
@@ -145,8 +241,6 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends AbstractGroovyS
                     + " is neither defined in the script nor in dependencies.", e, expressionName);
         } catch (final GroovyRuntimeException e) {
             throw new SExpressionEvaluationException(e, expressionName);
-        } catch (final SCacheException e) {
-            throw new SExpressionEvaluationException("Problem accessing the Script Cache from GroovyScriptExpressionExecutorCacheStrategy.", e, expressionName);
         } catch (final SClassLoaderException e) {
             throw new SExpressionEvaluationException("Unable to retrieve the correct classloader to execute the groovy script : " + expression, e,
                     expressionName);
@@ -161,23 +255,83 @@ public class GroovyScriptExpressionExecutorCacheStrategy extends AbstractGroovyS
         }
     }
 
-    @Override
-    public void onUpdate(ClassLoader newClassLoader) {
-        clearCache();
-    }
+    /**
+     * Compiled script classes of one definition, in access order.
+     */
+    private static final class DefinitionScripts {
 
-    private void clearCache() {
-        try {
-            cacheService.clear(GROOVY_SCRIPT_CACHE_NAME);
-        } catch (SCacheException e) {
-            logger.log(getClass(), TechnicalLogSeverity.ERROR,
-                    "error while clearing the cache of the groovy script executor strategy, you might have classloading issue, restart the server if it's the case",
-                    e);
+        private final GroovyShell shell;
+
+        private final LinkedHashMap<String, Class> classes;
+
+        private DefinitionScripts(final GroovyShell shell, final int maxSize) {
+            this.shell = shell;
+            classes = new LinkedHashMap<String, Class>(16, 0.75f, true) {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, Class> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        private synchronized Class get(final String content) {
+            return classes.get(content);
         }
+
+        private synchronized Class putIfAbsent(final String content, final Class scriptClass) {
+            final Class existing = classes.get(content);
+            if (existing != null) {
+                return existing;
+            }
+            classes.put(content, scriptClass);
+            return scriptClass;
+        }
+
     }
 
-    @Override
-    public void onDestroy(ClassLoader oldClassLoader) {
-        clearCache();
+    /**
+     * Drops the scripts of a definition when its classloader changes. Listeners of the same definition are equal, so that the classloader
+     * keeps only one of them however many times the scripts of the definition are reloaded.
+     */
+    private final class DefinitionClassLoaderListener implements ClassLoaderListener {
+
+        private final long definitionId;
+
+        private DefinitionClassLoaderListener(final long definitionId) {
+            this.definitionId = definitionId;
+        }
+
+        @Override
+        public void onUpdate(final ClassLoader newClassLoader) {
+            scriptsByDefinition.remove(definitionId);
+        }
+
+        @Override
+        public void onDestroy(final ClassLoader oldClassLoader) {
+            scriptsByDefinition.remove(definitionId);
+        }
+
+        private GroovyScriptExpressionExecutorCacheStrategy getStrategy() {
+            return GroovyScriptExpressionExecutorCacheStrategy.this;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof DefinitionClassLoaderListener)) {
+                return false;
+            }
+            final DefinitionClassLoaderListener other = (DefinitionClassLoaderListener) o;
+            return definitionId == other.definitionId && getStrategy() == other.getStrategy();
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (definitionId ^ definitionId >>> 32);
+        }
+
     }
+
 }
@@ -16,22 +16,19 @@ package org.bonitasoft.engine.expression.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
 
-import java.io.File;
-import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
-import org.bonitasoft.engine.cache.CacheConfiguration;
-import org.bonitasoft.engine.cache.SCacheException;
-import org.bonitasoft.engine.cache.ehcache.EhCacheCacheService;
+import org.bonitasoft.engine.classloader.ClassLoaderListener;
 import org.bonitasoft.engine.classloader.ClassLoaderService;
 import org.bonitasoft.engine.classloader.SClassLoaderException;
 import org.bonitasoft.engine.commons.exceptions.SBonitaRuntimeException;
-import org.bonitasoft.engine.commons.io.IOUtil;
 import org.bonitasoft.engine.expression.ContainerState;
 import org.bonitasoft.engine.expression.ExpressionExecutorStrategy;
 import org.bonitasoft.engine.expression.exception.SExpressionEvaluationException;
@@ -39,11 +36,10 @@ import org.bonitasoft.engine.expression.model.SExpression;
 import org.bonitasoft.engine.expression.model.impl.SExpressionImpl;
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
-import org.junit.After;
-import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -61,38 +57,23 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
     @Mock
     private ReadSessionAccessor sessionAccessor;
 
-    @Mock
-    private CacheConfiguration defaultCacheConfiguration;
-
-    private EhCacheCacheService cacheService;
-
     private GroovyScriptExpressionExecutorCacheStrategy groovyScriptExpressionExecutorCacheStrategy;
 
-    private final static String diskStorePath = IOUtil.TMP_DIRECTORY + File.separator + GroovyScriptExpressionExecutorCacheStrategyTest.class.getSimpleName();
     private Class script2;
     private Map<String, Object> context;
 
     @Before
     public void setup() throws Exception {
-        final CacheConfiguration cacheConfiguration = new CacheConfiguration();
-        cacheConfiguration.setName("GROOVY_SCRIPT_CACHE_NAME");
-        final List<CacheConfiguration> cacheConfigurations = Collections.singletonList(cacheConfiguration);
-        cacheService = new EhCacheCacheService(logger,  cacheConfigurations, defaultCacheConfiguration, diskStorePath, 1);
-        cacheService.start();
-        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(cacheService, classLoaderService, logger);
+        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(classLoaderService, logger);
         doReturn(GroovyScriptExpressionExecutorCacheStrategyTest.class.getClassLoader()).when(classLoaderService).getLocalClassLoader(anyString(), anyLong());
         context = new HashMap<>();
         context.put(ExpressionExecutorStrategy.DEFINITION_ID, 123456789L);
     }
 
-    @After
-    public void teardown() {
-        cacheService.stop();
-    }
-
-    @AfterClass
-    public static void cleanupClass() throws IOException {
-        IOUtil.deleteDir(new File(diskStorePath));
+    private ClassLoaderListener definitionListener(final long definitionId) {
+        final ArgumentCaptor<ClassLoaderListener> listener = ArgumentCaptor.forClass(ClassLoaderListener.class);
+        verify(classLoaderService).addListener(anyString(), eq(definitionId), listener.capture());
+        return listener.getValue();
     }
 
     @Test
@@ -116,7 +97,7 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
 
         // when
         final GroovyShell shell1 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
-        groovyScriptExpressionExecutorCacheStrategy.onUpdate(null);
+        definitionListener(12L).onUpdate(null);
         final GroovyShell shell2 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
 
         // then
@@ -132,7 +113,7 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
 
         // when
         final GroovyShell shell1 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
-        groovyScriptExpressionExecutorCacheStrategy.onDestroy(null);
+        definitionListener(12L).onDestroy(null);
         final GroovyShell shell2 = groovyScriptExpressionExecutorCacheStrategy.getShell(12l);
 
         // then
@@ -176,7 +157,7 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
             public void run() {
                 try {
                     script2 = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 12L);
-                } catch (SCacheException | SClassLoaderException e) {
+                } catch (SClassLoaderException e) {
                     e.printStackTrace();
                 }
             }
@@ -259,4 +240,94 @@ public class GroovyScriptExpressionExecutorCacheStrategyTest {
         // then
         //exception
     }
+
+    @Test
+    public void should_getScriptFromCache_evict_least_recently_used_script_of_a_definition() throws Exception {
+        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(classLoaderService, logger, 2, false);
+        final Class script1 = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent1", 12L);
+        final Class script2 = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent2", 12L);
+
+        // when
+        groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent1", 12L);
+        groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent3", 12L);
+
+        // then
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent1", 12L)).isEqualTo(script1);
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent2", 12L)).isNotEqualTo(script2);
+    }
+
+    @Test
+    public void should_update_of_definition_classloader_clear_only_scripts_of_that_definition() throws Exception {
+        final Class script12 = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 12L);
+        final Class script13 = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 13L);
+        final ArgumentCaptor<ClassLoaderListener> listener = ArgumentCaptor.forClass(ClassLoaderListener.class);
+        verify(classLoaderService).addListener(anyString(), eq(12L), listener.capture());
+
+        // when
+        listener.getValue().onUpdate(null);
+
+        // then
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 12L)).isNotEqualTo(script12);
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 13L)).isEqualTo(script13);
+    }
+
+    @Test
+    public void should_precompile_scripts_of_a_definition_in_background_when_enabled() throws Exception {
+        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(classLoaderService, logger, 10, true);
+        groovyScriptExpressionExecutorCacheStrategy.start();
+        final SExpressionImpl valid = new SExpressionImpl("valid", "'toto'", null, "java.lang.String", null, Collections.<SExpression> emptyList());
+        final SExpressionImpl invalid = new SExpressionImpl("invalid", "'toto", null, "java.lang.String", null, Collections.<SExpression> emptyList());
+
+        try {
+            // when
+            groovyScriptExpressionExecutorCacheStrategy.precompile(12L, Arrays.<SExpression> asList(valid, invalid));
+
+            // then
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (!groovyScriptExpressionExecutorCacheStrategy.isCompiled("'toto'", 12L) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(groovyScriptExpressionExecutorCacheStrategy.isPrecompiling()).isTrue();
+            assertThat(groovyScriptExpressionExecutorCacheStrategy.isCompiled("'toto'", 12L)).isTrue();
+            assertThat(groovyScriptExpressionExecutorCacheStrategy.isCompiled("'toto", 12L)).isFalse();
+        } finally {
+            groovyScriptExpressionExecutorCacheStrategy.stop();
+        }
+    }
+
+    @Test
+    public void should_not_precompile_scripts_once_paused() throws Exception {
+        groovyScriptExpressionExecutorCacheStrategy = new GroovyScriptExpressionExecutorCacheStrategy(classLoaderService, logger, 10, true);
+        groovyScriptExpressionExecutorCacheStrategy.start();
+        groovyScriptExpressionExecutorCacheStrategy.pause();
+        final SExpressionImpl valid = new SExpressionImpl("valid", "'toto'", null, "java.lang.String", null, Collections.<SExpression> emptyList());
+
+        // when
+        groovyScriptExpressionExecutorCacheStrategy.precompile(12L, Collections.<SExpression> singletonList(valid));
+
+        // then
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.isCompiled("'toto'", 12L)).isFalse();
+    }
+
+    @Test
+    public void should_not_keep_compiled_scripts_in_the_class_cache_of_the_definition_groovy_classloader() throws Exception {
+        // when
+        final Class script = groovyScriptExpressionExecutorCacheStrategy.getScriptFromCache("MyScriptContent", 12L);
+
+        // then
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.getShell(12L).getClassLoader().getLoadedClasses()).doesNotContain(script);
+    }
+
+    @Test
+    public void should_not_precompile_scripts_when_disabled() throws Exception {
+        final SExpressionImpl valid = new SExpressionImpl("valid", "'toto'", null, "java.lang.String", null, Collections.<SExpression> emptyList());
+
+        // when
+        groovyScriptExpressionExecutorCacheStrategy.precompile(12L, Collections.<SExpression> singletonList(valid));
+
+        // then
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.isPrecompiling()).isFalse();
+        assertThat(groovyScriptExpressionExecutorCacheStrategy.isCompiled("'toto'", 12L)).isFalse();
+    }
+
 }
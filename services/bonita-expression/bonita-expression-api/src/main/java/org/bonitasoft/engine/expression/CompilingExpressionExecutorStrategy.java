@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.expression;
+
+import java.util.List;
+
+import org.bonitasoft.engine.expression.model.SExpression;
+
+/**
+ * An {@link ExpressionExecutorStrategy} that compiles the content of its expressions and can do it ahead of their first evaluation.
+ */
+public interface CompilingExpressionExecutorStrategy extends ExpressionExecutorStrategy {
+
+    /**
+     * @return true if {@link #precompile(long, List)} compiles the expressions, false if it ignores them
+     */
+    boolean isPrecompiling();
+
+    /**
+     * Compiles the given expressions of a definition in the background. Expressions that do not compile are left to fail on evaluation.
+     *
+     * @param definitionId
+     *        the id of the definition the expressions belong to
+     * @param expressions
+     *        expressions of the kind handled by this strategy
+     */
+    void precompile(long definitionId, List<SExpression> expressions);
+
+}
@@ -94,4 +94,23 @@ public interface ExpressionService {
      *            the {@link ExpressionKind}
      */
     boolean mustPutEvaluatedExpressionInContext(ExpressionKind expressionKind);
+
+    /**
+     * Compiles ahead of their first evaluation the given expressions of a definition and their dependencies, for the kinds that are compiled.
+     * Compilation happens in the background and expressions of other kinds are ignored.
+     * 
+     * @param definitionId
+     *            the id of the definition the expressions belong to
+     * @param expressions
+     *            the expressions to compile
+     * @since 7.5
+     */
+    void precompile(long definitionId, List<SExpression> expressions);
+
+    /**
+     * @return true if {@link #precompile(long, List)} compiles the expressions of at least one kind, so that collecting the expressions of a
+     *         definition is worth it
+     * @since 7.5
+     */
+    boolean isPrecompilationEnabled();
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock.impl;
+
+/**
+ * Snapshot of the counters of a lock type of a {@link StripedMemoryLockService}
+ */
+public class LockTypeStatistics {
+
+    private final String objectType;
+
+    private final long acquisitions;
+
+    private final long contendedAcquisitions;
+
+    private final long timedOutAcquisitions;
+
+    public LockTypeStatistics(final String objectType, final long acquisitions, final long contendedAcquisitions, final long timedOutAcquisitions) {
+        this.objectType = objectType;
+        this.acquisitions = acquisitions;
+        this.contendedAcquisitions = contendedAcquisitions;
+        this.timedOutAcquisitions = timedOutAcquisitions;
+    }
+
+    public String getObjectType() {
+        return objectType;
+    }
+
+    /**
+     * @return number of calls trying to take a lock of this type
+     */
+    public long getAcquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * @return number of calls that found the lock already held and had to wait for it
+     */
+    public long getContendedAcquisitions() {
+        return contendedAcquisitions;
+    }
+
+    /**
+     * @return number of calls that did not get the lock before the timeout expired
+     */
+    public long getTimedOutAcquisitions() {
+        return timedOutAcquisitions;
+    }
+
+    @Override
+    public String toString() {
+        return "LockTypeStatistics[" + objectType + ": acquisitions=" + acquisitions + ", contended=" + contendedAcquisitions + ", timedOut="
+                + timedOutAcquisitions + "]";
+    }
+
+}
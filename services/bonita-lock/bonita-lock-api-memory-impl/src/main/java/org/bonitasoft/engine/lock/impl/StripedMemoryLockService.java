@@ -0,0 +1,367 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock.impl;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bonitasoft.engine.lock.BonitaLock;
+import org.bonitasoft.engine.lock.LockService;
+import org.bonitasoft.engine.lock.SLockException;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+
+/**
+ * Memory implementation of the {@link LockService} keyed by primitive values.
+ * <p>
+ * A lock is identified by the id of the object, the ordinal of its type and the tenant id. Locks are stored in open addressing tables sharded in
+ * <code>lockPoolSize</code> stripes: no key is built and no map node is allocated to take a lock. The monitor of a stripe is only held to find or
+ * release a lock entry, never while waiting for the lock itself. Entries are reference counted by the threads holding or waiting for them, so an
+ * entry is removed only when nobody uses it anymore, and is then kept in a small pool of the stripe to be reused for another object.
+ * <p>
+ * Unlike {@link MemoryLockService}, {@link #tryLock(long, String, long, TimeUnit, long)} waits at most the given timeout.
+ * <p>
+ * This service must be configured as a singleton.
+ */
+public class StripedMemoryLockService implements LockService {
+
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+    private static final int MAX_POOLED_ENTRIES_PER_STRIPE = 16;
+
+    private final TechnicalLoggerService logger;
+
+    private final int lockTimeout;
+
+    private final boolean traceEnabled;
+
+    private final Stripe[] stripes;
+
+    private final ConcurrentMap<String, LockType> lockTypes = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextTypeOrdinal = new AtomicInteger();
+
+    /**
+     * @param lockTimeout timeout to obtain a lock using {@link #lock(long, String, long)} (in seconds)
+     * @param lockPoolSize the number of stripes the locks are sharded in
+     */
+    public StripedMemoryLockService(final TechnicalLoggerService logger, final int lockTimeout, final int lockPoolSize) {
+        this.logger = logger;
+        this.lockTimeout = lockTimeout;
+        traceEnabled = logger.isLoggable(getClass(), TechnicalLogSeverity.TRACE);
+        stripes = new Stripe[Math.max(1, lockPoolSize)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public BonitaLock lock(final long objectToLockId, final String objectType, final long tenantId) throws SLockException {
+        final BonitaLock lock = tryLock(objectToLockId, objectType, lockTimeout, TimeUnit.SECONDS, tenantId);
+        if (lock == null) {
+            throw new SLockException(MessageFormat.format("Unable to acquire the lock after {0} {1} for {2}:{3}{4}", lockTimeout, TimeUnit.SECONDS,
+                    objectType, objectToLockId, getDetailsOnLock(objectToLockId, objectType, tenantId)));
+        }
+        return lock;
+    }
+
+    @Override
+    public BonitaLock tryLock(final long objectToLockId, final String objectType, final long timeout, final TimeUnit timeUnit, final long tenantId) {
+        final LockType lockType = getLockType(objectType);
+        final long hash = hash(objectToLockId, lockType.ordinal, tenantId);
+        final Stripe stripe = getStripe(hash);
+        final LockEntry entry;
+        synchronized (stripe) {
+            entry = stripe.acquire((int) hash, objectToLockId, lockType, tenantId);
+        }
+        if (entry.lock.isHeldByCurrentThread()) {
+            release(stripe, entry);
+            // We do not want to support reentrant access
+            final String message = "Trying to acquire the lock another time by the same Thread, this should not happen !";
+            logger.log(getClass(), TechnicalLogSeverity.WARNING, message);
+            throw new IllegalStateException(message);
+        }
+        lockType.acquisitions.increment();
+        if (entry.lock.tryLock()) {
+            return entry.bonitaLock;
+        }
+        lockType.contendedAcquisitions.increment();
+        if (traceEnabled) {
+            logger.log(getClass(), TechnicalLogSeverity.TRACE, MessageFormat.format("Waiting for lock on {0}:{1} held by {2}", objectType,
+                    String.valueOf(objectToLockId), entry.lock.getOwnerName()));
+        }
+        try {
+            if (entry.lock.tryLock(timeout, timeUnit)) {
+                return entry.bonitaLock;
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.log(getClass(), TechnicalLogSeverity.ERROR, "The trylock was interrupted on " + objectType + ":" + objectToLockId);
+        }
+        lockType.timedOutAcquisitions.increment();
+        release(stripe, entry);
+        if (traceEnabled) {
+            logger.log(getClass(), TechnicalLogSeverity.TRACE, MessageFormat.format("Could not lock {0}:{1} after {2} {3}", objectType,
+                    String.valueOf(objectToLockId), timeout, timeUnit));
+        }
+        return null;
+    }
+
+    @Override
+    public void unlock(final BonitaLock bonitaLock, final long tenantId) {
+        final LockType lockType = getLockType(bonitaLock.getObjectType());
+        final long objectToLockId = bonitaLock.getObjectToLockId();
+        final long hash = hash(objectToLockId, lockType.ordinal, tenantId);
+        final Stripe stripe = getStripe(hash);
+        synchronized (stripe) {
+            final LockEntry entry = stripe.find((int) hash, objectToLockId, lockType, tenantId);
+            // Compare the references
+            if (entry == null || entry.lock != bonitaLock.getLock()) {
+                throw new IllegalStateException("The lock held by the BonitaLock and the one associated to the key do not match.");
+            }
+            entry.lock.unlock();
+            stripe.release(entry);
+        }
+    }
+
+    /**
+     * @return the counters of each type of lock that was requested, by type
+     */
+    public Map<String, LockTypeStatistics> getStatistics() {
+        final Map<String, LockTypeStatistics> statistics = new TreeMap<>();
+        for (final LockType lockType : lockTypes.values()) {
+            statistics.put(lockType.name, new LockTypeStatistics(lockType.name, lockType.acquisitions.sum(), lockType.contendedAcquisitions.sum(),
+                    lockType.timedOutAcquisitions.sum()));
+        }
+        return statistics;
+    }
+
+    protected StringBuilder getDetailsOnLock(final long objectToLockId, final String objectType, final long tenantId) {
+        final LockType lockType = getLockType(objectType);
+        final long hash = hash(objectToLockId, lockType.ordinal, tenantId);
+        final Stripe stripe = getStripe(hash);
+        final StringBuilder details = new StringBuilder(", Details: ");
+        synchronized (stripe) {
+            final LockEntry entry = stripe.find((int) hash, objectToLockId, lockType, tenantId);
+            if (entry == null) {
+                details.append("The lock was removed from the locks map in the memory lock service");
+            } else if (entry.lock.isLocked()) {
+                details.append("The lock on ").append(objectType).append(':').append(objectToLockId).append(" is locked");
+                if (entry.lock.isHeldByCurrentThread()) {
+                    details.append(", held by current thread.");
+                } else {
+                    details.append(", held by thread ").append(entry.lock.getOwnerName());
+                }
+            } else {
+                details.append("no additional details could be found (lock exists and is not locked, there should be no problem).");
+            }
+        }
+        return details;
+    }
+
+    private void release(final Stripe stripe, final LockEntry entry) {
+        synchronized (stripe) {
+            stripe.release(entry);
+        }
+    }
+
+    private LockType getLockType(final String objectType) {
+        final LockType lockType = lockTypes.get(objectType);
+        if (lockType != null) {
+            return lockType;
+        }
+        return lockTypes.computeIfAbsent(objectType, name -> new LockType(name, nextTypeOrdinal.getAndIncrement()));
+    }
+
+    private Stripe getStripe(final long hash) {
+        // high bits select the stripe, low bits the slot in the stripe table
+        return stripes[(int) ((hash >>> 32) & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    static long hash(final long objectToLockId, final int typeOrdinal, final long tenantId) {
+        long h = objectToLockId * 0x9E3779B97F4A7C15L + tenantId * 0xC2B2AE3D27D4EB4FL + typeOrdinal;
+        // murmur3 finalizer, to spread sequential ids
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class LockType {
+
+        private final String name;
+
+        private final int ordinal;
+
+        private final LongAdder acquisitions = new LongAdder();
+
+        private final LongAdder contendedAcquisitions = new LongAdder();
+
+        private final LongAdder timedOutAcquisitions = new LongAdder();
+
+        private LockType(final String name, final int ordinal) {
+            this.name = name;
+            this.ordinal = ordinal;
+        }
+    }
+
+    private static final class EntryLock extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        String getOwnerName() {
+            final Thread owner = getOwner();
+            return owner == null ? null : owner.getName();
+        }
+    }
+
+    /**
+     * Lock of an object. Fields other than the lock are only accessed while holding the monitor of the stripe.
+     */
+    private static final class LockEntry {
+
+        private final EntryLock lock = new EntryLock();
+
+        private int hash;
+
+        private long objectToLockId;
+
+        private LockType lockType;
+
+        private long tenantId;
+
+        private int references;
+
+        private BonitaLock bonitaLock;
+
+        private void bind(final int hash, final long objectToLockId, final LockType lockType, final long tenantId) {
+            this.hash = hash;
+            this.objectToLockId = objectToLockId;
+            this.lockType = lockType;
+            this.tenantId = tenantId;
+            bonitaLock = new BonitaLock(lock, lockType.name, objectToLockId);
+        }
+
+        private boolean matches(final long objectToLockId, final LockType lockType, final long tenantId) {
+            return this.objectToLockId == objectToLockId && this.lockType.ordinal == lockType.ordinal && this.tenantId == tenantId;
+        }
+    }
+
+    /**
+     * Open addressing table with linear probing of the lock entries in use. Must be accessed while holding its monitor.
+     */
+    private static final class Stripe {
+
+        private LockEntry[] table = new LockEntry[INITIAL_STRIPE_CAPACITY];
+
+        private int size;
+
+        private final LockEntry[] pool = new LockEntry[MAX_POOLED_ENTRIES_PER_STRIPE];
+
+        private int pooled;
+
+        private LockEntry find(final int hash, final long objectToLockId, final LockType lockType, final long tenantId) {
+            final int mask = table.length - 1;
+            for (int i = hash & mask;; i = (i + 1) & mask) {
+                final LockEntry entry = table[i];
+                if (entry == null || entry.matches(objectToLockId, lockType, tenantId)) {
+                    return entry;
+                }
+            }
+        }
+
+        private LockEntry acquire(final int hash, final long objectToLockId, final LockType lockType, final long tenantId) {
+            final int mask = table.length - 1;
+            int i = hash & mask;
+            for (LockEntry entry = table[i]; entry != null; entry = table[i]) {
+                if (entry.matches(objectToLockId, lockType, tenantId)) {
+                    entry.references++;
+                    return entry;
+                }
+                i = (i + 1) & mask;
+            }
+            final LockEntry entry;
+            if (pooled > 0) {
+                entry = pool[--pooled];
+                pool[pooled] = null;
+            } else {
+                entry = new LockEntry();
+            }
+            entry.bind(hash, objectToLockId, lockType, tenantId);
+            entry.references = 1;
+            table[i] = entry;
+            if (++size * 2 > table.length) {
+                resize();
+            }
+            return entry;
+        }
+
+        private void release(final LockEntry entry) {
+            if (--entry.references > 0) {
+                return;
+            }
+            remove(entry);
+            entry.lockType = null;
+            entry.bonitaLock = null;
+            if (pooled < pool.length) {
+                pool[pooled++] = entry;
+            }
+        }
+
+        private void remove(final LockEntry entry) {
+            final int mask = table.length - 1;
+            int i = entry.hash & mask;
+            while (table[i] != entry) {
+                i = (i + 1) & mask;
+            }
+            table[i] = null;
+            size--;
+            // shift back the following entries of the cluster that can not be found anymore now that this slot is empty
+            for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+                final int home = table[j].hash & mask;
+                final boolean reachable = i <= j ? i < home && home <= j : i < home || home <= j;
+                if (!reachable) {
+                    table[i] = table[j];
+                    table[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        private void resize() {
+            final LockEntry[] oldTable = table;
+            table = new LockEntry[oldTable.length * 2];
+            final int mask = table.length - 1;
+            for (final LockEntry entry : oldTable) {
+                if (entry != null) {
+                    int i = entry.hash & mask;
+                    while (table[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    table[i] = entry;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.lock.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.bonitasoft.engine.lock.BonitaLock;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StripedMemoryLockServiceTest {
+
+    private static final long TENANT_ID = 1L;
+
+    private final TechnicalLoggerService logger = mock(TechnicalLoggerService.class);
+
+    private StripedMemoryLockService lockService;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void before() {
+        lockService = new StripedMemoryLockService(logger, 1, 4);
+        executorService = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void after() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void should_lock_different_objects_independently() throws Exception {
+        lockService.lock(3, "a", TENANT_ID);
+
+        assertThat(lockInOtherThread(4, "a", TENANT_ID)).isNotNull();
+        assertThat(lockInOtherThread(3, "b", TENANT_ID)).isNotNull();
+        assertThat(lockInOtherThread(3, "a", 2L)).isNotNull();
+    }
+
+    @Test
+    public void should_not_lock_an_object_already_locked_by_another_thread() throws Exception {
+        lockService.lock(2, "a", TENANT_ID);
+
+        assertThat(lockInOtherThread(2, "a", TENANT_ID)).isNull();
+    }
+
+    @Test
+    public void should_give_the_lock_to_waiting_thread_on_unlock() throws Exception {
+        final BonitaLock lock = lockService.lock(5, "a", TENANT_ID);
+        final Future<BonitaLock> waiting = executorService.submit(tryLockCallable(5, "a", 5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+
+        lockService.unlock(lock, TENANT_ID);
+
+        assertThat(waiting.get(2, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockOnSameThread_should_throw_IllegalStateException() throws Exception {
+        lockService.lock(123, "abc", TENANT_ID);
+        lockService.lock(123, "abc", TENANT_ID);
+    }
+
+    @Test
+    public void tryLock_should_wait_only_the_given_timeout() throws Exception {
+        lockService = new StripedMemoryLockService(logger, 60, 4);
+        lockService.lock(7, "a", TENANT_ID);
+
+        final long start = System.currentTimeMillis();
+        final BonitaLock lock = executorService.submit(tryLockCallable(7, "a", 20, TimeUnit.MILLISECONDS)).get();
+
+        assertThat(lock).isNull();
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unlock_should_throw_IllegalStateException_when_lock_is_not_the_one_of_the_object() throws Exception {
+        lockService.lock(8, "a", TENANT_ID);
+
+        lockService.unlock(new BonitaLock(new ReentrantLock(), "a", 8), TENANT_ID);
+    }
+
+    @Test
+    public void should_relock_objects_after_many_locks_were_taken_and_released() throws Exception {
+        final List<BonitaLock> locks = new ArrayList<>();
+        for (long id = 0; id < 200; id++) {
+            locks.add(lockService.lock(id, "a", TENANT_ID));
+        }
+        for (int i = 0; i < locks.size(); i += 2) {
+            lockService.unlock(locks.get(i), TENANT_ID);
+        }
+
+        for (long id = 0; id < 200; id++) {
+            final BonitaLock lock = lockInOtherThread(id, "a", TENANT_ID);
+            if (id % 2 == 0) {
+                assertThat(lock).as("lock of released object " + id).isNotNull();
+            } else {
+                assertThat(lock).as("lock of held object " + id).isNull();
+            }
+        }
+    }
+
+    @Test
+    public void should_ensure_mutual_exclusion_under_skewed_contention() throws Exception {
+        final long[] counters = new long[4];
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executorService.submit(new Callable<Void>() {
+
+                @Override
+                public Void call() throws Exception {
+                    for (int i = 0; i < 2000; i++) {
+                        // most of the calls target the first object
+                        final int id = i % 10 < 7 ? 0 : i % counters.length;
+                        final BonitaLock lock = lockService.lock(id, "PROCESS", TENANT_ID);
+                        try {
+                            counters[id]++;
+                        } finally {
+                            lockService.unlock(lock, TENANT_ID);
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (final Future<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+
+        long total = 0;
+        for (final long counter : counters) {
+            total += counter;
+        }
+        assertThat(total).isEqualTo(8 * 2000);
+    }
+
+    @Test
+    public void getStatistics_should_count_contended_and_timed_out_acquisitions_by_type() throws Exception {
+        lockService.lock(9, "PROCESS", TENANT_ID);
+        lockService.lock(1, "SEQUENCE", TENANT_ID);
+
+        lockInOtherThread(9, "PROCESS", TENANT_ID);
+
+        final Map<String, LockTypeStatistics> statistics = lockService.getStatistics();
+        assertThat(statistics.keySet()).containsOnly("PROCESS", "SEQUENCE");
+        assertThat(statistics.get("PROCESS").getAcquisitions()).isEqualTo(2);
+        assertThat(statistics.get("PROCESS").getContendedAcquisitions()).isEqualTo(1);
+        assertThat(statistics.get("PROCESS").getTimedOutAcquisitions()).isEqualTo(1);
+        assertThat(statistics.get("SEQUENCE").getAcquisitions()).isEqualTo(1);
+        assertThat(statistics.get("SEQUENCE").getContendedAcquisitions()).isEqualTo(0);
+    }
+
+    @Test
+    public void getDetailsOnLock_should_return_locking_thread_name() throws Exception {
+        lockService.lock(151L, "objectType", TENANT_ID);
+        final AtomicReference<StringBuilder> details = new AtomicReference<>();
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                details.set(lockService.getDetailsOnLock(151L, "objectType", TENANT_ID));
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(details.get().toString()).contains("held by thread " + Thread.currentThread().getName());
+    }
+
+    private BonitaLock lockInOtherThread(final long id, final String type, final long tenantId) throws Exception {
+        return executorService.submit(new Callable<BonitaLock>() {
+
+            @Override
+            public BonitaLock call() {
+                return lockService.tryLock(id, type, 10, TimeUnit.MILLISECONDS, tenantId);
+            }
+        }).get();
+    }
+
+    private Callable<BonitaLock> tryLockCallable(final long id, final String type, final long timeout, final TimeUnit timeUnit) {
+        return new Callable<BonitaLock>() {
+
+            @Override
+            public BonitaLock call() {
+                return lockService.tryLock(id, type, timeout, timeUnit, TENANT_ID);
+            }
+        };
+    }
+}
@@ -83,6 +83,24 @@ public interface PersistenceService extends ReadPersistenceService {
      */
     int update(String updateQueryName, Map<String, Object> inputParameters) throws SPersistenceException;
 
+    /**
+     * Executes a declared native query of the form <code>INSERT INTO ... SELECT ...</code>, giving ids to the inserted rows without reading them.
+     * <p>
+     * A block of <code>numberOfRows</code> contiguous ids is reserved in the sequence of the entity class. The query receives the first one in the
+     * <code>firstId</code> parameter, the tenant in the <code>tenantId</code> parameter, and numbers the selected rows with
+     * <code>ROW_NUMBER() OVER (ORDER BY ...)</code>, which is rewritten for the databases that do not support it.
+     *
+     * @param insertQueryName the name of the declared native query
+     * @param inputParameters the other parameters of the query
+     * @param entityClass the class of the inserted entities
+     * @param numberOfRows the number of rows selected by the query
+     * @return the number of inserted rows
+     * @throws SPersistenceException if the query does not insert <code>numberOfRows</code> rows or if a persistence problem occurs
+     * @since 7.5.3
+     */
+    int insertFromQuery(String insertQueryName, Map<String, Object> inputParameters, Class<? extends PersistentObject> entityClass, int numberOfRows)
+            throws SPersistenceException;
+
     /**
      * Delete all elements of a specific table for a specific tenant
      *
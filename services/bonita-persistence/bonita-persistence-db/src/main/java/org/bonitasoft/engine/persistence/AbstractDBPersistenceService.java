@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.persistence;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -197,12 +198,7 @@ public abstract class AbstractDBPersistenceService implements TenantPersistenceS
         }
         // if this entity has no id, set it
         Long id = null;
-        try {
-            id = entity.getId();
-        } catch (final Exception e) {
-            // this is a new object to save
-        }
-        if (id == null || id == -1 || id == 0) {
+        if (hasNoId(entity)) {
             try {
                 id = getSequenceManager().getNextId(entity.getClass().getName(), getTenantId());
                 ClassReflector.invokeSetter(entity, "setId", long.class, id);
@@ -212,6 +208,43 @@ public abstract class AbstractDBPersistenceService implements TenantPersistenceS
         }
     }
 
+    /**
+     * Set the id of the entities that have none, reserving all the needed ids at once from the sequence manager.
+     *
+     * @param entities
+     *        entities of the same class
+     */
+    protected void setIds(final List<PersistentObject> entities) throws SPersistenceException {
+        final List<PersistentObject> entitiesWithoutId = new ArrayList<>(entities.size());
+        for (final PersistentObject entity : entities) {
+            if (entity != null && hasNoId(entity)) {
+                entitiesWithoutId.add(entity);
+            }
+        }
+        if (entitiesWithoutId.isEmpty()) {
+            return;
+        }
+        final PersistentObject firstEntity = entitiesWithoutId.get(0);
+        try {
+            final long[] ids = getSequenceManager().getNextIds(firstEntity.getClass().getName(), getTenantId(), entitiesWithoutId.size());
+            for (int i = 0; i < ids.length; i++) {
+                ClassReflector.invokeSetter(entitiesWithoutId.get(i), "setId", long.class, ids[i]);
+            }
+        } catch (final Exception e) {
+            throw new SPersistenceException("Problem while saving " + entitiesWithoutId.size() + " entities of class " + firstEntity.getClass().getName(), e);
+        }
+    }
+
+    private boolean hasNoId(final PersistentObject entity) {
+        Long id = null;
+        try {
+            id = entity.getId();
+        } catch (final Exception e) {
+            // this is a new object to save
+        }
+        return id == null || id == -1 || id == 0;
+    }
+
     protected String getLikeEscapeCharacter() {
         return String.valueOf(likeEscapeCharacter);
     }
@@ -121,6 +121,12 @@ public class AbstractDBPersistenceServiceTest {
         public int update(final String updateQueryName, final Map<String, Object> inputParameters) throws SPersistenceException {
             return 0;
         }
+
+        @Override
+        public int insertFromQuery(final String insertQueryName, final Map<String, Object> inputParameters,
+                final Class<? extends PersistentObject> entityClass, final int numberOfRows) throws SPersistenceException {
+            return 0;
+        }
     }
 
     class ParentDummyPersistentObject implements PersistentObject {
@@ -19,10 +19,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.sql.DataSource;
 
@@ -32,11 +36,13 @@ import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.bonitasoft.engine.sequence.SequenceManager;
 import org.bonitasoft.engine.services.SPersistenceException;
 import org.bonitasoft.engine.services.UpdateDescriptor;
+import org.bonitasoft.engine.services.Vendor;
 import org.bonitasoft.engine.sessionaccessor.STenantIdNotSetException;
 import org.hibernate.AssertionFailure;
 import org.hibernate.HibernateException;
 import org.hibernate.Interceptor;
 import org.hibernate.Query;
+import org.hibernate.SQLQuery;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.StaleStateException;
@@ -76,6 +82,10 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
     int stat_display_count;
     private QueryBuilderFactory queryBuilderFactory = new QueryBuilderFactory();
 
+    private Vendor vendor;
+
+    private static final Pattern ROW_NUMBER_PATTERN = Pattern.compile("ROW_NUMBER\\(\\)\\s*OVER\\s*\\([^)]*\\)", Pattern.CASE_INSENSITIVE);
+
     // ----
 
     /**
@@ -146,19 +156,20 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
                 configuration.setInterceptor(new PostgresInterceptor());
                 configuration.registerTypeOverride(new PostgresMaterializedBlobType());
                 configuration.registerTypeOverride(new PostgresMaterializedClobType());
-                queryBuilderFactory.setVendor(POSTGRES);
+                vendor = POSTGRES;
             } else if (dialect.toLowerCase().contains("sqlserver")) {
                 SQLServerInterceptor sqlServerInterceptor = new SQLServerInterceptor();
                 configuration.setInterceptor(sqlServerInterceptor);
                 orderByBuilder = new SQLServerOrderByBuilder();
-                queryBuilderFactory.setVendor(SQLSERVER);
+                vendor = SQLSERVER;
             } else if (dialect.toLowerCase().contains("oracle")) {
-                queryBuilderFactory.setVendor(ORACLE);
+                vendor = ORACLE;
             } else if (dialect.toLowerCase().contains("mysql")) {
-                queryBuilderFactory.setVendor(MYSQL);
+                vendor = MYSQL;
 
             }
         }
+        queryBuilderFactory.setVendor(vendor);
         this.orderByBuilder = orderByBuilder;
         final String className = configuration.getProperty("hibernate.interceptor");
         if (className != null && !className.isEmpty()) {
@@ -288,6 +299,61 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
         }
     }
 
+    @Override
+    public int insertFromQuery(final String insertQueryName, final Map<String, Object> inputParameters, final Class<? extends PersistentObject> entityClass,
+            final int numberOfRows) throws SPersistenceException {
+        if (numberOfRows == 0) {
+            return 0;
+        }
+        final Class<? extends PersistentObject> mappedClass = getMappedClass(entityClass);
+        final Session session = getSession(true);
+        final long tenantId;
+        final long firstId;
+        try {
+            tenantId = getTenantId();
+            firstId = getSequenceManager().getIdBlock(mappedClass.getName(), tenantId, numberOfRows);
+        } catch (final Exception e) {
+            throw new SPersistenceException("Unable to reserve " + numberOfRows + " ids for " + mappedClass.getName(), e);
+        }
+        try {
+            // the query reads rows that may have been written in this session
+            session.flush();
+            final SQLQuery query = session.createSQLQuery(numberRows(session, session.getNamedQuery(insertQueryName).getQueryString()));
+            // only the cached entities of the inserted class are evicted
+            query.addSynchronizedEntityClass(mappedClass);
+            if (inputParameters != null) {
+                setParameters(query, inputParameters);
+            }
+            query.setLong("firstId", firstId);
+            query.setLong("tenantId", tenantId);
+            final int insertedRows = query.executeUpdate();
+            if (insertedRows != numberOfRows) {
+                throw new SPersistenceException("Query " + insertQueryName + " inserted " + insertedRows + " rows instead of " + numberOfRows
+                        + ", the selected rows have changed since they were counted");
+            }
+            return insertedRows;
+        } catch (final AssertionFailure | LockAcquisitionException | StaleStateException e) {
+            throw new SRetryableException(e);
+        } catch (final HibernateException he) {
+            throw new SPersistenceException(he);
+        }
+    }
+
+    /**
+     * H2 and MySQL do not support <code>ROW_NUMBER() OVER (...)</code>: it is replaced by their own row counter. The rows are then not numbered in the
+     * given order, but each one still gets a distinct number.
+     */
+    private String numberRows(final Session session, final String sqlQuery) {
+        if (vendor == null || vendor == OTHER) {
+            return ROW_NUMBER_PATTERN.matcher(sqlQuery).replaceAll("ROWNUM()");
+        }
+        if (vendor == MYSQL) {
+            session.createSQLQuery("SET @row_number = 0").executeUpdate();
+            return ROW_NUMBER_PATTERN.matcher(sqlQuery).replaceAll(Matcher.quoteReplacement("(@row_number \\:= @row_number + 1)"));
+        }
+        return sqlQuery;
+    }
+
     @Override
     public void deleteAll(final Class<? extends PersistentObject> entityClass) throws SPersistenceException {
         final Class<? extends PersistentObject> mappedClass = getMappedClass(entityClass);
@@ -316,17 +382,41 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
         }
     }
 
+    /**
+     * Entities are grouped by class, their ids are reserved by block for each class and they are saved class after class, so that the inserts of a same
+     * table follow each other and are sent as JDBC batches when <code>hibernate.jdbc.batch_size</code> is set.
+     */
     @Override
     public void insertInBatch(final List<PersistentObject> entities) throws SPersistenceException {
         if (!entities.isEmpty()) {
             final Session session = getSession(true);
-            for (final PersistentObject entity : entities) {
-                final Class<? extends PersistentObject> entityClass = entity.getClass();
-                checkClassMapping(entityClass);
-                setId(entity);
-                session.save(entity);
+            for (final Entry<Class<? extends PersistentObject>, List<PersistentObject>> entitiesOfClass : groupByClass(entities).entrySet()) {
+                checkClassMapping(entitiesOfClass.getKey());
+                setIds(entitiesOfClass.getValue());
+                try {
+                    for (final PersistentObject entity : entitiesOfClass.getValue()) {
+                        session.save(entity);
+                    }
+                } catch (final AssertionFailure | LockAcquisitionException | StaleStateException e) {
+                    throw new SRetryableException(e);
+                } catch (final HibernateException he) {
+                    throw new SPersistenceException(he);
+                }
+            }
+        }
+    }
+
+    private Map<Class<? extends PersistentObject>, List<PersistentObject>> groupByClass(final List<PersistentObject> entities) {
+        final Map<Class<? extends PersistentObject>, List<PersistentObject>> entitiesByClass = new LinkedHashMap<>();
+        for (final PersistentObject entity : entities) {
+            List<PersistentObject> entitiesOfClass = entitiesByClass.get(entity.getClass());
+            if (entitiesOfClass == null) {
+                entitiesOfClass = new ArrayList<>();
+                entitiesByClass.put(entity.getClass(), entitiesOfClass);
             }
+            entitiesOfClass.add(entity);
         }
+        return entitiesByClass;
     }
 
     @Override
@@ -458,7 +548,11 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
                 final boolean enableWordSearch = isWordSearchEnabled(selectDescriptor.getEntityType());
                 queryBuilder.appendFilters(queryOptions.getFilters(), queryOptions.getMultipleFilter(), enableWordSearch);
             }
-            if (selectDescriptor.hasOrderByParameters()) {
+            if (selectDescriptor.hasAfterValues()) {
+                final QueryOptions queryOptions = selectDescriptor.getQueryOptions();
+                queryBuilder.appendAfterClause(queryOptions.getOrderByOptions(), selectDescriptor.getEntityType(), queryOptions.getAfterValues());
+            }
+            if (selectDescriptor.hasOrderByParameters() || selectDescriptor.hasAfterValues()) {
                 queryBuilder.appendOrderByClause(selectDescriptor.getQueryOptions().getOrderByOptions(), selectDescriptor.getEntityType());
             }
 
@@ -472,6 +566,7 @@ public abstract class AbstractHibernatePersistenceService extends AbstractDBPers
                 throw new SBonitaReadException(e);
             }
             setParameters(query, selectDescriptor.getInputParameters());
+            queryBuilder.setParameters(query);
             query.setFirstResult(selectDescriptor.getStartIndex());
             query.setMaxResults(selectDescriptor.getPageSize());
 
@@ -16,6 +16,7 @@ package org.bonitasoft.engine.persistence;
 
 import java.util.Map;
 
+import org.bonitasoft.engine.services.Vendor;
 import org.hibernate.Query;
 import org.hibernate.Session;
 
@@ -24,9 +25,9 @@ import org.hibernate.Session;
  */
 public class HQLQueryBuilder extends QueryBuilder {
 
-    HQLQueryBuilder(String baseQuery, OrderByBuilder orderByBuilder, Map<String, String> classAliasMappings,
+    HQLQueryBuilder(String baseQuery, Vendor vendor, OrderByBuilder orderByBuilder, Map<String, String> classAliasMappings,
             Map<String, Class<? extends PersistentObject>> interfaceToClassMapping, char likeEscapeCharacter) {
-        super(baseQuery, orderByBuilder, classAliasMappings, interfaceToClassMapping, likeEscapeCharacter);
+        super(baseQuery, vendor, orderByBuilder, classAliasMappings, interfaceToClassMapping, likeEscapeCharacter);
     }
 
     Query buildQuery(Session session) {
@@ -16,31 +16,72 @@ package org.bonitasoft.engine.persistence;
 
 import static org.bonitasoft.engine.persistence.search.FilterOperationType.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.bonitasoft.engine.commons.EnumToObjectConvertible;
 import org.bonitasoft.engine.persistence.search.FilterOperationType;
+import org.bonitasoft.engine.services.Vendor;
 import org.hibernate.Query;
 import org.hibernate.Session;
+import org.hibernate.internal.AbstractQueryImpl;
+import org.hibernate.type.StandardBasicTypes;
+import org.hibernate.type.Type;
 
 /**
+ * Appends filters, search terms and order by clauses to a named query.
+ * <p>
+ * Filter values are not written in the query but bound as parameters: the generated query only depends on the structure of the filters, so the
+ * Hibernate query plan cache and the statement cache of the database are reused from one search to the other. IN lists are padded to the next
+ * power of two for the same reason.
+ * <p>
+ * Pages can also start after a given element instead of skipping a number of elements (keyset pagination): the values of the order by fields of
+ * this element are compared to the ones of each row, so reading a page costs the same whatever its depth.
+ *
  * @author Baptiste Mesta
  */
 abstract class QueryBuilder {
 
+    static final String PARAMETER_PREFIX = "filterParam";
+
+    /**
+     * IN lists bigger than this are not padded, Oracle does not accept more than 1000 values in a list
+     */
+    static final int MAX_PADDED_IN_LIST_SIZE = 1000;
+
+    private static final Map<Class<?>, Type> BASIC_TYPES = new HashMap<>();
+
+    static {
+        BASIC_TYPES.put(String.class, StandardBasicTypes.STRING);
+        BASIC_TYPES.put(Long.class, StandardBasicTypes.LONG);
+        BASIC_TYPES.put(Integer.class, StandardBasicTypes.INTEGER);
+        BASIC_TYPES.put(Short.class, StandardBasicTypes.SHORT);
+        BASIC_TYPES.put(Double.class, StandardBasicTypes.DOUBLE);
+        BASIC_TYPES.put(Float.class, StandardBasicTypes.FLOAT);
+        BASIC_TYPES.put(Boolean.class, StandardBasicTypes.BOOLEAN);
+        BASIC_TYPES.put(Character.class, StandardBasicTypes.CHARACTER);
+    }
+
     private final String baseQuery;
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    final Vendor vendor;
     StringBuilder stringQueryBuilder;
     Map<String, String> classAliasMappings;
     Map<String, Class<? extends PersistentObject>> interfaceToClassMapping;
     private String likeEscapeCharacter;
     private OrderByBuilder orderByBuilder;
+    private boolean afterClause;
 
-    QueryBuilder(String baseQuery, OrderByBuilder orderByBuilder, Map<String, String> classAliasMappings,
+    QueryBuilder(String baseQuery, Vendor vendor, OrderByBuilder orderByBuilder, Map<String, String> classAliasMappings,
             Map<String, Class<? extends PersistentObject>> interfaceToClassMapping, char likeEscapeCharacter) {
+        this.vendor = vendor;
         this.orderByBuilder = orderByBuilder;
         this.classAliasMappings = classAliasMappings;
         this.interfaceToClassMapping = interfaceToClassMapping;
@@ -53,6 +94,10 @@ abstract class QueryBuilder {
         return stringQueryBuilder.toString();
     }
 
+    Map<String, Object> getParameters() {
+        return parameters;
+    }
+
     void appendFilters(List<FilterOption> filters, SearchFields multipleFilter, boolean enableWordSearch) {
         final Set<String> specificFilters = new HashSet<>(filters.size());
         if (!filters.isEmpty()) {
@@ -98,36 +143,35 @@ abstract class QueryBuilder {
                 if (fieldValue == null) {
                     clause.append(completeField).append(" IS NULL");
                 } else {
-                    clause.append(completeField).append(" = ").append(fieldValue);
+                    clause.append(completeField).append(" = ").append(parameter(fieldValue));
                 }
                 break;
             case GREATER:
-                clause.append(completeField).append(" > ").append(fieldValue);
+                clause.append(completeField).append(" > ").append(parameter(fieldValue));
                 break;
             case GREATER_OR_EQUALS:
-                clause.append(completeField).append(" >= ").append(fieldValue);
+                clause.append(completeField).append(" >= ").append(parameter(fieldValue));
                 break;
             case LESS:
-                clause.append(completeField).append(" < ").append(fieldValue);
+                clause.append(completeField).append(" < ").append(parameter(fieldValue));
                 break;
             case LESS_OR_EQUALS:
-                clause.append(completeField).append(" <= ").append(fieldValue);
+                clause.append(completeField).append(" <= ").append(parameter(fieldValue));
                 break;
             case DIFFERENT:
-                clause.append(completeField).append(" != ").append(fieldValue);
+                clause.append(completeField).append(" != ").append(parameter(fieldValue));
                 break;
             case IN:
                 clause.append(getInClause(completeField, filterOption));
                 break;
             case BETWEEN:
-                final Object from = filterOption.getFrom() instanceof String ? "'" + escapeString((String) filterOption.getFrom()) + "'"
-                        : filterOption.getFrom();
-                final Object to = filterOption.getTo() instanceof String ? "'" + escapeString((String) filterOption.getTo()) + "'" : filterOption.getTo();
+                final String from = parameter(processValue(filterOption.getFrom()));
+                final String to = parameter(processValue(filterOption.getTo()));
                 clause.append("(").append(from).append(" <= ").append(completeField);
                 clause.append(" AND ").append(completeField).append(" <= ").append(to).append(")");
                 break;
             case LIKE:
-                clause.append(completeField).append(" LIKE '%").append(escapeTerm((String) filterOption.getValue())).append("%'");
+                clause.append(completeField).append(" LIKE ").append(parameter("%" + escapeTerm((String) filterOption.getValue()) + "%"));
                 break;
             case L_PARENTHESIS:
                 clause.append(" (");
@@ -148,14 +192,25 @@ abstract class QueryBuilder {
     }
 
     protected Object processValue(Object fieldValue) {
-        if (fieldValue instanceof String) {
-            fieldValue = "'" + escapeString((String) fieldValue) + "'";
-        } else if (fieldValue instanceof EnumToObjectConvertible) {
+        if (fieldValue instanceof EnumToObjectConvertible) {
             fieldValue = ((EnumToObjectConvertible) fieldValue).fromEnum();
         }
         return fieldValue;
     }
 
+    /**
+     * Register the value as a parameter of the query and return the placeholder to write in the query. Null is written as is so that the query keeps
+     * its former meaning.
+     */
+    private String parameter(final Object value) {
+        if (value == null) {
+            return "null";
+        }
+        final String name = PARAMETER_PREFIX + parameters.size();
+        parameters.put(name, value);
+        return ":" + name;
+    }
+
     private void handleMultipleFilters(final StringBuilder builder, final SearchFields multipleFilter, final Set<String> specificFilters,
             final boolean enableWordSearch) {
         final Map<Class<? extends PersistentObject>, Set<String>> allTextFields = multipleFilter.getFields();
@@ -223,47 +278,144 @@ abstract class QueryBuilder {
      * Get like clause for given term with escaped sql query wildcards and escape character
      */
     private String buildLikeEscapeClause(final String term, final String prefixPattern, final String suffixPattern) {
-        return " LIKE '" + (prefixPattern != null ? prefixPattern : "") + escapeTerm(term) + (suffixPattern != null ? suffixPattern : "") + "' ESCAPE '"
-                + likeEscapeCharacter + "'";
+        return " LIKE " + parameter((prefixPattern != null ? prefixPattern : "") + escapeTerm(term) + (suffixPattern != null ? suffixPattern : ""))
+                + " ESCAPE '" + likeEscapeCharacter + "'";
     }
 
     /*
      * escape for like
      */
     private final String escapeTerm(final String term) {
-        // 1) escape ' character by adding another ' character
-        // 2) protect escape character if this character is used in data
-        // 3) escape % character (sql query wildcard) by adding escape character
-        // 4) escape _ character (sql query wildcard) by adding escape character
+        // 1) protect escape character if this character is used in data
+        // 2) escape % character (sql query wildcard) by adding escape character
+        // 3) escape _ character (sql query wildcard) by adding escape character
         return term
-                .replace("'", "''")
                 .replace(likeEscapeCharacter, likeEscapeCharacter + likeEscapeCharacter)
                 .replace("%", likeEscapeCharacter + "%")
                 .replace("_", likeEscapeCharacter + "_");
     }
 
-    /*
-     * escape for other things than like
+    private String getInClause(final StringBuilder completeField, final FilterOption filterOption) {
+        final List<Object> values = new ArrayList<>(filterOption.getIn().size());
+        for (final Object element : filterOption.getIn()) {
+            values.add(processValue(element));
+        }
+        return completeField + " in (" + parameter(padInList(values)) + ")";
+    }
+
+    /**
+     * Repeat the last value up to the next power of two, so that lists of different sizes share the same expanded query
      */
-    String escapeString(final String term) {
-        // 1) escape ' character by adding another ' character
-        return term
-                .replaceAll("'", "''");
+    static List<Object> padInList(final List<Object> values) {
+        final int size = values.size();
+        if (size == 0 || size > MAX_PADDED_IN_LIST_SIZE) {
+            return values;
+        }
+        final int paddedSize = Math.min(Integer.highestOneBit(size - 1) << 1, MAX_PADDED_IN_LIST_SIZE);
+        final Object lastValue = values.get(size - 1);
+        for (int i = size; i < paddedSize; i++) {
+            values.add(lastValue);
+        }
+        return values;
     }
 
-    private String getInClause(final StringBuilder completeField, final FilterOption filterOption) {
-        return completeField + " in (" +
-                getInValues(filterOption) +
-                ")";
+    /**
+     * Only keep the rows coming after the element having the given values for the order by fields, the id being the last one when the results are not
+     * ordered by id. Must be followed by {@link #appendOrderByClause(List, Class)} with the same order by options.
+     */
+    void appendAfterClause(List<OrderByOption> orderByOptions, Class<? extends PersistentObject> entityType, List<Object> afterValues)
+            throws SBonitaReadException {
+        final List<String> fields = new ArrayList<>(orderByOptions.size() + 1);
+        final List<OrderByType> orderByTypes = new ArrayList<>(orderByOptions.size() + 1);
+        final List<Boolean> nullables = new ArrayList<>(orderByOptions.size() + 1);
+        boolean sortedById = false;
+        for (final OrderByOption orderByOption : orderByOptions) {
+            final boolean isId = "id".equalsIgnoreCase(orderByOption.getFieldName());
+            fields.add(getOrderByField(orderByOption));
+            orderByTypes.add(orderByOption.getOrderByType());
+            nullables.add(!isId);
+            sortedById |= isId;
+        }
+        if (!sortedById) {
+            final StringBuilder idField = new StringBuilder();
+            appendClassAlias(idField, entityType);
+            fields.add(idField.append("id").toString());
+            orderByTypes.add(OrderByType.ASC);
+            nullables.add(false);
+        }
+        if (afterValues.size() != fields.size()) {
+            throw new SBonitaReadException("Unable to continue the search after " + afterValues + ", the results are ordered by " + fields);
+        }
+        // (k0 after v0) OR (k0 = v0 AND k1 after v1) OR ...
+        final List<String> alternatives = new ArrayList<>(fields.size());
+        final StringBuilder previousKeysEqual = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            final Object value = processValue(afterValues.get(i));
+            final String after = getAfterCondition(fields.get(i), orderByTypes.get(i), nullables.get(i), value);
+            if (after != null) {
+                alternatives.add("(" + previousKeysEqual + after + ")");
+            }
+            if (i == fields.size() - 1) {
+                break;
+            }
+            if (value == null) {
+                previousKeysEqual.append(fields.get(i)).append(" IS NULL AND ");
+            } else {
+                previousKeysEqual.append(fields.get(i)).append(" = ").append(parameter(value)).append(" AND ");
+            }
+        }
+        if (!stringQueryBuilder.toString().contains("WHERE")) {
+            stringQueryBuilder.append(" WHERE (");
+        } else {
+            stringQueryBuilder.append(" AND (");
+        }
+        final Iterator<String> iterator = alternatives.iterator();
+        while (iterator.hasNext()) {
+            stringQueryBuilder.append(iterator.next());
+            if (iterator.hasNext()) {
+                stringQueryBuilder.append(" OR ");
+            }
+        }
+        stringQueryBuilder.append(")");
+        afterClause = true;
     }
 
-    private String getInValues(final FilterOption filterOption) {
-        final StringBuilder stb = new StringBuilder();
-        for (final Object element : filterOption.getIn()) {
-            stb.append(element).append(",");
+    /**
+     * @return the condition for a field to come after the value in the given order, or null if nothing comes after it
+     */
+    private String getAfterCondition(final String field, final OrderByType orderByType, final boolean nullable, final Object value) {
+        final boolean nullsFirst = isNullsFirst(orderByType);
+        if (value == null) {
+            return nullsFirst ? field + " IS NOT NULL" : null;
+        }
+        final String condition = field + (isAscending(orderByType) ? " > " : " < ") + parameter(value);
+        return nullsFirst || !nullable ? condition : "(" + condition + " OR " + field + " IS NULL)";
+    }
+
+    private static boolean isAscending(final OrderByType orderByType) {
+        switch (orderByType) {
+            case ASC:
+            case ASC_NULLS_FIRST:
+            case ASC_NULLS_LAST:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isNullsFirst(final OrderByType orderByType) {
+        switch (orderByType) {
+            case ASC_NULLS_FIRST:
+            case DESC_NULLS_FIRST:
+                return true;
+            case ASC_NULLS_LAST:
+            case DESC_NULLS_LAST:
+                return false;
+            default:
+                // when not specified, Oracle and Postgres consider null as greater than any value, the other databases as smaller
+                final boolean nullsGreater = Vendor.ORACLE.equals(vendor) || Vendor.POSTGRES.equals(vendor);
+                return isAscending(orderByType) != nullsGreater;
         }
-        final String inValues = stb.toString();
-        return inValues.substring(0, inValues.length() - 1);
     }
 
     void appendOrderByClause(List<OrderByOption> orderByOptions, Class<? extends PersistentObject> entityType) throws SBonitaReadException {
@@ -274,17 +426,12 @@ abstract class QueryBuilder {
             if (startWithComma) {
                 stringQueryBuilder.append(',');
             }
-            StringBuilder fieldNameBuilder = new StringBuilder();
-            final Class<? extends PersistentObject> clazz = orderByOption.getClazz();
-            if (clazz != null) {
-                appendClassAlias(fieldNameBuilder, clazz);
-            }
             final String fieldName = orderByOption.getFieldName();
-            if ("id".equalsIgnoreCase(fieldName) || "sourceObjectId".equalsIgnoreCase(fieldName)) {
+            // the source object id identifies an element only when not starting after a given one, which requires a strict order
+            if ("id".equalsIgnoreCase(fieldName) || !afterClause && "sourceObjectId".equalsIgnoreCase(fieldName)) {
                 sortedById = true;
             }
-            fieldNameBuilder.append(fieldName);
-            orderByBuilder.appendOrderBy(stringQueryBuilder, fieldNameBuilder.toString(), orderByOption.getOrderByType());
+            orderByBuilder.appendOrderBy(stringQueryBuilder, getOrderByField(orderByOption), orderByOption.getOrderByType());
             startWithComma = true;
         }
         if (!sortedById) {
@@ -298,6 +445,15 @@ abstract class QueryBuilder {
         }
     }
 
+    private String getOrderByField(final OrderByOption orderByOption) throws SBonitaReadException {
+        final StringBuilder fieldNameBuilder = new StringBuilder();
+        final Class<? extends PersistentObject> clazz = orderByOption.getClazz();
+        if (clazz != null) {
+            appendClassAlias(fieldNameBuilder, clazz);
+        }
+        return fieldNameBuilder.append(orderByOption.getFieldName()).toString();
+    }
+
     private void appendClassAlias(final StringBuilder builder, final Class<? extends PersistentObject> clazz) throws SBonitaReadException {
         final String className = clazz.getName();
         final String classAlias = classAliasMappings.get(className);
@@ -314,5 +470,86 @@ abstract class QueryBuilder {
 
     abstract Query buildQuery(Session session);
 
+    /**
+     * Bind the values of the filters to the query built by {@link #buildQuery(Session)}
+     */
+    void setParameters(final Query query) {
+        for (final Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            final Type expectedType = getExpectedType(query, parameter.getKey());
+            if (parameter.getValue() instanceof Collection<?>) {
+                final List<Object> values = new ArrayList<>();
+                for (final Object value : (Collection<?>) parameter.getValue()) {
+                    values.add(toExpectedType(value, expectedType));
+                }
+                final Type type = values.isEmpty() ? null : getType(values.get(0), expectedType);
+                if (type != null) {
+                    query.setParameterList(parameter.getKey(), values, type);
+                } else {
+                    query.setParameterList(parameter.getKey(), values);
+                }
+            } else {
+                final Object value = toExpectedType(parameter.getValue(), expectedType);
+                final Type type = getType(value, expectedType);
+                if (type != null) {
+                    query.setParameter(parameter.getKey(), value, type);
+                } else {
+                    query.setParameter(parameter.getKey(), value);
+                }
+            }
+        }
+    }
+
+    private Type getExpectedType(final Query query, final String name) {
+        if (query instanceof AbstractQueryImpl) {
+            // only known for HQL queries, from the property the parameter is compared to
+            return ((AbstractQueryImpl) query).getParameterMetadata().getNamedParameterExpectedType(name);
+        }
+        return null;
+    }
+
+    /**
+     * @return the type to bind the value with, or null to let Hibernate guess it
+     */
+    private Type getType(final Object value, final Type expectedType) {
+        if (expectedType != null && expectedType.getReturnedClass().isInstance(value)) {
+            return expectedType;
+        }
+        // e.g. the ordinal of an enum compared to an enum property: bound as a number, as it was written before
+        return BASIC_TYPES.get(value.getClass());
+    }
+
+    /**
+     * Values were previously written as literals and converted by the database, e.g. a String compared to a number column: convert them to the type
+     * of the property when Hibernate knows it
+     */
+    static Object toExpectedType(final Object value, final Type expectedType) {
+        if (expectedType == null || expectedType.getReturnedClass().isInstance(value)) {
+            return value;
+        }
+        final Class<?> expectedClass = expectedType.getReturnedClass();
+        if (!(value instanceof Number || value instanceof String)) {
+            return value;
+        }
+        final String stringValue = value.toString().trim();
+        try {
+            if (Long.class.equals(expectedClass)) {
+                return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(stringValue);
+            } else if (Integer.class.equals(expectedClass)) {
+                return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(stringValue);
+            } else if (Short.class.equals(expectedClass)) {
+                return value instanceof Number ? ((Number) value).shortValue() : Short.valueOf(stringValue);
+            } else if (Double.class.equals(expectedClass)) {
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.valueOf(stringValue);
+            } else if (Float.class.equals(expectedClass)) {
+                return value instanceof Number ? ((Number) value).floatValue() : Float.valueOf(stringValue);
+            } else if (String.class.equals(expectedClass)) {
+                return value.toString();
+            }
+        } catch (final NumberFormatException e) {
+            // not a number, bound as is
+        }
+        return value;
+    }
+
     public abstract void setTenantId(Query query, long tenantId);
 }
@@ -34,7 +34,7 @@ public class QueryBuilderFactory {
             return new SQLQueryBuilder(query.getQueryString(), vendor, entityType, orderByBuilder, classAliasMappings, interfaceToClassMapping,
                     likeEscapeCharacter);
         } else {
-            return new HQLQueryBuilder(query.getQueryString(), orderByBuilder, classAliasMappings, interfaceToClassMapping, likeEscapeCharacter);
+            return new HQLQueryBuilder(query.getQueryString(), vendor, orderByBuilder, classAliasMappings, interfaceToClassMapping, likeEscapeCharacter);
         }
     }
 
@@ -35,14 +35,12 @@ public class SQLQueryBuilder extends QueryBuilder {
         hqlToSqlAlias.put("user", "user_");
     }
 
-    private final Vendor vendor;
     private Class<? extends PersistentObject> entityType;
 
     SQLQueryBuilder(String baseQuery, Vendor vendor, Class<? extends PersistentObject> entityType, OrderByBuilder orderByBuilder,
             Map<String, String> classAliasMappings,
             Map<String, Class<? extends PersistentObject>> interfaceToClassMapping, char likeEscapeCharacter) {
-        super(baseQuery, orderByBuilder, classAliasMappings, interfaceToClassMapping, likeEscapeCharacter);
-        this.vendor = vendor;
+        super(baseQuery, vendor, orderByBuilder, classAliasMappings, interfaceToClassMapping, likeEscapeCharacter);
         this.entityType = entityType;
     }
 
@@ -168,17 +168,19 @@ public class TenantHibernatePersistenceService extends AbstractHibernatePersiste
     public void deleteByTenant(final Class<? extends PersistentObject> entityClass, final List<FilterOption> filters) throws SPersistenceException {
         try {
             final Session session = getSession(true);
-            final String entityClassName = entityClass.getCanonicalName();
+            // entities are mapped with an explicit polymorphism: the statement must target the mapped class, not the interface
+            final String entityClassName = getMappedClass(entityClass).getCanonicalName();
             final boolean enableWordSearch = isWordSearchEnabled(entityClass);
 
             boolean hasFilters = filters != null && !filters.isEmpty();
-            String baseQuery = "DELETE FROM " + entityClassName + " " + (hasFilters ? getClassAliasMappings().get(entityClassName) : "")
+            String baseQuery = "DELETE FROM " + entityClassName + " " + (hasFilters ? getClassAliasMappings().get(entityClass.getName()) : "")
                     + " WHERE tenantId= :tenantId";
-            QueryBuilder queryBuilder = new HQLQueryBuilder(baseQuery, orderByBuilder, getClassAliasMappings(), interfaceToClassMapping, likeEscapeCharacter);
+            QueryBuilder queryBuilder = new HQLQueryBuilder(baseQuery, null, orderByBuilder, getClassAliasMappings(), interfaceToClassMapping, likeEscapeCharacter);
             if (hasFilters) {
                 queryBuilder.appendFilters(filters, null, enableWordSearch);
             }
             final Query query = queryBuilder.buildQuery(session);
+            queryBuilder.setParameters(query);
             query.setLong(TENANT_ID, getTenantId());
             query.executeUpdate();
             if (logger.isLoggable(getClass(), TechnicalLogSeverity.DEBUG)) {
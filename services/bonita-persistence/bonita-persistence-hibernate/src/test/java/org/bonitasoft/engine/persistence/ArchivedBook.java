@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.persistence;
+
+public class ArchivedBook implements PersistentObject {
+
+    private static final long serialVersionUID = 1L;
+
+    String title;
+    String author;
+    long id;
+    long tenantId;
+    long sourceObjectId;
+
+    public ArchivedBook() {
+    }
+
+    public ArchivedBook(final Book book) {
+        id = book.getId();
+        title = book.getTitle();
+        author = book.getAuthor();
+        sourceObjectId = book.getId();
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public long getSourceObjectId() {
+        return sourceObjectId;
+    }
+
+    @Override
+    public long getId() {
+        return id;
+    }
+
+    @Override
+    public String getDiscriminator() {
+        return null;
+    }
+
+    @Override
+    public void setId(final long id) {
+        this.id = id;
+    }
+
+    public long getTenantId() {
+        return tenantId;
+    }
+
+    @Override
+    public void setTenantId(final long id) {
+        tenantId = id;
+    }
+
+}
@@ -20,6 +20,7 @@ public class Book implements PersistentObject {
     String title;
     String author;
     long id;
+    long tenantId;
 
     public String getTitle() {
         return title;
@@ -52,9 +53,13 @@ public class Book implements PersistentObject {
         this.id = id;
     }
 
+    public long getTenantId() {
+        return tenantId;
+    }
+
     @Override
     public void setTenantId(final long id) {
-
+        tenantId = id;
     }
 
 }
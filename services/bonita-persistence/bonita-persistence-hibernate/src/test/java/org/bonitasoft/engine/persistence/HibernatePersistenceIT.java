@@ -14,6 +14,7 @@
 package org.bonitasoft.engine.persistence;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 import java.util.ArrayList;
@@ -26,12 +27,16 @@ import java.util.Map;
 import java.util.Set;
 
 import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.persistence.search.FilterOperationType;
+import org.bonitasoft.engine.sequence.SequenceManager;
 import org.bonitasoft.engine.services.SPersistenceException;
+import org.bonitasoft.engine.sessionaccessor.ReadSessionAccessor;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.service.ServiceRegistry;
 import org.hibernate.service.ServiceRegistryBuilder;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 
 public class HibernatePersistenceIT {
@@ -66,6 +71,336 @@ public class HibernatePersistenceIT {
         executeSearch(enableWordSearch, expectedResults);
     }
 
+    @Test
+    public void should_insert_in_batch_with_and_without_jdbc_batching() throws Exception {
+        final int numberOfBooks = 2000;
+
+        // without JDBC batching each row is sent with its own statement, with it one statement is prepared and sent 50 rows at a time
+        assertThat(insertBooksInBatch("0", numberOfBooks)).isEqualTo(numberOfBooks);
+        assertThat(insertBooksInBatch("50", numberOfBooks)).isEqualTo(1);
+    }
+
+    @Test
+    public void should_generate_one_statement_per_search_shape() throws Exception {
+        final Configuration configuration = new Configuration().configure();
+        configuration.setProperty("hibernate.generate_statistics", "true");
+        final ServiceRegistry serviceRegistry = new ServiceRegistryBuilder().applySettings(configuration.getProperties()).buildServiceRegistry();
+        final SessionFactory sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+        try {
+            final PlatformHibernatePersistenceService persistenceService = new PlatformHibernatePersistenceService(sessionFactory,
+                    Arrays.<Class<? extends PersistentObject>> asList(Book.class), Collections.singletonMap(Book.class.getName(), "book"), true,
+                    Collections.<String> emptySet(), mock(TechnicalLoggerService.class));
+            Session session = persistenceService.getSession(true);
+            session.beginTransaction();
+            try {
+                for (int i = 1; i <= 100; i++) {
+                    final Book book = new Book();
+                    book.setId(i);
+                    book.setTitle("title " + i);
+                    book.setAuthor("author " + i % 10);
+                    persistenceService.insert(book);
+                }
+            } finally {
+                session.getTransaction().commit();
+            }
+
+            session = persistenceService.getSession(true);
+            session.beginTransaction();
+            try {
+                // a mix of the searches done by the portal: by author, by term, by list of ids, with pages of different sizes
+                final int numberOfSearches = 300;
+                for (int i = 0; i < numberOfSearches; i++) {
+                    final QueryOptions queryOptions;
+                    switch (i % 3) {
+                        case 0:
+                            queryOptions = new QueryOptions(0, 10, Collections.<OrderByOption> emptyList(),
+                                    Collections.singletonList(new FilterOption(Book.class, "author", "author " + i % 10)), null);
+                            break;
+                        case 1:
+                            queryOptions = buildQueryOptions("title " + (1 + i % 100));
+                            break;
+                        default:
+                            final List<Object> ids = new ArrayList<>();
+                            for (int j = 0; j < 1 + i % 16; j++) {
+                                ids.add((long) (i + j) % 100 + 1);
+                            }
+                            final FilterOption idFilter = new FilterOption(Book.class, "id");
+                            idFilter.setIn(ids);
+                            idFilter.setFilterOperationType(FilterOperationType.IN);
+                            queryOptions = new QueryOptions(0, 20, Collections.<OrderByOption> emptyList(), Collections.singletonList(idFilter), null);
+                    }
+                    assertThat(persistenceService.selectList(new SelectListDescriptor<Book>("getAllBooks", null, Book.class, queryOptions))).as("search " + i)
+                            .isNotEmpty();
+                }
+                final Statistics statistics = sessionFactory.getStatistics();
+                // one query per filter shape whatever the values of the filters, plus one expansion of the IN list for each padded size (2, 4, 8, 16)
+                // instead of one per list size (2 to 16)
+                assertThat(statistics.getQueries()).as("distinct queries of %d searches", numberOfSearches).hasSize(3 + 4);
+            } finally {
+                session.getTransaction().commit();
+            }
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    public void should_read_pages_after_the_last_element_of_the_previous_page() throws Exception {
+        final Configuration configuration = new Configuration().configure();
+        final ServiceRegistry serviceRegistry = new ServiceRegistryBuilder().applySettings(configuration.getProperties()).buildServiceRegistry();
+        final SessionFactory sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+        try {
+            final PlatformHibernatePersistenceService persistenceService = new PlatformHibernatePersistenceService(sessionFactory,
+                    Arrays.<Class<? extends PersistentObject>> asList(Book.class), Collections.singletonMap(Book.class.getName(), "book"), true,
+                    Collections.<String> emptySet(), mock(TechnicalLoggerService.class));
+            Session session = persistenceService.getSession(true);
+            session.beginTransaction();
+            try {
+                for (int i = 1; i <= 100; i++) {
+                    final Book book = new Book();
+                    book.setId(i);
+                    book.setTitle("title " + i);
+                    book.setAuthor(i % 7 == 0 ? null : "author " + i % 10);
+                    persistenceService.insert(book);
+                }
+            } finally {
+                session.getTransaction().commit();
+            }
+
+            session = persistenceService.getSession(true);
+            session.beginTransaction();
+            try {
+                final List<OrderByOption> orderBy = Collections.singletonList(new OrderByOption(Book.class, "author", OrderByType.DESC));
+                final List<Book> allBooks = persistenceService.selectList(new SelectListDescriptor<Book>("getAllBooks", null, Book.class,
+                        new QueryOptions(0, 100, orderBy)));
+
+                final List<Book> pagedBooks = new ArrayList<>();
+                List<Book> page = persistenceService.selectList(new SelectListDescriptor<Book>("getAllBooks", null, Book.class,
+                        new QueryOptions(0, 7, orderBy)));
+                while (!page.isEmpty()) {
+                    pagedBooks.addAll(page);
+                    final Book last = page.get(page.size() - 1);
+                    page = persistenceService.selectList(new SelectListDescriptor<Book>("getAllBooks", null, Book.class, new QueryOptions(7, orderBy,
+                            Collections.<FilterOption> emptyList(), null, Arrays.<Object> asList(last.getAuthor(), last.getId()))));
+                }
+
+                assertThat(allBooks).hasSize(100);
+                assertThat(pagedBooks).isEqualTo(allBooks);
+            } finally {
+                session.getTransaction().commit();
+            }
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
+    @Test
+    public void deleteByTenant_should_only_delete_the_entities_of_the_tenant_matching_the_filters() throws Exception {
+        final ReadSessionAccessor sessionAccessor = mock(ReadSessionAccessor.class);
+        final TenantHibernatePersistenceService persistenceService = createTenantPersistenceService(new Configuration().configure(), sessionAccessor,
+                mock(SequenceManager.class));
+        try {
+            for (final long tenantId : Arrays.asList(1L, 2L)) {
+                doReturn(tenantId).when(sessionAccessor).getTenantId();
+                final Session session = persistenceService.getSession(true);
+                try {
+                    for (int i = 1; i <= 6; i++) {
+                        final Book book = new Book();
+                        book.setId(tenantId * 10 + i);
+                        book.setTitle("title " + i);
+                        book.setAuthor(i % 2 == 0 ? "Paul" : "Jacques");
+                        persistenceService.insert(book);
+                    }
+                } finally {
+                    session.getTransaction().commit();
+                }
+            }
+
+            doReturn(1L).when(sessionAccessor).getTenantId();
+            Session session = persistenceService.getSession(true);
+            try {
+                persistenceService.deleteByTenant(Book.class, Collections.singletonList(new FilterOption(Book.class, "author", "Paul")));
+            } finally {
+                session.getTransaction().commit();
+            }
+
+            session = persistenceService.getSession(false);
+            try {
+                assertThat(session.createQuery("SELECT book.tenantId, book.author, count(*) FROM " + Book.class.getName()
+                        + " book GROUP BY book.tenantId, book.author ORDER BY book.tenantId, book.author").list()).containsExactly(
+                        new Object[] { 1L, "Jacques", 3L }, new Object[] { 2L, "Jacques", 3L }, new Object[] { 2L, "Paul", 3L });
+            } finally {
+                session.getTransaction().commit();
+            }
+        } finally {
+            persistenceService.destroy();
+        }
+    }
+
+    @Test
+    public void should_archive_with_one_insert_select_and_one_delete() throws Exception {
+        final int numberOfBooks = 5000;
+
+        final Statistics statistics = archiveBooks(true, numberOfBooks);
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(0);
+        assertThat(statistics.getEntityDeleteCount()).isEqualTo(0);
+        // count of the books, insert of the archived books, delete of the books
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void should_archive_row_by_row() throws Exception {
+        final int numberOfBooks = 500;
+
+        final Statistics statistics = archiveBooks(false, numberOfBooks);
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(numberOfBooks);
+        assertThat(statistics.getEntityDeleteCount()).isEqualTo(numberOfBooks);
+    }
+
+    private Statistics archiveBooks(final boolean setBased, final int numberOfBooks) throws Exception {
+        final Configuration configuration = new Configuration().configure();
+        // same JDBC batching as the engine default
+        configuration.setProperty("hibernate.jdbc.batch_size", "20");
+        configuration.setProperty("hibernate.generate_statistics", "true");
+        final ReadSessionAccessor sessionAccessor = mock(ReadSessionAccessor.class);
+        doReturn(1L).when(sessionAccessor).getTenantId();
+        final SequenceManager sequenceManager = mock(SequenceManager.class);
+        doReturn(100001L).when(sequenceManager).getIdBlock(ArchivedBook.class.getName(), 1L, numberOfBooks);
+        final TenantHibernatePersistenceService persistenceService = createTenantPersistenceService(configuration, sessionAccessor, sequenceManager);
+        try {
+            Session session = persistenceService.getSession(true);
+            try {
+                final List<PersistentObject> books = new ArrayList<>(numberOfBooks);
+                for (int i = 1; i <= numberOfBooks; i++) {
+                    final Book book = new Book();
+                    book.setId(i);
+                    book.setTitle("title " + i);
+                    book.setAuthor("Paul");
+                    books.add(book);
+                }
+                persistenceService.insertInBatch(books);
+            } finally {
+                session.getTransaction().commit();
+            }
+
+            final Statistics statistics = session.getSessionFactory().getStatistics();
+            statistics.clear();
+            session = persistenceService.getSession(true);
+            try {
+                final List<FilterOption> filters = Collections.singletonList(new FilterOption(Book.class, "author", "Paul"));
+                if (setBased) {
+                    final long count = (Long) session.createQuery("SELECT count(*) FROM " + Book.class.getName() + " WHERE author = 'Paul'").uniqueResult();
+                    assertThat(persistenceService.insertFromQuery("archiveBooksOfAuthor", Collections.<String, Object> singletonMap("author", "Paul"),
+                            ArchivedBook.class, (int) count)).isEqualTo(numberOfBooks);
+                    persistenceService.deleteByTenant(Book.class, filters);
+                } else {
+                    final List<OrderByOption> orderBy = Collections.singletonList(new OrderByOption(Book.class, "id", OrderByType.ASC));
+                    List<Book> page;
+                    do {
+                        // the books of the page are deleted before the next page is read: next page is the first one.
+                        // Book has no composite id: delete it from the session like delete(PersistentObject) does once it has loaded it
+                        page = persistenceService.selectList(new SelectListDescriptor<Book>("getAllBooks", null, Book.class, new QueryOptions(0, 100,
+                                orderBy, filters, null)));
+                        for (final Book book : page) {
+                            final ArchivedBook archivedBook = new ArchivedBook(book);
+                            archivedBook.setId(100000 + book.getId());
+                            persistenceService.insert(archivedBook);
+                            session.delete(book);
+                        }
+                    } while (page.size() == 100);
+                }
+            } finally {
+                session.getTransaction().commit();
+            }
+            // the checks below are not part of the archiving
+            statistics.setStatisticsEnabled(false);
+
+            session = persistenceService.getSession(true);
+            try {
+                assertThat(session.createQuery("SELECT count(*) FROM " + Book.class.getName()).uniqueResult()).isEqualTo(0L);
+                assertThat(session.createQuery("SELECT count(DISTINCT id) FROM " + ArchivedBook.class.getName()
+                        + " WHERE id BETWEEN 100001 AND :lastId AND tenantId = 1 AND title = concat('title ', str(sourceObjectId))")
+                        .setLong("lastId", 100000L + numberOfBooks).uniqueResult()).isEqualTo((long) numberOfBooks);
+            } finally {
+                session.getTransaction().commit();
+            }
+            return statistics;
+        } finally {
+            persistenceService.destroy();
+        }
+    }
+
+    private TenantHibernatePersistenceService createTenantPersistenceService(final Configuration configuration, final ReadSessionAccessor sessionAccessor,
+            final SequenceManager sequenceManager) throws Exception {
+        final HibernateConfigurationProvider configurationProvider = mock(HibernateConfigurationProvider.class);
+        doReturn(configuration).when(configurationProvider).getConfiguration();
+        final Map<String, String> classAliasMappings = new HashMap<>();
+        classAliasMappings.put(Book.class.getName(), "book");
+        classAliasMappings.put(ArchivedBook.class.getName(), "archivedBook");
+        doReturn(classAliasMappings).when(configurationProvider).getClassAliasMappings();
+        doReturn(Collections.emptyMap()).when(configurationProvider).getInterfaceToClassMapping();
+        return new TenantHibernatePersistenceService("tenant", sessionAccessor, configurationProvider, null, '#', mock(TechnicalLoggerService.class),
+                sequenceManager, null, false, Collections.<String> emptySet()) {
+
+            @Override
+            protected void updateTenantFilter(final Session session, final boolean useTenant) throws SPersistenceException {
+                // filters can only be set on the thread bound sessions of the test once their transaction has begun
+                if (!session.getTransaction().isActive()) {
+                    session.beginTransaction();
+                }
+                super.updateTenantFilter(session, useTenant);
+            }
+        };
+    }
+
+    /**
+     * @return the number of JDBC statements prepared to insert the books
+     */
+    private long insertBooksInBatch(final String jdbcBatchSize, final int numberOfBooks) throws Exception {
+        final Configuration configuration = new Configuration().configure();
+        configuration.setProperty("hibernate.jdbc.batch_size", jdbcBatchSize);
+        configuration.setProperty("hibernate.generate_statistics", "true");
+        final ServiceRegistry serviceRegistry = new ServiceRegistryBuilder().applySettings(configuration.getProperties()).buildServiceRegistry();
+        final SessionFactory sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+        try {
+            final PlatformHibernatePersistenceService persistenceService = new PlatformHibernatePersistenceService(sessionFactory,
+                    Arrays.<Class<? extends PersistentObject>> asList(Book.class), Collections.singletonMap(Book.class.getName(), "book"), false,
+                    Collections.<String> emptySet(), mock(TechnicalLoggerService.class));
+            final List<PersistentObject> books = new ArrayList<>(numberOfBooks);
+            for (int i = 1; i <= numberOfBooks; i++) {
+                final Book book = new Book();
+                book.setId(i);
+                book.setTitle("title " + i);
+                book.setAuthor("author " + i);
+                books.add(book);
+            }
+
+            final Statistics statistics = sessionFactory.getStatistics();
+            statistics.clear();
+            Session session = persistenceService.getSession(true);
+            session.beginTransaction();
+            try {
+                persistenceService.insertInBatch(books);
+            } finally {
+                session.getTransaction().commit();
+            }
+            final long numberOfStatements = statistics.getPrepareStatementCount();
+
+            session = persistenceService.getSession(true);
+            session.beginTransaction();
+            try {
+                assertThat(session.createQuery("SELECT count(*) FROM " + Book.class.getName()).uniqueResult()).isEqualTo((long) numberOfBooks);
+            } finally {
+                session.getTransaction().commit();
+            }
+            return numberOfStatements;
+        } finally {
+            sessionFactory.close();
+        }
+    }
+
     protected void executeSearch(final boolean enableWordSearch, final int expectedResults) throws ClassNotFoundException, SPersistenceException,
             SBonitaReadException {
         // Setup Hibernate and extract SessionFactory
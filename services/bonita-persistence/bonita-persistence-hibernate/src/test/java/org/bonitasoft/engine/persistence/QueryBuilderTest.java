@@ -16,15 +16,23 @@ package org.bonitasoft.engine.persistence;
 
 import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
 import org.bonitasoft.engine.commons.EnumToObjectConvertible;
 import org.bonitasoft.engine.persistence.search.FilterOperationType;
+import org.bonitasoft.engine.services.Vendor;
+import org.hibernate.Query;
+import org.hibernate.type.StandardBasicTypes;
 import org.junit.Test;
 
 /**
@@ -47,7 +55,7 @@ public class QueryBuilderTest {
     }
 
     private QueryBuilder createQueryBuilder(String baseQuery) {
-        return new HQLQueryBuilder(baseQuery, new DefaultOrderByBuilder(), classAliasMappings, interfaceToClassMapping,
+        return new HQLQueryBuilder(baseQuery, null, new DefaultOrderByBuilder(), classAliasMappings, interfaceToClassMapping,
                 LIKE_ESCAPE_CHARACTER);
     }
 
@@ -92,7 +100,8 @@ public class QueryBuilderTest {
         //when
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "theValue", 12)), null, false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.theValue = 12)");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.theValue = :filterParam0)");
+        assertThat(queryBuilder.getParameters()).isEqualTo(Collections.<String, Object> singletonMap("filterParam0", 12));
     }
 
     @Test
@@ -103,7 +112,9 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Arrays.asList(new FilterOption(TestObject.class, "age", 25), new FilterOption(TestObject.class, "lastname", "John")), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age = 25 AND testObj.lastname = 'John')");
+        assertThat(queryBuilder.getQuery()).isEqualTo(
+                "SELECT testObj.* FROM test_object testObj WHERE (testObj.age = :filterParam0 AND testObj.lastname = :filterParam1)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25, "John");
     }
 
     @Test
@@ -113,7 +124,8 @@ public class QueryBuilderTest {
         //when
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "theValue", 12)), null, false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE testObj.enabled = true AND (testObj.theValue = 12)");
+        assertThat(queryBuilder.getQuery()).isEqualTo(
+                "SELECT testObj.* FROM test_object testObj WHERE testObj.enabled = true AND (testObj.theValue = :filterParam0)");
     }
 
     @Test
@@ -125,7 +137,7 @@ public class QueryBuilderTest {
         queryBuilder.appendOrderByClause(Collections.singletonList(new OrderByOption(TestObject.class, "theValue", OrderByType.ASC)), TestObject.class);
         //then
         assertThat(queryBuilder.getQuery()).isEqualTo(
-                "SELECT testObj.* FROM test_object testObj WHERE testObj.enabled = true AND (testObj.theValue = 12) ORDER BY testObj.theValue ASC,testObj.id ASC");
+                "SELECT testObj.* FROM test_object testObj WHERE testObj.enabled = true AND (testObj.theValue = :filterParam0) ORDER BY testObj.theValue ASC,testObj.id ASC");
     }
 
     @Test
@@ -137,7 +149,8 @@ public class QueryBuilderTest {
                 Collections.<Class<? extends PersistentObject>, Set<String>> singletonMap(TestObject.class, aSet("field1", "field2"))), false);
         //then
         assertThat(queryBuilder.getQuery()).matches(
-                "SELECT testObj\\.\\* FROM test_object testObj WHERE \\(testObj.field(1|2) LIKE 'toto%' ESCAPE '§' OR testObj.field(1|2) LIKE 'toto%' ESCAPE '§'\\)");
+                "SELECT testObj\\.\\* FROM test_object testObj WHERE \\(testObj.field(1|2) LIKE :filterParam0 ESCAPE '§' OR testObj.field(1|2) LIKE :filterParam1 ESCAPE '§'\\)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("toto%", "toto%");
     }
 
     @Test
@@ -149,10 +162,11 @@ public class QueryBuilderTest {
                 Collections.<Class<? extends PersistentObject>, Set<String>> singletonMap(TestObject.class, aSet("field1", "field2"))), false);
         //then
         assertThat(queryBuilder.getQuery()).matches(
-                "SELECT testObj\\.\\* FROM test_object testObj WHERE \\(testObj.field(1|2) LIKE 'toto%' ESCAPE '§' " +
-                        "OR testObj.field(1|2) LIKE 'tata%' ESCAPE '§' " +
-                        "OR testObj.field(1|2) LIKE 'toto%' ESCAPE '§' " +
-                        "OR testObj.field(1|2) LIKE 'tata%' ESCAPE '§'\\)");
+                "SELECT testObj\\.\\* FROM test_object testObj WHERE \\(testObj.field(1|2) LIKE :filterParam0 ESCAPE '§' " +
+                        "OR testObj.field(1|2) LIKE :filterParam1 ESCAPE '§' " +
+                        "OR testObj.field(1|2) LIKE :filterParam2 ESCAPE '§' " +
+                        "OR testObj.field(1|2) LIKE :filterParam3 ESCAPE '§'\\)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("toto%", "tata%", "toto%", "tata%");
     }
 
     @Test
@@ -164,10 +178,11 @@ public class QueryBuilderTest {
                 Collections.<Class<? extends PersistentObject>, Set<String>> singletonMap(TestObject.class, aSet("field1", "field2"))), true);
         //then
         assertThat(queryBuilder.getQuery()).matches(
-                "SELECT testObj\\.\\* FROM test_object testObj WHERE \\(testObj.field(1|2) LIKE 'toto%' ESCAPE '§' " +
-                        "OR testObj.field(1|2) LIKE '% toto%' ESCAPE '§' " +
-                        "OR testObj.field(1|2) LIKE 'toto%' ESCAPE '§' " +
-                        "OR testObj.field(1|2) LIKE '% toto%' ESCAPE '§'\\)");
+                "SELECT testObj\\.\\* FROM test_object testObj WHERE \\(testObj.field(1|2) LIKE :filterParam0 ESCAPE '§' " +
+                        "OR testObj.field(1|2) LIKE :filterParam1 ESCAPE '§' " +
+                        "OR testObj.field(1|2) LIKE :filterParam2 ESCAPE '§' " +
+                        "OR testObj.field(1|2) LIKE :filterParam3 ESCAPE '§'\\)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("toto%", "% toto%", "toto%", "% toto%");
     }
 
     private Set<String> aSet(String... fields) {
@@ -185,17 +200,19 @@ public class QueryBuilderTest {
                 false);
         //then
         assertThat(queryBuilder.getQuery()).isEqualTo(
-                "SELECT testObj.* FROM test_object testObj WHERE (testObj.field1 = 'tata') AND (testObj.field2 LIKE 'toto%' ESCAPE '§')");
+                "SELECT testObj.* FROM test_object testObj WHERE (testObj.field1 = :filterParam0) AND (testObj.field2 LIKE :filterParam1 ESCAPE '§')");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("tata", "toto%");
     }
 
     @Test
-    public void should_escape_special_chars_with_escape_character_in_filters() throws Exception {
+    public void should_not_escape_values_of_filters() throws Exception {
         //given
         QueryBuilder queryBuilder = createQueryBuilder("SELECT testObj.* FROM test_object testObj");
         //when
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "theValue", "the'value%with_special:_§§")), null, false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.theValue = 'the''value%with_special:_§§')");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.theValue = :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("the'value%with_special:_§§");
     }
 
     @Test
@@ -207,7 +224,8 @@ public class QueryBuilderTest {
                 Collections.singletonMap(TestObject.class, aSet("field1"))), false);
         //then
         assertThat(queryBuilder.getQuery())
-                .isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.field1 LIKE 'the''value§%with§_special:§_§§§§%' ESCAPE '§')");
+                .isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.field1 LIKE :filterParam0 ESCAPE '§')");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("the'value§%with§_special:§_§§§§%");
     }
 
     @Test
@@ -218,7 +236,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "age", 25, FilterOperationType.GREATER_OR_EQUALS)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age >= 25)");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age >= :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25);
     }
 
     @Test
@@ -229,7 +248,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "age", 25, FilterOperationType.GREATER)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age > 25)");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age > :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25);
     }
 
     @Test
@@ -240,21 +260,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "age", 25, FilterOperationType.LESS)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age < 25)");
-    }
-
-    @Test
-    public void should_escapeString_escape_quote() {
-        final String s = createBaseQueryBuilder().escapeString("toto'toto");
-
-        assertThat(s).isEqualTo("toto''toto");
-    }
-
-    @Test
-    public void should_escapeString_do_not_escape_like_wildcard() {
-        final String s = createBaseQueryBuilder().escapeString("%to'to%t_oto%");
-
-        assertThat(s).isEqualTo("%to''to%t_oto%");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age < :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25);
     }
 
     private QueryBuilder createBaseQueryBuilder() {
@@ -268,7 +275,7 @@ public class QueryBuilderTest {
 
         assertThat(queryBuilder.toString())
                 .as("query should contains like to check if the field start with foo and if the field contains a word starting by foo")
-                .contains("LIKE 'foo%'").contains("LIKE '% foo%'");
+                .contains("LIKE :filterParam0").contains("LIKE :filterParam1");
     }
 
     @Test
@@ -276,7 +283,7 @@ public class QueryBuilderTest {
         final StringBuilder queryBuilder = new StringBuilder();
         createBaseQueryBuilder().buildLikeClauseForOneFieldOneTerm(queryBuilder, "myField", "foo", false);
 
-        assertThat(queryBuilder.toString()).contains("LIKE 'foo%'").doesNotContain("LIKE '% foo%'");
+        assertThat(queryBuilder.toString()).contains("LIKE :filterParam0").doesNotContain(" OR ");
     }
 
     @Test
@@ -287,7 +294,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "age", 25, FilterOperationType.LESS_OR_EQUALS)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age <= 25)");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age <= :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25);
     }
 
     @Test
@@ -298,7 +306,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "age", 25, FilterOperationType.DIFFERENT)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age != 25)");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age != :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25);
     }
 
     @Test
@@ -309,7 +318,9 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "age", 25, 27)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE ((25 <= testObj.age AND testObj.age <= 27))");
+        assertThat(queryBuilder.getQuery()).isEqualTo(
+                "SELECT testObj.* FROM test_object testObj WHERE ((:filterParam0 <= testObj.age AND testObj.age <= :filterParam1))");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(25, 27);
     }
 
     @Test
@@ -324,7 +335,8 @@ public class QueryBuilderTest {
                 false);
         //then
         assertThat(queryBuilder.getQuery())
-                .isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age in (25,26,27))");
+                .isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age in (:filterParam0))");
+        assertThat(queryBuilder.getParameters()).isEqualTo(Collections.<String, Object> singletonMap("filterParam0", Arrays.asList(25, 26, 27, 27)));
     }
 
     @Test
@@ -342,7 +354,9 @@ public class QueryBuilderTest {
                 false);
         //then
         assertThat(queryBuilder.getQuery())
-                .isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.age = 12 AND  (testObj.lastname = 'john' OR testObj.lastname = 'jack' ))");
+                .isEqualTo(
+                        "SELECT testObj.* FROM test_object testObj WHERE (testObj.age = :filterParam0 AND  (testObj.lastname = :filterParam1 OR testObj.lastname = :filterParam2 ))");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(12, "john", "jack");
     }
 
     @Test
@@ -353,7 +367,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "lastname", "jack", FilterOperationType.LIKE)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.lastname LIKE '%jack%')");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.lastname LIKE :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("%jack%");
     }
 
     @Test
@@ -375,7 +390,8 @@ public class QueryBuilderTest {
         queryBuilder.appendFilters(Collections.singletonList(new FilterOption(TestObject.class, "lastname", TEST_ENUM.TEST1, FilterOperationType.EQUALS)), null,
                 false);
         //then
-        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.lastname = 0)");
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE (testObj.lastname = :filterParam0)");
+        assertThat(queryBuilder.getParameters().values()).containsExactly(0);
     }
 
     @Test(expected = SBonitaReadException.class)
@@ -388,6 +404,121 @@ public class QueryBuilderTest {
         queryBuilder.getQuery();
     }
 
+    @Test
+    public void should_generate_the_same_query_whatever_the_values_of_the_filters() throws Exception {
+        //given
+        final Set<String> queries = new HashSet<>();
+        //when
+        for (int i = 0; i < 50; i++) {
+            QueryBuilder queryBuilder = createQueryBuilder("SELECT testObj.* FROM test_object testObj");
+            FilterOption ids = new FilterOption(TestObject.class, "id");
+            ids.setIn(new ArrayList<Object>(Collections.nCopies(5 + i % 3, (Object) (long) i)));
+            ids.setFilterOperationType(FilterOperationType.IN);
+            queryBuilder.appendFilters(Arrays.asList(new FilterOption(TestObject.class, "lastname", "name" + i), ids),
+                    new SearchFields(Collections.singletonList("term" + i),
+                            Collections.<Class<? extends PersistentObject>, Set<String>> singletonMap(TestObject.class, aSet("field1"))),
+                    false);
+            queries.add(queryBuilder.getQuery());
+        }
+        //then
+        assertThat(queries).hasSize(1);
+    }
+
+    @Test
+    public void should_pad_in_list_to_next_power_of_two() throws Exception {
+        assertThat(QueryBuilder.padInList(new ArrayList<Object>(Arrays.asList(1)))).containsExactly(1);
+        assertThat(QueryBuilder.padInList(new ArrayList<Object>(Arrays.asList(1, 2)))).containsExactly(1, 2);
+        assertThat(QueryBuilder.padInList(new ArrayList<Object>(Arrays.asList(1, 2, 3)))).containsExactly(1, 2, 3, 3);
+        assertThat(QueryBuilder.padInList(new ArrayList<Object>(Arrays.asList(1, 2, 3, 4, 5)))).hasSize(8);
+        assertThat(QueryBuilder.padInList(new ArrayList<Object>(Collections.nCopies(600, 1)))).hasSize(QueryBuilder.MAX_PADDED_IN_LIST_SIZE);
+        assertThat(QueryBuilder.padInList(new ArrayList<Object>(Collections.nCopies(1001, 1)))).hasSize(1001);
+    }
+
+    @Test
+    public void should_convert_values_to_the_type_of_the_property() throws Exception {
+        assertThat(QueryBuilder.toExpectedType("12", StandardBasicTypes.LONG)).isEqualTo(12L);
+        assertThat(QueryBuilder.toExpectedType(12, StandardBasicTypes.LONG)).isEqualTo(12L);
+        assertThat(QueryBuilder.toExpectedType(12L, StandardBasicTypes.INTEGER)).isEqualTo(12);
+        assertThat(QueryBuilder.toExpectedType(12L, StandardBasicTypes.STRING)).isEqualTo("12");
+        assertThat(QueryBuilder.toExpectedType("abc", StandardBasicTypes.LONG)).isEqualTo("abc");
+        assertThat(QueryBuilder.toExpectedType(12, null)).isEqualTo(12);
+    }
+
+    @Test
+    public void should_bind_values_of_the_filters() throws Exception {
+        //given
+        QueryBuilder queryBuilder = createQueryBuilder("SELECT testObj.* FROM test_object testObj");
+        FilterOption ids = new FilterOption(TestObject.class, "id");
+        ids.setIn(Arrays.asList(1L, 2L, 3L));
+        ids.setFilterOperationType(FilterOperationType.IN);
+        queryBuilder.appendFilters(Arrays.asList(new FilterOption(TestObject.class, "lastname", "John"), ids), null, false);
+        final Query query = mock(Query.class);
+        //when
+        queryBuilder.setParameters(query);
+        //then
+        verify(query).setParameter("filterParam0", "John", StandardBasicTypes.STRING);
+        verify(query).setParameterList("filterParam1", Arrays.asList(1L, 2L, 3L, 3L), StandardBasicTypes.LONG);
+    }
+
+    @Test
+    public void should_generate_query_starting_after_the_given_values() throws Exception {
+        //given
+        QueryBuilder queryBuilder = createQueryBuilder("SELECT testObj.* FROM test_object testObj");
+        final List<OrderByOption> orderBy = Collections.singletonList(new OrderByOption(TestObject.class, "lastName", OrderByType.ASC));
+        //when
+        queryBuilder.appendAfterClause(orderBy, TestObject.class, Arrays.<Object> asList("Doe", 12L));
+        queryBuilder.appendOrderByClause(orderBy, TestObject.class);
+        //then
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE ((testObj.lastName > :filterParam0)"
+                + " OR (testObj.lastName = :filterParam1 AND testObj.id > :filterParam2)) ORDER BY testObj.lastName ASC,testObj.id ASC");
+        assertThat(queryBuilder.getParameters().values()).containsExactly("Doe", "Doe", 12L);
+    }
+
+    @Test
+    public void should_include_null_values_after_the_given_values_when_nulls_are_last() throws Exception {
+        //given
+        QueryBuilder queryBuilder = new HQLQueryBuilder("SELECT testObj.* FROM test_object testObj WHERE testObj.age > 18", Vendor.POSTGRES,
+                new DefaultOrderByBuilder(), classAliasMappings, interfaceToClassMapping, LIKE_ESCAPE_CHARACTER);
+        //when
+        queryBuilder.appendAfterClause(Collections.singletonList(new OrderByOption(TestObject.class, "lastName", OrderByType.ASC)), TestObject.class,
+                Arrays.<Object> asList("Doe", 12L));
+        //then
+        assertThat(queryBuilder.getQuery()).isEqualTo("SELECT testObj.* FROM test_object testObj WHERE testObj.age > 18"
+                + " AND (((testObj.lastName > :filterParam0 OR testObj.lastName IS NULL))"
+                + " OR (testObj.lastName = :filterParam1 AND testObj.id > :filterParam2))");
+    }
+
+    @Test
+    public void should_only_compare_next_keys_when_the_given_value_is_null_and_nulls_are_last() throws Exception {
+        //given
+        QueryBuilder queryBuilder = createQueryBuilder("SELECT testObj.* FROM test_object testObj");
+        //when
+        queryBuilder.appendAfterClause(Collections.singletonList(new OrderByOption(TestObject.class, "lastName", OrderByType.ASC_NULLS_LAST)),
+                TestObject.class, Arrays.<Object> asList(null, 12L));
+        //then
+        assertThat(queryBuilder.getQuery()).isEqualTo(
+                "SELECT testObj.* FROM test_object testObj WHERE ((testObj.lastName IS NULL AND testObj.id > :filterParam0))");
+    }
+
+    @Test
+    public void should_order_by_id_after_source_object_id_when_starting_after_given_values() throws Exception {
+        //given
+        QueryBuilder queryBuilder = createQueryBuilder("SELECT testObj.* FROM test_object testObj");
+        final List<OrderByOption> orderBy = Collections.singletonList(new OrderByOption(TestObject.class, "sourceObjectId", OrderByType.ASC));
+        //when
+        queryBuilder.appendAfterClause(orderBy, TestObject.class, Arrays.<Object> asList(5L, 12L));
+        queryBuilder.appendOrderByClause(orderBy, TestObject.class);
+        //then
+        assertThat(queryBuilder.getQuery()).endsWith(" ORDER BY testObj.sourceObjectId ASC,testObj.id ASC");
+    }
+
+    @Test(expected = SBonitaReadException.class)
+    public void should_fail_when_given_values_do_not_match_the_order() throws Exception {
+        createQueryBuilder("SELECT testObj.* FROM test_object testObj").appendAfterClause(
+                Collections.singletonList(new OrderByOption(TestObject.class, "lastName", OrderByType.ASC)), TestObject.class,
+                Collections.<Object> singletonList(12L));
+    }
+
     private enum TEST_ENUM implements EnumToObjectConvertible {
         TEST1;
 
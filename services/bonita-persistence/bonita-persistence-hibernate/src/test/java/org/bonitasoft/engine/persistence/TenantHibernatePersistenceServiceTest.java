@@ -13,10 +13,14 @@
  **/
 package org.bonitasoft.engine.persistence;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.*;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -34,9 +38,11 @@ import org.hibernate.cfg.Configuration;
 import org.hibernate.mapping.PersistentClass;
 import org.hibernate.mapping.RootClass;
 import org.hibernate.stat.Statistics;
+import org.hibernate.type.StandardBasicTypes;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -213,6 +219,51 @@ public class TenantHibernatePersistenceServiceTest {
         tenantHibernatePersistenceService.selectList(selectDescriptor);
     }
 
+    @Test
+    public void insertInBatch_should_reserve_ids_by_class_and_save_entities_class_after_class() throws Exception {
+        // Given
+        tenantHibernatePersistenceService = spy(new TenantHibernatePersistenceService(name, sessionAccessor, hbmConfigurationProvider, null,
+                likeEscapeCharacter, logger, sequenceManager, datasource, enableWordSearch, wordSearchExclusionMappings));
+        doNothing().when(tenantHibernatePersistenceService).checkClassMapping(any(Class.class));
+        doReturn(new long[] { 5L, 6L }).when(sequenceManager).getNextIds(Book.class.getName(), 0L, 2);
+        doReturn(new long[] { 7L }).when(sequenceManager).getNextIds(TestObject.class.getName(), 0L, 1);
+        final Book book1 = new Book();
+        final TestObject testObject = new TestObject();
+        final Book book2 = new Book();
+        book2.setId(0);
+
+        // When
+        tenantHibernatePersistenceService.insertInBatch(Arrays.<PersistentObject> asList(book1, testObject, book2));
+
+        // Then
+        assertThat(book1.getId()).isEqualTo(5L);
+        assertThat(book2.getId()).isEqualTo(6L);
+        final InOrder inOrder = inOrder(session);
+        inOrder.verify(session).save(book1);
+        inOrder.verify(session).save(book2);
+        inOrder.verify(session).save(testObject);
+        verify(sequenceManager, never()).getNextId(anyString(), anyLong());
+    }
+
+    @Test
+    public void deleteByTenant_should_bind_the_values_of_the_filters() throws Exception {
+        // Given
+        doReturn(Collections.singletonMap(Book.class.getName(), "book")).when(hbmConfigurationProvider).getClassAliasMappings();
+        doReturn(Collections.singletonMap(Book.class.getName(), Book.class)).when(hbmConfigurationProvider).getInterfaceToClassMapping();
+        tenantHibernatePersistenceService = new TenantHibernatePersistenceService(name, sessionAccessor, hbmConfigurationProvider, null,
+                likeEscapeCharacter, logger, sequenceManager, datasource, enableWordSearch, wordSearchExclusionMappings);
+        final Query query = mock(Query.class);
+        doReturn(query).when(session).createQuery(anyString());
+
+        // When
+        tenantHibernatePersistenceService.deleteByTenant(Book.class, Arrays.asList(new FilterOption(Book.class, "author", "Paul")));
+
+        // Then
+        verify(session).createQuery("DELETE FROM " + Book.class.getCanonicalName() + " book WHERE tenantId= :tenantId AND (book.author = :filterParam0)");
+        verify(query).setParameter("filterParam0", "Paul", StandardBasicTypes.STRING);
+        verify(query).executeUpdate();
+    }
+
     private void buildQueryWithoutOrderByClause() {
         final Query query = mock(Query.class);
         doReturn("").when(query).getQueryString();
@@ -37,6 +37,11 @@ public class QueryOptions implements Serializable {
 
     private final List<OrderByOption> orderByOptions;
 
+    /**
+     * values of the order by fields, followed by the id when not ordered by id, of the element after which the results start
+     */
+    private final List<Object> afterValues;
+
     public static final int UNLIMITED_NUMBER_OF_RESULTS = Integer.MAX_VALUE;
 
     private static final QueryOptions ALL_RESULTS_QUERY_OPTIONS = new QueryOptions(0, UNLIMITED_NUMBER_OF_RESULTS);
@@ -48,6 +53,7 @@ public class QueryOptions implements Serializable {
         orderByOptions = queryOptions.getOrderByOptions();
         filters = queryOptions.getFilters();
         multipleFilter = queryOptions.getMultipleFilter();
+        afterValues = queryOptions.getAfterValues();
     }
 
     /**
@@ -60,6 +66,7 @@ public class QueryOptions implements Serializable {
         orderByOptions = Collections.emptyList();
         filters = Collections.emptyList();
         multipleFilter = null;
+        afterValues = null;
     }
 
     public QueryOptions(final int fromIndex, final int numberOfResults, final List<OrderByOption> orderByOptions) {
@@ -69,6 +76,7 @@ public class QueryOptions implements Serializable {
         this.orderByOptions = orderByOptions;
         filters = Collections.emptyList();
         multipleFilter = null;
+        afterValues = null;
     }
 
     public QueryOptions(final int fromIndex, final int numberOfResults, final List<OrderByOption> orderByOptions, final List<FilterOption> filters,
@@ -79,6 +87,22 @@ public class QueryOptions implements Serializable {
         this.orderByOptions = orderByOptions;
         this.filters = filters;
         this.multipleFilter = multipleFilter;
+        afterValues = null;
+    }
+
+    /**
+     * Results start after the element having the given values for the order by fields, instead of skipping a number of elements. The values are the
+     * ones of the order by options, followed by the one of the id when the results are not ordered by id.
+     */
+    public QueryOptions(final int numberOfResults, final List<OrderByOption> orderByOptions, final List<FilterOption> filters,
+            final SearchFields multipleFilter, final List<Object> afterValues) {
+        super();
+        fromIndex = 0;
+        this.numberOfResults = numberOfResults;
+        this.orderByOptions = orderByOptions;
+        this.filters = filters;
+        this.multipleFilter = multipleFilter;
+        this.afterValues = afterValues;
     }
 
     /**
@@ -101,6 +125,7 @@ public class QueryOptions implements Serializable {
         }
         filters = Collections.emptyList();
         multipleFilter = null;
+        afterValues = null;
     }
 
     @Deprecated
@@ -111,6 +136,7 @@ public class QueryOptions implements Serializable {
         this.orderByOptions = orderByOptions;
         filters = Collections.emptyList();
         multipleFilter = null;
+        afterValues = null;
     }
 
     @Deprecated
@@ -122,6 +148,7 @@ public class QueryOptions implements Serializable {
         orderByOptions.add(new OrderByOption(clazz, fieldName, orderByType));
         filters = Collections.emptyList();
         multipleFilter = null;
+        afterValues = null;
     }
 
     public int getFromIndex() {
@@ -144,6 +171,14 @@ public class QueryOptions implements Serializable {
         return orderByOptions;
     }
 
+    public List<Object> getAfterValues() {
+        return afterValues;
+    }
+
+    public boolean hasAfterValues() {
+        return afterValues != null && !afterValues.isEmpty();
+    }
+
     public boolean hasOrderByOptions() {
         return orderByOptions != null && !orderByOptions.isEmpty();
     }
@@ -162,7 +197,8 @@ public class QueryOptions implements Serializable {
 
     @Override
     public String toString() {
-        return "QueryOptions [fromIndex=" + fromIndex + ", numberOfResults=" + numberOfResults + ", orderByOptions=" + orderByOptions + "]";
+        return "QueryOptions [fromIndex=" + fromIndex + ", numberOfResults=" + numberOfResults + ", orderByOptions=" + orderByOptions + ", afterValues="
+                + afterValues + "]";
     }
 
     public boolean hasAFilter() {
@@ -195,6 +231,9 @@ public class QueryOptions implements Serializable {
         if (orderByOptions != null ? !orderByOptions.equals(that.orderByOptions) : that.orderByOptions != null) {
             return false;
         }
+        if (afterValues != null ? !afterValues.equals(that.afterValues) : that.afterValues != null) {
+            return false;
+        }
 
         return true;
     }
@@ -206,6 +245,7 @@ public class QueryOptions implements Serializable {
         result = 31 * result + (filters != null ? filters.hashCode() : 0);
         result = 31 * result + (multipleFilter != null ? multipleFilter.hashCode() : 0);
         result = 31 * result + (orderByOptions != null ? orderByOptions.hashCode() : 0);
+        result = 31 * result + (afterValues != null ? afterValues.hashCode() : 0);
         return result;
     }
 }
@@ -51,6 +51,10 @@ public class SelectListDescriptor<T> extends AbstractSelectWithParametersDescrip
         return queryOptions.hasOrderByOptions();
     }
 
+    public boolean hasAfterValues() {
+        return queryOptions.hasAfterValues();
+    }
+
     public int getStartIndex() {
         return queryOptions.getFromIndex();
     }
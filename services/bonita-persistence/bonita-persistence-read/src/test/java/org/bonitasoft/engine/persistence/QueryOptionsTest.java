@@ -63,6 +63,21 @@ public class QueryOptionsTest {
         assertThat(nextPage.getMultipleFilter()).isNotNull();
     }
 
+    @Test
+    public void copyShouldPreserveAfterValues() throws Exception {
+        // given:
+        final QueryOptions queryOptions = new QueryOptions(10, list(new OrderByOption(PersistentObject.class, "fieldName", OrderByType.ASC)),
+                list(new FilterOption(PersistentObject.class, "fieldName")), null, Arrays.<Object> asList("value", 12L));
+
+        // when:
+        final QueryOptions copy = new QueryOptions(queryOptions);
+
+        // then:
+        assertThat(copy.getFromIndex()).isEqualTo(0);
+        assertThat(copy.hasAfterValues()).isTrue();
+        assertThat(copy).isEqualTo(queryOptions);
+    }
+
     private List list(final Object o) {
         return Arrays.asList(o);
     }
@@ -28,6 +28,21 @@ public interface SequenceManager {
 
     long getNextId(String entityName, long tenantId) throws SObjectNotFoundException, SObjectModificationException;
 
+    /**
+     * Reserve a block of ids for entities of the same class, e.g. before inserting them in batch.
+     *
+     * @return <code>count</code> increasing ids
+     */
+    long[] getNextIds(String entityName, long tenantId, int count) throws SObjectNotFoundException, SObjectModificationException;
+
+    /**
+     * Reserve a block of contiguous ids for entities of the same class, e.g. before inserting them with a single statement.
+     *
+     * @return the first id of the block, the block ends at <code>firstId + count - 1</code>
+     * @since 7.5.3
+     */
+    long getIdBlock(String entityName, long tenantId, int count) throws SObjectNotFoundException, SObjectModificationException;
+
     /**
      * clear all in memory sequence
      */
@@ -16,18 +16,28 @@ package org.bonitasoft.engine.sequence;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
+import org.bonitasoft.engine.commons.PlatformLifecycleService;
 import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.lock.LockService;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.tracking.TimeTracker;
 
 /**
  * @author Charles Souillard
  * @author Matthieu Chaffotte
  * @author Baptiste Mesta
  */
-public class SequenceManagerImpl implements SequenceManager {
+public class SequenceManagerImpl implements SequenceManager, PlatformLifecycleService {
 
     private final SequenceMappingProvider sequenceMappingProvider;
 
@@ -43,17 +53,120 @@ public class SequenceManagerImpl implements SequenceManager {
 
     private final Map<Long, TenantSequenceManagerImpl> sequenceManagers = new HashMap<Long, TenantSequenceManagerImpl>();
 
+    private final Map<Long, TimeTracker> timeTrackers = new ConcurrentHashMap<>();
+
+    private final Executor prefetchExecutor;
+
+    private final boolean prefetch;
+
+    // threads reserving ranges in background, only running between start and stop of the node
+    private volatile ExecutorService prefetchThreads;
+
+    private final int maxRangeSizeFactor;
+
+    private final TechnicalLoggerService logger;
+
     private final Object mutex = new SequenceManagerImplMutex();
 
     public SequenceManagerImpl(final LockService lockService,
             final SequenceMappingProvider sequenceMappingProvider,
             final DataSource datasource, final int retries, final int delay, final int delayFactor) {
+        this(lockService, sequenceMappingProvider, datasource, retries, delay, delayFactor, null, 1, false, null);
+    }
+
+    /**
+     * @param prefetch true to reserve the next range of ids of a sequence in background before the current one is exhausted
+     * @param maxRangeSizeFactor maximum factor applied to the configured range size of a sequence when its ranges are consumed quickly, 1 to keep
+     *        range sizes fixed
+     * @param logger logs the failures to reserve a range of ids
+     */
+    public SequenceManagerImpl(final LockService lockService, final SequenceMappingProvider sequenceMappingProvider, final DataSource datasource,
+            final int retries, final int delay, final int delayFactor, final boolean prefetch, final int maxRangeSizeFactor,
+            final TechnicalLoggerService logger) {
+        this(lockService, sequenceMappingProvider, datasource, retries, delay, delayFactor, null, maxRangeSizeFactor, prefetch, logger);
+    }
+
+    SequenceManagerImpl(final LockService lockService, final SequenceMappingProvider sequenceMappingProvider, final DataSource datasource,
+            final int retries, final int delay, final int delayFactor, final Executor prefetchExecutor, final int maxRangeSizeFactor,
+            final TechnicalLoggerService logger) {
+        this(lockService, sequenceMappingProvider, datasource, retries, delay, delayFactor, prefetchExecutor, maxRangeSizeFactor, false, logger);
+    }
+
+    private SequenceManagerImpl(final LockService lockService, final SequenceMappingProvider sequenceMappingProvider, final DataSource datasource,
+            final int retries, final int delay, final int delayFactor, final Executor prefetchExecutor, final int maxRangeSizeFactor,
+            final boolean prefetch, final TechnicalLoggerService logger) {
         this.lockService = lockService;
+        this.logger = logger;
+        this.prefetch = prefetch;
         this.sequenceMappingProvider = sequenceMappingProvider;
         this.retries = retries;
         this.delay = delay;
         this.delayFactor = delayFactor;
         this.datasource = datasource;
+        this.prefetchExecutor = prefetch ? new Executor() {
+
+            @Override
+            public void execute(final Runnable task) {
+                final ExecutorService threads = prefetchThreads;
+                if (threads == null) {
+                    // not started: tenant sequence managers then reserve their ranges when they need them
+                    throw new RejectedExecutionException("The sequence manager is stopped");
+                }
+                threads.execute(task);
+            }
+        } : prefetchExecutor;
+        this.maxRangeSizeFactor = maxRangeSizeFactor;
+    }
+
+    private static ExecutorService createPrefetchExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "Bonita-SequencePrefetch-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Set the time tracker of the tenant, used to track the time spent waiting for new ranges of ids
+     */
+    public void setTimeTracker(final long tenantId, final TimeTracker timeTracker) {
+        timeTrackers.put(tenantId, timeTracker);
+        final TenantSequenceManagerImpl mgr = sequenceManagers.get(tenantId);
+        if (mgr != null) {
+            mgr.setTimeTracker(timeTracker);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (prefetch && prefetchThreads == null) {
+            prefetchThreads = createPrefetchExecutor();
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (prefetchThreads != null) {
+            // ranges being reserved are kept, no new prefetch is started
+            prefetchThreads.shutdown();
+            prefetchThreads = null;
+        }
+    }
+
+    @Override
+    public void pause() {
+        // ranges are shared by all tenants: prefetching goes on while a tenant is paused
+    }
+
+    @Override
+    public void resume() {
+        // nothing to do
     }
 
     private static final class SequenceManagerImplMutex {
@@ -67,18 +180,33 @@ public class SequenceManagerImpl implements SequenceManager {
 
     @Override
     public long getNextId(final String entityName, final long tenantId) throws SObjectNotFoundException {
+        return getTenantSequenceManager(tenantId).getNextId(entityName);
+    }
+
+    @Override
+    public long[] getNextIds(final String entityName, final long tenantId, final int count) throws SObjectNotFoundException {
+        return getTenantSequenceManager(tenantId).getNextIds(entityName, count);
+    }
+
+    @Override
+    public long getIdBlock(final String entityName, final long tenantId, final int count) throws SObjectNotFoundException {
+        return getTenantSequenceManager(tenantId).getIdBlock(entityName, count);
+    }
+
+    private TenantSequenceManagerImpl getTenantSequenceManager(final long tenantId) {
         TenantSequenceManagerImpl mgr = this.sequenceManagers.get(tenantId);
         if (mgr == null) {
             synchronized (mutex) {
                 mgr = this.sequenceManagers.get(tenantId);
                 if (mgr == null) {
                     mgr = new TenantSequenceManagerImpl(tenantId, lockService, getSequenceIdToRangeSizeMap(), getClassNameToSequenceIdMap(), datasource, retries, delay,
-                            delayFactor);
+                            delayFactor, prefetchExecutor, maxRangeSizeFactor, logger);
+                    mgr.setTimeTracker(timeTrackers.get(tenantId));
                     this.sequenceManagers.put(tenantId, mgr);
                 }
             }
         }
-        return mgr.getNextId(entityName);
+        return mgr;
     }
 
     @Override
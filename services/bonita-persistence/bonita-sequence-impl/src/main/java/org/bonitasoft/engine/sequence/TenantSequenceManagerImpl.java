@@ -19,6 +19,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.sql.DataSource;
 
@@ -26,8 +28,19 @@ import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.lock.BonitaLock;
 import org.bonitasoft.engine.lock.LockService;
 import org.bonitasoft.engine.lock.SLockException;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.tracking.TimeTracker;
+import org.bonitasoft.engine.tracking.TimeTrackerRecords;
 
 /**
+ * Gives ids of the sequences of a tenant, reserving them by ranges in database.
+ * <p>
+ * When a prefetch executor is given, the next range of a sequence is reserved in background as soon as the current one falls below
+ * {@link #PREFETCH_LOW_WATER_MARK_PERCENT} percent of its size, so that threads asking for ids do not wait for the database. When
+ * <code>maxRangeSizeFactor</code> is greater than 1, the size of the ranges of a sequence grows (up to this factor of the configured size) while they are
+ * consumed in less than half of {@link #TARGET_RANGE_DURATION_MILLIS}, and shrinks back while they last more than twice this time.
+ *
  * @author Charles Souillard
  * @author Matthieu Chaffotte
  * @author Baptiste Mesta
@@ -42,18 +55,14 @@ public class TenantSequenceManagerImpl {
 
     static final String UPDATE_SEQUENCE = "UPDATE sequence SET nextId = ? WHERE tenantid = ? AND id = ?";
 
-    private final Long tenantId;
-
-    private final Map<Long, Integer> sequenceIdToRangeSize;
+    static final int PREFETCH_LOW_WATER_MARK_PERCENT = 25;
 
-    // Map of available IDs: key=sequenceId, value = nextAvailableId to be assigned to a new entity of the given sequence
-    private final Map<Long, Long> nextAvailableIds = new HashMap<Long, Long>();
+    static final long TARGET_RANGE_DURATION_MILLIS = 5000;
 
-    // Map of lastId that can be consumed for a given sequence
-    private final Map<Long, Long> lastIdInRanges = new HashMap<Long, Long>();
+    private final Long tenantId;
 
-    // Map of sequenceId, mutex
-    private static final Map<Long, Object> SEQUENCE_MUTEXS = new HashMap<Long, Object>();
+    // immutable after construction: sequence states are guarded by their own monitor
+    private final Map<Long, SequenceState> sequences = new HashMap<>();
 
     private final Map<String, Long> classNameToSequenceId;
 
@@ -67,27 +76,48 @@ public class TenantSequenceManagerImpl {
 
     private final LockService lockService;
 
+    private final Executor prefetchExecutor;
+
+    private final int maxRangeSizeFactor;
+
+    private final TechnicalLoggerService logger;
+
+    private volatile TimeTracker timeTracker;
+
     public TenantSequenceManagerImpl(final long tenantId, final LockService lockService, final Map<Long, Integer> sequenceIdToRangeSize,
             final Map<String, Long> classNameToSequenceId,
             final DataSource datasource, final int retries, final int delay, final int delayFactor) {
+        this(tenantId, lockService, sequenceIdToRangeSize, classNameToSequenceId, datasource, retries, delay, delayFactor, null, 1, null);
+    }
+
+    /**
+     * @param prefetchExecutor executor used to reserve the next range of a sequence in background, or null to reserve ranges only when they are needed
+     * @param maxRangeSizeFactor maximum factor applied to the configured range size of a sequence when it is consumed quickly, 1 to keep it fixed
+     * @param logger logs the failures to reserve a range of ids, may be null
+     */
+    public TenantSequenceManagerImpl(final long tenantId, final LockService lockService, final Map<Long, Integer> sequenceIdToRangeSize,
+            final Map<String, Long> classNameToSequenceId, final DataSource datasource, final int retries, final int delay, final int delayFactor,
+            final Executor prefetchExecutor, final int maxRangeSizeFactor, final TechnicalLoggerService logger) {
         this.tenantId = tenantId;
         this.lockService = lockService;
-        this.sequenceIdToRangeSize = sequenceIdToRangeSize;
         this.classNameToSequenceId = classNameToSequenceId;
         this.retries = retries;
         this.delay = delay;
         this.delayFactor = delayFactor;
         this.datasource = datasource;
+        this.prefetchExecutor = prefetchExecutor;
+        this.maxRangeSizeFactor = Math.max(1, maxRangeSizeFactor);
+        this.logger = logger;
 
         for (final Long sequenceId : classNameToSequenceId.values()) {
-            SEQUENCE_MUTEXS.put(sequenceId, new TenantSequenceManagerImplMutex());
-            nextAvailableIds.put(sequenceId, 0L);
-            lastIdInRanges.put(sequenceId, -1L);
+            if (!sequences.containsKey(sequenceId)) {
+                sequences.put(sequenceId, new SequenceState(sequenceId, sequenceIdToRangeSize.get(sequenceId)));
+            }
         }
     }
 
-    private static final class TenantSequenceManagerImplMutex {
-
+    void setTimeTracker(final TimeTracker timeTracker) {
+        this.timeTracker = timeTracker;
     }
 
     public long getNextId(final String entityName) throws SObjectNotFoundException {
@@ -95,22 +125,169 @@ public class TenantSequenceManagerImpl {
         if (sequenceId == null) {
             throw new SObjectNotFoundException("No sequence id found for " + entityName);
         }
-        final Object sequenceMutex = SEQUENCE_MUTEXS.get(sequenceId);
-        synchronized (sequenceMutex) {
-            Long nextAvailableId = nextAvailableIds.get(sequenceId);
-            final Long lastIdInRange = lastIdInRanges.get(sequenceId);
-            if (nextAvailableId > lastIdInRange) {
-                // No available IF in the range this sequence can consume, we need to get a new range and calculate a new nextAvailableId
-                setNewRange(sequenceId);
-                nextAvailableId = nextAvailableIds.get(sequenceId);
+        final SequenceState sequence = sequences.get(sequenceId);
+        synchronized (sequence) {
+            if (sequence.nextAvailableId > sequence.lastIdInRange) {
+                // No available ID in the range this sequence can consume, we need to get a new range and calculate a new nextAvailableId
+                switchToNextRange(sequence);
+            }
+            final long nextAvailableId = sequence.nextAvailableId++;
+            if (prefetchExecutor != null && sequence.shouldPrefetch()) {
+                startPrefetch(sequence);
             }
-            nextAvailableIds.put(sequenceId, nextAvailableId + 1);
-
             return nextAvailableId;
         }
     }
 
-    private void setNewRange(final long sequenceId) throws SObjectNotFoundException {
+    /**
+     * Reserve several ids of a sequence at once, holding its monitor only once. The ids are increasing but not necessarily contiguous when the current range
+     * is exhausted in the middle of the block.
+     */
+    public long[] getNextIds(final String entityName, final int count) throws SObjectNotFoundException {
+        final Long sequenceId = classNameToSequenceId.get(entityName);
+        if (sequenceId == null) {
+            throw new SObjectNotFoundException("No sequence id found for " + entityName);
+        }
+        final long[] ids = new long[count];
+        final SequenceState sequence = sequences.get(sequenceId);
+        synchronized (sequence) {
+            int index = 0;
+            while (index < count) {
+                if (sequence.nextAvailableId > sequence.lastIdInRange) {
+                    switchToNextRange(sequence);
+                }
+                while (index < count && sequence.nextAvailableId <= sequence.lastIdInRange) {
+                    ids[index++] = sequence.nextAvailableId++;
+                }
+            }
+            if (prefetchExecutor != null && sequence.shouldPrefetch()) {
+                startPrefetch(sequence);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Reserve several contiguous ids of a sequence. They are taken from the current range when it has enough ids left, otherwise a dedicated range of
+     * exactly <code>count</code> ids is reserved in database and the current range is kept for the next callers.
+     *
+     * @return the first id of the block
+     */
+    public long getIdBlock(final String entityName, final int count) throws SObjectNotFoundException {
+        final Long sequenceId = classNameToSequenceId.get(entityName);
+        if (sequenceId == null) {
+            throw new SObjectNotFoundException("No sequence id found for " + entityName);
+        }
+        final SequenceState sequence = sequences.get(sequenceId);
+        synchronized (sequence) {
+            if (sequence.lastIdInRange - sequence.nextAvailableId + 1 >= count) {
+                final long firstId = sequence.nextAvailableId;
+                sequence.nextAvailableId += count;
+                if (prefetchExecutor != null && sequence.shouldPrefetch()) {
+                    startPrefetch(sequence);
+                }
+                return firstId;
+            }
+        }
+        return allocateRange(sequenceId, count);
+    }
+
+    private void switchToNextRange(final SequenceState sequence) throws SObjectNotFoundException {
+        final long startTime = System.currentTimeMillis();
+        final boolean stalled = !sequence.hasPrefetchedRange;
+        if (stalled) {
+            waitForPrefetch(sequence);
+            if (sequence.nextAvailableId <= sequence.lastIdInRange) {
+                // the monitor was released while waiting: another thread already switched to the prefetched range
+                trackStall(sequence, System.currentTimeMillis() - startTime);
+                return;
+            }
+        }
+        if (maxRangeSizeFactor > 1 && sequence.rangeStartTime > 0) {
+            adaptRangeSize(sequence, startTime - sequence.rangeStartTime);
+        }
+        if (!sequence.hasPrefetchedRange) {
+            sequence.setPrefetchedRange(allocateRange(sequence.sequenceId, sequence.rangeSize), sequence.rangeSize);
+        }
+        if (stalled) {
+            trackStall(sequence, System.currentTimeMillis() - startTime);
+        }
+        final long now = System.currentTimeMillis();
+        sequence.nextAvailableId = sequence.prefetchedFirstId;
+        sequence.lastIdInRange = sequence.prefetchedFirstId + sequence.prefetchedRangeSize - 1;
+        sequence.hasPrefetchedRange = false;
+        sequence.rangeStartTime = now;
+    }
+
+    private void adaptRangeSize(final SequenceState sequence, final long rangeDuration) {
+        if (rangeDuration < TARGET_RANGE_DURATION_MILLIS / 2) {
+            sequence.rangeSize = (int) Math.min((long) sequence.rangeSize * 2, (long) sequence.configuredRangeSize * maxRangeSizeFactor);
+        } else if (rangeDuration > TARGET_RANGE_DURATION_MILLIS * 2) {
+            sequence.rangeSize = Math.max(sequence.rangeSize / 2, sequence.configuredRangeSize);
+        }
+    }
+
+    private void waitForPrefetch(final SequenceState sequence) throws SObjectNotFoundException {
+        while (sequence.prefetching) {
+            try {
+                sequence.wait();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SObjectNotFoundException("Interrupted while waiting for a new range of ids for sequence " + sequence.sequenceId, e);
+            }
+        }
+    }
+
+    private void startPrefetch(final SequenceState sequence) {
+        sequence.prefetching = true;
+        final int rangeSize = sequence.rangeSize;
+        try {
+            prefetchExecutor.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    prefetch(sequence, rangeSize);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // the range will be reserved when needed
+            sequence.prefetching = false;
+        }
+    }
+
+    private void prefetch(final SequenceState sequence, final int rangeSize) {
+        long firstId = 0;
+        boolean allocated = false;
+        try {
+            firstId = allocateRange(sequence.sequenceId, rangeSize);
+            allocated = true;
+        } catch (final SObjectNotFoundException | RuntimeException e) {
+            // the range is reserved again when the current one is exhausted, and the error is then thrown to the caller
+            log(TechnicalLogSeverity.WARNING, "Unable to reserve in background the next range of ids of sequence " + sequence.sequenceId + " of tenant "
+                    + tenantId + ", it will be reserved when needed", e);
+        } finally {
+            synchronized (sequence) {
+                if (allocated) {
+                    sequence.setPrefetchedRange(firstId, rangeSize);
+                }
+                sequence.prefetching = false;
+                sequence.notifyAll();
+            }
+        }
+    }
+
+    private void trackStall(final SequenceState sequence, final long duration) {
+        final TimeTracker currentTimeTracker = timeTracker;
+        if (currentTimeTracker != null && currentTimeTracker.isTrackable(TimeTrackerRecords.SEQUENCE_RANGE_ALLOCATION_STALL)) {
+            currentTimeTracker.track(TimeTrackerRecords.SEQUENCE_RANGE_ALLOCATION_STALL, "sequenceId: " + sequence.sequenceId + " - tenantId: " + tenantId
+                    + " - rangeSize: " + sequence.prefetchedRangeSize, duration);
+        }
+    }
+
+    /**
+     * @return the first id of the reserved range
+     */
+    private long allocateRange(final long sequenceId, final int rangeSize) throws SObjectNotFoundException {
         BonitaLock lock;
         try {
             lock = lockService.lock(sequenceId, SEQUENCE, tenantId);
@@ -121,7 +298,7 @@ public class TenantSequenceManagerImpl {
                 long sleepTime = delay;
                 while (attempt <= retries) {
                     if (attempt > 1) {
-                        System.err.println("retrying... #" + attempt);
+                        log(TechnicalLogSeverity.DEBUG, "Retrying to reserve a range of ids of sequence " + sequenceId + ", attempt #" + attempt, null);
                     }
                     Connection connection = null;
                     try {
@@ -130,22 +307,19 @@ public class TenantSequenceManagerImpl {
 
                         // we have reach the maximum in this range
                         final long nextAvailableId = selectById(connection, sequenceId, tenantId);
-                        nextAvailableIds.put(sequenceId, nextAvailableId);
 
-                        final long nextSequenceId = nextAvailableId + sequenceIdToRangeSize.get(sequenceId);
+                        final long nextSequenceId = nextAvailableId + rangeSize;
                         updateSequence(connection, nextSequenceId, tenantId, sequenceId);
-                        lastIdInRanges.put(sequenceId, nextSequenceId - 1);
 
                         connection.commit();
-                        return;
+                        return nextAvailableId;
                     } catch (final SObjectNotFoundException t) {
                         // Not found needs no retry.
                         attempt = retries + 1; // To exit the loop
                         try {
                             connection.rollback();
                         } catch (final SQLException e) {
-                            e.printStackTrace();
-                            // do nothing
+                            log(TechnicalLogSeverity.WARNING, "Unable to rollback the reservation of a range of ids of sequence " + sequenceId, e);
                         }
                         throw t;
                     } catch (final Exception t) {
@@ -153,10 +327,9 @@ public class TenantSequenceManagerImpl {
                         try {
                             connection.rollback();
                         } catch (final SQLException e) {
-                            e.printStackTrace();
-                            // do nothing
+                            log(TechnicalLogSeverity.WARNING, "Unable to rollback the reservation of a range of ids of sequence " + sequenceId, e);
                         }
-                        manageException(sleepTime, t);
+                        manageException(sequenceId, sleepTime, t);
                         sleepTime *= delayFactor;
                     } finally {
                         if (connection != null) {
@@ -244,14 +417,68 @@ public class TenantSequenceManagerImpl {
         }
     }
 
-    private static void manageException(final long sleepTime, final Exception t) {
-        t.printStackTrace();
-        System.err.println("Optimistic locking failed: " + t);
-        System.err.println("Waiting " + sleepTime + " millis");
+    private void manageException(final long sequenceId, final long sleepTime, final Exception t) {
+        log(TechnicalLogSeverity.WARNING, "Optimistic locking failed while reserving a range of ids of sequence " + sequenceId + ", waiting " + sleepTime
+                + " ms before retrying", t);
         try {
             Thread.sleep(sleepTime);
         } catch (final InterruptedException e) {
-            System.err.println("Retry sleeping got interrupted");
+            Thread.currentThread().interrupt();
+            log(TechnicalLogSeverity.DEBUG, "Retry sleeping got interrupted", null);
+        }
+    }
+
+    private void log(final TechnicalLogSeverity severity, final String message, final Throwable t) {
+        if (logger == null || !logger.isLoggable(getClass(), severity)) {
+            return;
+        }
+        if (t == null) {
+            logger.log(getClass(), severity, message);
+        } else {
+            logger.log(getClass(), severity, message, t);
+        }
+    }
+
+    /**
+     * Ranges of a sequence: must be accessed while holding its monitor
+     */
+    private static final class SequenceState {
+
+        private final long sequenceId;
+
+        private final int configuredRangeSize;
+
+        private int rangeSize;
+
+        private long nextAvailableId = 0;
+
+        private long lastIdInRange = -1;
+
+        private long rangeStartTime;
+
+        private boolean prefetching;
+
+        private boolean hasPrefetchedRange;
+
+        private long prefetchedFirstId;
+
+        private int prefetchedRangeSize;
+
+        private SequenceState(final long sequenceId, final int rangeSize) {
+            this.sequenceId = sequenceId;
+            configuredRangeSize = rangeSize;
+            this.rangeSize = rangeSize;
+        }
+
+        private boolean shouldPrefetch() {
+            return !prefetching && !hasPrefetchedRange
+                    && lastIdInRange - nextAvailableId + 1 <= Math.max(1, (long) rangeSize * PREFETCH_LOW_WATER_MARK_PERCENT / 100);
+        }
+
+        private void setPrefetchedRange(final long firstId, final int rangeSize) {
+            prefetchedFirstId = firstId;
+            prefetchedRangeSize = rangeSize;
+            hasPrefetchedRange = true;
         }
     }
 
@@ -13,12 +13,17 @@
  **/
 package org.bonitasoft.engine.sequence;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -27,8 +32,12 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import javax.sql.DataSource;
 
@@ -36,9 +45,14 @@ import org.bonitasoft.engine.commons.exceptions.SObjectNotFoundException;
 import org.bonitasoft.engine.lock.BonitaLock;
 import org.bonitasoft.engine.lock.LockService;
 import org.bonitasoft.engine.lock.SLockException;
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.bonitasoft.engine.tracking.TimeTracker;
+import org.bonitasoft.engine.tracking.TimeTrackerRecords;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
@@ -76,6 +90,8 @@ public class SequenceManagerImplTest {
 
     private BonitaLock lock;
 
+    private final TechnicalLoggerService logger = mock(TechnicalLoggerService.class);
+
     private static final long TENANTID = 1;
 
     @Before
@@ -109,6 +125,28 @@ public class SequenceManagerImplTest {
         assertEquals(310, sequenceManager.getNextId("myClass", 1));
     }
 
+    @Test
+    public void getNextIds_should_reserve_ids_across_ranges() throws Exception {
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L, 510L);
+
+        assertArrayEquals(new long[] { 110, 111, 112, 310, 311 }, sequenceManager.getNextIds("myClass", 1, 5));
+        assertEquals(312, sequenceManager.getNextId("myClass", 1));
+        assertEquals(510, sequenceManager.getNextId("myClass", 1));
+    }
+
+    @Test
+    public void getIdBlock_should_take_contiguous_ids_from_current_range_or_reserve_a_dedicated_range() throws Exception {
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L, 510L);
+
+        assertEquals(110, sequenceManager.getNextId("myClass", 1));
+        assertEquals(111, sequenceManager.getIdBlock("myClass", 1, 2));
+        assertEquals(310, sequenceManager.getIdBlock("myClass", 1, 5));
+        verify(preparedStatement).setObject(1, 315L);
+        assertEquals(510, sequenceManager.getNextId("myClass", 1));
+    }
+
     @Test
     public void testGetNextIdDatabaseAccessIsInsideLock() throws Exception {
         when(resultSet.next()).thenAnswer(new TrueThenFalse());
@@ -137,4 +175,159 @@ public class SequenceManagerImplTest {
         assertEquals(110, sequenceManager.getNextId("myClass", 1));
     }
 
+    @Test
+    public void should_reserve_next_range_before_current_one_is_exhausted_when_prefetch_is_enabled() throws Exception {
+        final Executor prefetchExecutor = mock(Executor.class);
+        sequenceManager = new SequenceManagerImpl(lockService, sequenceMappingProvider(), datasource, 2, 1, 1, prefetchExecutor, 1, logger);
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L);
+
+        assertEquals(110, sequenceManager.getNextId("myClass", 1));
+        verify(prefetchExecutor, never()).execute(any(Runnable.class));
+        assertEquals(111, sequenceManager.getNextId("myClass", 1));
+
+        final ArgumentCaptor<Runnable> prefetch = ArgumentCaptor.forClass(Runnable.class);
+        verify(prefetchExecutor).execute(prefetch.capture());
+        prefetch.getValue().run();
+        verify(preparedStatement).setObject(1, 313L);
+        assertEquals(112, sequenceManager.getNextId("myClass", 1));
+        assertEquals(310, sequenceManager.getNextId("myClass", 1));
+        verify(lockService, times(2)).lock(anyLong(), anyString(), eq(TENANTID));
+    }
+
+    @Test
+    public void should_reserve_ranges_when_needed_once_stopped() throws Exception {
+        sequenceManager = new SequenceManagerImpl(lockService, sequenceMappingProvider(), datasource, 2, 1, 1, true, 1, logger);
+        sequenceManager.start();
+        sequenceManager.stop();
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L);
+
+        for (int i = 0; i < RANGE_SIZE; i++) {
+            assertEquals(i + 110, sequenceManager.getNextId("myClass", 1));
+        }
+        assertEquals(310, sequenceManager.getNextId("myClass", 1));
+        verify(lockService, times(2)).lock(anyLong(), anyString(), eq(TENANTID));
+    }
+
+    @Test
+    public void should_reserve_range_when_needed_if_prefetch_failed() throws Exception {
+        sequenceManager = new SequenceManagerImpl(lockService, sequenceMappingProvider(), datasource, 1, 1, 1, new DirectExecutor(), 1, logger);
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L).thenThrow(new SQLException("prefetch failed")).thenReturn(310L);
+
+        for (int i = 0; i < RANGE_SIZE; i++) {
+            assertEquals(i + 110, sequenceManager.getNextId("myClass", 1));
+        }
+        assertEquals(310, sequenceManager.getNextId("myClass", 1));
+    }
+
+    @Test
+    public void should_log_prefetch_failures() throws Exception {
+        when(logger.isLoggable(TenantSequenceManagerImpl.class, TechnicalLogSeverity.WARNING)).thenReturn(true);
+        sequenceManager = new SequenceManagerImpl(lockService, sequenceMappingProvider(), datasource, 1, 1, 1, new DirectExecutor(), 1, logger);
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L).thenThrow(new SQLException("prefetch failed")).thenReturn(310L);
+
+        for (int i = 0; i < RANGE_SIZE; i++) {
+            sequenceManager.getNextId("myClass", 1);
+        }
+
+        verify(logger, atLeastOnce()).log(eq(TenantSequenceManagerImpl.class), eq(TechnicalLogSeverity.WARNING), contains("Unable to reserve in background"),
+                any(SObjectNotFoundException.class));
+    }
+
+    @Test
+    public void should_not_reserve_an_extra_range_when_several_threads_wait_for_the_prefetch() throws Exception {
+        final Executor prefetchExecutor = mock(Executor.class);
+        sequenceManager = new SequenceManagerImpl(lockService, sequenceMappingProvider(), datasource, 2, 1, 1, prefetchExecutor, 1, logger);
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L, 510L);
+        for (int i = 0; i < RANGE_SIZE; i++) {
+            sequenceManager.getNextId("myClass", 1);
+        }
+        final ArgumentCaptor<Runnable> prefetch = ArgumentCaptor.forClass(Runnable.class);
+        verify(prefetchExecutor).execute(prefetch.capture());
+        final Map<String, Long> ids = new ConcurrentHashMap<>();
+        final Thread first = startGetNextId("first", ids);
+        final Thread second = startGetNextId("second", ids);
+        awaitWaiting(first);
+        awaitWaiting(second);
+
+        prefetch.getValue().run();
+        first.join(5000);
+        second.join(5000);
+
+        assertEquals(new HashSet<>(Arrays.asList(310L, 311L)), new HashSet<>(ids.values()));
+        verify(lockService, times(2)).lock(anyLong(), anyString(), eq(TENANTID));
+    }
+
+    private Thread startGetNextId(final String name, final Map<String, Long> ids) {
+        final Thread thread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    ids.put(name, sequenceManager.getNextId("myClass", 1));
+                } catch (final SObjectNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, name);
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitWaiting(final Thread thread) throws InterruptedException {
+        final long timeout = System.currentTimeMillis() + 5000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void should_grow_range_size_when_ranges_are_consumed_quickly() throws Exception {
+        sequenceManager = new SequenceManagerImpl(lockService, sequenceMappingProvider(), datasource, 2, 1, 1, null, 4, logger);
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L, 510L);
+
+        for (int i = 0; i < RANGE_SIZE * 3 + 1; i++) {
+            sequenceManager.getNextId("myClass", 1);
+        }
+
+        final InOrder inOrder = inOrder(preparedStatement);
+        inOrder.verify(preparedStatement).setObject(1, 113L);
+        inOrder.verify(preparedStatement).setObject(1, 316L);
+        inOrder.verify(preparedStatement).setObject(1, 522L);
+    }
+
+    @Test
+    public void should_track_time_waiting_for_a_new_range() throws Exception {
+        final TimeTracker timeTracker = mock(TimeTracker.class);
+        when(timeTracker.isTrackable(TimeTrackerRecords.SEQUENCE_RANGE_ALLOCATION_STALL)).thenReturn(true);
+        sequenceManager.setTimeTracker(TENANTID, timeTracker);
+        when(resultSet.next()).thenAnswer(new TrueThenFalse());
+        when(resultSet.getLong(TenantSequenceManagerImpl.NEXTID)).thenReturn(110L, 310L);
+
+        for (int i = 0; i <= RANGE_SIZE; i++) {
+            sequenceManager.getNextId("myClass", TENANTID);
+        }
+
+        verify(timeTracker, times(2)).track(eq(TimeTrackerRecords.SEQUENCE_RANGE_ALLOCATION_STALL), contains("sequenceId: " + SEQUENCE_ID), anyLong());
+    }
+
+    private SequenceMappingProvider sequenceMappingProvider() {
+        final SequenceMappingProvider sequenceMappingProvider = new SequenceMappingProvider();
+        sequenceMappingProvider.setSequenceMappings(Collections.singletonList(new SequenceMapping("myClass", SEQUENCE_ID, RANGE_SIZE)));
+        return sequenceMappingProvider;
+    }
+
+    private static final class DirectExecutor implements Executor {
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    }
+
 }
@@ -13,10 +13,8 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import org.bonitasoft.engine.session.SSessionAlreadyExistsException;
 import org.bonitasoft.engine.session.SSessionNotFoundException;
@@ -24,28 +22,25 @@ import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.SSession;
 
 /**
+ * Sessions are kept in a concurrent map: reads and renewals do not lock the provider.
+ *
  * @author Baptiste Mesta
  * 
  */
 public abstract class AbstractSessionProvider implements SessionProvider {
 
-    protected abstract Map<Long, SSession> getSessions();
-
-    protected SSession putSession(final SSession session, final long id) {
-        return getSessions().put(id, session);
-    }
+    protected abstract ConcurrentMap<Long, SSession> getSessions();
 
     @Override
-    public synchronized void addSession(final SSession session) throws SSessionAlreadyExistsException {
+    public void addSession(final SSession session) throws SSessionAlreadyExistsException {
         final long id = session.getId();
-        if (getSessions().containsKey(id)) {
+        if (getSessions().putIfAbsent(id, session) != null) {
             throw new SSessionAlreadyExistsException("A session wih id \"" + id + "\" already exists");
         }
-        putSession(session, id);
     }
 
     @Override
-    public synchronized void removeSession(final long sessionId) throws SSessionNotFoundException {
+    public void removeSession(final long sessionId) throws SSessionNotFoundException {
         final SSession session = getSessions().remove(sessionId);
         if (session == null) {
             throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
@@ -53,7 +48,7 @@ public abstract class AbstractSessionProvider implements SessionProvider {
     }
 
     @Override
-    public synchronized SSession getSession(final long sessionId) throws SSessionNotFoundException {
+    public SSession getSession(final long sessionId) throws SSessionNotFoundException {
         final SSession session = getSessions().get(sessionId);
         if (session == null) {
             throw new SSessionNotFoundException("No session found with id \"" + sessionId + "\"");
@@ -62,34 +57,30 @@ public abstract class AbstractSessionProvider implements SessionProvider {
     }
 
     @Override
-    public synchronized void updateSession(final SSession session) throws SSessionNotFoundException {
+    public void updateSession(final SSession session) throws SSessionNotFoundException {
         final long id = session.getId();
-        if (!getSessions().containsKey(id)) {
+        if (getSessions().replace(id, session) == null) {
             throw new SSessionNotFoundException("No session found with id \"" + id + "\"");
         }
-        putSession(session, id);
     }
 
     @Override
-    public synchronized void cleanInvalidSessions() {
-        final List<Long> invalidSessionIds = new ArrayList<Long>();
-        for (final SSession session : getSessions().values()) {
-            if (!session.isValid()) {
-                invalidSessionIds.add(session.getId());
+    public void cleanInvalidSessions() {
+        final Iterator<SSession> iterator = getSessions().values().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().isValid()) {
+                iterator.remove();
             }
         }
-        for (final Long invalidSessionId : invalidSessionIds) {
-            getSessions().remove(invalidSessionId);
-        }
     }
 
     @Override
-    public synchronized void removeSessions() {
+    public void removeSessions() {
         getSessions().clear();
     }
 
     @Override
-    public synchronized void deleteSessionsOfTenant(final long tenantId, final boolean keepTechnicalSessions) {
+    public void deleteSessionsOfTenant(final long tenantId, final boolean keepTechnicalSessions) {
         Iterator<SSession> iterator = getSessions().values().iterator();
         while (iterator.hasNext()) {
             SSession sSession = iterator.next();
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.session.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hashed timing wheel of session expiration dates.
+ * <p>
+ * Sessions are scheduled in the bucket of the tick of their expiration date, without any lock. Advancing the wheel only visits the buckets of the elapsed
+ * ticks, instead of scanning all sessions. Renewing a session does not touch the wheel: when its bucket is reached, a session which is still valid is
+ * scheduled again at its new expiration date.
+ */
+class SessionExpiryWheel {
+
+    /**
+     * Checks a session whose expiration date is reached.
+     */
+    interface Expirer {
+
+        /**
+         * @param sessionId
+         *        the id of the session
+         * @return the new expiration date of the session if it is still valid, a negative value if it was removed
+         */
+        long removeIfExpired(long sessionId);
+    }
+
+    private final long tickDuration;
+
+    private final AtomicReferenceArray<Queue<Entry>> buckets;
+
+    private final int mask;
+
+    private volatile long lastTick;
+
+    /**
+     * @param tickDuration
+     *        duration of a tick, in milliseconds
+     * @param wheelSize
+     *        number of buckets, must be a power of 2
+     * @param now
+     *        the current time, in milliseconds
+     */
+    SessionExpiryWheel(final long tickDuration, final int wheelSize, final long now) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("The wheel size must be a power of 2 but was " + wheelSize);
+        }
+        this.tickDuration = tickDuration;
+        mask = wheelSize - 1;
+        buckets = new AtomicReferenceArray<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            buckets.set(i, new ConcurrentLinkedQueue<Entry>());
+        }
+        lastTick = now / tickDuration;
+    }
+
+    void schedule(final long sessionId, final long expirationDate) {
+        final long deadlineTick = Math.max((expirationDate + tickDuration - 1) / tickDuration, lastTick + 1);
+        add(new Entry(sessionId, deadlineTick));
+    }
+
+    /**
+     * Visit the buckets of the ticks elapsed since the last call.
+     */
+    synchronized void advance(final long now, final Expirer expirer) {
+        final long currentTick = now / tickDuration;
+        final long firstTick = Math.max(lastTick + 1, currentTick - mask);
+        lastTick = currentTick;
+        for (long tick = firstTick; tick <= currentTick; tick++) {
+            final Queue<Entry> bucket = buckets.getAndSet((int) (tick & mask), new ConcurrentLinkedQueue<Entry>());
+            for (final Entry entry : bucket) {
+                if (entry.deadlineTick > currentTick) {
+                    // a later round of the wheel
+                    add(entry);
+                } else {
+                    final long expirationDate = expirer.removeIfExpired(entry.sessionId);
+                    if (expirationDate >= 0) {
+                        schedule(entry.sessionId, expirationDate);
+                    }
+                }
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            size += buckets.get(i).size();
+        }
+        return size;
+    }
+
+    private void add(final Entry entry) {
+        final int index = (int) (entry.deadlineTick & mask);
+        Queue<Entry> bucket;
+        do {
+            bucket = buckets.get(index);
+            bucket.add(entry);
+            // the bucket may have been swapped by advance after being read: add the entry again in the new one
+        } while (bucket != buckets.get(index));
+    }
+
+    private static final class Entry {
+
+        private final long sessionId;
+
+        private final long deadlineTick;
+
+        private Entry(final long sessionId, final long deadlineTick) {
+            this.sessionId = sessionId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+}
@@ -13,22 +13,72 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.bonitasoft.engine.session.SSessionAlreadyExistsException;
 import org.bonitasoft.engine.session.model.SSession;
 
 /**
+ * Expired sessions are found using a {@link SessionExpiryWheel} instead of scanning all sessions.
+ *
  * @author Elias Ricken de Medeiros
  * @author Matthieu Chaffotte
  */
 public final class SessionProviderImpl extends AbstractSessionProvider {
 
-    static Map<Long, SSession> sessions = new HashMap<Long, SSession>();
+    private static final long TICK_DURATION = 60000;
+
+    private static final int WHEEL_SIZE = 256;
+
+    static ConcurrentMap<Long, SSession> sessions = new ConcurrentHashMap<>();
+
+    static volatile SessionExpiryWheel expiryWheel = new SessionExpiryWheel(TICK_DURATION, WHEEL_SIZE, System.currentTimeMillis());
 
     @Override
-    protected Map<Long, SSession> getSessions() {
+    protected ConcurrentMap<Long, SSession> getSessions() {
         return sessions;
     }
 
+    @Override
+    public void addSession(final SSession session) throws SSessionAlreadyExistsException {
+        super.addSession(session);
+        if (session.getLastRenewDate() != null) {
+            expiryWheel.schedule(session.getId(), session.getExpirationDate().getTime());
+        }
+    }
+
+    @Override
+    public void removeSessions() {
+        super.removeSessions();
+        expiryWheel = new SessionExpiryWheel(TICK_DURATION, WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    @Override
+    public void cleanInvalidSessions() {
+        cleanInvalidSessions(System.currentTimeMillis());
+    }
+
+    void cleanInvalidSessions(final long now) {
+        expiryWheel.advance(now, this::removeIfExpired);
+    }
+
+    /**
+     * @return the expiration date of the session if it is still valid, -1 if it does not exist anymore
+     */
+    private long removeIfExpired(final long sessionId) {
+        final SSession session = sessions.get(sessionId);
+        if (session == null) {
+            return -1;
+        }
+        if (session.isValid()) {
+            return session.getExpirationDate().getTime();
+        }
+        if (sessions.remove(sessionId, session)) {
+            return -1;
+        }
+        // renewed in the meantime
+        return removeIfExpired(sessionId);
+    }
+
 }
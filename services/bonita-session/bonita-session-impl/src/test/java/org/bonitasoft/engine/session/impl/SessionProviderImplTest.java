@@ -13,17 +13,43 @@
  **/
 package org.bonitasoft.engine.session.impl;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.bonitasoft.engine.session.SSessionNotFoundException;
-import org.bonitasoft.engine.session.SessionProvider;
 import org.bonitasoft.engine.session.model.impl.SSessionImpl;
+import org.junit.Before;
 import org.junit.Test;
 
 public class SessionProviderImplTest {
 
-    private final SessionProvider sessionProvider = new SessionProviderImpl();
+    private final SessionProviderImpl sessionProvider = new SessionProviderImpl();
+
+    @Before
+    public void before() {
+        sessionProvider.removeSessions();
+    }
+
+    private static SSessionImpl createSession(final long id, final long lastRenewDate, final long duration) {
+        final SSessionImpl session = new SSessionImpl(id, 1, "john", "TEST", 12);
+        session.setCreationDate(new Date(lastRenewDate));
+        session.setLastRenewDate(new Date(lastRenewDate));
+        session.setDuration(duration);
+        return session;
+    }
+
+    private static long inOneMinute() {
+        return System.currentTimeMillis() + 60000;
+    }
 
     @Test
     public void testAddSession() throws Exception {
@@ -86,4 +112,88 @@ public class SessionProviderImplTest {
         }
     }
 
+    @Test
+    public void cleanInvalidSessions_should_remove_only_expired_sessions() throws Exception {
+        sessionProvider.removeSessions();
+        final long now = System.currentTimeMillis();
+        sessionProvider.addSession(createSession(100, now - 2000, 1000));
+        sessionProvider.addSession(createSession(101, now, 3600000));
+
+        sessionProvider.cleanInvalidSessions(inOneMinute());
+
+        assertThat(SessionProviderImpl.sessions.keySet()).containsOnly(101L);
+    }
+
+    @Test
+    public void cleanInvalidSessions_should_keep_a_session_renewed_after_being_scheduled() throws Exception {
+        sessionProvider.removeSessions();
+        final long now = System.currentTimeMillis();
+        sessionProvider.addSession(createSession(102, now - 2000, 1000));
+        sessionProvider.updateSession(createSession(102, now, 3600000));
+
+        sessionProvider.cleanInvalidSessions(inOneMinute());
+
+        assertThat(SessionProviderImpl.sessions.keySet()).containsOnly(102L);
+    }
+
+    @Test(expected = SSessionNotFoundException.class)
+    public void updateSession_should_not_add_a_removed_session() throws Exception {
+        sessionProvider.updateSession(createSession(103, System.currentTimeMillis(), 1000));
+    }
+
+    @Test
+    public void removeSessions_should_forget_the_scheduled_expirations() throws Exception {
+        final SessionExpiryWheel expiryWheel = SessionProviderImpl.expiryWheel;
+        sessionProvider.addSession(createSession(103, System.currentTimeMillis(), 3600000));
+
+        sessionProvider.removeSessions();
+
+        assertThat(SessionProviderImpl.sessions).isEmpty();
+        assertThat(SessionProviderImpl.expiryWheel).isNotSameAs(expiryWheel);
+    }
+
+    @Test
+    public void should_handle_100k_sessions_used_concurrently() throws Exception {
+        sessionProvider.removeSessions();
+        final int nbThreads = 8;
+        final int sessionsPerThread = 12500;
+        final long now = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < nbThreads; t++) {
+                final long firstId = 1000000L + t * sessionsPerThread;
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        for (long id = firstId; id < firstId + sessionsPerThread; id++) {
+                            // even sessions expire, odd ones are renewed
+                            sessionProvider.addSession(createSession(id, now - 2000, 1000));
+                            if (id % 2 == 1) {
+                                sessionProvider.getSession(id);
+                                sessionProvider.updateSession(createSession(id, now, 3600000));
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(SessionProviderImpl.sessions).hasSize(100000);
+
+        sessionProvider.cleanInvalidSessions(inOneMinute());
+
+        assertThat(SessionProviderImpl.sessions).hasSize(50000);
+        for (final Long id : SessionProviderImpl.sessions.keySet()) {
+            assertThat(id % 2).isEqualTo(1);
+        }
+        sessionProvider.removeSessions();
+    }
+
 }
@@ -62,4 +62,9 @@ public enum TimeTrackerRecords {
      */
     EVALUATE_EXPRESSIONS,
 
+    /**
+     * this key is used to track the time a thread waited for a new range of ids of a sequence to be allocated in database. See TenantSequenceManagerImpl.
+     */
+    SEQUENCE_RANGE_ALLOCATION_STALL,
+
 }
@@ -61,6 +61,37 @@ public abstract class BonitaWork implements Runnable, Serializable {
 
     public abstract void handleFailure(Exception e, Map<String, Object> context) throws Exception;
 
+    /**
+     * Works that return the same strictly positive id here must never be executed concurrently: the work service is allowed to queue them in a
+     * per-process-instance mailbox.
+     *
+     * @return
+     *         the id of the process instance this work must be executed exclusively on, or -1 if it can run concurrently with any other work
+     * @since 7.5.3
+     */
+    public long getLockedProcessInstanceId() {
+        return -1L;
+    }
+
+    /**
+     * @return
+     *         the class of this work, used by the work service to share its threads between the different kinds of works
+     * @since 7.5.3
+     */
+    public WorkPriorityClass getPriorityClass() {
+        return WorkPriorityClass.OTHER;
+    }
+
+    /**
+     * @return
+     *         the id of the process definition this work is executed for, or -1 if it is not related to a process definition. Works of a same
+     *         class can be shared fairly between process definitions using this id.
+     * @since 7.5.3
+     */
+    public long getProcessDefinitionId() {
+        return -1L;
+    }
+
     public long getTenantId() {
         if (tenantId <= 0) {
             throw new IllegalStateException("TenantId is not set !!");
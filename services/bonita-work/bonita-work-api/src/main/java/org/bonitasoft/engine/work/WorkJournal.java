@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.List;
+
+/**
+ * Durable journal of the works registered by the {@link WorkService}.
+ * An entry is appended in the transaction that registers the work and is removed once the work has been executed, so that after a crash only
+ * the works still present in the journal need to be replayed.
+ *
+ * @since 7.5.3
+ */
+public interface WorkJournal {
+
+    /**
+     * Append an entry for the given work. This operation MUST be called within the transaction registering the work.
+     *
+     * @param work
+     *        the work being registered
+     * @return
+     *         the id of the journal entry, or -1 if this work is not journaled
+     * @throws SWorkRegisterException
+     *         if the entry can't be written
+     */
+    long append(BonitaWork work) throws SWorkRegisterException;
+
+    /**
+     * Remove the entries of works that were executed. This operation MUST be called within an active transaction.
+     *
+     * @param entryIds
+     *        ids returned by {@link #append(BonitaWork)}
+     * @throws SWorkException
+     *         if the entries can't be removed
+     */
+    void remove(List<Long> entryIds) throws SWorkException;
+
+}
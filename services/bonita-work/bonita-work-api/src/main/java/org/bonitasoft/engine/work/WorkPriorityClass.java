@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+/**
+ * Kind of a {@link BonitaWork}. The work service can give each class its own share of the threads so that a flood of works of one kind does not
+ * starve the others.
+ *
+ * @since 7.5.3
+ */
+public enum WorkPriorityClass {
+
+    /**
+     * execution of a flow node
+     */
+    FLOW_NODE,
+
+    /**
+     * execution of a connector of a flow node or of a process
+     */
+    CONNECTOR,
+
+    /**
+     * execution of a message matched with a waiting message event
+     */
+    MESSAGE,
+
+    /**
+     * notification of the parent that a child flow node or process is finished
+     */
+    NOTIFY_CHILD,
+
+    /**
+     * any other work
+     */
+    OTHER
+
+}
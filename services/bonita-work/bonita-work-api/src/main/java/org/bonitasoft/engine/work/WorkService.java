@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.concurrent.CompletionStage;
+
 import org.bonitasoft.engine.commons.TenantLifecycleService;
 
 /**
@@ -41,6 +43,31 @@ public interface WorkService extends TenantLifecycleService {
      */
     void executeWork(final BonitaWork work) throws SWorkRegisterException;
 
+    /**
+     * Execute the work once the given stage is completed, whether normally or exceptionally. Unlike {@link #executeWork(BonitaWork)}, the calling thread
+     * does not have to wait for the stage: this is used by works that hand a long operation (e.g. a connector) to another pool and must be continued
+     * afterwards.
+     *
+     * @param work
+     *        the work to execute once the stage is completed
+     * @param stage
+     *        the stage to wait for
+     * @throws SWorkRegisterException
+     * @since 7.5.3
+     */
+    void executeWorkWhenDone(final BonitaWork work, final CompletionStage<?> stage) throws SWorkRegisterException;
+
+    /**
+     * Wait until the queues of the works asking their producers to wait for room are back under their capacity. Works registered by a committed
+     * transaction are never refused, this is where their producers are slowed down: it must be called before opening a transaction, e.g. when an
+     * API call is received, never inside it.
+     *
+     * @throws SWorkRegisterException
+     *         if a queue is still full after the configured wait timeout
+     * @since 7.5.3
+     */
+    void awaitCapacity() throws SWorkRegisterException;
+
     /**
      * @return
      *         true if the work service is stopped
@@ -53,6 +80,13 @@ public interface WorkService extends TenantLifecycleService {
      */
     void notifyNodeStopped(String nodeName);
 
+    /**
+     * @return
+     *         true if works returning the same {@link BonitaWork#getLockedProcessInstanceId()} are guaranteed to be executed one after the other
+     * @since 7.5.3
+     */
+    boolean isProcessInstanceMailboxEnabled();
+
     /**
      * Removes the current <code>AbstractWorkSynchronization</code> from the current Thread.
      */
@@ -13,6 +13,7 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 
 /**
@@ -32,9 +33,27 @@ public interface BonitaExecutorService extends ExecutorService {
      */
     public void shutdownAndEmptyQueue();
 
+    /**
+     * execute all the given tasks, enqueuing them at once when possible
+     */
+    public void executeAll(Collection<? extends Runnable> tasks);
+
+    /**
+     * wait until the queues of the classes asking producers to wait for room (see {@link WorkRejectionPolicy#WAIT}) are back under their capacity.
+     * Returns immediately when called by a thread of the executor: it would wait for itself.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if a queue is still full after the wait timeout
+     */
+    public void awaitCapacity();
+
     /**
      * notify that a node stopped
      */
     public void notifyNodeStopped(String nodeName);
 
+    /**
+     * @return true if works locking the same process instance are queued in a mailbox and executed one after the other
+     */
+    public boolean isProcessInstanceMailboxEnabled();
+
 }
@@ -13,10 +13,12 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -32,10 +34,14 @@ import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
  */
 public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements BonitaExecutorService {
 
+    private final ThreadLocal<Boolean> executingTask = new ThreadLocal<>();
+
     private final BlockingQueue<Runnable> workQueue;
 
     private final TechnicalLoggerService logger;
 
+    private volatile boolean coreThreadsStarted;
+
     public BonitaThreadPoolExecutor(final int corePoolSize,
             final int maximumPoolSize,
             final long keepAliveTime,
@@ -62,6 +68,55 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
         return null;
     }
 
+    @Override
+    public void executeAll(final Collection<? extends Runnable> tasks) {
+        if (isShutdown()) {
+            return;
+        }
+        if (getCorePoolSize() == 0) {
+            // no thread is guaranteed to poll the queue: let the pool decide for each task
+            for (final Runnable task : tasks) {
+                execute(task);
+            }
+            return;
+        }
+        if (!coreThreadsStarted) {
+            prestartAllCoreThreads();
+            coreThreadsStarted = true;
+        }
+        for (final Runnable task : tasks) {
+            // core threads are running, put the task directly in the queue and fallback on execute to grow the pool or reject it when full
+            if (!workQueue.offer(task)) {
+                execute(task);
+            }
+        }
+    }
+
+    @Override
+    protected void beforeExecute(final Thread t, final Runnable r) {
+        super.beforeExecute(t, r);
+        executingTask.set(Boolean.TRUE);
+    }
+
+    @Override
+    protected void afterExecute(final Runnable r, final Throwable t) {
+        executingTask.remove();
+        super.afterExecute(r, t);
+    }
+
+    @Override
+    public void awaitCapacity() {
+        if (!(workQueue instanceof WeightedFairWorkQueue) || executingTask.get() != null) {
+            return;
+        }
+        try {
+            ((WeightedFairWorkQueue) workQueue).awaitRoom();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room in the work queue", e);
+        }
+    }
+
     @Override
     public <T> Future<T> submit(final Callable<T> task) {
         throw new UnsupportedOperationException("Use submit(Runnable)");
@@ -93,4 +148,13 @@ public class BonitaThreadPoolExecutor extends ThreadPoolExecutor implements Boni
     public void notifyNodeStopped(final String nodeName) {
         // nothing to do
     }
+
+    @Override
+    public boolean isProcessInstanceMailboxEnabled() {
+        return false;
+    }
+
+    protected TechnicalLoggerService getLogger() {
+        return logger;
+    }
 }
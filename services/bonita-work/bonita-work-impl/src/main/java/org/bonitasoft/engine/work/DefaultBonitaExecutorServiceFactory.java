@@ -13,6 +13,8 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
@@ -32,6 +34,10 @@ import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
  * - If the queue is full, and the number of threads is less than the maxPoolSize, create a new thread to run tasks in.
  * - If the queue is full, and the number of threads is greater than or equal to maxPoolSize, reject the task.
  * When the current number of threads are > than corePoolSize, they are kept idle during keepAliveTimeSeconds
+ * When processInstanceMailbox is enabled, works locking a process instance are queued in a mailbox per process instance instead of competing for
+ * the process instance lock (see {@link MailboxBonitaThreadPoolExecutor})
+ * When priorityClasses is enabled, the single FIFO queue is replaced by one queue per {@link WorkPriorityClass} served in weighted round robin, each
+ * class having its own capacity and rejection policy (see {@link WeightedFairWorkQueue} and {@link WorkRejectionPolicy})
  * 
  * @author Baptiste Mesta
  */
@@ -49,29 +55,84 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
 
     private final long tenantId;
 
+    private final boolean processInstanceMailbox;
+
+    private final boolean priorityClasses;
+
+    private final List<WorkClassConfiguration> workClasses;
+
+    private final boolean fairAcrossProcessDefinitions;
+
+    private final long waitTimeoutSeconds;
+
     public DefaultBonitaExecutorServiceFactory(final TechnicalLoggerService logger, final long tenantId, final int corePoolSize, final int queueCapacity,
             final int maximumPoolSize,
             final long keepAliveTimeSeconds) {
+        this(logger, tenantId, corePoolSize, queueCapacity, maximumPoolSize, keepAliveTimeSeconds, false);
+    }
+
+    public DefaultBonitaExecutorServiceFactory(final TechnicalLoggerService logger, final long tenantId, final int corePoolSize, final int queueCapacity,
+            final int maximumPoolSize,
+            final long keepAliveTimeSeconds, final boolean processInstanceMailbox) {
+        this(logger, tenantId, corePoolSize, queueCapacity, maximumPoolSize, keepAliveTimeSeconds, processInstanceMailbox, false,
+                Collections.<WorkClassConfiguration> emptyList(), false);
+    }
+
+    public DefaultBonitaExecutorServiceFactory(final TechnicalLoggerService logger, final long tenantId, final int corePoolSize, final int queueCapacity,
+            final int maximumPoolSize,
+            final long keepAliveTimeSeconds, final boolean processInstanceMailbox, final boolean priorityClasses,
+            final List<WorkClassConfiguration> workClasses, final boolean fairAcrossProcessDefinitions) {
+        this(logger, tenantId, corePoolSize, queueCapacity, maximumPoolSize, keepAliveTimeSeconds, processInstanceMailbox, priorityClasses, workClasses,
+                fairAcrossProcessDefinitions, 30);
+    }
+
+    /**
+     * @param waitTimeoutSeconds time an API call waits, before opening its transaction, for room in the queues of the classes having the
+     *        {@link WorkRejectionPolicy#WAIT} policy before being refused
+     */
+    public DefaultBonitaExecutorServiceFactory(final TechnicalLoggerService logger, final long tenantId, final int corePoolSize, final int queueCapacity,
+            final int maximumPoolSize,
+            final long keepAliveTimeSeconds, final boolean processInstanceMailbox, final boolean priorityClasses,
+            final List<WorkClassConfiguration> workClasses, final boolean fairAcrossProcessDefinitions, final long waitTimeoutSeconds) {
         this.logger = logger;
         this.tenantId = tenantId;
         this.corePoolSize = corePoolSize;
         this.queueCapacity = queueCapacity;
         this.maximumPoolSize = maximumPoolSize;
         this.keepAliveTimeSeconds = keepAliveTimeSeconds;
+        this.processInstanceMailbox = processInstanceMailbox;
+        this.priorityClasses = priorityClasses;
+        this.workClasses = workClasses;
+        this.fairAcrossProcessDefinitions = fairAcrossProcessDefinitions;
+        this.waitTimeoutSeconds = waitTimeoutSeconds;
     }
 
     @Override
     public BonitaExecutorService createExecutorService() {
-        final BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(queueCapacity);
-        final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler();
+        final BlockingQueue<Runnable> workQueue = createWorkQueue();
+        final RejectedExecutionHandler handler = new QueueRejectedExecutionHandler(workQueue);
         final WorkerThreadFactory threadFactory = new WorkerThreadFactory("Bonita-Worker", tenantId, maximumPoolSize);
+        if (processInstanceMailbox) {
+            return new MailboxBonitaThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS, workQueue,
+                    threadFactory, handler, logger);
+        }
         return new BonitaThreadPoolExecutor(corePoolSize, maximumPoolSize, keepAliveTimeSeconds, TimeUnit.SECONDS, workQueue,
                 threadFactory, handler, logger);
     }
 
+    private BlockingQueue<Runnable> createWorkQueue() {
+        if (priorityClasses) {
+            return new WeightedFairWorkQueue(workClasses, fairAcrossProcessDefinitions, waitTimeoutSeconds, TimeUnit.SECONDS);
+        }
+        return new ArrayBlockingQueue<>(queueCapacity);
+    }
+
     private final class QueueRejectedExecutionHandler implements RejectedExecutionHandler {
 
-        public QueueRejectedExecutionHandler() {
+        private final BlockingQueue<Runnable> workQueue;
+
+        public QueueRejectedExecutionHandler(final BlockingQueue<Runnable> workQueue) {
+            this.workQueue = workQueue;
         }
 
         @Override
@@ -79,6 +140,14 @@ public class DefaultBonitaExecutorServiceFactory implements BonitaExecutorServic
             if (executor.isShutdown()) {
                 logger.log(getClass(), TechnicalLogSeverity.INFO, "Tried to run work " + task
                         + " but the work service is shutdown. work will be restarted with the node");
+            } else if (workQueue instanceof WeightedFairWorkQueue) {
+                // works of the classes that wait are always taken by the queue: only the classes that abort are rejected
+                final WorkClassConfiguration workClass = ((WeightedFairWorkQueue) workQueue).getConfiguration(task);
+                throw new RejectedExecutionException(
+                        "Unable to run the task "
+                                + task
+                                + "\n the work queue of class " + workClass.getWorkClass()
+                                + " is full you might consider changing your configuration to scale more. See parameters 'bonita.tenant.work.priorityClasses.*' in bonita.home configuration files.");
             } else {
                 throw new RejectedExecutionException(
                         "Unable to run the task "
@@ -13,6 +13,11 @@
  **/
 package org.bonitasoft.engine.work;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
@@ -31,8 +36,6 @@ import org.bonitasoft.engine.transaction.UserTransactionService;
  */
 public class ExecutorWorkService implements WorkService {
 
-    private final Object getSynchroLock = new Object();
-
     private final UserTransactionService transactionService;
 
     private final ThreadLocal<WorkSynchronization> synchronizations = new ThreadLocal<>();
@@ -45,8 +48,15 @@ public class ExecutorWorkService implements WorkService {
 
     private BonitaExecutorService executor;
 
+    // submits again continuations of works rejected because the queue was full, see executeWorkWhenDone
+    private ScheduledExecutorService retryExecutor;
+
+    private static final long MAX_RETRY_DELAY_MILLIS = 5000;
+
     private final int workTerminationTimeout;
 
+    private final WorkJournalAcknowledger journalAcknowledger;
+
     /**
      * @param transactionService
      * @param loggerService
@@ -58,11 +68,27 @@ public class ExecutorWorkService implements WorkService {
             final TechnicalLoggerService loggerService, final SessionAccessor sessionAccessor,
             final BonitaExecutorServiceFactory bonitaExecutorServiceFactory,
             final int workTerminationTimeout) {
+        this(transactionService, loggerService, sessionAccessor, bonitaExecutorServiceFactory, workTerminationTimeout, null);
+    }
+
+    /**
+     * @param transactionService
+     * @param loggerService
+     * @param sessionAccessor
+     * @param bonitaExecutorServiceFactory
+     * @param workTerminationTimeout time in secondes to wait for works to finish
+     * @param workJournal journal in which registered works are written, or null to keep works only in memory
+     */
+    public ExecutorWorkService(final UserTransactionService transactionService,
+            final TechnicalLoggerService loggerService, final SessionAccessor sessionAccessor,
+            final BonitaExecutorServiceFactory bonitaExecutorServiceFactory,
+            final int workTerminationTimeout, final WorkJournal workJournal) {
         this.transactionService = transactionService;
         this.loggerService = loggerService;
         this.sessionAccessor = sessionAccessor;
         this.bonitaExecutorServiceFactory = bonitaExecutorServiceFactory;
         this.workTerminationTimeout = workTerminationTimeout;
+        journalAcknowledger = workJournal != null ? new WorkJournalAcknowledger(workJournal, loggerService) : null;
     }
 
     @Override
@@ -74,10 +100,21 @@ public class ExecutorWorkService implements WorkService {
         final WorkSynchronization synchro = getContinuationSynchronization();
         if (synchro != null) {
             loggerService.log(getClass(), TechnicalLogSeverity.DEBUG, "Registered work " + work.getDescription());
-            synchro.addWork(work);
+            synchro.addWork(journal(work));
         }
     }
 
+    private BonitaWork journal(final BonitaWork work) throws SWorkRegisterException {
+        if (journalAcknowledger == null) {
+            return work;
+        }
+        final long entryId = journalAcknowledger.getJournal().append(work);
+        if (entryId < 0) {
+            return work;
+        }
+        return new JournaledWork(work, entryId, journalAcknowledger);
+    }
+
     private void logExecutorStateWarn(final BonitaWork work) {
         loggerService.log(getClass(), TechnicalLogSeverity.WARNING, "Tried to register work " + work.getDescription()
                 + ", but the work service is stopped.");
@@ -94,31 +131,105 @@ public class ExecutorWorkService implements WorkService {
         } catch (final STenantIdNotSetException e) {
             throw new SWorkRegisterException("Unable to read tenant id from session.", e);
         }
+        if (work instanceof JournaledWork) {
+            ((JournaledWork) work).resubmitted();
+        }
         executor.submit(work);
     }
 
-    private WorkSynchronization getContinuationSynchronization() throws SWorkRegisterException {
-        synchronized (getSynchroLock) {
-            WorkSynchronization synchro = synchronizations.get();
-            if (synchro == null) {
-                synchro = new WorkSynchronization(executor, sessionAccessor, this);
-                try {
-                    transactionService.registerBonitaSynchronization(synchro);
-                } catch (final STransactionNotFoundException e) {
-                    throw new SWorkRegisterException(e.getMessage(), e);
-                }
-                synchronizations.set(synchro);
+    @Override
+    public void awaitCapacity() throws SWorkRegisterException {
+        final BonitaExecutorService currentExecutor = executor;
+        if (currentExecutor == null) {
+            return;
+        }
+        try {
+            currentExecutor.awaitCapacity();
+        } catch (final RejectedExecutionException e) {
+            throw new SWorkRegisterException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void executeWorkWhenDone(final BonitaWork work, final CompletionStage<?> stage) throws SWorkRegisterException {
+        if (isStopped()) {
+            logExecutorStateWarn(work);
+            return;
+        }
+        try {
+            work.setTenantId(sessionAccessor.getTenantId());
+        } catch (final STenantIdNotSetException e) {
+            throw new SWorkRegisterException("Unable to read tenant id from session.", e);
+        }
+        if (work instanceof JournaledWork) {
+            // count the continuation now: the current execution may end before the stage completes
+            ((JournaledWork) work).resubmitted();
+        }
+        stage.whenComplete((result, failure) -> submitContinuation(work, 0));
+    }
+
+    private void submitContinuation(final BonitaWork work, final long retryDelay) {
+        final BonitaExecutorService currentExecutor = executor;
+        if (currentExecutor == null) {
+            logExecutorStateWarn(work);
+            return;
+        }
+        try {
+            currentExecutor.submit(work);
+        } catch (final RejectedExecutionException e) {
+            // the operation continued by the work is already done: the work can not be dropped, submit it again once the queue had time to drain
+            final long nextRetryDelay = Math.min(Math.max(retryDelay * 2, 100), MAX_RETRY_DELAY_MILLIS);
+            loggerService.log(getClass(), TechnicalLogSeverity.WARNING, "Unable to submit work " + work.getDescription() + ": " + e.getMessage()
+                    + ". It will be submitted again in " + nextRetryDelay + " ms");
+            scheduleContinuation(work, nextRetryDelay);
+        }
+    }
+
+    private void scheduleContinuation(final BonitaWork work, final long retryDelay) {
+        final ScheduledExecutorService currentRetryExecutor = retryExecutor;
+        try {
+            if (currentRetryExecutor == null) {
+                throw new RejectedExecutionException("the work service is stopped");
             }
-            return synchro;
+            currentRetryExecutor.schedule(() -> submitContinuation(work, retryDelay), retryDelay, TimeUnit.MILLISECONDS);
+        } catch (final RejectedExecutionException e) {
+            loggerService.log(getClass(), TechnicalLogSeverity.WARNING, "Unable to submit work " + work.getDescription()
+                    + " again because the work service is stopped. work will be restarted with the node");
         }
     }
 
+    private WorkSynchronization getContinuationSynchronization() throws SWorkRegisterException {
+        // the synchronization is bound to the current thread: no need to lock anything to read or create it
+        final WorkSynchronization currentSynchro = synchronizations.get();
+        if (currentSynchro != null) {
+            return currentSynchro;
+        }
+        final WorkSynchronization synchro = new WorkSynchronization(executor, sessionAccessor, this);
+        try {
+            transactionService.registerBonitaSynchronization(synchro);
+        } catch (final STransactionNotFoundException e) {
+            throw new SWorkRegisterException(e.getMessage(), e);
+        }
+        synchronizations.set(synchro);
+        if (journalAcknowledger != null) {
+            // piggyback on the first registration of the transaction to remove entries of works that were executed
+            synchro.setRemovedJournalEntries(journalAcknowledger, journalAcknowledger.flush());
+        }
+        return synchro;
+    }
+
     @Override
     public boolean isStopped() {
         // the executor must handle elements when it's shutting down
         return executor == null;
     }
 
+    @Override
+    public boolean isProcessInstanceMailboxEnabled() {
+        final BonitaExecutorService currentExecutor = executor;
+        return currentExecutor != null && currentExecutor.isProcessInstanceMailboxEnabled();
+    }
+
     @Override
     public synchronized void stop() {
         // we don't throw exception just stop it and log if something happens
@@ -141,6 +252,15 @@ public class ExecutorWorkService implements WorkService {
     public synchronized void start() {
         if (isStopped()) {
             executor = bonitaExecutorServiceFactory.createExecutorService();
+            retryExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Bonita-Work-Retry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
         }
     }
 
@@ -173,6 +293,8 @@ public class ExecutorWorkService implements WorkService {
     }
 
     private void shutdownExecutor() {
+        retryExecutor.shutdownNow();
+        retryExecutor = null;
         executor.shutdownAndEmptyQueue();
         loggerService.log(getClass(), TechnicalLogSeverity.INFO, "Stopped executor service");
     }
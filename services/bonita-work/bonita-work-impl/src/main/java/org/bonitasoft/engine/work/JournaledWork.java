@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Root of a work having an entry in the {@link WorkJournal}.
+ * The entry is acknowledged when the wrapped work completed, i.e. when the last of its executions (the work may be resubmitted to the executor
+ * using {@link WorkService#executeWork(BonitaWork)} or {@link WorkService#executeWorkWhenDone}) returned normally or had its failure handled. Only
+ * if the work is lost is the entry kept so that the work is replayed on restart: replaying a work whose failure was handled would run it twice.
+ */
+class JournaledWork extends BonitaWork {
+
+    private static final long serialVersionUID = 1L;
+
+    private final BonitaWork wrappedWork;
+
+    private final long entryId;
+
+    private final transient WorkJournalAcknowledger acknowledger;
+
+    private final AtomicInteger pendingExecutions = new AtomicInteger(1);
+
+    JournaledWork(final BonitaWork wrappedWork, final long entryId, final WorkJournalAcknowledger acknowledger) {
+        this.wrappedWork = wrappedWork;
+        this.entryId = entryId;
+        this.acknowledger = acknowledger;
+        wrappedWork.setParent(this);
+    }
+
+    BonitaWork getWrappedWork() {
+        return wrappedWork;
+    }
+
+    long getEntryId() {
+        return entryId;
+    }
+
+    /**
+     * Must be called each time the work is submitted again to the executor
+     */
+    void resubmitted() {
+        pendingExecutions.incrementAndGet();
+    }
+
+    @Override
+    public void work(final Map<String, Object> context) throws Exception {
+        try {
+            wrappedWork.work(context);
+        } catch (final Exception e) {
+            handleFailure(e, context);
+            return;
+        }
+        executionDone();
+    }
+
+    @Override
+    public void handleFailure(final Exception e, final Map<String, Object> context) throws Exception {
+        try {
+            wrappedWork.handleFailure(e, context);
+        } finally {
+            executionDone();
+        }
+    }
+
+    private void executionDone() {
+        if (pendingExecutions.decrementAndGet() == 0) {
+            acknowledger.acknowledge(entryId);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return wrappedWork.getDescription();
+    }
+
+    @Override
+    public String getRecoveryProcedure() {
+        return wrappedWork.getRecoveryProcedure();
+    }
+
+    @Override
+    public long getLockedProcessInstanceId() {
+        return wrappedWork.getLockedProcessInstanceId();
+    }
+
+    @Override
+    public WorkPriorityClass getPriorityClass() {
+        return wrappedWork.getPriorityClass();
+    }
+
+    @Override
+    public long getProcessDefinitionId() {
+        return wrappedWork.getProcessDefinitionId();
+    }
+
+    @Override
+    public void setTenantId(final long tenantId) {
+        wrappedWork.setTenantId(tenantId);
+    }
+
+    @Override
+    public long getTenantId() {
+        return wrappedWork.getTenantId();
+    }
+
+    @Override
+    public String toString() {
+        return wrappedWork.toString();
+    }
+
+}
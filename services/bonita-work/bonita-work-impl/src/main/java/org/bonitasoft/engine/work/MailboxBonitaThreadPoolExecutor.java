@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+
+/**
+ * Executor that routes every work locking a process instance (see {@link BonitaWork#getLockedProcessInstanceId()}) into a FIFO mailbox dedicated to
+ * this process instance.
+ * Only one task per mailbox is submitted to the underlying thread pool: it drains the mailbox and executes its works one after the other. Works of a
+ * same process instance are then never executed concurrently and do not have to fight for the process instance lock.
+ * Works that are not bound to a process instance are executed as in {@link BonitaThreadPoolExecutor}.
+ */
+public class MailboxBonitaThreadPoolExecutor extends BonitaThreadPoolExecutor {
+
+    private final ConcurrentMap<Long, WorkMailbox> mailboxes = new ConcurrentHashMap<>();
+
+    private final Queue<WorkMailbox> unscheduledMailboxes = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingWorks = new AtomicInteger();
+
+    private final AtomicInteger maxMailboxDepth = new AtomicInteger();
+
+    private final AtomicLong executedWorks = new AtomicLong();
+
+    private final AtomicLong totalWaitTime = new AtomicLong();
+
+    private final AtomicLong maxWaitTime = new AtomicLong();
+
+    public MailboxBonitaThreadPoolExecutor(final int corePoolSize,
+            final int maximumPoolSize,
+            final long keepAliveTime,
+            final TimeUnit unit,
+            final BlockingQueue<Runnable> workQueue,
+            final ThreadFactory threadFactory,
+            final RejectedExecutionHandler handler, final TechnicalLoggerService logger) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler, logger);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+        if (task instanceof BonitaWork) {
+            final long processInstanceId = ((BonitaWork) task).getLockedProcessInstanceId();
+            if (processInstanceId > 0) {
+                addToMailbox(processInstanceId, (BonitaWork) task);
+                return;
+            }
+        }
+        super.execute(task);
+    }
+
+    @Override
+    public void executeAll(final Collection<? extends Runnable> tasks) {
+        // works must go through their mailbox, they can not be put directly in the queue
+        for (final Runnable task : tasks) {
+            execute(task);
+        }
+    }
+
+    private void addToMailbox(final long processInstanceId, final BonitaWork work) {
+        while (true) {
+            WorkMailbox mailbox = mailboxes.get(processInstanceId);
+            if (mailbox == null) {
+                final WorkMailbox newMailbox = new WorkMailbox(processInstanceId);
+                mailbox = mailboxes.putIfAbsent(processInstanceId, newMailbox);
+                if (mailbox == null) {
+                    mailbox = newMailbox;
+                }
+            }
+            final boolean mustSchedule;
+            synchronized (mailbox) {
+                if (mailbox.isClosed()) {
+                    // the mailbox was emptied and removed concurrently, retry with a new one
+                    continue;
+                }
+                updateMaxDepth(mailbox.add(work));
+                pendingWorks.incrementAndGet();
+                mustSchedule = !mailbox.isScheduled();
+                mailbox.setScheduled(true);
+            }
+            if (mustSchedule) {
+                schedule(mailbox, work);
+            }
+            return;
+        }
+    }
+
+    private void schedule(final WorkMailbox mailbox, final BonitaWork firstWork) {
+        try {
+            super.execute(new MailboxDrainer(mailbox, firstWork.getPriorityClass(), firstWork.getProcessDefinitionId()));
+        } catch (final RejectedExecutionException e) {
+            // only the rejected work is refused to the caller: the works added to the mailbox in the meantime stay queued
+            // and are scheduled again as soon as a thread of the pool is free
+            if (reject(mailbox, firstWork)) {
+                unscheduledMailboxes.add(mailbox);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if works remain in the mailbox
+     */
+    private boolean reject(final WorkMailbox mailbox, final BonitaWork work) {
+        synchronized (mailbox) {
+            if (mailbox.remove(work)) {
+                pendingWorks.decrementAndGet();
+            }
+            mailbox.setScheduled(false);
+            if (mailbox.size() == 0) {
+                mailbox.close();
+                mailboxes.remove(mailbox.getProcessInstanceId(), mailbox);
+                return false;
+            }
+            return true;
+        }
+    }
+
+    @Override
+    protected void afterExecute(final Runnable r, final Throwable t) {
+        super.afterExecute(r, t);
+        final WorkMailbox mailbox = unscheduledMailboxes.poll();
+        if (mailbox != null) {
+            reschedule(mailbox);
+        }
+    }
+
+    private void reschedule(final WorkMailbox mailbox) {
+        final WorkMailbox.QueuedWork firstWork;
+        synchronized (mailbox) {
+            if (mailbox.isScheduled() || mailbox.isClosed() || isShutdown()) {
+                // a new work of the process instance already scheduled it
+                return;
+            }
+            firstWork = mailbox.peek();
+            mailbox.setScheduled(true);
+        }
+        try {
+            super.execute(new MailboxDrainer(mailbox, firstWork.getWork().getPriorityClass(), firstWork.getWork().getProcessDefinitionId()));
+        } catch (final RejectedExecutionException e) {
+            synchronized (mailbox) {
+                mailbox.setScheduled(false);
+            }
+            unscheduledMailboxes.add(mailbox);
+        }
+    }
+
+    private WorkMailbox.QueuedWork next(final WorkMailbox mailbox) {
+        synchronized (mailbox) {
+            final WorkMailbox.QueuedWork queuedWork = isShutdown() ? null : mailbox.poll();
+            if (queuedWork == null) {
+                pendingWorks.addAndGet(-mailbox.size());
+                mailbox.clear();
+                mailbox.setScheduled(false);
+                mailbox.close();
+                mailboxes.remove(mailbox.getProcessInstanceId(), mailbox);
+                return null;
+            }
+            pendingWorks.decrementAndGet();
+            return queuedWork;
+        }
+    }
+
+    private void updateMaxDepth(final int depth) {
+        int max = maxMailboxDepth.get();
+        while (depth > max && !maxMailboxDepth.compareAndSet(max, depth)) {
+            max = maxMailboxDepth.get();
+        }
+    }
+
+    private void recordWaitTime(final long waitTime) {
+        executedWorks.incrementAndGet();
+        totalWaitTime.addAndGet(waitTime);
+        long max = maxWaitTime.get();
+        while (waitTime > max && !maxWaitTime.compareAndSet(max, waitTime)) {
+            max = maxWaitTime.get();
+        }
+    }
+
+    @Override
+    public boolean isProcessInstanceMailboxEnabled() {
+        return true;
+    }
+
+    public WorkMailboxStatistics getStatistics() {
+        return new WorkMailboxStatistics(mailboxes.size(), pendingWorks.get(), maxMailboxDepth.get(), executedWorks.get(),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitTime.get()), TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get()));
+    }
+
+    @Override
+    public void clearAllQueues() {
+        super.clearAllQueues();
+        clearMailboxes();
+    }
+
+    @Override
+    public void shutdownAndEmptyQueue() {
+        super.shutdownAndEmptyQueue();
+        getLogger().log(getClass(), TechnicalLogSeverity.INFO, "Clearing process instance mailboxes: " + getStatistics());
+        clearMailboxes();
+    }
+
+    private void clearMailboxes() {
+        unscheduledMailboxes.clear();
+        for (final WorkMailbox mailbox : mailboxes.values()) {
+            synchronized (mailbox) {
+                pendingWorks.addAndGet(-mailbox.size());
+                mailbox.clear();
+            }
+        }
+    }
+
+    /**
+     * Scheduled in the class of the work that made the mailbox active
+     */
+    private final class MailboxDrainer implements ClassifiedTask {
+
+        private final WorkMailbox mailbox;
+
+        private final WorkPriorityClass priorityClass;
+
+        private final long processDefinitionId;
+
+        MailboxDrainer(final WorkMailbox mailbox, final WorkPriorityClass priorityClass, final long processDefinitionId) {
+            this.mailbox = mailbox;
+            this.priorityClass = priorityClass;
+            this.processDefinitionId = processDefinitionId;
+        }
+
+        @Override
+        public WorkPriorityClass getPriorityClass() {
+            return priorityClass;
+        }
+
+        @Override
+        public long getProcessDefinitionId() {
+            return processDefinitionId;
+        }
+
+        @Override
+        public void run() {
+            WorkMailbox.QueuedWork queuedWork;
+            while ((queuedWork = next(mailbox)) != null) {
+                recordWaitTime(System.nanoTime() - queuedWork.getEnqueuedAt());
+                final BonitaWork work = queuedWork.getWork();
+                try {
+                    work.run();
+                } catch (final RuntimeException e) {
+                    // must not prevent the next works of the process instance to be executed
+                    getLogger().log(getClass(), TechnicalLogSeverity.ERROR, "Error while executing work " + work.getDescription() + " of process instance "
+                            + mailbox.getProcessInstanceId(), e);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "mailbox of process instance " + mailbox.getProcessInstanceId();
+        }
+
+    }
+
+}
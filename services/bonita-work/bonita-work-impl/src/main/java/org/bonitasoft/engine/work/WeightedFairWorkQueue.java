@@ -0,0 +1,544 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue of the work executor that keeps one bounded FIFO per {@link WorkPriorityClass} instead of a single FIFO for all works.
+ * Classes are served in weighted round robin: up to <code>weight</code> works of a class are taken in a row, then the next class having works is
+ * served. A flood of works of one class can then not starve the works of the other classes.
+ * When fairAcrossProcessDefinitions is set, the works of a class are also taken in turn from each process definition having works in the queue.
+ * Works of a class that is not configured go in the queue of {@link WorkPriorityClass#OTHER}.
+ * Works of a class having the {@link WorkRejectionPolicy#WAIT} policy are never refused: they are queued beyond the capacity of their class, and
+ * their producers are slowed down before they open the transaction registering new works (see {@link #awaitRoom()}).
+ */
+public class WeightedFairWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Map<WorkPriorityClass, ClassQueue> queuesByClass = new EnumMap<>(WorkPriorityClass.class);
+
+    private final ClassQueue[] queues;
+
+    // index in queues of the class being served and number of works that can still be taken from it
+    private int current;
+
+    private int credit;
+
+    private int count;
+
+    private final long waitTimeoutNanos;
+
+    public WeightedFairWorkQueue(final List<WorkClassConfiguration> configurations, final boolean fairAcrossProcessDefinitions) {
+        this(configurations, fairAcrossProcessDefinitions, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param waitTimeout maximum time a producer waits for room in the queues of the classes having the {@link WorkRejectionPolicy#WAIT} policy
+     */
+    public WeightedFairWorkQueue(final List<WorkClassConfiguration> configurations, final boolean fairAcrossProcessDefinitions, final long waitTimeout,
+            final TimeUnit unit) {
+        waitTimeoutNanos = unit.toNanos(waitTimeout);
+        for (final WorkClassConfiguration configuration : configurations) {
+            if (queuesByClass.containsKey(configuration.getWorkClass())) {
+                throw new IllegalArgumentException("Work class " + configuration.getWorkClass() + " is configured twice");
+            }
+            queuesByClass.put(configuration.getWorkClass(), new ClassQueue(configuration, fairAcrossProcessDefinitions));
+        }
+        if (!queuesByClass.containsKey(WorkPriorityClass.OTHER)) {
+            throw new IllegalArgumentException("Work class " + WorkPriorityClass.OTHER + " must be configured");
+        }
+        queues = queuesByClass.values().toArray(new ClassQueue[queuesByClass.size()]);
+        credit = queues[0].configuration.getWeight();
+    }
+
+    /**
+     * @return the configuration of the class in which the given task is queued
+     */
+    public WorkClassConfiguration getConfiguration(final Runnable task) {
+        return queueOf(task).configuration;
+    }
+
+    private ClassQueue queueOf(final Runnable task) {
+        final ClassQueue classQueue = queuesByClass.get(getPriorityClass(task));
+        if (classQueue == null) {
+            return queuesByClass.get(WorkPriorityClass.OTHER);
+        }
+        return classQueue;
+    }
+
+    private static WorkPriorityClass getPriorityClass(final Runnable task) {
+        if (task instanceof BonitaWork) {
+            return ((BonitaWork) task).getPriorityClass();
+        }
+        if (task instanceof ClassifiedTask) {
+            return ((ClassifiedTask) task).getPriorityClass();
+        }
+        return WorkPriorityClass.OTHER;
+    }
+
+    private static long getProcessDefinitionId(final Runnable task) {
+        if (task instanceof BonitaWork) {
+            return ((BonitaWork) task).getProcessDefinitionId();
+        }
+        if (task instanceof ClassifiedTask) {
+            return ((ClassifiedTask) task).getProcessDefinitionId();
+        }
+        return -1L;
+    }
+
+    @Override
+    public boolean offer(final Runnable task) {
+        checkNotNull(task);
+        final ClassQueue classQueue = queueOf(task);
+        final long processDefinitionId = getProcessDefinitionId(task);
+        lock.lock();
+        try {
+            if (!classQueue.accepts()) {
+                return false;
+            }
+            enqueue(classQueue, task, processDefinitionId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(final Runnable task, final long timeout, final TimeUnit unit) throws InterruptedException {
+        checkNotNull(task);
+        final ClassQueue classQueue = queueOf(task);
+        final long processDefinitionId = getProcessDefinitionId(task);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (!classQueue.accepts()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(classQueue, task, processDefinitionId);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(final Runnable task) throws InterruptedException {
+        checkNotNull(task);
+        final ClassQueue classQueue = queueOf(task);
+        final long processDefinitionId = getProcessDefinitionId(task);
+        lock.lockInterruptibly();
+        try {
+            while (!classQueue.accepts()) {
+                notFull.await();
+            }
+            enqueue(classQueue, task, processDefinitionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            return count == 0 ? null : queues[nextIndex()].peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the queue of each class having the {@link WorkRejectionPolicy#WAIT} policy is back under its capacity.
+     * This must be called before opening the transaction that registers works, never inside it: works already committed are queued whatever the
+     * size of the queue of their class.
+     *
+     * @throws RejectedExecutionException if a queue is still full after the wait timeout
+     */
+    public void awaitRoom() throws InterruptedException {
+        long nanos = waitTimeoutNanos;
+        lock.lockInterruptibly();
+        try {
+            for (final ClassQueue classQueue : queues) {
+                while (WorkRejectionPolicy.WAIT == classQueue.configuration.getRejectionPolicy() && classQueue.isFull()) {
+                    if (nanos <= 0) {
+                        throw new RejectedExecutionException("The work queue of class " + classQueue.configuration.getWorkClass() + " stayed full during "
+                                + TimeUnit.NANOSECONDS.toMillis(waitTimeoutNanos)
+                                + " ms, you might consider changing your configuration to scale more. See parameters 'bonita.tenant.work.priorityClasses.*' in bonita.home configuration files.");
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(final ClassQueue classQueue, final Runnable task, final long processDefinitionId) {
+        classQueue.add(task, processDefinitionId);
+        count++;
+        notEmpty.signal();
+    }
+
+    private Runnable dequeue() {
+        final int index = nextIndex();
+        if (index != current || credit == 0) {
+            current = index;
+            credit = queues[index].configuration.getWeight();
+        }
+        credit--;
+        count--;
+        notFull.signalAll();
+        return queues[index].poll();
+    }
+
+    /**
+     * must be called with the lock held and at least one task in the queue
+     */
+    private int nextIndex() {
+        if (credit > 0 && !queues[current].isEmpty()) {
+            return current;
+        }
+        for (int i = 1; i <= queues.length; i++) {
+            final int index = (current + i) % queues.length;
+            if (!queues[index].isEmpty()) {
+                return index;
+            }
+        }
+        throw new IllegalStateException("No work in the queue");
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of works of the given class waiting in the queue
+     */
+    public int size(final WorkPriorityClass workClass) {
+        lock.lock();
+        try {
+            final ClassQueue classQueue = queuesByClass.get(workClass);
+            return classQueue == null ? 0 : classQueue.size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            int remainingCapacity = 0;
+            for (final ClassQueue classQueue : queues) {
+                // queues of the classes that wait may be above their capacity
+                remainingCapacity += Math.max(0, classQueue.configuration.getQueueCapacity() - classQueue.size);
+            }
+            return remainingCapacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(final Object task) {
+        if (task == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            for (final ClassQueue classQueue : queues) {
+                if (classQueue.remove(task)) {
+                    count--;
+                    notFull.signalAll();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            for (final ClassQueue classQueue : queues) {
+                classQueue.clear();
+            }
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(final Collection<? super Runnable> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(final Collection<? super Runnable> collection, final int maxElements) {
+        checkNotNull(collection);
+        if (collection == this) {
+            throw new IllegalArgumentException("Can not drain the queue to itself");
+        }
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && count > 0) {
+                collection.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return an iterator on a snapshot of the tasks of the queue, grouped by class
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        final List<Runnable> snapshot = new ArrayList<>();
+        lock.lock();
+        try {
+            for (final ClassQueue classQueue : queues) {
+                classQueue.addAllTo(snapshot);
+            }
+        } finally {
+            lock.unlock();
+        }
+        final Iterator<Runnable> iterator = snapshot.iterator();
+        return new Iterator<Runnable>() {
+
+            private Runnable last;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                last = iterator.next();
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                WeightedFairWorkQueue.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    private static void checkNotNull(final Object object) {
+        if (object == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    private static final class ClassQueue {
+
+        private final WorkClassConfiguration configuration;
+
+        private final boolean fairAcrossProcessDefinitions;
+
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+
+        // when fair across process definitions: tasks of each process definition and the order in which process definitions are served
+        private final Map<Long, ArrayDeque<Runnable>> tasksByProcessDefinition = new HashMap<>();
+
+        private final ArrayDeque<Long> turns = new ArrayDeque<>();
+
+        private int size;
+
+        ClassQueue(final WorkClassConfiguration configuration, final boolean fairAcrossProcessDefinitions) {
+            this.configuration = configuration;
+            this.fairAcrossProcessDefinitions = fairAcrossProcessDefinitions;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean isFull() {
+            return size >= configuration.getQueueCapacity();
+        }
+
+        /**
+         * works of a class that waits are queued even above its capacity: they can only be registered by a transaction that is already committed
+         */
+        boolean accepts() {
+            return !isFull() || WorkRejectionPolicy.WAIT == configuration.getRejectionPolicy();
+        }
+
+        void add(final Runnable task, final long processDefinitionId) {
+            size++;
+            if (!fairAcrossProcessDefinitions) {
+                tasks.add(task);
+                return;
+            }
+            ArrayDeque<Runnable> tasksOfProcessDefinition = tasksByProcessDefinition.get(processDefinitionId);
+            if (tasksOfProcessDefinition == null) {
+                tasksOfProcessDefinition = new ArrayDeque<>();
+                tasksByProcessDefinition.put(processDefinitionId, tasksOfProcessDefinition);
+                turns.add(processDefinitionId);
+            }
+            tasksOfProcessDefinition.add(task);
+        }
+
+        Runnable peek() {
+            if (!fairAcrossProcessDefinitions) {
+                return tasks.peek();
+            }
+            return size == 0 ? null : tasksByProcessDefinition.get(turns.peek()).peek();
+        }
+
+        Runnable poll() {
+            if (size == 0) {
+                return null;
+            }
+            size--;
+            if (!fairAcrossProcessDefinitions) {
+                return tasks.poll();
+            }
+            final Long processDefinitionId = turns.poll();
+            final ArrayDeque<Runnable> tasksOfProcessDefinition = tasksByProcessDefinition.get(processDefinitionId);
+            final Runnable task = tasksOfProcessDefinition.poll();
+            if (tasksOfProcessDefinition.isEmpty()) {
+                tasksByProcessDefinition.remove(processDefinitionId);
+            } else {
+                turns.add(processDefinitionId);
+            }
+            return task;
+        }
+
+        boolean remove(final Object task) {
+            if (!fairAcrossProcessDefinitions) {
+                if (tasks.remove(task)) {
+                    size--;
+                    return true;
+                }
+                return false;
+            }
+            for (final Iterator<Long> iterator = turns.iterator(); iterator.hasNext();) {
+                final Long processDefinitionId = iterator.next();
+                final ArrayDeque<Runnable> tasksOfProcessDefinition = tasksByProcessDefinition.get(processDefinitionId);
+                if (tasksOfProcessDefinition.remove(task)) {
+                    size--;
+                    if (tasksOfProcessDefinition.isEmpty()) {
+                        tasksByProcessDefinition.remove(processDefinitionId);
+                        iterator.remove();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void addAllTo(final Collection<Runnable> collection) {
+            if (!fairAcrossProcessDefinitions) {
+                collection.addAll(tasks);
+                return;
+            }
+            for (final Long processDefinitionId : turns) {
+                collection.addAll(tasksByProcessDefinition.get(processDefinitionId));
+            }
+        }
+
+        void clear() {
+            tasks.clear();
+            tasksByProcessDefinition.clear();
+            turns.clear();
+            size = 0;
+        }
+
+    }
+
+}
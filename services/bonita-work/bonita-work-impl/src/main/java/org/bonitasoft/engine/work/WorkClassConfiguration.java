@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+/**
+ * Scheduling parameters of a {@link WorkPriorityClass} (see {@link WeightedFairWorkQueue})
+ */
+public class WorkClassConfiguration {
+
+    private final WorkPriorityClass workClass;
+
+    private final int weight;
+
+    private final int queueCapacity;
+
+    private final WorkRejectionPolicy rejectionPolicy;
+
+    /**
+     * @param workClass the class of works configured
+     * @param weight number of works of this class taken from the queue in a row before giving the hand to the next class
+     * @param queueCapacity maximum number of works of this class waiting in the queue
+     * @param rejectionPolicy what to do with a work of this class when its queue is full
+     */
+    public WorkClassConfiguration(final WorkPriorityClass workClass, final int weight, final int queueCapacity,
+            final WorkRejectionPolicy rejectionPolicy) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("Weight of work class " + workClass + " must be strictly positive but was " + weight);
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity of work class " + workClass + " must be strictly positive but was " + queueCapacity);
+        }
+        this.workClass = workClass;
+        this.weight = weight;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public WorkPriorityClass getWorkClass() {
+        return workClass;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public WorkRejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkClassConfiguration{workClass=" + workClass + ", weight=" + weight + ", queueCapacity=" + queueCapacity + ", rejectionPolicy="
+                + rejectionPolicy + "}";
+    }
+
+}
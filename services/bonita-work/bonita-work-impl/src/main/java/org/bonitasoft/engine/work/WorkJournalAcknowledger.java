@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.bonitasoft.engine.log.technical.TechnicalLogSeverity;
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+
+/**
+ * Collects the journal entries of executed works and removes them by batches.
+ * Works are executed outside of any transaction, so the entries are removed by the next transaction registering works instead of opening a
+ * dedicated transaction for each executed work.
+ */
+class WorkJournalAcknowledger {
+
+    static final int BATCH_SIZE = 100;
+
+    private final WorkJournal journal;
+
+    private final TechnicalLoggerService loggerService;
+
+    private final Queue<Long> acknowledgedEntries = new ConcurrentLinkedQueue<>();
+
+    WorkJournalAcknowledger(final WorkJournal journal, final TechnicalLoggerService loggerService) {
+        this.journal = journal;
+        this.loggerService = loggerService;
+    }
+
+    WorkJournal getJournal() {
+        return journal;
+    }
+
+    void acknowledge(final long entryId) {
+        acknowledgedEntries.add(entryId);
+    }
+
+    /**
+     * Remove at most {@link #BATCH_SIZE} acknowledged entries from the journal. Must be called within an active transaction.
+     *
+     * @return the ids of the removed entries, to be given back using {@link #requeue(Collection)} if the transaction is rolled back
+     */
+    List<Long> flush() {
+        final List<Long> entryIds = new ArrayList<>();
+        Long entryId;
+        while (entryIds.size() < BATCH_SIZE && (entryId = acknowledgedEntries.poll()) != null) {
+            entryIds.add(entryId);
+        }
+        if (entryIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            journal.remove(entryIds);
+        } catch (final SWorkException e) {
+            requeue(entryIds);
+            if (loggerService.isLoggable(getClass(), TechnicalLogSeverity.WARNING)) {
+                loggerService.log(getClass(), TechnicalLogSeverity.WARNING, "Unable to remove " + entryIds.size() + " entries of the work journal", e);
+            }
+            return Collections.emptyList();
+        }
+        return entryIds;
+    }
+
+    void requeue(final Collection<Long> entryIds) {
+        acknowledgedEntries.addAll(entryIds);
+    }
+
+    int getNumberOfAcknowledgedEntries() {
+        return acknowledgedEntries.size();
+    }
+
+}
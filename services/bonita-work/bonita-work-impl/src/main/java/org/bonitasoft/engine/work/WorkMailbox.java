@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+
+/**
+ * FIFO of works targeting the same process instance.
+ * All accesses must be done while holding the monitor of the mailbox.
+ */
+class WorkMailbox {
+
+    private final long processInstanceId;
+
+    private final Queue<QueuedWork> works = new ArrayDeque<>();
+
+    private boolean scheduled;
+
+    private boolean closed;
+
+    WorkMailbox(final long processInstanceId) {
+        this.processInstanceId = processInstanceId;
+    }
+
+    long getProcessInstanceId() {
+        return processInstanceId;
+    }
+
+    /**
+     * @return the number of works in the mailbox after the work was added
+     */
+    int add(final BonitaWork work) {
+        works.add(new QueuedWork(work, System.nanoTime()));
+        return works.size();
+    }
+
+    QueuedWork poll() {
+        return works.poll();
+    }
+
+    QueuedWork peek() {
+        return works.peek();
+    }
+
+    /**
+     * @return true if the work was in the mailbox
+     */
+    boolean remove(final BonitaWork work) {
+        final Iterator<QueuedWork> iterator = works.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getWork() == work) {
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return works.size();
+    }
+
+    void clear() {
+        works.clear();
+    }
+
+    boolean isScheduled() {
+        return scheduled;
+    }
+
+    void setScheduled(final boolean scheduled) {
+        this.scheduled = scheduled;
+    }
+
+    /**
+     * A closed mailbox was removed from the executor and must not receive new works
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    static final class QueuedWork {
+
+        private final BonitaWork work;
+
+        private final long enqueuedAt;
+
+        QueuedWork(final BonitaWork work, final long enqueuedAt) {
+            this.work = work;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        BonitaWork getWork() {
+            return work;
+        }
+
+        long getEnqueuedAt() {
+            return enqueuedAt;
+        }
+
+    }
+
+}
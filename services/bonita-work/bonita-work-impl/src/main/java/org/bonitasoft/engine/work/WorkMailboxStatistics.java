@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+/**
+ * Snapshot of the metrics of the process instance mailboxes of a {@link MailboxBonitaThreadPoolExecutor}
+ */
+public class WorkMailboxStatistics {
+
+    private final int activeMailboxes;
+
+    private final int pendingWorks;
+
+    private final int maxMailboxDepth;
+
+    private final long executedWorks;
+
+    private final long totalWaitTimeMillis;
+
+    private final long maxWaitTimeMillis;
+
+    public WorkMailboxStatistics(final int activeMailboxes, final int pendingWorks, final int maxMailboxDepth, final long executedWorks,
+            final long totalWaitTimeMillis, final long maxWaitTimeMillis) {
+        this.activeMailboxes = activeMailboxes;
+        this.pendingWorks = pendingWorks;
+        this.maxMailboxDepth = maxMailboxDepth;
+        this.executedWorks = executedWorks;
+        this.totalWaitTimeMillis = totalWaitTimeMillis;
+        this.maxWaitTimeMillis = maxWaitTimeMillis;
+    }
+
+    /**
+     * @return number of process instances having at least one work queued or running
+     */
+    public int getActiveMailboxes() {
+        return activeMailboxes;
+    }
+
+    /**
+     * @return number of works waiting in all mailboxes
+     */
+    public int getPendingWorks() {
+        return pendingWorks;
+    }
+
+    /**
+     * @return highest number of works observed in a single mailbox
+     */
+    public int getMaxMailboxDepth() {
+        return maxMailboxDepth;
+    }
+
+    /**
+     * @return number of works taken out of a mailbox to be executed
+     */
+    public long getExecutedWorks() {
+        return executedWorks;
+    }
+
+    /**
+     * @return cumulated time spent by works in mailboxes before being executed
+     */
+    public long getTotalWaitTimeMillis() {
+        return totalWaitTimeMillis;
+    }
+
+    /**
+     * @return highest time spent by a work in a mailbox before being executed
+     */
+    public long getMaxWaitTimeMillis() {
+        return maxWaitTimeMillis;
+    }
+
+    public long getAverageWaitTimeMillis() {
+        return executedWorks == 0 ? 0 : totalWaitTimeMillis / executedWorks;
+    }
+
+    @Override
+    public String toString() {
+        return "activeMailboxes=" + activeMailboxes + ", pendingWorks=" + pendingWorks + ", maxMailboxDepth=" + maxMailboxDepth + ", executedWorks="
+                + executedWorks + ", averageWaitTimeMillis=" + getAverageWaitTimeMillis() + ", maxWaitTimeMillis=" + maxWaitTimeMillis;
+    }
+
+}
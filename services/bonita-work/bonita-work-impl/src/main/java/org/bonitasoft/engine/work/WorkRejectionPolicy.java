@@ -0,0 +1,33 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+/**
+ * What to do with a work when the queue of its {@link WorkPriorityClass} is full
+ */
+public enum WorkRejectionPolicy {
+
+    /**
+     * reject the work with a {@link java.util.concurrent.RejectedExecutionException}
+     */
+    ABORT,
+
+    /**
+     * slow down the producers of works: API calls wait, before opening their transaction, until the queue of the class is back under its capacity,
+     * and are refused if it stays full. A work registered by a committed transaction is never refused: it is queued even above the capacity of its
+     * class, and never executed in the thread that submitted it.
+     */
+    WAIT
+
+}
@@ -14,7 +14,9 @@
 package org.bonitasoft.engine.work;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 
 import org.bonitasoft.engine.sessionaccessor.STenantIdNotSetException;
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
@@ -30,6 +32,10 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
 
     private long tenantId;
 
+    private WorkJournalAcknowledger journalAcknowledger;
+
+    private List<Long> removedJournalEntries = Collections.emptyList();
+
     WorkSynchronization(final BonitaExecutorService executorService, final SessionAccessor sessionAccessor,
             final WorkService workService) {
         super();
@@ -53,6 +59,14 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
         return works;
     }
 
+    /**
+     * Journal entries removed in this transaction: they are given back to the acknowledger if the transaction is not committed
+     */
+    void setRemovedJournalEntries(final WorkJournalAcknowledger journalAcknowledger, final List<Long> removedJournalEntries) {
+        this.journalAcknowledger = journalAcknowledger;
+        this.removedJournalEntries = removedJournalEntries;
+    }
+
     @Override
     public void beforeCommit() {
     }
@@ -63,9 +77,9 @@ public class WorkSynchronization implements BonitaTransactionSynchronization {
             for (final BonitaWork work : works) {
                 work.setTenantId(tenantId);
             }
-            for (final BonitaWork work : works) {
-                executorService.execute(work);
-            }
+            executorService.executeAll(works);
+        } else if (!removedJournalEntries.isEmpty()) {
+            journalAcknowledger.requeue(removedJournalEntries);
         }
         workService.removeSynchronization();
     }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.junit.After;
+import org.junit.Test;
+
+public class BonitaThreadPoolExecutorTest {
+
+    private BonitaThreadPoolExecutor executor;
+
+    @After
+    public void after() throws Exception {
+        executor.shutdownAndEmptyQueue();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    private BonitaThreadPoolExecutor createExecutor(final int corePoolSize, final int maximumPoolSize, final int queueCapacity) {
+        return new BonitaThreadPoolExecutor(corePoolSize, maximumPoolSize, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new WorkerThreadFactory("test-worker", 1, maximumPoolSize), new ThreadPoolExecutor.AbortPolicy(), mock(TechnicalLoggerService.class));
+    }
+
+    @Test
+    public void executeAll_should_execute_all_tasks() throws Exception {
+        executor = createExecutor(4, 4, 1000);
+        final CountDownLatch latch = new CountDownLatch(200);
+
+        executor.executeAll(countDownTasks(200, latch));
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.getPoolSize()).isEqualTo(4);
+    }
+
+    @Test
+    public void executeAll_should_execute_all_tasks_when_there_is_no_core_thread() throws Exception {
+        executor = createExecutor(0, 2, 1000);
+        final CountDownLatch latch = new CountDownLatch(20);
+
+        executor.executeAll(countDownTasks(20, latch));
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void executeAll_should_reject_tasks_when_queue_is_full() throws Exception {
+        executor = createExecutor(1, 1, 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+        }
+        try {
+            executor.executeAll(tasks);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void executeAll_should_do_nothing_when_shutdown() throws Exception {
+        executor = createExecutor(1, 1, 10);
+        executor.shutdownAndEmptyQueue();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        executor.executeAll(countDownTasks(1, latch));
+
+        assertThat(latch.await(100, TimeUnit.MILLISECONDS)).isFalse();
+    }
+
+    @Test
+    public void awaitCapacity_should_wait_for_the_classes_that_wait_except_in_the_threads_of_the_executor() throws Exception {
+        final WeightedFairWorkQueue queue = new WeightedFairWorkQueue(Arrays.asList(new WorkClassConfiguration(WorkPriorityClass.CONNECTOR, 1, 1,
+                WorkRejectionPolicy.WAIT), new WorkClassConfiguration(WorkPriorityClass.OTHER, 1, 10, WorkRejectionPolicy.ABORT)), false, 10,
+                TimeUnit.MILLISECONDS);
+        executor = new BonitaThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, queue, new WorkerThreadFactory("test-worker", 1, 1),
+                new ThreadPoolExecutor.AbortPolicy(), mock(TechnicalLoggerService.class));
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch awaited = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                    // the queue of the connectors is still full: a thread of the executor must not wait for itself
+                    executor.awaitCapacity();
+                    awaited.countDown();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        queue.offer(new ConnectorTask());
+        queue.offer(new ConnectorTask());
+
+        try {
+            executor.awaitCapacity();
+            fail("should be rejected");
+        } catch (final RejectedExecutionException e) {
+            assertThat(e.getMessage()).contains("CONNECTOR");
+        }
+        release.countDown();
+        assertThat(awaited.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private static final class ConnectorTask implements ClassifiedTask {
+
+        @Override
+        public WorkPriorityClass getPriorityClass() {
+            return WorkPriorityClass.CONNECTOR;
+        }
+
+        @Override
+        public long getProcessDefinitionId() {
+            return -1L;
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private List<Runnable> countDownTasks(final int nbTasks, final CountDownLatch latch) {
+        final List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < nbTasks; i++) {
+            tasks.add(new Runnable() {
+
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+        }
+        return tasks;
+    }
+
+}
@@ -15,9 +15,16 @@ package org.bonitasoft.engine.work;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 public class DefaultBonitaExecutorServiceFactoryTest {
 
@@ -38,4 +45,97 @@ public class DefaultBonitaExecutorServiceFactoryTest {
         String name = ((ThreadPoolExecutor) createExecutorService).getThreadFactory().newThread(r).getName();
         assertThat(name).as("thread name should contains the tenantId").contains(Long.toString(tenantId));
     }
+
+    @Test
+    public void should_use_a_weighted_fair_queue_when_priority_classes_are_enabled() {
+        final DefaultBonitaExecutorServiceFactory factory = new DefaultBonitaExecutorServiceFactory(null, 1, 1, 20, 15, 10, false, true,
+                Arrays.asList(new WorkClassConfiguration(WorkPriorityClass.OTHER, 1, 10, WorkRejectionPolicy.ABORT)), true);
+
+        final BonitaExecutorService executorService = factory.createExecutorService();
+
+        assertThat(((ThreadPoolExecutor) executorService).getQueue()).isInstanceOf(WeightedFairWorkQueue.class);
+    }
+
+    @Test
+    public void should_apply_rejection_policy_of_the_class_of_the_work() throws Exception {
+        final DefaultBonitaExecutorServiceFactory factory = new DefaultBonitaExecutorServiceFactory(Mockito.mock(TechnicalLoggerService.class), 1, 1,
+                20, 1, 10, false, true, Arrays.asList(new WorkClassConfiguration(WorkPriorityClass.OTHER, 1, 1, WorkRejectionPolicy.ABORT),
+                        new WorkClassConfiguration(WorkPriorityClass.CONNECTOR, 1, 1, WorkRejectionPolicy.WAIT)),
+                false);
+        final ThreadPoolExecutor executorService = (ThreadPoolExecutor) factory.createExecutorService();
+        final Map<String, Thread> executedBy = new ConcurrentHashMap<>();
+        try {
+            // keep the only thread busy and fill the queues
+            executorService.getQueue().offer(new ConnectorRunnable("queued", executedBy));
+            final CountDownLatch release = new CountDownLatch(1);
+            executorService.execute(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            executorService.getQueue().offer(new Runnable() {
+
+                @Override
+                public void run() {
+                }
+            });
+
+            // the queue of the connectors is full but they wait: the work is queued anyway, not run by the caller nor dropped
+            executorService.execute(new ConnectorRunnable("waiting", executedBy));
+            assertThat(executedBy).doesNotContainKey("waiting");
+            assertThat(((WeightedFairWorkQueue) executorService.getQueue()).size(WorkPriorityClass.CONNECTOR)).isEqualTo(2);
+            try {
+                executorService.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                    }
+                });
+                fail("should be rejected");
+            } catch (final RejectedExecutionException e) {
+                assertThat(e.getMessage()).contains("OTHER");
+            }
+            release.countDown();
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (!executedBy.containsKey("waiting") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(executedBy.get("waiting")).isNotNull().isNotSameAs(Thread.currentThread());
+        } finally {
+            ((BonitaExecutorService) executorService).shutdownAndEmptyQueue();
+        }
+    }
+
+    private static final class ConnectorRunnable implements ClassifiedTask {
+
+        private final String name;
+
+        private final Map<String, Thread> executedBy;
+
+        ConnectorRunnable(final String name, final Map<String, Thread> executedBy) {
+            this.name = name;
+            this.executedBy = executedBy;
+        }
+
+        @Override
+        public WorkPriorityClass getPriorityClass() {
+            return WorkPriorityClass.CONNECTOR;
+        }
+
+        @Override
+        public long getProcessDefinitionId() {
+            return -1L;
+        }
+
+        @Override
+        public void run() {
+            executedBy.put(name, Thread.currentThread());
+        }
+    }
 }
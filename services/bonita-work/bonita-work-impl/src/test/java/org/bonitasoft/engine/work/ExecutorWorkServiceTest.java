@@ -14,15 +14,30 @@
 package org.bonitasoft.engine.work;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import org.bonitasoft.engine.commons.exceptions.SBonitaException;
@@ -39,7 +54,9 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ExecutorWorkServiceTest {
@@ -56,6 +73,8 @@ public class ExecutorWorkServiceTest {
     private BonitaExecutorService executorService;
     @Mock
     private Queue<Runnable> queue;
+    @Mock
+    private WorkJournal workJournal;
     private ExecutorWorkService workService;
     @Captor
     private ArgumentCaptor<BonitaTransactionSynchronization> captor;
@@ -205,6 +224,25 @@ public class ExecutorWorkServiceTest {
 
     }
 
+    @Test(expected = SWorkRegisterException.class)
+    public void awaitCapacity_should_refuse_the_caller_when_the_queue_stays_full() throws Exception {
+        // given
+        workService.start();
+        doThrow(RejectedExecutionException.class).when(executorService).awaitCapacity();
+
+        // when
+        workService.awaitCapacity();
+    }
+
+    @Test
+    public void awaitCapacity_should_not_wait_when_the_service_is_stopped() throws Exception {
+        // when
+        workService.awaitCapacity();
+
+        // then
+        verify(executorService, never()).awaitCapacity();
+    }
+
     @Test(expected = SWorkRegisterException.class)
     public void executeWorkShouldThrowExceptionWhenTenantIdNotSet() throws SWorkRegisterException, STenantIdNotSetException {
         // given
@@ -239,6 +277,139 @@ public class ExecutorWorkServiceTest {
         return work;
     }
 
+    @Test
+    public void executeWorkWhenDone_should_submit_the_work_only_once_the_stage_is_completed() throws SBonitaException {
+        // given
+        workService.start();
+        final BonitaWork bonitaWork = createBonitaWork();
+        final CompletableFuture<String> stage = new CompletableFuture<>();
+
+        // when
+        workService.executeWorkWhenDone(bonitaWork, stage);
+
+        // then
+        verify(executorService, never()).submit(bonitaWork);
+        stage.complete("done");
+        verify(executorService).submit(bonitaWork);
+        assertThat(bonitaWork.getTenantId()).isEqualTo(1L);
+    }
+
+    @Test
+    public void executeWorkWhenDone_should_submit_the_work_when_the_stage_fails() throws SBonitaException {
+        // given
+        workService.start();
+        final BonitaWork bonitaWork = createBonitaWork();
+        final CompletableFuture<String> stage = new CompletableFuture<>();
+        workService.executeWorkWhenDone(bonitaWork, stage);
+
+        // when
+        stage.completeExceptionally(new IllegalStateException());
+
+        // then
+        verify(executorService).submit(bonitaWork);
+    }
+
+    @Test
+    public void executeWorkWhenDone_should_submit_the_work_again_when_the_queue_is_full() throws Exception {
+        // given
+        workService.start();
+        final BonitaWork bonitaWork = createBonitaWork();
+        final CompletableFuture<String> stage = new CompletableFuture<>();
+        final CountDownLatch submittedAgain = new CountDownLatch(1);
+        doThrow(new RejectedExecutionException("queue is full")).doAnswer(new Answer<Void>() {
+
+            @Override
+            public Void answer(final InvocationOnMock invocation) {
+                submittedAgain.countDown();
+                return null;
+            }
+        }).when(executorService).submit(bonitaWork);
+        workService.executeWorkWhenDone(bonitaWork, stage);
+
+        // when
+        stage.complete("done");
+
+        // then
+        assertThat(submittedAgain.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(executorService, times(2)).submit(bonitaWork);
+        verify(loggerService).log(eq(ExecutorWorkService.class), eq(TechnicalLogSeverity.WARNING), contains("will be submitted again"));
+    }
+
+    @Test
+    public void executeWorkWhenDone_should_not_submit_the_work_when_service_was_stopped_meanwhile() throws SBonitaException {
+        // given
+        workService.start();
+        final BonitaWork bonitaWork = createBonitaWork();
+        final CompletableFuture<String> stage = new CompletableFuture<>();
+        workService.executeWorkWhenDone(bonitaWork, stage);
+        workService.stop();
+
+        // when
+        stage.complete("done");
+
+        // then
+        verify(executorService, never()).submit(bonitaWork);
+    }
+
+    @Test
+    public void executeWorkWhenDone_should_acknowledge_journaled_work_only_after_continuation() throws Exception {
+        // given
+        workService = new ExecutorWorkService(transactionService, loggerService, sessionAccessor, bonitaExecutorServiceFactory, 30, workJournal);
+        workService.start();
+        final WorkJournalAcknowledger acknowledger = mock(WorkJournalAcknowledger.class);
+        final JournaledWork journaledWork = new JournaledWork(createBonitaWork(), 12L, acknowledger);
+        final CompletableFuture<String> stage = new CompletableFuture<>();
+
+        // when
+        workService.executeWorkWhenDone(journaledWork, stage);
+        journaledWork.work(new HashMap<String, Object>());
+
+        // then
+        verify(acknowledger, never()).acknowledge(anyLong());
+        stage.complete("done");
+        journaledWork.work(new HashMap<String, Object>());
+        verify(acknowledger).acknowledge(12L);
+    }
+
+    @Test
+    public void journaled_work_should_handle_failure_and_acknowledge_its_entry_when_it_fails() throws Exception {
+        // given
+        final WorkJournalAcknowledger acknowledger = mock(WorkJournalAcknowledger.class);
+        final BonitaWork failingWork = mock(BonitaWork.class);
+        final Exception failure = new Exception("failure");
+        doThrow(failure).when(failingWork).work(anyMapOf(String.class, Object.class));
+        final JournaledWork journaledWork = new JournaledWork(failingWork, 12L, acknowledger);
+
+        // when
+        journaledWork.work(new HashMap<String, Object>());
+
+        // then
+        final InOrder inOrder = inOrder(failingWork, acknowledger);
+        inOrder.verify(failingWork).handleFailure(eq(failure), anyMapOf(String.class, Object.class));
+        inOrder.verify(acknowledger).acknowledge(12L);
+    }
+
+    @Test
+    public void journaled_work_should_acknowledge_its_entry_even_when_its_failure_handling_fails() throws Exception {
+        // given
+        final WorkJournalAcknowledger acknowledger = mock(WorkJournalAcknowledger.class);
+        final BonitaWork failingWork = mock(BonitaWork.class);
+        final Exception failure = new Exception("failure");
+        doThrow(failure).when(failingWork).handleFailure(any(Exception.class), anyMapOf(String.class, Object.class));
+        final JournaledWork journaledWork = new JournaledWork(failingWork, 12L, acknowledger);
+
+        // when
+        try {
+            journaledWork.handleFailure(new Exception("work failure"), new HashMap<String, Object>());
+            fail("the failure of the failure handling should be thrown");
+        } catch (final Exception e) {
+            assertThat(e).isSameAs(failure);
+        }
+
+        // then
+        verify(acknowledger).acknowledge(12L);
+    }
+
     @Test
     public void should_start_do_nothing_when_already_started() {
         // given
@@ -339,4 +510,127 @@ public class ExecutorWorkServiceTest {
         assertThat(((WorkSynchronization) transactionSynchro).getWorks()).containsOnly(bonitaWork);
     }
 
+    @Test
+    public void registerWork_should_append_the_work_to_the_journal() throws SBonitaException {
+        // given
+        workService = new ExecutorWorkService(transactionService, loggerService, sessionAccessor, bonitaExecutorServiceFactory, 30, workJournal);
+        workService.start();
+        final BonitaWork bonitaWork = createBonitaWork();
+        doReturn(12L).when(workJournal).append(bonitaWork);
+
+        // when
+        workService.registerWork(bonitaWork);
+
+        // then
+        verify(transactionService).registerBonitaSynchronization(captor.capture());
+        final Collection<BonitaWork> works = ((WorkSynchronization) captor.getValue()).getWorks();
+        assertThat(works).hasSize(1);
+        final JournaledWork journaledWork = (JournaledWork) works.iterator().next();
+        assertThat(journaledWork.getWrappedWork()).isSameAs(bonitaWork);
+        assertThat(journaledWork.getEntryId()).isEqualTo(12L);
+    }
+
+    @Test
+    public void registerWork_should_not_wrap_work_that_is_not_journaled() throws SBonitaException {
+        // given
+        workService = new ExecutorWorkService(transactionService, loggerService, sessionAccessor, bonitaExecutorServiceFactory, 30, workJournal);
+        workService.start();
+        final BonitaWork bonitaWork = createBonitaWork();
+        doReturn(-1L).when(workJournal).append(bonitaWork);
+
+        // when
+        workService.registerWork(bonitaWork);
+
+        // then
+        verify(transactionService).registerBonitaSynchronization(captor.capture());
+        assertThat(((WorkSynchronization) captor.getValue()).getWorks()).containsOnly(bonitaWork);
+    }
+
+    @Test
+    public void registerWork_should_remove_entries_of_executed_works_in_next_transaction() throws Exception {
+        // given
+        workService = new ExecutorWorkService(transactionService, loggerService, sessionAccessor, bonitaExecutorServiceFactory, 30, workJournal);
+        workService.start();
+        doReturn(12L).when(workJournal).append(any(BonitaWork.class));
+        workService.registerWork(createBonitaWork());
+        verify(transactionService).registerBonitaSynchronization(captor.capture());
+        final JournaledWork journaledWork = (JournaledWork) ((WorkSynchronization) captor.getValue()).getWorks().iterator().next();
+        journaledWork.work(new HashMap<String, Object>());
+        workService.removeSynchronization();
+
+        // when
+        workService.registerWork(createBonitaWork());
+
+        // then
+        verify(workJournal).remove(Collections.singletonList(12L));
+    }
+
+    @Test
+    public void should_not_remove_entry_of_resubmitted_work_before_its_last_execution() throws Exception {
+        // given
+        workService = new ExecutorWorkService(transactionService, loggerService, sessionAccessor, bonitaExecutorServiceFactory, 30, workJournal);
+        workService.start();
+        doReturn(12L).when(workJournal).append(any(BonitaWork.class));
+        workService.registerWork(createBonitaWork());
+        verify(transactionService).registerBonitaSynchronization(captor.capture());
+        final JournaledWork journaledWork = (JournaledWork) ((WorkSynchronization) captor.getValue()).getWorks().iterator().next();
+        workService.executeWork(journaledWork);
+        journaledWork.work(new HashMap<String, Object>());
+        workService.removeSynchronization();
+
+        // when
+        workService.registerWork(createBonitaWork());
+
+        // then
+        verify(workJournal, never()).remove(anyListOf(Long.class));
+    }
+
+    @Test
+    public void registerWork_from_concurrent_threads_should_use_one_synchronization_per_thread() throws Exception {
+        // given
+        workService.start();
+        final int nbThreads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService threads = Executors.newFixedThreadPool(nbThreads);
+        final List<Future<List<BonitaWork>>> registeredWorks = new ArrayList<>();
+        for (int i = 0; i < nbThreads; i++) {
+            registeredWorks.add(threads.submit(new Callable<List<BonitaWork>>() {
+
+                @Override
+                public List<BonitaWork> call() throws Exception {
+                    start.await();
+                    final List<BonitaWork> works = new ArrayList<>();
+                    for (int j = 0; j < 50; j++) {
+                        final BonitaWork work = createBonitaWork();
+                        workService.registerWork(work);
+                        works.add(work);
+                    }
+                    return works;
+                }
+            }));
+        }
+
+        // when
+        start.countDown();
+        final List<List<BonitaWork>> worksOfThreads = new ArrayList<>();
+        for (final Future<List<BonitaWork>> future : registeredWorks) {
+            worksOfThreads.add(future.get(10, TimeUnit.SECONDS));
+        }
+        threads.shutdown();
+
+        // then
+        verify(transactionService, times(nbThreads)).registerBonitaSynchronization(captor.capture());
+        final List<Collection<BonitaWork>> worksOfSynchronizations = new ArrayList<>();
+        for (final BonitaTransactionSynchronization synchronization : captor.getAllValues()) {
+            worksOfSynchronizations.add(new ArrayList<>(((WorkSynchronization) synchronization).getWorks()));
+        }
+        for (final List<BonitaWork> works : worksOfThreads) {
+            boolean found = false;
+            for (final Collection<BonitaWork> worksOfSynchronization : worksOfSynchronizations) {
+                found |= worksOfSynchronization.size() == works.size() && worksOfSynchronization.containsAll(works);
+            }
+            assertThat(found).as("works of a thread are all in the same synchronization").isTrue();
+        }
+    }
+
 }
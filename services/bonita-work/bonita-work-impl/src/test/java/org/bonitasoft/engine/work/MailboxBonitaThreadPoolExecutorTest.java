@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.engine.log.technical.TechnicalLoggerService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MailboxBonitaThreadPoolExecutorTest {
+
+    private MailboxBonitaThreadPoolExecutor executor;
+
+    @Before
+    public void before() {
+        executor = new MailboxBonitaThreadPoolExecutor(4, 4, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1000),
+                new WorkerThreadFactory("test-worker", 1, 4), new ThreadPoolExecutor.AbortPolicy(), mock(TechnicalLoggerService.class));
+    }
+
+    @After
+    public void after() throws Exception {
+        executor.shutdownAndEmptyQueue();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void should_execute_works_of_a_process_instance_one_after_the_other_in_order() throws Exception {
+        final List<Integer> executionOrder = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(50);
+        for (int i = 0; i < 50; i++) {
+            executor.execute(new TestWork(12L, i, executionOrder, running, maxRunning, latch));
+        }
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(executionOrder).isSorted().hasSize(50);
+    }
+
+    @Test
+    public void should_execute_works_of_different_process_instances_concurrently() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        executor.execute(new BlockingWork(1L, started, release));
+        executor.execute(new BlockingWork(2L, started, release));
+
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+    }
+
+    @Test
+    public void should_continue_draining_mailbox_when_a_work_fails() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(new FailingWork(3L));
+        executor.execute(new BlockingWork(3L, latch, new CountDownLatch(0)));
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void should_record_mailbox_statistics() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new BlockingWork(4L, started, release));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        executor.execute(new BlockingWork(4L, new CountDownLatch(1), new CountDownLatch(0)));
+        executor.execute(new BlockingWork(4L, done, new CountDownLatch(0)));
+
+        WorkMailboxStatistics statistics = executor.getStatistics();
+        assertThat(statistics.getActiveMailboxes()).isEqualTo(1);
+        assertThat(statistics.getPendingWorks()).isEqualTo(2);
+        assertThat(statistics.getMaxMailboxDepth()).isEqualTo(2);
+
+        release.countDown();
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        statistics = executor.getStatistics();
+        assertThat(statistics.getExecutedWorks()).isEqualTo(3);
+        assertThat(statistics.getPendingWorks()).isEqualTo(0);
+    }
+
+    @Test
+    public void executeAll_should_route_works_to_their_mailbox() throws Exception {
+        final List<Integer> executionOrder = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(50);
+        final List<TestWork> works = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            works.add(new TestWork(13L, i, executionOrder, running, maxRunning, latch));
+        }
+
+        executor.executeAll(works);
+
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(executionOrder).isSorted().hasSize(50);
+    }
+
+    @Test
+    public void should_keep_and_schedule_again_the_other_works_of_a_mailbox_when_its_first_work_is_rejected() throws Exception {
+        executor.shutdownAndEmptyQueue();
+        final List<Integer> executionOrder = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch executed = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger rejections = new AtomicInteger();
+        executor = new MailboxBonitaThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(1),
+                new WorkerThreadFactory("test-worker", 1, 1), new RejectedExecutionHandler() {
+
+                    @Override
+                    public void rejectedExecution(final Runnable r, final ThreadPoolExecutor e) {
+                        if (rejections.incrementAndGet() == 1) {
+                            // a work of the same process instance is added while the first one is being rejected
+                            executor.execute(new TestWork(5L, 2, executionOrder, running, maxRunning, executed));
+                        }
+                        throw new RejectedExecutionException();
+                    }
+                }, mock(TechnicalLoggerService.class));
+        // the only thread is busy and the queue is full
+        executor.execute(new BlockingWork(1L, started, release));
+        started.await(5, TimeUnit.SECONDS);
+        executor.execute(new BlockingWork(2L, new CountDownLatch(1), new CountDownLatch(0)));
+        try {
+            executor.execute(new TestWork(5L, 1, executionOrder, running, maxRunning, executed));
+            fail("the work should have been rejected");
+        } catch (final RejectedExecutionException e) {
+            // expected
+        }
+        // the queued work of process instance 2 and the one added during the rejection
+        assertThat(executor.getStatistics().getPendingWorks()).isEqualTo(2);
+
+        // no other work of the process instance comes
+        release.countDown();
+
+        assertThat(executed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executionOrder).containsExactly(2);
+    }
+
+    @Test
+    public void should_be_flagged_as_mailbox_enabled() {
+        assertThat(executor.isProcessInstanceMailboxEnabled()).isTrue();
+    }
+
+    private abstract static class ProcessInstanceWork extends BonitaWork {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long processInstanceId;
+
+        ProcessInstanceWork(final long processInstanceId) {
+            this.processInstanceId = processInstanceId;
+        }
+
+        @Override
+        public long getLockedProcessInstanceId() {
+            return processInstanceId;
+        }
+
+        @Override
+        public String getDescription() {
+            return getClass().getSimpleName() + " on " + processInstanceId;
+        }
+
+        @Override
+        public void handleFailure(final Exception e, final Map<String, Object> context) {
+        }
+
+    }
+
+    private static class TestWork extends ProcessInstanceWork {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        private final List<Integer> executionOrder;
+
+        private final AtomicInteger running;
+
+        private final AtomicInteger maxRunning;
+
+        private final CountDownLatch latch;
+
+        TestWork(final long processInstanceId, final int index, final List<Integer> executionOrder, final AtomicInteger running,
+                final AtomicInteger maxRunning, final CountDownLatch latch) {
+            super(processInstanceId);
+            this.index = index;
+            this.executionOrder = executionOrder;
+            this.running = running;
+            this.maxRunning = maxRunning;
+            this.latch = latch;
+        }
+
+        @Override
+        public void work(final Map<String, Object> context) throws Exception {
+            final int current = running.incrementAndGet();
+            if (current > maxRunning.get()) {
+                maxRunning.set(current);
+            }
+            executionOrder.add(index);
+            Thread.sleep(1);
+            running.decrementAndGet();
+            latch.countDown();
+        }
+
+    }
+
+    private static class BlockingWork extends ProcessInstanceWork {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CountDownLatch started;
+
+        private final CountDownLatch release;
+
+        BlockingWork(final long processInstanceId, final CountDownLatch started, final CountDownLatch release) {
+            super(processInstanceId);
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public void work(final Map<String, Object> context) throws Exception {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+        }
+
+    }
+
+    private static class FailingWork extends ProcessInstanceWork {
+
+        private static final long serialVersionUID = 1L;
+
+        FailingWork(final long processInstanceId) {
+            super(processInstanceId);
+        }
+
+        @Override
+        public void work(final Map<String, Object> context) throws Exception {
+            throw new Exception("failure");
+        }
+
+    }
+
+}
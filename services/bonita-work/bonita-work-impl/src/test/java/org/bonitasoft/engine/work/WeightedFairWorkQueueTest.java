@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) 2017 BonitaSoft S.A.
+ * BonitaSoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This library is free software; you can redistribute it and/or modify it under the terms
+ * of the GNU Lesser General Public License as published by the Free Software Foundation
+ * version 2.1 of the License.
+ * This library is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License along with this
+ * program; if not, write to the Free Software Foundation, Inc., 51 Franklin Street, Fifth
+ * Floor, Boston, MA 02110-1301, USA.
+ **/
+package org.bonitasoft.engine.work;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.engine.work.WorkPriorityClass.CONNECTOR;
+import static org.bonitasoft.engine.work.WorkPriorityClass.FLOW_NODE;
+import static org.bonitasoft.engine.work.WorkPriorityClass.MESSAGE;
+import static org.bonitasoft.engine.work.WorkPriorityClass.NOTIFY_CHILD;
+import static org.bonitasoft.engine.work.WorkPriorityClass.OTHER;
+import static org.bonitasoft.engine.work.WorkRejectionPolicy.ABORT;
+import static org.bonitasoft.engine.work.WorkRejectionPolicy.WAIT;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class WeightedFairWorkQueueTest {
+
+    private WeightedFairWorkQueue createQueue(final boolean fairAcrossProcessDefinitions) {
+        return new WeightedFairWorkQueue(asList(new WorkClassConfiguration(FLOW_NODE, 2, 10, ABORT),
+                new WorkClassConfiguration(CONNECTOR, 1, 10, ABORT),
+                new WorkClassConfiguration(OTHER, 1, 10, ABORT)), fairAcrossProcessDefinitions);
+    }
+
+    @Test
+    public void should_serve_classes_in_weighted_round_robin() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new ClassWork(CONNECTOR, 1L, "c" + i));
+        }
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new ClassWork(FLOW_NODE, 1L, "f" + i));
+        }
+
+        assertThat(pollAll(queue)).containsExactly("f0", "f1", "c0", "f2", "f3", "c1", "f4", "c2", "c3", "c4");
+    }
+
+    @Test
+    public void should_keep_fifo_order_inside_a_class() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c0"));
+        queue.offer(new ClassWork(CONNECTOR, 2L, "c1"));
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c2"));
+
+        assertThat(pollAll(queue)).containsExactly("c0", "c1", "c2");
+    }
+
+    @Test
+    public void should_serve_process_definitions_in_turn_when_fair_across_process_definitions() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(true);
+        queue.offer(new ClassWork(CONNECTOR, 1L, "a0"));
+        queue.offer(new ClassWork(CONNECTOR, 1L, "a1"));
+        queue.offer(new ClassWork(CONNECTOR, 1L, "a2"));
+        queue.offer(new ClassWork(CONNECTOR, 2L, "b0"));
+        queue.offer(new ClassWork(CONNECTOR, 3L, "c0"));
+        queue.offer(new ClassWork(CONNECTOR, 2L, "b1"));
+
+        assertThat(pollAll(queue)).containsExactly("a0", "b0", "c0", "a1", "b1", "a2");
+    }
+
+    @Test
+    public void should_put_works_of_classes_not_configured_in_other() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        final ClassWork work = new ClassWork(MESSAGE, 1L, "m0");
+
+        queue.offer(work);
+
+        assertThat(queue.size(OTHER)).isEqualTo(1);
+        assertThat(queue.getConfiguration(work).getWorkClass()).isEqualTo(OTHER);
+        assertThat(queue.getConfiguration(new Runnable() {
+
+            @Override
+            public void run() {
+            }
+        }).getWorkClass()).isEqualTo(OTHER);
+    }
+
+    @Test
+    public void should_refuse_work_when_its_class_is_full() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        for (int i = 0; i < 10; i++) {
+            assertThat(queue.offer(new ClassWork(CONNECTOR, 1L, "c" + i))).isTrue();
+        }
+
+        assertThat(queue.offer(new ClassWork(CONNECTOR, 1L, "rejected"))).isFalse();
+        assertThat(queue.offer(new ClassWork(FLOW_NODE, 1L, "f0"))).isTrue();
+        assertThat(queue.offer(new ClassWork(CONNECTOR, 1L, "rejected"), 10, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.size()).isEqualTo(11);
+        assertThat(queue.remainingCapacity()).isEqualTo(19);
+    }
+
+    @Test
+    public void should_classify_mailbox_of_works_like_the_work_that_scheduled_it() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+
+        queue.offer(new ClassifiedTask() {
+
+            @Override
+            public WorkPriorityClass getPriorityClass() {
+                return CONNECTOR;
+            }
+
+            @Override
+            public long getProcessDefinitionId() {
+                return 1L;
+            }
+
+            @Override
+            public void run() {
+            }
+        });
+
+        assertThat(queue.size(CONNECTOR)).isEqualTo(1);
+    }
+
+    @Test
+    public void should_peek_the_next_polled_work() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c0"));
+        queue.offer(new ClassWork(FLOW_NODE, 1L, "f0"));
+
+        final Runnable peeked = queue.peek();
+
+        assertThat(queue.poll()).isSameAs(peeked);
+    }
+
+    @Test
+    public void should_remove_clear_and_iterate() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(true);
+        final ClassWork c0 = new ClassWork(CONNECTOR, 1L, "c0");
+        final ClassWork c1 = new ClassWork(CONNECTOR, 2L, "c1");
+        final ClassWork f0 = new ClassWork(FLOW_NODE, 1L, "f0");
+        queue.offer(c0);
+        queue.offer(c1);
+        queue.offer(f0);
+
+        assertThat(queue).containsOnly(c0, c1, f0);
+        assertThat(queue.remove(c1)).isTrue();
+        assertThat(queue.remove(c1)).isFalse();
+        final Iterator<Runnable> iterator = queue.iterator();
+        iterator.next();
+        iterator.remove();
+        assertThat(queue).hasSize(1);
+        queue.clear();
+        assertThat(queue).isEmpty();
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.poll(10, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    public void should_drain_works_in_scheduling_order() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c0"));
+        queue.offer(new ClassWork(FLOW_NODE, 1L, "f0"));
+        queue.offer(new ClassWork(NOTIFY_CHILD, 1L, "o0"));
+        final List<Runnable> drained = new ArrayList<>();
+
+        assertThat(queue.drainTo(drained, 2)).isEqualTo(2);
+        assertThat(queue.drainTo(drained)).isEqualTo(1);
+
+        final List<String> names = new ArrayList<>();
+        for (final Runnable runnable : drained) {
+            names.add(runnable.toString());
+        }
+        assertThat(names).containsExactly("f0", "c0", "o0");
+    }
+
+    @Test
+    public void take_should_wait_for_a_work() throws Exception {
+        final WeightedFairWorkQueue queue = createQueue(false);
+        final ClassWork work = new ClassWork(CONNECTOR, 1L, "c0");
+        new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    queue.put(work);
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).start();
+
+        assertThat(queue.take()).isSameAs(work);
+    }
+
+    @Test
+    public void should_queue_works_of_a_class_that_waits_above_its_capacity() throws Exception {
+        final WeightedFairWorkQueue queue = new WeightedFairWorkQueue(asList(new WorkClassConfiguration(CONNECTOR, 1, 1, WAIT),
+                new WorkClassConfiguration(OTHER, 1, 1, ABORT)), false, 1, TimeUnit.MINUTES);
+
+        assertThat(queue.offer(new ClassWork(CONNECTOR, 1L, "c0"))).isTrue();
+        assertThat(queue.offer(new ClassWork(CONNECTOR, 1L, "c1"))).isTrue();
+        assertThat(queue.offer(new ClassWork(OTHER, 1L, "o0"))).isTrue();
+        assertThat(queue.offer(new ClassWork(OTHER, 1L, "o1"))).isFalse();
+
+        assertThat(queue.size(CONNECTOR)).isEqualTo(2);
+        assertThat(queue.remainingCapacity()).isEqualTo(0);
+    }
+
+    @Test
+    public void awaitRoom_should_wait_until_the_classes_that_wait_are_under_their_capacity() throws Exception {
+        final WeightedFairWorkQueue queue = new WeightedFairWorkQueue(asList(new WorkClassConfiguration(CONNECTOR, 1, 2, WAIT),
+                new WorkClassConfiguration(OTHER, 1, 10, ABORT)), false, 5, TimeUnit.SECONDS);
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c0"));
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c1"));
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c2"));
+        new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    queue.take();
+                    queue.take();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).start();
+
+        queue.awaitRoom();
+
+        assertThat(queue.size(CONNECTOR)).isEqualTo(1);
+    }
+
+    @Test
+    public void awaitRoom_should_reject_when_a_class_that_waits_stays_full() throws Exception {
+        final WeightedFairWorkQueue queue = new WeightedFairWorkQueue(asList(new WorkClassConfiguration(CONNECTOR, 1, 1, WAIT),
+                new WorkClassConfiguration(OTHER, 1, 10, ABORT)), false, 10, TimeUnit.MILLISECONDS);
+        queue.offer(new ClassWork(CONNECTOR, 1L, "c0"));
+
+        try {
+            queue.awaitRoom();
+            fail("should be rejected");
+        } catch (final RejectedExecutionException e) {
+            assertThat(e.getMessage()).contains("CONNECTOR");
+        }
+    }
+
+    @Test
+    public void awaitRoom_should_not_wait_for_classes_that_abort() throws Exception {
+        final WeightedFairWorkQueue queue = new WeightedFairWorkQueue(asList(new WorkClassConfiguration(CONNECTOR, 1, 1, WAIT),
+                new WorkClassConfiguration(OTHER, 1, 1, ABORT)), false, 1, TimeUnit.MINUTES);
+        queue.offer(new ClassWork(OTHER, 1L, "o0"));
+
+        queue.awaitRoom();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_require_configuration_of_class_other() {
+        new WeightedFairWorkQueue(Collections.singletonList(new WorkClassConfiguration(FLOW_NODE, 1, 10, ABORT)), false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void should_not_accept_a_class_configured_twice() {
+        new WeightedFairWorkQueue(asList(new WorkClassConfiguration(OTHER, 1, 10, ABORT), new WorkClassConfiguration(OTHER, 2, 10, ABORT)), false);
+    }
+
+    private List<String> pollAll(final WeightedFairWorkQueue queue) {
+        final List<String> names = new ArrayList<>();
+        Runnable runnable;
+        while ((runnable = queue.poll()) != null) {
+            names.add(runnable.toString());
+        }
+        return names;
+    }
+
+    private static final class ClassWork extends BonitaWork {
+
+        private static final long serialVersionUID = 1L;
+
+        private final WorkPriorityClass priorityClass;
+
+        private final long processDefinitionId;
+
+        private final String name;
+
+        ClassWork(final WorkPriorityClass priorityClass, final long processDefinitionId, final String name) {
+            this.priorityClass = priorityClass;
+            this.processDefinitionId = processDefinitionId;
+            this.name = name;
+        }
+
+        @Override
+        public WorkPriorityClass getPriorityClass() {
+            return priorityClass;
+        }
+
+        @Override
+        public long getProcessDefinitionId() {
+            return processDefinitionId;
+        }
+
+        @Override
+        public String getDescription() {
+            return name;
+        }
+
+        @Override
+        public void work(final Map<String, Object> context) {
+        }
+
+        @Override
+        public void handleFailure(final Exception e, final Map<String, Object> context) {
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+}
@@ -14,11 +14,16 @@
 
 package org.bonitasoft.engine.work;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.engine.transaction.TransactionState.COMMITTED;
 import static org.bonitasoft.engine.transaction.TransactionState.ROLLEDBACK;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.bonitasoft.engine.sessionaccessor.SessionAccessor;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -44,6 +49,8 @@ public class WorkSynchronizationTest {
     private BonitaWork bonitaWork1;
     @Mock
     private BonitaWork bonitaWork2;
+    @Mock
+    private WorkJournalAcknowledger journalAcknowledger;
 
     @Test
     public void should_submit_work_on_commit() throws Exception {
@@ -51,7 +58,8 @@ public class WorkSynchronizationTest {
 
         workSynchronization.afterCompletion(COMMITTED);
 
-        verify(bonitaExecutorService).execute(bonitaWork1);
+        verify(bonitaExecutorService).executeAll(workSynchronization.getWorks());
+        assertThat(workSynchronization.getWorks()).containsOnly(bonitaWork1);
     }
 
     @Test
@@ -61,8 +69,17 @@ public class WorkSynchronizationTest {
 
         workSynchronization.afterCompletion(COMMITTED);
 
-        verify(bonitaExecutorService).execute(bonitaWork1);
-        verify(bonitaExecutorService).execute(bonitaWork2);
+        verify(bonitaExecutorService).executeAll(workSynchronization.getWorks());
+        assertThat(workSynchronization.getWorks()).containsOnly(bonitaWork1, bonitaWork2);
+    }
+
+    @Test
+    public void should_never_wait_for_room_in_the_queue_inside_the_transaction() throws Exception {
+        workSynchronization.addWork(bonitaWork1);
+
+        workSynchronization.beforeCommit();
+
+        verify(bonitaExecutorService, never()).awaitCapacity();
     }
 
     @Test
@@ -71,7 +88,27 @@ public class WorkSynchronizationTest {
 
         workSynchronization.afterCompletion(ROLLEDBACK);
 
-        verify(bonitaExecutorService, never()).execute(bonitaWork1);
+        verify(bonitaExecutorService, never()).executeAll(anyCollectionOf(BonitaWork.class));
+    }
+
+    @Test
+    public void should_give_back_removed_journal_entries_on_rollback() throws Exception {
+        final List<Long> removedEntries = Arrays.asList(1L, 2L);
+        workSynchronization.setRemovedJournalEntries(journalAcknowledger, removedEntries);
+
+        workSynchronization.afterCompletion(ROLLEDBACK);
+
+        verify(journalAcknowledger).requeue(removedEntries);
+    }
+
+    @Test
+    public void should_not_give_back_removed_journal_entries_on_commit() throws Exception {
+        final List<Long> removedEntries = Arrays.asList(1L, 2L);
+        workSynchronization.setRemovedJournalEntries(journalAcknowledger, removedEntries);
+
+        workSynchronization.afterCompletion(COMMITTED);
+
+        verify(journalAcknowledger, never()).requeue(removedEntries);
     }
 
 }